@@ -0,0 +1,140 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cedarsolutions.santa.server.assignment.AssignmentAttempts;
+import com.cedarsolutions.santa.server.assignment.AttemptRunner.Attempt;
+import com.cedarsolutions.santa.server.assignment.ConflictMatrix;
+import com.cedarsolutions.santa.server.assignment.MatchingSolver;
+
+/**
+ * Benchmarks a single randomized assignment attempt, without the service around it.
+ *
+ * <p>
+ * The service retries failed attempts, which hides how often an individual
+ * attempt fails.  This benchmark runs one attempt per call against a fixed
+ * conflict matrix and counts the failures, so the failure rate per attempt
+ * is failures / (successes + failures).
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class AssignmentAttemptBenchmark {
+
+    /** Seed used to choose conflicts. */
+    private static final long SEED = 42L;
+
+    /** Number of participants in the exchange. */
+    @Param({ "10", "100", "1000", "10000", })
+    public int participants;
+
+    /** Percentage chance that any participant conflicts with any other. */
+    @Param({ "0", "10", "50", })
+    public int conflictDensity;
+
+    /** Whether automatic conflict detection is enabled. */
+    @Param({ "true", "false", })
+    public boolean autoConflict;
+
+    /** Kind of attempt to make, either GREEDY or MATCHING. */
+    @Param({ "GREEDY", "MATCHING", })
+    public String attempt;
+
+    /** Attempt under test. */
+    private Attempt solver;
+
+    /** Source of randomness for the attempts. */
+    private Random random;
+
+    /** Build the conflict matrix and the attempt. */
+    @Setup(Level.Trial)
+    public void setUp() {
+        ConflictMatrix matrix = new ConflictMatrix(BenchmarkExchanges.createParticipants(this.participants, this.conflictDensity, SEED));
+        if ("GREEDY".equals(this.attempt)) {
+            this.solver = AssignmentAttempts.greedy(matrix, this.autoConflict).createAttempt();
+        } else if ("MATCHING".equals(this.attempt)) {
+            this.solver = AssignmentAttempts.matching(matrix, this.autoConflict).createAttempt();
+        } else {
+            throw new IllegalArgumentException("Unknown attempt: " + this.attempt);
+        }
+
+        this.random = new Random(SEED);
+    }
+
+    /** Make one attempt. */
+    @Benchmark
+    public int[] attempt(Outcomes outcomes) {
+        int[] receivers = this.solver.attempt(this.random);
+        if (receivers != null && MatchingSolver.countUnmatched(receivers) == 0) {
+            outcomes.successes++;
+        } else {
+            outcomes.failures++;
+        }
+
+        return receivers;
+    }
+
+    /** Counts successful and failed attempts, which JMH reports alongside the throughput. */
+    @State(Scope.Thread)
+    @AuxCounters
+    public static class Outcomes {
+
+        /** Attempts that produced a valid set of assignments. */
+        public long successes;
+
+        /** Attempts that did not. */
+        public long failures;
+
+        /** Reset the counters before each iteration. */
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.successes = 0;
+            this.failures = 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,133 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.benchmark;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.cedarsolutions.santa.server.assignment.AssignmentStrategy;
+import com.cedarsolutions.santa.server.config.ExchangeServiceConfig;
+import com.cedarsolutions.santa.server.service.impl.ExchangeService;
+import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+
+/**
+ * Builds exchanges and services for the benchmarks.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public final class BenchmarkExchanges {
+
+    /** Prevent instantiation. */
+    private BenchmarkExchanges() {
+    }
+
+    /**
+     * Create a valid exchange with random conflicts.
+     * The same arguments always yield the same exchange, so results are comparable from run to run.
+     * @param size             Number of participants
+     * @param conflictDensity  Percentage chance that any participant conflicts with any other
+     * @param seed             Seed used to choose the conflicts
+     * @return Exchange that passes validation.
+     */
+    public static Exchange createExchange(int size, int conflictDensity, long seed) {
+        Exchange exchange = new Exchange();
+        exchange.setName("Benchmark");
+        exchange.setDateAndTime("Whenever");
+        exchange.setTheme("Speed");
+        exchange.setCost("$0");
+        exchange.getOrganizer().setName("Organizer");
+        exchange.getOrganizer().setEmailAddress("organizer@example.com");
+        exchange.setParticipants(createParticipants(size, conflictDensity, seed));
+        return exchange;
+    }
+
+    /**
+     * Create a set of participants with random conflicts.
+     * @param size             Number of participants
+     * @param conflictDensity  Percentage chance that any participant conflicts with any other
+     * @param seed             Seed used to choose the conflicts
+     * @return Set of participants with ids 1..size.
+     */
+    public static ParticipantSet createParticipants(int size, int conflictDensity, long seed) {
+        ParticipantSet participants = new ParticipantSet();
+        for (int i = 1; i <= size; i++) {
+            participants.add(new Participant((long) i, "name" + i, "nick" + i, "email" + i + "@example.com"));
+        }
+
+        if (conflictDensity > 0) {
+            Random random = new Random(seed);
+            for (Participant participant : participants) {
+                for (Participant conflict : participants) {
+                    if (participant != conflict && random.nextInt(100) < conflictDensity) {
+                        participant.addConflict(conflict);
+                    }
+                }
+            }
+        }
+
+        return participants;
+    }
+
+    /**
+     * Create an exchange service configured for the benchmarks.
+     * The service only generates assignments, so no email service is set up.
+     * @param strategy     Assignment strategy to use
+     * @param parallelism  Maximum number of assignment attempts to run at once
+     * @return Exchange service that runs outside of App Engine.
+     */
+    public static ExchangeService createService(AssignmentStrategy strategy, int parallelism) {
+        Properties properties = new Properties();
+        properties.setProperty("ExchangeService.templateGroup", "exchange");
+        properties.setProperty("ExchangeService.senderName", "Secret Santa Exchange");
+        properties.setProperty("ExchangeService.senderAddress", "santa@example.com");
+        properties.setProperty("ExchangeService.defaultEmailFormat", "MULTIPART");
+        properties.setProperty("ExchangeService.defaultTemplateName", "standard");
+        properties.setProperty("ExchangeService.maxAttempts", "10");
+        properties.setProperty("ExchangeService.assignmentStrategy", strategy.name());
+        properties.setProperty("ExchangeService.cycleTimeLimit", "2000");
+        properties.setProperty("ExchangeService.parallelism", String.valueOf(parallelism));
+        properties.setProperty("ExchangeService.mutualPairPenalty", "1");
+        properties.setProperty("ExchangeService.priorPairingPenalty", "2");
+        properties.setProperty("ExchangeService.maxOptimalParticipants", String.valueOf(Integer.MAX_VALUE));  // the benchmarks set their own limits
+
+        ExchangeServiceConfig config = new ExchangeServiceConfig();
+        config.setProperties(properties);
+        config.afterPropertiesSet();
+
+        ExchangeService service = new BenchmarkExchangeService();
+        service.setConfig(config);
+        return service;
+    }
+
+    /** Exchange service that creates ordinary threads, since there is no App Engine request. */
+    private static class BenchmarkExchangeService extends ExchangeService {
+        @Override
+        protected ThreadFactory createThreadFactory() {
+            return Executors.defaultThreadFactory();
+        }
+    }
+
+}
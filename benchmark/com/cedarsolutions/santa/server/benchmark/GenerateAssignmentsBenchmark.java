@@ -0,0 +1,145 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cedarsolutions.exception.InvalidDataException;
+import com.cedarsolutions.santa.server.assignment.AssignmentStrategy;
+import com.cedarsolutions.santa.server.service.impl.ExchangeService;
+import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
+import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+
+/**
+ * Benchmarks ExchangeService.generateAssignments() end to end.
+ *
+ * <p>
+ * Every call validates the exchange, builds the conflict matrix and runs the
+ * configured strategy, just like sending notifications does.  Calls that fail
+ * to generate assignments are counted separately, so the results show how
+ * often each combination fails as well as how fast it is.  The optimal
+ * strategy is O(n^3) and needs a cost matrix of n^2 longs, so it is skipped
+ * above OPTIMAL_LIMIT participants.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class GenerateAssignmentsBenchmark {
+
+    /** Largest exchange that the optimal strategy is benchmarked for. */
+    private static final int OPTIMAL_LIMIT = 1000;
+
+    /** Seed used to choose conflicts. */
+    private static final long SEED = 42L;
+
+    /** Number of participants in the exchange. */
+    @Param({ "10", "100", "1000", "10000", })
+    public int participants;
+
+    /** Percentage chance that any participant conflicts with any other. */
+    @Param({ "0", "10", "50", })
+    public int conflictDensity;
+
+    /** Whether automatic conflict detection is enabled. */
+    @Param({ "true", "false", })
+    public boolean autoConflict;
+
+    /** Assignment strategy to use. */
+    @Param({ "GREEDY", "MATCHING", "SINGLE_CYCLE", "UNIFORM", "OPTIMAL", })
+    public AssignmentStrategy strategy;
+
+    /** Maximum number of assignment attempts to run at once. */
+    @Param({ "1", })
+    public int parallelism;
+
+    /** Exchange to generate assignments for. */
+    private Exchange exchange;
+
+    /** Service under test. */
+    private ExchangeService service;
+
+    /** Build the exchange and service. */
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (this.strategy == AssignmentStrategy.OPTIMAL && this.participants > OPTIMAL_LIMIT) {
+            throw new IllegalStateException("Skipped: OPTIMAL is not benchmarked above " + OPTIMAL_LIMIT + " participants");
+        }
+
+        this.exchange = BenchmarkExchanges.createExchange(this.participants, this.conflictDensity, SEED);
+        this.service = BenchmarkExchanges.createService(this.strategy, this.parallelism);
+    }
+
+    /** Generate one set of assignments. */
+    @Benchmark
+    public AssignmentSet generateAssignments(Outcomes outcomes) {
+        try {
+            AssignmentSet assignments = this.service.generateAssignments(this.exchange, this.autoConflict);
+            outcomes.successes++;
+            return assignments;
+        } catch (InvalidDataException e) {
+            outcomes.failures++;
+            return null;
+        }
+    }
+
+    /** Counts successful and failed calls, which JMH reports alongside the throughput. */
+    @State(Scope.Thread)
+    @AuxCounters
+    public static class Outcomes {
+
+        /** Calls that generated assignments. */
+        public long successes;
+
+        /** Calls that failed to generate assignments. */
+        public long failures;
+
+        /** Reset the counters before each iteration. */
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.successes = 0;
+            this.failures = 0;
+        }
+
+    }
+
+}
@@ -28,21 +28,21 @@ import com.cedarsolutions.dao.domain.PaginatedResults;
 import com.cedarsolutions.dao.domain.Pagination;
 import com.cedarsolutions.santa.client.rpc.IExchangeRpcAsync;
 import com.cedarsolutions.santa.client.rpc.util.BackendDataRpcCaller;
-import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
 import com.cedarsolutions.santa.shared.domain.exchange.ExchangeCriteria;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
 import com.google.gwt.user.client.rpc.AsyncCallback;
 
 /**
- * Backend data source for Exchange data.
+ * Backend data source for exchange summaries.
  * @author Kenneth J. Pronovici <pronovic@ieee.org>
  */
-public class ExchangeDataSource extends BackendDataSource<Exchange, ExchangeCriteria> {
+public class ExchangeDataSource extends BackendDataSource<ExchangeSummary, ExchangeCriteria> {
 
     /** Exchange RPC. */
     private IExchangeRpcAsync exchangeRpc;
 
     /** Create a data source. */
-    public ExchangeDataSource(IBackendDataRenderer<Exchange, ExchangeCriteria> renderer, IExchangeRpcAsync exchangeRpc) {
+    public ExchangeDataSource(IBackendDataRenderer<ExchangeSummary, ExchangeCriteria> renderer, IExchangeRpcAsync exchangeRpc) {
         super(renderer);
         this.exchangeRpc = exchangeRpc;
     }
@@ -59,18 +59,18 @@ public class ExchangeDataSource extends BackendDataSource<Exchange, ExchangeCrit
      */
     @Override
     protected void retrieveFromBackEnd(int start, Pagination pagination) {
-        GetExchangesCaller caller = new GetExchangesCaller(this, start);
+        GetExchangeSummariesCaller caller = new GetExchangeSummariesCaller(this, start);
         caller.setMethodArguments(this.getSearchCriteria(), pagination);
         caller.invoke();
     }
 
-    /** Caller for IExchangeRpc.getExchanges(). */
-    protected static class GetExchangesCaller extends BackendDataRpcCaller<IExchangeRpcAsync, Exchange, ExchangeCriteria> {
+    /** Caller for IExchangeRpc.getExchangeSummaries(). */
+    protected static class GetExchangeSummariesCaller extends BackendDataRpcCaller<IExchangeRpcAsync, ExchangeSummary, ExchangeCriteria> {
         private ExchangeCriteria criteria;
         private Pagination pagination;
 
-        public GetExchangesCaller(ExchangeDataSource parent, int start) {
-            super(parent.getExchangeRpc(), "IExchangeRpc", "getExchanges", parent, start);
+        public GetExchangeSummariesCaller(ExchangeDataSource parent, int start) {
+            super(parent.getExchangeRpc(), "IExchangeRpc", "getExchangeSummaries", parent, start);
         }
 
         public void setMethodArguments(ExchangeCriteria criteria, Pagination pagination) {
@@ -79,8 +79,8 @@ public class ExchangeDataSource extends BackendDataSource<Exchange, ExchangeCrit
         }
 
         @Override
-        public void invokeRpcMethod(IExchangeRpcAsync async, AsyncCallback<PaginatedResults<Exchange>> callback) {
-            async.getExchanges(this.criteria, this.pagination, callback);
+        public void invokeRpcMethod(IExchangeRpcAsync async, AsyncCallback<PaginatedResults<ExchangeSummary>> callback) {
+            async.getExchangeSummaries(this.criteria, this.pagination, callback);
         }
     }
 }
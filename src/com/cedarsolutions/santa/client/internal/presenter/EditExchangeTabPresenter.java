@@ -37,8 +37,11 @@ import com.cedarsolutions.santa.client.internal.view.IEditExchangeTabView;
 import com.cedarsolutions.santa.client.internal.view.InternalConstants;
 import com.cedarsolutions.santa.client.rpc.IExchangeRpcAsync;
 import com.cedarsolutions.santa.client.rpc.util.StandardRpcCaller;
+import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSection;
 import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantPage;
 import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
 import com.cedarsolutions.shared.domain.ErrorDescription;
 import com.cedarsolutions.shared.domain.email.EmailMessage;
@@ -49,14 +52,54 @@ import com.mvp4g.client.annotation.Presenter;
 
 /**
  * Presenter for edit exchange tab.
+ *
+ * <p>
+ * A large exchange can take a while to retrieve, so an exchange is loaded
+ * in pieces: first the header, which is shown right away, then its
+ * participants a page at a time, and finally its assignments.  The view
+ * can't be edited until the whole exchange has been loaded, because saving
+ * a partial exchange would lose the parts that weren't loaded yet.
+ * </p>
+ *
+ * <p>
+ * Saving works the same way in reverse.  Only the header, the participants
+ * that were added or replaced since the last save, and the ids of the removed
+ * participants are sent, a page of participants at a time.  The view can't
+ * be edited until the last page has been saved.  Sending notifications saves
+ * first, and then asks the back-end to send for the saved exchange, so the
+ * exchange itself is never sent in one piece.
+ * </p>
+ *
  * @author Kenneth J. Pronovici <pronovic@ieee.org>
  */
 @Presenter(view = EditExchangeTabView.class)
 public class EditExchangeTabPresenter extends ModulePagePresenter<IEditExchangeTabView, InternalEventBus> {
 
+    /** Number of participants retrieved at once when loading an exchange. */
+    public static final int PARTICIPANT_PAGE_SIZE = 500;
+
+    /** Number of participants sent at once when saving an exchange. */
+    public static final int SAVE_PAGE_SIZE = 500;
+
+    /** What to do once an exchange has been saved. */
+    protected enum AfterSave {
+        CONTINUE_EDITING,     // keep editing the exchange
+        SEND_NOTIFICATIONS,   // send notifications for the saved exchange
+        RETURN_TO_LIST;       // go back to the exchange list
+    }
+
     /** Exchange edit manager. */
     private ExchangeEditManager manager;
 
+    /** Exchange that is being loaded, as retrieved so far, or null if nothing is being loaded. */
+    private Exchange loading;
+
+    /** Incremented every time loading starts, so results requested by an earlier load can be recognized. */
+    private int generation;
+
+    /** Total number of participants, as reported by the first page of the exchange being loaded. */
+    private int loadingTotal;
+
     /** Exchange RPC. */
     private IExchangeRpcAsync exchangeRpc;
 
@@ -70,6 +113,8 @@ public class EditExchangeTabPresenter extends ModulePagePresenter<IEditExchangeT
         view.setEditState(null); // will be filled later when events are handled
         view.setSaveHandler(new SaveHandler(this));
         view.setResetHandler(new ResetHandler(this));
+        view.setUndoEditHandler(new UndoEditHandler(this));
+        view.setRedoEditHandler(new RedoEditHandler(this));
         view.setReturnToListHandler(new ReturnToListHandler(this));
         view.setAddParticipantHandler(new AddParticipantHandler(this));
         view.setEditParticipantHandler(new EditParticipantHandler(this));
@@ -95,6 +140,184 @@ public class EditExchangeTabPresenter extends ModulePagePresenter<IEditExchangeT
         this.getEventBus().selectEditExchangeTab();
     }
 
+    /**
+     * Start loading an exchange, given its header.
+     * The header is shown right away, but it can't be edited until the rest of the exchange has been loaded.
+     * @param header  Exchange retrieved without its participants or assignments
+     */
+    protected void startLoading(Exchange header) {
+        this.loading = header;
+        this.generation++;
+        this.loadingTotal = 0;
+        this.getManager().clear();
+        this.getView().setEditState(header);
+        this.getView().setLoading(true);
+        this.getEventBus().selectEditExchangeTab();
+        this.retrieveParticipants(0);
+    }
+
+    /**
+     * Retrieve a page of participants for the exchange that is being loaded.
+     * @param start  Position of the first participant to retrieve
+     */
+    protected void retrieveParticipants(int start) {
+        RetrieveParticipantsCaller caller = new RetrieveParticipantsCaller(this);
+        caller.setMethodArguments(this.loading.getId(), this.generation, start);
+        caller.invoke();
+    }
+
+    /**
+     * Add a page of participants to the exchange that is being loaded, and retrieve whatever comes next.
+     * A page that doesn't start right after the participants retrieved so far is ignored.  If the
+     * participant total changes part way through, the exchange changed while it was being loaded,
+     * so loading starts over rather than finishing with a mix of old and new participants.
+     * @param page  Page of participants that was retrieved
+     */
+    protected void addParticipants(ParticipantPage page) {
+        if (page.getStart() != this.loading.getParticipants().size()) {
+            return;  // a duplicate, e.g. from a retried call
+        }
+
+        if (page.getStart() == 0) {
+            this.loadingTotal = page.getTotal();
+        } else if (page.getTotal() != this.loadingTotal) {
+            this.restartLoading();
+            return;
+        }
+
+        this.loading.getParticipants().addAll(page.getParticipants());
+        if (page.isLastPage()) {
+            if (this.loading.getParticipants().size() != this.loadingTotal) {
+                this.restartLoading();  // participants were removed before we got to them
+                return;
+            }
+
+            RetrieveAssignmentsCaller caller = new RetrieveAssignmentsCaller(this);
+            caller.setMethodArguments(this.loading.getId(), this.generation);
+            caller.invoke();
+        } else {
+            this.retrieveParticipants(page.getEnd());
+        }
+    }
+
+    /**
+     * Finish loading an exchange, and start editing it.
+     * @param assignments  Assignments for the exchange, possibly null
+     */
+    protected void finishLoading(AssignmentSet assignments) {
+        this.loading.setAssignments(assignments);
+        this.getManager().initialize(this.loading);
+        this.loading = null;
+        this.getView().setLoading(false);
+        this.getEventBus().editCurrentExchange();
+    }
+
+    /** Start loading the exchange over again, from its header, because it changed while it was being loaded. */
+    protected void restartLoading() {
+        Long exchangeId = this.loading.getId();
+        this.loading = null;  // anything still outstanding for this load is ignored
+        this.onShowEditExchangePage(exchangeId);
+    }
+
+    /** Stop loading an exchange, without editing it. */
+    protected void cancelLoading() {
+        this.loading = null;
+        this.getManager().clear();
+        this.getView().setLoading(false);
+    }
+
+    /**
+     * Start saving the edit state, a page of participants at a time.
+     * @param afterSave  What to do once the exchange has been saved
+     */
+    protected void startSaving(AfterSave afterSave) {
+        Exchange header = this.getManager().getEditState().copyHeader();
+        List<Participant> participants = this.getManager().getUnsavedParticipants();
+        List<Long> removedIds = this.getManager().getRemovedParticipantIds();
+        this.getView().setLoading(true);
+        this.saveParticipants(header, participants, removedIds, 0, afterSave);
+    }
+
+    /**
+     * Save a page of participants for the exchange that is being saved.
+     * @param header        Header of the exchange that is being saved
+     * @param participants  All of the participants that need to be saved
+     * @param removedIds    Ids of the participants that were removed
+     * @param start         Position of the first participant to save
+     * @param afterSave     What to do once the exchange has been saved
+     */
+    protected void saveParticipants(Exchange header, List<Participant> participants, List<Long> removedIds, int start, AfterSave afterSave) {
+        SaveExchangeCaller caller = new SaveExchangeCaller(this);
+        caller.setMethodArguments(header, participants, removedIds, start, afterSave);
+        caller.invoke();
+    }
+
+    /**
+     * Finish saving an exchange, and then do whatever comes next.
+     * @param header     Header of the newly-saved exchange
+     * @param afterSave  What to do now that the exchange has been saved
+     */
+    protected void finishSaving(Exchange header, AfterSave afterSave) {
+        this.getManager().markSaved(header);
+        this.getView().setLoading(false);
+
+        if (afterSave == AfterSave.RETURN_TO_LIST) {
+            this.getView().setEditState(null);
+            this.getManager().clear();
+            this.getEventBus().showExchangeListPage();
+        } else {
+            this.getView().setEditState(this.getManager().getEditState());
+            if (afterSave == AfterSave.SEND_NOTIFICATIONS) {
+                SendNotificationsCaller caller = new SendNotificationsCaller(this);
+                caller.setMethodArguments(header.getId());
+                caller.invoke();
+            }
+        }
+    }
+
+    /** Stop saving an exchange, leaving its unsaved changes in place so they can be saved again. */
+    protected void cancelSaving() {
+        this.getView().setLoading(false);
+    }
+
+    /** Stop loading an exchange that turned out not to exist, and go back to the exchange list. */
+    protected void showNotFound() {
+        this.cancelLoading();
+        this.getEventBus().showExchangeListPage();
+        this.getEventBus().showErrorPopup(createNotFoundError());
+    }
+
+    /**
+     * Whether a load is the one currently in progress.
+     * Results for any other load are stale, because the user has moved on (or the
+     * same exchange has started loading again) since they were requested.
+     * @param generation  Generation of the load to check, as from getGeneration()
+     */
+    protected boolean isLoading(int generation) {
+        return this.loading != null && generation == this.generation;
+    }
+
+    /** Get the generation of the most recent load. */
+    protected int getGeneration() {
+        return this.generation;
+    }
+
+    /** Get the exchange that is being loaded, as retrieved so far, or null if nothing is being loaded. */
+    protected Exchange getLoading() {
+        return this.loading;
+    }
+
+    /** Create the error shown when an exchange can't be found. */
+    private static ErrorDescription createNotFoundError() {
+        InternalConstants constants = GWT.create(InternalConstants.class);
+        String message = constants.editExchange_exchangeNotFound();
+
+        List<String> supporting = new ArrayList<String>();
+        supporting.add(constants.editExchange_chooseAnotherExchange());
+
+        return new ErrorDescription(message, supporting);
+    }
+
     /** Get the exchange edit manager. */
     public ExchangeEditManager getManager() {
         return this.manager;
@@ -125,10 +348,8 @@ public class EditExchangeTabPresenter extends ModulePagePresenter<IEditExchangeT
 
         @Override
         public void handleEvent(UnifiedEvent event) {
-            this.getParent().getManager().getEditState().refresh(this.getParent().getView().getEditState());
-            SaveExchangeCaller caller = new SaveExchangeCaller(this.getParent());
-            caller.setMethodArguments(this.getParent().getManager().getEditState());
-            caller.invoke();
+            this.getParent().getManager().getEditState().refreshShared(this.getParent().getView().getEditState());
+            this.getParent().startSaving(AfterSave.CONTINUE_EDITING);
         }
     }
 
@@ -145,6 +366,36 @@ public class EditExchangeTabPresenter extends ModulePagePresenter<IEditExchangeT
         }
     }
 
+    /** Undo edit handler. */
+    protected static class UndoEditHandler extends AbstractViewEventHandler<EditExchangeTabPresenter> {
+        public UndoEditHandler(EditExchangeTabPresenter parent) {
+            super(parent);
+        }
+
+        @Override
+        public void handleEvent(UnifiedEvent event) {
+            this.getParent().getManager().getEditState().refreshShared(this.getParent().getView().getEditState());
+            if (this.getParent().getManager().undoEdit()) {  // records anything typed since the last edit first
+                this.getParent().getView().setEditState(this.getParent().getManager().getEditState());
+            }
+        }
+    }
+
+    /** Redo edit handler. */
+    protected static class RedoEditHandler extends AbstractViewEventHandler<EditExchangeTabPresenter> {
+        public RedoEditHandler(EditExchangeTabPresenter parent) {
+            super(parent);
+        }
+
+        @Override
+        public void handleEvent(UnifiedEvent event) {
+            this.getParent().getManager().getEditState().refreshShared(this.getParent().getView().getEditState());
+            if (this.getParent().getManager().redoEdit()) {
+                this.getParent().getView().setEditState(this.getParent().getManager().getEditState());
+            }
+        }
+    }
+
     /** ReturnToList handler. */
     protected static class ReturnToListHandler extends AbstractViewEventHandler<EditExchangeTabPresenter> {
         public ReturnToListHandler(EditExchangeTabPresenter parent) {
@@ -153,10 +404,8 @@ public class EditExchangeTabPresenter extends ModulePagePresenter<IEditExchangeT
 
         @Override
         public void handleEvent(UnifiedEvent event) {
-            this.getParent().getManager().getEditState().refresh(this.getParent().getView().getEditState());
-            ReturnToListCaller caller = new ReturnToListCaller(this.getParent());
-            caller.setMethodArguments(this.getParent().getManager().getEditState());
-            caller.invoke();
+            this.getParent().getManager().getEditState().refreshShared(this.getParent().getView().getEditState());
+            this.getParent().startSaving(AfterSave.RETURN_TO_LIST);
         }
     }
 
@@ -168,13 +417,14 @@ public class EditExchangeTabPresenter extends ModulePagePresenter<IEditExchangeT
 
         @Override
         public void handleEvent(UnifiedEvent event) {
-            this.getParent().getManager().getEditState().refresh(this.getParent().getView().getEditState());
+            this.getParent().getManager().getEditState().refreshShared(this.getParent().getView().getEditState());
 
             InternalConstants constants = GWT.create(InternalConstants.class);
             Participant participant = new Participant();
             participant.setId(this.getParent().getManager().getEditState().getNextParticipantId());
             participant.setName(constants.editExchange_newParticipantName());
             this.getParent().getManager().getEditState().getParticipants().add(participant);
+            this.getParent().getManager().recordEdit();
 
             this.getParent().getEventBus().showEditParticipantPage(participant, true, this.getParent().getManager().getEditState().getParticipants());
         }
@@ -188,7 +438,11 @@ public class EditExchangeTabPresenter extends ModulePagePresenter<IEditExchangeT
 
         @Override
         public void handleEvent(UnifiedEventWithContext<Participant> event) {
-            this.getParent().getManager().getEditState().refresh(this.getParent().getView().getEditState());
+            if (!this.getParent().getManager().isActive()) {
+                return;  // the exchange is still loading
+            }
+
+            this.getParent().getManager().getEditState().refreshShared(this.getParent().getView().getEditState());
             Participant participant = event.getContext();
             ParticipantSet participants = this.getParent().getManager().getEditState().getParticipants();
             this.getParent().getEventBus().showEditParticipantPage(participant, false, participants);
@@ -203,15 +457,15 @@ public class EditExchangeTabPresenter extends ModulePagePresenter<IEditExchangeT
 
         @Override
         public void handleEvent(UnifiedEvent event) {
-            this.getParent().getManager().getEditState().refresh(this.getParent().getView().getEditState());
+            this.getParent().getManager().getEditState().refreshShared(this.getParent().getView().getEditState());
 
             ParticipantSet selected = this.getParent().getView().getSelectedParticipants();
             if (!selected.isEmpty()) {
-                for (Participant participant : selected) {
-                    this.getParent().getManager().getEditState().removeParticipant(participant);
-                }
+                this.getParent().getManager().getEditState().removeParticipants(selected);
             }
 
+            this.getParent().getManager().recordEdit();
+
             this.getParent().getView().setEditState(this.getParent().getManager().getEditState());
         }
     }
@@ -224,10 +478,8 @@ public class EditExchangeTabPresenter extends ModulePagePresenter<IEditExchangeT
 
         @Override
         public void handleEvent(UnifiedEvent event) {
-            this.getParent().getManager().getEditState().refresh(this.getParent().getView().getEditState());
-            SendNotificationsCaller caller = new SendNotificationsCaller(this.getParent());
-            caller.setMethodArguments(this.getParent().getManager().getEditState());
-            caller.invoke();
+            this.getParent().getManager().getEditState().refreshShared(this.getParent().getView().getEditState());
+            this.getParent().startSaving(AfterSave.SEND_NOTIFICATIONS);
         }
     }
 
@@ -239,7 +491,7 @@ public class EditExchangeTabPresenter extends ModulePagePresenter<IEditExchangeT
 
         @Override
         public void handleEvent(UnifiedEvent event) {
-            this.getParent().getManager().getEditState().refresh(this.getParent().getView().getEditState());
+            this.getParent().getManager().getEditState().refreshShared(this.getParent().getView().getEditState());
             ParticipantSet selected = this.getParent().getView().getSelectedParticipants();
             if (!selected.isEmpty()) {
                 ResendNotificationCaller caller = new ResendNotificationCaller(this.getParent());
@@ -257,20 +509,20 @@ public class EditExchangeTabPresenter extends ModulePagePresenter<IEditExchangeT
 
         @Override
         public void handleEvent(UnifiedEvent event) {
-            this.getParent().getManager().getEditState().refresh(this.getParent().getView().getEditState());
+            this.getParent().getManager().getEditState().refreshShared(this.getParent().getView().getEditState());
             GeneratePreviewCaller caller = new GeneratePreviewCaller(this.getParent());
             caller.setMethodArguments(this.getParent().getManager().getEditState());
             caller.invoke();
         }
     }
 
-    /** Caller for IExchangeRpc.retrieveExchange(). */
+    /** Caller for IExchangeRpc.retrieveExchangeSections(), to retrieve the header of an exchange. */
     protected static class RetrieveExchangeCaller extends StandardRpcCaller<IExchangeRpcAsync, Exchange> {
         protected EditExchangeTabPresenter parent;
         protected long exchangeId;
 
         public RetrieveExchangeCaller(EditExchangeTabPresenter parent) {
-            super(parent.getExchangeRpc(), "IExchangeRpc", "retrieveExchange");
+            super(parent.getExchangeRpc(), "IExchangeRpc", "retrieveExchangeSections");
             this.parent = parent;
             this.markRetryable();  // it's safe to retry this RPC call
         }
@@ -281,99 +533,145 @@ public class EditExchangeTabPresenter extends ModulePagePresenter<IEditExchangeT
 
         @Override
         public void invokeRpcMethod(IExchangeRpcAsync async, AsyncCallback<Exchange> callback) {
-            async.retrieveExchange(this.exchangeId, callback);
+            async.retrieveExchangeSections(this.exchangeId, new ArrayList<ExchangeSection>(), callback);
         }
 
         @Override
         public void onUnhandledError(Throwable caught) {
             super.onUnhandledError(caught);
+            this.parent.cancelLoading();
             this.parent.getEventBus().showExchangeListPage();
         }
 
         @Override
         public void onSuccessResult(Exchange result) {
             if (result == null) {
-                this.parent.getManager().clear();
-                this.parent.getEventBus().showExchangeListPage();
-                this.parent.getEventBus().showErrorPopup(createNotFoundError());
+                this.parent.showNotFound();
             } else {
-                this.parent.getManager().initialize(result);
-                this.parent.getEventBus().editCurrentExchange();
+                this.parent.startLoading(result);
             }
         }
+    }
 
-        private static ErrorDescription createNotFoundError() {
-            InternalConstants constants = GWT.create(InternalConstants.class);
-            String message = constants.editExchange_exchangeNotFound();
+    /** Caller for IExchangeRpc.retrieveParticipants(), to retrieve a page of participants while loading an exchange. */
+    protected static class RetrieveParticipantsCaller extends StandardRpcCaller<IExchangeRpcAsync, ParticipantPage> {
+        protected EditExchangeTabPresenter parent;
+        protected Long exchangeId;
+        protected int generation;
+        protected int start;
 
-            List<String> supporting = new ArrayList<String>();
-            supporting.add(constants.editExchange_chooseAnotherExchange());
+        public RetrieveParticipantsCaller(EditExchangeTabPresenter parent) {
+            super(parent.getExchangeRpc(), "IExchangeRpc", "retrieveParticipants");
+            this.parent = parent;
+            this.markRetryable();  // it's safe to retry this RPC call
+        }
 
-            return new ErrorDescription(message, supporting);
+        public void setMethodArguments(Long exchangeId, int generation, int start) {
+            this.exchangeId = exchangeId;
+            this.generation = generation;
+            this.start = start;
+        }
+
+        @Override
+        public void invokeRpcMethod(IExchangeRpcAsync async, AsyncCallback<ParticipantPage> callback) {
+            async.retrieveParticipants(this.exchangeId, this.start, PARTICIPANT_PAGE_SIZE, callback);
+        }
+
+        @Override
+        public void onUnhandledError(Throwable caught) {
+            super.onUnhandledError(caught);
+            if (this.parent.isLoading(this.generation)) {
+                this.parent.cancelLoading();
+                this.parent.getEventBus().showExchangeListPage();
+            }
+        }
+
+        @Override
+        public void onSuccessResult(ParticipantPage result) {
+            if (this.parent.isLoading(this.generation)) {
+                if (result == null) {
+                    this.parent.showNotFound();  // deleted since we started loading it
+                } else {
+                    this.parent.addParticipants(result);
+                }
+            }
         }
     }
 
-    /** Caller for IExchangeRpc.sendNotifications(). */
-    protected static class SendNotificationsCaller extends StandardRpcCaller<IExchangeRpcAsync, Exchange> {
+    /** Caller for IExchangeRpc.retrieveExchangeSections(), to retrieve the assignments while loading an exchange. */
+    protected static class RetrieveAssignmentsCaller extends StandardRpcCaller<IExchangeRpcAsync, Exchange> {
         protected EditExchangeTabPresenter parent;
-        protected Exchange exchange;
+        protected Long exchangeId;
+        protected int generation;
 
-        public SendNotificationsCaller(EditExchangeTabPresenter parent) {
-            super(parent.getExchangeRpc(), "IExchangeRpc", "sendNotifications");
+        public RetrieveAssignmentsCaller(EditExchangeTabPresenter parent) {
+            super(parent.getExchangeRpc(), "IExchangeRpc", "retrieveExchangeSections");
             this.parent = parent;
-            this.markNotRetryable();  // it's NOT safe to retry this RPC call
+            this.markRetryable();  // it's safe to retry this RPC call
         }
 
-        public void setMethodArguments(Exchange exchange) {
-            this.exchange = exchange;
+        public void setMethodArguments(Long exchangeId, int generation) {
+            this.exchangeId = exchangeId;
+            this.generation = generation;
         }
 
         @Override
         public void invokeRpcMethod(IExchangeRpcAsync async, AsyncCallback<Exchange> callback) {
-            async.sendNotifications(this.exchange, callback);
+            List<ExchangeSection> sections = new ArrayList<ExchangeSection>();
+            sections.add(ExchangeSection.ASSIGNMENTS);
+            async.retrieveExchangeSections(this.exchangeId, sections, callback);
         }
 
         @Override
-        public void onSuccessResult(Exchange result) {
-            this.parent.getManager().getEditState().refresh(result);
-            this.parent.getView().setEditState(this.parent.getManager().getEditState());
-            this.parent.getView().showSendSuccessfulPopup();
+        public void onUnhandledError(Throwable caught) {
+            super.onUnhandledError(caught);
+            if (this.parent.isLoading(this.generation)) {
+                this.parent.cancelLoading();
+                this.parent.getEventBus().showExchangeListPage();
+            }
         }
 
         @Override
-        public boolean onValidationError(InvalidDataException caught) {
-            this.parent.getView().showValidationError(caught);
-            return true;
+        public void onSuccessResult(Exchange result) {
+            if (this.parent.isLoading(this.generation)) {
+                if (result == null) {
+                    this.parent.showNotFound();  // deleted since we started loading it
+                } else {
+                    this.parent.finishLoading(result.getAssignments());
+                }
+            }
         }
     }
 
-    /** Caller for IExchangeRpc.resendNotification(). */
-    protected static class ResendNotificationCaller extends StandardRpcCaller<IExchangeRpcAsync, Exchange> {
+    /** Caller for IExchangeRpc.sendNotifications(), once the exchange has been saved. */
+    protected static class SendNotificationsCaller extends StandardRpcCaller<IExchangeRpcAsync, Exchange> {
         protected EditExchangeTabPresenter parent;
-        protected Exchange exchange;
-        protected ParticipantSet participants;
+        protected Long exchangeId;
 
-        public ResendNotificationCaller(EditExchangeTabPresenter parent) {
-            super(parent.getExchangeRpc(), "IExchangeRpc", "resendNotification");
+        public SendNotificationsCaller(EditExchangeTabPresenter parent) {
+            super(parent.getExchangeRpc(), "IExchangeRpc", "sendNotifications");
             this.parent = parent;
             this.markNotRetryable();  // it's NOT safe to retry this RPC call
         }
 
-        public void setMethodArguments(Exchange exchange, ParticipantSet participants) {
-            this.exchange = exchange;
-            this.participants = participants;
+        public void setMethodArguments(Long exchangeId) {
+            this.exchangeId = exchangeId;
         }
 
         @Override
         public void invokeRpcMethod(IExchangeRpcAsync async, AsyncCallback<Exchange> callback) {
-            async.resendNotification(this.exchange, this.participants, callback);
+            async.sendNotifications(this.exchangeId, callback);
         }
 
         @Override
         public void onSuccessResult(Exchange result) {
-            this.parent.getManager().getEditState().refresh(result);
-            this.parent.getView().setEditState(this.parent.getManager().getEditState());
-            this.parent.getView().showSendSuccessfulPopup();
+            if (result == null) {
+                this.parent.showNotFound();  // deleted since it was saved
+            } else {
+                this.parent.getManager().markSaved(result);  // the result has the new assignments
+                this.parent.getView().setEditState(this.parent.getManager().getEditState());
+                this.parent.getView().showSendSuccessfulPopup();
+            }
         }
 
         @Override
@@ -383,31 +681,34 @@ public class EditExchangeTabPresenter extends ModulePagePresenter<IEditExchangeT
         }
     }
 
-    /** Call for IExchangeRpc.saveExchange(), for return to list. */
-    protected static class ReturnToListCaller extends StandardRpcCaller<IExchangeRpcAsync, Exchange> {
+    /** Caller for IExchangeRpc.resendNotification(). */
+    protected static class ResendNotificationCaller extends StandardRpcCaller<IExchangeRpcAsync, Exchange> {
         protected EditExchangeTabPresenter parent;
         protected Exchange exchange;
+        protected ParticipantSet participants;
 
-        public ReturnToListCaller(EditExchangeTabPresenter parent) {
-            super(parent.getExchangeRpc(), "IExchangeRpc", "saveExchange");
+        public ResendNotificationCaller(EditExchangeTabPresenter parent) {
+            super(parent.getExchangeRpc(), "IExchangeRpc", "resendNotification");
             this.parent = parent;
-            this.markRetryable();  // it's safe to retry this RPC call
+            this.markNotRetryable();  // it's NOT safe to retry this RPC call
         }
 
-        public void setMethodArguments(Exchange exchange) {
+        public void setMethodArguments(Exchange exchange, ParticipantSet participants) {
             this.exchange = exchange;
+            this.participants = participants;
         }
 
         @Override
         public void invokeRpcMethod(IExchangeRpcAsync async, AsyncCallback<Exchange> callback) {
-            async.saveExchange(this.exchange, callback);
+            async.resendNotification(this.exchange, this.participants, callback);
         }
 
         @Override
         public void onSuccessResult(Exchange result) {
-            this.parent.getView().setEditState(null);
-            this.parent.getManager().clear();
-            this.parent.getEventBus().showExchangeListPage();
+            this.parent.getManager().getEditState().refreshShared(result);
+            this.parent.getManager().clearHistory();  // the back-end may have changed things, so it's a new starting point
+            this.parent.getView().setEditState(this.parent.getManager().getEditState());
+            this.parent.getView().showSendSuccessfulPopup();
         }
 
         @Override
@@ -417,34 +718,61 @@ public class EditExchangeTabPresenter extends ModulePagePresenter<IEditExchangeT
         }
     }
 
-    /** Caller for IExchangeRpc.saveExchange(). */
+    /** Caller for IExchangeRpc.saveExchangeChanges(), to save a page of participants. */
     protected static class SaveExchangeCaller extends StandardRpcCaller<IExchangeRpcAsync, Exchange> {
         protected EditExchangeTabPresenter parent;
-        protected Exchange exchange;
+        protected Exchange header;
+        protected List<Participant> participants;
+        protected List<Long> removedIds;
+        protected int start;
+        protected AfterSave afterSave;
 
         public SaveExchangeCaller(EditExchangeTabPresenter parent) {
-            super(parent.getExchangeRpc(), "IExchangeRpc", "saveExchange");
+            super(parent.getExchangeRpc(), "IExchangeRpc", "saveExchangeChanges");
             this.parent = parent;
-            this.markRetryable();  // it's safe to retry this RPC call
+            this.markRetryable();  // it's safe to retry this RPC call, since applying a page twice does no harm
         }
 
-        public void setMethodArguments(Exchange exchange) {
-            this.exchange = exchange;
+        public void setMethodArguments(Exchange header, List<Participant> participants, List<Long> removedIds, int start, AfterSave afterSave) {
+            this.header = header;
+            this.participants = participants;
+            this.removedIds = removedIds;
+            this.start = start;
+            this.afterSave = afterSave;
+        }
+
+        /** Get the position just past the last participant in this page. */
+        protected int getEnd() {
+            return Math.min(this.start + SAVE_PAGE_SIZE, this.participants.size());
         }
 
         @Override
         public void invokeRpcMethod(IExchangeRpcAsync async, AsyncCallback<Exchange> callback) {
-            async.saveExchange(this.exchange, callback);
+            List<Participant> page = new ArrayList<Participant>(this.participants.subList(this.start, this.getEnd()));
+            List<Long> removed = this.start == 0 ? this.removedIds : null;  // removals only go with the first page
+            async.saveExchangeChanges(this.header, page, removed, callback);
+        }
+
+        @Override
+        public void onUnhandledError(Throwable caught) {
+            super.onUnhandledError(caught);
+            this.parent.cancelSaving();
         }
 
         @Override
         public void onSuccessResult(Exchange result) {
-            this.parent.getManager().getEditState().refresh(result);
-            this.parent.getView().setEditState(this.parent.getManager().getEditState());
+            if (result == null) {
+                this.parent.showNotFound();  // deleted since we started editing it
+            } else if (this.getEnd() < this.participants.size()) {
+                this.parent.saveParticipants(this.header, this.participants, this.removedIds, this.getEnd(), this.afterSave);
+            } else {
+                this.parent.finishSaving(result, this.afterSave);
+            }
         }
 
         @Override
         public boolean onValidationError(InvalidDataException caught) {
+            this.parent.cancelSaving();
             this.parent.getView().showValidationError(caught);
             return true;
         }
@@ -139,6 +139,8 @@ public class EditParticipantTabPresenter extends ModulePagePresenter<IEditPartic
                     throw new CedarRuntimeException("Did not find participant to replace in exchange");
                 }
 
+                this.getParent().getManager().recordEdit();
+
                 this.getParent().getEventBus().editCurrentExchange();
             } catch (InvalidDataException e) {
                 this.getParent().getView().showValidationError(e);
@@ -201,6 +203,7 @@ public class EditParticipantTabPresenter extends ModulePagePresenter<IEditPartic
             if (this.getParent().getIsNew()) {
                 // If the participant is new, then it should be removed on cancel
                 this.getParent().getManager().getEditState().removeParticipant(this.getParent().getUndoState());
+                this.getParent().getManager().recordEdit();
             }
 
             // Note: no need to fall back to undo state, because the parent only
@@ -22,45 +22,282 @@
  * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
 package com.cedarsolutions.santa.client.internal.presenter;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeDelta;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
 import com.google.inject.Singleton;
 
 /**
  * Edit manager for exchanges, to hold edit state.
+ *
+ * <p>
+ * The undo state and edit state are copy-on-write snapshots (see
+ * Exchange.refreshShared()), so they share every participant and other node
+ * that has not been edited.  Taking a snapshot or undoing edits costs a
+ * reference per list entry rather than a deep copy of the whole exchange.
+ * Change the edit state by replacing nodes, never by changing them in place.
+ * </p>
+ *
+ * <p>
+ * Changes are detected by the edit state's own change tracking (see
+ * Exchange.hasChanges()), and only what it reports as changed is compared to
+ * the undo state (see Exchange.isUnchangedFrom()).  So, checking for
+ * changes doesn't walk the exchange, and setting a field back to its
+ * original value doesn't count as a change.
+ * </p>
+ *
+ * <p>
+ * On top of the all-or-nothing undo(), the manager keeps a bounded history
+ * of individual edits, which can be stepped through with undoEdit() and
+ * redoEdit().  Each edit is stored as an ExchangeDelta holding only the
+ * fields and participants that changed, and the history is capped both by
+ * number of edits and by estimated size.  Callers mark the end of an edit
+ * with recordEdit(); anything not yet recorded is recorded automatically
+ * before stepping through the history.  Checking whether an edit can be
+ * undone or redone never records anything.
+ * </p>
+ *
+ * <p>
+ * The manager also keeps a snapshot of the exchange as it was last saved, so
+ * that only the participants that were added, replaced or removed since then
+ * need to be sent when saving.  Because nodes are never changed in place, a
+ * participant is unsaved exactly when it is not the same object as the saved
+ * participant with its id.
+ * </p>
+ *
  * @author Kenneth J. Pronovici <pronovic@ieee.org>
  */
 @Singleton
 public class ExchangeEditManager {
 
+    /** Default maximum number of edits kept in the undo and redo history. */
+    public static final int DEFAULT_MAX_HISTORY_STEPS = 50;
+
+    /** Default maximum estimated size of the undo and redo history, in bytes. */
+    public static final long DEFAULT_MAX_HISTORY_SIZE = 1024 * 1024;
+
     /** The exchange that we'll fall back to on "undo". */
     private Exchange undoState;
 
     /** The current state of the exchange, which may not have been saved yet. */
     private Exchange editState;
 
+    /** Snapshot of the edit state as of the last recorded edit. */
+    private Exchange recordedState;
+
+    /** Snapshot of the exchange as it was last saved (or loaded). */
+    private Exchange savedState;
+
+    /** Edits that can be undone, oldest first. */
+    private List<ExchangeDelta> undoHistory;
+
+    /** Edits that can be redone, furthest away first. */
+    private List<ExchangeDelta> redoHistory;
+
+    /** Estimated size of the undo and redo history, in bytes. */
+    private long historySize;
+
+    /** Maximum number of edits kept in the undo and redo history. */
+    private int maxHistorySteps;
+
+    /** Maximum estimated size of the undo and redo history, in bytes. */
+    private long maxHistorySize;
+
     /** Default constructor. */
     public ExchangeEditManager() {
         this.undoState = null;
         this.editState = null;
+        this.recordedState = null;
+        this.savedState = null;
+        this.undoHistory = new ArrayList<ExchangeDelta>();
+        this.redoHistory = new ArrayList<ExchangeDelta>();
+        this.historySize = 0;
+        this.maxHistorySteps = DEFAULT_MAX_HISTORY_STEPS;
+        this.maxHistorySize = DEFAULT_MAX_HISTORY_SIZE;
     }
 
     /** Initialize the edit manager in terms of an exchange. */
     public void initialize(Exchange exchange) {
-        this.undoState = new Exchange(exchange);
-        this.editState = new Exchange(exchange);
+        this.undoState = exchange.snapshot();
+        this.undoState.clearChanges();
+        this.editState = this.undoState.snapshot();
+        this.savedState = this.undoState.snapshot();
+        this.clearHistory();
     }
 
     /** Clear the edit manager. */
     public void clear() {
         this.undoState = null;
         this.editState = null;
+        this.savedState = null;
+        this.clearHistory();
+    }
+
+    /**
+     * Mark the edit state as saved, given the header that the back-end returned.
+     * The header's fields (and its assignments, if it has any) replace the ones in the edit state.
+     * @param header  Header of the newly-saved exchange
+     */
+    public void markSaved(Exchange header) {
+        if (this.isActive()) {
+            this.editState.applyChanges(header, null, null);
+            if (header.getAssignments() != null) {
+                this.editState.setAssignments(header.getAssignments());
+            }
+
+            this.savedState = this.editState.snapshot();
+            this.clearHistory();  // the back-end may have changed things, so it's a new starting point
+        }
+    }
+
+    /** Get the participants in the edit state that were added or replaced since the exchange was last saved, in order. */
+    public List<Participant> getUnsavedParticipants() {
+        List<Participant> unsaved = new ArrayList<Participant>();
+        if (this.isActive()) {
+            ParticipantSet saved = this.savedState.getParticipants();
+            for (Participant participant : this.editState.getParticipants()) {
+                if (saved.getParticipantById(participant.getId()) != participant) {
+                    unsaved.add(participant);
+                }
+            }
+        }
+
+        return unsaved;
+    }
+
+    /** Get the ids of the participants that were removed from the edit state since the exchange was last saved. */
+    public List<Long> getRemovedParticipantIds() {
+        List<Long> removed = new ArrayList<Long>();
+        if (this.isActive()) {
+            ParticipantSet current = this.editState.getParticipants();
+            for (Participant participant : this.savedState.getParticipants()) {
+                if (current.getParticipantById(participant.getId()) == null) {
+                    removed.add(participant.getId());
+                }
+            }
+        }
+
+        return removed;
     }
 
     /** Undo any edits. */
     public void undo() {
         if (this.isActive()) {
-            this.editState.refresh(this.undoState);
+            this.editState.refreshShared(this.undoState);
+            this.clearHistory();
+        }
+    }
+
+    /**
+     * Record the changes made to the edit state since the last recorded edit as a single edit.
+     * Recording a new edit discards anything that could have been redone.
+     * @return True if there were changes to record, false otherwise.
+     */
+    public boolean recordEdit() {
+        if (!this.isActive()) {
+            return false;
+        }
+
+        ExchangeDelta delta = ExchangeDelta.compare(this.recordedState, this.editState);
+        if (delta.isEmpty()) {
+            return false;
+        }
+
+        this.redoHistory.clear();
+        this.undoHistory.add(delta);
+        this.recordedState = this.editState.snapshot();
+        this.updateHistorySize();
+        return true;
+    }
+
+    /** Whether there is an edit that can be undone, including one that has not been recorded yet. */
+    public boolean canUndoEdit() {
+        return !this.undoHistory.isEmpty() || this.hasUnrecordedEdit();
+    }
+
+    /** Whether there is an edit that can be redone; an edit that has not been recorded yet would discard it. */
+    public boolean canRedoEdit() {
+        return !this.redoHistory.isEmpty() && !this.hasUnrecordedEdit();
+    }
+
+    /** Whether the edit state has changed since the last recorded edit, without recording anything. */
+    private boolean hasUnrecordedEdit() {
+        return this.isActive() && !ExchangeDelta.compare(this.recordedState, this.editState).isEmpty();
+    }
+
+    /**
+     * Undo the most recent edit, after recording any changes that were not yet recorded.
+     * @return True if an edit was undone, false if there was nothing to undo.
+     */
+    public boolean undoEdit() {
+        this.recordEdit();
+        if (this.undoHistory.isEmpty()) {
+            return false;
+        }
+
+        ExchangeDelta delta = this.undoHistory.remove(this.undoHistory.size() - 1);
+        delta.undo(this.editState);
+        this.redoHistory.add(delta);
+        this.recordedState = this.editState.snapshot();
+        return true;
+    }
+
+    /**
+     * Redo the most recently undone edit.
+     * Any changes made since that edit was undone are recorded first, which discards the redo history.
+     * @return True if an edit was redone, false if there was nothing to redo.
+     */
+    public boolean redoEdit() {
+        this.recordEdit();
+        if (this.redoHistory.isEmpty()) {
+            return false;
+        }
+
+        ExchangeDelta delta = this.redoHistory.remove(this.redoHistory.size() - 1);
+        delta.redo(this.editState);
+        this.undoHistory.add(delta);
+        this.recordedState = this.editState.snapshot();
+        return true;
+    }
+
+    /** Clear the undo and redo history, so that the current edit state becomes the starting point. */
+    public void clearHistory() {
+        this.undoHistory.clear();
+        this.redoHistory.clear();
+        this.historySize = 0;
+        this.recordedState = this.editState == null ? null : this.editState.snapshot();
+    }
+
+    /** Recompute the size of the history, and drop the oldest edits until it fits within the limits. */
+    private void updateHistorySize() {
+        this.historySize = 0;
+        for (ExchangeDelta delta : this.undoHistory) {
+            this.historySize += delta.getEstimatedSize();
+        }
+
+        for (ExchangeDelta delta : this.redoHistory) {
+            this.historySize += delta.getEstimatedSize();
         }
+
+        while (!this.undoHistory.isEmpty() && this.isHistoryTooLarge()) {
+            this.historySize -= this.undoHistory.remove(0).getEstimatedSize();
+        }
+
+        while (!this.redoHistory.isEmpty() && this.isHistoryTooLarge()) {
+            this.historySize -= this.redoHistory.remove(0).getEstimatedSize();
+        }
+    }
+
+    /** Whether the history is over either of its limits. */
+    private boolean isHistoryTooLarge() {
+        return this.undoHistory.size() + this.redoHistory.size() > this.maxHistorySteps
+               || this.historySize > this.maxHistorySize;
     }
 
     /** Whether an exchange is actively being edited. */
@@ -71,12 +308,21 @@ public class ExchangeEditManager {
     /** Whether there are any changes in the edit state vs. the undo state. */
     public boolean hasChanges() {
         if (this.isActive()) {
-            return !this.undoState.equals(this.editState);
+            return !this.editState.isUnchangedFrom(this.undoState);
         } else {
             return false;
         }
     }
 
+    /** Get the ids of the participants that were added, replaced or removed in the edit state. */
+    public Set<Long> getChangedParticipantIds() {
+        if (this.isActive()) {
+            return this.editState.getChangedParticipantIds();
+        } else {
+            return new HashSet<Long>();
+        }
+    }
+
     /** Get the current undo state. */
     public Exchange getUndoState() {
         return this.undoState;
@@ -87,4 +333,46 @@ public class ExchangeEditManager {
         return this.editState;
     }
 
+    /** Get the snapshot of the exchange as it was last saved. */
+    public Exchange getSavedState() {
+        return this.savedState;
+    }
+
+    /** Get the number of edits that can currently be undone. */
+    public int getUndoSteps() {
+        return this.undoHistory.size();
+    }
+
+    /** Get the number of edits that can currently be redone. */
+    public int getRedoSteps() {
+        return this.redoHistory.size();
+    }
+
+    /** Get the estimated size of the undo and redo history, in bytes. */
+    public long getHistorySize() {
+        return this.historySize;
+    }
+
+    /** Get the maximum number of edits kept in the undo and redo history. */
+    public int getMaxHistorySteps() {
+        return this.maxHistorySteps;
+    }
+
+    /** Set the maximum number of edits kept in the undo and redo history. */
+    public void setMaxHistorySteps(int maxHistorySteps) {
+        this.maxHistorySteps = maxHistorySteps;
+        this.updateHistorySize();
+    }
+
+    /** Get the maximum estimated size of the undo and redo history, in bytes. */
+    public long getMaxHistorySize() {
+        return this.maxHistorySize;
+    }
+
+    /** Set the maximum estimated size of the undo and redo history, in bytes. */
+    public void setMaxHistorySize(long maxHistorySize) {
+        this.maxHistorySize = maxHistorySize;
+        this.updateHistorySize();
+    }
+
 }
@@ -44,6 +44,7 @@ import com.cedarsolutions.santa.client.rpc.util.StandardRpcCaller;
 import com.cedarsolutions.santa.shared.domain.ClientSession;
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
 import com.cedarsolutions.santa.shared.domain.exchange.ExchangeCriteria;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.user.client.rpc.AsyncCallback;
 import com.google.inject.Inject;
@@ -56,7 +57,7 @@ import com.mvp4g.client.annotation.Presenter;
 @Presenter(view = ExchangeListTabView.class)
 public class ExchangeListTabPresenter
 extends ModulePagePresenter<IExchangeListTabView, InternalEventBus>
-implements IBackendDataPresenter<Exchange, ExchangeCriteria> {
+implements IBackendDataPresenter<ExchangeSummary, ExchangeCriteria> {
 
     /** Injector for the shared client session singleton. */
     private SystemStateInjector systemStateInjector;
@@ -65,7 +66,7 @@ implements IBackendDataPresenter<Exchange, ExchangeCriteria> {
     private IExchangeRpcAsync exchangeRpc;
 
     /** Data provider for our data. */
-    private BackendDataSource<Exchange, ExchangeCriteria> dataSource;
+    private BackendDataSource<ExchangeSummary, ExchangeCriteria> dataSource;
 
     /** Handle the start event so that the view gets bound. */
     public void onStart() {
@@ -89,7 +90,7 @@ implements IBackendDataPresenter<Exchange, ExchangeCriteria> {
 
     /** Get the renderer view. */
     @Override
-    public IBackendDataRenderer<Exchange, ExchangeCriteria> getRenderer() {
+    public IBackendDataRenderer<ExchangeSummary, ExchangeCriteria> getRenderer() {
         return this.getView();
     }
 
@@ -103,19 +104,19 @@ implements IBackendDataPresenter<Exchange, ExchangeCriteria> {
 
     /** Create a new instance of the correct data source. */
     @Override
-    public BackendDataSource<Exchange, ExchangeCriteria> createDataSource() {
+    public BackendDataSource<ExchangeSummary, ExchangeCriteria> createDataSource() {
         return new ExchangeDataSource(this.getView(), this.getExchangeRpc());
     }
 
     /** Get the data source that is in use. */
     @Override
-    public BackendDataSource<Exchange, ExchangeCriteria> getDataSource() {
+    public BackendDataSource<ExchangeSummary, ExchangeCriteria> getDataSource() {
         return this.dataSource;
     }
 
     /** Set the data source that is in use. */
     @Override
-    public void setDataSource(BackendDataSource<Exchange, ExchangeCriteria> dataSource) {
+    public void setDataSource(BackendDataSource<ExchangeSummary, ExchangeCriteria> dataSource) {
         this.dataSource = dataSource;
     }
 
@@ -148,7 +149,7 @@ implements IBackendDataPresenter<Exchange, ExchangeCriteria> {
 
         @Override
         public void handleEvent(UnifiedEvent event) {
-            List<Exchange> records = this.getParent().getView().getSelectedRecords();
+            List<ExchangeSummary> records = this.getParent().getView().getSelectedRecords();
             DeleteExchangesCaller caller = new DeleteExchangesCaller(this.getParent());
             caller.setMethodArguments(records);
             caller.invoke();
@@ -156,14 +157,14 @@ implements IBackendDataPresenter<Exchange, ExchangeCriteria> {
     }
 
     /** Edit selected row handler. */
-    protected static class EditSelectedRowHandler extends AbstractViewEventHandlerWithContext<ExchangeListTabPresenter, Exchange> {
+    protected static class EditSelectedRowHandler extends AbstractViewEventHandlerWithContext<ExchangeListTabPresenter, ExchangeSummary> {
         public EditSelectedRowHandler(ExchangeListTabPresenter parent) {
             super(parent);
         }
 
         @Override
-        public void handleEvent(UnifiedEventWithContext<Exchange> event) {
-            Exchange row = event.getContext();
+        public void handleEvent(UnifiedEventWithContext<ExchangeSummary> event) {
+            ExchangeSummary row = event.getContext();
             if (row != null && row.getId() != null) {
                 this.getParent().getEventBus().showEditExchangePage(row.getId());
             }
@@ -199,7 +200,7 @@ implements IBackendDataPresenter<Exchange, ExchangeCriteria> {
     /** Caller for IExchangeRpc.deleteExchanges(). */
     protected static class DeleteExchangesCaller extends StandardRpcCaller<IExchangeRpcAsync, Void> {
         protected ExchangeListTabPresenter parent;
-        protected List<Exchange> records;
+        protected List<ExchangeSummary> records;
 
         public DeleteExchangesCaller(ExchangeListTabPresenter parent) {
             super(parent.getExchangeRpc(), "IExchangeRpc", "deleteExchanges");
@@ -207,7 +208,7 @@ implements IBackendDataPresenter<Exchange, ExchangeCriteria> {
             this.markNotRetryable();  // it's NOT safe to retry this RPC call
         }
 
-        public void setMethodArguments(List<Exchange> records) {
+        public void setMethodArguments(List<ExchangeSummary> records) {
             this.records = records;
         }
 
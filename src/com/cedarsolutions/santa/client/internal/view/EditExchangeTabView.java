@@ -45,6 +45,7 @@ import com.cedarsolutions.santa.client.common.widget.InformationalPopup;
 import com.cedarsolutions.santa.client.common.widget.ValidationErrorWidget;
 import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+import com.cedarsolutions.santa.shared.domain.exchange.Organizer;
 import com.cedarsolutions.santa.shared.domain.exchange.Participant;
 import com.cedarsolutions.santa.shared.domain.exchange.ParticipantKeyProvider;
 import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
@@ -94,6 +95,8 @@ public class EditExchangeTabView extends ModuleTabView implements IEditExchangeT
     // User interface fields fron the UI binder
     @UiField @WithElementId protected Button saveButton;
     @UiField @WithElementId protected Button resetButton;
+    @UiField @WithElementId protected Button undoEditButton;
+    @UiField @WithElementId protected Button redoEditButton;
     @UiField @WithElementId protected Button returnToListButton;
     @UiField @WithElementId protected Button addParticipantButton;
     @UiField @WithElementId protected Button deleteParticipantButton;
@@ -133,6 +136,8 @@ public class EditExchangeTabView extends ModuleTabView implements IEditExchangeT
     protected InformationalPopup sendSuccessfulPopup;
     private ViewEventHandler saveHandler;
     private ViewEventHandler resetEventHandler;
+    private ViewEventHandler undoEditHandler;
+    private ViewEventHandler redoEditHandler;
     private ViewEventHandler returnToListHandler;
     private ViewEventHandler addParticipantHandler;
     private ViewEventHandlerWithContext<Participant> editParticipantHandler;
@@ -208,6 +213,30 @@ public class EditExchangeTabView extends ModuleTabView implements IEditExchangeT
         return this.resetEventHandler;
     }
 
+    /** Set the undo edit handler. */
+    @Override
+    public void setUndoEditHandler(ViewEventHandler undoEditHandler) {
+        this.undoEditHandler = undoEditHandler;
+    }
+
+    /** Get the undo edit handler. */
+    @Override
+    public ViewEventHandler getUndoEditHandler() {
+        return this.undoEditHandler;
+    }
+
+    /** Set the redo edit handler. */
+    @Override
+    public void setRedoEditHandler(ViewEventHandler redoEditHandler) {
+        this.redoEditHandler = redoEditHandler;
+    }
+
+    /** Get the redo edit handler. */
+    @Override
+    public ViewEventHandler getRedoEditHandler() {
+        return this.redoEditHandler;
+    }
+
     /** Set the return to list handler. */
     @Override
     public void setReturnToListHandler(ViewEventHandler returnToListHandler) {
@@ -313,7 +342,7 @@ public class EditExchangeTabView extends ModuleTabView implements IEditExchangeT
     /** Set the exchange to be edited. */
     @Override
     public void setEditState(Exchange exchange) {
-        this.editState = new Exchange(exchange);
+        this.editState = exchange.snapshot();
 
         this.dataProvider.setList(this.editState.getParticipants());
         this.table.setVisibleRangeAndClearData(new Range(0, this.getPageSize()), true);
@@ -335,20 +364,49 @@ public class EditExchangeTabView extends ModuleTabView implements IEditExchangeT
     /** Get the exchange that is being edited, in its current state. */
     @Override
     public Exchange getEditState() {
-        Exchange exchange = new Exchange(this.editState);
+        Exchange exchange = this.editState.snapshot();
 
         exchange.setName(this.exchangeNameInput.getText());
         exchange.setDateAndTime(this.dateTimeInput.getText());
         exchange.setTheme(this.themeInput.getText());
         exchange.setCost(this.costInput.getText());
         exchange.setExtraInfo(this.extraInfoInput.getText());
-        exchange.getOrganizer().setName(organizerNameInput.getText());
-        exchange.getOrganizer().setEmailAddress(organizerEmailInput.getText());
-        exchange.getOrganizer().setPhoneNumber(organizerPhoneInput.getText());
+
+        Organizer organizer = new Organizer(exchange.getOrganizer());  // the snapshot shares the old one
+        organizer.setName(organizerNameInput.getText());
+        organizer.setEmailAddress(organizerEmailInput.getText());
+        organizer.setPhoneNumber(organizerPhoneInput.getText());
+        exchange.setOrganizer(organizer);
 
         return exchange;
     }
 
+    /** Mark whether the exchange is still being loaded; it can't be edited until loading is done. */
+    @Override
+    public void setLoading(boolean loading) {
+        boolean enabled = !loading;
+
+        this.saveButton.setEnabled(enabled);
+        this.resetButton.setEnabled(enabled);
+        this.undoEditButton.setEnabled(enabled);
+        this.redoEditButton.setEnabled(enabled);
+        this.returnToListButton.setEnabled(enabled);
+        this.addParticipantButton.setEnabled(enabled);
+        this.deleteParticipantButton.setEnabled(enabled);
+        this.sendAllNotificationsButton.setEnabled(enabled);
+        this.resendNotificationButton.setEnabled(enabled);
+        this.previewButton.setEnabled(enabled);
+
+        this.exchangeNameInput.setEnabled(enabled);
+        this.dateTimeInput.setEnabled(enabled);
+        this.themeInput.setEnabled(enabled);
+        this.costInput.setEnabled(enabled);
+        this.extraInfoInput.setEnabled(enabled);
+        this.organizerNameInput.setEnabled(enabled);
+        this.organizerEmailInput.setEnabled(enabled);
+        this.organizerPhoneInput.setEnabled(enabled);
+    }
+
     /** Show the reset confirm popup. */
     protected void showResetConfirmPopup() {
         this.resetConfirmPopup.showPopup();
@@ -444,6 +502,14 @@ public class EditExchangeTabView extends ModuleTabView implements IEditExchangeT
         this.resetButton.setTitle(constants.editExchange_resetTooltip());
         this.resetButton.addClickHandler(new ResetClickHandler(this));
 
+        this.undoEditButton.setText(constants.editExchange_undoEditButton());
+        this.undoEditButton.setTitle(constants.editExchange_undoEditTooltip());
+        this.undoEditButton.addClickHandler(new UndoEditClickHandler(this));
+
+        this.redoEditButton.setText(constants.editExchange_redoEditButton());
+        this.redoEditButton.setTitle(constants.editExchange_redoEditTooltip());
+        this.redoEditButton.addClickHandler(new RedoEditClickHandler(this));
+
         this.returnToListButton.setText(constants.editExchange_returnToListButton());
         this.returnToListButton.setTitle(constants.editExchange_returnToListTooltip());
         this.returnToListButton.addClickHandler(new ReturnToListClickHandler(this));
@@ -561,6 +627,30 @@ public class EditExchangeTabView extends ModuleTabView implements IEditExchangeT
         }
     }
 
+    /** UndoEdit click handler. */
+    protected static class UndoEditClickHandler extends AbstractViewEventClickHandler<EditExchangeTabView> {
+        public UndoEditClickHandler(EditExchangeTabView parent) {
+            super(parent);
+        }
+
+        @Override
+        public ViewEventHandler getViewEventHandler() {
+            return this.getParent().getUndoEditHandler();
+        }
+    }
+
+    /** RedoEdit click handler. */
+    protected static class RedoEditClickHandler extends AbstractViewEventClickHandler<EditExchangeTabView> {
+        public RedoEditClickHandler(EditExchangeTabView parent) {
+            super(parent);
+        }
+
+        @Override
+        public ViewEventHandler getViewEventHandler() {
+            return this.getParent().getRedoEditHandler();
+        }
+    }
+
     /** ReturnToList click handler. */
     protected static class ReturnToListClickHandler extends AbstractViewEventClickHandler<EditExchangeTabView> {
         public ReturnToListClickHandler(EditExchangeTabView parent) {
@@ -107,6 +107,7 @@ public class EditParticipantTabView extends ModuleTabView implements IEditPartic
 
     // Other instance variables
     private Participant editState; // saves the current edit state for values that are not edited
+    private ParticipantSet conflicts = new ParticipantSet(); // edit state's conflicts, resolved against the exchange
     private ViewEventHandler saveHandler;
     private ViewEventHandler cancelHandler;
     private ListDataProvider<Participant> dataProvider = new ListDataProvider<Participant>();
@@ -183,8 +184,9 @@ public class EditParticipantTabView extends ModuleTabView implements IEditPartic
         Participant conflict = this.conflictInput.getSelectedObjectValue();
         if (conflict != null) {
             this.editState.addConflict(conflict);
+            this.conflicts.add(conflict);
             this.conflictInput.removeDropdownItem(conflict);
-            this.dataProvider.setList(this.editState.getConflicts());
+            this.dataProvider.setList(this.conflicts);
             this.table.selectNone();
             this.addConflictButton.setEnabled(this.conflictInput.getItemCount() > 0);
         }
@@ -197,11 +199,12 @@ public class EditParticipantTabView extends ModuleTabView implements IEditPartic
         if (selected != null && !selected.isEmpty()) {
             for (Participant conflict : this.table.getSelectedRecords()) {
                 this.editState.removeConflict(conflict);
+                this.conflicts.remove(conflict);
                 this.conflictInput.addDropdownItem(conflict);
             }
         }
 
-        this.dataProvider.setList(this.editState.getConflicts());
+        this.dataProvider.setList(this.conflicts);
         this.table.selectNone();
         this.addConflictButton.setEnabled(this.conflictInput.getItemCount() > 0);
     }
@@ -220,6 +223,7 @@ public class EditParticipantTabView extends ModuleTabView implements IEditPartic
         String receiverName = giftReceiver == null ? constants.editParticipant_noAssignment() : giftReceiver.getName();
 
         this.editState = new Participant(participant);
+        this.conflicts = participants == null ? new ParticipantSet() : participants.getParticipants(this.editState.getConflictIds());
 
         this.nameInput.setText(this.editState.getName());
         this.nicknameInput.setText(this.editState.getNickname());
@@ -232,7 +236,7 @@ public class EditParticipantTabView extends ModuleTabView implements IEditPartic
         this.giftGiverDisclosure.setOpen(false);
         this.giftReceiverDisclosure.setOpen(false);
 
-        this.dataProvider.setList(this.editState.getConflicts());
+        this.dataProvider.setList(this.conflicts);
         this.table.setVisibleRangeAndClearData(new Range(0, this.getPageSize()), true);
         this.table.selectNone();
 
@@ -240,7 +244,7 @@ public class EditParticipantTabView extends ModuleTabView implements IEditPartic
         if (participants != null) {
             this.conflictInput.setParticipants(participants);
             this.conflictInput.removeDropdownItem(participant);
-            for (Participant conflict : participant.getConflicts()) {
+            for (Participant conflict : this.conflicts) {
                 this.conflictInput.removeDropdownItem(conflict);
             }
         }
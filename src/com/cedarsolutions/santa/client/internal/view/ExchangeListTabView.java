@@ -37,9 +37,9 @@ import com.cedarsolutions.client.gwt.widget.table.DataTablePager;
 import com.cedarsolutions.exception.InvalidDataException;
 import com.cedarsolutions.exception.NotSupportedException;
 import com.cedarsolutions.santa.client.common.widget.ConfirmationPopup;
-import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
 import com.cedarsolutions.santa.shared.domain.exchange.ExchangeCriteria;
-import com.cedarsolutions.santa.shared.domain.exchange.ExchangeKeyProvider;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummaryKeyProvider;
 import com.google.gwt.cell.client.TextCell;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.dom.client.Style.Unit;
@@ -80,7 +80,7 @@ public class ExchangeListTabView extends ModuleTabView implements IExchangeListT
     @UiField @WithElementId protected Label paragraph1;
     @UiField @WithElementId protected Button createButton;
     @UiField @WithElementId protected Button deleteButton;
-    @UiField(provided = true) @WithElementId protected DataTable<Exchange> table;
+    @UiField(provided = true) @WithElementId protected DataTable<ExchangeSummary> table;
     @UiField(provided = true) @WithElementId protected DataTablePager pager;
 
     // Other instance variables
@@ -89,7 +89,7 @@ public class ExchangeListTabView extends ModuleTabView implements IExchangeListT
     private ViewEventHandler criteriaResetEventHandler;
     private ViewEventHandler createHandler;
     private ViewEventHandler deleteHandler;
-    private ViewEventHandlerWithContext<Exchange> editSelectedRowHandler;
+    private ViewEventHandlerWithContext<ExchangeSummary> editSelectedRowHandler;
     private ExchangeCriteria criteria;
 
     /** Create the view. */
@@ -150,13 +150,13 @@ public class ExchangeListTabView extends ModuleTabView implements IExchangeListT
 
     /** Get the edit selected row handler. */
     @Override
-    public ViewEventHandlerWithContext<Exchange> getEditSelectedRowHandler() {
+    public ViewEventHandlerWithContext<ExchangeSummary> getEditSelectedRowHandler() {
         return this.editSelectedRowHandler;
     }
 
     /** Set the edit selected row handler. */
     @Override
-    public void setEditSelectedRowHandler(ViewEventHandlerWithContext<Exchange> editSelectedRowHandler) {
+    public void setEditSelectedRowHandler(ViewEventHandlerWithContext<ExchangeSummary> editSelectedRowHandler) {
         this.editSelectedRowHandler = editSelectedRowHandler;
     }
 
@@ -174,19 +174,19 @@ public class ExchangeListTabView extends ModuleTabView implements IExchangeListT
     }
 
     /** Get the underlying table for this renderer. */
-    protected DataTable<Exchange> getTable() {
+    protected DataTable<ExchangeSummary> getTable() {
         return this.table;
     }
 
     /** Get the display for this renderer. */
     @Override
-    public HasData<Exchange> getDisplay() {
+    public HasData<ExchangeSummary> getDisplay() {
         return this.table;
     }
 
     /** Get the selected records. */
     @Override
-    public List<Exchange> getSelectedRecords() {
+    public List<ExchangeSummary> getSelectedRecords() {
         return this.table.getSelectedRecords();
     }
 
@@ -236,8 +236,8 @@ public class ExchangeListTabView extends ModuleTabView implements IExchangeListT
     private void setupTable() {
         InternalConstants constants = GWT.create(InternalConstants.class);
 
-        ExchangeKeyProvider keyProvider = new ExchangeKeyProvider();
-        this.table = new DataTable<Exchange>(constants.exchangeList_pageSize(), "675px", keyProvider);
+        ExchangeSummaryKeyProvider keyProvider = new ExchangeSummaryKeyProvider();
+        this.table = new DataTable<ExchangeSummary>(constants.exchangeList_pageSize(), "675px", keyProvider);
         this.pager = table.getPager();
 
         this.table.setNoRowsMessage(constants.exchangeList_noRows());
@@ -249,7 +249,7 @@ public class ExchangeListTabView extends ModuleTabView implements IExchangeListT
     }
 
     /** Add a column to the table. */
-    private void addColumn(Column<Exchange, ?> column, String title, int width) {
+    private void addColumn(Column<ExchangeSummary, ?> column, String title, int width) {
         this.table.addColumn(column, title);
         this.table.setColumnWidth(column, width, Unit.PCT);
     }
@@ -272,27 +272,27 @@ public class ExchangeListTabView extends ModuleTabView implements IExchangeListT
     }
 
     /** Name column. */
-    protected static class NameColumn extends Column<Exchange, String> {
+    protected static class NameColumn extends Column<ExchangeSummary, String> {
         public NameColumn() {
             super(new TextCell());
             this.setSortable(false);
         }
 
         @Override
-        public String getValue(Exchange item) {
+        public String getValue(ExchangeSummary item) {
             return item == null || item.getName() == null ? "" : item.getName();
         }
     }
 
     /** State column. */
-    protected static class StateColumn extends Column<Exchange, String> {
+    protected static class StateColumn extends Column<ExchangeSummary, String> {
         public StateColumn() {
             super(new TextCell());
             this.setSortable(false);
         }
 
         @Override
-        public String getValue(Exchange item) {
+        public String getValue(ExchangeSummary item) {
             if (item == null || item.getExchangeState() == null) {
                 return "";
             } else {
@@ -323,7 +323,7 @@ public class ExchangeListTabView extends ModuleTabView implements IExchangeListT
         public void onClick(ClickEvent event) {
             // Only bother to show confirmation if the parent will actually do something
             if (this.getParent().getDeleteHandler() != null) {
-                List<Exchange> selected = this.getParent().getTable().getSelectedRecords();
+                List<ExchangeSummary> selected = this.getParent().getTable().getSelectedRecords();
                 if (selected != null && !selected.isEmpty()) {
                     this.getParent().showDeletePopup(selected.size());
                     // later, the DeleteConfirmHandler will actually invoke the parent's delete event handler
@@ -347,7 +347,7 @@ public class ExchangeListTabView extends ModuleTabView implements IExchangeListT
     }
 
     /** Row click handler. */
-    protected static class RowClickHandler extends AbstractRowClickViewEventHandler<ExchangeListTabView, Exchange> {
+    protected static class RowClickHandler extends AbstractRowClickViewEventHandler<ExchangeListTabView, ExchangeSummary> {
         public RowClickHandler(ExchangeListTabView parent) {
             super(parent);
         }
@@ -358,7 +358,7 @@ public class ExchangeListTabView extends ModuleTabView implements IExchangeListT
         }
 
         @Override
-        protected ViewEventHandlerWithContext<Exchange> getViewEventHandler() {
+        protected ViewEventHandlerWithContext<ExchangeSummary> getViewEventHandler() {
             return this.getParent().getEditSelectedRowHandler();
         }
     }
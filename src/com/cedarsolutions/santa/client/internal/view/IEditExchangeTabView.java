@@ -44,6 +44,9 @@ public interface IEditExchangeTabView extends IModuleTabView, IViewWithValidatio
     /** Get the exchange that is being edited, in its current state. */
     Exchange getEditState();
 
+    /** Mark whether the exchange is still being loaded; it can't be edited until loading is done. */
+    void setLoading(boolean loading);
+
     /** Show the "send was successful" popup. */
     void showSendSuccessfulPopup();
 
@@ -68,6 +71,18 @@ public interface IEditExchangeTabView extends IModuleTabView, IViewWithValidatio
     /** Get the reset handler. */
     ViewEventHandler getResetHandler();
 
+    /** Set the undo edit handler. */
+    void setUndoEditHandler(ViewEventHandler undoEditHandler);
+
+    /** Get the undo edit handler. */
+    ViewEventHandler getUndoEditHandler();
+
+    /** Set the redo edit handler. */
+    void setRedoEditHandler(ViewEventHandler redoEditHandler);
+
+    /** Get the redo edit handler. */
+    ViewEventHandler getRedoEditHandler();
+
     /** Set the return to list handler. */
     void setReturnToListHandler(ViewEventHandler returnToListHandler);
 
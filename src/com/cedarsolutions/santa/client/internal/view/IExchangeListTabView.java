@@ -28,14 +28,14 @@ import com.cedarsolutions.client.gwt.datasource.IBackendDataRenderer;
 import com.cedarsolutions.client.gwt.event.ViewEventHandler;
 import com.cedarsolutions.client.gwt.event.ViewEventHandlerWithContext;
 import com.cedarsolutions.client.gwt.module.view.IModuleTabView;
-import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
 import com.cedarsolutions.santa.shared.domain.exchange.ExchangeCriteria;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
 
 /**
  * Exchange list tab.
  * @author Kenneth J. Pronovici <pronovic@ieee.org>
  */
-public interface IExchangeListTabView extends IModuleTabView, IBackendDataRenderer<Exchange, ExchangeCriteria> {
+public interface IExchangeListTabView extends IModuleTabView, IBackendDataRenderer<ExchangeSummary, ExchangeCriteria> {
 
     /** Get the delete handler. */
     ViewEventHandler getDeleteHandler();
@@ -50,12 +50,12 @@ public interface IExchangeListTabView extends IModuleTabView, IBackendDataRender
     void setCreateHandler(ViewEventHandler createHandler);
 
     /** Get the edit selected row handler. */
-    ViewEventHandlerWithContext<Exchange> getEditSelectedRowHandler();
+    ViewEventHandlerWithContext<ExchangeSummary> getEditSelectedRowHandler();
 
     /** Set the edit selected row handler. */
-    void setEditSelectedRowHandler(ViewEventHandlerWithContext<Exchange> editSelectedRowHandler);
+    void setEditSelectedRowHandler(ViewEventHandlerWithContext<ExchangeSummary> editSelectedRowHandler);
 
     /** Get the selected records. */
-    List<Exchange> getSelectedRecords();
+    List<ExchangeSummary> getSelectedRecords();
 
 }
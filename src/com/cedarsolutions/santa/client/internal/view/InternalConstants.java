@@ -132,6 +132,12 @@ public interface InternalConstants extends Constants {
     @DefaultStringValue("Revert Changes")
     String editExchange_resetButton();
 
+    @DefaultStringValue("Undo")
+    String editExchange_undoEditButton();
+
+    @DefaultStringValue("Redo")
+    String editExchange_redoEditButton();
+
     @DefaultStringValue("<< Return To List")
     String editExchange_returnToListButton();
 
@@ -156,6 +162,12 @@ public interface InternalConstants extends Constants {
     @DefaultStringValue("Revert all changes (including participants) since you saved last.")
     String editExchange_resetTooltip();
 
+    @DefaultStringValue("Undo your most recent change.")
+    String editExchange_undoEditTooltip();
+
+    @DefaultStringValue("Redo the change you most recently undid.")
+    String editExchange_redoEditTooltip();
+
     @DefaultStringValue("Return to your list of exchanges.")
     String editExchange_returnToListTooltip();
 
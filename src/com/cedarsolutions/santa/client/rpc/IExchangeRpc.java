@@ -33,6 +33,11 @@ import com.cedarsolutions.exception.RpcSecurityException;
 import com.cedarsolutions.exception.ServiceException;
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
 import com.cedarsolutions.santa.shared.domain.exchange.ExchangeCriteria;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSection;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
+import com.cedarsolutions.santa.shared.domain.exchange.FeasibilityResult;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantPage;
 import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
 import com.cedarsolutions.shared.domain.email.EmailMessage;
 import com.google.gwt.user.client.rpc.RemoteService;
@@ -57,6 +62,28 @@ public interface IExchangeRpc extends RemoteService {
      */
     Exchange retrieveExchange(Long exchangeId) throws RpcSecurityException, ServiceException;
 
+    /**
+     * Retrieve an exchange by exchange id, including only some of its sections.
+     * Sections that are left out come back empty (participants) or null (assignments).
+     * @param exchangeId  Exchange id.
+     * @param sections    Sections to include, possibly empty to get just the header
+     * @return Exchange retrieved from the back-end, or null if the exchange id is not known.
+     * @throws RpcSecurityException If there is a security or permissions problem.
+     * @throws ServiceException If there is a problem with the method call.
+     */
+    Exchange retrieveExchangeSections(Long exchangeId, List<ExchangeSection> sections) throws RpcSecurityException, ServiceException;
+
+    /**
+     * Retrieve a page of an exchange's participants.
+     * @param exchangeId  Exchange id.
+     * @param start       Position of the first participant to retrieve
+     * @param count       Maximum number of participants to retrieve
+     * @return Page of participants, or null if the exchange id is not known.
+     * @throws RpcSecurityException If there is a security or permissions problem.
+     * @throws ServiceException If there is a problem with the method call.
+     */
+    ParticipantPage retrieveParticipants(Long exchangeId, int start, int count) throws RpcSecurityException, ServiceException;
+
     /**
      * Get a set of exchanges that match the passed-in criteria.
      * See documentation on the criteria class for information on how criteria are applied.
@@ -68,6 +95,17 @@ public interface IExchangeRpc extends RemoteService {
      */
     PaginatedResults<Exchange> getExchanges(ExchangeCriteria criteria, Pagination pagination) throws RpcSecurityException, ServiceException;
 
+    /**
+     * Get summaries of the exchanges that match the passed-in criteria.
+     * This is much cheaper than getExchanges(), since the exchanges themselves are never read.
+     * @param criteria    Search criteria to apply
+     * @param pagination  Pagination to use
+     * @return Paginated results.
+     * @throws RpcSecurityException If there is a security or permissions problem.
+     * @throws ServiceException If there is a problem with the method call.
+     */
+    PaginatedResults<ExchangeSummary> getExchangeSummaries(ExchangeCriteria criteria, Pagination pagination) throws RpcSecurityException, ServiceException;
+
     /**
      * Create a new exchange.
      * @param name  Name of the exchange
@@ -79,30 +117,33 @@ public interface IExchangeRpc extends RemoteService {
 
     /**
      * Delete a set of exchanges.
-     * @param records  Records to delete
+     * @param records  Summaries of the exchanges to delete
      * @throws RpcSecurityException If there is a security or permissions problem.
      * @throws ServiceException If there is a problem with the method call.
      */
-    void deleteExchanges(List<Exchange> records) throws RpcSecurityException, ServiceException;
+    void deleteExchanges(List<ExchangeSummary> records) throws RpcSecurityException, ServiceException;
 
     /**
-     * Save changes to an exchange.
-     * @param exchange  Exchange to save
-     * @return The newly-saved exchange.
+     * Save a page of changes to an exchange, as described for Exchange.applyChanges().
+     * A large exchange is saved in several calls, so the whole exchange is never sent at once.
+     * @param header        Exchange whose fields should be saved, without its participants or assignments
+     * @param participants  Participants that were added or replaced, possibly null
+     * @param removedIds    Ids of the participants that were removed, possibly null
+     * @return Header of the newly-saved exchange, or null if the exchange id is not known.
      * @throws RpcSecurityException If there is a security or permissions problem.
      * @throws ServiceException If there is a problem with the method call.
      */
-    Exchange saveExchange(Exchange exchange) throws RpcSecurityException, ServiceException;
+    Exchange saveExchangeChanges(Exchange header, List<Participant> participants, List<Long> removedIds) throws RpcSecurityException, ServiceException;
 
     /**
-     * Generate assignments and send notifications for an exchange, and also save the exchange.
-     * @param exchange  Exchange to send notifications for
-     * @return The newly-saved exchange.
+     * Generate assignments for a saved exchange, save them, and queue its notifications to be sent.
+     * @param exchangeId  Id of the exchange to send notifications for
+     * @return Header of the newly-saved exchange along with its assignments, or null if the exchange id is not known.
      * @throws RpcSecurityException If there is a security or permissions problem.
      * @throws ServiceException If there is a problem with the method call.
      * @throws InvalidDataException If the exchange is not valid.
      */
-    Exchange sendNotifications(Exchange exchange) throws RpcSecurityException, ServiceException, InvalidDataException;
+    Exchange sendNotifications(Long exchangeId) throws RpcSecurityException, ServiceException, InvalidDataException;
 
     /**
      * Re-send notifications for a specific set of participants, and also save the exchange.
@@ -115,6 +156,26 @@ public interface IExchangeRpc extends RemoteService {
      */
     Exchange resendNotification(Exchange exchange, ParticipantSet participants) throws RpcSecurityException, ServiceException, InvalidDataException;
 
+    /**
+     * Repair the assignments for an exchange whose participants changed after sending, and also save the exchange.
+     * Only the givers whose assignment changed are notified.
+     * @param exchange  Exchange to repair
+     * @return The newly-saved exchange.
+     * @throws RpcSecurityException If there is a security or permissions problem.
+     * @throws ServiceException If there is a problem with the method call.
+     * @throws InvalidDataException If the exchange is not valid or its assignments could not be repaired.
+     */
+    Exchange repairNotifications(Exchange exchange) throws RpcSecurityException, ServiceException, InvalidDataException;
+
+    /**
+     * Check whether the participants and conflicts in an exchange allow a valid set of assignments.
+     * @param exchange  Exchange to check
+     * @return Result of the check, including the blocking participants if not feasible.
+     * @throws RpcSecurityException If there is a security or permissions problem.
+     * @throws ServiceException If there is a problem with the method call.
+     */
+    FeasibilityResult checkFeasibility(Exchange exchange) throws RpcSecurityException, ServiceException;
+
     /**
      * Generate a preview for an exchange notification email.
      * @param exchange      Exchange to operate on
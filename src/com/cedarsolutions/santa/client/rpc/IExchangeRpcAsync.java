@@ -28,6 +28,11 @@ import com.cedarsolutions.dao.domain.PaginatedResults;
 import com.cedarsolutions.dao.domain.Pagination;
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
 import com.cedarsolutions.santa.shared.domain.exchange.ExchangeCriteria;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSection;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
+import com.cedarsolutions.santa.shared.domain.exchange.FeasibilityResult;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantPage;
 import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
 import com.cedarsolutions.shared.domain.email.EmailMessage;
 import com.google.gwt.user.client.rpc.AsyncCallback;
@@ -45,6 +50,24 @@ public interface IExchangeRpcAsync {
      */
     void retrieveExchange(Long exchangeId, AsyncCallback<Exchange> callback);
 
+    /**
+     * Retrieve an exchange by exchange id, including only some of its sections.
+     * Sections that are left out come back empty (participants) or null (assignments).
+     * @param exchangeId  Exchange id.
+     * @param sections    Sections to include, possibly empty to get just the header
+     * @param callback    Callback to be invoked after method call completes
+     */
+    void retrieveExchangeSections(Long exchangeId, List<ExchangeSection> sections, AsyncCallback<Exchange> callback);
+
+    /**
+     * Retrieve a page of an exchange's participants.
+     * @param exchangeId  Exchange id.
+     * @param start       Position of the first participant to retrieve
+     * @param count       Maximum number of participants to retrieve
+     * @param callback    Callback to be invoked after method call completes
+     */
+    void retrieveParticipants(Long exchangeId, int start, int count, AsyncCallback<ParticipantPage> callback);
+
     /**
      * Get a set of exchanges that match the passed-in criteria.
      * See documentation on the criteria class for information on how criteria are applied.
@@ -54,6 +77,15 @@ public interface IExchangeRpcAsync {
      */
     void getExchanges(ExchangeCriteria criteria, Pagination pagination, AsyncCallback<PaginatedResults<Exchange>> callback);
 
+    /**
+     * Get summaries of the exchanges that match the passed-in criteria.
+     * This is much cheaper than getExchanges(), since the exchanges themselves are never read.
+     * @param criteria    Search criteria to apply
+     * @param pagination  Pagination to use
+     * @param callback    Callback to be invoked after method call completes
+     */
+    void getExchangeSummaries(ExchangeCriteria criteria, Pagination pagination, AsyncCallback<PaginatedResults<ExchangeSummary>> callback);
+
     /**
      * Create a new exchange.
      * @param name     Name of the exchange
@@ -63,24 +95,26 @@ public interface IExchangeRpcAsync {
 
     /**
      * Delete a set of exchanges.
-     * @param records  Records to delete
+     * @param records  Summaries of the exchanges to delete
      * @param callback Callback to be invoked after method call completes
      */
-    void deleteExchanges(List<Exchange> records, AsyncCallback<Void> callback);
+    void deleteExchanges(List<ExchangeSummary> records, AsyncCallback<Void> callback);
 
     /**
-     * Save changes to an exchange.
-     * @param exchange  Exchange to save
-     * @param callback  Callback to be invoked after method call completes
+     * Save a page of changes to an exchange, as described for Exchange.applyChanges().
+     * @param header        Exchange whose fields should be saved, without its participants or assignments
+     * @param participants  Participants that were added or replaced, possibly null
+     * @param removedIds    Ids of the participants that were removed, possibly null
+     * @param callback      Callback to be invoked after method call completes
      */
-    void saveExchange(Exchange exchange, AsyncCallback<Exchange> callback);
+    void saveExchangeChanges(Exchange header, List<Participant> participants, List<Long> removedIds, AsyncCallback<Exchange> callback);
 
     /**
-     * Generate assignments and send notifications for an exchange, and also save the exchange.
-     * @param exchange  Exchange to send notifications for
-     * @param callback  Callback to be invoked after method call completes
+     * Generate assignments for a saved exchange, save them, and queue its notifications to be sent.
+     * @param exchangeId  Id of the exchange to send notifications for
+     * @param callback    Callback to be invoked after method call completes
      */
-    void sendNotifications(Exchange exchange, AsyncCallback<Exchange> callback);
+    void sendNotifications(Long exchangeId, AsyncCallback<Exchange> callback);
 
     /**
      * Re-send notifications for a specific set of participants, and also save the exchange.
@@ -90,6 +124,20 @@ public interface IExchangeRpcAsync {
      */
     void resendNotification(Exchange exchange, ParticipantSet participants, AsyncCallback<Exchange> callback);
 
+    /**
+     * Repair the assignments for an exchange whose participants changed after sending, and also save the exchange.
+     * @param exchange  Exchange to repair
+     * @param callback  Callback to be invoked after method call completes
+     */
+    void repairNotifications(Exchange exchange, AsyncCallback<Exchange> callback);
+
+    /**
+     * Check whether the participants and conflicts in an exchange allow a valid set of assignments.
+     * @param exchange  Exchange to check
+     * @param callback  Callback to be invoked after method call completes
+     */
+    void checkFeasibility(Exchange exchange, AsyncCallback<FeasibilityResult> callback);
+
     /**
      * Generate a preview for an exchange notification email.
      * @param exchange      Exchange to operate on
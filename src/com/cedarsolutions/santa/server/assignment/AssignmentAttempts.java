@@ -0,0 +1,144 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import java.util.Random;
+
+import com.cedarsolutions.santa.server.assignment.AttemptRunner.Attempt;
+import com.cedarsolutions.santa.server.assignment.AttemptRunner.AttemptFactory;
+
+/**
+ * Attempt factories for the randomized assignment strategies, for use with AttemptRunner.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public final class AssignmentAttempts {
+
+    /** Prevent instantiation. */
+    private AssignmentAttempts() {
+    }
+
+    /**
+     * Attempts using the original greedy algorithm.
+     * @param matrix        Conflict matrix for the participants
+     * @param autoConflict  Whether automatic conflict detection should be enabled
+     * @return Factory for greedy attempts.
+     */
+    public static AttemptFactory greedy(final ConflictMatrix matrix, final boolean autoConflict) {
+        return new AttemptFactory() {
+            @Override
+            public Attempt createAttempt() {
+                final GreedySolver solver = new GreedySolver(matrix);
+                return new Attempt() {
+                    @Override
+                    public int[] attempt(Random random) {
+                        return solver.attempt(autoConflict, random) ? solver.getReceivers().clone() : null;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Attempts using a randomized maximum matching.
+     * If no perfect matching exists, an attempt returns the imperfect matching
+     * rather than failing, since there is no point in trying again.  Check the
+     * result with MatchingSolver.countUnmatched().
+     * @param matrix        Conflict matrix for the participants
+     * @param autoConflict  Whether automatic conflict detection should be enabled
+     * @return Factory for matching attempts.
+     */
+    public static AttemptFactory matching(final ConflictMatrix matrix, final boolean autoConflict) {
+        return new AttemptFactory() {
+            @Override
+            public Attempt createAttempt() {
+                final MatchingSolver solver = new MatchingSolver(matrix);
+                return new Attempt() {
+                    @Override
+                    public int[] attempt(Random random) {
+                        int[] receivers = solver.findMatching(random);
+                        if (MatchingSolver.countUnmatched(receivers) > 0) {
+                            return receivers;
+                        } else if (!autoConflict || solver.removeMutualPairs(receivers, random)) {
+                            return receivers;
+                        } else {
+                            return null;
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Attempts where each participant gives and receives more than one gift.
+     * If no valid set of assignments exists, an attempt returns the incomplete
+     * assignments rather than failing, since there is no point in trying again.
+     * Check the result with MatchingSolver.countUnmatched().
+     * @param matrix        Conflict matrix for the participants
+     * @param gifts         Number of gifts each participant gives and receives
+     * @param autoConflict  Whether automatic conflict detection should be enabled
+     * @return Factory for multi-gift attempts, with gifts receiver indexes per giver.
+     */
+    public static AttemptFactory multiGift(final ConflictMatrix matrix, final int gifts, final boolean autoConflict) {
+        return new AttemptFactory() {
+            @Override
+            public Attempt createAttempt() {
+                final MultiGiftSolver solver = new MultiGiftSolver(matrix, gifts);
+                return new Attempt() {
+                    @Override
+                    public int[] attempt(Random random) {
+                        if (!solver.findAssignments(random)) {
+                            return solver.getReceivers().clone();
+                        } else if (!autoConflict || solver.removeMutualPairs(random)) {
+                            return solver.getReceivers().clone();
+                        } else {
+                            return null;
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Attempts to find a single cycle through every participant.
+     * @param matrix     Conflict matrix for the participants
+     * @param timeLimit  Maximum time to spend on each attempt, in milliseconds
+     * @return Factory for single cycle attempts.
+     */
+    public static AttemptFactory cycle(final ConflictMatrix matrix, final long timeLimit) {
+        return new AttemptFactory() {
+            @Override
+            public Attempt createAttempt() {
+                final CycleSolver solver = new CycleSolver(matrix);
+                return new Attempt() {
+                    @Override
+                    public int[] attempt(Random random) {
+                        return solver.findCycle(random, timeLimit) ? solver.getReceivers().clone() : null;
+                    }
+                };
+            }
+        };
+    }
+
+}
@@ -0,0 +1,342 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Finds the lowest-cost valid set of assignments, given weighted soft penalties.
+ *
+ * <p>
+ * Conflicts in the matrix are hard constraints and are never violated.
+ * Everything else is expressed as a penalty on a giver/receiver pairing
+ * (for instance, a pairing that was used in a prior exchange), and the
+ * optimizer minimizes the total penalty with the Hungarian algorithm in a
+ * single O(n^3) pass.  There is no retrying: if the pass fails, no valid set
+ * of assignments exists.
+ * </p>
+ *
+ * <p>
+ * Each pairing also gets a small random tie-breaker, scaled so that the
+ * sum of all tie-breakers is always less than a single penalty point.  The
+ * result is still lowest-cost, but equally good sets of assignments are
+ * chosen at random rather than always returning the same one.
+ * </p>
+ *
+ * <p>
+ * A mutual pair depends on two pairings at once, so it cannot be expressed
+ * as a cost on a single pairing.  Instead, once the Hungarian pass is
+ * complete, givers in mutual pairs exchange receivers with other givers
+ * whenever that lowers the total score.  This removes mutual pairs
+ * whenever a simple exchange allows it, but is not guaranteed to find the
+ * lowest possible number of them.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class AssignmentOptimizer {
+
+    /** Range of the random tie-breaker added to each pairing. */
+    private static final long TIE_BREAK_RANGE = 1024;
+
+    /** Marks a column that has not been reached yet by the Hungarian search. */
+    private static final long UNREACHED = Long.MAX_VALUE;
+
+    /** Conflict matrix for the participants. */
+    private ConflictMatrix matrix;
+
+    /** Penalty for each giver/receiver pairing, stored row by row. */
+    private int[] penalties;
+
+    /** Receiver index for each giver index. */
+    private int[] receivers;
+
+    /** Total penalty of the last result. */
+    private long score;
+
+    /**
+     * Create an optimizer.
+     * @param matrix  Conflict matrix for the participants
+     */
+    public AssignmentOptimizer(ConflictMatrix matrix) {
+        this.matrix = matrix;
+        this.penalties = new int[matrix.size() * matrix.size()];
+        this.receivers = new int[matrix.size()];
+    }
+
+    /** Get the conflict matrix for the participants. */
+    public ConflictMatrix getMatrix() {
+        return this.matrix;
+    }
+
+    /**
+     * Add a penalty to a giver/receiver pairing.
+     * Penalties are cumulative, so a pairing that is undesirable for several reasons costs more.
+     * @param giver     Index of the gift giver
+     * @param receiver  Index of the gift receiver
+     * @param penalty   Penalty to add, which must not be negative
+     */
+    public void addPenalty(int giver, int receiver, int penalty) {
+        if (penalty < 0) {
+            throw new IllegalArgumentException("Penalty must not be negative");
+        }
+
+        this.penalties[giver * this.matrix.size() + receiver] += penalty;
+    }
+
+    /**
+     * Get the penalty for a giver/receiver pairing.
+     * @param giver     Index of the gift giver
+     * @param receiver  Index of the gift receiver
+     * @return Penalty for the pairing, zero if none has been added.
+     */
+    public int getPenalty(int giver, int receiver) {
+        return this.penalties[giver * this.matrix.size() + receiver];
+    }
+
+    /**
+     * Find the lowest-cost valid set of assignments.
+     * @param mutualPenalty  Penalty for each mutual pair, zero to allow mutual pairs freely
+     * @param random         Source of randomness for breaking ties
+     * @return True if a valid set was found, in which case the result is available via getReceivers().
+     */
+    public boolean optimize(int mutualPenalty, Random random) {
+        if (this.matrix.size() < 2 || !this.solve(random)) {
+            return false;
+        }
+
+        if (mutualPenalty > 0) {
+            this.removeMutualPairs(mutualPenalty, random);
+        }
+
+        this.score = 0;
+        for (int giver = 0; giver < this.receivers.length; giver++) {
+            this.score += this.getPenalty(giver, this.receivers[giver]);
+        }
+
+        this.score += (long) mutualPenalty * countMutualPairs(this.receivers);
+        return true;
+    }
+
+    /**
+     * Get the result of the last successful optimization.
+     * The returned array is owned by the optimizer and is overwritten by the next optimization.
+     * @return Receiver index for each giver index.
+     */
+    public int[] getReceivers() {
+        return this.receivers;
+    }
+
+    /** Get the total penalty of the last successful optimization. */
+    public long getScore() {
+        return this.score;
+    }
+
+    /**
+     * Count the mutual pairs in a set of assignments.
+     * @param receivers  Receiver index for each giver index
+     * @return Number of mutual pairs.
+     */
+    public static int countMutualPairs(int[] receivers) {
+        int count = 0;
+        for (int giver = 0; giver < receivers.length; giver++) {
+            int receiver = receivers[giver];
+            if (receiver > giver && receivers[receiver] == giver) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Solve the assignment problem with the Hungarian algorithm.
+     *
+     * <p>
+     * This is the shortest augmenting path form of the algorithm, which adds
+     * one giver at a time and keeps a potential for every giver and receiver.
+     * Conflicts are left out of the search rather than given a large cost, so
+     * if a giver cannot reach an unused receiver there is no valid set of
+     * assignments at all.  Arrays are indexed from 1, with column 0 used as
+     * the root of each search.
+     * </p>
+     *
+     * @param random  Source of randomness for breaking ties
+     * @return True if a valid set was found, false otherwise.
+     */
+    private boolean solve(Random random) {
+        int size = this.matrix.size();
+        long[] costs = this.createCosts(random);
+
+        long[] rowPotential = new long[size + 1];
+        long[] columnPotential = new long[size + 1];
+        int[] owner = new int[size + 1];  // giver (1-based) assigned to each receiver column, 0 if none
+        int[] previous = new int[size + 1];
+        long[] distance = new long[size + 1];
+        boolean[] reached = new boolean[size + 1];
+
+        for (int row = 1; row <= size; row++) {
+            owner[0] = row;
+            int column = 0;
+            Arrays.fill(distance, UNREACHED);
+            Arrays.fill(reached, false);
+
+            do {
+                reached[column] = true;
+                int giver = owner[column];
+                long delta = UNREACHED;
+                int next = 0;
+
+                for (int j = 1; j <= size; j++) {
+                    if (!reached[j]) {
+                        if (this.matrix.isAllowed(giver - 1, j - 1)) {
+                            long current = costs[(giver - 1) * size + j - 1] - rowPotential[giver] - columnPotential[j];
+                            if (current < distance[j]) {
+                                distance[j] = current;
+                                previous[j] = column;
+                            }
+                        }
+
+                        if (distance[j] < delta) {
+                            delta = distance[j];
+                            next = j;
+                        }
+                    }
+                }
+
+                if (delta == UNREACHED) {
+                    return false;  // no augmenting path, so no valid set of assignments exists
+                }
+
+                for (int j = 0; j <= size; j++) {
+                    if (reached[j]) {
+                        rowPotential[owner[j]] += delta;
+                        columnPotential[j] -= delta;
+                    } else if (distance[j] != UNREACHED) {
+                        distance[j] -= delta;
+                    }
+                }
+
+                column = next;
+            } while (owner[column] != 0);
+
+            do {
+                int next = previous[column];
+                owner[column] = owner[next];
+                column = next;
+            } while (column != 0);
+        }
+
+        for (int j = 1; j <= size; j++) {
+            this.receivers[owner[j] - 1] = j - 1;
+        }
+
+        return true;
+    }
+
+    /** Create the cost of every pairing, including the random tie-breaker. */
+    private long[] createCosts(Random random) {
+        int size = this.matrix.size();
+        long scale = size * TIE_BREAK_RANGE;  // the tie-breakers for all givers add up to less than this
+        long[] costs = new long[size * size];
+        for (int i = 0; i < costs.length; i++) {
+            costs[i] = this.penalties[i] * scale + (long) random.nextInt((int) TIE_BREAK_RANGE);
+        }
+
+        return costs;
+    }
+
+    /**
+     * Exchange receivers between givers in mutual pairs and other givers, as long as that lowers the score.
+     * @param mutualPenalty  Penalty for each mutual pair
+     * @param random         Source of randomness
+     */
+    private void removeMutualPairs(int mutualPenalty, Random random) {
+        int size = this.receivers.length;
+        boolean improved = true;
+        for (int pass = 0; improved && pass < size; pass++) {
+            improved = false;
+            for (int giver = 0; giver < size; giver++) {
+                if (this.receivers[this.receivers[giver]] == giver) {
+                    int start = random.nextInt(size);
+                    for (int offset = 0; offset < size; offset++) {
+                        int other = (start + offset) % size;
+                        if (other != giver && this.exchange(giver, other, mutualPenalty)) {
+                            improved = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Exchange the receivers of two givers if the result is valid and lowers the score.
+     * @param first          Index of the first giver
+     * @param second         Index of the second giver
+     * @param mutualPenalty  Penalty for each mutual pair
+     * @return True if the receivers were exchanged, false otherwise.
+     */
+    private boolean exchange(int first, int second, int mutualPenalty) {
+        int firstReceiver = this.receivers[first];
+        int secondReceiver = this.receivers[second];
+        if (!this.matrix.isAllowed(first, secondReceiver) || !this.matrix.isAllowed(second, firstReceiver)) {
+            return false;
+        }
+
+        long before = this.getPenalty(first, firstReceiver) + this.getPenalty(second, secondReceiver)
+                      + (long) mutualPenalty * this.countMutualPairs(first, second);
+
+        this.receivers[first] = secondReceiver;
+        this.receivers[second] = firstReceiver;
+
+        long after = this.getPenalty(first, secondReceiver) + this.getPenalty(second, firstReceiver)
+                     + (long) mutualPenalty * this.countMutualPairs(first, second);
+
+        if (after < before) {
+            return true;
+        }
+
+        this.receivers[first] = firstReceiver;
+        this.receivers[second] = secondReceiver;
+        return false;
+    }
+
+    /** Count the mutual pairs that either of two givers belongs to. */
+    private int countMutualPairs(int first, int second) {
+        int count = 0;
+
+        if (this.receivers[this.receivers[first]] == first) {
+            count++;
+        }
+
+        if (this.receivers[this.receivers[second]] == second && this.receivers[second] != first) {
+            count++;  // a mutual pair between the two givers themselves is only counted once
+        }
+
+        return count;
+    }
+
+}
@@ -0,0 +1,237 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import static com.cedarsolutions.santa.server.assignment.SolverUtils.findExchange;
+import static com.cedarsolutions.santa.server.assignment.SolverUtils.shuffle;
+
+import static com.cedarsolutions.santa.server.assignment.MatchingSolver.UNMATCHED;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Repairs an existing set of assignments after participants join or drop out.
+ *
+ * <p>
+ * Every assignment that is still valid is kept.  A giver that joined, or
+ * whose receiver dropped out, is left without a receiver, and exactly as many
+ * receivers are left without a giver.  Each of those givers is then fixed up
+ * along the shortest augmenting path: either the giver takes a free receiver
+ * directly, or some chain of givers each hands their receiver down the line
+ * (splicing the new participant into an existing cycle).  A shortest path
+ * changes the fewest givers, so only a handful of people need a new email.
+ * </p>
+ *
+ * <p>
+ * With automatic conflict detection, the repair also avoids creating mutual
+ * pairs, using the same receiver exchange as MatchingSolver.  Mutual pairs
+ * that were already there before the repair are left alone.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class AssignmentRepairer {
+
+    /** Conflict matrix for the participants. */
+    private ConflictMatrix matrix;
+
+    /** Giver index for each receiver index. */
+    private int[] givers;
+
+    /** Giver that reached each receiver during the breadth-first search. */
+    private int[] from;
+
+    /** Search in which each receiver was last visited. */
+    private int[] visitedReceivers;
+
+    /** Search in which each giver was last visited. */
+    private int[] visitedGivers;
+
+    /** Queue used by the breadth-first search. */
+    private int[] queue;
+
+    /** Random ordering of receivers, and also of candidates when breaking mutual pairs. */
+    private int[] order;
+
+    /** Whether each giver's receiver was changed by the repair. */
+    private boolean[] changed;
+
+    /** Number of searches so far, used to avoid clearing the visited arrays. */
+    private int search;
+
+    /**
+     * Create a repairer.
+     * @param matrix  Conflict matrix for the participants
+     */
+    public AssignmentRepairer(ConflictMatrix matrix) {
+        int size = matrix.size();
+        this.matrix = matrix;
+        this.givers = new int[size];
+        this.from = new int[size];
+        this.visitedReceivers = new int[size];
+        this.visitedGivers = new int[size];
+        this.queue = new int[size];
+        this.order = new int[size];
+        this.changed = new boolean[size];
+    }
+
+    /** Get the conflict matrix for the participants. */
+    public ConflictMatrix getMatrix() {
+        return this.matrix;
+    }
+
+    /**
+     * Repair a partial set of assignments, changing as few givers as possible.
+     * @param receivers     Receiver index for each giver index, UNMATCHED if the giver needs a receiver; modified in place
+     * @param autoConflict  Whether mutual pairs should be avoided
+     * @param random        Source of randomness, used to choose among equally short repairs
+     * @return True if every giver has a receiver afterwards, false otherwise.
+     */
+    public boolean repair(int[] receivers, boolean autoConflict, Random random) {
+        int size = receivers.length;
+
+        Arrays.fill(this.givers, UNMATCHED);
+        Arrays.fill(this.visitedReceivers, 0);
+        Arrays.fill(this.visitedGivers, 0);
+        Arrays.fill(this.changed, false);
+        this.search = 0;
+
+        for (int giver = 0; giver < size; giver++) {
+            if (receivers[giver] != UNMATCHED) {
+                this.givers[receivers[giver]] = giver;
+            }
+        }
+
+        shuffle(this.order, random);
+        for (int giver = 0; giver < size; giver++) {
+            if (receivers[giver] == UNMATCHED) {
+                if (!this.augment(giver, receivers, autoConflict, random)) {
+                    return false;
+                }
+            }
+        }
+
+        if (autoConflict) {
+            shuffle(this.order, random);
+            for (int i = 0; i < size; i++) {
+                int j = receivers[i];
+                if (this.changed[i] && receivers[j] == i) {
+                    if (!this.breakMutualPair(i, j, receivers) && !this.breakMutualPair(j, i, receivers)) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Whether a giver's receiver was changed by the last repair.
+     * @param giver  Index of the gift giver
+     * @return True if the giver was changed, false otherwise.
+     */
+    public boolean isChanged(int giver) {
+        return this.changed[giver];
+    }
+
+    /**
+     * Find a receiver for a giver along the shortest augmenting path, using a breadth-first search.
+     * Afterwards, each giver along the path gives to the receiver that led to the next giver.
+     */
+    private boolean augment(int root, int[] receivers, boolean autoConflict, Random random) {
+        int size = receivers.length;
+        int offset = random.nextInt(size);
+        int head = 0;
+        int tail = 0;
+
+        this.search++;
+        this.queue[tail++] = root;
+        this.visitedGivers[root] = this.search;
+
+        while (head < tail) {
+            int u = this.queue[head++];
+            for (int t = 0; t < size; t++) {
+                int v = this.order[(offset + t) % size];
+                if (this.visitedReceivers[v] != this.search && this.matrix.isAllowed(u, v)) {
+                    if (autoConflict && receivers[v] == u) {
+                        continue;  // would create a mutual pair
+                    }
+
+                    this.visitedReceivers[v] = this.search;
+                    this.from[v] = u;
+
+                    int w = this.givers[v];
+                    if (w == UNMATCHED) {
+                        this.flip(root, v, receivers);
+                        return true;
+                    } else if (this.visitedGivers[w] != this.search) {
+                        this.visitedGivers[w] = this.search;
+                        this.queue[tail++] = w;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /** Walk back along an augmenting path that ends at a free receiver, reassigning each giver along the way. */
+    private void flip(int root, int receiver, int[] receivers) {
+        int v = receiver;
+        while (true) {
+            int u = this.from[v];
+            int previous = receivers[u];
+            receivers[u] = v;
+            this.givers[v] = u;
+            this.changed[u] = true;
+            if (u == root) {
+                break;
+            }
+
+            v = previous;
+        }
+    }
+
+    /**
+     * Break the mutual pair i &lt;-&gt; j by exchanging receivers with some other giver k.
+     * Afterwards, i gives to k's old receiver and k gives to j.
+     */
+    private boolean breakMutualPair(int i, int j, int[] receivers) {
+        int k = findExchange(this.matrix, receivers, 1, i, j, this.order);
+        if (k < 0) {
+            return false;
+        }
+
+        int m = receivers[k];
+        receivers[i] = m;
+        receivers[k] = j;
+        this.givers[m] = i;
+        this.givers[j] = k;
+        this.changed[i] = true;
+        this.changed[k] = true;
+        return true;
+    }
+
+}
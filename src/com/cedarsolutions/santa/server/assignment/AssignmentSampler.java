@@ -0,0 +1,318 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws a random valid set of assignments, as close to uniformly as possible.
+ *
+ * <p>
+ * The first phase is rejection sampling.  A random permutation is built
+ * with the Fisher-Yates shuffle and thrown away as soon as it assigns
+ * someone to a conflict (or, with automatic conflict detection, creates a
+ * mutual pair).  Rejecting a permutation part-way through is the same as
+ * rejecting it once it is complete, so every accepted result is exactly
+ * uniform over all valid sets of assignments.
+ * </p>
+ *
+ * <p>
+ * When conflicts are dense, almost every permutation is rejected, so after
+ * a fixed number of tries the sampler switches to a Markov chain.  It starts
+ * from a valid matching and repeatedly proposes to rotate receivers around
+ * a random alternating cycle of givers, keeping the change only if the
+ * result is still valid.  Proposals are symmetric and can reach any valid
+ * set of assignments, so the chain converges on the uniform distribution.
+ * (With automatic conflict detection, a few sets may only be reachable by
+ * passing through a mutual pair, so the result is near-uniform.)
+ * </p>
+ *
+ * <p>
+ * All randomness comes from the caller's source, so the same seed and the
+ * same participants always yield the same result.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class AssignmentSampler {
+
+    /** Number of permutations to try before switching to the Markov chain. */
+    private static final int REJECTION_ATTEMPTS = 1000;
+
+    /** Number of Markov chain steps per participant, per doubling of the exchange size. */
+    private static final int MIXING_FACTOR = 8;
+
+    /** Maximum number of starting matchings to try when mutual pairs cannot be removed. */
+    private static final int MATCHING_ATTEMPTS = 10;
+
+    /** Conflict matrix for the participants. */
+    private ConflictMatrix matrix;
+
+    /** Solver used to find a starting point for the Markov chain. */
+    private MatchingSolver matchingSolver;
+
+    /** Receiver index for each giver index. */
+    private int[] receivers;
+
+    /** Allowed receiver indexes for each giver index, built the first time the Markov chain is needed. */
+    private int[][] allowed;
+
+    /** Giver index for each receiver index, while the Markov chain is running. */
+    private int[] owners;
+
+    /** Stamp of the last proposal that visited each giver index. */
+    private int[] visited;
+
+    /** Stamp of the current proposal. */
+    private int stamp;
+
+    /** Givers on the cycle being proposed, in order. */
+    private int[] cycle;
+
+    /** Receiver chosen by each giver on the cycle being proposed. */
+    private int[] choices;
+
+    /**
+     * Create a sampler.
+     * @param matrix  Conflict matrix for the participants
+     */
+    public AssignmentSampler(ConflictMatrix matrix) {
+        this.matrix = matrix;
+        this.matchingSolver = new MatchingSolver(matrix);
+        this.receivers = new int[matrix.size()];
+    }
+
+    /** Get the conflict matrix for the participants. */
+    public ConflictMatrix getMatrix() {
+        return this.matrix;
+    }
+
+    /**
+     * Draw a random valid set of assignments.
+     * @param autoConflictDetection  Whether automatic conflict detection should be enabled
+     * @param random                 Source of randomness
+     * @return True if a valid set was found, in which case the result is available via getReceivers().
+     */
+    public boolean sample(boolean autoConflictDetection, Random random) {
+        if (this.matrix.size() < 2) {
+            return false;
+        }
+
+        for (int i = 0; i < REJECTION_ATTEMPTS; i++) {
+            if (this.shuffle(autoConflictDetection, random)) {
+                return true;
+            }
+        }
+
+        return this.walk(autoConflictDetection, random);
+    }
+
+    /**
+     * Get the result of the last successful sample.
+     * The returned array is owned by the sampler and is overwritten by the next sample.
+     * @return Receiver index for each giver index.
+     */
+    public int[] getReceivers() {
+        return this.receivers;
+    }
+
+    /** Number of Markov chain steps to take for an exchange of a given size. */
+    protected static long getMixingSteps(int size) {
+        int log = 32 - Integer.numberOfLeadingZeros(size);  // roughly log2(size), rounded up
+        return (long) MIXING_FACTOR * size * log;
+    }
+
+    /**
+     * Build a random permutation, stopping as soon as it turns out to be invalid.
+     * @return True if the permutation is valid, false if it was rejected.
+     */
+    private boolean shuffle(boolean autoConflictDetection, Random random) {
+        int size = this.receivers.length;
+        for (int i = 0; i < size; i++) {
+            this.receivers[i] = i;
+        }
+
+        for (int i = 0; i < size; i++) {
+            int j = i + random.nextInt(size - i);
+            int receiver = this.receivers[j];
+            this.receivers[j] = this.receivers[i];
+            this.receivers[i] = receiver;
+
+            if (!this.matrix.isAllowed(i, receiver)) {
+                return false;
+            }
+
+            if (autoConflictDetection && receiver < i && this.receivers[receiver] == i) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Start from a valid matching and take a random walk over valid sets of assignments.
+     * @return True if a valid starting point was found, false otherwise.
+     */
+    private boolean walk(boolean autoConflictDetection, Random random) {
+        if (!this.start(autoConflictDetection, random)) {
+            return false;
+        }
+
+        int size = this.receivers.length;
+        if (this.allowed == null) {
+            this.allowed = buildAllowed(this.matrix);
+            this.owners = new int[size];
+            this.visited = new int[size];
+            this.cycle = new int[size];
+            this.choices = new int[size];
+        }
+
+        for (int giver = 0; giver < size; giver++) {
+            this.owners[this.receivers[giver]] = giver;
+        }
+
+        long steps = getMixingSteps(size);
+        for (long step = 0; step < steps; step++) {
+            this.propose(autoConflictDetection, random);
+        }
+
+        return true;
+    }
+
+    /**
+     * Propose a move along a random alternating cycle, keeping it only if it is valid.
+     *
+     * <p>
+     * Starting from a random giver, each giver on the cycle picks one of its
+     * allowed receivers at random, and the current owner of that receiver is
+     * the next giver.  The cycle closes when someone picks the starting giver's
+     * receiver, and is abandoned if it runs back into itself anywhere else.
+     * The reverse move visits the same givers and makes each of them pick from
+     * the same choices, so it is proposed with exactly the same probability.
+     * Any two valid sets of assignments differ by a set of these cycles, so the
+     * chain can reach all of them.
+     * </p>
+     */
+    private void propose(boolean autoConflictDetection, Random random) {
+        if (this.stamp == Integer.MAX_VALUE) {
+            Arrays.fill(this.visited, 0);
+            this.stamp = 0;
+        }
+
+        int stamp = ++this.stamp;
+        int first = random.nextInt(this.receivers.length);
+        int target = this.receivers[first];
+        int length = 0;
+        int giver = first;
+
+        while (true) {
+            int[] options = this.allowed[giver];
+            int receiver = options[random.nextInt(options.length)];
+            int owner = this.owners[receiver];
+
+            this.cycle[length] = giver;
+            this.choices[length] = receiver;
+            this.visited[giver] = stamp;
+            length++;
+
+            if (receiver == target) {
+                break;
+            } else if (this.visited[owner] == stamp) {
+                return;  // ran back into the cycle somewhere other than the start
+            }
+
+            giver = owner;
+        }
+
+        if (length < 2) {
+            return;  // the starting giver picked its own receiver, so nothing changes
+        }
+
+        for (int i = 0; i < length; i++) {
+            this.receivers[this.cycle[i]] = this.choices[i];
+        }
+
+        if (autoConflictDetection && this.hasMutual(length)) {
+            for (int i = 0; i < length; i++) {
+                int previous = i == 0 ? target : this.choices[i - 1];
+                this.receivers[this.cycle[i]] = previous;
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                this.owners[this.choices[i]] = this.cycle[i];
+            }
+        }
+    }
+
+    /** Whether any giver on the current cycle is now assigned to its own giver. */
+    private boolean hasMutual(int length) {
+        for (int i = 0; i < length; i++) {
+            int giver = this.cycle[i];
+            if (this.receivers[this.receivers[giver]] == giver) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /** Build the list of allowed receivers for each giver. */
+    private static int[][] buildAllowed(ConflictMatrix matrix) {
+        int size = matrix.size();
+        int[][] allowed = new int[size][];
+        int[] buffer = new int[size];
+        for (int giver = 0; giver < size; giver++) {
+            int count = 0;
+            for (int receiver = 0; receiver < size; receiver++) {
+                if (matrix.isAllowed(giver, receiver)) {
+                    buffer[count++] = receiver;
+                }
+            }
+
+            allowed[giver] = new int[count];
+            System.arraycopy(buffer, 0, allowed[giver], 0, count);
+        }
+
+        return allowed;
+    }
+
+    /** Find a valid starting point for the random walk. */
+    private boolean start(boolean autoConflictDetection, Random random) {
+        for (int attempt = 0; attempt < MATCHING_ATTEMPTS; attempt++) {
+            int[] matching = this.matchingSolver.findMatching(random);
+            if (MatchingSolver.countUnmatched(matching) > 0) {
+                return false;  // no valid set of assignments exists, so there's no point trying again
+            }
+
+            if (!autoConflictDetection || this.matchingSolver.removeMutualPairs(matching, random)) {
+                System.arraycopy(matching, 0, this.receivers, 0, matching.length);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+}
@@ -0,0 +1,37 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+/**
+ * Strategies that can be used to generate assignments for an exchange.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public enum AssignmentStrategy {
+
+    GREEDY,        // Original randomized greedy algorithm, which may fail even if a valid assignment exists
+    MATCHING,      // Randomized maximum bipartite matching, which always finds a valid assignment if one exists
+    SINGLE_CYCLE,  // One cycle through all participants if one can be found in time, otherwise MATCHING
+    UNIFORM,       // Near-uniform random sample from every valid assignment, via rejection sampling or a Markov chain
+    OPTIMAL;       // Lowest-cost assignment in a single pass, with mutual pairs and prior pairings as weighted penalties
+
+}
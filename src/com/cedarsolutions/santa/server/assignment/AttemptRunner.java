@@ -0,0 +1,323 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.cedarsolutions.exception.ServiceException;
+
+/**
+ * Runs independent randomized attempts, optionally on several threads at once.
+ *
+ * <p>
+ * Each attempt gets its own source of randomness, seeded up front from the
+ * caller's source.  The result is always the successful attempt with the
+ * lowest index.  As soon as an attempt succeeds, attempts with a higher
+ * index are interrupted (or never started), and the result is returned once
+ * every lower-indexed attempt has finished, so wall-clock time is bounded by
+ * the first success rather than the number of attempts.  Because the winner
+ * does not depend on which thread happens to finish first, the same seed
+ * yields the same result no matter how many threads are used.
+ * </p>
+ *
+ * <p>
+ * Attempt objects are not expected to be thread-safe, so every thread gets
+ * its own, from the factory.  Long-running attempts should give up when
+ * their thread is interrupted, which is how abandoned attempts are stopped.
+ * Those are not waited for; they finish on their own after the result has
+ * been returned.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class AttemptRunner {
+
+    /** Factory used to create threads, when more than one is needed. */
+    private ThreadFactory threadFactory;
+
+    /** Maximum number of attempts to run at once. */
+    private int parallelism;
+
+    /**
+     * Create an attempt runner.
+     * @param threadFactory  Factory used to create threads, when more than one is needed
+     * @param parallelism    Maximum number of attempts to run at once
+     */
+    public AttemptRunner(ThreadFactory threadFactory, int parallelism) {
+        this.threadFactory = threadFactory;
+        this.parallelism = parallelism;
+    }
+
+    /** A single randomized attempt. */
+    public interface Attempt {
+
+        /**
+         * Make one attempt.
+         * @param random  Source of randomness for this attempt
+         * @return Result of the attempt, or null if it failed.  The caller owns the returned array.
+         */
+        int[] attempt(Random random);
+
+    }
+
+    /** Creates attempts, one for each thread. */
+    public interface AttemptFactory {
+
+        /** Create an attempt, which will only ever be used by a single thread. */
+        Attempt createAttempt();
+
+    }
+
+    /**
+     * Run attempts until one succeeds.
+     * @param factory   Factory used to create attempts
+     * @param attempts  Maximum number of attempts to make
+     * @param random    Source of randomness, used to seed each attempt
+     * @return Result of the successful attempt with the lowest index, or null if every attempt failed.
+     */
+    public int[] run(AttemptFactory factory, int attempts, Random random) {
+        long[] seeds = new long[attempts];
+        for (int i = 0; i < attempts; i++) {
+            seeds[i] = random.nextLong();
+        }
+
+        int threads = Math.min(this.parallelism, attempts);
+        if (threads <= 1) {
+            return this.runSerial(factory, seeds);
+        } else {
+            return this.runParallel(factory, seeds, threads);
+        }
+    }
+
+    /** Run attempts one after another on the current thread. */
+    private int[] runSerial(AttemptFactory factory, long[] seeds) {
+        Attempt attempt = factory.createAttempt();
+        for (int i = 0; i < seeds.length; i++) {
+            int[] result = attempt.attempt(new Random(seeds[i]));
+            if (result != null) {
+                return result;
+            }
+        }
+
+        return null;
+    }
+
+    /** Run attempts on a pool of threads. */
+    private int[] runParallel(AttemptFactory factory, long[] seeds, int threads) {
+        Progress progress = new Progress(seeds, threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, this.threadFactory);
+        try {
+            for (int i = 0; i < threads; i++) {
+                executor.execute(new Worker(i, factory.createAttempt(), progress));
+            }
+
+            return progress.awaitResult();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Interrupted while generating assignments", e);
+        } finally {
+            executor.shutdownNow();  // interrupts anything still running, without waiting for it
+        }
+    }
+
+    /** Progress shared between the workers and the thread waiting on them. */
+    private static class Progress {
+
+        /** Seed for each attempt. */
+        private final long[] seeds;
+
+        /** Index of the attempt each worker is running, or -1 if it is not running one. */
+        private final int[] running;
+
+        /** Thread for each worker, or null if it has not started or has exited. */
+        private final Thread[] threads;
+
+        /** Index of the next attempt to start. */
+        private int next;
+
+        /** Number of workers that have not exited. */
+        private int live;
+
+        /** Index of the best successful attempt so far, or the number of attempts if none has succeeded. */
+        private int winner;
+
+        /** Result of the best successful attempt so far. */
+        private int[] result;
+
+        /** First failure thrown by an attempt, if any. */
+        private Throwable failure;
+
+        /** Create progress for a set of attempts. */
+        Progress(long[] seeds, int workers) {
+            this.seeds = seeds;
+            this.running = new int[workers];
+            this.threads = new Thread[workers];
+            this.live = workers;
+            this.winner = seeds.length;
+            Arrays.fill(this.running, -1);
+        }
+
+        /** Note that a worker has started on the current thread. */
+        synchronized void started(int worker) {
+            this.threads[worker] = Thread.currentThread();
+        }
+
+        /** Claim the next attempt for a worker, returning -1 if nothing is left worth running. */
+        synchronized int claim(int worker) {
+            this.running[worker] = -1;
+            this.notifyAll();
+            if (this.failure != null || this.next >= this.winner) {
+                return -1;
+            }
+
+            this.running[worker] = this.next;
+            return this.next++;
+        }
+
+        /** Get the seed for an attempt. */
+        long getSeed(int index) {
+            return this.seeds[index];
+        }
+
+        /** Record a successful attempt, interrupting any attempts it makes irrelevant. */
+        synchronized void succeeded(int worker, int index, int[] result) {
+            this.running[worker] = -1;
+            if (index < this.winner) {
+                this.winner = index;
+                this.result = result;
+                this.interruptAbove(index);
+            }
+
+            this.notifyAll();
+        }
+
+        /** Record an attempt that failed with an exception, interrupting every other attempt. */
+        synchronized void failed(int worker, Throwable failure) {
+            this.running[worker] = -1;
+            if (this.failure == null) {
+                this.failure = failure;
+                this.interruptAbove(-1);
+            }
+
+            this.notifyAll();
+        }
+
+        /** Note that a worker has exited. */
+        synchronized void exited(int worker) {
+            this.running[worker] = -1;
+            this.threads[worker] = null;
+            this.live--;
+            this.notifyAll();
+        }
+
+        /**
+         * Wait until every attempt below the winner has finished.
+         * @return Result of the successful attempt with the lowest index, or null if every attempt failed.
+         * @throws InterruptedException If the waiting thread is interrupted
+         * @throws ServiceException If an attempt failed with an exception
+         */
+        synchronized int[] awaitResult() throws InterruptedException {
+            while (!this.isSettled()) {
+                this.wait();
+            }
+
+            if (this.failure != null) {
+                throw new ServiceException("Failed to generate assignments: " + this.failure.getMessage(), this.failure);
+            }
+
+            return this.result;
+        }
+
+        /** Whether the result is final, because no attempt below the winner is running or left to run. */
+        private boolean isSettled() {
+            if (this.failure != null || this.live == 0) {
+                return true;
+            } else if (this.next < this.winner) {
+                return false;
+            }
+
+            for (int index : this.running) {
+                if (index >= 0 && index < this.winner) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /** Interrupt the workers running an attempt with a higher index. */
+        private void interruptAbove(int index) {
+            for (int worker = 0; worker < this.running.length; worker++) {
+                if (this.running[worker] > index && this.threads[worker] != null) {
+                    this.threads[worker].interrupt();
+                }
+            }
+        }
+
+    }
+
+    /** Worker that runs attempts until there is nothing left worth running. */
+    private static class Worker implements Runnable {
+
+        /** Index of this worker. */
+        private final int worker;
+
+        /** Attempt owned by this worker. */
+        private final Attempt attempt;
+
+        /** Progress shared with the other workers. */
+        private final Progress progress;
+
+        /** Create a worker. */
+        Worker(int worker, Attempt attempt, Progress progress) {
+            this.worker = worker;
+            this.attempt = attempt;
+            this.progress = progress;
+        }
+
+        /** Run attempts until there is nothing left worth running. */
+        @Override
+        public void run() {
+            this.progress.started(this.worker);
+            try {
+                for (int index = this.progress.claim(this.worker); index >= 0; index = this.progress.claim(this.worker)) {
+                    int[] result = this.attempt.attempt(new Random(this.progress.getSeed(index)));
+                    if (result != null) {
+                        this.progress.succeeded(this.worker, index, result);
+                        return;  // every attempt this worker could claim from now on has a higher index
+                    }
+                }
+            } catch (Throwable e) {
+                this.progress.failed(this.worker, e);
+            } finally {
+                this.progress.exited(this.worker);
+            }
+        }
+
+    }
+
+}
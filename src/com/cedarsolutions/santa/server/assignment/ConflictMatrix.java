@@ -0,0 +1,274 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.cedarsolutions.santa.shared.domain.exchange.Assignment;
+import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
+import com.cedarsolutions.santa.shared.domain.exchange.ConflictGroup;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+
+/**
+ * Index-based conflict matrix for a set of participants.
+ *
+ * <p>
+ * Participant ids are mapped to dense integer indexes once, when the matrix
+ * is built.  After that, all of the solvers work purely in terms of indexes.
+ * Each giver has a row of bits, one per receiver, and a bit is set if the
+ * giver may not give a gift to that receiver.  A giver always conflicts with
+ * themselves.  The rows are stored back-to-back in a single long[], so
+ * checking a pair is a single array access and a solver can combine a whole
+ * row with some other bitset 64 receivers at a time.
+ * </p>
+ *
+ * <p>
+ * Conflicts only work one way, just like Participant.getConflictIds().  Ids
+ * that are not part of the participant set are ignored.
+ * </p>
+ *
+ * <p>
+ * Conflict groups work in every direction.  Each group is turned into a
+ * bitset of its members, which is combined into each member's row, so a
+ * group of k participants costs k row updates rather than k*k conflicts.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class ConflictMatrix {
+
+    /** Participants, in index order. */
+    private ParticipantSet participants;
+
+    /** Map from participant id to index. */
+    private Map<Long, Integer> indexes;
+
+    /** Number of participants. */
+    private int size;
+
+    /** Number of 64-bit words in each row. */
+    private int words;
+
+    /** Conflict rows, stored back-to-back. */
+    private long[] conflicts;
+
+    /**
+     * Build a conflict matrix for a set of participants.
+     * @param participants  Participants to generate assignments for
+     */
+    public ConflictMatrix(ParticipantSet participants) {
+        this(participants, null);
+    }
+
+    /**
+     * Build a conflict matrix for a set of participants and conflict groups.
+     * @param participants  Participants to generate assignments for
+     * @param groups        Groups whose members may not give to each other, possibly null
+     */
+    public ConflictMatrix(ParticipantSet participants, List<ConflictGroup> groups) {
+        this.participants = participants;
+        this.size = participants.size();
+        this.words = wordsFor(this.size);
+        this.conflicts = new long[this.size * this.words];
+
+        this.indexes = new HashMap<Long, Integer>();
+        for (int i = 0; i < this.size; i++) {
+            this.indexes.put(participants.get(i).getId(), i);
+        }
+
+        for (int i = 0; i < this.size; i++) {
+            this.addConflict(i, i);
+            if (participants.get(i).getConflictIds() != null) {
+                for (Long conflictId : participants.get(i).getConflictIds()) {
+                    int index = this.getIndex(conflictId);
+                    if (index >= 0) {
+                        this.addConflict(i, index);
+                    }
+                }
+            }
+        }
+
+        if (groups != null) {
+            for (ConflictGroup group : groups) {
+                this.addGroup(group);
+            }
+        }
+    }
+
+    /** Get the number of 64-bit words needed to hold a bitset of a given size. */
+    public static int wordsFor(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    /** Get the number of participants. */
+    public int size() {
+        return this.size;
+    }
+
+    /** Get the number of 64-bit words in each row. */
+    public int getWords() {
+        return this.words;
+    }
+
+    /** Get the participants, in index order. */
+    public ParticipantSet getParticipants() {
+        return this.participants;
+    }
+
+    /** Get the participant at an index. */
+    public Participant getParticipant(int index) {
+        return this.participants.get(index);
+    }
+
+    /**
+     * Get the index for a participant id.
+     * @param participantId  Participant id to look up
+     * @return Index of the participant, or -1 if the id is not known.
+     */
+    public int getIndex(Long participantId) {
+        Integer index = this.indexes.get(participantId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Whether a giver is allowed to give a gift to a receiver.
+     * @param giver     Index of the gift giver
+     * @param receiver  Index of the gift receiver
+     * @return True if the assignment is allowed, false otherwise.
+     */
+    public boolean isAllowed(int giver, int receiver) {
+        return (this.conflicts[giver * this.words + (receiver >>> 6)] & (1L << receiver)) == 0;
+    }
+
+    /**
+     * Mark that a giver may not give a gift to a receiver.
+     * @param giver     Index of the gift giver
+     * @param receiver  Index of the gift receiver
+     */
+    public void addConflict(int giver, int receiver) {
+        this.conflicts[giver * this.words + (receiver >>> 6)] |= 1L << receiver;
+    }
+
+    /**
+     * Mark that no member of a group may give a gift to any other member.
+     * @param group  Group to add
+     */
+    public void addGroup(ConflictGroup group) {
+        if (group.getParticipantIds() == null) {
+            return;
+        }
+
+        long[] mask = new long[this.words];
+        int[] members = new int[group.getParticipantIds().size()];
+        int count = 0;
+        for (Long participantId : group.getParticipantIds()) {
+            int index = this.getIndex(participantId);
+            if (index >= 0 && (mask[index >>> 6] & (1L << index)) == 0) {
+                mask[index >>> 6] |= 1L << index;
+                members[count++] = index;
+            }
+        }
+
+        if (count > 1) {
+            for (int i = 0; i < count; i++) {
+                int offset = members[i] * this.words;
+                for (int word = 0; word < this.words; word++) {
+                    this.conflicts[offset + word] |= mask[word];
+                }
+            }
+        }
+    }
+
+    /**
+     * Get one word of a giver's conflict row.
+     * @param giver  Index of the gift giver
+     * @param word   Index of the word within the row
+     * @return Bits for receivers word*64 through word*64+63, set where there is a conflict.
+     */
+    public long getConflictWord(int giver, int word) {
+        return this.conflicts[giver * this.words + word];
+    }
+
+    /**
+     * Convert an array of receiver indexes into a set of assignments.
+     * @param receivers  Receiver index for each giver index
+     * @return Equivalent set of assignments.
+     */
+    public AssignmentSet toAssignments(int[] receivers) {
+        AssignmentSet assignments = new AssignmentSet();
+        for (int i = 0; i < receivers.length; i++) {
+            assignments.add(new Assignment(this.getParticipant(i), this.getParticipant(receivers[i])));
+        }
+
+        return assignments;
+    }
+
+    /**
+     * Convert an array of receiver indexes into a set of assignments, when each giver has more than one receiver.
+     * @param receivers  Receiver indexes, with the receivers for giver i at indexes i*gifts through i*gifts+gifts-1
+     * @param gifts      Number of receivers for each giver
+     * @return Equivalent set of assignments.
+     */
+    public AssignmentSet toAssignments(int[] receivers, int gifts) {
+        AssignmentSet assignments = new AssignmentSet();
+        for (int i = 0; i < receivers.length; i++) {
+            assignments.add(new Assignment(this.getParticipant(i / gifts), this.getParticipant(receivers[i])));
+        }
+
+        return assignments;
+    }
+
+    /**
+     * Convert a set of assignments into an array of receiver indexes, keeping only the assignments that are still valid.
+     * An assignment is dropped if either participant is no longer known, if it now conflicts, or if
+     * the receiver was already taken by an earlier assignment.
+     * @param assignments  Assignments to convert, possibly null
+     * @return Receiver index for each giver index, or MatchingSolver.UNMATCHED if the giver has no valid assignment.
+     */
+    public int[] toReceivers(AssignmentSet assignments) {
+        int[] receivers = new int[this.size];
+        Arrays.fill(receivers, MatchingSolver.UNMATCHED);
+
+        if (assignments != null) {
+            boolean[] taken = new boolean[this.size];
+            for (Assignment assignment : assignments) {
+                if (assignment.getGiftGiver() != null && assignment.getGiftReceiver() != null) {
+                    int giver = this.getIndex(assignment.getGiftGiver().getId());
+                    int receiver = this.getIndex(assignment.getGiftReceiver().getId());
+                    if (giver >= 0 && receiver >= 0 && receivers[giver] == MatchingSolver.UNMATCHED
+                            && !taken[receiver] && this.isAllowed(giver, receiver)) {
+                        receivers[giver] = receiver;
+                        taken[receiver] = true;
+                    }
+                }
+            }
+        }
+
+        return receivers;
+    }
+
+}
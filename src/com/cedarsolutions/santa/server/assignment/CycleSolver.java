@@ -0,0 +1,577 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates assignments that form a single cycle through every participant.
+ *
+ * <p>
+ * Each participant gives a gift to the next participant along the cycle,
+ * so there are no sub-loops and no mutual pairs (once there are at least
+ * three participants).  Finding such a cycle is the Hamiltonian cycle
+ * problem, which is NP-complete, so the solver works in two phases.
+ * </p>
+ *
+ * <p>
+ * First, a perfect matching is a set of disjoint cycles that covers every
+ * participant.  Two of those cycles can be merged into one if some giver
+ * a in the first cycle and some giver b in the second cycle are allowed to
+ * swap receivers.  Repeatedly merging the smallest cycle into another one
+ * almost always yields a single cycle quickly when conflicts are sparse.
+ * If there is no perfect matching at all, there is no single cycle either.
+ * </p>
+ *
+ * <p>
+ * If merging gets stuck, the solver falls back on a depth-first
+ * backtracking search that relies on pruning to stay fast in practice:
+ * </p>
+ *
+ * <ul>
+ *    <li>Nothing is searched unless every participant can reach, and be
+ *        reached from, every other participant.</li>
+ *    <li>Next steps are chosen by the fewest remaining outgoing options
+ *        (Warnsdorff's rule), with ties broken randomly.</li>
+ *    <li>For each participant, the solver keeps a count of the remaining
+ *        ways in and out, and backtracks as soon as any count hits zero.</li>
+ *    <li>If the end of the path is the only remaining way in for some
+ *        participant, then that participant must be next.</li>
+ * </ul>
+ *
+ * <p>
+ * Allowed edges are stored as bitsets in both directions, so counts are
+ * maintained incrementally as the path grows and shrinks.  The search is
+ * bounded by a time limit.  A search that gets stuck deep in the tree is
+ * restarted with a new random ordering, allowing a few more steps each
+ * time, since bad early choices are rarely fixed by backtracking.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class CycleSolver {
+
+    /** Number of search steps between checks of the time limit. */
+    private static final int CLOCK_INTERVAL = 256;
+
+    /** Number of perfect matchings to try merging into a single cycle before searching. */
+    private static final int MERGE_ATTEMPTS = 5;
+
+    /** Minimum number of search steps before restarting with a different random ordering. */
+    private static final long MIN_STEP_LIMIT = 1024;
+
+    /** Search result: a cycle was found. */
+    private static final int FOUND = 0;
+
+    /** Search result: every possibility was explored without finding a cycle. */
+    private static final int EXHAUSTED = 1;
+
+    /** Search result: the time limit was reached. */
+    private static final int TIMED_OUT = 2;
+
+    /** Search result: the step limit was reached, so the search should restart. */
+    private static final int RESTART = 3;
+
+    /** Conflict matrix for the participants. */
+    private ConflictMatrix matrix;
+
+    /** Solver used to find perfect matchings. */
+    private MatchingSolver matchingSolver;
+
+    /** Number of participants. */
+    private int size;
+
+    /** Number of 64-bit words in each row. */
+    private int words;
+
+    /** Allowed receivers for each giver, stored back-to-back. */
+    private long[] outgoing;
+
+    /** Allowed givers for each receiver, stored back-to-back. */
+    private long[] incoming;
+
+    /** Bitset of participants that are not yet on the path. */
+    private long[] unvisited;
+
+    /** Untried next steps at each depth, stored back-to-back. */
+    private long[] untried;
+
+    /** Participants on the path, in order. */
+    private int[] path;
+
+    /** Remaining ways out of each participant that is not on the path. */
+    private int[] outCount;
+
+    /** Remaining ways in to each participant that is not on the path, and to the start. */
+    private int[] inCount;
+
+    /** Receiver index for each giver index, filled in when a cycle is found. */
+    private int[] receivers;
+
+    /** Cycle that each participant belongs to, while merging cycles. */
+    private int[] cycles;
+
+    /** Number of participants in each cycle, while merging cycles. */
+    private int[] cycleSizes;
+
+    /** Whether the last search explored every possibility. */
+    private boolean exhausted;
+
+    /**
+     * Create a solver.
+     * @param matrix  Conflict matrix for the participants
+     */
+    public CycleSolver(ConflictMatrix matrix) {
+        this.matrix = matrix;
+        this.size = matrix.size();
+        this.words = matrix.getWords();
+        this.outgoing = new long[this.size * this.words];
+        this.incoming = new long[this.size * this.words];
+        this.unvisited = new long[this.words];
+        this.untried = new long[this.size * this.words];
+        this.path = new int[this.size];
+        this.outCount = new int[this.size];
+        this.inCount = new int[this.size];
+        this.receivers = new int[this.size];
+        this.cycles = new int[this.size];
+        this.cycleSizes = new int[this.size];
+        this.matchingSolver = new MatchingSolver(matrix);
+
+        for (int giver = 0; giver < this.size; giver++) {
+            for (int receiver = 0; receiver < this.size; receiver++) {
+                if (matrix.isAllowed(giver, receiver)) {
+                    this.outgoing[giver * this.words + (receiver >>> 6)] |= 1L << receiver;
+                    this.incoming[receiver * this.words + (giver >>> 6)] |= 1L << giver;
+                }
+            }
+        }
+    }
+
+    /** Get the conflict matrix for the participants. */
+    public ConflictMatrix getMatrix() {
+        return this.matrix;
+    }
+
+    /**
+     * Search for a single cycle through every participant.
+     * The search also gives up early if the current thread is interrupted.
+     * @param random     Source of randomness
+     * @param timeLimit  Maximum time to spend searching, in milliseconds
+     * @return True if a cycle was found, in which case the result is available via getReceivers().
+     */
+    public boolean findCycle(Random random, long timeLimit) {
+        this.exhausted = false;
+        if (this.size < 2) {
+            this.exhausted = true;
+            return false;
+        }
+
+        long deadline = System.currentTimeMillis() + timeLimit;
+        int start = this.reset(random);
+        if (start < 0 || !this.isReachable(start, this.outgoing) || !this.isReachable(start, this.incoming)) {
+            this.exhausted = true;
+            return false;
+        }
+
+        for (int i = 0; i < MERGE_ATTEMPTS && System.currentTimeMillis() <= deadline && !Thread.currentThread().isInterrupted(); i++) {
+            int[] matching = this.matchingSolver.findMatching(random);
+            if (MatchingSolver.countUnmatched(matching) > 0) {
+                this.exhausted = true;  // every single cycle is also a perfect matching
+                return false;
+            }
+
+            if (this.mergeCycles(matching)) {
+                System.arraycopy(matching, 0, this.receivers, 0, this.size);
+                return true;
+            }
+        }
+
+        long stepLimit = Math.max(MIN_STEP_LIMIT, 4L * this.size);
+        while (true) {
+            int result = this.search(start, random, deadline, stepLimit);
+            if (result == FOUND) {
+                return true;
+            } else if (result == EXHAUSTED) {
+                this.exhausted = true;
+                return false;
+            } else if (result == TIMED_OUT) {
+                return false;
+            }
+
+            stepLimit += stepLimit / 4;
+            start = this.reset(random);
+        }
+    }
+
+    /**
+     * Merge the cycles in a perfect matching into a single cycle, if possible.
+     * @param matching  Receiver index for each giver index, modified in place
+     * @return True if the matching is now a single cycle, false otherwise.
+     */
+    private boolean mergeCycles(int[] matching) {
+        Arrays.fill(this.cycles, -1);
+        int count = 0;
+        for (int v = 0; v < this.size; v++) {
+            if (this.cycles[v] < 0) {
+                this.cycleSizes[v] = this.label(v, v, matching);  // each cycle is identified by its first participant
+                count++;
+            }
+        }
+
+        while (count > 1) {
+            int smallest = -1;
+            for (int v = 0; v < this.size; v++) {
+                if (this.cycles[v] == v && (smallest < 0 || this.cycleSizes[v] < this.cycleSizes[smallest])) {
+                    smallest = v;
+                }
+            }
+
+            if (!this.mergeCycle(smallest, matching)) {
+                return false;
+            }
+
+            count--;
+        }
+
+        return true;
+    }
+
+    /**
+     * Merge one cycle into some other cycle.
+     * @param cycle     Cycle to merge, identified by its first participant
+     * @param matching  Receiver index for each giver index, modified in place
+     * @return True if the cycle was merged, false if no merge was possible.
+     */
+    private boolean mergeCycle(int cycle, int[] matching) {
+        int a = cycle;
+        do {
+            // Look for b in another cycle such that a -> matching[b] and b -> matching[a] are allowed
+            int target = matching[a];
+            for (int word = 0; word < this.words; word++) {
+                long bits = this.incoming[target * this.words + word];
+                while (bits != 0) {
+                    int b = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if (this.cycles[b] != cycle && isSet(this.outgoing, a, matching[b], this.words)) {
+                        int other = this.cycles[b];
+                        matching[a] = matching[b];
+                        matching[b] = target;
+                        this.cycleSizes[other] = this.label(other, other, matching);
+                        return true;
+                    }
+                }
+            }
+
+            a = matching[a];
+        } while (a != cycle);
+
+        return false;
+    }
+
+    /**
+     * Label every participant along a cycle in a matching.
+     * @return Number of participants in the cycle.
+     */
+    private int label(int start, int cycle, int[] matching) {
+        int count = 0;
+        int v = start;
+        do {
+            this.cycles[v] = cycle;
+            v = matching[v];
+            count++;
+        } while (v != start);
+
+        return count;
+    }
+
+    /**
+     * Run one backtracking search from a starting participant.
+     * @param start      Starting participant
+     * @param random     Source of randomness
+     * @param deadline   Time at which to give up, in milliseconds since the epoch
+     * @param stepLimit  Number of steps after which to give up and restart
+     * @return One of FOUND, EXHAUSTED, TIMED_OUT or RESTART.
+     */
+    private int search(int start, Random random, long deadline, long stepLimit) {
+        int depth = 0;
+        this.path[0] = start;
+        this.unvisited[start >>> 6] &= ~(1L << start);
+        this.prepare(0);
+
+        long steps = 0;
+        while (true) {
+            if (++steps % CLOCK_INTERVAL == 0 && (System.currentTimeMillis() > deadline || Thread.currentThread().isInterrupted())) {
+                return TIMED_OUT;
+            } else if (steps > stepLimit) {
+                return RESTART;
+            }
+
+            if (depth == this.size - 1) {
+                if (isSet(this.outgoing, this.path[depth], start, this.words)) {
+                    for (int i = 0; i < this.size; i++) {
+                        this.receivers[this.path[i]] = this.path[(i + 1) % this.size];
+                    }
+
+                    return FOUND;
+                }
+            } else {
+                int next = this.selectNext(depth, random);
+                if (next >= 0) {
+                    this.untried[depth * this.words + (next >>> 6)] &= ~(1L << next);
+                    if (this.advance(this.path[depth], next, start)) {
+                        depth++;
+                        this.path[depth] = next;
+                        this.prepare(depth);
+                    } else {
+                        this.retreat(this.path[depth], next, start);
+                    }
+
+                    continue;
+                }
+            }
+
+            if (depth == 0) {
+                return EXHAUSTED;
+            }
+
+            this.retreat(this.path[depth - 1], this.path[depth], start);
+            depth--;
+        }
+    }
+
+    /**
+     * Get the result of the last successful search.
+     * The returned array is owned by the solver and is overwritten by the next search.
+     * @return Receiver index for each giver index.
+     */
+    public int[] getReceivers() {
+        return this.receivers;
+    }
+
+    /**
+     * Whether the last unsuccessful search explored every possibility.
+     * If so, no single cycle exists; otherwise, the search ran out of time.
+     */
+    public boolean isExhausted() {
+        return this.exhausted;
+    }
+
+    /**
+     * Reset state at the start of a search, and choose a starting participant.
+     * @return Starting participant, or -1 if some participant has no way in or out.
+     */
+    private int reset(Random random) {
+        for (int word = 0; word < this.words; word++) {
+            this.unvisited[word] = -1L;
+        }
+
+        if ((this.size & 63) != 0) {
+            this.unvisited[this.words - 1] = (1L << this.size) - 1;  // clear the bits past the end
+        }
+
+        int start = -1;
+        int offset = random.nextInt(this.size);
+        for (int i = 0; i < this.size; i++) {
+            int v = (offset + i) % this.size;
+            this.outCount[v] = count(this.outgoing, v, this.unvisited, this.words);
+            this.inCount[v] = count(this.incoming, v, this.unvisited, this.words);
+            if (this.outCount[v] == 0 || this.inCount[v] == 0) {
+                return -1;
+            }
+
+            if (start < 0 || this.inCount[v] < this.inCount[start]) {
+                start = v;  // the hardest participant to close the cycle on
+            }
+        }
+
+        return start;
+    }
+
+    /**
+     * Whether every participant can be reached from a root by following edges.
+     * Checking this in both directions tells us whether the graph is strongly connected,
+     * which it must be for any single cycle to exist.
+     */
+    private boolean isReachable(int root, long[] rows) {
+        long[] reached = new long[this.words];
+        int[] queue = this.path;  // not in use yet, so borrow it
+        int head = 0;
+        int tail = 0;
+
+        reached[root >>> 6] |= 1L << root;
+        queue[tail++] = root;
+        while (head < tail) {
+            int v = queue[head++];
+            for (int word = 0; word < this.words; word++) {
+                long bits = rows[v * this.words + word] & ~reached[word];
+                reached[word] |= bits;
+                while (bits != 0) {
+                    queue[tail++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                }
+            }
+        }
+
+        return tail == this.size;
+    }
+
+    /** Fill in the untried next steps for the end of the path at a depth. */
+    private void prepare(int depth) {
+        int tail = this.path[depth];
+        int base = depth * this.words;
+        int forced = -1;
+        boolean blocked = false;
+
+        for (int word = 0; word < this.words; word++) {
+            long bits = this.outgoing[tail * this.words + word] & this.unvisited[word];
+            this.untried[base + word] = bits;
+            while (bits != 0) {
+                int v = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (this.inCount[v] == 1) {
+                    blocked |= forced >= 0;  // two participants that can only be reached from here
+                    forced = v;
+                }
+            }
+        }
+
+        int start = this.path[0];
+        if (depth > 0 && depth < this.size - 1 && this.inCount[start] == 1 && isSet(this.outgoing, tail, start, this.words)) {
+            blocked = true;  // only the end of the path can close the cycle, but it is not last
+        }
+
+        if (blocked || forced >= 0) {
+            for (int word = 0; word < this.words; word++) {
+                this.untried[base + word] = 0L;
+            }
+
+            if (!blocked) {
+                this.untried[base + (forced >>> 6)] = 1L << forced;
+            }
+        }
+    }
+
+    /** Select the untried next step with the fewest ways out, breaking ties randomly. */
+    private int selectNext(int depth, Random random) {
+        int base = depth * this.words;
+        int best = -1;
+        int ties = 0;
+
+        for (int word = 0; word < this.words; word++) {
+            long bits = this.untried[base + word];
+            while (bits != 0) {
+                int v = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (best < 0 || this.outCount[v] < this.outCount[best]) {
+                    best = v;
+                    ties = 1;
+                } else if (this.outCount[v] == this.outCount[best] && random.nextInt(++ties) == 0) {
+                    best = v;
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Extend the path from its end to a new participant, updating counts.
+     * @return False if some participant is left with no way in or out.
+     */
+    private boolean advance(int tail, int next, int start) {
+        boolean alive = true;
+        this.unvisited[next >>> 6] &= ~(1L << next);
+
+        // The new participant is no longer a way out for anyone still off the path
+        for (int word = 0; word < this.words; word++) {
+            long bits = this.incoming[next * this.words + word] & this.unvisited[word];
+            while (bits != 0) {
+                int v = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (--this.outCount[v] == 0) {
+                    alive = false;
+                }
+            }
+        }
+
+        // The old end of the path is no longer a way in for anyone still off the path, or the start
+        for (int word = 0; word < this.words; word++) {
+            long bits = this.outgoing[tail * this.words + word] & this.unvisited[word];
+            while (bits != 0) {
+                int v = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (--this.inCount[v] == 0) {
+                    alive = false;
+                }
+            }
+        }
+
+        if (isSet(this.outgoing, tail, start, this.words) && --this.inCount[start] == 0) {
+            alive = false;
+        }
+
+        return alive;
+    }
+
+    /** Undo a call to advance(). */
+    private void retreat(int tail, int next, int start) {
+        for (int word = 0; word < this.words; word++) {
+            long bits = this.incoming[next * this.words + word] & this.unvisited[word];
+            while (bits != 0) {
+                this.outCount[(word << 6) + Long.numberOfTrailingZeros(bits)]++;
+                bits &= bits - 1;
+            }
+        }
+
+        for (int word = 0; word < this.words; word++) {
+            long bits = this.outgoing[tail * this.words + word] & this.unvisited[word];
+            while (bits != 0) {
+                this.inCount[(word << 6) + Long.numberOfTrailingZeros(bits)]++;
+                bits &= bits - 1;
+            }
+        }
+
+        if (isSet(this.outgoing, tail, start, this.words)) {
+            this.inCount[start]++;
+        }
+
+        this.unvisited[next >>> 6] |= 1L << next;
+    }
+
+    /** Whether a bit is set in a row of a back-to-back bitset. */
+    private static boolean isSet(long[] rows, int row, int bit, int words) {
+        return (rows[row * words + (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    /** Count the bits in a row of a back-to-back bitset that are also set in a mask. */
+    private static int count(long[] rows, int row, long[] mask, int words) {
+        int count = 0;
+        for (int word = 0; word < words; word++) {
+            count += Long.bitCount(rows[row * words + word] & mask[word]);
+        }
+
+        return count;
+    }
+
+}
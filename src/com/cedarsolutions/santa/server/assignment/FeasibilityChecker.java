@@ -0,0 +1,239 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.cedarsolutions.santa.shared.domain.exchange.FeasibilityResult;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+
+/**
+ * Decides whether a conflict matrix allows any valid set of assignments.
+ *
+ * <p>
+ * A maximum matching is computed once.  If it is perfect, the exchange is
+ * feasible.  Otherwise, by Hall's theorem, there is a set of participants
+ * whose combined options are too few.  Starting from each unmatched giver,
+ * the givers reachable along alternating paths can only give to the
+ * receivers visited along the way, and there is exactly one fewer of those.
+ * The same holds from each unmatched receiver in the other direction.  The
+ * smallest set found is reported, since that is the easiest one for an
+ * organizer to act on.
+ * </p>
+ *
+ * <p>
+ * Automatic conflict detection is not considered, because it is not a
+ * bipartite constraint.  An exchange that is feasible here can always be
+ * assigned with automatic conflict detection disabled.
+ * </p>
+ *
+ * <p>
+ * When participants give more than one gift, the matching check still runs
+ * first, since every valid set of k assignments per participant contains a
+ * perfect matching.  If that passes, MultiGiftSolver decides the rest, because
+ * it finds a complete set of assignments whenever one exists.  An exchange
+ * that fails only at this second step has no blocking participants.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class FeasibilityChecker {
+
+    /** Conflict matrix for the participants. */
+    private ConflictMatrix matrix;
+
+    /** Number of gifts each participant gives and receives. */
+    private int gifts;
+
+    /**
+     * Create a checker for one gift per participant.
+     * @param matrix  Conflict matrix for the participants
+     */
+    public FeasibilityChecker(ConflictMatrix matrix) {
+        this(matrix, 1);
+    }
+
+    /**
+     * Create a checker.
+     * @param matrix  Conflict matrix for the participants
+     * @param gifts   Number of gifts each participant gives and receives
+     */
+    public FeasibilityChecker(ConflictMatrix matrix, int gifts) {
+        this.matrix = matrix;
+        this.gifts = gifts;
+    }
+
+    /** Get the number of gifts each participant gives and receives. */
+    public int getGifts() {
+        return this.gifts;
+    }
+
+    /**
+     * Check whether a valid set of assignments exists.
+     * @return Result of the check, including blocking participants if not feasible.
+     */
+    public FeasibilityResult check() {
+        FeasibilityResult result = this.checkMatching();
+        if (result.isFeasible() && this.gifts > 1) {
+            result.setFeasible(new MultiGiftSolver(this.matrix, this.gifts).findAssignments(new Random(0L)));
+        }
+
+        return result;
+    }
+
+    /** Check whether a perfect matching exists, finding the smallest blocking set if it does not. */
+    private FeasibilityResult checkMatching() {
+        int size = this.matrix.size();
+        int[] receivers = new MatchingSolver(this.matrix).findMatching(new Random(0L));
+
+        int[] givers = new int[size];
+        Arrays.fill(givers, MatchingSolver.UNMATCHED);
+        for (int giver = 0; giver < size; giver++) {
+            if (receivers[giver] != MatchingSolver.UNMATCHED) {
+                givers[receivers[giver]] = giver;
+            }
+        }
+
+        FeasibilityResult result = new FeasibilityResult();
+        result.setFeasible(MatchingSolver.countUnmatched(receivers) == 0);
+
+        boolean[] bestBlocking = null;
+        boolean[] bestPartners = null;
+        boolean bestGivers = false;
+        int bestCount = Integer.MAX_VALUE;
+
+        for (int start = 0; start < size; start++) {
+            if (receivers[start] == MatchingSolver.UNMATCHED) {
+                boolean[] blocking = new boolean[size];
+                boolean[] partners = new boolean[size];
+                int count = this.searchFromGiver(start, givers, blocking, partners);
+                if (count < bestCount) {
+                    bestBlocking = blocking;
+                    bestPartners = partners;
+                    bestGivers = true;
+                    bestCount = count;
+                }
+            }
+
+            if (givers[start] == MatchingSolver.UNMATCHED) {
+                boolean[] blocking = new boolean[size];
+                boolean[] partners = new boolean[size];
+                int count = this.searchFromReceiver(start, receivers, blocking, partners);
+                if (count < bestCount) {
+                    bestBlocking = blocking;
+                    bestPartners = partners;
+                    bestGivers = false;
+                    bestCount = count;
+                }
+            }
+        }
+
+        if (bestBlocking != null) {
+            result.setBlockingGivers(bestGivers);
+            result.setBlockingParticipants(this.toParticipants(bestBlocking));
+            result.setPartners(this.toParticipants(bestPartners));
+        }
+
+        return result;
+    }
+
+    /**
+     * Collect the givers reachable from an unmatched giver along alternating paths.
+     * @param start     Unmatched giver to start from
+     * @param givers    Giver index for each receiver index, from a maximum matching
+     * @param blocking  Filled in with the givers that were reached
+     * @param partners  Filled in with the receivers those givers are allowed to give to
+     * @return Number of givers that were reached.
+     */
+    private int searchFromGiver(int start, int[] givers, boolean[] blocking, boolean[] partners) {
+        int size = this.matrix.size();
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+
+        blocking[start] = true;
+        queue[tail++] = start;
+        while (head < tail) {
+            int giver = queue[head++];
+            for (int receiver = 0; receiver < size; receiver++) {
+                if (!partners[receiver] && this.matrix.isAllowed(giver, receiver)) {
+                    partners[receiver] = true;
+                    int next = givers[receiver];  // never unmatched, since the matching is maximum
+                    if (!blocking[next]) {
+                        blocking[next] = true;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+
+        return tail;
+    }
+
+    /**
+     * Collect the receivers reachable from an unmatched receiver along alternating paths.
+     * @param start      Unmatched receiver to start from
+     * @param receivers  Receiver index for each giver index, from a maximum matching
+     * @param blocking   Filled in with the receivers that were reached
+     * @param partners   Filled in with the givers that are allowed to give to those receivers
+     * @return Number of receivers that were reached.
+     */
+    private int searchFromReceiver(int start, int[] receivers, boolean[] blocking, boolean[] partners) {
+        int size = this.matrix.size();
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+
+        blocking[start] = true;
+        queue[tail++] = start;
+        while (head < tail) {
+            int receiver = queue[head++];
+            for (int giver = 0; giver < size; giver++) {
+                if (!partners[giver] && this.matrix.isAllowed(giver, receiver)) {
+                    partners[giver] = true;
+                    int next = receivers[giver];  // never unmatched, since the matching is maximum
+                    if (!blocking[next]) {
+                        blocking[next] = true;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+
+        return tail;
+    }
+
+    /** Convert a set of flagged indexes into a set of participants. */
+    private ParticipantSet toParticipants(boolean[] flags) {
+        ParticipantSet participants = new ParticipantSet();
+        for (int i = 0; i < flags.length; i++) {
+            if (flags[i]) {
+                participants.add(this.matrix.getParticipant(i));
+            }
+        }
+
+        return participants;
+    }
+
+}
@@ -0,0 +1,166 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates assignments using the original randomized greedy algorithm.
+ *
+ * <p>
+ * Givers are handled in order, and each giver is assigned a receiver chosen
+ * uniformly at random from the receivers that are still available and not
+ * in conflict.  If automatic conflict detection is enabled, a giver may not
+ * be assigned to the person who is giving a gift to them.  An attempt fails
+ * if some giver has nobody left to choose from.
+ * </p>
+ *
+ * <p>
+ * All state lives in arrays that are allocated once, when the solver is
+ * created.  An attempt only resets those arrays, and choosing a receiver
+ * works directly on the bit rows from the conflict matrix, so repeated
+ * attempts do not allocate anything.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class GreedySolver {
+
+    /** Conflict matrix for the participants. */
+    private ConflictMatrix matrix;
+
+    /** Bitset of receivers that are still available. */
+    private long[] available;
+
+    /** Receiver index for each giver index. */
+    private int[] receivers;
+
+    /** Giver index for each receiver index. */
+    private int[] givers;
+
+    /**
+     * Create a solver.
+     * @param matrix  Conflict matrix for the participants
+     */
+    public GreedySolver(ConflictMatrix matrix) {
+        this.matrix = matrix;
+        this.available = new long[matrix.getWords()];
+        this.receivers = new int[matrix.size()];
+        this.givers = new int[matrix.size()];
+    }
+
+    /**
+     * Make one attempt at generating assignments.
+     * @param autoConflictDetection  Whether automatic conflict detection should be enabled
+     * @param random                 Source of randomness
+     * @return True if the attempt succeeded, in which case the result is available via getReceivers().
+     */
+    public boolean attempt(boolean autoConflictDetection, Random random) {
+        int size = this.matrix.size();
+        if (size == 0) {
+            return false;
+        }
+
+        this.reset();
+
+        for (int giver = 0; giver < size; giver++) {
+            int excluded = autoConflictDetection ? this.givers[giver] : MatchingSolver.UNMATCHED;
+            int count = this.countAllowable(giver, excluded);
+            if (count == 0) {
+                return false;
+            }
+
+            int receiver = this.selectAllowable(giver, excluded, random.nextInt(count));
+            this.receivers[giver] = receiver;
+            this.givers[receiver] = giver;
+            this.available[receiver >>> 6] &= ~(1L << receiver);
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the result of the last successful attempt.
+     * The returned array is owned by the solver and is overwritten by the next attempt.
+     * @return Receiver index for each giver index.
+     */
+    public int[] getReceivers() {
+        return this.receivers;
+    }
+
+    /** Reset state at the start of an attempt. */
+    private void reset() {
+        int size = this.matrix.size();
+        Arrays.fill(this.available, -1L);
+        if ((size & 63) != 0) {
+            this.available[this.available.length - 1] = (1L << size) - 1;  // clear the bits past the end
+        }
+
+        Arrays.fill(this.receivers, MatchingSolver.UNMATCHED);
+        Arrays.fill(this.givers, MatchingSolver.UNMATCHED);
+    }
+
+    /** Count the receivers available to a giver, ignoring an excluded receiver (if any). */
+    private int countAllowable(int giver, int excluded) {
+        int count = 0;
+        for (int word = 0; word < this.available.length; word++) {
+            count += Long.bitCount(this.available[word] & ~this.matrix.getConflictWord(giver, word));
+        }
+
+        if (excluded != MatchingSolver.UNMATCHED && this.isAllowable(giver, excluded)) {
+            count--;
+        }
+
+        return count;
+    }
+
+    /** Select the n-th receiver available to a giver, ignoring an excluded receiver (if any). */
+    private int selectAllowable(int giver, int excluded, int n) {
+        for (int word = 0; word < this.available.length; word++) {
+            long bits = this.available[word] & ~this.matrix.getConflictWord(giver, word);
+            if (excluded != MatchingSolver.UNMATCHED && (excluded >>> 6) == word) {
+                bits &= ~(1L << excluded);
+            }
+
+            int count = Long.bitCount(bits);
+            if (n < count) {
+                for (int i = 0; i < n; i++) {
+                    bits &= bits - 1;  // clear the lowest set bit
+                }
+
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+
+            n -= count;
+        }
+
+        throw new IllegalStateException("Internal error: allowable receiver not found");
+    }
+
+    /** Whether a receiver is both available and allowed for a giver. */
+    private boolean isAllowable(int giver, int receiver) {
+        return (this.available[receiver >>> 6] & (1L << receiver)) != 0 && this.matrix.isAllowed(giver, receiver);
+    }
+
+}
@@ -0,0 +1,279 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import static com.cedarsolutions.santa.server.assignment.SolverUtils.findExchange;
+import static com.cedarsolutions.santa.server.assignment.SolverUtils.shuffle;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates assignments by finding a maximum matching in a bipartite graph.
+ *
+ * <p>
+ * Gift givers form one side of the graph and gift receivers form the other.
+ * There is an edge from every giver to every receiver, except for the giver
+ * themselves and anyone listed in the giver's conflicts.  A valid set of
+ * assignments is exactly a perfect matching in this graph, so running the
+ * Hopcroft-Karp algorithm either finds a valid set of assignments or proves
+ * that there isn't one, in O(E * sqrt(V)) time.
+ * </p>
+ *
+ * <p>
+ * Edges are visited in a random order, so different calls yield different
+ * (but equally valid) assignments.  The graph is never materialized: edges
+ * are checked against the conflict matrix as they are visited.
+ * </p>
+ *
+ * <p>
+ * Automatic conflict detection (two givers may not give gifts to each
+ * other) cannot be expressed as a bipartite constraint.  Instead, mutual
+ * pairs in a perfect matching are removed afterwards by exchanging receivers
+ * with some other giver.  Each exchange removes at least one mutual pair and
+ * never introduces a new one.  If no exchange is possible, the attempt fails
+ * and the caller may try again with a different random ordering.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class MatchingSolver {
+
+    /** Marker for an unmatched giver or receiver. */
+    public static final int UNMATCHED = -1;
+
+    /** Marker for an unreachable giver in the breadth-first search. */
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    /** Conflict matrix for the participants. */
+    private ConflictMatrix matrix;
+
+    /** Random ordering of receivers; giver u visits order[(start[u] + t) % size] for t = 0, 1, ... */
+    private int[] order;
+
+    /** Random starting offset into the ordering, by giver. */
+    private int[] start;
+
+    /** Giver index for each receiver index. */
+    private int[] givers;
+
+    /** Breadth-first layer for each giver. */
+    private int[] distance;
+
+    /** Queue used by the breadth-first search. */
+    private int[] queue;
+
+    /** Position of each giver within its ordering, used by the depth-first search. */
+    private int[] position;
+
+    /** Givers along the current augmenting path. */
+    private int[] stack;
+
+    /** Receivers along the current augmenting path. */
+    private int[] via;
+
+    /**
+     * Create a solver.
+     * @param matrix  Conflict matrix for the participants
+     */
+    public MatchingSolver(ConflictMatrix matrix) {
+        int size = matrix.size();
+        this.matrix = matrix;
+        this.order = new int[size];
+        this.start = new int[size];
+        this.givers = new int[size];
+        this.distance = new int[size];
+        this.queue = new int[size];
+        this.position = new int[size];
+        this.stack = new int[size];
+        this.via = new int[size];
+    }
+
+    /** Get the conflict matrix for the participants. */
+    public ConflictMatrix getMatrix() {
+        return this.matrix;
+    }
+
+    /** Get the number of participants. */
+    public int size() {
+        return this.matrix.size();
+    }
+
+    /**
+     * Whether a giver is allowed to give a gift to a receiver.
+     * @param giver     Index of the gift giver
+     * @param receiver  Index of the gift receiver
+     * @return True if the assignment is allowed, false otherwise.
+     */
+    public boolean isAllowed(int giver, int receiver) {
+        return this.matrix.isAllowed(giver, receiver);
+    }
+
+    /**
+     * Find a maximum matching between givers and receivers, using Hopcroft-Karp.
+     * @param random  Source of randomness, used to order edges
+     * @return Receiver index for each giver index, or UNMATCHED if the giver could not be matched.
+     */
+    public int[] findMatching(Random random) {
+        int size = this.size();
+
+        shuffle(this.order, random);
+        for (int u = 0; u < size; u++) {
+            this.start[u] = random.nextInt(size);
+        }
+
+        int[] receivers = new int[size];
+        Arrays.fill(receivers, UNMATCHED);
+        Arrays.fill(this.givers, UNMATCHED);
+
+        while (this.buildLayers(receivers)) {
+            Arrays.fill(this.position, 0);
+            for (int u = 0; u < size; u++) {
+                if (receivers[u] == UNMATCHED) {
+                    this.augment(u, receivers);
+                }
+            }
+        }
+
+        return receivers;
+    }
+
+    /**
+     * Remove all mutual pairs (two givers assigned to each other) from a perfect matching.
+     * @param receivers  Receiver index for each giver index, modified in place
+     * @param random     Source of randomness
+     * @return True if all mutual pairs were removed, false otherwise.
+     */
+    public boolean removeMutualPairs(int[] receivers, Random random) {
+        int size = receivers.length;
+        int[] candidates = this.queue;  // not otherwise in use once the matching is complete
+        shuffle(candidates, random);
+
+        for (int i = 0; i < size; i++) {
+            int j = receivers[i];
+            if (receivers[j] == i) {
+                if (!this.breakMutualPair(i, j, receivers, candidates) && !this.breakMutualPair(j, i, receivers, candidates)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /** Count the number of unmatched givers in a matching. */
+    public static int countUnmatched(int[] receivers) {
+        int count = 0;
+        for (int receiver : receivers) {
+            if (receiver == UNMATCHED) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Break the mutual pair i &lt;-&gt; j by exchanging receivers with some other giver k.
+     * Afterwards, i gives to k's old receiver and k gives to j.
+     */
+    private boolean breakMutualPair(int i, int j, int[] receivers, int[] candidates) {
+        int k = findExchange(this.matrix, receivers, 1, i, j, candidates);
+        if (k < 0) {
+            return false;
+        }
+
+        receivers[i] = receivers[k];
+        receivers[k] = j;
+        return true;
+    }
+
+    /** Breadth-first phase of Hopcroft-Karp: layer the givers, returning true if an augmenting path exists. */
+    private boolean buildLayers(int[] receivers) {
+        int size = receivers.length;
+        int head = 0;
+        int tail = 0;
+
+        for (int u = 0; u < size; u++) {
+            if (receivers[u] == UNMATCHED) {
+                this.distance[u] = 0;
+                this.queue[tail++] = u;
+            } else {
+                this.distance[u] = INFINITY;
+            }
+        }
+
+        boolean found = false;
+        while (head < tail) {
+            int u = this.queue[head++];
+            for (int t = 0; t < size; t++) {
+                int v = this.order[(this.start[u] + t) % size];
+                if (this.isAllowed(u, v)) {
+                    int w = this.givers[v];
+                    if (w == UNMATCHED) {
+                        found = true;
+                    } else if (this.distance[w] == INFINITY) {
+                        this.distance[w] = this.distance[u] + 1;
+                        this.queue[tail++] = w;
+                    }
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /** Depth-first phase of Hopcroft-Karp, implemented iteratively so large exchanges can't overflow the stack. */
+    private boolean augment(int root, int[] receivers) {
+        int size = receivers.length;
+        int top = 0;
+        this.stack[top++] = root;
+
+        while (top > 0) {
+            int u = this.stack[top - 1];
+            if (this.position[u] < size) {
+                int v = this.order[(this.start[u] + this.position[u]++) % size];
+                if (this.isAllowed(u, v)) {
+                    int w = this.givers[v];
+                    if (w == UNMATCHED) {
+                        this.via[top - 1] = v;
+                        for (int k = top - 1; k >= 0; k--) {
+                            receivers[this.stack[k]] = this.via[k];
+                            this.givers[this.via[k]] = this.stack[k];
+                        }
+                        return true;
+                    } else if (this.distance[w] != INFINITY && this.distance[w] == this.distance[u] + 1) {
+                        this.via[top - 1] = v;
+                        this.stack[top++] = w;
+                    }
+                }
+            } else {
+                this.distance[u] = INFINITY;  // dead end, so don't visit again during this phase
+                top--;
+            }
+        }
+
+        return false;
+    }
+
+}
@@ -0,0 +1,327 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import static com.cedarsolutions.santa.server.assignment.SolverUtils.findExchange;
+import static com.cedarsolutions.santa.server.assignment.SolverUtils.indexOf;
+import static com.cedarsolutions.santa.server.assignment.SolverUtils.shuffle;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates assignments where each participant gives and receives more than one gift.
+ *
+ * <p>
+ * With k gifts per participant, every giver must be assigned k distinct
+ * receivers and every receiver must be assigned k distinct givers.  This is
+ * a flow problem on the same bipartite graph used by MatchingSolver, where
+ * each giver and receiver has capacity k and each edge has capacity 1.  The
+ * solver starts with a random greedy fill, and then completes it with
+ * breadth-first augmenting paths.  An augmenting path adds a new edge from a
+ * giver that is short of receivers, and then (as long as the receiver is
+ * already full) moves one of that receiver's givers to some other receiver,
+ * until it reaches a receiver with room left.  Because this is a complete
+ * flow algorithm, the solver finds a valid set of assignments whenever one
+ * exists.
+ * </p>
+ *
+ * <p>
+ * Receivers are stored densely, k slots per giver, and givers are stored the
+ * same way, k slots per receiver.  Slots that have not been filled hold
+ * MatchingSolver.UNMATCHED.
+ * </p>
+ *
+ * <p>
+ * Like MatchingSolver, automatic conflict detection is handled afterwards,
+ * by exchanging receivers with some other giver.  Each exchange removes a
+ * mutual pair and never introduces a new one.  If no exchange is possible,
+ * the attempt fails and the caller may try again with a different random
+ * ordering.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class MultiGiftSolver {
+
+    /** Conflict matrix for the participants. */
+    private ConflictMatrix matrix;
+
+    /** Number of gifts each participant gives and receives. */
+    private int gifts;
+
+    /** Receiver indexes, gifts slots per giver. */
+    private int[] receivers;
+
+    /** Giver indexes, gifts slots per receiver. */
+    private int[] givers;
+
+    /** Number of receivers assigned to each giver. */
+    private int[] receiverCounts;
+
+    /** Number of givers assigned to each receiver. */
+    private int[] giverCounts;
+
+    /** Random ordering of receivers; giver u visits order[(start[u] + t) % size] for t = 0, 1, ... */
+    private int[] order;
+
+    /** Random starting offset into the ordering, by giver. */
+    private int[] start;
+
+    /** Queue used by the breadth-first search. */
+    private int[] queue;
+
+    /** Giver that each giver was reached from in the breadth-first search, or UNMATCHED if not reached. */
+    private int[] parent;
+
+    /** Receiver that each giver was reached through, which the giver gives up if the path is used. */
+    private int[] via;
+
+    /** Whether each receiver has been reached in the breadth-first search. */
+    private boolean[] reached;
+
+    /**
+     * Create a solver.
+     * @param matrix  Conflict matrix for the participants
+     * @param gifts   Number of gifts each participant gives and receives
+     */
+    public MultiGiftSolver(ConflictMatrix matrix, int gifts) {
+        int size = matrix.size();
+        this.matrix = matrix;
+        this.gifts = gifts;
+        this.receivers = new int[size * gifts];
+        this.givers = new int[size * gifts];
+        this.receiverCounts = new int[size];
+        this.giverCounts = new int[size];
+        this.order = new int[size];
+        this.start = new int[size];
+        this.queue = new int[size];
+        this.parent = new int[size];
+        this.via = new int[size];
+        this.reached = new boolean[size];
+    }
+
+    /** Get the conflict matrix for the participants. */
+    public ConflictMatrix getMatrix() {
+        return this.matrix;
+    }
+
+    /** Get the number of gifts each participant gives and receives. */
+    public int getGifts() {
+        return this.gifts;
+    }
+
+    /** Get the number of participants. */
+    public int size() {
+        return this.matrix.size();
+    }
+
+    /**
+     * Get the receivers from the last call to findAssignments().
+     * The receivers for giver u are at indexes u*gifts through u*gifts+gifts-1.
+     * @return Receiver indexes, gifts slots per giver, or UNMATCHED for a slot that could not be filled.
+     */
+    public int[] getReceivers() {
+        return this.receivers;
+    }
+
+    /**
+     * Assign receivers to every giver, ignoring mutual pairs.
+     * If this fails, then no valid set of assignments exists.
+     * @param random  Source of randomness, used to order edges
+     * @return True if every slot was filled, false otherwise.
+     */
+    public boolean findAssignments(Random random) {
+        int size = this.size();
+
+        shuffle(this.order, random);
+        for (int u = 0; u < size; u++) {
+            this.start[u] = random.nextInt(size);
+        }
+
+        Arrays.fill(this.receivers, MatchingSolver.UNMATCHED);
+        Arrays.fill(this.givers, MatchingSolver.UNMATCHED);
+        Arrays.fill(this.receiverCounts, 0);
+        Arrays.fill(this.giverCounts, 0);
+
+        this.fill();
+
+        for (int u = 0; u < size; u++) {
+            while (this.receiverCounts[u] < this.gifts) {
+                if (!this.augment(u)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Remove all mutual pairs (two givers assigned to each other) from a complete set of assignments.
+     * @param random  Source of randomness
+     * @return True if all mutual pairs were removed, false otherwise.
+     */
+    public boolean removeMutualPairs(Random random) {
+        int size = this.size();
+        int[] candidates = this.queue;  // not otherwise in use once the assignments are complete
+        shuffle(candidates, random);
+
+        for (int i = 0; i < size; i++) {
+            for (int slot = i * this.gifts; slot < (i + 1) * this.gifts; slot++) {
+                int j = this.receivers[slot];
+                if (this.isAssigned(j, i)) {
+                    if (!this.breakMutualPair(i, j, candidates) && !this.breakMutualPair(j, i, candidates)) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Whether a giver is currently assigned to a receiver.
+     * @param giver     Index of the gift giver
+     * @param receiver  Index of the gift receiver
+     * @return True if the giver is assigned to the receiver, false otherwise.
+     */
+    public boolean isAssigned(int giver, int receiver) {
+        return indexOf(this.receivers, giver * this.gifts, this.receiverCounts[giver], receiver) >= 0;
+    }
+
+    /** Whether an edge may be added: the assignment is allowed and not already made. */
+    private boolean canAdd(int giver, int receiver) {
+        return this.matrix.isAllowed(giver, receiver) && !this.isAssigned(giver, receiver);
+    }
+
+    /** Greedily assign receivers that still have room, visiting them in random order. */
+    private void fill() {
+        int size = this.size();
+        for (int u = 0; u < size; u++) {
+            for (int t = 0; t < size && this.receiverCounts[u] < this.gifts; t++) {
+                int v = this.order[(this.start[u] + t) % size];
+                if (this.giverCounts[v] < this.gifts && this.canAdd(u, v)) {
+                    this.add(u, v);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find a shortest augmenting path from a giver that is short of receivers, and apply it.
+     * @param root  Giver that is short of receivers
+     * @return True if the giver gained a receiver, false if no augmenting path exists.
+     */
+    private boolean augment(int root) {
+        int size = this.size();
+        int head = 0;
+        int tail = 0;
+
+        Arrays.fill(this.parent, MatchingSolver.UNMATCHED);
+        Arrays.fill(this.reached, false);
+        this.parent[root] = root;
+        this.queue[tail++] = root;
+
+        while (head < tail) {
+            int x = this.queue[head++];
+            for (int t = 0; t < size; t++) {
+                int v = this.order[(this.start[x] + t) % size];
+                if (!this.reached[v] && this.canAdd(x, v)) {
+                    this.reached[v] = true;
+                    if (this.giverCounts[v] < this.gifts) {
+                        this.flip(root, x, v);
+                        return true;
+                    }
+
+                    for (int slot = v * this.gifts; slot < (v + 1) * this.gifts; slot++) {
+                        int w = this.givers[slot];
+                        if (this.parent[w] == MatchingSolver.UNMATCHED) {
+                            this.parent[w] = x;
+                            this.via[w] = v;
+                            this.queue[tail++] = w;
+                        }
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Apply an augmenting path that ends with giver x taking receiver v, which has room left.
+     * Walking back along the path, each giver takes the next receiver and gives up the one it was reached through.
+     */
+    private void flip(int root, int x, int v) {
+        int giver = x;
+        int receiver = v;
+
+        this.giverCounts[receiver]++;
+        this.givers[receiver * this.gifts + this.giverCounts[receiver] - 1] = giver;
+
+        while (giver != root) {
+            int dropped = this.via[giver];
+            int previous = this.parent[giver];
+            replace(this.receivers, giver * this.gifts, this.gifts, dropped, receiver);
+            replace(this.givers, dropped * this.gifts, this.gifts, giver, previous);
+            giver = previous;
+            receiver = dropped;
+        }
+
+        this.receiverCounts[root]++;
+        this.receivers[root * this.gifts + this.receiverCounts[root] - 1] = receiver;
+    }
+
+    /** Add an edge from a giver to a receiver, both of which have room left. */
+    private void add(int giver, int receiver) {
+        this.receivers[giver * this.gifts + this.receiverCounts[giver]++] = receiver;
+        this.givers[receiver * this.gifts + this.giverCounts[receiver]++] = giver;
+    }
+
+    /**
+     * Break the mutual pair i &lt;-&gt; j by exchanging receivers with some other giver x.
+     * Afterwards, i gives to one of x's old receivers m and x gives to j.
+     */
+    private boolean breakMutualPair(int i, int j, int[] candidates) {
+        int slot = findExchange(this.matrix, this.receivers, this.gifts, i, j, candidates);
+        if (slot < 0) {
+            return false;
+        }
+
+        int x = slot / this.gifts;
+        int m = this.receivers[slot];
+        replace(this.receivers, i * this.gifts, this.gifts, j, m);
+        this.receivers[slot] = j;
+        replace(this.givers, j * this.gifts, this.gifts, i, x);
+        replace(this.givers, m * this.gifts, this.gifts, x, i);
+        return true;
+    }
+
+    /** Replace a value within a range of slots. */
+    private static void replace(int[] slots, int offset, int length, int value, int replacement) {
+        slots[indexOf(slots, offset, length, value)] = replacement;
+    }
+
+}
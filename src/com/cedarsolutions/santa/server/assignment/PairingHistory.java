@@ -0,0 +1,233 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.cedarsolutions.santa.shared.domain.exchange.Assignment;
+import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+
+/**
+ * Giver/receiver pairings from prior exchanges, keyed by participant email address.
+ *
+ * <p>
+ * Participants get new ids in every exchange, so the email address is the
+ * only way to recognize the same person from one year to the next.  The
+ * pairings for a single exchange can be encoded into a compact string, which
+ * is stored alongside the exchange so the history can be rebuilt without
+ * deserializing every prior exchange.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class PairingHistory {
+
+    /** Separator between the giver and receiver in an encoded pairing. */
+    private static final char PAIR_SEPARATOR = '\t';
+
+    /** Separator between encoded pairings. */
+    private static final char LINE_SEPARATOR = '\n';
+
+    /** Set of encoded pairings. */
+    private Set<String> pairings;
+
+    /** Create an empty history. */
+    public PairingHistory() {
+        this.pairings = new HashSet<String>();
+    }
+
+    /**
+     * Encode the pairings in a set of assignments.
+     * @param assignments  Assignments to encode
+     * @return Encoded pairings, possibly empty.
+     */
+    public static String encode(AssignmentSet assignments) {
+        StringBuilder builder = new StringBuilder();
+        if (assignments != null) {
+            for (Assignment assignment : assignments) {
+                String pairing = createPairing(assignment.getGiftGiver(), assignment.getGiftReceiver());
+                if (pairing != null) {
+                    if (builder.length() > 0) {
+                        builder.append(LINE_SEPARATOR);
+                    }
+
+                    builder.append(pairing);
+                }
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Add the pairings from a set of assignments.
+     * @param assignments  Assignments to add
+     */
+    public void addAssignments(AssignmentSet assignments) {
+        this.addEncoded(encode(assignments));
+    }
+
+    /**
+     * Add pairings previously encoded with encode().
+     * @param encoded  Encoded pairings, possibly null or empty
+     */
+    public void addEncoded(String encoded) {
+        if (encoded != null) {
+            int start = 0;
+            while (start < encoded.length()) {
+                int end = encoded.indexOf(LINE_SEPARATOR, start);
+                if (end < 0) {
+                    end = encoded.length();
+                }
+
+                String pairing = encoded.substring(start, end);
+                if (pairing.indexOf(PAIR_SEPARATOR) > 0) {
+                    this.pairings.add(pairing);  // anything else is not a valid pairing, so it's ignored
+                }
+
+                start = end + 1;
+            }
+        }
+    }
+
+    /**
+     * Whether a giver has previously been assigned to a receiver.
+     * @param giver     Gift giver
+     * @param receiver  Gift receiver
+     * @return True if the pairing is in the history, false otherwise.
+     */
+    public boolean contains(Participant giver, Participant receiver) {
+        String pairing = createPairing(giver, receiver);
+        return pairing != null && this.pairings.contains(pairing);
+    }
+
+    /**
+     * Add every pairing in the history to a conflict matrix.
+     * @param matrix  Conflict matrix to update
+     * @return Number of new conflicts added.
+     */
+    public int addConflicts(ConflictMatrix matrix) {
+        int added = 0;
+
+        for (int[] pair : this.findPairs(matrix)) {
+            if (matrix.isAllowed(pair[0], pair[1])) {
+                matrix.addConflict(pair[0], pair[1]);
+                added++;
+            }
+        }
+
+        return added;
+    }
+
+    /**
+     * Add a penalty to every pairing in the history, for use with the optimizer.
+     * @param optimizer  Optimizer to update
+     * @param penalty    Penalty for each prior pairing
+     * @return Number of pairings that were penalized.
+     */
+    public int addPenalties(AssignmentOptimizer optimizer, int penalty) {
+        int added = 0;
+
+        for (int[] pair : this.findPairs(optimizer.getMatrix())) {
+            if (optimizer.getMatrix().isAllowed(pair[0], pair[1])) {
+                optimizer.addPenalty(pair[0], pair[1], penalty);
+                added++;
+            }
+        }
+
+        return added;
+    }
+
+    /**
+     * Find the giver/receiver indexes in a conflict matrix for every pairing in the history.
+     * @param matrix  Conflict matrix to search
+     * @return List of pairs, each holding a giver index and a receiver index.
+     */
+    private List<int[]> findPairs(ConflictMatrix matrix) {
+        List<int[]> pairs = new ArrayList<int[]>();
+
+        if (!this.pairings.isEmpty()) {
+            Map<String, List<Integer>> indexes = new HashMap<String, List<Integer>>();
+            for (int i = 0; i < matrix.size(); i++) {
+                String email = normalize(matrix.getParticipant(i).getEmailAddress());
+                if (email != null) {
+                    if (!indexes.containsKey(email)) {
+                        indexes.put(email, new ArrayList<Integer>());
+                    }
+
+                    indexes.get(email).add(i);
+                }
+            }
+
+            for (String pairing : this.pairings) {
+                int separator = pairing.indexOf(PAIR_SEPARATOR);
+                List<Integer> givers = indexes.get(pairing.substring(0, separator));
+                List<Integer> receivers = indexes.get(pairing.substring(separator + 1));
+                if (givers != null && receivers != null) {
+                    for (int giver : givers) {
+                        for (int receiver : receivers) {
+                            pairs.add(new int[] { giver, receiver });
+                        }
+                    }
+                }
+            }
+        }
+
+        return pairs;
+    }
+
+    /** Number of distinct pairings in the history. */
+    public int size() {
+        return this.pairings.size();
+    }
+
+    /** Whether the history is empty. */
+    public boolean isEmpty() {
+        return this.pairings.isEmpty();
+    }
+
+    /** Create the encoded pairing for a giver and receiver, or null if either has no email address. */
+    private static String createPairing(Participant giver, Participant receiver) {
+        String giverEmail = giver == null ? null : normalize(giver.getEmailAddress());
+        String receiverEmail = receiver == null ? null : normalize(receiver.getEmailAddress());
+        return giverEmail == null || receiverEmail == null ? null : giverEmail + PAIR_SEPARATOR + receiverEmail;
+    }
+
+    /** Normalize an email address, returning null if it is empty. */
+    private static String normalize(String email) {
+        if (email == null) {
+            return null;
+        }
+
+        String normalized = email.trim().toLowerCase(Locale.ENGLISH);
+        return normalized.length() == 0 ? null : normalized;
+    }
+
+}
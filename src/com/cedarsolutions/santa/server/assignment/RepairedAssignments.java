@@ -0,0 +1,57 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
+
+/**
+ * A repaired set of assignments along with the assignments that changed, as returned by the repairer.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class RepairedAssignments {
+
+    /** The complete set of assignments. */
+    private AssignmentSet assignments;
+
+    /** Assignments for the givers whose receiver changed, which are the only ones that need a new email. */
+    private AssignmentSet changed;
+
+    /**
+     * Create repaired assignments.
+     * @param assignments  The complete set of assignments
+     * @param changed      Assignments for the givers whose receiver changed
+     */
+    public RepairedAssignments(AssignmentSet assignments, AssignmentSet changed) {
+        this.assignments = assignments;
+        this.changed = changed;
+    }
+
+    public AssignmentSet getAssignments() {
+        return this.assignments;
+    }
+
+    public AssignmentSet getChanged() {
+        return this.changed;
+    }
+
+}
@@ -0,0 +1,57 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
+
+/**
+ * A set of assignments along with its score, as returned by the optimizer.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class ScoredAssignments {
+
+    /** The assignments. */
+    private AssignmentSet assignments;
+
+    /** Total penalty of the assignments, zero if no penalties apply. */
+    private long score;
+
+    /**
+     * Create scored assignments.
+     * @param assignments  The assignments
+     * @param score        Total penalty of the assignments
+     */
+    public ScoredAssignments(AssignmentSet assignments, long score) {
+        this.assignments = assignments;
+        this.score = score;
+    }
+
+    public AssignmentSet getAssignments() {
+        return this.assignments;
+    }
+
+    public long getScore() {
+        return this.score;
+    }
+
+}
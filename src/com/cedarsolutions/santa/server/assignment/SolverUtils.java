@@ -0,0 +1,110 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import java.util.Random;
+
+/**
+ * Array utilities shared by the solvers and the repairer.
+ *
+ * <p>
+ * Receivers are stored densely, some number of slots per giver: the
+ * receivers for giver u are at indexes u*gifts through u*gifts+gifts-1.
+ * With one gift per participant, this is just the receiver for each giver.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+final class SolverUtils {
+
+    /** Cannot be instantiated. */
+    private SolverUtils() {
+    }
+
+    /** Fill an array with a random permutation of the indexes 0..length-1. */
+    static void shuffle(int[] indexes, Random random) {
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+
+        for (int i = indexes.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = indexes[i];
+            indexes[i] = indexes[j];
+            indexes[j] = temp;
+        }
+    }
+
+    /** Find a value within a range of slots, returning its index or -1 if it is not there. */
+    static int indexOf(int[] slots, int offset, int length, int value) {
+        for (int slot = offset; slot < offset + length; slot++) {
+            if (slots[slot] == value) {
+                return slot;
+            }
+        }
+
+        return -1;
+    }
+
+    /** Whether a giver is assigned to a receiver, given the receivers for every giver. */
+    static boolean isAssigned(int[] receivers, int gifts, int giver, int receiver) {
+        return indexOf(receivers, giver * gifts, gifts, receiver) >= 0;
+    }
+
+    /**
+     * Find an exchange that breaks the mutual pair i &lt;-&gt; j.
+     *
+     * <p>
+     * The exchange is with some other giver x, chosen from the candidates in
+     * order.  Afterwards, i gives to one of x's old receivers m and x gives to
+     * j.  Each exchange is allowed by the conflict matrix, does not assign
+     * anyone to the same receiver twice, and never introduces a new mutual
+     * pair.  The caller is responsible for making the exchange.
+     * </p>
+     *
+     * @param matrix      Conflict matrix for the participants
+     * @param receivers   Receivers for every giver, gifts slots per giver, all filled
+     * @param gifts       Number of gifts each participant gives and receives
+     * @param i           Giver that gives up j
+     * @param j           Receiver that i gives up
+     * @param candidates  Givers to try, in order
+     * @return Slot holding m within x's receivers (so x is slot / gifts), or -1 if no exchange is possible.
+     */
+    static int findExchange(ConflictMatrix matrix, int[] receivers, int gifts, int i, int j, int[] candidates) {
+        for (int x : candidates) {
+            if (x != i && x != j && !isAssigned(receivers, gifts, j, x)
+                    && matrix.isAllowed(x, j) && !isAssigned(receivers, gifts, x, j)) {
+                for (int slot = x * gifts; slot < (x + 1) * gifts; slot++) {
+                    int m = receivers[slot];
+                    if (m != i && !isAssigned(receivers, gifts, m, i)
+                            && matrix.isAllowed(i, m) && !isAssigned(receivers, gifts, i, m)) {
+                        return slot;
+                    }
+                }
+            }
+        }
+
+        return -1;
+    }
+
+}
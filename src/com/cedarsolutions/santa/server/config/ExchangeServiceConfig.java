@@ -26,6 +26,7 @@ import org.apache.log4j.Logger;
 
 import com.cedarsolutions.config.PropertyBasedConfig;
 import com.cedarsolutions.exception.NotConfiguredException;
+import com.cedarsolutions.santa.server.assignment.AssignmentStrategy;
 import com.cedarsolutions.shared.domain.email.EmailAddress;
 import com.cedarsolutions.shared.domain.email.EmailFormat;
 import com.cedarsolutions.util.LoggingUtils;
@@ -54,6 +55,24 @@ public class ExchangeServiceConfig extends PropertyBasedConfig {
     /** Maximum number of attempts to make when generating assignments. */
     private int maxAttempts;
 
+    /** Strategy used to generate assignments. */
+    private AssignmentStrategy assignmentStrategy;
+
+    /** Time limit for the single cycle search, in milliseconds. */
+    private int cycleTimeLimit;
+
+    /** Maximum number of assignment attempts to run at once. */
+    private int parallelism;
+
+    /** Penalty for each mutual pair, when optimizing assignments. */
+    private int mutualPairPenalty;
+
+    /** Penalty for each pairing repeated from a prior exchange, when optimizing assignments. */
+    private int priorPairingPenalty;
+
+    /** Largest exchange that will be optimized; larger exchanges use UNIFORM instead of OPTIMAL. */
+    private int maxOptimalParticipants;
+
     /**
      * Invoked by a bean factory after it has set all bean properties.
      * @throws NotConfiguredException In the event of misconfiguration.
@@ -70,12 +89,27 @@ public class ExchangeServiceConfig extends PropertyBasedConfig {
         this.defaultEmailFormat = this.parseRequiredEmailFormat("ExchangeService.defaultEmailFormat");
         this.defaultTemplateName = this.parseRequiredString("ExchangeService.defaultTemplateName");
         this.maxAttempts = this.parseRequiredInteger("ExchangeService.maxAttempts");
+        this.assignmentStrategy = parseAssignmentStrategy(this.parseRequiredString("ExchangeService.assignmentStrategy"));
+        this.cycleTimeLimit = this.parseRequiredInteger("ExchangeService.cycleTimeLimit");
+        this.parallelism = this.parseRequiredInteger("ExchangeService.parallelism");
+        this.mutualPairPenalty = this.parseRequiredInteger("ExchangeService.mutualPairPenalty");
+        this.priorPairingPenalty = this.parseRequiredInteger("ExchangeService.priorPairingPenalty");
+        this.maxOptimalParticipants = this.parseRequiredInteger("ExchangeService.maxOptimalParticipants");
 
         this.sender = new EmailAddress(senderName, senderAddress);
 
         LOGGER.debug(this.toString());
     }
 
+    /** Parse an assignment strategy, converting errors to NotConfiguredException. */
+    private static AssignmentStrategy parseAssignmentStrategy(String value) {
+        try {
+            return AssignmentStrategy.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw new NotConfiguredException("ExchangeServiceConfig: invalid assignment strategy: " + value);
+        }
+    }
+
     public String getTemplateGroup() {
         return this.templateGroup;
     }
@@ -96,4 +130,28 @@ public class ExchangeServiceConfig extends PropertyBasedConfig {
         return this.maxAttempts;
     }
 
+    public AssignmentStrategy getAssignmentStrategy() {
+        return this.assignmentStrategy;
+    }
+
+    public int getCycleTimeLimit() {
+        return this.cycleTimeLimit;
+    }
+
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    public int getMutualPairPenalty() {
+        return this.mutualPairPenalty;
+    }
+
+    public int getPriorPairingPenalty() {
+        return this.priorPairingPenalty;
+    }
+
+    public int getMaxOptimalParticipants() {
+        return this.maxOptimalParticipants;
+    }
+
 }
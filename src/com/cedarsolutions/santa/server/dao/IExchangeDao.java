@@ -23,14 +23,21 @@
 package com.cedarsolutions.santa.server.dao;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 import com.cedarsolutions.dao.IDaoTransaction;
 import com.cedarsolutions.dao.domain.PaginatedResults;
 import com.cedarsolutions.dao.domain.Pagination;
 import com.cedarsolutions.exception.DaoException;
 import com.cedarsolutions.exception.InvalidDataException;
+import com.cedarsolutions.santa.server.assignment.PairingHistory;
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
 import com.cedarsolutions.santa.shared.domain.exchange.ExchangeCriteria;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSection;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantPage;
 
 /**
  * DAO to handle exchanges.
@@ -72,6 +79,28 @@ public interface IExchangeDao {
      */
     Exchange retrieveExchange(IDaoTransaction transaction, Long exchangeId) throws DaoException;
 
+    /**
+     * Retrieve an exchange by exchange id, including only some of its sections.
+     * Sections that are left out come back empty (participants) or null (assignments).
+     * @param exchangeId  Exchange id, as from insertExchange()
+     * @param sections    Sections to include, possibly empty to get just the header
+     * @return Exchange retrieved from the database, possibly null.
+     * @throws DaoException If the operation fails.
+     */
+    Exchange retrieveExchange(Long exchangeId, Set<ExchangeSection> sections) throws DaoException;
+
+    /**
+     * Retrieve a page of an exchange's participants.
+     * @param userId      User which must own the exchange
+     * @param exchangeId  Exchange id, as from insertExchange()
+     * @param start       Position of the first participant to retrieve
+     * @param count       Maximum number of participants to retrieve
+     * @return Page of participants, or null if the exchange does not exist or is not owned by the user.
+     * @throws InvalidDataException If the start or count is invalid
+     * @throws DaoException If the operation fails.
+     */
+    ParticipantPage retrieveParticipants(String userId, Long exchangeId, int start, int count) throws InvalidDataException, DaoException;
+
     /**
      * Delete an exchange by exchange id.
      * @param exchangeId  Exchange id, as from insertExchange()
@@ -109,6 +138,17 @@ public interface IExchangeDao {
      */
     void updateExchange(IDaoTransaction transaction, Exchange exchange) throws DaoException;
 
+    /**
+     * Apply a page of changes to a stored exchange, as described for Exchange.applyChanges().
+     * @param userId        User which must own the exchange
+     * @param header        Exchange whose fields should be applied, identified by its id
+     * @param participants  Participants that were added or replaced, possibly null
+     * @param removedIds    Ids of the participants that were removed, possibly null
+     * @return Header of the updated exchange, or null if the exchange does not exist or is not owned by the user.
+     * @throws DaoException If the operation fails.
+     */
+    Exchange updateExchange(String userId, Exchange header, List<Participant> participants, List<Long> removedIds) throws DaoException;
+
     /**
      * Retrieve the exchanges that match search criteria.
      * See documentation on the criteria class for information on how criteria are applied.
@@ -132,4 +172,49 @@ public interface IExchangeDao {
     PaginatedResults<Exchange> retrieveExchanges(ExchangeCriteria criteria, Pagination pagination)
     throws InvalidDataException, DaoException;
 
+    /**
+     * Retrieve summaries of the exchanges that match search criteria.
+     * See documentation on the criteria class for information on how criteria are applied.
+     * @param criteria    Search criteria to apply
+     * @param pagination  Pagination to use
+     * @return Paginated results.
+     * @throws InvalidDataException If the criteria is invalid
+     * @throws DaoException If the operation fails.
+     */
+    PaginatedResults<ExchangeSummary> retrieveExchangeSummaries(ExchangeCriteria criteria, Pagination pagination)
+    throws InvalidDataException, DaoException;
+
+    /**
+     * Retrieve the giver/receiver pairings from a set of prior exchanges.
+     * Exchanges that do not exist or are not owned by the user are ignored.
+     * @param userId       User which must own the exchanges
+     * @param exchangeIds  Ids of the prior exchanges
+     * @return Pairing history for the exchanges, possibly empty.
+     * @throws DaoException If the operation fails.
+     */
+    PairingHistory retrievePairingHistory(String userId, List<Long> exchangeIds) throws DaoException;
+
+    /**
+     * Claim a chunk of an exchange's notifications, so that only one task sends it.
+     * A chunk that was released before it was complete can be claimed again.
+     * @param exchangeId      Exchange id, as from insertExchange()
+     * @param assignmentSeed  Seed of the assignments being sent, so a later send starts over
+     * @param chunk           Index of the chunk
+     * @return Position within the chunk to start sending from, or -1 if the chunk is already claimed.
+     * @throws DaoException If the operation fails.
+     */
+    int claimNotificationChunk(Long exchangeId, Long assignmentSeed, int chunk) throws DaoException;
+
+    /**
+     * Release a claimed chunk of an exchange's notifications.
+     * A complete chunk stays claimed, so it is never sent again.
+     * @param exchangeId      Exchange id, as from insertExchange()
+     * @param assignmentSeed  Seed of the assignments being sent
+     * @param chunk           Index of the chunk
+     * @param next            Position within the chunk of the first notification that was not sent
+     * @param complete        Whether every notification in the chunk was sent
+     * @throws DaoException If the operation fails.
+     */
+    void releaseNotificationChunk(Long exchangeId, Long assignmentSeed, int chunk, int next, boolean complete) throws DaoException;
+
 }
@@ -0,0 +1,102 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe counters that track how well a cache is working.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class CacheStatistics {
+
+    /** Number of lookups that found an entry. */
+    private final AtomicLong hits = new AtomicLong();
+
+    /** Number of lookups that did not find an entry. */
+    private final AtomicLong misses = new AtomicLong();
+
+    /** Number of entries pushed out to make room for newer ones. */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /** Number of invalidations. */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /** Record a lookup that found an entry. */
+    public void recordHit() {
+        this.hits.incrementAndGet();
+    }
+
+    /** Record a lookup that did not find an entry. */
+    public void recordMiss() {
+        this.misses.incrementAndGet();
+    }
+
+    /** Record an entry pushed out to make room for a newer one. */
+    public void recordEviction() {
+        this.evictions.incrementAndGet();
+    }
+
+    /** Record an invalidation. */
+    public void recordInvalidation() {
+        this.invalidations.incrementAndGet();
+    }
+
+    /** Reset all of the counters to zero. */
+    public void reset() {
+        this.hits.set(0);
+        this.misses.set(0);
+        this.evictions.set(0);
+        this.invalidations.set(0);
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    public long getInvalidations() {
+        return this.invalidations.get();
+    }
+
+    /** Fraction of lookups that found an entry, from 0.0 to 1.0, or 0.0 if there were no lookups. */
+    public double getHitRatio() {
+        long hits = this.getHits();
+        long lookups = hits + this.getMisses();
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "hits " + this.getHits() + ", misses " + this.getMisses() + ", "
+               + "evictions " + this.getEvictions() + ", invalidations " + this.getInvalidations();
+    }
+
+}
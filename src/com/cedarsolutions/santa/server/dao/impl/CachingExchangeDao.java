@@ -0,0 +1,518 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.InitializingBean;
+
+import com.cedarsolutions.dao.IDaoTransaction;
+import com.cedarsolutions.dao.domain.PaginatedResults;
+import com.cedarsolutions.dao.domain.Pagination;
+import com.cedarsolutions.exception.DaoException;
+import com.cedarsolutions.exception.InvalidDataException;
+import com.cedarsolutions.exception.NotConfiguredException;
+import com.cedarsolutions.santa.server.assignment.PairingHistory;
+import com.cedarsolutions.santa.server.dao.IExchangeDao;
+import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeCriteria;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSection;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantPage;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+
+/**
+ * Exchange DAO that keeps recently-read exchanges in an ExchangeCache, in front of another exchange DAO.
+ *
+ * <p>
+ * Reading a whole exchange is a read-through: the exchange comes out of the
+ * cache if it's there, and otherwise is read from the other DAO and cached.
+ * Reads of just the header or a page of participants are answered from the
+ * cache when possible, but don't fill it, since the other DAO can read those
+ * without reading the whole exchange.  Reads within a transaction, searches
+ * pairing history and notification progress always go straight to the other DAO.  Updates and
+ * deletes invalidate the exchange once the other DAO is done with it.
+ * </p>
+ *
+ * <p>
+ * For the transactional versions of update and delete, the change isn't
+ * visible until the caller commits, so the exchange is invalidated then
+ * instead.  That only works if the cache can see the commit, so those
+ * methods require a transaction that was passed through wrapTransaction().
+ * The version counters that decide whether a cached exchange is current
+ * live in memcache, so a change made through any instance of the
+ * application is seen by every other instance.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class CachingExchangeDao implements IExchangeDao, InitializingBean {
+
+    /** Exchange DAO to read from and write to. */
+    private IExchangeDao exchangeDao;
+
+    /** Maximum estimated size of the cached exchanges, in bytes. */
+    private long maxSize = ExchangeCache.DEFAULT_MAX_SIZE;
+
+    /** Cache of decoded exchanges, created by afterPropertiesSet(). */
+    private ExchangeCache exchangeCache;
+
+    /**
+     * Invoked by a bean factory after it has set all bean properties.
+     * @throws NotConfiguredException In the event of misconfiguration.
+     */
+    @Override
+    public void afterPropertiesSet() throws NotConfiguredException {
+        if (this.exchangeDao == null) {
+            throw new NotConfiguredException("CachingExchangeDao is not properly configured.");
+        }
+
+        if (this.maxSize < 1) {
+            throw new NotConfiguredException("CachingExchangeDao: maximum size must be at least 1");
+        }
+
+        this.exchangeCache = new ExchangeCache(this.maxSize);
+    }
+
+    /**
+     * Wrap a transaction, so that exchanges updated or deleted within it are invalidated when it commits.
+     * Commit or roll back the wrapper rather than the original transaction.
+     * @param transaction  Transaction to wrap, which the other DAO must accept
+     * @return Wrapped transaction, which any transactional method on this DAO accepts.
+     */
+    public IDaoTransaction wrapTransaction(IDaoTransaction transaction) {
+        return new CachingTransaction(this.exchangeCache, transaction);
+    }
+
+    /**
+     * Insert an exchange into the back-end data store.
+     * @param exchange  Exchange to insert
+     * @return Id for this exchange, auto-generated upon insert.
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public Long insertExchange(Exchange exchange) throws DaoException {
+        return this.exchangeDao.insertExchange(exchange);
+    }
+
+    /**
+     * Insert an exchange into the back-end data store (transactional).
+     * @param transaction Transaction to operate within
+     * @param exchange    Exchange to insert
+     * @return Id for this exchange, auto-generated upon insert.
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public Long insertExchange(IDaoTransaction transaction, Exchange exchange) throws DaoException {
+        return this.exchangeDao.insertExchange(unwrap(transaction), exchange);
+    }
+
+    /**
+     * Retrieve an exchange by exchange id, from the cache if possible.
+     * @param exchangeId  Exchange id, as from insertExchange()
+     * @return Exchange retrieved from the database, possibly null.
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public Exchange retrieveExchange(Long exchangeId) throws DaoException {
+        if (exchangeId == null) {
+            return this.exchangeDao.retrieveExchange(exchangeId);
+        }
+
+        long version = this.exchangeCache.getVersion(exchangeId);
+        Exchange exchange = this.exchangeCache.get(exchangeId, version);
+        if (exchange == null) {
+            exchange = this.exchangeDao.retrieveExchange(exchangeId);
+            if (exchange != null) {
+                this.exchangeCache.put(exchangeId, version, exchange);
+            }
+        }
+
+        return exchange;
+    }
+
+    /**
+     * Retrieve an exchange by exchange id (transactional).
+     * The cache is not used, so the exchange is consistent with the rest of the transaction.
+     * @param transaction Transaction to operate within
+     * @param exchangeId  Exchange id, as from insertExchange()
+     * @return Exchange retrieved from the database, possibly null.
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public Exchange retrieveExchange(IDaoTransaction transaction, Long exchangeId) throws DaoException {
+        return this.exchangeDao.retrieveExchange(unwrap(transaction), exchangeId);
+    }
+
+    /**
+     * Retrieve an exchange by exchange id, including only some of its sections.
+     * Sections that are left out come back empty (participants) or null (assignments).
+     * @param exchangeId  Exchange id, as from insertExchange()
+     * @param sections    Sections to include, possibly empty to get just the header
+     * @return Exchange retrieved from the database, possibly null.
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public Exchange retrieveExchange(Long exchangeId, Set<ExchangeSection> sections) throws DaoException {
+        if (exchangeId == null) {
+            return this.exchangeDao.retrieveExchange(exchangeId, sections);
+        }
+
+        if (sections.isEmpty()) {
+            // The header is cheap to read, so it's not worth filling the cache with the whole exchange
+            Exchange header = this.exchangeCache.getHeader(exchangeId, this.exchangeCache.getVersion(exchangeId));
+            return header != null ? header : this.exchangeDao.retrieveExchange(exchangeId, sections);
+        }
+
+        // Any other section means reading every chunk anyway, so read (and cache) the whole exchange
+        Exchange exchange = this.retrieveExchange(exchangeId);
+        if (exchange == null) {
+            return null;
+        }
+
+        if (!sections.contains(ExchangeSection.PARTICIPANTS)) {
+            exchange.setParticipants(new ParticipantSet());
+        }
+
+        if (!sections.contains(ExchangeSection.ASSIGNMENTS)) {
+            exchange.setAssignments(null);
+        }
+
+        exchange.clearChanges();
+        return exchange;
+    }
+
+    /**
+     * Retrieve a page of an exchange's participants, from the cache if possible.
+     * @param userId      User which must own the exchange
+     * @param exchangeId  Exchange id, as from insertExchange()
+     * @param start       Position of the first participant to retrieve
+     * @param count       Maximum number of participants to retrieve
+     * @return Page of participants, or null if the exchange does not exist or is not owned by the user.
+     * @throws InvalidDataException If the start or count is invalid
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public ParticipantPage retrieveParticipants(String userId, Long exchangeId, int start, int count)
+    throws InvalidDataException, DaoException {
+        if (exchangeId != null && start >= 0 && count >= 1) {
+            // An exchange owned by someone else is a miss here, and the delegate rejects it
+            ParticipantPage page = this.exchangeCache.getParticipantPage(exchangeId, this.exchangeCache.getVersion(exchangeId), userId, start, count);
+            if (page != null) {
+                return page;
+            }
+        }
+
+        return this.exchangeDao.retrieveParticipants(userId, exchangeId, start, count);
+    }
+
+    /**
+     * Delete an exchange by exchange id.
+     * @param exchangeId  Exchange id, as from insertExchange()
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public void deleteExchange(Long exchangeId) throws DaoException {
+        try {
+            this.exchangeDao.deleteExchange(exchangeId);
+        } finally {
+            this.invalidate(exchangeId);  // even on failure, since we can't tell how far the delete got
+        }
+    }
+
+    /**
+     * Delete an exchange by exchange id (transactional).
+     * The exchange is invalidated when the transaction commits.
+     * @param transaction Transaction to operate within, as from wrapTransaction()
+     * @param exchangeId  Exchange id, as from insertExchange()
+     * @throws DaoException If the operation fails, or if the transaction was not wrapped.
+     */
+    @Override
+    public void deleteExchange(IDaoTransaction transaction, Long exchangeId) throws DaoException {
+        CachingTransaction caching = checkTransactionType(transaction);
+        caching.invalidateOnCommit(exchangeId);  // even on failure, in case the caller commits anyway
+        this.exchangeDao.deleteExchange(caching.getTransaction(), exchangeId);
+    }
+
+    /**
+     * Delete the passed-in exchange.
+     * @param exchange  Exchange to delete
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public void deleteExchange(Exchange exchange) throws DaoException {
+        try {
+            this.exchangeDao.deleteExchange(exchange);
+        } finally {
+            this.invalidate(exchange.getId());
+        }
+    }
+
+    /**
+     * Update the passed-in exchange.
+     * @param exchange  Exchange to update
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public void updateExchange(Exchange exchange) throws DaoException {
+        try {
+            this.exchangeDao.updateExchange(exchange);
+        } finally {
+            this.invalidate(exchange.getId());  // even on failure, since we can't tell how far the update got
+        }
+    }
+
+    /**
+     * Update the passed-in exchange (transactional).
+     * The exchange is invalidated when the transaction commits.
+     * @param transaction Transaction to operate within, as from wrapTransaction()
+     * @param exchange    Exchange to update
+     * @throws DaoException If the operation fails, or if the transaction was not wrapped.
+     */
+    @Override
+    public void updateExchange(IDaoTransaction transaction, Exchange exchange) throws DaoException {
+        CachingTransaction caching = checkTransactionType(transaction);
+        caching.invalidateOnCommit(exchange.getId());  // even on failure, in case the caller commits anyway
+        this.exchangeDao.updateExchange(caching.getTransaction(), exchange);
+    }
+
+    /**
+     * Apply a page of changes to a stored exchange, as described for Exchange.applyChanges().
+     * @param userId        User which must own the exchange
+     * @param header        Exchange whose fields should be applied, identified by its id
+     * @param participants  Participants that were added or replaced, possibly null
+     * @param removedIds    Ids of the participants that were removed, possibly null
+     * @return Header of the updated exchange, or null if the exchange does not exist or is not owned by the user.
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public Exchange updateExchange(String userId, Exchange header, List<Participant> participants, List<Long> removedIds) throws DaoException {
+        try {
+            return this.exchangeDao.updateExchange(userId, header, participants, removedIds);
+        } finally {
+            this.invalidate(header.getId());  // even on failure, since we can't tell how far the update got
+        }
+    }
+
+    /**
+     * Retrieve the exchanges that match search criteria.
+     * See documentation on the criteria class for information on how criteria are applied.
+     * @param criteria  Search criteria to apply
+     * @return Iterator for the results.
+     * @throws InvalidDataException If the criteria is invalid
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public Iterator<Exchange> retrieveExchanges(ExchangeCriteria criteria)
+    throws InvalidDataException, DaoException {
+        return this.exchangeDao.retrieveExchanges(criteria);
+    }
+
+    /**
+     * Retrieve the exchanges that match search criteria.
+     * See documentation on the criteria class for information on how criteria are applied.
+     * @param criteria    Search criteria to apply
+     * @param pagination  Pagination to use
+     * @return Paginated results.
+     * @throws InvalidDataException If the criteria is invalid
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public PaginatedResults<Exchange> retrieveExchanges(ExchangeCriteria criteria, Pagination pagination)
+    throws InvalidDataException, DaoException {
+        return this.exchangeDao.retrieveExchanges(criteria, pagination);
+    }
+
+    /**
+     * Retrieve summaries of the exchanges that match search criteria.
+     * See documentation on the criteria class for information on how criteria are applied.
+     * @param criteria    Search criteria to apply
+     * @param pagination  Pagination to use
+     * @return Paginated results.
+     * @throws InvalidDataException If the criteria is invalid
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public PaginatedResults<ExchangeSummary> retrieveExchangeSummaries(ExchangeCriteria criteria, Pagination pagination)
+    throws InvalidDataException, DaoException {
+        return this.exchangeDao.retrieveExchangeSummaries(criteria, pagination);
+    }
+
+    /**
+     * Retrieve the giver/receiver pairings from a set of prior exchanges.
+     * Exchanges that do not exist or are not owned by the user are ignored.
+     * @param userId       User which must own the exchanges
+     * @param exchangeIds  Ids of the prior exchanges
+     * @return Pairing history for the exchanges, possibly empty.
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public PairingHistory retrievePairingHistory(String userId, List<Long> exchangeIds) throws DaoException {
+        return this.exchangeDao.retrievePairingHistory(userId, exchangeIds);
+    }
+
+    /**
+     * Claim a chunk of an exchange's notifications, so that only one task sends it.
+     * @param exchangeId      Exchange id, as from insertExchange()
+     * @param assignmentSeed  Seed of the assignments being sent, so a later send starts over
+     * @param chunk           Index of the chunk
+     * @return Position within the chunk to start sending from, or -1 if the chunk is already claimed.
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public int claimNotificationChunk(Long exchangeId, Long assignmentSeed, int chunk) throws DaoException {
+        return this.exchangeDao.claimNotificationChunk(exchangeId, assignmentSeed, chunk);
+    }
+
+    /**
+     * Release a claimed chunk of an exchange's notifications.
+     * @param exchangeId      Exchange id, as from insertExchange()
+     * @param assignmentSeed  Seed of the assignments being sent
+     * @param chunk           Index of the chunk
+     * @param next            Position within the chunk of the first notification that was not sent
+     * @param complete        Whether every notification in the chunk was sent
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public void releaseNotificationChunk(Long exchangeId, Long assignmentSeed, int chunk, int next, boolean complete) throws DaoException {
+        this.exchangeDao.releaseNotificationChunk(exchangeId, assignmentSeed, chunk, next, complete);
+    }
+
+    /** Invalidate an exchange in the cache. */
+    private void invalidate(Long exchangeId) {
+        if (exchangeId != null) {
+            this.exchangeCache.invalidate(exchangeId);
+        }
+    }
+
+    /** Check that a transaction was wrapped by wrapTransaction(), so its commit can be seen. */
+    private static CachingTransaction checkTransactionType(IDaoTransaction transaction) throws DaoException {
+        if (!(transaction instanceof CachingTransaction)) {
+            throw new DaoException("CachingExchangeDao: transaction must come from wrapTransaction()");
+        }
+
+        return (CachingTransaction) transaction;
+    }
+
+    /** Get the transaction to hand to the other DAO, unwrapping it if necessary. */
+    private static IDaoTransaction unwrap(IDaoTransaction transaction) {
+        if (transaction instanceof CachingTransaction) {
+            return ((CachingTransaction) transaction).getTransaction();
+        }
+
+        return transaction;
+    }
+
+    /** Hit, miss, eviction and invalidation counts for the cache. */
+    public CacheStatistics getStatistics() {
+        return this.exchangeCache.getStatistics();
+    }
+
+    public IExchangeDao getExchangeDao() {
+        return this.exchangeDao;
+    }
+
+    public void setExchangeDao(IExchangeDao exchangeDao) {
+        this.exchangeDao = exchangeDao;
+    }
+
+    public long getMaxSize() {
+        return this.maxSize;
+    }
+
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /** Transaction that invalidates the exchanges changed within it once it commits. */
+    protected static class CachingTransaction implements IDaoTransaction {
+
+        /** Cache to invalidate the exchanges in. */
+        private final ExchangeCache exchangeCache;
+
+        /** Transaction that is wrapped. */
+        private final IDaoTransaction transaction;
+
+        /** Ids of the exchanges to invalidate on commit. */
+        private final Set<Long> exchangeIds = new LinkedHashSet<Long>();
+
+        /**
+         * Create a transaction.
+         * @param exchangeCache  Cache to invalidate the exchanges in
+         * @param transaction    Transaction to wrap
+         */
+        protected CachingTransaction(ExchangeCache exchangeCache, IDaoTransaction transaction) {
+            this.exchangeCache = exchangeCache;
+            this.transaction = transaction;
+        }
+
+        /** Commit the transaction, and then invalidate the exchanges changed within it. */
+        @Override
+        public void commit() {
+            try {
+                this.transaction.commit();
+            } finally {
+                this.invalidateAll();  // even on failure, since we can't tell whether the commit went through
+            }
+        }
+
+        /** Roll back the transaction; nothing was changed, so nothing needs to be invalidated. */
+        @Override
+        public void rollback() {
+            this.transaction.rollback();
+            this.exchangeIds.clear();  // after a commit, these are already gone
+        }
+
+        /** Invalidate an exchange when the transaction commits. */
+        public void invalidateOnCommit(Long exchangeId) {
+            if (exchangeId != null) {
+                this.exchangeIds.add(exchangeId);
+            }
+        }
+
+        /** Get the transaction that is wrapped. */
+        public IDaoTransaction getTransaction() {
+            return this.transaction;
+        }
+
+        /** Get the ids of the exchanges that will be invalidated on commit. */
+        public Set<Long> getExchangeIds() {
+            return this.exchangeIds;
+        }
+
+        /** Invalidate every exchange changed within the transaction. */
+        private void invalidateAll() {
+            for (Long exchangeId : this.exchangeIds) {
+                this.exchangeCache.invalidate(exchangeId);
+            }
+
+            this.exchangeIds.clear();
+        }
+
+    }
+
+}
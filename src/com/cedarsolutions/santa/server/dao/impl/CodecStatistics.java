@@ -0,0 +1,93 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe counters that track how often, and for how long, stored data is encoded and decoded.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class CodecStatistics {
+
+    /** Number of encode operations. */
+    private final AtomicLong encodeCount = new AtomicLong();
+
+    /** Total time spent encoding, in nanoseconds. */
+    private final AtomicLong encodeNanos = new AtomicLong();
+
+    /** Number of decode operations. */
+    private final AtomicLong decodeCount = new AtomicLong();
+
+    /** Total time spent decoding, in nanoseconds. */
+    private final AtomicLong decodeNanos = new AtomicLong();
+
+    /**
+     * Record an encode operation.
+     * @param start  Start time, as from System.nanoTime()
+     */
+    public void recordEncode(long start) {
+        this.encodeCount.incrementAndGet();
+        this.encodeNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * Record a decode operation.
+     * @param start  Start time, as from System.nanoTime()
+     */
+    public void recordDecode(long start) {
+        this.decodeCount.incrementAndGet();
+        this.decodeNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    /** Reset all of the counters to zero. */
+    public void reset() {
+        this.encodeCount.set(0);
+        this.encodeNanos.set(0);
+        this.decodeCount.set(0);
+        this.decodeNanos.set(0);
+    }
+
+    public long getEncodeCount() {
+        return this.encodeCount.get();
+    }
+
+    public long getEncodeNanos() {
+        return this.encodeNanos.get();
+    }
+
+    public long getDecodeCount() {
+        return this.decodeCount.get();
+    }
+
+    public long getDecodeNanos() {
+        return this.decodeNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return "encoded " + this.getEncodeCount() + " in " + (this.getEncodeNanos() / 1000000) + "ms, "
+               + "decoded " + this.getDecodeCount() + " in " + (this.getDecodeNanos() / 1000000) + "ms";
+    }
+
+}
@@ -0,0 +1,321 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeDelta;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantPage;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+
+/**
+ * Bounded cache of decoded exchanges, keyed by exchange id and version.
+ *
+ * <p>
+ * Each exchange id has a version counter, kept in memcache so that every
+ * instance of the application sees the same one.  A decoded exchange is
+ * stored in memory along with the version that was current when it was
+ * read, and is only returned while that version is still current.
+ * Invalidating an exchange moves its counter forward, so nothing stored
+ * under an older version is ever returned again, by this instance or any
+ * other.  That includes an exchange that was still being read from the
+ * datastore when the invalidation happened: put() ignores it, because its
+ * version is no longer current.  A counter that memcache has evicted comes
+ * back starting from a new random value, so versions are not reused.  If
+ * memcache can't be reached, nothing is returned from the cache.
+ * </p>
+ *
+ * <p>
+ * The exchanges are kept in least-recently-used order, and the oldest are
+ * evicted once their estimated size adds up to more than the maximum.
+ * Exchanges are copied on the way in and on the way out, so callers may
+ * change the exchanges they get back.  Callers that only need the header or
+ * a page of participants can get just that, so only that part is copied.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class ExchangeCache {
+
+    /** Default maximum estimated size of the cached exchanges, in bytes. */
+    public static final long DEFAULT_MAX_SIZE = 16L * 1024L * 1024L;
+
+    /** Memcache namespace that the version counters are kept in. */
+    public static final String NAMESPACE = "ExchangeCache";
+
+    /** Source of the starting values for new version counters. */
+    private static final Random RANDOM = new Random();
+
+    /** Maximum estimated size of the cached exchanges, in bytes. */
+    private final long maxSize;
+
+    /** Memcache service holding the current version of each exchange id. */
+    private final MemcacheService memcache;
+
+    /** Decoded exchanges, keyed by id, in access order. */
+    private final Map<Long, CachedExchange> exchanges;
+
+    /** Hit, miss, eviction and invalidation counts. */
+    private final CacheStatistics statistics = new CacheStatistics();
+
+    /** Estimated size of the cached exchanges, in bytes. */
+    private long size;
+
+    /** Create a cache with the default maximum size. */
+    public ExchangeCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Create a cache.
+     * @param maxSize  Maximum estimated size of the cached exchanges in bytes, at least 1
+     */
+    public ExchangeCache(long maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be at least 1");
+        }
+
+        this.maxSize = maxSize;
+        this.memcache = MemcacheServiceFactory.getMemcacheService(NAMESPACE);
+        this.exchanges = new LinkedHashMap<Long, CachedExchange>(16, 0.75f, true);
+    }
+
+    /**
+     * Get the current version of an exchange, to use with get() and put().
+     * @param exchangeId  Id of the exchange
+     * @return Current version of the exchange.
+     */
+    public long getVersion(Long exchangeId) {
+        Long version = (Long) this.memcache.get(exchangeId);
+        if (version == null) {
+            version = this.memcache.increment(exchangeId, 1L, createInitialVersion());
+            if (version == null) {
+                return createInitialVersion();  // memcache isn't available, so use a version that's never current
+            }
+        }
+
+        return version;
+    }
+
+    /**
+     * Get a copy of a cached exchange.
+     * @param exchangeId  Id of the exchange
+     * @param version     Version of the exchange, as from getVersion()
+     * @return Copy of the cached exchange, or null if it is not cached at this version.
+     */
+    public Exchange get(Long exchangeId, long version) {
+        Exchange cached = this.lookup(exchangeId, version);
+        return cached == null ? null : new Exchange(cached);
+    }
+
+    /**
+     * Get a copy of a cached exchange, without its participants and assignments.
+     * The participants come back empty and the assignments come back null.
+     * @param exchangeId  Id of the exchange
+     * @param version     Version of the exchange, as from getVersion()
+     * @return Copy of the cached exchange's header, or null if it is not cached at this version.
+     */
+    public Exchange getHeader(Long exchangeId, long version) {
+        Exchange cached = this.lookup(exchangeId, version);
+        if (cached == null) {
+            return null;
+        }
+
+        Exchange header = cached.copyHeader();
+        header.clearChanges();
+        return header;
+    }
+
+    /**
+     * Get a page of a cached exchange's participants, copying only the participants on the page.
+     * @param exchangeId  Id of the exchange
+     * @param version     Version of the exchange, as from getVersion()
+     * @param userId      User which must own the exchange
+     * @param start       Position of the first participant to retrieve, at least 0
+     * @param count       Maximum number of participants to retrieve, at least 1
+     * @return Page of participants, or null if the exchange is not cached at this version or is not owned by the user.
+     */
+    public ParticipantPage getParticipantPage(Long exchangeId, long version, String userId, int start, int count) {
+        Exchange cached = this.lookup(exchangeId, version);
+        if (cached == null || userId == null || !userId.equals(cached.getUserId())) {
+            return null;
+        }
+
+        ParticipantSet participants = cached.getParticipants();
+        ParticipantSet copies = new ParticipantSet();
+        for (int index = start; index < Math.min(participants.size(), start + count); index++) {
+            copies.add(new Participant(participants.get(index)));
+        }
+
+        return ExchangeDao.createParticipantPage(exchangeId, copies, start, participants.size(), start, count);
+    }
+
+    /**
+     * Cache a copy of an exchange, if the version is still current.
+     * @param exchangeId  Id of the exchange
+     * @param version     Version that was current before the exchange was read, as from getVersion()
+     * @param exchange    Exchange to cache
+     * @return True if the exchange was cached, false if it has been invalidated since or is too large to cache.
+     */
+    public boolean put(Long exchangeId, long version, Exchange exchange) {
+        Long current = (Long) this.memcache.get(exchangeId);
+        if (current == null || current.longValue() != version) {
+            return false;
+        }
+
+        Exchange copy = new Exchange(exchange);
+        copy.clearChanges();
+        long estimatedSize = ExchangeDelta.estimateSize(copy);
+        if (estimatedSize > this.maxSize) {
+            return false;
+        }
+
+        // If it's invalidated from here on, the version no longer matches, so it's never returned
+        synchronized (this) {
+            this.remove(exchangeId);
+            this.exchanges.put(exchangeId, new CachedExchange(version, copy, estimatedSize));
+            this.size += estimatedSize;
+            this.evict();
+            return true;
+        }
+    }
+
+    /**
+     * Invalidate an exchange, so it is no longer returned at any version that was handed out before.
+     * @param exchangeId  Id of the exchange
+     */
+    public void invalidate(Long exchangeId) {
+        this.memcache.increment(exchangeId, 1L, createInitialVersion());
+
+        synchronized (this) {
+            this.remove(exchangeId);
+        }
+
+        this.statistics.recordInvalidation();
+    }
+
+    /** Look up a cached exchange, which must not be changed, recording a hit or a miss. */
+    private Exchange lookup(Long exchangeId, long version) {
+        Exchange cached = null;
+        synchronized (this) {
+            CachedExchange entry = this.exchanges.get(exchangeId);
+            if (entry != null) {
+                if (entry.getVersion() == version) {
+                    cached = entry.getExchange();
+                } else {
+                    this.remove(exchangeId);  // invalidated, most likely by some other instance
+                }
+            }
+        }
+
+        // Cached exchanges are never changed once stored, so callers can copy them outside the lock
+        if (cached == null) {
+            this.statistics.recordMiss();
+        } else {
+            this.statistics.recordHit();
+        }
+
+        return cached;
+    }
+
+    /** Remove an exchange from the cache, if it's there; the caller must hold the lock. */
+    private void remove(Long exchangeId) {
+        CachedExchange entry = this.exchanges.remove(exchangeId);
+        if (entry != null) {
+            this.size -= entry.getSize();
+        }
+    }
+
+    /** Evict the least-recently-used exchanges until the cache fits; the caller must hold the lock. */
+    private void evict() {
+        Iterator<CachedExchange> iterator = this.exchanges.values().iterator();
+        while (this.size > this.maxSize && iterator.hasNext()) {
+            this.size -= iterator.next().getSize();
+            iterator.remove();
+            this.statistics.recordEviction();
+        }
+    }
+
+    /** Get the number of exchanges in the cache. */
+    public synchronized int size() {
+        return this.exchanges.size();
+    }
+
+    /** Get the estimated size of the cached exchanges, in bytes. */
+    public synchronized long getSize() {
+        return this.size;
+    }
+
+    public long getMaxSize() {
+        return this.maxSize;
+    }
+
+    public CacheStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /** Create a starting value for a version counter, well away from any other counter's values. */
+    private static long createInitialVersion() {
+        return RANDOM.nextLong() >>> 2;  // leaves room to count up without overflowing
+    }
+
+    /** A decoded exchange, with the version it was read at and its estimated size. */
+    private static class CachedExchange {
+
+        /** Version that was current when the exchange was read. */
+        private final long version;
+
+        /** Decoded exchange, which must not be changed. */
+        private final Exchange exchange;
+
+        /** Estimated size of the exchange, in bytes. */
+        private final long size;
+
+        CachedExchange(long version, Exchange exchange, long size) {
+            this.version = version;
+            this.exchange = exchange;
+            this.size = size;
+        }
+
+        public long getVersion() {
+            return this.version;
+        }
+
+        public Exchange getExchange() {
+            return this.exchange;
+        }
+
+        public long getSize() {
+            return this.size;
+        }
+
+    }
+
+}
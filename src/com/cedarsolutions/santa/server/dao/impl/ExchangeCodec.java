@@ -0,0 +1,743 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+
+import com.cedarsolutions.exception.CedarRuntimeException;
+import com.cedarsolutions.santa.shared.domain.exchange.Assignment;
+import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
+import com.cedarsolutions.santa.shared.domain.exchange.ConflictGroup;
+import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeState;
+import com.cedarsolutions.santa.shared.domain.exchange.Organizer;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+import com.cedarsolutions.santa.shared.domain.exchange.PriorPairingMode;
+import com.cedarsolutions.santa.shared.domain.exchange.TemplateConfig;
+import com.cedarsolutions.shared.domain.email.EmailFormat;
+
+/**
+ * Compact, versioned binary encoding for exchanges and participant chunks, as stored in GAE's datastore.
+ *
+ * <p>
+ * Encoded data starts with a two-byte magic number, a version byte and a
+ * byte that says whether an exchange or a chunk follows.  After that, the
+ * fields are written in a fixed order.  Strings are length-prefixed UTF-8,
+ * and values that may be null are preceded by a presence flag.  Each
+ * participant is written once.  An assignment refers to its giver and
+ * receiver by position in the participant list, as long as its copy of the
+ * participant matches the one in the list; otherwise (for instance, if the
+ * participant was edited after assignments were generated) it carries its
+ * own copy.  On the way back in, assignments share the participant objects
+ * from the list instead of getting copies of their own.
+ * </p>
+ *
+ * <p>
+ * Rows are only rewritten when an exchange is saved, so the decoder must be
+ * able to read every version ever written.  To change the layout, bump
+ * VERSION and teach the decoder the new layout alongside the old ones.
+ * Data saved as XML by even older versions is read via decodeXml().
+ * </p>
+ *
+ * <p>
+ * Encoded data can optionally be compressed with deflate.  Compressed data
+ * starts with its own magic number followed by the uncompressed length.
+ * Data below the compression threshold is left alone, since it is not worth
+ * the effort.  Decoding checks the magic number, so compressed and
+ * uncompressed data can both be decoded.
+ * </p>
+ *
+ * <p>
+ * All of these methods are safe to call from concurrent requests.  The time
+ * spent in them is tracked by the statistics from getStatistics().
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public final class ExchangeCodec {
+
+    /** Current version of the encoding. */
+    public static final int VERSION = 1;
+
+    /** Compression threshold that disables compression. */
+    public static final int NO_COMPRESSION = -1;
+
+    /** Default compression threshold, in bytes. */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+
+    /** Magic number that starts all encoded data. */
+    private static final byte[] MAGIC = { 'S', 'X' };
+
+    /** Magic number that starts compressed encoded data. */
+    private static final byte[] COMPRESSED_MAGIC = { 'S', 'Z' };
+
+    /** Marks an encoded exchange. */
+    private static final byte EXCHANGE = 'E';
+
+    /** Marks an encoded participant chunk. */
+    private static final byte CHUNK = 'C';
+
+    /** Participant reference for a null participant. */
+    private static final int NULL_REFERENCE = -1;
+
+    /** Participant reference for a participant whose copy follows inline. */
+    private static final int INLINE_REFERENCE = -2;
+
+    /** Statistics for all encode and decode operations. */
+    private static final CodecStatistics STATISTICS = new CodecStatistics();
+
+    /** Utility class, so there is no public constructor. */
+    private ExchangeCodec() {
+    }
+
+    /** Get statistics for all encode and decode operations since startup. */
+    public static CodecStatistics getStatistics() {
+        return STATISTICS;
+    }
+
+    /**
+     * Whether some data was written by this codec.
+     * @param data  Data to check, possibly null
+     * @return True if the data starts with either magic number, false otherwise.
+     */
+    public static boolean isEncoded(byte[] data) {
+        return startsWith(data, MAGIC) || startsWith(data, COMPRESSED_MAGIC);
+    }
+
+    /**
+     * Whether some data was written by this codec and compressed.
+     * @param data  Data to check, possibly null
+     * @return True if the data starts with the compressed magic number, false otherwise.
+     */
+    public static boolean isCompressed(byte[] data) {
+        return startsWith(data, COMPRESSED_MAGIC);
+    }
+
+    /**
+     * Encode an exchange, without compression.
+     * @param exchange  Exchange to encode
+     * @return Encoded exchange.
+     */
+    public static byte[] encode(Exchange exchange) {
+        return encode(exchange, NO_COMPRESSION);
+    }
+
+    /**
+     * Encode an exchange, compressing it if it's large enough.
+     * @param exchange              Exchange to encode
+     * @param compressionThreshold  Minimum size to compress, in bytes, or NO_COMPRESSION
+     * @return Encoded exchange.
+     */
+    public static byte[] encode(Exchange exchange, int compressionThreshold) {
+        long start = System.nanoTime();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            writeHeader(output, EXCHANGE);
+            writeExchange(output, exchange);
+            output.flush();
+            return compress(bytes.toByteArray(), compressionThreshold);
+        } catch (IOException e) {
+            throw new CedarRuntimeException("Failed to encode exchange: " + e.getMessage(), e);
+        } finally {
+            STATISTICS.recordEncode(start);
+        }
+    }
+
+    /**
+     * Encode a participant chunk, without compression.
+     * @param chunk  Chunk to encode
+     * @return Encoded chunk.
+     */
+    public static byte[] encode(ParticipantChunk chunk) {
+        return encode(chunk, NO_COMPRESSION);
+    }
+
+    /**
+     * Encode a participant chunk, compressing it if it's large enough.
+     * @param chunk                 Chunk to encode
+     * @param compressionThreshold  Minimum size to compress, in bytes, or NO_COMPRESSION
+     * @return Encoded chunk.
+     */
+    public static byte[] encode(ParticipantChunk chunk, int compressionThreshold) {
+        long start = System.nanoTime();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            writeHeader(output, CHUNK);
+            ParticipantSet participants = writeParticipants(output, chunk.getParticipants());
+            writeAssignments(output, chunk.getAssignments(), participants);
+            output.flush();
+            return compress(bytes.toByteArray(), compressionThreshold);
+        } catch (IOException e) {
+            throw new CedarRuntimeException("Failed to encode participant chunk: " + e.getMessage(), e);
+        } finally {
+            STATISTICS.recordEncode(start);
+        }
+    }
+
+    /**
+     * Decode an exchange.
+     * @param data  Data from encode(Exchange)
+     * @return Decoded exchange.
+     * @throws CedarRuntimeException If the data is not a valid encoded exchange.
+     */
+    public static Exchange decodeExchange(byte[] data) {
+        long start = System.nanoTime();
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(decompress(data)));
+            readHeader(input, EXCHANGE);
+            return readExchange(input);
+        } catch (IOException e) {
+            throw new CedarRuntimeException("Failed to decode exchange: " + e.getMessage(), e);
+        } finally {
+            STATISTICS.recordDecode(start);
+        }
+    }
+
+    /**
+     * Decode a participant chunk.
+     * @param data  Data from encode(ParticipantChunk)
+     * @return Decoded chunk.
+     * @throws CedarRuntimeException If the data is not a valid encoded chunk.
+     */
+    public static ParticipantChunk decodeChunk(byte[] data) {
+        long start = System.nanoTime();
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(decompress(data)));
+            readHeader(input, CHUNK);
+            ParticipantSet participants = readParticipants(input);
+            AssignmentSet assignments = readAssignments(input, participants);
+            return new ParticipantChunk(participants, assignments);
+        } catch (IOException e) {
+            throw new CedarRuntimeException("Failed to decode participant chunk: " + e.getMessage(), e);
+        } finally {
+            STATISTICS.recordDecode(start);
+        }
+    }
+
+    /**
+     * Decode XML saved by older versions, without validating it.
+     * @param type  Type of the object, either Exchange or ParticipantChunk
+     * @param xml   XML to decode
+     * @return Decoded object.
+     * @throws CedarRuntimeException If the XML cannot be decoded.
+     */
+    public static <T> T decodeXml(Class<T> type, String xml) {
+        long start = System.nanoTime();
+        try {
+            Object result = XmlHolder.UNMARSHALLERS.get().unmarshal(new StringReader(xml));
+            return type.cast(result);
+        } catch (JAXBException e) {
+            throw new CedarRuntimeException("Failed to decode XML: " + e.getMessage(), e);
+        } catch (ClassCastException e) {
+            throw new CedarRuntimeException("Failed to decode XML: " + e.getMessage(), e);
+        } finally {
+            STATISTICS.recordDecode(start);
+        }
+    }
+
+    /**
+     * Holds the JAXB context, which is built only once, the first time any XML needs to be decoded.
+     * The context is thread-safe but unmarshallers are not, so each thread gets its own unmarshaller.
+     */
+    private static final class XmlHolder {
+
+        /** JAXB context for all types that were ever stored as XML. */
+        private static final JAXBContext CONTEXT = createContext();
+
+        /** Unmarshaller for each thread, reused from call to call. */
+        private static final ThreadLocal<Unmarshaller> UNMARSHALLERS = new ThreadLocal<Unmarshaller>() {
+            @Override
+            protected Unmarshaller initialValue() {
+                try {
+                    return CONTEXT.createUnmarshaller();
+                } catch (JAXBException e) {
+                    throw new CedarRuntimeException("Failed to create unmarshaller: " + e.getMessage(), e);
+                }
+            }
+        };
+
+        /** Create the JAXB context. */
+        private static JAXBContext createContext() {
+            try {
+                return JAXBContext.newInstance(Exchange.class, ParticipantChunk.class);
+            } catch (JAXBException e) {
+                throw new CedarRuntimeException("Failed to create JAXB context: " + e.getMessage(), e);
+            }
+        }
+
+    }
+
+    /** Whether some data starts with a magic number. */
+    private static boolean startsWith(byte[] data, byte[] magic) {
+        return data != null && data.length > magic.length && data[0] == magic[0] && data[1] == magic[1];
+    }
+
+    /**
+     * Compress encoded data, if it's large enough and compression actually makes it smaller.
+     * @param data       Encoded data
+     * @param threshold  Minimum size to compress, in bytes, or NO_COMPRESSION
+     * @return Compressed data, or the original data if it was not compressed.
+     */
+    private static byte[] compress(byte[] data, int threshold) throws IOException {
+        if (threshold < 0 || data.length < threshold) {
+            return data;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 2);
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.write(COMPRESSED_MAGIC);
+        output.writeInt(data.length);
+
+        Deflater deflater = new Deflater();
+        try {
+            DeflaterOutputStream stream = new DeflaterOutputStream(output, deflater);
+            stream.write(data);
+            stream.finish();
+            stream.flush();
+        } finally {
+            deflater.end();  // releases native memory right away, rather than waiting for finalization
+        }
+
+        byte[] result = bytes.toByteArray();
+        return result.length < data.length ? result : data;
+    }
+
+    /**
+     * Decompress encoded data, if it is compressed.
+     * @param data  Encoded data, possibly compressed
+     * @return Uncompressed data.
+     */
+    private static byte[] decompress(byte[] data) throws IOException {
+        if (!isCompressed(data)) {
+            return data;
+        }
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+        input.skipBytes(COMPRESSED_MAGIC.length);
+        int length = input.readInt();
+        if (length < 0) {
+            throw new IOException("invalid uncompressed length " + length);
+        }
+
+        byte[] result = new byte[length];
+        Inflater inflater = new Inflater();
+        try {
+            new DataInputStream(new InflaterInputStream(input, inflater)).readFully(result);
+        } finally {
+            inflater.end();
+        }
+
+        return result;
+    }
+
+    /** Write the header. */
+    private static void writeHeader(DataOutputStream output, byte kind) throws IOException {
+        output.write(MAGIC);
+        output.writeByte(VERSION);
+        output.writeByte(kind);
+    }
+
+    /** Read and check the header. */
+    private static void readHeader(DataInputStream input, byte kind) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        input.readFully(magic);
+        if (magic[0] != MAGIC[0] || magic[1] != MAGIC[1]) {
+            throw new IOException("data is not in the binary exchange format");
+        }
+
+        int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("unsupported version " + version);
+        }
+
+        byte actual = input.readByte();
+        if (actual != kind) {
+            throw new IOException("expected kind " + (char) kind + " but found " + (char) actual);
+        }
+    }
+
+    /** Write an exchange's fields. */
+    private static void writeExchange(DataOutputStream output, Exchange exchange) throws IOException {
+        writeLong(output, exchange.getId());
+        writeString(output, exchange.getUserId());
+        writeString(output, exchange.getExchangeState() == null ? null : exchange.getExchangeState().name());
+        writeString(output, exchange.getName());
+        writeString(output, exchange.getDateAndTime());
+        writeString(output, exchange.getTheme());
+        writeString(output, exchange.getCost());
+        writeString(output, exchange.getExtraInfo());
+        writeOrganizer(output, exchange.getOrganizer());
+        writeTemplateConfig(output, exchange.getTemplateOverrides());
+        ParticipantSet participants = writeParticipants(output, exchange.getParticipants());
+        writeAssignments(output, exchange.getAssignments(), participants);
+        writeLong(output, exchange.getAssignmentSeed());
+        writeLongs(output, exchange.getPriorExchangeIds());
+        writeString(output, exchange.getPriorPairingMode() == null ? null : exchange.getPriorPairingMode().name());
+        writeConflictGroups(output, exchange.getConflictGroups());
+        writeInteger(output, exchange.getGiftsPerParticipant());
+    }
+
+    /** Read an exchange's fields. */
+    private static Exchange readExchange(DataInputStream input) throws IOException {
+        Exchange exchange = new Exchange();
+        exchange.setId(readLong(input));
+        exchange.setUserId(readString(input));
+        String exchangeState = readString(input);
+        exchange.setExchangeState(exchangeState == null ? null : ExchangeState.valueOf(exchangeState));
+        exchange.setName(readString(input));
+        exchange.setDateAndTime(readString(input));
+        exchange.setTheme(readString(input));
+        exchange.setCost(readString(input));
+        exchange.setExtraInfo(readString(input));
+        exchange.setOrganizer(readOrganizer(input));
+        exchange.setTemplateOverrides(readTemplateConfig(input));
+        exchange.setParticipants(readParticipants(input));
+        exchange.setAssignments(readAssignments(input, exchange.getParticipants()));
+        exchange.setAssignmentSeed(readLong(input));
+        exchange.setPriorExchangeIds(readLongs(input));
+        String priorPairingMode = readString(input);
+        exchange.setPriorPairingMode(priorPairingMode == null ? null : PriorPairingMode.valueOf(priorPairingMode));
+        exchange.setConflictGroups(readConflictGroups(input));
+        exchange.setGiftsPerParticipant(readInteger(input));
+        exchange.clearChanges();
+        return exchange;
+    }
+
+    /** Write an organizer, which may be null. */
+    private static void writeOrganizer(DataOutputStream output, Organizer organizer) throws IOException {
+        output.writeBoolean(organizer != null);
+        if (organizer != null) {
+            writeString(output, organizer.getName());
+            writeString(output, organizer.getEmailAddress());
+            writeString(output, organizer.getPhoneNumber());
+        }
+    }
+
+    /** Read an organizer, which may be null. */
+    private static Organizer readOrganizer(DataInputStream input) throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+
+        Organizer organizer = new Organizer();
+        organizer.setName(readString(input));
+        organizer.setEmailAddress(readString(input));
+        organizer.setPhoneNumber(readString(input));
+        return organizer;
+    }
+
+    /** Write a template configuration, which may be null. */
+    private static void writeTemplateConfig(DataOutputStream output, TemplateConfig config) throws IOException {
+        output.writeBoolean(config != null);
+        if (config != null) {
+            writeString(output, config.getSenderName());
+            writeString(output, config.getEmailFormat() == null ? null : config.getEmailFormat().name());
+            writeString(output, config.getTemplateGroup());
+            writeString(output, config.getTemplateName());
+        }
+    }
+
+    /** Read a template configuration, which may be null. */
+    private static TemplateConfig readTemplateConfig(DataInputStream input) throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+
+        TemplateConfig config = new TemplateConfig();
+        config.setSenderName(readString(input));
+        String emailFormat = readString(input);
+        config.setEmailFormat(emailFormat == null ? null : EmailFormat.valueOf(emailFormat));
+        config.setTemplateGroup(readString(input));
+        config.setTemplateName(readString(input));
+        return config;
+    }
+
+    /**
+     * Write a participant set, which may be null.
+     * @return The participants that were written, for use by writeAssignments().
+     */
+    private static ParticipantSet writeParticipants(DataOutputStream output, ParticipantSet participants) throws IOException {
+        output.writeBoolean(participants != null);
+        if (participants != null) {
+            output.writeInt(participants.size());
+            for (Participant participant : participants) {
+                writeParticipant(output, participant);
+            }
+        }
+
+        return participants;
+    }
+
+    /** Read a participant set, which may be null. */
+    private static ParticipantSet readParticipants(DataInputStream input) throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+
+        int size = input.readInt();
+        ParticipantSet participants = new ParticipantSet();
+        for (int i = 0; i < size; i++) {
+            participants.add(readParticipant(input));
+        }
+
+        participants.clearChanges();
+        return participants;
+    }
+
+    /** Write a participant, which may be null. */
+    private static void writeParticipant(DataOutputStream output, Participant participant) throws IOException {
+        output.writeBoolean(participant != null);
+        if (participant != null) {
+            writeLong(output, participant.getId());
+            writeString(output, participant.getName());
+            writeString(output, participant.getNickname());
+            writeString(output, participant.getEmailAddress());
+            writeTemplateConfig(output, participant.getTemplateOverrides());
+            writeLongs(output, participant.getConflictIds());
+            writeParticipants(output, participant.getLegacyConflicts());
+        }
+    }
+
+    /** Read a participant, which may be null. */
+    private static Participant readParticipant(DataInputStream input) throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+
+        Participant participant = new Participant();
+        participant.setId(readLong(input));
+        participant.setName(readString(input));
+        participant.setNickname(readString(input));
+        participant.setEmailAddress(readString(input));
+        participant.setTemplateOverrides(readTemplateConfig(input));
+        participant.setConflictIds(readLongs(input));
+        participant.setLegacyConflicts(readParticipants(input));
+        return participant;
+    }
+
+    /** Write an assignment set (which may be null), referring to participants by position where possible. */
+    private static void writeAssignments(DataOutputStream output, AssignmentSet assignments, ParticipantSet participants) throws IOException {
+        output.writeBoolean(assignments != null);
+        if (assignments != null) {
+            Map<Participant, Integer> positions = new HashMap<Participant, Integer>();
+            if (participants != null) {
+                for (int i = participants.size() - 1; i >= 0; i--) {
+                    if (participants.get(i) != null) {
+                        positions.put(participants.get(i), i);  // the first of any equal participants wins
+                    }
+                }
+            }
+
+            output.writeInt(assignments.size());
+            for (Assignment assignment : assignments) {
+                output.writeBoolean(assignment != null);
+                if (assignment != null) {
+                    writeReference(output, assignment.getGiftGiver(), positions);
+                    writeReference(output, assignment.getGiftReceiver(), positions);
+                }
+            }
+        }
+    }
+
+    /** Read an assignment set, which may be null. */
+    private static AssignmentSet readAssignments(DataInputStream input, ParticipantSet participants) throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+
+        int size = input.readInt();
+        AssignmentSet assignments = new AssignmentSet();
+        for (int i = 0; i < size; i++) {
+            if (input.readBoolean()) {
+                Participant giftGiver = readReference(input, participants);
+                Participant giftReceiver = readReference(input, participants);
+                assignments.add(new Assignment(giftGiver, giftReceiver));
+            } else {
+                assignments.add(null);
+            }
+        }
+
+        return assignments;
+    }
+
+    /** Write a reference to a participant, inlining the participant if it is not in the list. */
+    private static void writeReference(DataOutputStream output, Participant participant, Map<Participant, Integer> positions) throws IOException {
+        if (participant == null) {
+            output.writeInt(NULL_REFERENCE);
+        } else {
+            Integer position = positions.get(participant);
+            if (position != null) {
+                output.writeInt(position);
+            } else {
+                output.writeInt(INLINE_REFERENCE);
+                writeParticipant(output, participant);
+            }
+        }
+    }
+
+    /** Read a reference to a participant. */
+    private static Participant readReference(DataInputStream input, ParticipantSet participants) throws IOException {
+        int reference = input.readInt();
+        if (reference == NULL_REFERENCE) {
+            return null;
+        } else if (reference == INLINE_REFERENCE) {
+            return readParticipant(input);
+        } else if (participants != null && reference >= 0 && reference < participants.size()) {
+            return participants.get(reference);
+        } else {
+            throw new IOException("invalid participant reference " + reference);
+        }
+    }
+
+    /** Write a list of conflict groups, which may be null. */
+    private static void writeConflictGroups(DataOutputStream output, List<ConflictGroup> groups) throws IOException {
+        output.writeBoolean(groups != null);
+        if (groups != null) {
+            output.writeInt(groups.size());
+            for (ConflictGroup group : groups) {
+                output.writeBoolean(group != null);
+                if (group != null) {
+                    writeString(output, group.getName());
+                    writeLongs(output, group.getParticipantIds());
+                }
+            }
+        }
+    }
+
+    /** Read a list of conflict groups, which may be null. */
+    private static List<ConflictGroup> readConflictGroups(DataInputStream input) throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+
+        int size = input.readInt();
+        List<ConflictGroup> groups = new ArrayList<ConflictGroup>(size);
+        for (int i = 0; i < size; i++) {
+            if (input.readBoolean()) {
+                ConflictGroup group = new ConflictGroup(readString(input));
+                group.setParticipantIds(readLongs(input));
+                groups.add(group);
+            } else {
+                groups.add(null);
+            }
+        }
+
+        return groups;
+    }
+
+    /** Write a list of longs, which may be null (as may its elements). */
+    private static void writeLongs(DataOutputStream output, List<Long> values) throws IOException {
+        output.writeBoolean(values != null);
+        if (values != null) {
+            output.writeInt(values.size());
+            for (Long value : values) {
+                writeLong(output, value);
+            }
+        }
+    }
+
+    /** Read a list of longs, which may be null. */
+    private static List<Long> readLongs(DataInputStream input) throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+
+        int size = input.readInt();
+        List<Long> values = new ArrayList<Long>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readLong(input));
+        }
+
+        return values;
+    }
+
+    /** Write a long, which may be null. */
+    private static void writeLong(DataOutputStream output, Long value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeLong(value);
+        }
+    }
+
+    /** Read a long, which may be null. */
+    private static Long readLong(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readLong() : null;
+    }
+
+    /** Write an integer, which may be null. */
+    private static void writeInteger(DataOutputStream output, Integer value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeInt(value);
+        }
+    }
+
+    /** Read an integer, which may be null. */
+    private static Integer readInteger(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readInt() : null;
+    }
+
+    /** Write a string as length-prefixed UTF-8, with a length of -1 for null. */
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes("UTF-8");
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    /** Read a length-prefixed UTF-8 string. */
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+}
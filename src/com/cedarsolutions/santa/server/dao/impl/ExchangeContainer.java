@@ -22,20 +22,37 @@
  * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
 package com.cedarsolutions.santa.server.dao.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.jdo.annotations.Index;
 import javax.persistence.Id;
 
 import com.cedarsolutions.dao.gae.domain.IContainer;
+import com.cedarsolutions.santa.server.assignment.PairingHistory;
+import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
-import com.cedarsolutions.util.JaxbUtils;
 
 /**
- * Container object used for storing serialized (XML) Exchange data in GAE's datastore.
+ * Container object used for storing serialized Exchange data in GAE's datastore.
+ *
+ * <p>
+ * Exchanges are stored in the compact binary format implemented by
+ * ExchangeCodec.  Containers saved by older versions hold XML instead, which
+ * is deserialized via ExchangeCodec.decodeXml().  Those containers are
+ * converted to the binary format the next time the exchange is saved.
+ * Encoded data over the compression threshold is also compressed.
+ * </p>
  *
  * <p>
- * This implementation assumes that the Exchange object can be serialized to
- * XML and deserialized from XML via the methods on JaxbUtils.  The Exchange
- * object must be annotated with the proper JAXB annotations.
+ * A large exchange would not fit into a single datastore entity, so its
+ * participants and assignments are split into pages and stored separately
+ * (see ParticipantChunkContainer).  In that case, the serialized exchange
+ * holds everything else, and the container records how many pages there are
+ * and how many participants went into each page, so that a page of
+ * participants can be found without reading the others.  The giver/receiver
+ * pairings are then stored with the chunks as well, since for a large
+ * exchange they would not fit into the container either.
  * </p>
  *
  * @author Kenneth J. Pronovici <pronovic@ieee.org>
@@ -51,33 +68,184 @@ public class ExchangeContainer implements IContainer<Exchange> {
     /** User which owns this exchange. */
     @Index private String userId;
 
-    /** Serialized (XML) exchange data. */
+    /** Serialized (XML) exchange data, as saved by older versions. */
     private String serialized;
 
-    /** Initialize the container based on a value. */
+    /** Exchange data encoded by ExchangeCodec. */
+    private byte[] encoded;
+
+    /** Giver/receiver pairings from the exchange's assignments, as from PairingHistory.encode(), or null if stored with the chunks. */
+    private String pairings;
+
+    /** Number of participant chunks, or null if the participants are stored in the serialized exchange. */
+    private Integer chunks;
+
+    /** Maximum number of participants per chunk when the chunks were written, or null if there are no chunks. */
+    private Integer chunkSize;
+
+    /** Number of participants in the exchange, or null if saved by an older version. */
+    private Integer participantCount;
+
+    /** Initialize the container based on a value, keeping all participants in the serialized exchange. */
     @Override
     public void fromValue(Exchange value) {
+        this.fromValue(value, 0);
+    }
+
+    /**
+     * Initialize the container based on a value, splitting the participants into chunks if there are too many.
+     * @param value      Exchange to store
+     * @param chunkSize  Maximum number of participants per chunk, or zero to never split
+     * @return Chunks that must be stored alongside the container, possibly empty.
+     */
+    public List<ParticipantChunk> fromValue(Exchange value, int chunkSize) {
+        return this.fromValue(value, chunkSize, ExchangeCodec.DEFAULT_COMPRESSION_THRESHOLD);
+    }
+
+    /**
+     * Initialize the container based on a value, splitting the participants into chunks if there are too many.
+     * @param value                 Exchange to store
+     * @param chunkSize             Maximum number of participants per chunk, or zero to never split
+     * @param compressionThreshold  Minimum size to compress, in bytes, or ExchangeCodec.NO_COMPRESSION
+     * @return Chunks that must be stored alongside the container, possibly empty.
+     */
+    public List<ParticipantChunk> fromValue(Exchange value, int chunkSize, int compressionThreshold) {
         if (value == null) {
             throw new NullPointerException("exchange");
         }
 
         this.id = value.getId();
         this.userId = value.getUserId();
-        this.serialized = JaxbUtils.getInstance().marshalDocument(value);
+        this.participantCount = value.getParticipants() == null ? 0 : value.getParticipants().size();
+
+        List<ParticipantChunk> result = splitParticipants(value, chunkSize);
+        this.serialized = null;
+        if (result.isEmpty()) {
+            this.encoded = ExchangeCodec.encode(value, compressionThreshold);
+            this.pairings = PairingHistory.encode(value.getAssignments());
+            this.chunks = null;
+            this.chunkSize = null;
+        } else {
+            this.encoded = ExchangeCodec.encode(value.copyHeader(), compressionThreshold);
+            this.pairings = null;  // each chunk holds the pairings for its own assignments
+            this.chunks = result.size();
+            this.chunkSize = chunkSize;
+        }
+
+        return result;
+    }
+
+    /**
+     * Split an exchange's participants and assignments into pages, in order.
+     * @param value      Exchange to split
+     * @param chunkSize  Maximum number of participants per chunk, or zero to never split
+     * @return Pages of participants and assignments, empty if everything fits into a single page.
+     */
+    private static List<ParticipantChunk> splitParticipants(Exchange value, int chunkSize) {
+        List<ParticipantChunk> result = new ArrayList<ParticipantChunk>();
+
+        int participants = value.getParticipants() == null ? 0 : value.getParticipants().size();
+        int assignments = value.getAssignments() == null ? 0 : value.getAssignments().size();
+        if (chunkSize > 0 && participants > chunkSize) {
+            for (int start = 0; start < participants || start < assignments; start += chunkSize) {
+                ParticipantChunk chunk = new ParticipantChunk();
+                if (start < participants) {
+                    chunk.getParticipants().addAll(value.getParticipants().subList(start, Math.min(participants, start + chunkSize)));
+                }
+
+                if (start < assignments) {
+                    chunk.getAssignments().addAll(value.getAssignments().subList(start, Math.min(assignments, start + chunkSize)));
+                }
+
+                result.add(chunk);
+            }
+        }
+
+        return result;
     }
 
-    /** Turn the container into a value. */
+    /** Whether the participants and assignments are stored in chunks rather than in the serialized exchange. */
+    public boolean isChunked() {
+        return this.chunks != null && this.chunks > 0;
+    }
+
+    /**
+     * Whether a page of participants can be located without reading every chunk.
+     * Containers saved by older versions don't record enough to do this.
+     */
+    public boolean isPageable() {
+        return this.isChunked() && this.chunkSize != null && this.chunkSize > 0 && this.participantCount != null;
+    }
+
+    /** Whether the pairings are stored with the chunks rather than in the container. */
+    public boolean isPairingsChunked() {
+        return this.pairings == null && this.isChunked();
+    }
+
+    /**
+     * Add this exchange's pairings to a pairing history.
+     * Pairings stored with the chunks (see isPairingsChunked()) must be added from the chunks instead.
+     * Containers saved before pairings were tracked have to be deserialized instead.
+     * @param history  History to add to
+     */
+    public void addPairings(PairingHistory history) {
+        if (this.getPairings() != null) {
+            history.addEncoded(this.getPairings());
+        } else if (!this.isChunked()) {
+            Exchange exchange = this.toValue();
+            if (exchange != null) {
+                history.addAssignments(exchange.getAssignments());
+            }
+        }
+    }
+
+    /**
+     * Turn the container into a value, adding the participants and assignments from its chunks.
+     * @param chunks  Chunks stored alongside the container, in order
+     * @return Exchange with every participant and assignment, or null if there is no stored data.
+     */
+    public Exchange toValue(List<ParticipantChunk> chunks) {
+        Exchange exchange = this.toValue();
+        if (exchange != null && chunks != null) {
+            for (ParticipantChunk chunk : chunks) {
+                exchange.getParticipants().addAll(chunk.getParticipants());
+                if (!chunk.getAssignments().isEmpty()) {
+                    if (exchange.getAssignments() == null) {
+                        exchange.setAssignments(new AssignmentSet());  // an empty set doesn't survive serialization
+                    }
+
+                    exchange.getAssignments().addAll(chunk.getAssignments());
+                }
+            }
+
+            exchange.upgradeConflicts();
+        }
+
+        return exchange;
+    }
+
+    /**
+     * Turn the container into a value.
+     * For a large exchange, this does not include the participants and assignments stored in chunks.
+     * Conflicts saved by older versions (as full copies of each conflicting participant) are converted to ids.
+     */
     @Override
     public Exchange toValue() {
-        if (this.getSerialized() == null) {
+        if (this.getEncoded() != null) {
+            Exchange exchange = ExchangeCodec.decodeExchange(this.encoded);
+            exchange.setId(this.getId());
+            exchange.upgradeConflicts();
+            return exchange;
+        } else if (this.getSerialized() == null) {
             return null;
         } else {
             // There's a JAXB bug that gets confused by the Exchange object structure
-            // when using schema validation like implemented by unmarshalDocument().
+            // when using schema validation like implemented by JaxbUtils.unmarshalDocument().
             // See the bottom of: http://stackoverflow.com/questions/3658378
-            // Because of this bug, we pass validate=false and don't validate the XML.
-            Exchange exchange = JaxbUtils.getInstance().unmarshalDocument(Exchange.class, this.serialized, false);
+            // Because of this bug, decodeXml() doesn't validate the XML.
+            Exchange exchange = ExchangeCodec.decodeXml(Exchange.class, this.serialized);
             exchange.setId(this.getId());
+            exchange.upgradeConflicts();
             return exchange;
         }
     }
@@ -106,4 +274,44 @@ public class ExchangeContainer implements IContainer<Exchange> {
         this.serialized = serialized;
     }
 
+    public byte[] getEncoded() {
+        return this.encoded;
+    }
+
+    public void setEncoded(byte[] encoded) {
+        this.encoded = encoded;
+    }
+
+    public String getPairings() {
+        return this.pairings;
+    }
+
+    public void setPairings(String pairings) {
+        this.pairings = pairings;
+    }
+
+    public Integer getChunks() {
+        return this.chunks;
+    }
+
+    public void setChunks(Integer chunks) {
+        this.chunks = chunks;
+    }
+
+    public Integer getChunkSize() {
+        return this.chunkSize;
+    }
+
+    public void setChunkSize(Integer chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public Integer getParticipantCount() {
+        return this.participantCount;
+    }
+
+    public void setParticipantCount(Integer participantCount) {
+        this.participantCount = participantCount;
+    }
+
 }
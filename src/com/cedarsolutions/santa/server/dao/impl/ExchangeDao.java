@@ -22,7 +22,13 @@
  * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
 package com.cedarsolutions.santa.server.dao.impl;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.cedarsolutions.dao.IDaoTransaction;
 import com.cedarsolutions.dao.domain.PaginatedResults;
@@ -30,13 +36,22 @@ import com.cedarsolutions.dao.domain.Pagination;
 import com.cedarsolutions.dao.gae.impl.AbstractGaeDao;
 import com.cedarsolutions.dao.gae.impl.FilteredContainerIterator;
 import com.cedarsolutions.dao.gae.impl.GaeDaoTransaction;
+import com.cedarsolutions.dao.gae.impl.ObjectifyProxy;
 import com.cedarsolutions.dao.gae.impl.PaginationUtils;
 import com.cedarsolutions.exception.DaoException;
 import com.cedarsolutions.exception.InvalidDataException;
+import com.cedarsolutions.exception.NotConfiguredException;
+import com.cedarsolutions.santa.server.assignment.PairingHistory;
 import com.cedarsolutions.santa.server.dao.IExchangeDao;
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
 import com.cedarsolutions.santa.shared.domain.exchange.ExchangeCriteria;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSection;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantPage;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
 import com.cedarsolutions.util.gwt.GwtStringUtils;
+import com.googlecode.objectify.Key;
 import com.googlecode.objectify.Query;
 
 /**
@@ -52,10 +67,63 @@ import com.googlecode.objectify.Query;
  * know anything about this.
  * </p>
  *
+ * <p>
+ * A serialized exchange with thousands of participants does not fit into a
+ * single entity, so once an exchange has more than participantChunkSize
+ * participants, its participants and assignments are stored in separate
+ * chunks (pages) that are children of the container.  Chunks are read and
+ * written along with the container, so callers still see a complete exchange.
+ * Stored data larger than compressionThreshold bytes is compressed.
+ * </p>
+ *
+ * <p>
+ * Callers that don't need a whole exchange can leave out its participants
+ * or assignments, or retrieve its participants a page at a time.  For a
+ * chunked exchange, that means only reading the chunks that are needed.
+ * </p>
+ *
+ * <p>
+ * Each exchange also has a small summary (see ExchangeSummaryContainer)
+ * that is written along with it.  Listing exchanges only reads the
+ * summaries, so it never has to deserialize a whole exchange.
+ * </p>
+ *
+ * <p>
+ * Changes can also be saved a page at a time (see Exchange.applyChanges()),
+ * so a client never has to send a whole exchange.  Notifications are sent a
+ * chunk at a time by queued tasks, and each chunk's progress is tracked by a
+ * NotificationChunkContainer so that a retried task doesn't send it twice.
+ * </p>
+ *
  * @author Kenneth J. Pronovici <pronovic@ieee.org>
  */
 public class ExchangeDao extends AbstractGaeDao implements IExchangeDao {
 
+    /** Default maximum number of participants per chunk. */
+    public static final int DEFAULT_PARTICIPANT_CHUNK_SIZE = 500;
+
+    /** Maximum number of participants per chunk; exchanges with fewer participants are not split. */
+    private int participantChunkSize = DEFAULT_PARTICIPANT_CHUNK_SIZE;
+
+    /** Minimum size of stored data to compress, in bytes, or ExchangeCodec.NO_COMPRESSION. */
+    private int compressionThreshold = ExchangeCodec.DEFAULT_COMPRESSION_THRESHOLD;
+
+    /**
+     * Invoked by a bean factory after it has set all bean properties.
+     * @throws NotConfiguredException In the event of misconfiguration.
+     */
+    @Override
+    public void afterPropertiesSet() throws NotConfiguredException {
+        super.afterPropertiesSet();
+        if (this.participantChunkSize < 1) {
+            throw new NotConfiguredException("ExchangeDao: participant chunk size must be at least 1");
+        }
+
+        if (this.compressionThreshold < ExchangeCodec.NO_COMPRESSION) {
+            throw new NotConfiguredException("ExchangeDao: compression threshold must be at least " + ExchangeCodec.NO_COMPRESSION);
+        }
+    }
+
     /**
      * Insert an exchange into the back-end data store.
      * @param exchange  Exchange to insert
@@ -86,9 +154,11 @@ public class ExchangeDao extends AbstractGaeDao implements IExchangeDao {
         try {
             GaeDaoTransaction gaeTransaction = checkTransactionType(transaction);
             ExchangeContainer container = new ExchangeContainer();
-            container.fromValue(exchange);
+            List<ParticipantChunk> chunks = container.fromValue(exchange, this.participantChunkSize, this.compressionThreshold);
             container.setId(null); // set to null so it will be auto-generated
             gaeTransaction.getObjectify().put(container);
+            this.putChunks(gaeTransaction.getObjectify(), container.getId(), chunks, 0);
+            putSummary(gaeTransaction.getObjectify(), container.getId(), exchange, new Date());
             return container.getId();
         } catch (DaoException e) {
             throw e;
@@ -127,7 +197,7 @@ public class ExchangeDao extends AbstractGaeDao implements IExchangeDao {
         try {
             GaeDaoTransaction gaeTransaction = checkTransactionType(transaction);
             ExchangeContainer container = gaeTransaction.getObjectify().find(ExchangeContainer.class, exchangeId);
-            return container == null ? null : container.toValue();
+            return container == null ? null : container.toValue(getChunks(gaeTransaction.getObjectify(), container));
         } catch (DaoException e) {
             throw e;
         } catch (Exception e) {
@@ -135,6 +205,106 @@ public class ExchangeDao extends AbstractGaeDao implements IExchangeDao {
         }
     }
 
+    /**
+     * Retrieve an exchange by exchange id, including only some of its sections.
+     * Sections that are left out come back empty (participants) or null (assignments).
+     * @param exchangeId  Exchange id, as from insertExchange()
+     * @param sections    Sections to include, possibly empty to get just the header
+     * @return Exchange retrieved from the database, possibly null.
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public Exchange retrieveExchange(Long exchangeId, Set<ExchangeSection> sections) throws DaoException {
+        IDaoTransaction transaction = getDaoTransaction();
+        try {
+            GaeDaoTransaction gaeTransaction = checkTransactionType(transaction);
+            ExchangeContainer container = gaeTransaction.getObjectify().find(ExchangeContainer.class, exchangeId);
+            Exchange result = null;
+            if (container != null) {
+                boolean participants = sections.contains(ExchangeSection.PARTICIPANTS);
+                boolean assignments = sections.contains(ExchangeSection.ASSIGNMENTS);
+                if (participants || assignments) {
+                    result = container.toValue(getChunks(gaeTransaction.getObjectify(), container));
+                } else {
+                    result = container.toValue();  // for a chunked exchange, the chunks are never read
+                }
+
+                if (result != null) {
+                    if (!participants) {
+                        result.setParticipants(new ParticipantSet());
+                    }
+
+                    if (!assignments) {
+                        result.setAssignments(null);
+                    }
+
+                    result.clearChanges();
+                }
+            }
+
+            transaction.commit();
+            return result;
+        } catch (DaoException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DaoException("Error retrieving exchange.", e);
+        } finally {
+            transaction.rollback();  // only matters if we haven't already committed
+        }
+    }
+
+    /**
+     * Retrieve a page of an exchange's participants.
+     *
+     * <p>
+     * For a chunked exchange, only the chunks that overlap the page are read.
+     * Containers saved by older versions don't record how the participants
+     * were split up, so for those every chunk is read.
+     * </p>
+     *
+     * @param userId      User which must own the exchange
+     * @param exchangeId  Exchange id, as from insertExchange()
+     * @param start       Position of the first participant to retrieve
+     * @param count       Maximum number of participants to retrieve
+     *
+     * @return Page of participants, or null if the exchange does not exist or is not owned by the user.
+     * @throws InvalidDataException If the start or count is invalid
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public ParticipantPage retrieveParticipants(String userId, Long exchangeId, int start, int count)
+    throws InvalidDataException, DaoException {
+        if (start < 0 || count < 1) {
+            throw new InvalidDataException("Invalid participant page: start=" + start + ", count=" + count);
+        }
+
+        IDaoTransaction transaction = getDaoTransaction();
+        try {
+            GaeDaoTransaction gaeTransaction = checkTransactionType(transaction);
+            ExchangeContainer container = gaeTransaction.getObjectify().find(ExchangeContainer.class, exchangeId);
+            ParticipantPage result = null;
+            if (container != null && GwtStringUtils.equals(userId, container.getUserId())) {
+                if (container.isPageable()) {
+                    result = getParticipantPage(gaeTransaction.getObjectify(), container, start, count);
+                } else {
+                    Exchange exchange = container.toValue(getChunks(gaeTransaction.getObjectify(), container));
+                    if (exchange != null) {
+                        result = createParticipantPage(exchangeId, exchange.getParticipants(), 0, exchange.getParticipants().size(), start, count);
+                    }
+                }
+            }
+
+            transaction.commit();
+            return result;
+        } catch (DaoException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DaoException("Error retrieving participants.", e);
+        } finally {
+            transaction.rollback();  // only matters if we haven't already committed
+        }
+    }
+
     /**
      * Delete an exchange by exchange id.
      * @param exchangeId  Exchange id, as from insertExchange()
@@ -164,6 +334,8 @@ public class ExchangeDao extends AbstractGaeDao implements IExchangeDao {
             ExchangeContainer container = gaeTransaction.getObjectify().find(ExchangeContainer.class, exchangeId);
             if (container != null) {
                 // Don't bother deleting unless it's still there
+                deleteChunks(gaeTransaction.getObjectify(), exchangeId, 0, container.getChunks());
+                deleteSummary(gaeTransaction.getObjectify(), exchangeId);
                 gaeTransaction.getObjectify().delete(container);
             }
         } catch (DaoException e) {
@@ -214,8 +386,11 @@ public class ExchangeDao extends AbstractGaeDao implements IExchangeDao {
                 // Make sure that we don't accidentally insert this user instead of updating it
                 throw new DaoException("Failed to update record: does not exist");
             } else {
-                container.fromValue(exchange);
+                Integer previous = container.getChunks();
+                List<ParticipantChunk> chunks = container.fromValue(exchange, this.participantChunkSize, this.compressionThreshold);
                 gaeTransaction.getObjectify().put(container);
+                this.putChunks(gaeTransaction.getObjectify(), container.getId(), chunks, previous);
+                putSummary(gaeTransaction.getObjectify(), container.getId(), exchange, new Date());
             }
         } catch (DaoException e) {
             throw e;
@@ -224,6 +399,35 @@ public class ExchangeDao extends AbstractGaeDao implements IExchangeDao {
         }
     }
 
+    /**
+     * Apply a page of changes to a stored exchange, as described for Exchange.applyChanges().
+     * The stored exchange is read and written in a single transaction, so concurrent pages don't lose each other's changes.
+     * @param userId        User which must own the exchange
+     * @param header        Exchange whose fields should be applied, identified by its id
+     * @param participants  Participants that were added or replaced, possibly null
+     * @param removedIds    Ids of the participants that were removed, possibly null
+     * @return Header of the updated exchange, or null if the exchange does not exist or is not owned by the user.
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public Exchange updateExchange(String userId, Exchange header, List<Participant> participants, List<Long> removedIds) throws DaoException {
+        IDaoTransaction transaction = getDaoTransaction();
+        try {
+            Exchange result = null;
+            Exchange exchange = this.retrieveExchange(transaction, header.getId());
+            if (exchange != null && GwtStringUtils.equals(userId, exchange.getUserId())) {
+                exchange.applyChanges(header, participants, removedIds);
+                this.updateExchange(transaction, exchange);
+                result = exchange.copyHeader();
+            }
+
+            transaction.commit();
+            return result;
+        } finally {
+            transaction.rollback();  // only matters if we haven't already committed
+        }
+    }
+
     /**
      * Retrieve the exchanges that match search criteria.
      *
@@ -284,6 +488,382 @@ public class ExchangeDao extends AbstractGaeDao implements IExchangeDao {
         }
     }
 
+    /**
+     * Retrieve summaries of the exchanges that match search criteria.
+     *
+     * <p>
+     * See documentation on the criteria class for information on how criteria are applied.
+     * Only the summaries are read, never the exchanges themselves.  The first time a user's
+     * exchanges are listed, summaries are created for any exchanges saved before summaries
+     * were tracked (see SummaryMarkerContainer).
+     * </p>
+     *
+     * @param criteria    Search criteria to apply
+     * @param pagination  Pagination to use
+     *
+     * @return Paginated results.
+     * @throws InvalidDataException If the criteria is invalid
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public PaginatedResults<ExchangeSummary> retrieveExchangeSummaries(ExchangeCriteria criteria, Pagination pagination)
+    throws InvalidDataException, DaoException {
+        try {
+            Query<ExchangeSummaryContainer> query = getObjectify().query(ExchangeSummaryContainer.class, pagination);
+            query.order("id");
+            addUserIdFilter(query, criteria);
+            this.addMissingSummaries(criteria.getUserId());
+            ExchangeSummaryFilterPredicate predicate = new ExchangeSummaryFilterPredicate(criteria);
+            FilteredContainerIterator<ExchangeSummary> iterator = new FilteredContainerIterator<ExchangeSummary>(query, predicate);
+            return PaginationUtils.createPaginatedResults(pagination, iterator);
+        } catch (InvalidDataException e) {
+            throw e;
+        } catch (DaoException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DaoException("Error retrieving exchange summaries.", e);
+        }
+    }
+
+    /**
+     * Retrieve the giver/receiver pairings from a set of prior exchanges.
+     *
+     * <p>
+     * The pairings are stored on the container alongside the serialized
+     * exchange, or for a large exchange, alongside each of its chunks.  So,
+     * this needs at most two batch gets and never has to deserialize the
+     * exchanges themselves (except for exchanges saved before pairings were
+     * tracked).  Exchanges that do not exist or are not owned by the user are
+     * ignored.
+     * </p>
+     *
+     * @param userId       User which must own the exchanges
+     * @param exchangeIds  Ids of the prior exchanges
+     *
+     * @return Pairing history for the exchanges, possibly empty.
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public PairingHistory retrievePairingHistory(String userId, List<Long> exchangeIds) throws DaoException {
+        try {
+            PairingHistory history = new PairingHistory();
+            if (exchangeIds != null && !exchangeIds.isEmpty()) {
+                List<Key<ParticipantChunkContainer>> keys = new ArrayList<Key<ParticipantChunkContainer>>();
+                Map<Long, ExchangeContainer> containers = getObjectify().get(ExchangeContainer.class, exchangeIds);
+                for (ExchangeContainer container : containers.values()) {
+                    if (container != null && GwtStringUtils.equals(userId, container.getUserId())) {
+                        if (container.isPairingsChunked()) {
+                            keys.addAll(createChunkKeys(container.getId(), 0, container.getChunks()));
+                        } else {
+                            container.addPairings(history);
+                        }
+                    }
+                }
+
+                if (!keys.isEmpty()) {
+                    for (ParticipantChunkContainer chunk : getObjectify().get(keys).values()) {
+                        chunk.addPairings(history);
+                    }
+                }
+            }
+
+            return history;
+        } catch (Exception e) {
+            throw new DaoException("Error retrieving pairing history.", e);
+        }
+    }
+
+    /**
+     * Store the chunks for an exchange, removing any left over from a larger version of the exchange.
+     * @param objectify   Objectify instance to use
+     * @param exchangeId  Id of the exchange
+     * @param chunks      Chunks to store, possibly empty
+     * @param previous    Number of chunks stored previously, possibly null
+     */
+    private void putChunks(ObjectifyProxy objectify, Long exchangeId, List<ParticipantChunk> chunks, Integer previous) {
+        if (!chunks.isEmpty()) {
+            List<ParticipantChunkContainer> containers = new ArrayList<ParticipantChunkContainer>();
+            for (int index = 0; index < chunks.size(); index++) {
+                ParticipantChunkContainer container = new ParticipantChunkContainer();
+                container.fromValue(chunks.get(index), this.compressionThreshold);
+                container.setPosition(exchangeId, index);
+                containers.add(container);
+            }
+
+            objectify.put(containers);
+        }
+
+        deleteChunks(objectify, exchangeId, chunks.size(), previous);
+    }
+
+    /**
+     * Retrieve the chunks for an exchange, in order.
+     * @param objectify  Objectify instance to use
+     * @param container  Container for the exchange
+     * @return Chunks for the exchange, possibly empty.
+     */
+    private static List<ParticipantChunk> getChunks(ObjectifyProxy objectify, ExchangeContainer container) {
+        if (container.isChunked()) {
+            return getChunks(objectify, container.getId(), 0, container.getChunks());
+        } else {
+            return new ArrayList<ParticipantChunk>();
+        }
+    }
+
+    /**
+     * Retrieve a range of chunks for an exchange, in order.
+     * @param objectify   Objectify instance to use
+     * @param exchangeId  Id of the exchange
+     * @param start       Index of the first chunk to retrieve
+     * @param end         Index after the last chunk to retrieve
+     * @return Chunks in the range, possibly empty.
+     */
+    private static List<ParticipantChunk> getChunks(ObjectifyProxy objectify, Long exchangeId, int start, int end) {
+        List<ParticipantChunk> chunks = new ArrayList<ParticipantChunk>();
+        if (end > start) {
+            List<Key<ParticipantChunkContainer>> keys = createChunkKeys(exchangeId, start, end);
+            Map<Key<ParticipantChunkContainer>, ParticipantChunkContainer> containers = objectify.get(keys);
+            for (Key<ParticipantChunkContainer> key : keys) {
+                ParticipantChunkContainer chunk = containers.get(key);
+                if (chunk == null) {
+                    throw new DaoException("Exchange " + exchangeId + " is missing participant chunk " + key.getId());
+                }
+
+                chunks.add(chunk.toValue());
+            }
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Retrieve a page of participants for a chunked exchange, reading only the chunks that overlap the page.
+     * @param objectify  Objectify instance to use
+     * @param container  Container for the exchange, which must be pageable
+     * @param start      Position of the first participant to retrieve
+     * @param count      Maximum number of participants to retrieve
+     * @return Page of participants.
+     */
+    private static ParticipantPage getParticipantPage(ObjectifyProxy objectify, ExchangeContainer container, int start, int count) {
+        int total = container.getParticipantCount();
+        int chunkSize = container.getChunkSize();
+
+        ParticipantSet participants = new ParticipantSet();
+        int offset = 0;
+        if (start < total) {
+            int first = start / chunkSize;
+            int last = (Math.min(total, start + count) - 1) / chunkSize;
+            offset = first * chunkSize;
+            for (ParticipantChunk chunk : getChunks(objectify, container.getId(), first, last + 1)) {
+                participants.addAll(chunk.getParticipants());
+            }
+        }
+
+        return createParticipantPage(container.getId(), participants, offset, total, start, count);
+    }
+
+    /**
+     * Create a page of participants from a run of an exchange's participants.
+     * @param exchangeId    Id of the exchange
+     * @param participants  Run of participants that includes the page
+     * @param offset        Position of the first participant in the run within the exchange
+     * @param total         Total number of participants in the exchange
+     * @param start         Position of the first participant on the page
+     * @param count         Maximum number of participants on the page
+     * @return Page of participants.
+     */
+    static ParticipantPage createParticipantPage(Long exchangeId, ParticipantSet participants, int offset, int total, int start, int count) {
+        ParticipantSet page = new ParticipantSet();
+        int from = Math.max(0, start - offset);
+        int to = Math.min(participants.size(), start + count - offset);
+        for (int index = from; index < to; index++) {
+            Participant participant = participants.get(index);
+            participant.upgradeConflicts();
+            page.add(participant);
+        }
+
+        page.clearChanges();
+        return new ParticipantPage(exchangeId, start, total, page);
+    }
+
+    /**
+     * Delete a range of chunks for an exchange.
+     * @param objectify   Objectify instance to use
+     * @param exchangeId  Id of the exchange
+     * @param start       Index of the first chunk to delete
+     * @param end         Index after the last chunk to delete, possibly null
+     */
+    private static void deleteChunks(ObjectifyProxy objectify, Long exchangeId, int start, Integer end) {
+        if (end != null && end > start) {
+            objectify.delete(createChunkKeys(exchangeId, start, end));
+        }
+    }
+
+    /**
+     * Store the summary for an exchange.
+     * @param objectify   Objectify instance to use
+     * @param exchangeId  Id of the exchange
+     * @param exchange    Exchange to summarize
+     * @param lastModified  Date and time the exchange was last saved, or null if not known
+     */
+    private static void putSummary(ObjectifyProxy objectify, Long exchangeId, Exchange exchange, Date lastModified) {
+        ExchangeSummary summary = new ExchangeSummary(exchange);
+        summary.setId(exchangeId);
+        summary.setLastModified(lastModified);
+
+        ExchangeSummaryContainer container = new ExchangeSummaryContainer();
+        container.fromValue(summary);
+        objectify.put(container);
+    }
+
+    /**
+     * Delete the summary for an exchange.
+     * @param objectify   Objectify instance to use
+     * @param exchangeId  Id of the exchange
+     */
+    private static void deleteSummary(ObjectifyProxy objectify, Long exchangeId) {
+        List<Key<ExchangeSummaryContainer>> keys = new ArrayList<Key<ExchangeSummaryContainer>>();
+        keys.add(ExchangeSummaryContainer.createKey(exchangeId));
+        objectify.delete(keys);
+    }
+
+    /**
+     * Create summaries for a user's exchanges that were saved before summaries were tracked.
+     *
+     * <p>
+     * This only happens once per user: afterwards, a marker is stored and
+     * checking for it is a single get.  The keys-only queries used to find
+     * the missing summaries are only eventually consistent, but that doesn't
+     * matter here, since every exchange saved since summaries were tracked
+     * has its summary written in the same transaction.
+     * </p>
+     *
+     * @param userId  User which owns the exchanges
+     */
+    private void addMissingSummaries(String userId) {
+        if (getObjectify().find(SummaryMarkerContainer.createKey(userId)) != null) {
+            return;
+        }
+
+        Set<Long> summarized = new HashSet<Long>();
+        Query<ExchangeSummaryContainer> summaries = getObjectify().query(ExchangeSummaryContainer.class);
+        summaries.filter("userId =", userId);
+        for (Key<ExchangeSummaryContainer> key : summaries.fetchKeys()) {
+            summarized.add(key.getParent().getId());
+        }
+
+        Query<ExchangeContainer> exchanges = getObjectify().query(ExchangeContainer.class);
+        exchanges.filter("userId =", userId);
+        for (Key<ExchangeContainer> key : exchanges.fetchKeys()) {
+            if (!summarized.contains(key.getId())) {
+                this.addMissingSummary(key.getId());
+            }
+        }
+
+        getObjectify().put(new SummaryMarkerContainer(userId));
+    }
+
+    /**
+     * Create the summary for one exchange saved before summaries were tracked.
+     * The summary is looked up again inside the transaction, because the exchange
+     * may have been saved (with a fresh summary) since the summaries were queried.
+     * @param exchangeId  Id of the exchange
+     */
+    private void addMissingSummary(Long exchangeId) {
+        IDaoTransaction transaction = getDaoTransaction();
+        try {
+            GaeDaoTransaction gaeTransaction = checkTransactionType(transaction);
+            if (gaeTransaction.getObjectify().find(ExchangeSummaryContainer.createKey(exchangeId)) != null) {
+                return;  // someone else already wrote it, and theirs is newer than ours would be
+            }
+
+            ExchangeContainer container = gaeTransaction.getObjectify().find(ExchangeContainer.class, exchangeId);
+            if (container != null) {
+                // Don't bother unless it's still there
+                Exchange exchange = container.toValue(getChunks(gaeTransaction.getObjectify(), container));
+                putSummary(gaeTransaction.getObjectify(), exchangeId, exchange, null);  // when it was last saved isn't known
+            }
+
+            transaction.commit();
+        } finally {
+            transaction.rollback();  // only matters if we haven't already committed
+        }
+    }
+
+    /**
+     * Claim a chunk of an exchange's notifications, so that only one task sends it.
+     * A chunk that was released before it was complete can be claimed again.
+     * @param exchangeId      Exchange id, as from insertExchange()
+     * @param assignmentSeed  Seed of the assignments being sent, so a later send starts over
+     * @param chunk           Index of the chunk
+     * @return Position within the chunk to start sending from, or -1 if the chunk is already claimed.
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public int claimNotificationChunk(Long exchangeId, Long assignmentSeed, int chunk) throws DaoException {
+        IDaoTransaction transaction = getDaoTransaction();
+        try {
+            GaeDaoTransaction gaeTransaction = checkTransactionType(transaction);
+            NotificationChunkContainer container = gaeTransaction.getObjectify().find(NotificationChunkContainer.createKey(exchangeId, chunk));
+            if (container == null || !assignmentSeed.equals(container.getAssignmentSeed())) {
+                container = new NotificationChunkContainer(exchangeId, assignmentSeed, chunk);
+            } else if (container.isClaimed()) {
+                return -1;
+            }
+
+            container.setClaimed(true);
+            gaeTransaction.getObjectify().put(container);
+            transaction.commit();
+            return container.getNext();
+        } finally {
+            transaction.rollback();  // only matters if we haven't already committed
+        }
+    }
+
+    /**
+     * Release a claimed chunk of an exchange's notifications.
+     * A complete chunk stays claimed, so it is never sent again.
+     * @param exchangeId      Exchange id, as from insertExchange()
+     * @param assignmentSeed  Seed of the assignments being sent
+     * @param chunk           Index of the chunk
+     * @param next            Position within the chunk of the first notification that was not sent
+     * @param complete        Whether every notification in the chunk was sent
+     * @throws DaoException If the operation fails.
+     */
+    @Override
+    public void releaseNotificationChunk(Long exchangeId, Long assignmentSeed, int chunk, int next, boolean complete) throws DaoException {
+        NotificationChunkContainer container = new NotificationChunkContainer(exchangeId, assignmentSeed, chunk);
+        container.setNext(next);
+        container.setClaimed(complete);
+        getObjectify().put(container);
+    }
+
+    /** Create the keys for a range of chunks. */
+    private static List<Key<ParticipantChunkContainer>> createChunkKeys(Long exchangeId, int start, int end) {
+        List<Key<ParticipantChunkContainer>> keys = new ArrayList<Key<ParticipantChunkContainer>>();
+        for (int index = start; index < end; index++) {
+            keys.add(ParticipantChunkContainer.createKey(exchangeId, index));
+        }
+
+        return keys;
+    }
+
+    public int getParticipantChunkSize() {
+        return this.participantChunkSize;
+    }
+
+    public void setParticipantChunkSize(int participantChunkSize) {
+        this.participantChunkSize = participantChunkSize;
+    }
+
+    public int getCompressionThreshold() {
+        return this.compressionThreshold;
+    }
+
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
     /** Build a query to retrieve matching rows, and return the resulting iterator. */
     private FilteredContainerIterator<Exchange> buildRetrieveIterator(ExchangeCriteria criteria, Pagination pagination) {
         Query<ExchangeContainer> query = getObjectify().query(ExchangeContainer.class, pagination);
@@ -293,8 +873,8 @@ public class ExchangeDao extends AbstractGaeDao implements IExchangeDao {
         return new FilteredContainerIterator<Exchange>(query, predicate);
     }
 
-    /** Add a date filter to a query. */
-    private static void addUserIdFilter(Query<ExchangeContainer> query, ExchangeCriteria criteria) {
+    /** Add a user id filter to a query. */
+    private static void addUserIdFilter(Query<?> query, ExchangeCriteria criteria) {
         if (!GwtStringUtils.isEmpty(criteria.getUserId())) {
             query.filter("userId =", criteria.getUserId());
         } else {
@@ -0,0 +1,186 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import java.util.Date;
+
+import javax.jdo.annotations.Index;
+import javax.persistence.Id;
+
+import com.cedarsolutions.dao.gae.domain.IContainer;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeState;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Parent;
+
+/**
+ * Container object used for storing an exchange summary in GAE's datastore.
+ *
+ * <p>
+ * The summary is a small child of the exchange's container, holding just the
+ * fields needed to list exchanges.  Listing exchanges queries the summaries,
+ * so the (much larger) serialized exchanges never have to be read or
+ * deserialized.  Since it is in the same entity group as the exchange, the
+ * summary is written in the same transaction.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class ExchangeSummaryContainer implements IContainer<ExchangeSummary> {
+
+    /** Serialization version number, which can be important to the GAE back-end. */
+    private static final long serialVersionUID = 1L;
+
+    /** Id of the summary; each exchange has exactly one. */
+    private static final long SUMMARY_ID = 1L;
+
+    /** Container for the exchange that this summary belongs to. */
+    @Parent private Key<ExchangeContainer> exchange;
+
+    /** Always SUMMARY_ID. */
+    @Id private Long id;
+
+    /** User which owns the exchange. */
+    @Index private String userId;
+
+    /** Name of the exchange. */
+    private String name;
+
+    /** State of the exchange. */
+    private ExchangeState exchangeState;
+
+    /** Date and time of the exchange. */
+    private String dateAndTime;
+
+    /** Number of participants in the exchange. */
+    private Integer participantCount;
+
+    /** Date and time the exchange was last saved. */
+    private Date lastModified;
+
+    /**
+     * Create the key for a summary.
+     * @param exchangeId  Id of the exchange the summary belongs to
+     * @return Key for the summary.
+     */
+    public static Key<ExchangeSummaryContainer> createKey(Long exchangeId) {
+        Key<ExchangeContainer> parent = new Key<ExchangeContainer>(ExchangeContainer.class, exchangeId);
+        return new Key<ExchangeSummaryContainer>(parent, ExchangeSummaryContainer.class, SUMMARY_ID);
+    }
+
+    /** Initialize the container based on a value. */
+    @Override
+    public void fromValue(ExchangeSummary value) {
+        if (value == null) {
+            throw new NullPointerException("summary");
+        }
+
+        this.exchange = value.getId() == null ? null : new Key<ExchangeContainer>(ExchangeContainer.class, value.getId());
+        this.id = SUMMARY_ID;
+        this.userId = value.getUserId();
+        this.name = value.getName();
+        this.exchangeState = value.getExchangeState();
+        this.dateAndTime = value.getDateAndTime();
+        this.participantCount = value.getParticipantCount();
+        this.lastModified = value.getLastModified();
+    }
+
+    /** Turn the container into a value. */
+    @Override
+    public ExchangeSummary toValue() {
+        ExchangeSummary summary = new ExchangeSummary();
+        summary.setId(this.exchange == null ? null : this.exchange.getId());
+        summary.setUserId(this.userId);
+        summary.setName(this.name);
+        summary.setExchangeState(this.exchangeState);
+        summary.setDateAndTime(this.dateAndTime);
+        summary.setParticipantCount(this.participantCount == null ? 0 : this.participantCount);
+        summary.setLastModified(this.lastModified);
+        return summary;
+    }
+
+    public Key<ExchangeContainer> getExchange() {
+        return this.exchange;
+    }
+
+    public void setExchange(Key<ExchangeContainer> exchange) {
+        this.exchange = exchange;
+    }
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return this.userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public ExchangeState getExchangeState() {
+        return this.exchangeState;
+    }
+
+    public void setExchangeState(ExchangeState exchangeState) {
+        this.exchangeState = exchangeState;
+    }
+
+    public String getDateAndTime() {
+        return this.dateAndTime;
+    }
+
+    public void setDateAndTime(String dateAndTime) {
+        this.dateAndTime = dateAndTime;
+    }
+
+    public Integer getParticipantCount() {
+        return this.participantCount;
+    }
+
+    public void setParticipantCount(Integer participantCount) {
+        this.participantCount = participantCount;
+    }
+
+    public Date getLastModified() {
+        return this.lastModified;
+    }
+
+    public void setLastModified(Date lastModified) {
+        this.lastModified = lastModified;
+    }
+
+}
@@ -0,0 +1,151 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import java.io.Serializable;
+
+import javax.persistence.Id;
+
+import com.googlecode.objectify.Key;
+
+/**
+ * Progress of sending one chunk of an exchange's notifications, stored in GAE's datastore.
+ *
+ * <p>
+ * Notifications are sent a chunk at a time by queued tasks, and the task
+ * queue may run a task more than once.  A task claims its chunk before
+ * sending anything, so a second copy of the task finds the chunk claimed
+ * and sends nothing.  If sending fails part way through, the chunk is
+ * released with the position of the first notification that wasn't sent,
+ * and the retried task picks up from there.  Markers are not part of the
+ * exchange's entity group, so sending doesn't contend with saving.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class NotificationChunkContainer implements Serializable {
+
+    /** Serialization version number, which can be important to the GAE back-end. */
+    private static final long serialVersionUID = 1L;
+
+    /** Identifier, derived from the exchange id and chunk index. */
+    @Id private String id;
+
+    /** Id of the exchange. */
+    private Long exchangeId;
+
+    /** Index of the chunk. */
+    private Integer chunk;
+
+    /** Seed of the assignments being sent, which identifies one send of the exchange. */
+    private Long assignmentSeed;
+
+    /** Position within the chunk of the first notification that has not been sent. */
+    private Integer next;
+
+    /** Whether the chunk is claimed, either by a task that is sending it or because it is complete. */
+    private Boolean claimed;
+
+    /** Default constructor. */
+    public NotificationChunkContainer() {
+    }
+
+    /** Create an unclaimed marker for a chunk, with nothing sent yet. */
+    public NotificationChunkContainer(Long exchangeId, Long assignmentSeed, int chunk) {
+        this.id = createId(exchangeId, chunk);
+        this.exchangeId = exchangeId;
+        this.chunk = chunk;
+        this.assignmentSeed = assignmentSeed;
+        this.next = 0;
+        this.claimed = false;
+    }
+
+    /**
+     * Create the key for a marker.
+     * @param exchangeId  Id of the exchange
+     * @param chunk       Index of the chunk
+     * @return Key for the marker.
+     */
+    public static Key<NotificationChunkContainer> createKey(Long exchangeId, int chunk) {
+        return new Key<NotificationChunkContainer>(NotificationChunkContainer.class, createId(exchangeId, chunk));
+    }
+
+    /** Create the identifier for a marker. */
+    private static String createId(Long exchangeId, int chunk) {
+        return exchangeId + ":" + chunk;
+    }
+
+    /** Whether the chunk is claimed. */
+    public boolean isClaimed() {
+        return this.claimed != null && this.claimed;
+    }
+
+    public String getId() {
+        return this.id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Long getExchangeId() {
+        return this.exchangeId;
+    }
+
+    public void setExchangeId(Long exchangeId) {
+        this.exchangeId = exchangeId;
+    }
+
+    public Integer getChunk() {
+        return this.chunk;
+    }
+
+    public void setChunk(Integer chunk) {
+        this.chunk = chunk;
+    }
+
+    public Long getAssignmentSeed() {
+        return this.assignmentSeed;
+    }
+
+    public void setAssignmentSeed(Long assignmentSeed) {
+        this.assignmentSeed = assignmentSeed;
+    }
+
+    public Integer getNext() {
+        return this.next;
+    }
+
+    public void setNext(Integer next) {
+        this.next = next;
+    }
+
+    public Boolean getClaimed() {
+        return this.claimed;
+    }
+
+    public void setClaimed(Boolean claimed) {
+        this.claimed = claimed;
+    }
+
+}
@@ -0,0 +1,79 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+
+import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+
+/**
+ * One page of a large exchange's participants and assignments, as stored by ParticipantChunkContainer.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+@XmlRootElement(name = "participantChunk")
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlType(name = "", propOrder = { "participants", "assignments" })
+public class ParticipantChunk {
+
+    /** Participants in this page. */
+    private ParticipantSet participants;
+
+    /** Assignments in this page. */
+    private AssignmentSet assignments;
+
+    /** Default constructor. */
+    public ParticipantChunk() {
+        this(null, null);
+    }
+
+    /**
+     * Create a chunk.
+     * @param participants  Participants in this page
+     * @param assignments   Assignments in this page
+     */
+    public ParticipantChunk(ParticipantSet participants, AssignmentSet assignments) {
+        this.participants = participants == null ? new ParticipantSet() : participants;
+        this.assignments = assignments == null ? new AssignmentSet() : assignments;
+    }
+
+    public ParticipantSet getParticipants() {
+        return this.participants;
+    }
+
+    public void setParticipants(ParticipantSet participants) {
+        this.participants = participants;
+    }
+
+    public AssignmentSet getAssignments() {
+        return this.assignments;
+    }
+
+    public void setAssignments(AssignmentSet assignments) {
+        this.assignments = assignments;
+    }
+
+}
@@ -0,0 +1,176 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import javax.persistence.Id;
+
+import com.cedarsolutions.dao.gae.domain.IContainer;
+import com.cedarsolutions.santa.server.assignment.PairingHistory;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.annotation.Parent;
+
+/**
+ * Container object used for storing one page of a large exchange's participants in GAE's datastore.
+ *
+ * <p>
+ * Chunks are children of the exchange's container, so they live in the same
+ * entity group and can be read and written in the same transaction.  The
+ * id is the page index plus one, since the datastore does not allow an id
+ * of zero.  Each chunk also holds the giver/receiver pairings for its own
+ * assignments, so the pairing history can be rebuilt without decoding them.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class ParticipantChunkContainer implements IContainer<ParticipantChunk> {
+
+    /** Serialization version number, which can be important to the GAE back-end. */
+    private static final long serialVersionUID = 1L;
+
+    /** Container for the exchange that this chunk belongs to. */
+    @Parent private Key<ExchangeContainer> exchange;
+
+    /** Page index plus one. */
+    @Id private Long id;
+
+    /** Serialized (XML) chunk data, as saved by older versions. */
+    private String serialized;
+
+    /** Chunk data encoded by ExchangeCodec. */
+    private byte[] encoded;
+
+    /** Giver/receiver pairings from the chunk's assignments, as from PairingHistory.encode(), or null if saved by an older version. */
+    private String pairings;
+
+    /**
+     * Create the key for a chunk.
+     * @param exchangeId  Id of the exchange the chunk belongs to
+     * @param index       Page index, starting from zero
+     * @return Key for the chunk.
+     */
+    public static Key<ParticipantChunkContainer> createKey(Long exchangeId, int index) {
+        Key<ExchangeContainer> parent = new Key<ExchangeContainer>(ExchangeContainer.class, exchangeId);
+        return new Key<ParticipantChunkContainer>(parent, ParticipantChunkContainer.class, index + 1);
+    }
+
+    /** Initialize the container based on a value. */
+    @Override
+    public void fromValue(ParticipantChunk value) {
+        this.fromValue(value, ExchangeCodec.DEFAULT_COMPRESSION_THRESHOLD);
+    }
+
+    /**
+     * Initialize the container based on a value.
+     * @param value                 Chunk to store
+     * @param compressionThreshold  Minimum size to compress, in bytes, or ExchangeCodec.NO_COMPRESSION
+     */
+    public void fromValue(ParticipantChunk value, int compressionThreshold) {
+        if (value == null) {
+            throw new NullPointerException("chunk");
+        }
+
+        this.serialized = null;
+        this.encoded = ExchangeCodec.encode(value, compressionThreshold);
+        this.pairings = PairingHistory.encode(value.getAssignments());
+    }
+
+    /**
+     * Add this chunk's pairings to a pairing history.
+     * Chunks saved before pairings were stored with them have to be deserialized instead.
+     * @param history  History to add to
+     */
+    public void addPairings(PairingHistory history) {
+        if (this.getPairings() != null) {
+            history.addEncoded(this.getPairings());
+        } else {
+            ParticipantChunk chunk = this.toValue();
+            if (chunk != null) {
+                history.addAssignments(chunk.getAssignments());
+            }
+        }
+    }
+
+    /** Turn the container into a value. */
+    @Override
+    public ParticipantChunk toValue() {
+        if (this.getEncoded() != null) {
+            return ExchangeCodec.decodeChunk(this.encoded);
+        } else if (this.getSerialized() == null) {
+            return null;
+        } else {
+            // See ExchangeContainer.toValue() for why the XML isn't validated
+            return ExchangeCodec.decodeXml(ParticipantChunk.class, this.serialized);
+        }
+    }
+
+    /**
+     * Set the exchange and page index for this chunk.
+     * @param exchangeId  Id of the exchange the chunk belongs to
+     * @param index       Page index, starting from zero
+     */
+    public void setPosition(Long exchangeId, int index) {
+        this.exchange = new Key<ExchangeContainer>(ExchangeContainer.class, exchangeId);
+        this.id = (long) index + 1;
+    }
+
+    public Key<ExchangeContainer> getExchange() {
+        return this.exchange;
+    }
+
+    public void setExchange(Key<ExchangeContainer> exchange) {
+        this.exchange = exchange;
+    }
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getSerialized() {
+        return this.serialized;
+    }
+
+    public void setSerialized(String serialized) {
+        this.serialized = serialized;
+    }
+
+    public byte[] getEncoded() {
+        return this.encoded;
+    }
+
+    public void setEncoded(byte[] encoded) {
+        this.encoded = encoded;
+    }
+
+    public String getPairings() {
+        return this.pairings;
+    }
+
+    public void setPairings(String pairings) {
+        this.pairings = pairings;
+    }
+
+}
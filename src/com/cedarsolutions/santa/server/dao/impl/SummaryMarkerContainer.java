@@ -0,0 +1,90 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Id;
+
+import com.googlecode.objectify.Key;
+
+/**
+ * Marker stored in GAE's datastore once a user's exchanges all have summaries.
+ *
+ * <p>
+ * Exchanges saved before summaries were tracked don't have one.  The first
+ * time a user's exchanges are listed, the missing summaries are created and
+ * then this marker is written, so every later listing only costs a single
+ * get to check for the marker.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class SummaryMarkerContainer implements Serializable {
+
+    /** Serialization version number, which can be important to the GAE back-end. */
+    private static final long serialVersionUID = 1L;
+
+    /** User whose exchanges all have summaries. */
+    @Id private String userId;
+
+    /** Date and time the missing summaries were created. */
+    private Date completed;
+
+    /** Default constructor. */
+    public SummaryMarkerContainer() {
+    }
+
+    /** Create a marker for a user, completed now. */
+    public SummaryMarkerContainer(String userId) {
+        this.userId = userId;
+        this.completed = new Date();
+    }
+
+    /**
+     * Create the key for a marker.
+     * @param userId  User the marker belongs to
+     * @return Key for the marker.
+     */
+    public static Key<SummaryMarkerContainer> createKey(String userId) {
+        return new Key<SummaryMarkerContainer>(SummaryMarkerContainer.class, userId);
+    }
+
+    public String getUserId() {
+        return this.userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Date getCompleted() {
+        return this.completed;
+    }
+
+    public void setCompleted(Date completed) {
+        this.completed = completed;
+    }
+
+}
@@ -22,9 +22,13 @@
  * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
 package com.cedarsolutions.santa.server.rpc.impl;
 
+import static com.cedarsolutions.santa.shared.domain.MessageKeys.FAILURE;
 import static com.cedarsolutions.util.ServiceExceptionUtils.createServiceException;
 
+import java.security.SecureRandom;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 
@@ -35,19 +39,28 @@ import com.cedarsolutions.exception.NotConfiguredException;
 import com.cedarsolutions.exception.RpcSecurityException;
 import com.cedarsolutions.exception.ServiceException;
 import com.cedarsolutions.santa.client.rpc.IExchangeRpc;
+import com.cedarsolutions.santa.server.assignment.PairingHistory;
+import com.cedarsolutions.santa.server.assignment.RepairedAssignments;
 import com.cedarsolutions.santa.server.dao.IExchangeDao;
 import com.cedarsolutions.santa.server.service.IAuditEventService;
 import com.cedarsolutions.santa.server.service.IClientSessionService;
+import com.cedarsolutions.santa.server.service.IExchangeNotificationService;
 import com.cedarsolutions.santa.server.service.IExchangeService;
 import com.cedarsolutions.santa.shared.domain.audit.AuditEvent;
 import com.cedarsolutions.santa.shared.domain.exchange.Assignment;
 import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
 import com.cedarsolutions.santa.shared.domain.exchange.ExchangeCriteria;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSection;
 import com.cedarsolutions.santa.shared.domain.exchange.ExchangeState;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
+import com.cedarsolutions.santa.shared.domain.exchange.FeasibilityResult;
 import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantPage;
 import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+import com.cedarsolutions.santa.shared.domain.exchange.PriorPairingMode;
 import com.cedarsolutions.server.service.impl.AbstractService;
+import com.cedarsolutions.shared.domain.LocalizableMessage;
 import com.cedarsolutions.shared.domain.email.EmailMessage;
 import com.cedarsolutions.util.LoggingUtils;
 
@@ -60,12 +73,18 @@ public class ExchangeRpc extends AbstractService implements IExchangeRpc {
     /** Logger instance. */
     private static Logger LOGGER = LoggingUtils.getLogger(ExchangeRpc.class);
 
+    /** Largest page of participants that can be retrieved at once; larger requests are cut down to this size. */
+    public static final int MAX_PARTICIPANT_PAGE_SIZE = 1000;
+
     /** Audit event service. */
     private IAuditEventService auditEventService;
 
     /** Exchange service. */
     private IExchangeService exchangeService;
 
+    /** Exchange notification service. */
+    private IExchangeNotificationService exchangeNotificationService;
+
     /** Client session service. */
     private IClientSessionService clientSessionService;
 
@@ -81,6 +100,7 @@ public class ExchangeRpc extends AbstractService implements IExchangeRpc {
         super.afterPropertiesSet();
         if (this.auditEventService == null ||
                 this.exchangeService == null ||
+                this.exchangeNotificationService == null ||
                 this.clientSessionService == null ||
                 this.exchangeDao == null) {
             throw new NotConfiguredException("ExchangeRpc is not properly configured.");
@@ -111,6 +131,60 @@ public class ExchangeRpc extends AbstractService implements IExchangeRpc {
         }
     }
 
+    /**
+     * Retrieve an exchange by exchange id, including only some of its sections.
+     * Sections that are left out come back empty (participants) or null (assignments).
+     * @param exchangeId  Exchange id.
+     * @param sections    Sections to include, possibly empty to get just the header
+     * @return Exchange retrieved from the back-end, or null if the exchange id is not known.
+     * @throws RpcSecurityException If there is a security or permissions problem.
+     * @throws ServiceException If there is a problem with the method call.
+     */
+    @Override
+    public Exchange retrieveExchangeSections(Long exchangeId, List<ExchangeSection> sections) throws ServiceException {
+        try  {
+            Set<ExchangeSection> included = EnumSet.noneOf(ExchangeSection.class);
+            if (sections != null) {
+                included.addAll(sections);
+            }
+
+            Exchange exchange = this.exchangeDao.retrieveExchange(exchangeId, included);
+            if (exchange != null) {
+                this.validateUserId(exchange);
+            }
+
+            return exchange;
+        } catch (RpcSecurityException e) {
+            throw e;
+        } catch (Exception e) {
+            LOGGER.error("Error retrieving exchange: " + e.getMessage(), e);
+            throw createServiceException("Error retrieving exchange: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Retrieve a page of an exchange's participants.
+     * @param exchangeId  Exchange id.
+     * @param start       Position of the first participant to retrieve
+     * @param count       Maximum number of participants to retrieve, at most MAX_PARTICIPANT_PAGE_SIZE
+     * @return Page of participants, or null if the exchange id is not known.
+     * @throws RpcSecurityException If there is a security or permissions problem.
+     * @throws ServiceException If there is a problem with the method call.
+     */
+    @Override
+    public ParticipantPage retrieveParticipants(Long exchangeId, int start, int count) throws ServiceException {
+        try  {
+            // The DAO ignores exchanges owned by anyone else, so those look just like unknown exchanges
+            int limit = Math.min(count, MAX_PARTICIPANT_PAGE_SIZE);
+            return this.exchangeDao.retrieveParticipants(this.getUserId(), exchangeId, start, limit);
+        } catch (RpcSecurityException e) {
+            throw e;
+        } catch (Exception e) {
+            LOGGER.error("Error retrieving participants: " + e.getMessage(), e);
+            throw createServiceException("Error retrieving participants: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Get a set of exchanges that match the passed-in criteria.
      * See documentation on the criteria class for information on how criteria are applied.
@@ -134,6 +208,29 @@ public class ExchangeRpc extends AbstractService implements IExchangeRpc {
         }
     }
 
+    /**
+     * Get summaries of the exchanges that match the passed-in criteria.
+     * See documentation on the criteria class for information on how criteria are applied.
+     * @param criteria    Search criteria to apply
+     * @param pagination  Pagination to use
+     * @return Paginated results.
+     * @throws RpcSecurityException If there is a security or permissions problem.
+     * @throws ServiceException If there is a problem with the method call.
+     */
+    @Override
+    public PaginatedResults<ExchangeSummary> getExchangeSummaries(ExchangeCriteria criteria, Pagination pagination) throws ServiceException {
+        try  {
+            this.validateUserId(criteria);
+            criteria.setUserId(this.getUserId()); // so we definitely only get back rows for this user
+            return this.exchangeDao.retrieveExchangeSummaries(criteria, pagination);
+        } catch (RpcSecurityException e) {
+            throw e;
+        } catch (Exception e) {
+            LOGGER.error("Error getting exchange summaries: " + e.getMessage(), e);
+            throw createServiceException("Error getting exchange summaries: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Create a new exchange.
      * @param name  Name of the exchange
@@ -168,16 +265,16 @@ public class ExchangeRpc extends AbstractService implements IExchangeRpc {
 
     /**
      * Delete a set of exchanges.
-     * @param records  Records to delete
+     * @param records  Summaries of the exchanges to delete
      * @throws RpcSecurityException If there is a security or permissions problem.
      * @throws ServiceException If there is a problem with the method call.
      */
     @Override
-    public void deleteExchanges(List<Exchange> records) throws ServiceException {
+    public void deleteExchanges(List<ExchangeSummary> records) throws ServiceException {
         try {
             this.validateUserId(records);
-            for (Exchange record : records) {
-                this.exchangeDao.deleteExchange(record);
+            for (ExchangeSummary record : records) {
+                this.exchangeDao.deleteExchange(record.getId());
                 AuditEvent auditEvent = this.auditEventService.buildDeleteExchangeEvent(record.getId());
                 this.auditEventService.logAuditEvent(auditEvent);
             }
@@ -190,23 +287,26 @@ public class ExchangeRpc extends AbstractService implements IExchangeRpc {
     }
 
     /**
-     * Save changes to an exchange.
-     * @param exchange  Exchange to save
-     * @return The newly-saved exchange.
+     * Save a page of changes to an exchange, as described for Exchange.applyChanges().
+     * A large exchange is saved in several calls, so the whole exchange is never sent at once.
+     * @param header        Exchange whose fields should be saved, without its participants or assignments
+     * @param participants  Participants that were added or replaced, possibly null
+     * @param removedIds    Ids of the participants that were removed, possibly null
+     * @return Header of the newly-saved exchange, or null if the exchange id is not known.
      * @throws RpcSecurityException If there is a security or permissions problem.
      * @throws ServiceException If there is a problem with the method call.
      */
     @Override
-    public Exchange saveExchange(Exchange exchange) throws ServiceException {
+    public Exchange saveExchangeChanges(Exchange header, List<Participant> participants, List<Long> removedIds) throws ServiceException {
         try {
-            this.validateUserId(exchange);
+            this.validateUserId(header);
 
-            if (ExchangeState.NEW.equals(exchange.getExchangeState())) {
-                exchange.setExchangeState(ExchangeState.STARTED);
+            if (ExchangeState.NEW.equals(header.getExchangeState())) {
+                header.setExchangeState(ExchangeState.STARTED);
             }
 
-            this.exchangeDao.updateExchange(exchange);
-            return exchange;
+            // The DAO ignores exchanges owned by anyone else, so those look just like unknown exchanges
+            return this.exchangeDao.updateExchange(this.getUserId(), header, participants, removedIds);
         } catch (RpcSecurityException e) {
             throw e;
         } catch (Exception e) {
@@ -216,37 +316,43 @@ public class ExchangeRpc extends AbstractService implements IExchangeRpc {
     }
 
     /**
-     * Generate assignments and send notifications for an exchange, and also save the exchange.
-     * @param exchange       Exchange to send notifications for
-     * @return The newly-saved exchange.
+     * Generate assignments for a saved exchange, save them, and queue its notifications to be sent.
+     * The notifications are sent in chunks from the task queue, so they go out shortly after this returns.
+     * @param exchangeId  Id of the exchange to send notifications for
+     * @return Header of the newly-saved exchange along with its assignments, or null if the exchange id is not known.
      * @throws RpcSecurityException If there is a security or permissions problem.
      * @throws ServiceException If there is a problem with the method call.
      * @throws InvalidDataException If the exchange is not valid.
      */
     @Override
-    public Exchange sendNotifications(Exchange exchange) throws ServiceException, InvalidDataException  {
+    public Exchange sendNotifications(Long exchangeId) throws ServiceException, InvalidDataException  {
         try {
+            Exchange exchange = this.exchangeDao.retrieveExchange(exchangeId);
+            if (exchange == null) {
+                return null;
+            }
+
             this.validateUserId(exchange);
 
-            AssignmentSet assignments = null;
-            try {
-                // First pass with auto-conflict set to true, since that yields a better result (if it works)
-                assignments = this.exchangeService.generateAssignments(exchange, true);
-            } catch (InvalidDataException e) {
-                // Second pass with auto-conflict set to false, since it's more likely to succeed
-                assignments = this.exchangeService.generateAssignments(exchange, false);
-            }
+            // A new seed for every send, saved with the exchange so the assignments can be regenerated exactly.
+            // Tasks still queued from an earlier send carry the old seed, so they are dropped.
+            exchange.setAssignmentSeed(new SecureRandom().nextLong());
 
-            int recipients = this.exchangeService.sendMessages(exchange, assignments, false);
+            PairingHistory history = this.retrievePairingHistory(exchange);
+            AssignmentSet assignments = this.exchangeService.generateAssignments(exchange, history);
 
             exchange.setAssignments(assignments);
             exchange.setExchangeState(ExchangeState.SENT);
-            exchange = this.saveExchange(exchange);
+            this.exchangeDao.updateExchange(exchange);
+
+            int recipients = this.exchangeNotificationService.queueNotifications(exchange);
 
             AuditEvent auditEvent = this.auditEventService.buildExchangeEmailEvent(exchange.getId(), recipients);
             this.auditEventService.logAuditEvent(auditEvent);
 
-            return exchange;
+            Exchange result = exchange.copyHeader();
+            result.setAssignments(assignments);
+            return result;
         } catch (RpcSecurityException e) {
             throw e;
         } catch (InvalidDataException e) {
@@ -273,8 +379,7 @@ public class ExchangeRpc extends AbstractService implements IExchangeRpc {
 
             AssignmentSet assignments = new AssignmentSet();
             for (Participant participant : participants) {
-                Participant receiver = exchange.getAssignments().getGiftReceiver(participant);
-                if (receiver != null) {
+                for (Participant receiver : exchange.getAssignments().getGiftReceivers(participant)) {
                     Assignment assignment = new Assignment(participant, receiver);
                     assignments.add(assignment);
                 }
@@ -298,6 +403,69 @@ public class ExchangeRpc extends AbstractService implements IExchangeRpc {
         }
     }
 
+    /**
+     * Repair the assignments for an exchange whose participants changed after sending, and also save the exchange.
+     * Only the givers whose assignment changed are notified.
+     * @param exchange  Exchange to repair
+     * @return The newly-saved exchange.
+     * @throws RpcSecurityException If there is a security or permissions problem.
+     * @throws ServiceException If there is a problem with the method call.
+     * @throws InvalidDataException If the exchange has not been sent, is not valid, or its assignments could not be repaired.
+     */
+    @Override
+    public Exchange repairNotifications(Exchange exchange) throws ServiceException, InvalidDataException {
+        try {
+            this.validateUserId(exchange);
+
+            if (!ExchangeState.SENT.equals(exchange.getExchangeState())) {
+                String message = "Unable to repair notifications: notifications have not been sent for this exchange";
+                throw new InvalidDataException(new LocalizableMessage(FAILURE, "repairNotifications", message));
+            }
+
+            RepairedAssignments repaired = this.exchangeService.repairAssignments(exchange);
+            if (!repaired.getChanged().isEmpty()) {
+                this.exchangeService.sendMessages(exchange, repaired.getChanged(), false);
+            }
+
+            exchange.setAssignments(repaired.getAssignments());
+            this.exchangeDao.updateExchange(exchange);
+
+            if (!repaired.getChanged().isEmpty()) {
+                AuditEvent auditEvent = this.auditEventService.buildResendEmailsEvent(exchange.getId(), repaired.getChanged().size());
+                this.auditEventService.logAuditEvent(auditEvent);
+            }
+
+            return exchange;
+        } catch (RpcSecurityException e) {
+            throw e;
+        } catch (InvalidDataException e) {
+            throw e;
+        } catch (Exception e) {
+            LOGGER.error("Error repairing notifications: " + e.getMessage(), e);
+            throw createServiceException("Error repairing notifications: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Check whether the participants and conflicts in an exchange allow a valid set of assignments.
+     * @param exchange  Exchange to check
+     * @return Result of the check, including the blocking participants if not feasible.
+     * @throws RpcSecurityException If there is a security or permissions problem.
+     * @throws ServiceException If there is a problem with the method call.
+     */
+    @Override
+    public FeasibilityResult checkFeasibility(Exchange exchange) throws ServiceException {
+        try {
+            this.validateUserId(exchange);
+            return this.exchangeService.checkFeasibility(exchange);
+        } catch (RpcSecurityException e) {
+            throw e;
+        } catch (Exception e) {
+            LOGGER.error("Error checking feasibility: " + e.getMessage(), e);
+            throw createServiceException("Error checking feasibility: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Generate a preview for an exchange notification email.
      * @param exchange      Exchange to operate on
@@ -320,6 +488,22 @@ public class ExchangeRpc extends AbstractService implements IExchangeRpc {
         }
     }
 
+    /**
+     * Retrieve the pairing history for an exchange's prior exchanges.
+     * Only exchanges owned by the current user are taken into account.
+     * @return Pairing history, or null if prior pairings should be ignored.
+     */
+    private PairingHistory retrievePairingHistory(Exchange exchange) {
+        PriorPairingMode mode = exchange.getPriorPairingMode();
+        if (mode == null || mode == PriorPairingMode.IGNORE) {
+            return null;
+        } else if (exchange.getPriorExchangeIds() == null || exchange.getPriorExchangeIds().isEmpty()) {
+            return null;
+        } else {
+            return this.exchangeDao.retrievePairingHistory(this.getUserId(), exchange.getPriorExchangeIds());
+        }
+    }
+
     /**
      * Validate the user id on search criteria.
      * @throws RpcSecurityException If there current user does not own one of the passed-in records.
@@ -352,10 +536,10 @@ public class ExchangeRpc extends AbstractService implements IExchangeRpc {
      * Validate the user id on a list of records.
      * @throws RpcSecurityException If there current user does not own one of the passed-in records.
      */
-    private void validateUserId(List<Exchange> records) {
+    private void validateUserId(List<ExchangeSummary> records) {
         String userId = this.getUserId();
         if (records != null) {
-            for (Exchange record : records) {
+            for (ExchangeSummary record : records) {
                 if (!userId.equals(record.getUserId())) {
                     throw new RpcSecurityException("User may only operate on exchanges that they own");
                 }
@@ -384,6 +568,14 @@ public class ExchangeRpc extends AbstractService implements IExchangeRpc {
         this.exchangeService = exchangeService;
     }
 
+    public IExchangeNotificationService getExchangeNotificationService() {
+        return this.exchangeNotificationService;
+    }
+
+    public void setExchangeNotificationService(IExchangeNotificationService exchangeNotificationService) {
+        this.exchangeNotificationService = exchangeNotificationService;
+    }
+
     public IClientSessionService getClientSessionService() {
         return this.clientSessionService;
     }
@@ -0,0 +1,51 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.service;
+
+import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+
+/**
+ * Sends the notifications for an exchange in chunks, from the task queue.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public interface IExchangeNotificationService {
+
+    /**
+     * Queue a task to send each chunk of an exchange's notifications.
+     * The exchange must already be saved with its assignments and assignment seed.
+     * @param exchange  Exchange whose notifications should be sent
+     * @return The number of notifications that will be sent.
+     */
+    int queueNotifications(Exchange exchange);
+
+    /**
+     * Send one chunk of an exchange's notifications.
+     * Notifications that were already sent for the chunk are not sent again.
+     * @param exchangeId      Id of the exchange
+     * @param assignmentSeed  Seed of the assignments being sent
+     * @param chunk           Index of the chunk
+     * @return The number of notifications that were sent.
+     */
+    int sendNotificationChunk(Long exchangeId, Long assignmentSeed, int chunk);
+
+}
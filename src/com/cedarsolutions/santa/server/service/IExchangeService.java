@@ -23,9 +23,13 @@
 package com.cedarsolutions.santa.server.service;
 
 import com.cedarsolutions.exception.InvalidDataException;
+import com.cedarsolutions.santa.server.assignment.PairingHistory;
+import com.cedarsolutions.santa.server.assignment.RepairedAssignments;
+import com.cedarsolutions.santa.server.assignment.ScoredAssignments;
 import com.cedarsolutions.santa.shared.domain.exchange.Assignment;
 import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+import com.cedarsolutions.santa.shared.domain.exchange.FeasibilityResult;
 import com.cedarsolutions.shared.domain.email.EmailMessage;
 
 /**
@@ -43,6 +47,14 @@ public interface IExchangeService {
      */
     void sendMessage(Exchange exchange, Assignment assignment, boolean organizerOnly) throws InvalidDataException;
 
+    /**
+     * Send the notification email for an assignment in an exchange that has already been validated.
+     * Only the exchange header is used, so the participants need not be loaded.
+     * @param exchange       Exchange that assignment is related to
+     * @param assignment     Assignment to generate an email for
+     */
+    void sendNotification(Exchange exchange, Assignment assignment);
+
     /**
      * Send all email messages for a set of assignments.
      * @param exchange       Exchange that assignment is related to
@@ -62,6 +74,54 @@ public interface IExchangeService {
      */
     AssignmentSet generateAssignments(Exchange exchange, boolean autoConflict) throws InvalidDataException;
 
+    /**
+     * Generate assignments for the passed-in exchange, taking prior pairings into account.
+     * How the prior pairings are treated depends on the exchange's prior pairing mode.
+     * @param exchange      Exchange to generate assignments for
+     * @param autoConflict  Whether automatic conflict detection should be enabled
+     * @param history       Pairings from prior exchanges, possibly null
+     * @return Randomly-generated set of assignment for this exchange.
+     * @throws InvalidDataException If the exchange is not valid or assignments could not be generated
+     */
+    AssignmentSet generateAssignments(Exchange exchange, boolean autoConflict, PairingHistory history) throws InvalidDataException;
+
+    /**
+     * Generate the best assignments available for the passed-in exchange, taking prior pairings into account.
+     * Automatic conflict detection is used if possible, and dropped only if it makes assignments impossible.
+     * @param exchange  Exchange to generate assignments for
+     * @param history   Pairings from prior exchanges, possibly null
+     * @return Randomly-generated set of assignment for this exchange.
+     * @throws InvalidDataException If the exchange is not valid or assignments could not be generated
+     */
+    AssignmentSet generateAssignments(Exchange exchange, PairingHistory history) throws InvalidDataException;
+
+    /**
+     * Generate the lowest-cost assignments for the passed-in exchange, regardless of the configured strategy.
+     * Mutual pairs and avoided prior pairings are weighted penalties rather than conflicts.
+     * @param exchange  Exchange to generate assignments for
+     * @param history   Pairings from prior exchanges, possibly null
+     * @return Lowest-cost set of assignments for this exchange, along with its score.
+     * @throws InvalidDataException If the exchange is not valid or assignments could not be generated
+     */
+    ScoredAssignments optimizeAssignments(Exchange exchange, PairingHistory history) throws InvalidDataException;
+
+    /**
+     * Repair an exchange's existing assignments after participants have joined or dropped out.
+     * Every existing assignment that is still valid is kept, and as few givers as possible are changed.
+     * @param exchange  Exchange whose assignments should be repaired
+     * @return Repaired assignments, along with the assignments that changed.
+     * @throws InvalidDataException If the exchange is not valid or the assignments could not be repaired
+     */
+    RepairedAssignments repairAssignments(Exchange exchange) throws InvalidDataException;
+
+    /**
+     * Check whether the participants and conflicts in an exchange allow a valid set of assignments.
+     * Nothing is generated or sent; this only decides whether generateAssignments() can succeed.
+     * @param exchange  Exchange to check
+     * @return Result of the check, including the blocking participants if not feasible.
+     */
+    FeasibilityResult checkFeasibility(Exchange exchange);
+
     /**
      * Generate a preview for an exchange notification email.
      * @param exchange      Exchange to operate on
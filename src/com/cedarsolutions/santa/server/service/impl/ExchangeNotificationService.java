@@ -0,0 +1,208 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.service.impl;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import com.cedarsolutions.exception.NotConfiguredException;
+import com.cedarsolutions.santa.server.dao.IExchangeDao;
+import com.cedarsolutions.santa.server.service.IExchangeNotificationService;
+import com.cedarsolutions.santa.server.service.IExchangeService;
+import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
+import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSection;
+import com.cedarsolutions.server.service.impl.AbstractService;
+import com.cedarsolutions.util.LoggingUtils;
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskOptions;
+
+/**
+ * Sends the notifications for an exchange in chunks, from the task queue.
+ *
+ * <p>
+ * Sending every notification for a large exchange in one request can run
+ * past the request deadline.  Instead, the assignments are split into chunks
+ * of chunkSize, and one NotificationChunkTask is queued per chunk.  Each task claims its
+ * chunk through the DAO before sending anything, and records how far it got
+ * when it finishes or fails.  A retried task resumes after the last
+ * notification that was sent, and a duplicate task finds the chunk already
+ * claimed and does nothing.  Tasks for an older set of assignments (an older
+ * assignment seed) are dropped.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class ExchangeNotificationService extends AbstractService implements IExchangeNotificationService {
+
+    /** Logger instance. */
+    private static Logger LOGGER = LoggingUtils.getLogger(ExchangeNotificationService.class);
+
+    /** Default number of notifications sent by each task. */
+    public static final int DEFAULT_CHUNK_SIZE = 100;
+
+    /** Largest number of tasks that can be added to a queue at once. */
+    protected static final int MAX_TASKS_PER_ADD = 100;
+
+    /** Exchange service. */
+    private IExchangeService exchangeService;
+
+    /** Exchange DAO. */
+    private IExchangeDao exchangeDao;
+
+    /** Name of the queue that tasks are added to. */
+    private String queueName;
+
+    /** Number of notifications sent by each task. */
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * Invoked by a bean factory after it has set all bean properties.
+     * @throws NotConfiguredException In the event of misconfiguration.
+     */
+    @Override
+    public void afterPropertiesSet() throws NotConfiguredException {
+        super.afterPropertiesSet();
+        if (this.exchangeService == null || this.exchangeDao == null || this.queueName == null) {
+            throw new NotConfiguredException("ExchangeNotificationService is not properly configured.");
+        }
+
+        if (this.chunkSize < 1) {
+            throw new NotConfiguredException("ExchangeNotificationService: chunk size must be at least 1");
+        }
+    }
+
+    /**
+     * Queue a task to send each chunk of an exchange's notifications.
+     * The exchange must already be saved with its assignments and assignment seed.
+     * @param exchange  Exchange whose notifications should be sent
+     * @return The number of notifications that will be sent.
+     */
+    @Override
+    public int queueNotifications(Exchange exchange) {
+        int total = exchange.getAssignments() == null ? 0 : exchange.getAssignments().size();
+        int chunks = (total + this.chunkSize - 1) / this.chunkSize;
+
+        List<TaskOptions> tasks = new ArrayList<TaskOptions>();
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            tasks.add(this.createTask(exchange.getId(), exchange.getAssignmentSeed(), chunk));
+        }
+
+        Queue queue = this.getQueue();
+        for (int start = 0; start < tasks.size(); start += MAX_TASKS_PER_ADD) {
+            queue.add(tasks.subList(start, Math.min(start + MAX_TASKS_PER_ADD, tasks.size())));
+        }
+
+        return total;
+    }
+
+    /**
+     * Send one chunk of an exchange's notifications.
+     * Notifications that were already sent for the chunk are not sent again.
+     * @param exchangeId      Id of the exchange
+     * @param assignmentSeed  Seed of the assignments being sent
+     * @param chunk           Index of the chunk
+     * @return The number of notifications that were sent.
+     */
+    @Override
+    public int sendNotificationChunk(Long exchangeId, Long assignmentSeed, int chunk) {
+        Exchange exchange = this.exchangeDao.retrieveExchange(exchangeId, EnumSet.of(ExchangeSection.ASSIGNMENTS));
+        if (exchange == null || exchange.getAssignments() == null) {
+            LOGGER.warn("Dropping notifications for exchange " + exchangeId + ": exchange has no assignments");
+            return 0;
+        } else if (assignmentSeed == null || !assignmentSeed.equals(exchange.getAssignmentSeed())) {
+            LOGGER.warn("Dropping notifications for exchange " + exchangeId + ": assignments have changed");
+            return 0;
+        }
+
+        AssignmentSet assignments = exchange.getAssignments();
+        int start = chunk * this.chunkSize;
+        int end = Math.min(start + this.chunkSize, assignments.size());
+        if (start >= end) {
+            return 0;
+        }
+
+        int next = this.exchangeDao.claimNotificationChunk(exchangeId, assignmentSeed, chunk);
+        if (next < 0) {
+            return 0;  // another task has the chunk, or it is already complete
+        }
+
+        int position = start + next;
+        try {
+            for (; position < end; position++) {
+                this.exchangeService.sendNotification(exchange, assignments.get(position));
+            }
+
+            return end - start - next;
+        } finally {
+            this.exchangeDao.releaseNotificationChunk(exchangeId, assignmentSeed, chunk, position - start, position >= end);
+        }
+    }
+
+    /** Create the task that sends a chunk of notifications. */
+    protected TaskOptions createTask(Long exchangeId, Long assignmentSeed, int chunk) {
+        return TaskOptions.Builder.withPayload(new NotificationChunkTask(exchangeId, assignmentSeed, chunk));
+    }
+
+    /** Get the queue that tasks are added to. */
+    protected Queue getQueue() {
+        return QueueFactory.getQueue(this.queueName);
+    }
+
+    public IExchangeService getExchangeService() {
+        return this.exchangeService;
+    }
+
+    public void setExchangeService(IExchangeService exchangeService) {
+        this.exchangeService = exchangeService;
+    }
+
+    public IExchangeDao getExchangeDao() {
+        return this.exchangeDao;
+    }
+
+    public void setExchangeDao(IExchangeDao exchangeDao) {
+        this.exchangeDao = exchangeDao;
+    }
+
+    public String getQueueName() {
+        return this.queueName;
+    }
+
+    public void setQueueName(String queueName) {
+        this.queueName = queueName;
+    }
+
+    public int getChunkSize() {
+        return this.chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+}
@@ -26,21 +26,36 @@ import static com.cedarsolutions.santa.shared.domain.MessageKeys.FAILURE;
 import static com.cedarsolutions.santa.shared.domain.MessageKeys.INVALID;
 import static com.cedarsolutions.santa.shared.domain.MessageKeys.REQUIRED;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadFactory;
 
-import com.cedarsolutions.exception.CedarRuntimeException;
 import com.cedarsolutions.exception.InvalidDataException;
 import com.cedarsolutions.exception.NotConfiguredException;
 import com.cedarsolutions.exception.ServiceException;
+import com.cedarsolutions.santa.server.assignment.AssignmentAttempts;
+import com.cedarsolutions.santa.server.assignment.AssignmentOptimizer;
+import com.cedarsolutions.santa.server.assignment.AssignmentRepairer;
+import com.cedarsolutions.santa.server.assignment.AssignmentSampler;
+import com.cedarsolutions.santa.server.assignment.AssignmentStrategy;
+import com.cedarsolutions.santa.server.assignment.AttemptRunner;
+import com.cedarsolutions.santa.server.assignment.AttemptRunner.AttemptFactory;
+import com.cedarsolutions.santa.server.assignment.ConflictMatrix;
+import com.cedarsolutions.santa.server.assignment.FeasibilityChecker;
+import com.cedarsolutions.santa.server.assignment.MatchingSolver;
+import com.cedarsolutions.santa.server.assignment.PairingHistory;
+import com.cedarsolutions.santa.server.assignment.RepairedAssignments;
+import com.cedarsolutions.santa.server.assignment.ScoredAssignments;
 import com.cedarsolutions.santa.server.config.ExchangeServiceConfig;
 import com.cedarsolutions.santa.server.service.IExchangeService;
 import com.cedarsolutions.santa.shared.domain.exchange.Assignment;
 import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+import com.cedarsolutions.santa.shared.domain.exchange.FeasibilityResult;
 import com.cedarsolutions.santa.shared.domain.exchange.Participant;
 import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+import com.cedarsolutions.santa.shared.domain.exchange.PriorPairingMode;
 import com.cedarsolutions.santa.shared.domain.exchange.TemplateConfig;
 import com.cedarsolutions.server.service.IEmailService;
 import com.cedarsolutions.server.service.impl.AbstractService;
@@ -49,8 +64,8 @@ import com.cedarsolutions.shared.domain.ValidationErrors;
 import com.cedarsolutions.shared.domain.email.EmailAddress;
 import com.cedarsolutions.shared.domain.email.EmailMessage;
 import com.cedarsolutions.shared.domain.email.EmailTemplate;
-import com.cedarsolutions.util.RandomNumberUtils;
 import com.cedarsolutions.util.StringUtils;
+import com.google.appengine.api.ThreadManager;
 
 /**
  * Functionality manage Secret Santa exchanges.
@@ -78,6 +93,14 @@ public class ExchangeService extends AbstractService implements IExchangeService
         if (this.getConfig().getMaxAttempts() < 1) {
             throw new NotConfiguredException("ExchangeService: maximum attempts must be at least 1");
         }
+
+        if (this.getConfig().getParallelism() < 1) {
+            throw new NotConfiguredException("ExchangeService: parallelism must be at least 1");
+        }
+
+        if (this.getConfig().getMutualPairPenalty() < 0 || this.getConfig().getPriorPairingPenalty() < 0) {
+            throw new NotConfiguredException("ExchangeService: penalties must not be negative");
+        }
     }
 
     /**
@@ -94,6 +117,20 @@ public class ExchangeService extends AbstractService implements IExchangeService
         this.emailService.sendEmail(message);
     }
 
+    /**
+     * Send the notification email for an assignment in an exchange that has already been validated.
+     * The exchange was validated when its assignments were generated, and
+     * this is called once per assignment when notifications are sent in
+     * chunks, so only the exchange header is needed.
+     * @param exchange       Exchange that assignment is related to
+     * @param assignment     Assignment to generate an email for
+     */
+    @Override
+    public void sendNotification(Exchange exchange, Assignment assignment) {
+        EmailTemplate message = this.generateMessage(exchange, assignment, false);
+        this.emailService.sendEmail(message);
+    }
+
     /**
      * Send all email messages for a set of assignments.
      * @param exchange       Exchange that assignment is related to
@@ -115,6 +152,7 @@ public class ExchangeService extends AbstractService implements IExchangeService
 
     /**
      * Generate assignments for the passed-in exchange.
+     * If the exchange has an assignment seed, the same seed always yields the same assignments.
      * @param exchange      Exchange to generate assignments for
      * @param autoConflict  Whether automatic conflict detection should be enabled
      * @return Randomly-generated set of assignment for this exchange.
@@ -123,19 +161,247 @@ public class ExchangeService extends AbstractService implements IExchangeService
      */
     @Override
     public AssignmentSet generateAssignments(Exchange exchange, boolean autoConflict) throws InvalidDataException, ServiceException {
+        return this.generateAssignments(exchange, autoConflict, null);
+    }
+
+    /**
+     * Generate assignments for the passed-in exchange, taking prior pairings into account.
+     *
+     * <p>
+     * With PriorPairingMode.FORBID, prior pairings are treated just like
+     * conflicts.  With PriorPairingMode.AVOID, they are treated like
+     * conflicts unless that makes it impossible to generate assignments,
+     * in which case they are ignored.  (The optimal strategy penalizes them
+     * instead.)  Otherwise, they are always ignored.  If the exchange has an
+     * assignment seed, the same seed always yields the same assignments.
+     * </p>
+     *
+     * <p>
+     * If each participant gives more than one gift, the configured strategy
+     * does not apply.  Instead, every participant is assigned the requested
+     * number of distinct receivers, and receives the same number of gifts.
+     * </p>
+     *
+     * @param exchange      Exchange to generate assignments for
+     * @param autoConflict  Whether automatic conflict detection should be enabled
+     * @param history       Pairings from prior exchanges, possibly null
+     *
+     * @return Randomly-generated set of assignment for this exchange.
+     * @throws InvalidDataException If the exchange is not valid or assignments could not be generated
+     * @throws ServiceException If internal configuration is invalid
+     */
+    @Override
+    public AssignmentSet generateAssignments(Exchange exchange, boolean autoConflict, PairingHistory history)
+    throws InvalidDataException, ServiceException {
         if (this.getConfig().getMaxAttempts() < 1) {
             throw new ServiceException("Internal error: configured maximum attempts is invalid");
         }
 
         validateExchange(exchange);
-        for (int i = 0; i < this.getConfig().getMaxAttempts(); i++) {
-            try {
-                return generateAssignments(exchange.getParticipants(), autoConflict);
-            } catch (CedarRuntimeException e) { }
+
+        Random random = createRandom(exchange);
+        int gifts = getGifts(exchange);
+        if (gifts == 1 && this.getStrategy(exchange) == AssignmentStrategy.OPTIMAL) {
+            int mutualPenalty = autoConflict ? this.getConfig().getMutualPairPenalty() : 0;
+            return this.optimizeAssignments(exchange, mutualPenalty, history, random).getAssignments();
         }
 
-        String message = "Unable to generate assignments after " + this.getConfig().getMaxAttempts() + " attempts";
-        throw new InvalidDataException(new LocalizableMessage(FAILURE, "generateAssignments", message));
+        PriorPairingMode mode = exchange.getPriorPairingMode();
+        if (history != null && (mode == PriorPairingMode.FORBID || mode == PriorPairingMode.AVOID)) {
+            ConflictMatrix matrix = createMatrix(exchange);
+            if (history.addConflicts(matrix) > 0) {
+                if (mode == PriorPairingMode.FORBID) {
+                    return this.generateAssignments(matrix, gifts, autoConflict, random);
+                } else {
+                    try {
+                        return this.generateAssignments(matrix, gifts, autoConflict, random);
+                    } catch (InvalidDataException e) {
+                        // fall through and try again without the prior pairings
+                    }
+                }
+            }
+        }
+
+        return this.generateAssignments(createMatrix(exchange), gifts, autoConflict, random);
+    }
+
+    /**
+     * Generate the best assignments available for the passed-in exchange, taking prior pairings into account.
+     *
+     * <p>
+     * The optimal strategy needs only a single pass, since mutual pairs are
+     * penalized rather than forbidden.  Every other strategy first tries with
+     * automatic conflict detection, since that yields a better result (if it
+     * works), and then tries again without it, since that is more likely to
+     * succeed.
+     * </p>
+     *
+     * @param exchange  Exchange to generate assignments for
+     * @param history   Pairings from prior exchanges, possibly null
+     *
+     * @return Randomly-generated set of assignment for this exchange.
+     * @throws InvalidDataException If the exchange is not valid or assignments could not be generated
+     * @throws ServiceException If internal configuration is invalid
+     */
+    @Override
+    public AssignmentSet generateAssignments(Exchange exchange, PairingHistory history) throws InvalidDataException, ServiceException {
+        if (getGifts(exchange) == 1 && this.getStrategy(exchange) == AssignmentStrategy.OPTIMAL) {
+            return this.generateAssignments(exchange, true, history);
+        }
+
+        try {
+            return this.generateAssignments(exchange, true, history);
+        } catch (InvalidDataException e) {
+            return this.generateAssignments(exchange, false, history);
+        }
+    }
+
+    /**
+     * Generate the lowest-cost assignments for the passed-in exchange, regardless of the configured strategy.
+     *
+     * <p>
+     * The optimizer needs memory proportional to the square of the number
+     * of participants, so exchanges larger than the configured limit are
+     * rejected.  Mutual pairs are penalized using the configured weight.  With
+     * PriorPairingMode.FORBID, prior pairings are treated just like
+     * conflicts, and with PriorPairingMode.AVOID, each one is penalized
+     * using the configured weight.  If the exchange has an assignment seed,
+     * the same seed always yields the same assignments.  The optimizer only
+     * supports a single gift per participant.
+     * </p>
+     *
+     * @param exchange  Exchange to generate assignments for
+     * @param history   Pairings from prior exchanges, possibly null
+     *
+     * @return Lowest-cost set of assignments for this exchange, along with its score.
+     * @throws InvalidDataException If the exchange is not valid or assignments could not be generated
+     */
+    @Override
+    public ScoredAssignments optimizeAssignments(Exchange exchange, PairingHistory history) throws InvalidDataException {
+        validateExchange(exchange);
+
+        if (getGifts(exchange) > 1) {
+            String message = "Unable to optimize assignments when participants give more than one gift";
+            throw new InvalidDataException(new LocalizableMessage(FAILURE, "generateAssignments", message));
+        }
+
+        if (exchange.getParticipants().size() > this.getConfig().getMaxOptimalParticipants()) {
+            String message = "Unable to optimize assignments for more than " + this.getConfig().getMaxOptimalParticipants() + " participants";
+            throw new InvalidDataException(new LocalizableMessage(FAILURE, "generateAssignments", message));
+        }
+
+        return this.optimizeAssignments(exchange, this.getConfig().getMutualPairPenalty(), history, createRandom(exchange));
+    }
+
+    /**
+     * Generate assignments using the configured strategy.
+     * @param matrix        Conflict matrix for the exchange's participants
+     * @param gifts         Number of gifts each participant gives and receives
+     * @param autoConflict  Whether automatic conflict detection should be enabled
+     * @param random        Source of randomness
+     * @return Randomly-generated set of assignment for this exchange.
+     * @throws InvalidDataException If assignments could not be generated
+     */
+    private AssignmentSet generateAssignments(ConflictMatrix matrix, int gifts, boolean autoConflict, Random random)
+    throws InvalidDataException {
+        AssignmentStrategy strategy = this.getStrategy(matrix.size());
+        if (gifts > 1) {
+            return this.generateMultiGiftAssignments(matrix, gifts, autoConflict, random);
+        } else if (strategy == AssignmentStrategy.GREEDY) {
+            return this.generateGreedyAssignments(matrix, autoConflict, random);
+        } else if (strategy == AssignmentStrategy.SINGLE_CYCLE) {
+            return this.generateCycleAssignments(matrix, autoConflict, random);
+        } else if (strategy == AssignmentStrategy.UNIFORM) {
+            return this.generateSampledAssignments(matrix, autoConflict, random);
+        } else {
+            return this.generateMatchedAssignments(matrix, autoConflict, random);
+        }
+    }
+
+    /** Get the strategy to use for an exchange. */
+    private AssignmentStrategy getStrategy(Exchange exchange) {
+        return this.getStrategy(exchange.getParticipants().size());
+    }
+
+    /**
+     * Get the strategy to use for a given number of participants.
+     * The optimizer needs memory proportional to the square of the number of
+     * participants and time proportional to the cube, and it runs within the
+     * request, so large exchanges are sampled uniformly instead.
+     * @param participants  Number of participants
+     * @return Strategy to use.
+     */
+    private AssignmentStrategy getStrategy(int participants) {
+        AssignmentStrategy strategy = this.getConfig().getAssignmentStrategy();
+        if (strategy == AssignmentStrategy.OPTIMAL && participants > this.getConfig().getMaxOptimalParticipants()) {
+            return AssignmentStrategy.UNIFORM;
+        }
+
+        return strategy;
+    }
+
+    /**
+     * Repair an exchange's existing assignments after participants have joined or dropped out.
+     *
+     * <p>
+     * Every existing assignment that is still valid is kept, and the rest are
+     * filled in by changing as few givers as possible.  Automatic conflict
+     * detection is used if possible, and dropped only if it makes the repair
+     * impossible.  If the exchange has an assignment seed, the same seed
+     * always yields the same repair.
+     * </p>
+     *
+     * @param exchange  Exchange whose assignments should be repaired
+     * @return Repaired assignments, along with the assignments that changed.
+     * @throws InvalidDataException If the exchange is not valid or the assignments could not be repaired
+     */
+    @Override
+    public RepairedAssignments repairAssignments(Exchange exchange) throws InvalidDataException {
+        validateExchange(exchange);
+
+        if (getGifts(exchange) > 1) {
+            String message = "Unable to repair assignments when participants give more than one gift";
+            throw new InvalidDataException(new LocalizableMessage(FAILURE, "repairAssignments", message));
+        }
+
+        if (exchange.getAssignments() == null || exchange.getAssignments().isEmpty()) {
+            String message = "Unable to repair assignments: the exchange has no assignments";
+            throw new InvalidDataException(new LocalizableMessage(FAILURE, "repairAssignments", message));
+        }
+
+        ConflictMatrix matrix = createMatrix(exchange);
+        int[] original = matrix.toReceivers(exchange.getAssignments());
+        AssignmentRepairer repairer = new AssignmentRepairer(matrix);
+        Random random = createRandom(exchange);
+
+        for (boolean autoConflict : new boolean[] { true, false, }) {
+            int[] receivers = original.clone();
+            if (repairer.repair(receivers, autoConflict, random)) {
+                AssignmentSet changed = new AssignmentSet();
+                for (int giver = 0; giver < receivers.length; giver++) {
+                    if (receivers[giver] != original[giver]) {
+                        changed.add(new Assignment(matrix.getParticipant(giver), matrix.getParticipant(receivers[giver])));
+                    }
+                }
+
+                return new RepairedAssignments(matrix.toAssignments(receivers), changed);
+            }
+        }
+
+        String message = "Unable to repair assignments: the configured conflicts do not allow a valid assignment";
+        throw new InvalidDataException(new LocalizableMessage(FAILURE, "repairAssignments", message));
+    }
+
+    /**
+     * Check whether the participants and conflicts in an exchange allow a valid set of assignments.
+     * Nothing is generated or sent; this only decides whether generateAssignments() can succeed.
+     * @param exchange  Exchange to check
+     * @return Result of the check, including the blocking participants if not feasible.
+     */
+    @Override
+    public FeasibilityResult checkFeasibility(Exchange exchange) {
+        ConflictMatrix matrix = createMatrix(exchange);
+        return new FeasibilityChecker(matrix, getGifts(exchange)).check();
     }
 
     /**
@@ -155,61 +421,210 @@ public class ExchangeService extends AbstractService implements IExchangeService
     }
 
     /**
-     * Generate assignments for the passed-in set of participants.
+     * Generate assignments using the original greedy algorithm, retrying until an attempt succeeds.
+     * @param matrix        Conflict matrix for the exchange's participants
+     * @param autoConflict  Whether automatic conflict detection should be enabled
+     * @param random        Source of randomness
+     * @return Randomly-generated set of assignment for this exchange.
+     * @throws InvalidDataException If assignments could not be generated
+     */
+    private AssignmentSet generateGreedyAssignments(ConflictMatrix matrix, boolean autoConflict, Random random) throws InvalidDataException {
+        AttemptFactory attempts = AssignmentAttempts.greedy(matrix, autoConflict);
+        int[] receivers = this.createAttemptRunner().run(attempts, this.getConfig().getMaxAttempts(), random);
+        if (receivers != null) {
+            return matrix.toAssignments(receivers);
+        }
+
+        String message = "Unable to generate assignments after " + this.getConfig().getMaxAttempts() + " attempts";
+        throw new InvalidDataException(new LocalizableMessage(FAILURE, "generateAssignments", message));
+    }
+
+    /**
+     * Generate assignments using a randomized maximum matching.
      *
      * <p>
-     * A giver can never give a gift to themselves.  If there are any
-     * conflicts configured, the giver cannot give a gift to any of those
-     * conflicts, either.  If autoConflictDetection is enabled, then two
-     * givers cannot give gifts to each other.
+     * If any valid set of assignments exists, the first matching finds one,
+     * and if the matching is not perfect there is no point in trying again.
+     * Additional attempts are only needed to remove mutual pairs when
+     * automatic conflict detection is enabled.
      * </p>
      *
+     * @param matrix        Conflict matrix for the exchange's participants
+     * @param autoConflict  Whether automatic conflict detection should be enabled
+     * @param random        Source of randomness
+     * @return Randomly-generated set of assignment for this exchange.
+     * @throws InvalidDataException If assignments could not be generated
+     */
+    private AssignmentSet generateMatchedAssignments(ConflictMatrix matrix, boolean autoConflict, Random random) throws InvalidDataException {
+        AttemptFactory attempts = AssignmentAttempts.matching(matrix, autoConflict);
+        int[] receivers = this.createAttemptRunner().run(attempts, this.getConfig().getMaxAttempts(), random);
+        if (receivers != null) {
+            if (MatchingSolver.countUnmatched(receivers) > 0) {
+                String message = "Unable to generate assignments: the configured conflicts do not allow a valid assignment";
+                throw new InvalidDataException(new LocalizableMessage(FAILURE, "generateAssignments", message));
+            }
+
+            return matrix.toAssignments(receivers);
+        }
+
+        String message = "Unable to generate assignments after " + this.getConfig().getMaxAttempts() + " attempts";
+        throw new InvalidDataException(new LocalizableMessage(FAILURE, "generateAssignments", message));
+    }
+
+    /**
+     * Generate assignments where each participant gives and receives more than one gift.
+     *
      * <p>
-     * Conflicts only work one way: if mom has a conflict for dad, mom
-     * cannot be assigned to give a gift to dad.  However, nothing prevents
-     * dad from being assigned to give a gift to mom (unless dad has his
-     * own conflict).
+     * If any valid set of assignments exists, the first attempt finds one,
+     * and if it does not there is no point in trying again.  Additional
+     * attempts are only needed to remove mutual pairs when automatic conflict
+     * detection is enabled.
      * </p>
      *
-     * @param participants           Set of participants to operate on
-     * @param autoConflictDetection  Whether automatic conflict detection should be enabled
-     *
-     * @return Randomly-generated set of assignment for this exchange.
+     * @param matrix        Conflict matrix for the exchange's participants
+     * @param gifts         Number of gifts each participant gives and receives
+     * @param autoConflict  Whether automatic conflict detection should be enabled
+     * @param random        Source of randomness
+     * @return Randomly-generated set of assignment for this exchange, gifts per participant.
+     * @throws InvalidDataException If assignments could not be generated
      */
-    private static AssignmentSet generateAssignments(ParticipantSet participants, boolean autoConflictDetection)  {
-        AssignmentSet assignments = new AssignmentSet();
+    private AssignmentSet generateMultiGiftAssignments(ConflictMatrix matrix, int gifts, boolean autoConflict, Random random)
+    throws InvalidDataException {
+        AttemptFactory attempts = AssignmentAttempts.multiGift(matrix, gifts, autoConflict);
+        int[] receivers = this.createAttemptRunner().run(attempts, this.getConfig().getMaxAttempts(), random);
+        if (receivers != null) {
+            if (MatchingSolver.countUnmatched(receivers) > 0) {
+                String message = "Unable to generate assignments: the configured conflicts do not allow " + gifts + " gifts per participant";
+                throw new InvalidDataException(new LocalizableMessage(FAILURE, "generateAssignments", message));
+            }
 
-        Map<Long, Participant> available = new HashMap<Long, Participant>();
-        for (Participant participant : participants) {
-            available.put(participant.getId(), participant);
+            return matrix.toAssignments(receivers, gifts);
         }
 
-        for (Participant giftGiver : participants) {
-            Map<Long, Participant> allowable = new HashMap<Long, Participant>(available);
+        String message = "Unable to generate assignments after " + this.getConfig().getMaxAttempts() + " attempts";
+        throw new InvalidDataException(new LocalizableMessage(FAILURE, "generateAssignments", message));
+    }
 
-            allowable.remove(giftGiver.getId());
-            for (Participant participant : giftGiver.getConflicts()) {
-                allowable.remove(participant.getId());
+    /**
+     * Generate assignments that form a single cycle through every participant.
+     *
+     * <p>
+     * One search is started for each available thread, and the first cycle
+     * found wins.  If no single cycle exists, or none can be found within the
+     * configured time limit, this falls back on the matching strategy.  A single cycle
+     * never contains a mutual pair once there are at least three participants,
+     * so automatic conflict detection only matters for an exchange of two.
+     * </p>
+     *
+     * @param matrix        Conflict matrix for the exchange's participants
+     * @param autoConflict  Whether automatic conflict detection should be enabled
+     * @param random        Source of randomness
+     * @return Randomly-generated set of assignment for this exchange.
+     * @throws InvalidDataException If assignments could not be generated
+     */
+    private AssignmentSet generateCycleAssignments(ConflictMatrix matrix, boolean autoConflict, Random random) throws InvalidDataException {
+        if (!autoConflict || matrix.size() > 2) {
+            AttemptFactory attempts = AssignmentAttempts.cycle(matrix, this.getConfig().getCycleTimeLimit());
+            int[] receivers = this.createAttemptRunner().run(attempts, Math.max(1, this.getConfig().getParallelism()), random);
+            if (receivers != null) {
+                return matrix.toAssignments(receivers);
             }
+        }
 
-            if (autoConflictDetection) {
-                if (assignments.getGiftGiver(giftGiver) != null) {
-                    allowable.remove(assignments.getGiftGiver(giftGiver).getId());
-                }
-            }
+        return this.generateMatchedAssignments(matrix, autoConflict, random);
+    }
 
-            if (allowable.isEmpty()) {
-                throw new ServiceException("No allowable partipants remain.");
-            }
+    /**
+     * Generate assignments drawn uniformly from every valid set of assignments.
+     * @param matrix        Conflict matrix for the exchange's participants
+     * @param autoConflict  Whether automatic conflict detection should be enabled
+     * @param random        Source of randomness
+     * @return Randomly-generated set of assignment for this exchange.
+     * @throws InvalidDataException If assignments could not be generated
+     */
+    private AssignmentSet generateSampledAssignments(ConflictMatrix matrix, boolean autoConflict, Random random) throws InvalidDataException {
+        AssignmentSampler sampler = new AssignmentSampler(matrix);
+        if (sampler.sample(autoConflict, random)) {
+            return matrix.toAssignments(sampler.getReceivers());
+        }
+
+        String message = "Unable to generate assignments: the configured conflicts do not allow a valid assignment";
+        throw new InvalidDataException(new LocalizableMessage(FAILURE, "generateAssignments", message));
+    }
+
+    /**
+     * Generate the lowest-cost assignments with the optimizer.
+     * @param exchange       Exchange to generate assignments for
+     * @param mutualPenalty  Penalty for each mutual pair
+     * @param history        Pairings from prior exchanges, possibly null
+     * @param random         Source of randomness
+     * @return Lowest-cost set of assignments for this exchange, along with its score.
+     * @throws InvalidDataException If assignments could not be generated
+     */
+    private ScoredAssignments optimizeAssignments(Exchange exchange, int mutualPenalty, PairingHistory history, Random random)
+    throws InvalidDataException {
+        ConflictMatrix matrix = createMatrix(exchange);
+        if (history != null && exchange.getPriorPairingMode() == PriorPairingMode.FORBID) {
+            history.addConflicts(matrix);
+        }
 
-            int index = RandomNumberUtils.generateRandomInteger(0, allowable.size() - 1);
-            Participant giftReceiver = new ArrayList<Participant>(allowable.values()).get(index);  // turn it into a map which can be indexed
-            assignments.add(new Assignment(giftGiver, giftReceiver));
+        AssignmentOptimizer optimizer = new AssignmentOptimizer(matrix);
+        if (history != null && exchange.getPriorPairingMode() == PriorPairingMode.AVOID) {
+            history.addPenalties(optimizer, this.getConfig().getPriorPairingPenalty());
+        }
 
-            available.remove(giftReceiver.getId());
+        if (optimizer.optimize(mutualPenalty, random)) {
+            return new ScoredAssignments(matrix.toAssignments(optimizer.getReceivers()), optimizer.getScore());
         }
 
-        return assignments;
+        String message = "Unable to generate assignments: the configured conflicts do not allow a valid assignment";
+        throw new InvalidDataException(new LocalizableMessage(FAILURE, "generateAssignments", message));
+    }
+
+    /**
+     * Create the conflict matrix for an exchange.
+     * @param exchange  Exchange to generate assignments for
+     * @return Conflict matrix covering both participant conflicts and conflict groups.
+     */
+    private static ConflictMatrix createMatrix(Exchange exchange) {
+        return new ConflictMatrix(exchange.getParticipants(), exchange.getConflictGroups());
+    }
+
+    /**
+     * Get the number of gifts each participant in an exchange gives and receives.
+     * @param exchange  Exchange to generate assignments for
+     * @return Configured number of gifts, or 1 if none is configured.
+     */
+    private static int getGifts(Exchange exchange) {
+        return exchange.getGiftsPerParticipant() == null ? 1 : exchange.getGiftsPerParticipant();
+    }
+
+    /**
+     * Create the source of randomness for an exchange.
+     * @param exchange  Exchange to generate assignments for
+     * @return Random seeded from the exchange's assignment seed, or unseeded if there is none.
+     */
+    private static Random createRandom(Exchange exchange) {
+        return exchange.getAssignmentSeed() == null ? new Random() : new Random(exchange.getAssignmentSeed());
+    }
+
+    /**
+     * Create the runner used for randomized attempts.
+     * Threads are only created when the configured parallelism is greater than 1.
+     * @return Attempt runner configured for this service.
+     */
+    protected AttemptRunner createAttemptRunner() {
+        int parallelism = this.getConfig().getParallelism();
+        return new AttemptRunner(parallelism > 1 ? this.createThreadFactory() : null, parallelism);
+    }
+
+    /**
+     * Create the factory for attempt threads.
+     * App Engine only allows threads that are tied to the current request.
+     * @return Thread factory for the current request.
+     */
+    protected ThreadFactory createThreadFactory() {
+        return ThreadManager.currentRequestThreadFactory();
     }
 
     /**
@@ -222,7 +637,7 @@ public class ExchangeService extends AbstractService implements IExchangeService
     protected EmailTemplate generateMessage(Exchange exchange, Assignment assignment, boolean organizerOnly) {
         TemplateConfig templateConfig = this.deriveTemplateConfig(exchange, assignment);
 
-        exchange = new Exchange(exchange);  // operate on a copy, so we don't modify the caller's object
+        exchange = exchange.copyHeader();  // operate on a copy of the header, so we don't modify the caller's object
 
         // Wrap the input data, but use Windows newline because that's what the
         // templates use.  There should be a smarter way to do this (i.e. load
@@ -338,6 +753,11 @@ public class ExchangeService extends AbstractService implements IExchangeService
             details.addMessage(REQUIRED, "participants", "At least 2 participants are required");
         }
 
+        Integer gifts = exchange.getGiftsPerParticipant();
+        if (gifts != null && (gifts < 1 || gifts >= exchange.getParticipants().size())) {
+            details.addMessage(INVALID, "giftsPerParticipant", "Gifts per participant must be at least 1 and less than the number of participants");
+        }
+
         validateParticipants(exchange.getParticipants(), details);
 
         if (!details.getMessages().isEmpty()) {
@@ -0,0 +1,96 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.service.impl;
+
+import org.springframework.web.context.ContextLoader;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.cedarsolutions.santa.server.service.IExchangeNotificationService;
+import com.google.appengine.api.taskqueue.DeferredTask;
+
+/**
+ * Deferred task that sends one chunk of an exchange's notifications.
+ *
+ * <p>
+ * The task is serialized onto the queue, so it only carries ids.  When it
+ * runs, it looks up the notification service in the Spring application
+ * context.  If sending fails, the exception propagates and the queue retries
+ * the task; the notification service takes care of not sending anything
+ * twice.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class NotificationChunkTask implements DeferredTask {
+
+    /** Serialization version number, which matters because tasks are serialized onto the queue. */
+    private static final long serialVersionUID = 1L;
+
+    /** Name of the notification service bean. */
+    public static final String SERVICE_BEAN = "exchangeNotificationService";
+
+    /** Id of the exchange. */
+    private Long exchangeId;
+
+    /** Seed of the assignments being sent. */
+    private Long assignmentSeed;
+
+    /** Index of the chunk. */
+    private int chunk;
+
+    /** Create a task for a chunk of notifications. */
+    public NotificationChunkTask(Long exchangeId, Long assignmentSeed, int chunk) {
+        this.exchangeId = exchangeId;
+        this.assignmentSeed = assignmentSeed;
+        this.chunk = chunk;
+    }
+
+    /** Send the chunk of notifications. */
+    @Override
+    public void run() {
+        this.getNotificationService().sendNotificationChunk(this.exchangeId, this.assignmentSeed, this.chunk);
+    }
+
+    /** Get the notification service from the Spring application context. */
+    protected IExchangeNotificationService getNotificationService() {
+        WebApplicationContext context = ContextLoader.getCurrentWebApplicationContext();
+        if (context == null) {
+            throw new IllegalStateException("Spring application context is not available.");
+        }
+
+        return context.getBean(SERVICE_BEAN, IExchangeNotificationService.class);
+    }
+
+    public Long getExchangeId() {
+        return this.exchangeId;
+    }
+
+    public Long getAssignmentSeed() {
+        return this.assignmentSeed;
+    }
+
+    public int getChunk() {
+        return this.chunk;
+    }
+
+}
@@ -23,11 +23,29 @@
 package com.cedarsolutions.santa.shared.domain.exchange;
 
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Set of assignments for an exchange.
+ *
+ * <p>
+ * Lookups by giver and receiver go through a pair of hash indexes keyed on
+ * participant id, so they take constant time rather than a scan of the
+ * whole set.  The indexes are transient: they are built on the first lookup
+ * (including after the set has been deserialized, whether by JAXB, Java
+ * serialization or GWT RPC) and then kept in sync as assignments are added
+ * to the end of the set or removed from it.  Other changes (inserts, set(),
+ * bulk operations) simply discard the indexes, so they are rebuilt on the
+ * next lookup.  Assignments
+ * are indexed on the participant ids they had when they were added, so
+ * replace an assignment with set() rather than changing it in place.
+ * </p>
+ *
  * @author Kenneth J. Pronovici <pronovic@ieee.org>
  */
 public class AssignmentSet extends ArrayList<Assignment> implements Serializable {
@@ -35,6 +53,12 @@ public class AssignmentSet extends ArrayList<Assignment> implements Serializable
     /** Serialization version number, which can be important to the GAE back-end. */
     private static final long serialVersionUID = 1L;
 
+    /** Assignments keyed on gift giver id, or null if the index needs to be rebuilt. */
+    private transient Map<Long, List<Assignment>> giverIndex;
+
+    /** Assignments keyed on gift receiver id, or null if the index needs to be rebuilt. */
+    private transient Map<Long, List<Assignment>> receiverIndex;
+
     /** Default constructor. */
     public AssignmentSet() {
         super();
@@ -57,18 +81,8 @@ public class AssignmentSet extends ArrayList<Assignment> implements Serializable
      * @return Giver that is assigned to the receiver, or null none is assigned.
      */
     public Participant getGiftGiver(Participant giftReceiver) {
-        Participant giftGiver = null;
-
-        if (giftReceiver.getId() != null) {
-            for (Assignment assignment : this) {
-                if (giftReceiver.getId().equals(assignment.getGiftReceiver().getId())) {
-                    giftGiver = assignment.getGiftGiver();
-                    break;
-                }
-            }
-        }
-
-        return giftGiver;
+        List<Assignment> assignments = this.getReceiverIndex().get(giftReceiver.getId());
+        return assignments == null ? null : assignments.get(0).getGiftGiver();
     }
 
     /**
@@ -77,18 +91,261 @@ public class AssignmentSet extends ArrayList<Assignment> implements Serializable
      * @return Giver that is assigned to the receiver, or null none is assigned.
      */
     public Participant getGiftReceiver(Participant giftGiver) {
-        Participant giftReceiver = null;
+        List<Assignment> assignments = this.getGiverIndex().get(giftGiver.getId());
+        return assignments == null ? null : assignments.get(0).getGiftReceiver();
+    }
+
+    /**
+     * Get all of the givers that are assigned to a receiver.
+     * When each participant gives more than one gift, a receiver has more than one giver.
+     * @param  giftReceiver   Receiver to check for
+     * @return Givers that are assigned to the receiver, possibly empty.
+     */
+    public ParticipantSet getGiftGivers(Participant giftReceiver) {
+        ParticipantSet giftGivers = new ParticipantSet();
+
+        List<Assignment> assignments = this.getReceiverIndex().get(giftReceiver.getId());
+        if (assignments != null) {
+            for (Assignment assignment : assignments) {
+                giftGivers.add(assignment.getGiftGiver());
+            }
+        }
+
+        return giftGivers;
+    }
+
+    /**
+     * Get all of the receivers that are assigned to a giver.
+     * When each participant gives more than one gift, a giver has more than one receiver.
+     * @param  giftGiver   Giver to check for
+     * @return Receivers that are assigned to the giver, possibly empty.
+     */
+    public ParticipantSet getGiftReceivers(Participant giftGiver) {
+        ParticipantSet giftReceivers = new ParticipantSet();
+
+        List<Assignment> assignments = this.getGiverIndex().get(giftGiver.getId());
+        if (assignments != null) {
+            for (Assignment assignment : assignments) {
+                giftReceivers.add(assignment.getGiftReceiver());
+            }
+        }
+
+        return giftReceivers;
+    }
+
+    /** Add an assignment to the end of the set. */
+    @Override
+    public boolean add(Assignment assignment) {
+        super.add(assignment);
+        this.addToIndexes(assignment);
+        return true;
+    }
+
+    /** Insert an assignment at a position in the set. */
+    @Override
+    public void add(int index, Assignment assignment) {
+        super.add(index, assignment);
+        this.clearIndexes();  // lookups must still find the first matching assignment
+    }
+
+    /** Add a collection of assignments to the end of the set. */
+    @Override
+    public boolean addAll(Collection<? extends Assignment> assignments) {
+        boolean changed = super.addAll(assignments);
+        this.clearIndexes();  // not every ArrayList implementation routes this through add()
+        return changed;
+    }
+
+    /** Insert a collection of assignments at a position in the set. */
+    @Override
+    public boolean addAll(int index, Collection<? extends Assignment> assignments) {
+        boolean changed = super.addAll(index, assignments);
+        this.clearIndexes();
+        return changed;
+    }
+
+    /** Replace the assignment at a position in the set. */
+    @Override
+    public Assignment set(int index, Assignment assignment) {
+        Assignment previous = super.set(index, assignment);
+        this.clearIndexes();  // the replacement must take the old assignment's place in the lookup order
+        return previous;
+    }
+
+    /** Remove the assignment at a position in the set. */
+    @Override
+    public Assignment remove(int index) {
+        Assignment removed = super.remove(index);
+        this.removeFromIndexes(removed);
+        return removed;
+    }
+
+    /** Remove the first occurrence of an assignment from the set. */
+    @Override
+    public boolean remove(Object assignment) {
+        int index = this.indexOf(assignment);
+        if (index < 0) {
+            return false;
+        }
+
+        this.remove(index);
+        return true;
+    }
+
+    /** Remove every assignment in a collection from the set. */
+    @Override
+    public boolean removeAll(Collection<?> assignments) {
+        this.clearIndexes();
+        return super.removeAll(assignments);
+    }
+
+    /** Remove every assignment that is not in a collection from the set. */
+    @Override
+    public boolean retainAll(Collection<?> assignments) {
+        this.clearIndexes();
+        return super.retainAll(assignments);
+    }
+
+    /** Remove all of the assignments from the set. */
+    @Override
+    public void clear() {
+        super.clear();
+        this.clearIndexes();
+    }
+
+    /**
+     * Get a view of part of the set.
+     * Reading through the view keeps the indexes.  Assignments set, added or removed through it discard the indexes.
+     */
+    @Override
+    public List<Assignment> subList(int fromIndex, int toIndex) {
+        return new AssignmentView(super.subList(fromIndex, toIndex));
+    }
+
+    /** Get the giver index, building it if necessary. */
+    private Map<Long, List<Assignment>> getGiverIndex() {
+        if (this.giverIndex == null) {
+            this.buildIndexes();
+        }
+
+        return this.giverIndex;
+    }
+
+    /** Get the receiver index, building it if necessary. */
+    private Map<Long, List<Assignment>> getReceiverIndex() {
+        if (this.receiverIndex == null) {
+            this.buildIndexes();
+        }
+
+        return this.receiverIndex;
+    }
+
+    /** Build both indexes from scratch. */
+    private void buildIndexes() {
+        this.giverIndex = new HashMap<Long, List<Assignment>>();
+        this.receiverIndex = new HashMap<Long, List<Assignment>>();
+        for (Assignment assignment : this) {
+            this.addToIndexes(assignment);
+        }
+    }
+
+    /** Discard both indexes, so they are rebuilt on the next lookup. */
+    private void clearIndexes() {
+        this.giverIndex = null;
+        this.receiverIndex = null;
+    }
+
+    /** Add an assignment to the indexes, if they have been built. */
+    private void addToIndexes(Assignment assignment) {
+        if (this.giverIndex != null && assignment != null) {
+            addToIndex(this.giverIndex, assignment.getGiftGiver(), assignment);
+            addToIndex(this.receiverIndex, assignment.getGiftReceiver(), assignment);
+        }
+    }
+
+    /** Remove an assignment from the indexes, if they have been built. */
+    private void removeFromIndexes(Assignment assignment) {
+        if (this.giverIndex != null && assignment != null) {
+            removeFromIndex(this.giverIndex, assignment.getGiftGiver(), assignment);
+            removeFromIndex(this.receiverIndex, assignment.getGiftReceiver(), assignment);
+        }
+    }
+
+    /** Add an assignment to an index, under a participant's id. */
+    private static void addToIndex(Map<Long, List<Assignment>> index, Participant participant, Assignment assignment) {
+        if (participant != null && participant.getId() != null) {
+            List<Assignment> assignments = index.get(participant.getId());
+            if (assignments == null) {
+                assignments = new ArrayList<Assignment>(1);
+                index.put(participant.getId(), assignments);
+            }
+
+            assignments.add(assignment);
+        }
+    }
+
+    /** Remove an assignment (by identity) from an index, under a participant's id. */
+    private static void removeFromIndex(Map<Long, List<Assignment>> index, Participant participant, Assignment assignment) {
+        if (participant != null && participant.getId() != null) {
+            List<Assignment> assignments = index.get(participant.getId());
+            if (assignments != null) {
+                for (int i = 0; i < assignments.size(); i++) {
+                    if (assignments.get(i) == assignment) {
+                        assignments.remove(i);
+                        break;
+                    }
+                }
 
-        if (giftGiver.getId() != null) {
-            for (Assignment assignment : this) {
-                if (giftGiver.getId().equals(assignment.getGiftGiver().getId())) {
-                    giftReceiver = assignment.getGiftReceiver();
-                    break;
+                if (assignments.isEmpty()) {
+                    index.remove(participant.getId());
                 }
             }
         }
+    }
+
+    /** View of part of the set, which discards the indexes whenever it is changed. */
+    private class AssignmentView extends AbstractList<Assignment> {
+
+        /** Underlying view of the set. */
+        private final List<Assignment> view;
+
+        /** Create a view on top of an underlying view of the set. */
+        public AssignmentView(List<Assignment> view) {
+            this.view = view;
+        }
+
+        @Override
+        public Assignment get(int index) {
+            return this.view.get(index);
+        }
+
+        @Override
+        public int size() {
+            return this.view.size();
+        }
+
+        @Override
+        public Assignment set(int index, Assignment assignment) {
+            Assignment previous = this.view.set(index, assignment);
+            clearIndexes();
+            return previous;
+        }
+
+        @Override
+        public void add(int index, Assignment assignment) {
+            this.view.add(index, assignment);
+            this.modCount++;
+            clearIndexes();
+        }
+
+        @Override
+        public Assignment remove(int index) {
+            Assignment removed = this.view.remove(index);
+            this.modCount++;
+            clearIndexes();
+            return removed;
+        }
 
-        return giftReceiver;
     }
 
 }
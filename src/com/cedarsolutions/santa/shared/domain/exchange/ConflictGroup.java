@@ -0,0 +1,125 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.shared.domain.exchange;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlType;
+
+import com.cedarsolutions.shared.domain.TranslatableDomainObject;
+import com.flipthebird.gwthashcodeequals.EqualsBuilder;
+import com.flipthebird.gwthashcodeequals.HashCodeBuilder;
+
+/**
+ * Group of participants (like a household) who may not give gifts to each other.
+ *
+ * <p>
+ * Unlike Participant.getConflictIds(), a group works in every direction: no one
+ * in the group gives a gift to anyone else in the group.  Members are stored
+ * by participant id, so a group of any size costs one id per member.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlType(name = "", propOrder = { "name", "participantIds" })
+public class ConflictGroup extends TranslatableDomainObject {
+
+    /** Serialization version number, which can be important to the GAE back-end. */
+    private static final long serialVersionUID = 1L;
+
+    /** Name of the group, like "Smith household". */
+    private String name;
+
+    /** Ids of the participants in the group. */
+    private List<Long> participantIds;
+
+    /** Default constructor. */
+    public ConflictGroup() {
+        this((String) null);
+    }
+
+    /** Values constructor. */
+    public ConflictGroup(String name) {
+        this.name = name;
+        this.participantIds = new ArrayList<Long>();
+    }
+
+    /** Copy constructor. */
+    public ConflictGroup(ConflictGroup source) {
+        if (source == null) {
+            this.participantIds = new ArrayList<Long>();
+        } else {
+            this.name = source.name;
+            this.participantIds = source.participantIds == null ? null : new ArrayList<Long>(source.participantIds);
+        }
+    }
+
+    /**
+     * Whether a participant is a member of this group.
+     * @param participantId  Id of the participant to check
+     * @return True if the participant is a member, false otherwise.
+     */
+    public boolean contains(Long participantId) {
+        return this.participantIds != null && this.participantIds.contains(participantId);
+    }
+
+    /** Compare this object to another object. */
+    @Override
+    public boolean equals(Object obj) {
+        ConflictGroup other = (ConflictGroup) obj;
+        return new EqualsBuilder()
+                    .append(this.name, other.name)
+                    .append(this.participantIds, other.participantIds)
+                    .isEquals();
+    }
+
+    /** Generate a hash code for this object. */
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                    .append(this.name)
+                    .append(this.participantIds)
+                    .toHashCode();
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public List<Long> getParticipantIds() {
+        return this.participantIds;
+    }
+
+    public void setParticipantIds(List<Long> participantIds) {
+        this.participantIds = participantIds;
+    }
+
+}
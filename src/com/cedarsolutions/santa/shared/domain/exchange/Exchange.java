@@ -22,6 +22,11 @@
  * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
 package com.cedarsolutions.santa.shared.domain.exchange;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
@@ -39,7 +44,9 @@ import com.flipthebird.gwthashcodeequals.HashCodeBuilder;
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlType(name = "", propOrder = { "id", "userId", "exchangeState", "name", "dateAndTime",
                                   "theme", "cost", "extraInfo", "organizer", "templateOverrides",
-                                  "participants", "assignments" })
+                                  "participants", "assignments", "assignmentSeed",
+                                  "priorExchangeIds", "priorPairingMode", "conflictGroups",
+                                  "giftsPerParticipant" })
 public class Exchange extends TranslatableDomainObject {
 
     /** Serialization version number, which can be important to the GAE back-end. */
@@ -81,12 +88,35 @@ public class Exchange extends TranslatableDomainObject {
     /** Assignments (if any). */
     private AssignmentSet assignments;
 
+    /** Random seed used to generate the assignments, so they can be regenerated exactly. */
+    private Long assignmentSeed;
+
+    /** Ids of prior exchanges (owned by the same user) whose pairings should be taken into account. */
+    private List<Long> priorExchangeIds;
+
+    /** How pairings from the prior exchanges are treated. */
+    private PriorPairingMode priorPairingMode;
+
+    /** Groups of participants (like households) who may not give gifts to each other. */
+    private List<ConflictGroup> conflictGroups;
+
+    /** Number of gifts each participant gives (and receives), or null for the usual single gift. */
+    private Integer giftsPerParticipant;
+
+    /** Whether anything other than the participants has changed since changes were last cleared. */
+    private transient boolean changed;
+
+    /** Whether the participant set as a whole has been replaced since changes were last cleared. */
+    private transient boolean participantsReplaced;
+
     /** Default constructor. */
     public Exchange() {
         this.organizer = new Organizer();
         this.templateOverrides = new TemplateConfig();
         this.participants = new ParticipantSet();
         this.assignments = null;  // yes, null -- it's optional
+        this.priorExchangeIds = new ArrayList<Long>();
+        this.conflictGroups = new ArrayList<ConflictGroup>();
     }
 
     /** Copy constructor. */
@@ -96,11 +126,31 @@ public class Exchange extends TranslatableDomainObject {
 
     /** Refresh an exchange in-place, kind of like using the copy constructor. */
     public void refresh(Exchange source) {
+        this.refresh(source, true);
+    }
+
+    /**
+     * Copy everything but the participants and assignments, which come back empty and null.
+     * This costs the same no matter how many participants the exchange has.
+     * @return Copy of this exchange, without its participants and assignments.
+     */
+    public Exchange copyHeader() {
+        Exchange header = new Exchange();
+        header.refresh(this, false);
+        return header;
+    }
+
+    /** Refresh an exchange in-place, possibly leaving out the participants and assignments. */
+    private void refresh(Exchange source, boolean participants) {
         if (source == null) {
             this.organizer = new Organizer();
             this.templateOverrides = new TemplateConfig();
             this.participants = new ParticipantSet();
             this.assignments = null;  // yes, null -- it's optional
+            this.priorExchangeIds = new ArrayList<Long>();
+            this.conflictGroups = new ArrayList<ConflictGroup>();
+            this.changed = false;
+            this.participantsReplaced = false;
         } else {
             this.id = source.id;
             this.userId = source.userId;
@@ -112,21 +162,220 @@ public class Exchange extends TranslatableDomainObject {
             this.extraInfo = source.extraInfo;
             this.organizer = new Organizer(source.organizer);
             this.templateOverrides = new TemplateConfig(source.templateOverrides);
-            this.participants = new ParticipantSet(source.participants);
-            this.assignments = source.assignments == null ? null : new AssignmentSet(source.assignments);
+            this.participants = participants ? new ParticipantSet(source.participants) : new ParticipantSet();
+            this.assignments = !participants || source.assignments == null ? null : new AssignmentSet(source.assignments);
+            this.assignmentSeed = source.assignmentSeed;
+            this.priorExchangeIds = source.priorExchangeIds == null ? null : new ArrayList<Long>(source.priorExchangeIds);
+            this.priorPairingMode = source.priorPairingMode;
+            this.conflictGroups = copyConflictGroups(source.conflictGroups);
+            this.giftsPerParticipant = source.giftsPerParticipant;
+            this.changed = source.changed;
+            this.participantsReplaced = source.participantsReplaced;
+        }
+    }
+
+    /**
+     * Take a copy-on-write snapshot of this exchange.
+     * @return A new exchange that shares its nodes with this one, as described for refreshShared().
+     */
+    public Exchange snapshot() {
+        Exchange snapshot = new Exchange();
+        snapshot.refreshShared(this);
+        return snapshot;
+    }
+
+    /**
+     * Refresh an exchange in-place, sharing nodes with the source rather than copying them.
+     *
+     * <p>
+     * Only the lists themselves are copied.  The organizer, template overrides,
+     * participants, assignments and conflict groups are shared with the source,
+     * so a refresh costs one reference per list entry instead of a copy of the
+     * whole object graph.  In exchange, shared nodes must be treated as
+     * immutable: to change one, replace it in the list with a modified copy
+     * (like replaceParticipant() and removeParticipant() do), or set a new
+     * organizer or template overrides.  Use refresh() or the copy constructor
+     * when you need a copy that is safe to change in place.
+     * </p>
+     *
+     * @param source  Exchange to refresh from
+     */
+    public void refreshShared(Exchange source) {
+        if (source == null) {
+            this.refresh(null);
+        } else {
+            this.id = source.id;
+            this.userId = source.userId;
+            this.exchangeState = source.exchangeState;
+            this.name = source.name;
+            this.dateAndTime = source.dateAndTime;
+            this.theme = source.theme;
+            this.cost = source.cost;
+            this.extraInfo = source.extraInfo;
+            this.organizer = source.organizer;
+            this.templateOverrides = source.templateOverrides;
+            this.participants = source.participants == null ? null : source.participants.snapshot();
+            this.assignments = shareAssignments(source.assignments);
+            this.assignmentSeed = source.assignmentSeed;
+            this.priorExchangeIds = source.priorExchangeIds == null ? null : new ArrayList<Long>(source.priorExchangeIds);
+            this.priorPairingMode = source.priorPairingMode;
+            this.conflictGroups = source.conflictGroups == null ? null : new ArrayList<ConflictGroup>(source.conflictGroups);
+            this.giftsPerParticipant = source.giftsPerParticipant;
+            this.changed = source.changed;
+            this.participantsReplaced = source.participantsReplaced;
+        }
+    }
+
+    /** Make a new assignment set that shares its assignments with the source. */
+    private static AssignmentSet shareAssignments(AssignmentSet source) {
+        if (source == null) {
+            return null;
+        }
+
+        AssignmentSet result = new AssignmentSet();
+        result.addAll(source);
+        return result;
+    }
+
+    /**
+     * Whether this exchange has changed since changes were last cleared.
+     *
+     * <p>
+     * This is tracked as changes are made, so it doesn't need to compare the
+     * exchange to anything.  Setters only count as a change if the new value
+     * is different, and the participant set tracks its own changes (see
+     * ParticipantSet.hasChanges()).  Lists and nodes that are changed in
+     * place are not tracked, which is another reason to follow the
+     * copy-on-write rules described for refreshShared().  The tracking state
+     * is transient; it is copied by refresh() and refreshShared(), and an
+     * exchange that comes back over RPC or out of the datastore starts out
+     * with no changes.
+     * </p>
+     *
+     * @return True if the exchange has changed, false otherwise.
+     */
+    public boolean hasChanges() {
+        return this.changed || (this.participants != null && this.participants.hasChanges());
+    }
+
+    /**
+     * Get the ids of the participants that have been added, replaced or removed since changes were last cleared.
+     * Replacing the participant set as a whole via setParticipants() counts as a change to the exchange, not to any participant.
+     * @return Set of changed participant ids, possibly empty.
+     */
+    public Set<Long> getChangedParticipantIds() {
+        if (this.participants == null) {
+            return new HashSet<Long>();
+        }
+
+        return this.participants.getChangedIds();
+    }
+
+    /**
+     * Whether this exchange is back to an earlier state, even though changes were made to it.
+     *
+     * <p>
+     * Only what change tracking (see hasChanges()) says was touched is
+     * compared: the fields if any field changed, and otherwise just the
+     * changed participants.  So, this costs about as much as the changes
+     * themselves, not a walk of the whole exchange.  Values are compared with
+     * equals(), so a field that was set back to its original value is not a
+     * change.
+     * </p>
+     *
+     * @param before  Earlier state of the exchange, which is the baseline for this exchange's change tracking
+     * @return True if this exchange is the same as the earlier state, false otherwise.
+     */
+    public boolean isUnchangedFrom(Exchange before) {
+        if (!this.hasChanges()) {
+            return true;
+        } else if (this.changed && !this.isSameFields(before)) {
+            return false;
+        } else if (this.participants == null || before.participants == null) {
+            return this.participants == before.participants;
+        } else if (this.participants.size() != before.participants.size()) {
+            return false;
+        } else if (this.participantsReplaced) {
+            return this.participants.equals(before.participants);
+        } else {
+            for (Long id : this.participants.getChangedIds()) {
+                int index = this.participants.indexOfId(id);
+                if (index != before.participants.indexOfId(id)) {
+                    return false;
+                } else if (index >= 0 && !this.participants.get(index).equals(before.participants.get(index))) {
+                    return false;
+                }
+            }
+
+            return true;
         }
     }
 
+    /** Whether every field other than the participants is the same as in another exchange. */
+    private boolean isSameFields(Exchange other) {
+        return new EqualsBuilder()
+                    .append(this.id, other.id)
+                    .append(this.userId, other.userId)
+                    .append(this.exchangeState, other.exchangeState)
+                    .append(this.name, other.name)
+                    .append(this.dateAndTime, other.dateAndTime)
+                    .append(this.theme, other.theme)
+                    .append(this.cost, other.cost)
+                    .append(this.extraInfo, other.extraInfo)
+                    .append(this.organizer, other.organizer)
+                    .append(this.templateOverrides, other.templateOverrides)
+                    .append(this.assignments, other.assignments)
+                    .append(this.assignmentSeed, other.assignmentSeed)
+                    .append(this.priorExchangeIds, other.priorExchangeIds)
+                    .append(this.priorPairingMode, other.priorPairingMode)
+                    .append(this.conflictGroups, other.conflictGroups)
+                    .append(this.giftsPerParticipant, other.giftsPerParticipant)
+                    .isEquals();
+    }
+
+    /** Clear change tracking, so the exchange's current state becomes the baseline. */
+    public void clearChanges() {
+        this.changed = false;
+        this.participantsReplaced = false;
+        if (this.participants != null) {
+            this.participants.clearChanges();
+        }
+    }
+
+    /** Note a change to a field, if the new value is actually different. */
+    private void fieldChanged(Object oldValue, Object newValue) {
+        if (oldValue == null ? newValue != null : newValue == null || !oldValue.equals(newValue)) {
+            this.changed = true;
+        }
+    }
+
+    /** Note a change to a list field, if the new list is not the same object (lists are not compared). */
+    private void referenceChanged(Object oldValue, Object newValue) {
+        if (oldValue != newValue) {
+            this.changed = true;
+        }
+    }
+
+    /** Copy a list of conflict groups. */
+    private static List<ConflictGroup> copyConflictGroups(List<ConflictGroup> source) {
+        if (source == null) {
+            return null;
+        }
+
+        List<ConflictGroup> result = new ArrayList<ConflictGroup>();
+        for (ConflictGroup group : source) {
+            result.add(new ConflictGroup(group));
+        }
+
+        return result;
+    }
+
     /** Get next participant id. */
     public long getNextParticipantId() {
         long largestId = 0;
 
         if (this.getParticipants() != null) {
-            for (Participant participant : this.getParticipants()) {
-                if (participant.getId() > largestId) {
-                    largestId = participant.getId();
-                }
-            }
+            largestId = this.getParticipants().getMaxId();
         }
 
         return largestId + 1;
@@ -142,12 +391,10 @@ public class Exchange extends TranslatableDomainObject {
 
         if (participant != null && participant.getId() != null) {
             if (this.getParticipants() != null) {
-                for (int index = 0; index < this.getParticipants().size(); index++) {
-                    if (equals(this.getParticipants().get(index).getId(), participant.getId())) {
-                        this.getParticipants().set(index, participant);
-                        found = true;
-                        break;
-                    }
+                int index = this.getParticipants().indexOfId(participant.getId());
+                if (index >= 0) {
+                    this.getParticipants().set(index, participant);
+                    found = true;
                 }
             }
         }
@@ -165,12 +412,14 @@ public class Exchange extends TranslatableDomainObject {
 
         if (participant != null && participant.getId() != null) {
             if (this.getParticipants() != null) {
-                for (int index = 0; index < this.getParticipants().size(); index++) {
-                    if (equals(this.getParticipants().get(index).getId(), participant.getId())) {
-                        this.getParticipants().remove(index);
-                        found = true;
-                        break;
-                    }
+                int index = this.getParticipants().indexOfId(participant.getId());
+                if (index >= 0) {
+                    this.getParticipants().remove(index);
+                    Set<Long> participantIds = new HashSet<Long>();
+                    participantIds.add(participant.getId());
+                    this.removeFromConflicts(participantIds);
+                    this.removeFromConflictGroups(participantIds);
+                    found = true;
                 }
             }
         }
@@ -178,6 +427,83 @@ public class Exchange extends TranslatableDomainObject {
         return found;
     }
 
+    /**
+     * Remove a list of participants from the participants list.
+     * This takes a single pass over the exchange, no matter how many participants are removed.
+     * @param participants  Participants to remove, by id
+     * @return Number of participants that were removed.
+     */
+    public int removeParticipants(List<Participant> participants) {
+        int removed = 0;
+
+        if (participants != null && !participants.isEmpty()) {
+            if (this.getParticipants() != null) {
+                Set<Long> participantIds = new HashSet<Long>();
+                for (Participant participant : participants) {
+                    if (participant != null && participant.getId() != null) {
+                        participantIds.add(participant.getId());
+                    }
+                }
+
+                removed = this.getParticipants().removeParticipants(participantIds);
+                if (removed > 0) {
+                    this.removeFromConflicts(participantIds);
+                    this.removeFromConflictGroups(participantIds);
+                }
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * Remove participants from every other participant's conflicts.
+     * Otherwise, a new participant that reuses an id would silently inherit the conflicts.
+     * @param participantIds  Ids of the participants to remove
+     */
+    private void removeFromConflicts(Set<Long> participantIds) {
+        ParticipantSet participants = this.getParticipants();
+        for (int index = 0; index < participants.size(); index++) {
+            if (containsAny(participants.get(index).getConflictIds(), participantIds)) {
+                Participant participant = new Participant(participants.get(index));  // copy on write, see refreshShared()
+                participant.getConflictIds().removeAll(participantIds);
+                participants.set(index, participant);
+            }
+        }
+    }
+
+    /**
+     * Remove participants from every conflict group.
+     * Otherwise, a new participant that reuses an id would silently join the group.
+     * @param participantIds  Ids of the participants to remove
+     */
+    private void removeFromConflictGroups(Set<Long> participantIds) {
+        if (this.getConflictGroups() != null) {
+            List<ConflictGroup> groups = this.getConflictGroups();
+            for (int index = 0; index < groups.size(); index++) {
+                if (containsAny(groups.get(index).getParticipantIds(), participantIds)) {
+                    ConflictGroup group = new ConflictGroup(groups.get(index));  // copy on write, see refreshShared()
+                    group.getParticipantIds().removeAll(participantIds);
+                    groups.set(index, group);
+                    this.changed = true;
+                }
+            }
+        }
+    }
+
+    /** Whether a list of ids (possibly null) contains any of a set of ids. */
+    private static boolean containsAny(List<Long> ids, Set<Long> search) {
+        if (ids != null) {
+            for (Long id : ids) {
+                if (search.contains(id)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Get a participant from the participants list by id.
      * @param participantId   Id of the participant to retrieve
@@ -185,14 +511,109 @@ public class Exchange extends TranslatableDomainObject {
      */
     public Participant getParticipantById(long participantId) {
         if (this.getParticipants() != null) {
-            for (int index = 0; index < this.getParticipants().size(); index++) {
-                if (equals(this.getParticipants().get(index).getId(), participantId)) {
-                    return this.getParticipants().get(index);
+            return this.getParticipants().getParticipantById(participantId);
+        }
+
+        return null;
+    }
+
+    /**
+     * Resolve a participant's conflicts against the participants list.
+     * Ids that don't match any participant in this exchange are ignored.
+     * @param participant  Participant whose conflicts should be resolved
+     * @return Participants that the passed-in participant conflicts with, possibly empty.
+     */
+    public ParticipantSet getConflicts(Participant participant) {
+        if (this.getParticipants() == null) {
+            return new ParticipantSet();
+        }
+
+        return this.getParticipants().getParticipants(participant.getConflictIds());
+    }
+
+    /**
+     * Convert conflicts stored by older versions into conflict ids.
+     * This covers both the participants list and the participants copied into the assignments.
+     * @return True if there was anything to convert, false otherwise.
+     */
+    public boolean upgradeConflicts() {
+        boolean upgraded = false;
+
+        if (this.getParticipants() != null) {
+            for (Participant participant : this.getParticipants()) {
+                upgraded |= participant.upgradeConflicts();
+            }
+        }
+
+        if (this.getAssignments() != null) {
+            for (Assignment assignment : this.getAssignments()) {
+                if (assignment.getGiftGiver() != null) {
+                    upgraded |= assignment.getGiftGiver().upgradeConflicts();
+                }
+
+                if (assignment.getGiftReceiver() != null) {
+                    upgraded |= assignment.getGiftReceiver().upgradeConflicts();
                 }
             }
         }
 
-        return null;
+        return upgraded;
+    }
+
+    /**
+     * Apply a page of changes that were made to another copy of this exchange.
+     *
+     * <p>
+     * This is how an exchange is saved a page at a time, rather than sending
+     * the whole exchange.  The header's fields replace this exchange's fields,
+     * except for the id, user id, participants, assignments and assignment
+     * seed, which are left alone.  Removed participants are removed just like
+     * removeParticipants() does.  Then, each participant replaces the one
+     * with the same id, or is added at the end if there isn't one.  Applying
+     * the same page more than once has the same result as applying it once.
+     * </p>
+     *
+     * @param header        Exchange whose fields should be applied, without its participants or assignments
+     * @param participants  Participants that were added or replaced, possibly null
+     * @param removedIds    Ids of the participants that were removed, possibly null
+     */
+    public void applyChanges(Exchange header, List<Participant> participants, List<Long> removedIds) {
+        this.setExchangeState(header.getExchangeState());
+        this.setName(header.getName());
+        this.setDateAndTime(header.getDateAndTime());
+        this.setTheme(header.getTheme());
+        this.setCost(header.getCost());
+        this.setExtraInfo(header.getExtraInfo());
+        this.setOrganizer(header.getOrganizer());
+        this.setTemplateOverrides(header.getTemplateOverrides());
+        this.setPriorExchangeIds(header.getPriorExchangeIds());
+        this.setPriorPairingMode(header.getPriorPairingMode());
+        this.setConflictGroups(header.getConflictGroups());
+        this.setGiftsPerParticipant(header.getGiftsPerParticipant());
+
+        if (this.getParticipants() == null) {
+            this.setParticipants(new ParticipantSet());
+        }
+
+        if (removedIds != null && !removedIds.isEmpty()) {
+            List<Participant> removed = new ArrayList<Participant>();
+            for (Long removedId : removedIds) {
+                Participant participant = this.getParticipants().getParticipantById(removedId);
+                if (participant != null) {
+                    removed.add(participant);
+                }
+            }
+
+            this.removeParticipants(removed);
+        }
+
+        if (participants != null) {
+            for (Participant participant : participants) {
+                if (!this.replaceParticipant(participant)) {
+                    this.getParticipants().add(participant);
+                }
+            }
+        }
     }
 
     /** Compare this object to another object. */
@@ -212,6 +633,11 @@ public class Exchange extends TranslatableDomainObject {
                     .append(this.templateOverrides, other.templateOverrides)
                     .append(this.participants, other.participants)
                     .append(this.assignments, other.assignments)
+                    .append(this.assignmentSeed, other.assignmentSeed)
+                    .append(this.priorExchangeIds, other.priorExchangeIds)
+                    .append(this.priorPairingMode, other.priorPairingMode)
+                    .append(this.conflictGroups, other.conflictGroups)
+                    .append(this.giftsPerParticipant, other.giftsPerParticipant)
                     .isEquals();
     }
 
@@ -231,30 +657,20 @@ public class Exchange extends TranslatableDomainObject {
                     .append(this.templateOverrides)
                     .append(this.participants)
                     .append(this.assignments)
+                    .append(this.assignmentSeed)
+                    .append(this.priorExchangeIds)
+                    .append(this.priorPairingMode)
+                    .append(this.conflictGroups)
+                    .append(this.giftsPerParticipant)
                     .toHashCode();
     }
 
-    /**
-     * Indicates whether two integer values are equal (null-safe).
-     * @param obj1  First object to compare
-     * @param obj2  Second object to compare
-     * @return True if the objects are equal, false otherwise.
-     */
-    private static boolean equals(Long obj1, Long obj2) {
-        if (obj1 == null) {
-            return obj2 == null;
-        } else if (obj2 == null) {
-            return obj1 == null;
-        } else {
-            return obj1.equals(obj2);
-        }
-    }
-
     public Long getId() {
         return this.id;
     }
 
     public void setId(Long id) {
+        this.fieldChanged(this.id, id);
         this.id = id;
     }
 
@@ -263,6 +679,7 @@ public class Exchange extends TranslatableDomainObject {
     }
 
     public void setUserId(String userId) {
+        this.fieldChanged(this.userId, userId);
         this.userId = userId;
     }
 
@@ -271,6 +688,7 @@ public class Exchange extends TranslatableDomainObject {
     }
 
     public void setExchangeState(ExchangeState state) {
+        this.fieldChanged(this.exchangeState, state);
         this.exchangeState = state;
     }
 
@@ -279,6 +697,7 @@ public class Exchange extends TranslatableDomainObject {
     }
 
     public void setName(String name) {
+        this.fieldChanged(this.name, name);
         this.name = name;
     }
 
@@ -287,6 +706,7 @@ public class Exchange extends TranslatableDomainObject {
     }
 
     public void setDateAndTime(String dateAndTime) {
+        this.fieldChanged(this.dateAndTime, dateAndTime);
         this.dateAndTime = dateAndTime;
     }
 
@@ -295,6 +715,7 @@ public class Exchange extends TranslatableDomainObject {
     }
 
     public void setTheme(String theme) {
+        this.fieldChanged(this.theme, theme);
         this.theme = theme;
     }
 
@@ -303,6 +724,7 @@ public class Exchange extends TranslatableDomainObject {
     }
 
     public void setCost(String cost) {
+        this.fieldChanged(this.cost, cost);
         this.cost = cost;
     }
 
@@ -311,6 +733,7 @@ public class Exchange extends TranslatableDomainObject {
     }
 
     public void setExtraInfo(String extraInfo) {
+        this.fieldChanged(this.extraInfo, extraInfo);
         this.extraInfo = extraInfo;
     }
 
@@ -319,6 +742,7 @@ public class Exchange extends TranslatableDomainObject {
     }
 
     public void setOrganizer(Organizer organizer) {
+        this.fieldChanged(this.organizer, organizer);
         this.organizer = organizer;
     }
 
@@ -327,6 +751,7 @@ public class Exchange extends TranslatableDomainObject {
     }
 
     public void setTemplateOverrides(TemplateConfig templateOverrides) {
+        this.fieldChanged(this.templateOverrides, templateOverrides);
         this.templateOverrides = templateOverrides;
     }
 
@@ -335,6 +760,8 @@ public class Exchange extends TranslatableDomainObject {
     }
 
     public void setParticipants(ParticipantSet participants) {
+        this.referenceChanged(this.participants, participants);
+        this.participantsReplaced |= this.participants != participants;
         this.participants = participants;
     }
 
@@ -343,6 +770,52 @@ public class Exchange extends TranslatableDomainObject {
     }
 
     public void setAssignments(AssignmentSet assignments) {
+        this.referenceChanged(this.assignments, assignments);
         this.assignments = assignments;
     }
+
+    public Long getAssignmentSeed() {
+        return this.assignmentSeed;
+    }
+
+    public void setAssignmentSeed(Long assignmentSeed) {
+        this.fieldChanged(this.assignmentSeed, assignmentSeed);
+        this.assignmentSeed = assignmentSeed;
+    }
+
+    public List<Long> getPriorExchangeIds() {
+        return this.priorExchangeIds;
+    }
+
+    public void setPriorExchangeIds(List<Long> priorExchangeIds) {
+        this.referenceChanged(this.priorExchangeIds, priorExchangeIds);
+        this.priorExchangeIds = priorExchangeIds;
+    }
+
+    public PriorPairingMode getPriorPairingMode() {
+        return this.priorPairingMode;
+    }
+
+    public void setPriorPairingMode(PriorPairingMode priorPairingMode) {
+        this.fieldChanged(this.priorPairingMode, priorPairingMode);
+        this.priorPairingMode = priorPairingMode;
+    }
+
+    public List<ConflictGroup> getConflictGroups() {
+        return this.conflictGroups;
+    }
+
+    public void setConflictGroups(List<ConflictGroup> conflictGroups) {
+        this.referenceChanged(this.conflictGroups, conflictGroups);
+        this.conflictGroups = conflictGroups;
+    }
+
+    public Integer getGiftsPerParticipant() {
+        return this.giftsPerParticipant;
+    }
+
+    public void setGiftsPerParticipant(Integer giftsPerParticipant) {
+        this.fieldChanged(this.giftsPerParticipant, giftsPerParticipant);
+        this.giftsPerParticipant = giftsPerParticipant;
+    }
 }
@@ -0,0 +1,433 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.shared.domain.exchange;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The difference between two states of an exchange, which can be undone and redone.
+ *
+ * <p>
+ * A delta only holds what changed: the old and new values of the fields that
+ * changed, plus the old and new versions (and positions) of the participants
+ * that were added, replaced or removed.  Values are shared with the exchange
+ * rather than copied, following the copy-on-write rules described for
+ * Exchange.refreshShared(), so a delta costs about as much as the edit it
+ * describes.  Participants are matched up by id.  If that isn't possible
+ * (participants without ids, duplicate ids, or participants that were moved
+ * around), the delta falls back to holding both participant lists.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class ExchangeDelta {
+
+    /** Rough size of an object reference plus its share of object overhead, in bytes. */
+    private static final int REFERENCE_SIZE = 16;
+
+    /** Rough size of a participant, not counting its strings and conflicts, in bytes. */
+    private static final int PARTICIPANT_SIZE = 96;
+
+    // Flags for the fields that changed
+    private static final int ID = 1 << 0;
+    private static final int USER_ID = 1 << 1;
+    private static final int EXCHANGE_STATE = 1 << 2;
+    private static final int NAME = 1 << 3;
+    private static final int DATE_AND_TIME = 1 << 4;
+    private static final int THEME = 1 << 5;
+    private static final int COST = 1 << 6;
+    private static final int EXTRA_INFO = 1 << 7;
+    private static final int ORGANIZER = 1 << 8;
+    private static final int TEMPLATE_OVERRIDES = 1 << 9;
+    private static final int ASSIGNMENTS = 1 << 10;
+    private static final int ASSIGNMENT_SEED = 1 << 11;
+    private static final int PRIOR_EXCHANGE_IDS = 1 << 12;
+    private static final int PRIOR_PAIRING_MODE = 1 << 13;
+    private static final int CONFLICT_GROUPS = 1 << 14;
+    private static final int GIFTS_PER_PARTICIPANT = 1 << 15;
+    private static final int ALL_FIELDS = (GIFTS_PER_PARTICIPANT << 1) - 1;
+
+    /** Flags for the fields that changed. */
+    private int changedFields;
+
+    /** Holds the old values of the changed fields, or null if no fields changed. */
+    private Exchange fieldsBefore;
+
+    /** Holds the new values of the changed fields, or null if no fields changed. */
+    private Exchange fieldsAfter;
+
+    /** Ids of the participants that were added, replaced or removed. */
+    private Set<Long> changedIds;
+
+    /** Positions of the old participants, in ascending order. */
+    private List<Integer> beforeIndexes;
+
+    /** Old participants that were replaced or removed, in the same order as beforeIndexes. */
+    private List<Participant> beforeParticipants;
+
+    /** Positions of the new participants, in ascending order. */
+    private List<Integer> afterIndexes;
+
+    /** New participants that were added or that replaced old ones, in the same order as afterIndexes. */
+    private List<Participant> afterParticipants;
+
+    /** The whole old participant list, if participants could not be matched up by id. */
+    private ParticipantSet participantsBefore;
+
+    /** The whole new participant list, if participants could not be matched up by id. */
+    private ParticipantSet participantsAfter;
+
+    /** Whether the whole participant list is held, rather than individual participants. */
+    private boolean wholeParticipants;
+
+    /** Estimated size of the delta, in bytes. */
+    private long estimatedSize;
+
+    /** Create a delta via compare(). */
+    private ExchangeDelta() {
+        this.changedIds = new HashSet<Long>();
+        this.beforeIndexes = new ArrayList<Integer>();
+        this.beforeParticipants = new ArrayList<Participant>();
+        this.afterIndexes = new ArrayList<Integer>();
+        this.afterParticipants = new ArrayList<Participant>();
+    }
+
+    /**
+     * Compare two states of an exchange.
+     * Neither exchange is changed, and both may go on being changed afterwards.
+     * @param before  State of the exchange before the edit
+     * @param after   State of the exchange after the edit
+     * @return Delta that describes the difference, possibly empty.
+     */
+    public static ExchangeDelta compare(Exchange before, Exchange after) {
+        ExchangeDelta delta = new ExchangeDelta();
+        delta.compareFields(before, after);
+        delta.compareParticipants(before.getParticipants(), after.getParticipants());
+        return delta;
+    }
+
+    /** Whether the delta is empty, meaning the two states were the same. */
+    public boolean isEmpty() {
+        return this.changedFields == 0 && this.changedIds.isEmpty() && !this.wholeParticipants;
+    }
+
+    /** Get the ids of the participants that were added, replaced or removed. */
+    public Set<Long> getChangedParticipantIds() {
+        return new HashSet<Long>(this.changedIds);
+    }
+
+    /**
+     * Get the estimated size of this delta, in bytes.
+     * This is only a rough guide, and it counts shared values as if they belonged to the delta.
+     */
+    public long getEstimatedSize() {
+        return this.estimatedSize;
+    }
+
+    /**
+     * Undo the change described by this delta.
+     * @param exchange  Exchange in the state after the edit, which will be changed in place
+     */
+    public void undo(Exchange exchange) {
+        applyFields(exchange, this.fieldsBefore, this.changedFields);
+        this.applyParticipants(exchange, this.participantsBefore, this.beforeIndexes, this.beforeParticipants);
+    }
+
+    /**
+     * Redo the change described by this delta.
+     * @param exchange  Exchange in the state before the edit, which will be changed in place
+     */
+    public void redo(Exchange exchange) {
+        applyFields(exchange, this.fieldsAfter, this.changedFields);
+        this.applyParticipants(exchange, this.participantsAfter, this.afterIndexes, this.afterParticipants);
+    }
+
+    /** Compare the fields of two exchanges, other than the participants. */
+    private void compareFields(Exchange before, Exchange after) {
+        int changed = 0;
+        changed |= same(before.getId(), after.getId()) ? 0 : ID;
+        changed |= same(before.getUserId(), after.getUserId()) ? 0 : USER_ID;
+        changed |= same(before.getExchangeState(), after.getExchangeState()) ? 0 : EXCHANGE_STATE;
+        changed |= same(before.getName(), after.getName()) ? 0 : NAME;
+        changed |= same(before.getDateAndTime(), after.getDateAndTime()) ? 0 : DATE_AND_TIME;
+        changed |= same(before.getTheme(), after.getTheme()) ? 0 : THEME;
+        changed |= same(before.getCost(), after.getCost()) ? 0 : COST;
+        changed |= same(before.getExtraInfo(), after.getExtraInfo()) ? 0 : EXTRA_INFO;
+        changed |= same(before.getOrganizer(), after.getOrganizer()) ? 0 : ORGANIZER;
+        changed |= same(before.getTemplateOverrides(), after.getTemplateOverrides()) ? 0 : TEMPLATE_OVERRIDES;
+        changed |= sameElements(before.getAssignments(), after.getAssignments()) ? 0 : ASSIGNMENTS;
+        changed |= same(before.getAssignmentSeed(), after.getAssignmentSeed()) ? 0 : ASSIGNMENT_SEED;
+        changed |= same(before.getPriorExchangeIds(), after.getPriorExchangeIds()) ? 0 : PRIOR_EXCHANGE_IDS;
+        changed |= same(before.getPriorPairingMode(), after.getPriorPairingMode()) ? 0 : PRIOR_PAIRING_MODE;
+        changed |= sameElements(before.getConflictGroups(), after.getConflictGroups()) ? 0 : CONFLICT_GROUPS;
+        changed |= same(before.getGiftsPerParticipant(), after.getGiftsPerParticipant()) ? 0 : GIFTS_PER_PARTICIPANT;
+
+        if (changed != 0) {
+            this.changedFields = changed;
+            this.fieldsBefore = new Exchange();
+            this.fieldsAfter = new Exchange();
+            applyFields(this.fieldsBefore, before, changed);
+            applyFields(this.fieldsAfter, after, changed);
+            this.estimatedSize += estimateSize(this.fieldsBefore, changed) + estimateSize(this.fieldsAfter, changed);
+        }
+    }
+
+    /** Compare two participant lists, matching participants up by id. */
+    private void compareParticipants(ParticipantSet before, ParticipantSet after) {
+        if (before == null || after == null) {
+            this.holdWholeParticipants(before, after);
+            return;
+        }
+
+        int lastUnchanged = -1;
+        for (int index = 0; index < after.size(); index++) {
+            Participant participant = after.get(index);
+            if (!isIndexed(after, participant, index)) {
+                this.holdWholeParticipants(before, after);
+                return;
+            }
+
+            if (before.getParticipantById(participant.getId()) == participant) {
+                int beforeIndex = before.indexOfId(participant.getId());
+                if (beforeIndex < lastUnchanged) {
+                    this.holdWholeParticipants(before, after);  // participants were moved around
+                    return;
+                }
+
+                lastUnchanged = beforeIndex;
+            } else {
+                this.changedIds.add(participant.getId());
+                this.afterIndexes.add(index);
+                this.afterParticipants.add(participant);
+                this.estimatedSize += REFERENCE_SIZE + estimateSize(participant);
+            }
+        }
+
+        for (int index = 0; index < before.size(); index++) {
+            Participant participant = before.get(index);
+            if (!isIndexed(before, participant, index)) {
+                this.holdWholeParticipants(before, after);
+                return;
+            }
+
+            if (this.changedIds.contains(participant.getId()) || after.indexOfId(participant.getId()) < 0) {
+                this.changedIds.add(participant.getId());
+                this.beforeIndexes.add(index);
+                this.beforeParticipants.add(participant);
+                this.estimatedSize += REFERENCE_SIZE + estimateSize(participant);
+            }
+        }
+    }
+
+    /** Whether a participant can be found by its id at its position in a set. */
+    private static boolean isIndexed(ParticipantSet participants, Participant participant, int index) {
+        return participant != null && participant.getId() != null && participants.indexOfId(participant.getId()) == index;
+    }
+
+    /** Give up on matching participants by id, and hold both participant lists instead. */
+    private void holdWholeParticipants(ParticipantSet before, ParticipantSet after) {
+        this.changedIds.clear();
+        this.beforeIndexes.clear();
+        this.beforeParticipants.clear();
+        this.afterIndexes.clear();
+        this.afterParticipants.clear();
+        this.wholeParticipants = true;
+        this.participantsBefore = before == null ? null : before.snapshot();
+        this.participantsAfter = after == null ? null : after.snapshot();
+
+        long size = 0;
+        for (ParticipantSet participants : new ParticipantSet[] { before, after }) {
+            if (participants != null) {
+                for (Participant participant : participants) {
+                    size += REFERENCE_SIZE + estimateSize(participant);
+                }
+            }
+        }
+
+        this.estimatedSize = estimateSize(this.fieldsBefore, this.changedFields)
+                             + estimateSize(this.fieldsAfter, this.changedFields) + size;
+    }
+
+    /** Apply one side of the participant changes to an exchange. */
+    private void applyParticipants(Exchange exchange, ParticipantSet whole, List<Integer> indexes, List<Participant> participants) {
+        if (this.wholeParticipants) {
+            exchange.setParticipants(whole == null ? null : whole.snapshot());
+        } else if (!this.changedIds.isEmpty()) {
+            exchange.getParticipants().removeParticipants(this.changedIds);
+            for (int i = 0; i < indexes.size(); i++) {
+                exchange.getParticipants().add(indexes.get(i), participants.get(i));
+            }
+        }
+    }
+
+    /** Copy flagged fields from one exchange to another, copying lists so neither side shares them. */
+    private static void applyFields(Exchange target, Exchange source, int fields) {
+        if (fields == 0) {
+            return;
+        }
+
+        if ((fields & ID) != 0) {
+            target.setId(source.getId());
+        }
+
+        if ((fields & USER_ID) != 0) {
+            target.setUserId(source.getUserId());
+        }
+
+        if ((fields & EXCHANGE_STATE) != 0) {
+            target.setExchangeState(source.getExchangeState());
+        }
+
+        if ((fields & NAME) != 0) {
+            target.setName(source.getName());
+        }
+
+        if ((fields & DATE_AND_TIME) != 0) {
+            target.setDateAndTime(source.getDateAndTime());
+        }
+
+        if ((fields & THEME) != 0) {
+            target.setTheme(source.getTheme());
+        }
+
+        if ((fields & COST) != 0) {
+            target.setCost(source.getCost());
+        }
+
+        if ((fields & EXTRA_INFO) != 0) {
+            target.setExtraInfo(source.getExtraInfo());
+        }
+
+        if ((fields & ORGANIZER) != 0) {
+            target.setOrganizer(source.getOrganizer());
+        }
+
+        if ((fields & TEMPLATE_OVERRIDES) != 0) {
+            target.setTemplateOverrides(source.getTemplateOverrides());
+        }
+
+        if ((fields & ASSIGNMENTS) != 0) {
+            AssignmentSet assignments = null;
+            if (source.getAssignments() != null) {
+                assignments = new AssignmentSet();
+                assignments.addAll(source.getAssignments());
+            }
+
+            target.setAssignments(assignments);
+        }
+
+        if ((fields & ASSIGNMENT_SEED) != 0) {
+            target.setAssignmentSeed(source.getAssignmentSeed());
+        }
+
+        if ((fields & PRIOR_EXCHANGE_IDS) != 0) {
+            target.setPriorExchangeIds(source.getPriorExchangeIds() == null ? null : new ArrayList<Long>(source.getPriorExchangeIds()));
+        }
+
+        if ((fields & PRIOR_PAIRING_MODE) != 0) {
+            target.setPriorPairingMode(source.getPriorPairingMode());
+        }
+
+        if ((fields & CONFLICT_GROUPS) != 0) {
+            target.setConflictGroups(source.getConflictGroups() == null ? null : new ArrayList<ConflictGroup>(source.getConflictGroups()));
+        }
+
+        if ((fields & GIFTS_PER_PARTICIPANT) != 0) {
+            target.setGiftsPerParticipant(source.getGiftsPerParticipant());
+        }
+    }
+
+    /**
+     * Estimate the size of a whole exchange, in bytes, on the same rough basis as a delta.
+     * @param exchange  Exchange to estimate
+     * @return Estimated size of the exchange, in bytes.
+     */
+    public static long estimateSize(Exchange exchange) {
+        long size = estimateSize(exchange, ALL_FIELDS);
+        for (Participant participant : exchange.getParticipants()) {
+            size += REFERENCE_SIZE + estimateSize(participant);
+        }
+
+        return size;
+    }
+
+    /** Estimate the size of the flagged fields of an exchange, in bytes. */
+    private static long estimateSize(Exchange fields, int changed) {
+        if (fields == null) {
+            return 0;
+        }
+
+        long size = REFERENCE_SIZE * Integer.bitCount(changed);
+        size += estimateSize(fields.getUserId()) + estimateSize(fields.getName()) + estimateSize(fields.getDateAndTime());
+        size += estimateSize(fields.getTheme()) + estimateSize(fields.getCost()) + estimateSize(fields.getExtraInfo());
+        size += fields.getAssignments() == null ? 0 : REFERENCE_SIZE * fields.getAssignments().size();
+        size += fields.getPriorExchangeIds() == null ? 0 : REFERENCE_SIZE * fields.getPriorExchangeIds().size();
+        size += fields.getConflictGroups() == null ? 0 : REFERENCE_SIZE * fields.getConflictGroups().size();
+        return size;
+    }
+
+    /** Estimate the size of a participant, in bytes. */
+    private static long estimateSize(Participant participant) {
+        long size = PARTICIPANT_SIZE;
+        size += estimateSize(participant.getName()) + estimateSize(participant.getNickname()) + estimateSize(participant.getEmailAddress());
+        size += participant.getConflictIds() == null ? 0 : REFERENCE_SIZE * participant.getConflictIds().size();
+        return size;
+    }
+
+    /** Estimate the size of a string, in bytes. */
+    private static long estimateSize(String value) {
+        return value == null ? 0 : 2 * value.length();
+    }
+
+    /** Whether two values are the same, either by reference or by equals(). */
+    private static boolean same(Object value1, Object value2) {
+        if (value1 == value2) {
+            return true;
+        } else if (value1 == null || value2 == null) {
+            return false;
+        } else {
+            return value1.equals(value2);
+        }
+    }
+
+    /** Whether two lists hold the same elements by reference, which avoids a deep comparison. */
+    private static boolean sameElements(List<?> list1, List<?> list2) {
+        if (list1 == list2) {
+            return true;
+        } else if (list1 == null || list2 == null || list1.size() != list2.size()) {
+            return false;
+        } else {
+            for (int i = 0; i < list1.size(); i++) {
+                if (list1.get(i) != list2.get(i)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+}
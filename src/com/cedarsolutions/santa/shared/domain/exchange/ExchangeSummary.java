@@ -0,0 +1,175 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.shared.domain.exchange;
+
+import java.util.Date;
+
+import com.cedarsolutions.shared.domain.TranslatableDomainObject;
+import com.flipthebird.gwthashcodeequals.EqualsBuilder;
+import com.flipthebird.gwthashcodeequals.HashCodeBuilder;
+
+/**
+ * Summary of an exchange, with just enough information to list it.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class ExchangeSummary extends TranslatableDomainObject {
+
+    /** Serialization version number, which can be important to the GAE back-end. */
+    private static final long serialVersionUID = 1L;
+
+    /** Exchange id. */
+    private Long id;
+
+    /** User which owns this exchange. */
+    private String userId;
+
+    /** Name of the exchange. */
+    private String name;
+
+    /** State of the exchange. */
+    private ExchangeState exchangeState;
+
+    /** Date and time of the exchange. */
+    private String dateAndTime;
+
+    /** Number of participants in the exchange. */
+    private int participantCount;
+
+    /** Date and time the exchange was last saved. */
+    private Date lastModified;
+
+    /** Default constructor. */
+    public ExchangeSummary() {
+    }
+
+    /** Create a summary of an exchange. */
+    public ExchangeSummary(Exchange exchange) {
+        if (exchange != null) {
+            this.id = exchange.getId();
+            this.userId = exchange.getUserId();
+            this.name = exchange.getName();
+            this.exchangeState = exchange.getExchangeState();
+            this.dateAndTime = exchange.getDateAndTime();
+            this.participantCount = exchange.getParticipants() == null ? 0 : exchange.getParticipants().size();
+        }
+    }
+
+    /** Copy constructor. */
+    public ExchangeSummary(ExchangeSummary source) {
+        if (source != null) {
+            this.id = source.id;
+            this.userId = source.userId;
+            this.name = source.name;
+            this.exchangeState = source.exchangeState;
+            this.dateAndTime = source.dateAndTime;
+            this.participantCount = source.participantCount;
+            this.lastModified = source.lastModified;
+        }
+    }
+
+    /** Compare this object to another object. */
+    @Override
+    public boolean equals(Object obj) {
+        ExchangeSummary other = (ExchangeSummary) obj;
+        return new EqualsBuilder()
+                    .append(this.id, other.id)
+                    .append(this.userId, other.userId)
+                    .append(this.name, other.name)
+                    .append(this.exchangeState, other.exchangeState)
+                    .append(this.dateAndTime, other.dateAndTime)
+                    .append(this.participantCount, other.participantCount)
+                    .append(this.lastModified, other.lastModified)
+                    .isEquals();
+    }
+
+    /** Generate a hash code for this object. */
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                    .append(this.id)
+                    .append(this.userId)
+                    .append(this.name)
+                    .append(this.exchangeState)
+                    .append(this.dateAndTime)
+                    .append(this.participantCount)
+                    .append(this.lastModified)
+                    .toHashCode();
+    }
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return this.userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public ExchangeState getExchangeState() {
+        return this.exchangeState;
+    }
+
+    public void setExchangeState(ExchangeState exchangeState) {
+        this.exchangeState = exchangeState;
+    }
+
+    public String getDateAndTime() {
+        return this.dateAndTime;
+    }
+
+    public void setDateAndTime(String dateAndTime) {
+        this.dateAndTime = dateAndTime;
+    }
+
+    public int getParticipantCount() {
+        return this.participantCount;
+    }
+
+    public void setParticipantCount(int participantCount) {
+        this.participantCount = participantCount;
+    }
+
+    public Date getLastModified() {
+        return this.lastModified;
+    }
+
+    public void setLastModified(Date lastModified) {
+        this.lastModified = lastModified;
+    }
+
+}
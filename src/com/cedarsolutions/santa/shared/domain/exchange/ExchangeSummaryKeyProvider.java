@@ -0,0 +1,36 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.shared.domain.exchange;
+
+import com.google.gwt.view.client.ProvidesKey;
+
+/**
+ * Key provider for ExchangeSummary objects.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class ExchangeSummaryKeyProvider implements ProvidesKey<ExchangeSummary> {
+    @Override
+    public Object getKey(ExchangeSummary item) {
+        return item == null ? null : item.getId();
+    }
+}
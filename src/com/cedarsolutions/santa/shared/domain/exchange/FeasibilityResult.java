@@ -0,0 +1,131 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.shared.domain.exchange;
+
+import com.cedarsolutions.shared.domain.TranslatableDomainObject;
+import com.flipthebird.gwthashcodeequals.EqualsBuilder;
+import com.flipthebird.gwthashcodeequals.HashCodeBuilder;
+
+/**
+ * Result of checking whether an exchange's conflicts allow a valid set of assignments.
+ *
+ * <p>
+ * When the exchange is not feasible, the blocking participants explain why.
+ * If the blocking participants are givers, then together they are only
+ * allowed to give gifts to the partners, and there is one fewer partner than
+ * there are blocking participants.  Otherwise, the blocking participants are
+ * receivers, and together they can only receive gifts from the partners.
+ * Either way, at least one conflict involving the blocking participants must
+ * be removed before assignments can be generated.
+ * </p>
+ *
+ * <p>
+ * When participants give more than one gift, an exchange can fail even
+ * though every blocking set is satisfied one gift at a time.  In that case,
+ * there are no blocking participants, and the organizer has to remove
+ * conflicts or lower the number of gifts.
+ * </p>
+ *
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class FeasibilityResult extends TranslatableDomainObject {
+
+    /** Serialization version number, which can be important to the GAE back-end. */
+    private static final long serialVersionUID = 1L;
+
+    /** Whether a valid set of assignments exists. */
+    private boolean feasible;
+
+    /** Whether the blocking participants are gift givers (true) or gift receivers (false). */
+    private boolean blockingGivers;
+
+    /** Participants that prevent a valid set of assignments, empty if feasible. */
+    private ParticipantSet blockingParticipants;
+
+    /** The only participants the blocking participants can be matched with, empty if feasible. */
+    private ParticipantSet partners;
+
+    /** Default constructor. */
+    public FeasibilityResult() {
+        this.feasible = false;
+        this.blockingGivers = false;
+        this.blockingParticipants = new ParticipantSet();
+        this.partners = new ParticipantSet();
+    }
+
+    /** Compare this object to another object. */
+    @Override
+    public boolean equals(Object obj) {
+        FeasibilityResult other = (FeasibilityResult) obj;
+        return new EqualsBuilder()
+                    .append(this.feasible, other.feasible)
+                    .append(this.blockingGivers, other.blockingGivers)
+                    .append(this.blockingParticipants, other.blockingParticipants)
+                    .append(this.partners, other.partners)
+                    .isEquals();
+    }
+
+    /** Generate a hash code for this object. */
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                    .append(this.feasible)
+                    .append(this.blockingGivers)
+                    .append(this.blockingParticipants)
+                    .append(this.partners)
+                    .toHashCode();
+    }
+
+    public boolean isFeasible() {
+        return this.feasible;
+    }
+
+    public void setFeasible(boolean feasible) {
+        this.feasible = feasible;
+    }
+
+    public boolean isBlockingGivers() {
+        return this.blockingGivers;
+    }
+
+    public void setBlockingGivers(boolean blockingGivers) {
+        this.blockingGivers = blockingGivers;
+    }
+
+    public ParticipantSet getBlockingParticipants() {
+        return this.blockingParticipants;
+    }
+
+    public void setBlockingParticipants(ParticipantSet blockingParticipants) {
+        this.blockingParticipants = blockingParticipants;
+    }
+
+    public ParticipantSet getPartners() {
+        return this.partners;
+    }
+
+    public void setPartners(ParticipantSet partners) {
+        this.partners = partners;
+    }
+
+}
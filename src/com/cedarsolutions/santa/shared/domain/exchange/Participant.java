@@ -22,8 +22,12 @@
  * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
 package com.cedarsolutions.santa.shared.domain.exchange;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlType;
 
 import com.cedarsolutions.shared.domain.TranslatableDomainObject;
@@ -32,10 +36,18 @@ import com.flipthebird.gwthashcodeequals.HashCodeBuilder;
 
 /**
  * Participant in an exchange.
+ *
+ * <p>
+ * Conflicts are stored as participant ids, and are resolved against the
+ * owning exchange with Exchange.getConflicts().  Older versions stored full
+ * copies of the conflicting participants instead.  Those copies still load
+ * from XML, and upgradeConflicts() converts them to ids.
+ * </p>
+ *
  * @author Kenneth J. Pronovici <pronovic@ieee.org>
  */
 @XmlAccessorType(XmlAccessType.FIELD)
-@XmlType(name = "", propOrder = { "id", "name", "nickname", "emailAddress", "templateOverrides", "conflicts" })
+@XmlType(name = "", propOrder = { "id", "name", "nickname", "emailAddress", "templateOverrides", "conflictIds", "legacyConflicts" })
 public class Participant extends TranslatableDomainObject {
 
     /** Serialization version number, which can be important to the GAE back-end. */
@@ -57,10 +69,14 @@ public class Participant extends TranslatableDomainObject {
     private TemplateConfig templateOverrides;
 
     /**
-     * Set of conflicts for this participant.
+     * Ids of the conflicts for this participant.
      * A conflict is someone that this participant is not allowed to give a gift to.
      */
-    private ParticipantSet conflicts;
+    private List<Long> conflictIds;
+
+    /** Conflicts as stored by older versions, which is null once they have been upgraded. */
+    @XmlElement(name = "conflicts")
+    private ParticipantSet legacyConflicts;
 
     /** Default constructor. */
     public Participant() {
@@ -78,30 +94,36 @@ public class Participant extends TranslatableDomainObject {
     }
 
     /** Values constructor. */
-    public Participant(Long id, String name, String nickname, String emailAddress, ParticipantSet conflicts) {
+    public Participant(Long id, String name, String nickname, String emailAddress, List<Long> conflictIds) {
         this.id = id;
         this.name = name;
         this.nickname = nickname;
         this.emailAddress = emailAddress;
         this.templateOverrides = new TemplateConfig();
-        this.conflicts = new ParticipantSet(conflicts);
+        this.conflictIds = copyConflictIds(conflictIds);
     }
 
     /** Copy constructor. */
     public Participant(Participant source) {
         if (source == null) {
             this.templateOverrides = new TemplateConfig();
-            this.conflicts = new ParticipantSet();
+            this.conflictIds = new ArrayList<Long>();
         } else {
             this.id = source.id;
             this.name = source.name;
             this.nickname = source.nickname;
             this.emailAddress = source.emailAddress;
             this.templateOverrides = new TemplateConfig(source.templateOverrides);
-            this.conflicts = new ParticipantSet(source.conflicts);
+            this.conflictIds = copyConflictIds(source.conflictIds);
+            this.legacyConflicts = source.legacyConflicts == null ? null : new ParticipantSet(source.legacyConflicts);
         }
     }
 
+    /** Copy a list of conflict ids, treating null like an empty list. */
+    private static List<Long> copyConflictIds(List<Long> source) {
+        return source == null ? new ArrayList<Long>() : new ArrayList<Long>(source);
+    }
+
     /** Compare this object to another object. */
     @Override
     public boolean equals(Object obj) {
@@ -112,7 +134,8 @@ public class Participant extends TranslatableDomainObject {
                     .append(this.nickname, other.nickname)
                     .append(this.emailAddress, other.emailAddress)
                     .append(this.templateOverrides, other.templateOverrides)
-                    .append(this.conflicts, other.conflicts)
+                    .append(this.conflictIds, other.conflictIds)
+                    .append(this.legacyConflicts, other.legacyConflicts)
                     .isEquals();
     }
 
@@ -124,31 +147,60 @@ public class Participant extends TranslatableDomainObject {
                     .append(this.name)
                     .append(this.nickname)
                     .append(this.emailAddress)
-                    .append(this.conflicts)
+                    .append(this.conflictIds)
+                    .append(this.legacyConflicts)
                     .append(this.templateOverrides)
                     .toHashCode();
     }
 
     /** Add a conflict, keyed on participant id. */
     public void addConflict(Participant conflict) {
-        for (Participant participant : this.conflicts) {
-            if (conflict.getId().equals(participant.getId())) {
-                return;  // same id is already there, so ignore it
-            }
-        }
+        this.addConflict(conflict.getId());
+    }
 
-        this.conflicts.add(conflict);
+    /** Add a conflict by participant id, ignoring it if the id is already there. */
+    public void addConflict(Long conflictId) {
+        if (!this.conflictIds.contains(conflictId)) {
+            this.conflictIds.add(conflictId);
+        }
     }
 
     /** Remove a conflict, keyed on participant id. */
     public void removeConflict(Participant conflict) {
-        for (int i = 0; i < this.conflicts.size(); i++) {
-            Participant participant = this.conflicts.get(i);
-            if (conflict.getId().equals(participant.getId())) {
-                this.conflicts.remove(i);
-                return;
+        this.removeConflict(conflict.getId());
+    }
+
+    /** Remove a conflict by participant id. */
+    public void removeConflict(Long conflictId) {
+        this.conflictIds.remove(conflictId);
+    }
+
+    /** Whether this participant conflicts with the participant with a given id. */
+    public boolean hasConflict(Long conflictId) {
+        return this.conflictIds != null && this.conflictIds.contains(conflictId);
+    }
+
+    /**
+     * Convert conflicts stored by older versions into conflict ids.
+     * @return True if there was anything to convert, false otherwise.
+     */
+    public boolean upgradeConflicts() {
+        if (this.legacyConflicts == null) {
+            return false;
+        }
+
+        if (this.conflictIds == null) {
+            this.conflictIds = new ArrayList<Long>();
+        }
+
+        for (Participant conflict : this.legacyConflicts) {
+            if (conflict.getId() != null) {
+                this.addConflict(conflict.getId());
             }
         }
+
+        this.legacyConflicts = null;
+        return true;
     }
 
     public Long getId() {
@@ -191,12 +243,20 @@ public class Participant extends TranslatableDomainObject {
         this.templateOverrides = templateOverrides;
     }
 
-    public ParticipantSet getConflicts() {
-        return conflicts;
+    public List<Long> getConflictIds() {
+        return conflictIds;
+    }
+
+    public void setConflictIds(List<Long> conflictIds) {
+        this.conflictIds = conflictIds;
+    }
+
+    public ParticipantSet getLegacyConflicts() {
+        return legacyConflicts;
     }
 
-    public void setConflicts(ParticipantSet conflicts) {
-        this.conflicts = conflicts;
+    public void setLegacyConflicts(ParticipantSet legacyConflicts) {
+        this.legacyConflicts = legacyConflicts;
     }
 
 }
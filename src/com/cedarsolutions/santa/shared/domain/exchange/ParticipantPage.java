@@ -0,0 +1,128 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.shared.domain.exchange;
+
+import com.cedarsolutions.shared.domain.TranslatableDomainObject;
+import com.flipthebird.gwthashcodeequals.EqualsBuilder;
+import com.flipthebird.gwthashcodeequals.HashCodeBuilder;
+
+/**
+ * A page of an exchange's participants, as retrieved separately from the exchange.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class ParticipantPage extends TranslatableDomainObject {
+
+    /** Serialization version number, which can be important to the GAE back-end. */
+    private static final long serialVersionUID = 1L;
+
+    /** Id of the exchange the participants belong to. */
+    private Long exchangeId;
+
+    /** Position of the first participant on this page within the exchange. */
+    private int start;
+
+    /** Total number of participants in the exchange. */
+    private int total;
+
+    /** Participants on this page, in order. */
+    private ParticipantSet participants;
+
+    /** Default constructor. */
+    public ParticipantPage() {
+        this(null, 0, 0, null);
+    }
+
+    /** Create a page of participants. */
+    public ParticipantPage(Long exchangeId, int start, int total, ParticipantSet participants) {
+        this.exchangeId = exchangeId;
+        this.start = start;
+        this.total = total;
+        this.participants = participants == null ? new ParticipantSet() : participants;
+    }
+
+    /** Position just after the last participant on this page. */
+    public int getEnd() {
+        return this.start + this.participants.size();
+    }
+
+    /** Whether this is the last page of participants in the exchange. */
+    public boolean isLastPage() {
+        return this.participants.isEmpty() || this.getEnd() >= this.total;
+    }
+
+    /** Compare this object to another object. */
+    @Override
+    public boolean equals(Object obj) {
+        ParticipantPage other = (ParticipantPage) obj;
+        return new EqualsBuilder()
+                    .append(this.exchangeId, other.exchangeId)
+                    .append(this.start, other.start)
+                    .append(this.total, other.total)
+                    .append(this.participants, other.participants)
+                    .isEquals();
+    }
+
+    /** Generate a hash code for this object. */
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                    .append(this.exchangeId)
+                    .append(this.start)
+                    .append(this.total)
+                    .append(this.participants)
+                    .toHashCode();
+    }
+
+    public Long getExchangeId() {
+        return this.exchangeId;
+    }
+
+    public void setExchangeId(Long exchangeId) {
+        this.exchangeId = exchangeId;
+    }
+
+    public int getStart() {
+        return this.start;
+    }
+
+    public void setStart(int start) {
+        this.start = start;
+    }
+
+    public int getTotal() {
+        return this.total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public ParticipantSet getParticipants() {
+        return this.participants;
+    }
+
+    public void setParticipants(ParticipantSet participants) {
+        this.participants = participants;
+    }
+
+}
@@ -23,11 +23,40 @@
 package com.cedarsolutions.santa.shared.domain.exchange;
 
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Set of participants in an exchange.
+ *
+ * <p>
+ * Lookups by id go through a transient index from participant id to position
+ * in the set, and the largest id in the set is tracked alongside it.  The
+ * index is built on the first lookup (including after the set has been
+ * deserialized, whether by JAXB, Java serialization or GWT RPC) and is kept
+ * in sync as participants are appended, replaced by another participant with
+ * the same id, or removed from the end of the set.  Any other change shifts
+ * positions around, so it simply discards the index and it is rebuilt on the
+ * next lookup.  Participants are indexed on the id they had when they were
+ * added, so don't change the id of a participant that is already in a set.
+ * Use removeParticipants() to remove many participants at once.
+ * </p>
+ *
+ * <p>
+ * The set also tracks the ids of participants that have been added, replaced
+ * or removed since changes were last cleared, which is what lets an edit
+ * state report exactly which participants changed.  Like the index, this is
+ * transient.  Participants are expected to be replaced rather than changed in
+ * place (see Exchange.refreshShared()), so changes to a participant that is
+ * already in the set are not tracked.
+ * </p>
+ *
  * @author Kenneth J. Pronovici <pronovic@ieee.org>
  */
 public class ParticipantSet extends ArrayList<Participant> implements Serializable {
@@ -35,6 +64,15 @@ public class ParticipantSet extends ArrayList<Participant> implements Serializab
     /** Serialization version number, which can be important to the GAE back-end. */
     private static final long serialVersionUID = 1L;
 
+    /** Position of each participant, keyed on id, or null if the index needs to be rebuilt. */
+    private transient Map<Long, Integer> positions;
+
+    /** Largest participant id in the set, maintained along with the index. */
+    private transient long maxId;
+
+    /** Ids of participants added, replaced or removed since changes were last cleared, or null if none. */
+    private transient Set<Long> changedIds;
+
     /** Default constructor. */
     public ParticipantSet() {
         super();
@@ -48,6 +86,388 @@ public class ParticipantSet extends ArrayList<Participant> implements Serializab
                 Participant participant = new Participant(source);
                 this.add(participant);
             }
+
+            this.changedIds = null;
+            if (participants instanceof ParticipantSet) {
+                this.changedIds = copyIds(((ParticipantSet) participants).changedIds);
+            }
+        }
+    }
+
+    /**
+     * Take a copy-on-write snapshot of this set, which shares its participants with this one.
+     * The snapshot also carries over this set's change tracking.
+     * @return Snapshot of this set.
+     */
+    public ParticipantSet snapshot() {
+        ParticipantSet snapshot = new ParticipantSet();
+        snapshot.share(this);
+        return snapshot;
+    }
+
+    /** Whether any participants have been added, replaced or removed since changes were last cleared. */
+    public boolean hasChanges() {
+        return this.changedIds != null && !this.changedIds.isEmpty();
+    }
+
+    /**
+     * Get the ids of the participants that have been added, replaced or removed since changes were last cleared.
+     * @return Set of changed participant ids (a copy), possibly empty.
+     */
+    public Set<Long> getChangedIds() {
+        return this.changedIds == null ? new HashSet<Long>() : new HashSet<Long>(this.changedIds);
+    }
+
+    /** Clear change tracking, so the set's current contents become the baseline. */
+    public void clearChanges() {
+        this.changedIds = null;
+    }
+
+    /**
+     * Build an index of this set, keyed by participant id.
+     * The index is not kept up to date if the set changes afterwards.
+     * @return Map from participant id to participant, possibly empty.
+     */
+    public Map<Long, Participant> getIndex() {
+        Map<Long, Participant> index = new HashMap<Long, Participant>();
+        for (Participant participant : this) {
+            index.put(participant.getId(), participant);
+        }
+
+        return index;
+    }
+
+    /**
+     * Get the participants in this set that match a list of ids, in the order of the ids.
+     * Ids that don't match any participant in this set are ignored.
+     * @param ids  Participant ids to look for, possibly null
+     * @return Matching participants (not copies), possibly empty.
+     */
+    public ParticipantSet getParticipants(List<Long> ids) {
+        ParticipantSet result = new ParticipantSet();
+
+        if (ids != null && !ids.isEmpty()) {
+            for (Long id : ids) {
+                Participant participant = this.getParticipantById(id);
+                if (participant != null) {
+                    result.add(participant);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the position of a participant in this set, by id.
+     * @param  participantId  Id of the participant to look for
+     * @return Position of the first participant with the id, or -1 if there is none.
+     */
+    public int indexOfId(Long participantId) {
+        Integer position = this.getPositions().get(participantId);
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * Get a participant from this set, by id.
+     * @param  participantId  Id of the participant to look for
+     * @return First participant with the id (not a copy), or null if there is none.
+     */
+    public Participant getParticipantById(Long participantId) {
+        int position = this.indexOfId(participantId);
+        return position < 0 ? null : this.get(position);
+    }
+
+    /**
+     * Get the largest participant id in this set.
+     * @return Largest participant id, or zero if the set contains no ids.
+     */
+    public long getMaxId() {
+        this.getPositions();
+        return this.maxId;
+    }
+
+    /**
+     * Remove every participant whose id is in a set of ids.
+     * This takes a single pass over the set, no matter how many participants are removed.
+     * @param  participantIds  Ids of the participants to remove
+     * @return Number of participants that were removed.
+     */
+    public int removeParticipants(Set<Long> participantIds) {
+        List<Participant> retained = new ArrayList<Participant>(this.size());
+        for (Participant participant : this) {
+            if (participant == null || !participantIds.contains(participant.getId())) {
+                retained.add(participant);
+            } else {
+                this.markChanged(participant);
+            }
+        }
+
+        int removed = this.size() - retained.size();
+        if (removed > 0) {
+            Set<Long> changed = this.changedIds;
+            super.clear();
+            super.addAll(retained);
+            this.changedIds = changed;  // the retained participants have not changed
+            this.clearIndex();
+        }
+
+        return removed;
+    }
+
+    /** Add a participant to the end of the set. */
+    @Override
+    public boolean add(Participant participant) {
+        super.add(participant);
+        this.markChanged(participant);
+        if (this.positions != null) {
+            this.addToIndex(participant, this.size() - 1);
+        }
+
+        return true;
+    }
+
+    /** Insert a participant at a position in the set. */
+    @Override
+    public void add(int index, Participant participant) {
+        super.add(index, participant);
+        this.markChanged(participant);
+        this.clearIndex();
+    }
+
+    /** Add a collection of participants to the end of the set. */
+    @Override
+    public boolean addAll(Collection<? extends Participant> participants) {
+        boolean changed = super.addAll(participants);
+        this.markChanged(participants);
+        this.clearIndex();  // not every ArrayList implementation routes this through add()
+        return changed;
+    }
+
+    /** Insert a collection of participants at a position in the set. */
+    @Override
+    public boolean addAll(int index, Collection<? extends Participant> participants) {
+        boolean changed = super.addAll(index, participants);
+        this.markChanged(participants);
+        this.clearIndex();
+        return changed;
+    }
+
+    /** Replace the participant at a position in the set. */
+    @Override
+    public Participant set(int index, Participant participant) {
+        Participant previous = super.set(index, participant);
+        if (previous != participant) {
+            this.markChanged(previous);
+            this.markChanged(participant);
+        }
+
+        if (previous == null || participant == null || !equals(previous.getId(), participant.getId())) {
+            this.clearIndex();  // same-id replacements leave the index alone
+        }
+
+        return previous;
+    }
+
+    /** Remove the participant at a position in the set. */
+    @Override
+    public Participant remove(int index) {
+        Participant removed = super.remove(index);
+        this.markChanged(removed);
+        if (index != this.size() || removed == null || equals(removed.getId(), this.maxId)) {
+            this.clearIndex();  // positions have shifted, or the largest id has gone
+        } else if (this.positions != null) {
+            Integer position = this.positions.get(removed.getId());
+            if (position != null && position == index) {
+                this.positions.remove(removed.getId());
+            }
+        }
+
+        return removed;
+    }
+
+    /** Remove the first occurrence of a participant from the set. */
+    @Override
+    public boolean remove(Object participant) {
+        int index = this.indexOf(participant);
+        if (index < 0) {
+            return false;
+        }
+
+        this.remove(index);
+        return true;
+    }
+
+    /** Remove every participant in a collection from the set. */
+    @Override
+    public boolean removeAll(Collection<?> participants) {
+        for (Participant participant : this) {
+            if (participants.contains(participant)) {
+                this.markChanged(participant);
+            }
+        }
+
+        this.clearIndex();
+        return super.removeAll(participants);
+    }
+
+    /** Remove every participant that is not in a collection from the set. */
+    @Override
+    public boolean retainAll(Collection<?> participants) {
+        for (Participant participant : this) {
+            if (!participants.contains(participant)) {
+                this.markChanged(participant);
+            }
+        }
+
+        this.clearIndex();
+        return super.retainAll(participants);
+    }
+
+    /** Remove all of the participants from the set. */
+    @Override
+    public void clear() {
+        this.markChanged(this);
+        super.clear();
+        this.clearIndex();
+    }
+
+    /**
+     * Get a view of part of the set.
+     * Reading through the view is not a change.  Participants set, added or removed through it are tracked, and discard the index.
+     */
+    @Override
+    public List<Participant> subList(int fromIndex, int toIndex) {
+        return new ParticipantView(super.subList(fromIndex, toIndex));
+    }
+
+    /** Share the participants and change tracking of another set, which must not be this one. */
+    private void share(ParticipantSet source) {
+        super.addAll(source);
+        this.clearIndex();
+        this.changedIds = copyIds(source.changedIds);
+    }
+
+    /** Note that a participant has changed. */
+    private void markChanged(Participant participant) {
+        if (participant != null && participant.getId() != null) {
+            if (this.changedIds == null) {
+                this.changedIds = new HashSet<Long>();
+            }
+
+            this.changedIds.add(participant.getId());
+        }
+    }
+
+    /** Note that a collection of participants has changed. */
+    private void markChanged(Collection<? extends Participant> participants) {
+        for (Participant participant : participants) {
+            this.markChanged(participant);
+        }
+    }
+
+    /** Copy a set of ids, which may be null. */
+    private static Set<Long> copyIds(Set<Long> ids) {
+        return ids == null ? null : new HashSet<Long>(ids);
+    }
+
+    /** Get the position index, building it if necessary. */
+    private Map<Long, Integer> getPositions() {
+        if (this.positions == null) {
+            this.positions = new HashMap<Long, Integer>();
+            this.maxId = 0;
+            for (int index = 0; index < this.size(); index++) {
+                this.addToIndex(this.get(index), index);
+            }
+        }
+
+        return this.positions;
+    }
+
+    /** Discard the index, so it is rebuilt on the next lookup. */
+    private void clearIndex() {
+        this.positions = null;
+        this.maxId = 0;
+    }
+
+    /** Add a participant to the index, keeping the first position for duplicate ids. */
+    private void addToIndex(Participant participant, int index) {
+        if (participant != null && participant.getId() != null) {
+            if (!this.positions.containsKey(participant.getId())) {
+                this.positions.put(participant.getId(), index);
+            }
+
+            if (participant.getId() > this.maxId) {
+                this.maxId = participant.getId();
+            }
+        }
+    }
+
+    /** View of part of the set, which tracks the changes made through it. */
+    private class ParticipantView extends AbstractList<Participant> {
+
+        /** Underlying view of the set. */
+        private final List<Participant> view;
+
+        /** Create a view on top of an underlying view of the set. */
+        public ParticipantView(List<Participant> view) {
+            this.view = view;
+        }
+
+        @Override
+        public Participant get(int index) {
+            return this.view.get(index);
+        }
+
+        @Override
+        public int size() {
+            return this.view.size();
+        }
+
+        @Override
+        public Participant set(int index, Participant participant) {
+            Participant previous = this.view.set(index, participant);
+            if (previous != participant) {
+                markChanged(previous);
+                markChanged(participant);
+            }
+
+            clearIndex();
+            return previous;
+        }
+
+        @Override
+        public void add(int index, Participant participant) {
+            this.view.add(index, participant);
+            this.modCount++;
+            markChanged(participant);
+            clearIndex();
+        }
+
+        @Override
+        public Participant remove(int index) {
+            Participant removed = this.view.remove(index);
+            this.modCount++;
+            markChanged(removed);
+            clearIndex();
+            return removed;
+        }
+
+    }
+
+    /**
+     * Indicates whether two integer values are equal (null-safe).
+     * @param obj1  First object to compare
+     * @param obj2  Second object to compare
+     * @return True if the objects are equal, false otherwise.
+     */
+    private static boolean equals(Long obj1, Long obj2) {
+        if (obj1 == null) {
+            return obj2 == null;
+        } else if (obj2 == null) {
+            return obj1 == null;
+        } else {
+            return obj1.equals(obj2);
         }
     }
 
@@ -37,11 +37,11 @@ import org.mockito.Mockito;
 import com.cedarsolutions.client.gwt.datasource.IBackendDataRenderer;
 import com.cedarsolutions.client.gwt.rpc.util.RpcCallback;
 import com.cedarsolutions.dao.domain.Pagination;
-import com.cedarsolutions.santa.client.datasource.ExchangeDataSource.GetExchangesCaller;
+import com.cedarsolutions.santa.client.datasource.ExchangeDataSource.GetExchangeSummariesCaller;
 import com.cedarsolutions.santa.client.junit.StubbedClientTestCase;
 import com.cedarsolutions.santa.client.rpc.IExchangeRpcAsync;
-import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
 import com.cedarsolutions.santa.shared.domain.exchange.ExchangeCriteria;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
 
 /**
  * Unit tests for ExchangeDataSource.
@@ -52,7 +52,7 @@ public class ExchangeDataSourceTest extends StubbedClientTestCase {
     /** Test the constructor. */
     @SuppressWarnings("unchecked")
     @Test public void testConstructor() {
-        IBackendDataRenderer<Exchange, ExchangeCriteria> renderer = mock(IBackendDataRenderer.class);
+        IBackendDataRenderer<ExchangeSummary, ExchangeCriteria> renderer = mock(IBackendDataRenderer.class);
         IExchangeRpcAsync exchangeRpc = mock(IExchangeRpcAsync.class);
         ExchangeDataSource dataSource = new ExchangeDataSource(renderer, exchangeRpc);
         assertNotNull(dataSource);
@@ -63,7 +63,7 @@ public class ExchangeDataSourceTest extends StubbedClientTestCase {
     /** Test retrieveFromBackEnd(). */
     @SuppressWarnings("unchecked")
     @Test public void testRetrieveFromBackEnd() {
-        IBackendDataRenderer<Exchange, ExchangeCriteria> renderer = mock(IBackendDataRenderer.class);
+        IBackendDataRenderer<ExchangeSummary, ExchangeCriteria> renderer = mock(IBackendDataRenderer.class);
         IExchangeRpcAsync exchangeRpc = mock(IExchangeRpcAsync.class);
         ExchangeDataSource dataSource = new ExchangeDataSource(renderer, exchangeRpc);
 
@@ -74,7 +74,7 @@ public class ExchangeDataSourceTest extends StubbedClientTestCase {
         Pagination pagination = mock(Pagination.class);
         when(renderer.getSearchCriteria()).thenReturn(criteria);
         dataSource.retrieveFromBackEnd(23, pagination);
-        verify(exchangeRpc).getExchanges(criteriaCaptor.capture(), paginationCaptor.capture(), isA(RpcCallback.class));
+        verify(exchangeRpc).getExchangeSummaries(criteriaCaptor.capture(), paginationCaptor.capture(), isA(RpcCallback.class));
         assertSame(criteria, criteriaCaptor.getValue());
         assertSame(pagination, paginationCaptor.getValue());
     }
@@ -82,9 +82,9 @@ public class ExchangeDataSourceTest extends StubbedClientTestCase {
     /** Test GetExchangesCallback(). */
     @Test public void testGetExchangesCallback() {
         ExchangeDataSource dataSource = mock(ExchangeDataSource.class, Mockito.RETURNS_DEEP_STUBS);
-        GetExchangesCaller caller = new GetExchangesCaller(dataSource, 23);
+        GetExchangeSummariesCaller caller = new GetExchangeSummariesCaller(dataSource, 23);
         assertEquals("IExchangeRpc", caller.getRpc());
-        assertEquals("getExchanges", caller.getMethod());
+        assertEquals("getExchangeSummaries", caller.getMethod());
         assertSame(dataSource, caller.getDataSource());
         assertEquals(23, caller.getStart());
     }
@@ -25,14 +25,23 @@ package com.cedarsolutions.santa.client.internal.presenter;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
@@ -46,6 +55,7 @@ import com.cedarsolutions.exception.InvalidDataException;
 import com.cedarsolutions.santa.client.common.widget.WidgetUtils;
 import com.cedarsolutions.santa.client.internal.InternalEventBus;
 import com.cedarsolutions.santa.client.internal.presenter.EditExchangeTabPresenter.AddParticipantHandler;
+import com.cedarsolutions.santa.client.internal.presenter.EditExchangeTabPresenter.AfterSave;
 import com.cedarsolutions.santa.client.internal.presenter.EditExchangeTabPresenter.DeleteParticipantHandler;
 import com.cedarsolutions.santa.client.internal.presenter.EditExchangeTabPresenter.EditParticipantHandler;
 import com.cedarsolutions.santa.client.internal.presenter.EditExchangeTabPresenter.GeneratePreviewCaller;
@@ -53,8 +63,11 @@ import com.cedarsolutions.santa.client.internal.presenter.EditExchangeTabPresent
 import com.cedarsolutions.santa.client.internal.presenter.EditExchangeTabPresenter.ResendNotificationCaller;
 import com.cedarsolutions.santa.client.internal.presenter.EditExchangeTabPresenter.ResendNotificationHandler;
 import com.cedarsolutions.santa.client.internal.presenter.EditExchangeTabPresenter.ResetHandler;
+import com.cedarsolutions.santa.client.internal.presenter.EditExchangeTabPresenter.UndoEditHandler;
+import com.cedarsolutions.santa.client.internal.presenter.EditExchangeTabPresenter.RedoEditHandler;
+import com.cedarsolutions.santa.client.internal.presenter.EditExchangeTabPresenter.RetrieveAssignmentsCaller;
 import com.cedarsolutions.santa.client.internal.presenter.EditExchangeTabPresenter.RetrieveExchangeCaller;
-import com.cedarsolutions.santa.client.internal.presenter.EditExchangeTabPresenter.ReturnToListCaller;
+import com.cedarsolutions.santa.client.internal.presenter.EditExchangeTabPresenter.RetrieveParticipantsCaller;
 import com.cedarsolutions.santa.client.internal.presenter.EditExchangeTabPresenter.ReturnToListHandler;
 import com.cedarsolutions.santa.client.internal.presenter.EditExchangeTabPresenter.SaveExchangeCaller;
 import com.cedarsolutions.santa.client.internal.presenter.EditExchangeTabPresenter.SaveHandler;
@@ -64,8 +77,12 @@ import com.cedarsolutions.santa.client.internal.view.IEditExchangeTabView;
 import com.cedarsolutions.santa.client.internal.view.InternalConstants;
 import com.cedarsolutions.santa.client.junit.StubbedClientTestCase;
 import com.cedarsolutions.santa.client.rpc.IExchangeRpcAsync;
+import com.cedarsolutions.santa.shared.domain.exchange.Assignment;
+import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSection;
 import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantPage;
 import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
 import com.cedarsolutions.shared.domain.ErrorDescription;
 import com.cedarsolutions.shared.domain.email.EmailMessage;
@@ -91,6 +108,8 @@ public class EditExchangeTabPresenterTest extends StubbedClientTestCase {
         presenter.bind();
         verify(presenter.getView()).setSaveHandler(isA(SaveHandler.class));
         verify(presenter.getView()).setResetHandler(isA(ResetHandler.class));
+        verify(presenter.getView()).setUndoEditHandler(isA(UndoEditHandler.class));
+        verify(presenter.getView()).setRedoEditHandler(isA(RedoEditHandler.class));
         verify(presenter.getView()).setReturnToListHandler(isA(ReturnToListHandler.class));
         verify(presenter.getView()).setAddParticipantHandler(isA(AddParticipantHandler.class));
         verify(presenter.getView()).setEditParticipantHandler(isA(EditParticipantHandler.class));
@@ -108,10 +127,131 @@ public class EditExchangeTabPresenterTest extends StubbedClientTestCase {
         presenter.onShowEditExchangePage(12L);
         InOrder order = Mockito.inOrder(WidgetUtils.getInstance(), presenter.getExchangeRpc());
         order.verify(WidgetUtils.getInstance()).showPleaseWaitProgressIndicator();
-        order.verify(presenter.getExchangeRpc()).retrieveExchange(exchangeId.capture(), isA(RpcCallback.class));
+        order.verify(presenter.getExchangeRpc()).retrieveExchangeSections(exchangeId.capture(), anyListOf(ExchangeSection.class), isA(RpcCallback.class));
         assertEquals(new Long(12), exchangeId.getValue());
     }
 
+    /** Test loading an exchange in pieces. */
+    @Test public void testLoading() {
+        EditExchangeTabPresenter presenter = createPresenter();
+        presenter.getManager().initialize(new Exchange());  // left over from some other exchange
+
+        Exchange header = new Exchange();
+        header.setId(1L);
+        header.setName("name");
+
+        Participant participant1 = new Participant(1L, "p1", "p1n", "p1@example.com");
+        Participant participant2 = new Participant(2L, "p2", "p2n", "p2@example.com");
+        ParticipantSet page1 = new ParticipantSet();
+        page1.add(participant1);
+        ParticipantSet page2 = new ParticipantSet();
+        page2.add(participant2);
+
+        AssignmentSet assignments = new AssignmentSet();
+        assignments.add(new Assignment(participant1, participant2));
+        assignments.add(new Assignment(participant2, participant1));
+
+        int generation = presenter.getGeneration();
+        presenter.startLoading(header);
+        assertEquals(generation + 1, presenter.getGeneration());
+        assertTrue(presenter.isLoading(generation + 1));
+        assertFalse(presenter.isLoading(generation));
+        assertSame(header, presenter.getLoading());
+        assertFalse(presenter.getManager().isActive());
+        InOrder order = Mockito.inOrder(presenter.getView(), presenter.getEventBus(), presenter.getExchangeRpc());
+        order.verify(presenter.getView()).setEditState(header);
+        order.verify(presenter.getView()).setLoading(true);
+        order.verify(presenter.getEventBus()).selectEditExchangeTab();
+        order.verify(presenter.getExchangeRpc()).retrieveParticipants(eq(1L), eq(0), eq(EditExchangeTabPresenter.PARTICIPANT_PAGE_SIZE), isA(RpcCallback.class));
+
+        presenter.addParticipants(new ParticipantPage(1L, 0, 2, page1));
+        order.verify(presenter.getExchangeRpc()).retrieveParticipants(eq(1L), eq(1), eq(EditExchangeTabPresenter.PARTICIPANT_PAGE_SIZE), isA(RpcCallback.class));
+
+        presenter.addParticipants(new ParticipantPage(1L, 1, 2, page2));
+        ArgumentCaptor<List> sections = ArgumentCaptor.forClass(List.class);
+        order.verify(presenter.getExchangeRpc()).retrieveExchangeSections(eq(1L), sections.capture(), isA(RpcCallback.class));
+        assertEquals(Arrays.asList(ExchangeSection.ASSIGNMENTS), sections.getValue());
+
+        presenter.finishLoading(assignments);
+        assertNull(presenter.getLoading());
+        assertFalse(presenter.isLoading(generation + 1));
+        order.verify(presenter.getView()).setLoading(false);
+        order.verify(presenter.getEventBus()).editCurrentExchange();
+
+        Exchange expected = new Exchange();
+        expected.setId(1L);
+        expected.setName("name");
+        expected.getParticipants().add(participant1);
+        expected.getParticipants().add(participant2);
+        expected.setAssignments(assignments);
+        assertEquals(expected, presenter.getManager().getUndoState());
+        assertEquals(expected, presenter.getManager().getEditState());
+        assertFalse(presenter.getManager().hasChanges());
+    }
+
+    /** Test loading an exchange whose participants change while it is being loaded. */
+    @Test public void testLoadingChanges() {
+        EditExchangeTabPresenter presenter = createPresenter();
+
+        Exchange header = new Exchange();
+        header.setId(1L);
+
+        // a page that doesn't follow the participants retrieved so far is ignored
+        presenter.startLoading(header);
+        verify(presenter.getExchangeRpc(), times(1)).retrieveParticipants(eq(1L), eq(0), eq(EditExchangeTabPresenter.PARTICIPANT_PAGE_SIZE), isA(RpcCallback.class));
+        presenter.addParticipants(new ParticipantPage(1L, 2, 4, createParticipants(2)));
+        assertTrue(header.getParticipants().isEmpty());
+        presenter.addParticipants(new ParticipantPage(1L, 0, 4, createParticipants(2)));
+        assertEquals(2, header.getParticipants().size());
+        presenter.addParticipants(new ParticipantPage(1L, 0, 4, createParticipants(2)));  // duplicate
+        assertEquals(2, header.getParticipants().size());
+        verify(presenter.getExchangeRpc(), times(1)).retrieveParticipants(eq(1L), eq(2), eq(EditExchangeTabPresenter.PARTICIPANT_PAGE_SIZE), isA(RpcCallback.class));
+
+        // if the total changes, loading starts over from the header
+        presenter.addParticipants(new ParticipantPage(1L, 2, 5, createParticipants(3)));
+        assertNull(presenter.getLoading());
+        assertFalse(presenter.getManager().isActive());
+        verify(presenter.getExchangeRpc(), times(1)).retrieveExchangeSections(eq(1L), anyListOf(ExchangeSection.class), isA(RpcCallback.class));
+        verify(presenter.getView(), never()).setLoading(false);
+        verify(presenter.getEventBus(), never()).editCurrentExchange();
+
+        // if the last page comes up short, loading starts over from the header
+        header = new Exchange();
+        header.setId(1L);
+        presenter.startLoading(header);
+        presenter.addParticipants(new ParticipantPage(1L, 0, 4, createParticipants(2)));
+        presenter.addParticipants(new ParticipantPage(1L, 2, 4, new ParticipantSet()));
+        assertNull(presenter.getLoading());
+        verify(presenter.getExchangeRpc(), times(2)).retrieveExchangeSections(eq(1L), anyListOf(ExchangeSection.class), isA(RpcCallback.class));
+        verify(presenter.getView(), never()).setLoading(false);
+        verify(presenter.getEventBus(), never()).editCurrentExchange();
+    }
+
+    /** Test cancelLoading() and showNotFound(). */
+    @Test public void testCancelLoading() {
+        InternalConstants constants = GWT.create(InternalConstants.class);
+
+        EditExchangeTabPresenter presenter = createPresenter();
+
+        Exchange header = new Exchange();
+        header.setId(1L);
+
+        presenter.startLoading(header);
+        presenter.cancelLoading();
+        assertNull(presenter.getLoading());
+        assertFalse(presenter.isLoading(presenter.getGeneration()));
+        assertFalse(presenter.getManager().isActive());
+        verify(presenter.getView()).setLoading(false);
+
+        ArgumentCaptor<ErrorDescription> error = ArgumentCaptor.forClass(ErrorDescription.class);
+        presenter.startLoading(header);
+        presenter.showNotFound();
+        assertNull(presenter.getLoading());
+        verify(presenter.getEventBus()).showExchangeListPage();
+        verify(presenter.getEventBus()).showErrorPopup(error.capture());
+        assertEquals(constants.editExchange_exchangeNotFound(), error.getValue().getMessage());
+    }
+
     /** Test onEditCurrentExchange(). */
     @Test public void testOnEditCurrentExchange() {
         EditExchangeTabPresenter presenter = createPresenter();
@@ -149,9 +289,10 @@ public class EditExchangeTabPresenterTest extends StubbedClientTestCase {
 
         when(presenter.getView().getEditState()).thenReturn(exchangeInView);
         handler.handleEvent(null); // actual event doesn't matter
-        InOrder order = Mockito.inOrder(WidgetUtils.getInstance(), presenter.getExchangeRpc());
+        InOrder order = Mockito.inOrder(WidgetUtils.getInstance(), presenter.getView(), presenter.getExchangeRpc());
+        order.verify(presenter.getView()).setLoading(true);
         order.verify(WidgetUtils.getInstance()).showPleaseWaitProgressIndicator();
-        order.verify(presenter.getExchangeRpc()).saveExchange(exchangeCaptor.capture(), isA(RpcCallback.class));
+        order.verify(presenter.getExchangeRpc()).saveExchangeChanges(exchangeCaptor.capture(), anyListOf(Participant.class), anyListOf(Long.class), isA(RpcCallback.class));
         assertEquals(exchangeAtEnd, exchangeCaptor.getValue());
         assertEquals(exchangeAtStart, presenter.getManager().getUndoState());
         assertEquals(exchangeAtEnd, presenter.getManager().getEditState());
@@ -182,6 +323,41 @@ public class EditExchangeTabPresenterTest extends StubbedClientTestCase {
         assertEquals(exchangeAtEnd, presenter.getManager().getEditState());
     }
 
+    /** Test UndoEditHandler and RedoEditHandler. */
+    @Test public void testUndoRedoEditHandlers() {
+        EditExchangeTabPresenter presenter = createPresenter();
+        UndoEditHandler undoHandler = new UndoEditHandler(presenter);
+        RedoEditHandler redoHandler = new RedoEditHandler(presenter);
+        assertSame(presenter, undoHandler.getParent());
+        assertSame(presenter, redoHandler.getParent());
+
+        Exchange exchangeAtStart = new Exchange();
+        exchangeAtStart.setId(1L);
+
+        Exchange exchangeInView = new Exchange();
+        exchangeInView.setId(1L);
+        exchangeInView.setName("name");
+
+        presenter.getManager().initialize(exchangeAtStart);
+
+        when(presenter.getView().getEditState()).thenReturn(exchangeAtStart);
+        redoHandler.handleEvent(null);  // nothing to redo
+        undoHandler.handleEvent(null);  // nothing to undo
+        verify(presenter.getView(), never()).setEditState(any(Exchange.class));
+
+        when(presenter.getView().getEditState()).thenReturn(exchangeInView);
+        undoHandler.handleEvent(null);  // actual event doesn't matter
+        verify(presenter.getView(), times(1)).setEditState(isA(Exchange.class));
+        assertEquals(exchangeAtStart, presenter.getManager().getEditState());
+        assertEquals(1, presenter.getManager().getRedoSteps());
+
+        when(presenter.getView().getEditState()).thenReturn(exchangeAtStart);
+        redoHandler.handleEvent(null);  // actual event doesn't matter
+        verify(presenter.getView(), times(2)).setEditState(isA(Exchange.class));
+        assertEquals(exchangeInView, presenter.getManager().getEditState());
+        assertEquals(0, presenter.getManager().getRedoSteps());
+    }
+
     /** Test ReturnToListHandler. */
     @Test public void testReturnToListHandler() {
         EditExchangeTabPresenter presenter = createPresenter();
@@ -205,9 +381,10 @@ public class EditExchangeTabPresenterTest extends StubbedClientTestCase {
 
         when(presenter.getView().getEditState()).thenReturn(exchangeInView);
         handler.handleEvent(null); // actual event doesn't matter
-        InOrder order = Mockito.inOrder(WidgetUtils.getInstance(), presenter.getExchangeRpc());
+        InOrder order = Mockito.inOrder(WidgetUtils.getInstance(), presenter.getView(), presenter.getExchangeRpc());
+        order.verify(presenter.getView()).setLoading(true);
         order.verify(WidgetUtils.getInstance()).showPleaseWaitProgressIndicator();
-        order.verify(presenter.getExchangeRpc()).saveExchange(exchangeCaptor.capture(), isA(RpcCallback.class));
+        order.verify(presenter.getExchangeRpc()).saveExchangeChanges(exchangeCaptor.capture(), anyListOf(Participant.class), anyListOf(Long.class), isA(RpcCallback.class));
         assertEquals(exchangeAtEnd, exchangeCaptor.getValue());
         assertEquals(exchangeAtStart, presenter.getManager().getUndoState());
         assertEquals(exchangeAtEnd, presenter.getManager().getEditState());
@@ -269,10 +446,14 @@ public class EditExchangeTabPresenterTest extends StubbedClientTestCase {
         exchangeInView.setName("name");
         exchangeInView.getParticipants().add(participant);
 
-        presenter.getManager().initialize(exchangeAtStart);
-
         UnifiedEventWithContext<Participant> event = new UnifiedEventWithContext<Participant>((UnifiedEventType) null, participant);
 
+        // nothing happens while the exchange is still loading
+        handler.handleEvent(event);
+        verify(presenter.getEventBus(), never()).showEditParticipantPage(isA(Participant.class), isA(Boolean.class), isA(ParticipantSet.class));
+
+        presenter.getManager().initialize(exchangeAtStart);
+
         ArgumentCaptor<Participant> participantCaptor = ArgumentCaptor.forClass(Participant.class);
         ArgumentCaptor<Boolean> isNewCaptor = ArgumentCaptor.forClass(Boolean.class);
         ArgumentCaptor<ParticipantSet> participantsCaptor = ArgumentCaptor.forClass(ParticipantSet.class);
@@ -320,6 +501,7 @@ public class EditExchangeTabPresenterTest extends StubbedClientTestCase {
         verify(presenter.getView()).setEditState(exchangeAtEnd);
         assertEquals(exchangeAtStart, presenter.getManager().getUndoState());
         assertEquals(exchangeAtEnd, presenter.getManager().getEditState());
+        assertEquals(1, presenter.getManager().getUndoSteps());
     }
 
     /** Test SendAllNotificationsHandler. */
@@ -347,9 +529,10 @@ public class EditExchangeTabPresenterTest extends StubbedClientTestCase {
 
         when(presenter.getView().getEditState()).thenReturn(exchangeInView);
         handler.handleEvent(event);
-        InOrder order = Mockito.inOrder(WidgetUtils.getInstance(), presenter.getExchangeRpc());
+        InOrder order = Mockito.inOrder(WidgetUtils.getInstance(), presenter.getView(), presenter.getExchangeRpc());
+        order.verify(presenter.getView()).setLoading(true);
         order.verify(WidgetUtils.getInstance()).showPleaseWaitProgressIndicator();
-        order.verify(presenter.getExchangeRpc()).sendNotifications(exchangeCaptor.capture(), isA(RpcCallback.class));
+        order.verify(presenter.getExchangeRpc()).saveExchangeChanges(exchangeCaptor.capture(), anyListOf(Participant.class), anyListOf(Long.class), isA(RpcCallback.class));
         assertEquals(exchangeAtEnd, exchangeCaptor.getValue());
         assertEquals(exchangeAtStart, presenter.getManager().getUndoState());
         assertEquals(exchangeAtEnd, presenter.getManager().getEditState());
@@ -438,7 +621,7 @@ public class EditExchangeTabPresenterTest extends StubbedClientTestCase {
         RetrieveExchangeCaller caller = new RetrieveExchangeCaller(presenter);
         assertNotNull(caller);
         assertEquals("IExchangeRpc", caller.getRpc());
-        assertEquals("retrieveExchange", caller.getMethod());
+        assertEquals("retrieveExchangeSections", caller.getMethod());
         assertSame(presenter, caller.parent);
         assertTrue(caller.isMarkedRetryable());
 
@@ -447,7 +630,7 @@ public class EditExchangeTabPresenterTest extends StubbedClientTestCase {
 
         AsyncCallback<Exchange> callback = mock(AsyncCallback.class);
         caller.invoke(callback);
-        verify(presenter.getExchangeRpc()).retrieveExchange(15L, callback);
+        verify(presenter.getExchangeRpc()).retrieveExchangeSections(15L, Arrays.<ExchangeSection>asList(), callback);
 
         ArgumentCaptor<ErrorDescription> error = ArgumentCaptor.forClass(ErrorDescription.class);
         InOrder order = Mockito.inOrder(presenter.getView(), presenter.getEventBus(), WidgetUtils.getInstance());
@@ -456,9 +639,11 @@ public class EditExchangeTabPresenterTest extends StubbedClientTestCase {
         exchange.setId(1L);
 
         caller.onSuccessResult(exchange);
-        order.verify(presenter.getEventBus()).editCurrentExchange();
-        assertEquals(exchange, presenter.getManager().getUndoState());
-        assertEquals(exchange, presenter.getManager().getEditState());
+        order.verify(presenter.getView()).setEditState(exchange);
+        order.verify(presenter.getView()).setLoading(true);
+        order.verify(presenter.getEventBus()).selectEditExchangeTab();
+        assertSame(exchange, presenter.getLoading());
+        assertFalse(presenter.getManager().isActive());
 
         caller.onSuccessResult(null);
         order.verify(presenter.getEventBus()).showExchangeListPage();
@@ -474,48 +659,248 @@ public class EditExchangeTabPresenterTest extends StubbedClientTestCase {
         order.verify(presenter.getEventBus()).showExchangeListPage();
     }
 
+    /** Test RetrieveParticipantsCaller. */
+    @Test public void testRetrieveParticipantsCaller() {
+        EditExchangeTabPresenter presenter = createPresenter();
+        RetrieveParticipantsCaller caller = new RetrieveParticipantsCaller(presenter);
+        assertNotNull(caller);
+        assertEquals("IExchangeRpc", caller.getRpc());
+        assertEquals("retrieveParticipants", caller.getMethod());
+        assertSame(presenter, caller.parent);
+        assertTrue(caller.isMarkedRetryable());
+
+        caller.setMethodArguments(1L, 3, 500);
+        assertEquals(new Long(1L), caller.exchangeId);
+        assertEquals(3, caller.generation);
+        assertEquals(500, caller.start);
+
+        AsyncCallback<ParticipantPage> callback = mock(AsyncCallback.class);
+        caller.invoke(callback);
+        verify(presenter.getExchangeRpc()).retrieveParticipants(1L, 500, EditExchangeTabPresenter.PARTICIPANT_PAGE_SIZE, callback);
+
+        Exchange header = new Exchange();
+        header.setId(1L);
+        presenter.startLoading(header);
+        caller.setMethodArguments(1L, presenter.getGeneration(), 0);
+
+        // results for an earlier load are ignored, even for the same exchange
+        RetrieveParticipantsCaller stale = new RetrieveParticipantsCaller(presenter);
+        stale.setMethodArguments(1L, presenter.getGeneration() - 1, 0);
+        stale.onSuccessResult(new ParticipantPage(1L, 0, 1, createParticipants(1)));
+        stale.onUnhandledError(new Exception());
+        assertSame(header, presenter.getLoading());
+        assertTrue(header.getParticipants().isEmpty());
+
+        caller.onSuccessResult(new ParticipantPage(1L, 0, 2, createParticipants(2)));
+        assertEquals(2, header.getParticipants().size());
+        verify(presenter.getExchangeRpc()).retrieveExchangeSections(eq(1L), anyListOf(ExchangeSection.class), isA(RpcCallback.class));
+
+        caller.onSuccessResult(null);
+        assertNull(presenter.getLoading());
+        verify(presenter.getEventBus()).showExchangeListPage();
+        verify(presenter.getEventBus()).showErrorPopup(isA(ErrorDescription.class));
+
+        presenter.startLoading(header);
+        caller.setMethodArguments(1L, presenter.getGeneration(), 0);
+        caller.onUnhandledError(new Exception());
+        assertNull(presenter.getLoading());
+        verify(presenter.getEventBus(), Mockito.times(2)).showExchangeListPage();
+    }
+
+    /** Test RetrieveAssignmentsCaller. */
+    @Test public void testRetrieveAssignmentsCaller() {
+        EditExchangeTabPresenter presenter = createPresenter();
+        RetrieveAssignmentsCaller caller = new RetrieveAssignmentsCaller(presenter);
+        assertNotNull(caller);
+        assertEquals("IExchangeRpc", caller.getRpc());
+        assertEquals("retrieveExchangeSections", caller.getMethod());
+        assertSame(presenter, caller.parent);
+        assertTrue(caller.isMarkedRetryable());
+
+        caller.setMethodArguments(1L, 3);
+        assertEquals(new Long(1L), caller.exchangeId);
+        assertEquals(3, caller.generation);
+
+        AsyncCallback<Exchange> callback = mock(AsyncCallback.class);
+        caller.invoke(callback);
+        verify(presenter.getExchangeRpc()).retrieveExchangeSections(1L, Arrays.asList(ExchangeSection.ASSIGNMENTS), callback);
+
+        Exchange header = new Exchange();
+        header.setId(1L);
+        presenter.startLoading(header);
+        caller.setMethodArguments(1L, presenter.getGeneration());
+
+        ParticipantSet participants = createParticipants(2);
+        AssignmentSet assignments = new AssignmentSet();
+        assignments.add(new Assignment(participants.get(0), participants.get(1)));
+        Exchange result = new Exchange();
+        result.setId(1L);
+        result.setAssignments(assignments);
+
+        // results for an earlier load are ignored, even for the same exchange
+        RetrieveAssignmentsCaller stale = new RetrieveAssignmentsCaller(presenter);
+        stale.setMethodArguments(1L, presenter.getGeneration() - 1);
+        stale.onSuccessResult(result);
+        stale.onUnhandledError(new Exception());
+        assertSame(header, presenter.getLoading());
+        assertFalse(presenter.getManager().isActive());
+
+        caller.onSuccessResult(result);
+        assertNull(presenter.getLoading());
+        assertTrue(presenter.getManager().isActive());
+        assertEquals(assignments, presenter.getManager().getEditState().getAssignments());
+        verify(presenter.getView()).setLoading(false);
+        verify(presenter.getEventBus()).editCurrentExchange();
+
+        presenter.startLoading(header);
+        caller.setMethodArguments(1L, presenter.getGeneration());
+        caller.onSuccessResult(null);
+        assertNull(presenter.getLoading());
+        verify(presenter.getEventBus()).showExchangeListPage();
+        verify(presenter.getEventBus()).showErrorPopup(isA(ErrorDescription.class));
+
+        presenter.startLoading(header);
+        caller.setMethodArguments(1L, presenter.getGeneration());
+        caller.onUnhandledError(new Exception());
+        assertNull(presenter.getLoading());
+        verify(presenter.getEventBus(), Mockito.times(2)).showExchangeListPage();
+    }
+
     /** Test SaveExchangeCaller. */
     @Test public void testSaveExchangeCaller() {
         EditExchangeTabPresenter presenter = createPresenter();
         SaveExchangeCaller caller = new SaveExchangeCaller(presenter);
         assertNotNull(caller);
         assertEquals("IExchangeRpc", caller.getRpc());
-        assertEquals("saveExchange", caller.getMethod());
+        assertEquals("saveExchangeChanges", caller.getMethod());
         assertSame(presenter, caller.parent);
         assertTrue(caller.isMarkedRetryable());
 
-        Exchange exchange = new Exchange();
-        caller.setMethodArguments(exchange);
-        assertSame(exchange, caller.exchange);
+        Exchange header = new Exchange();
+        header.setId(1L);
+        List<Participant> participants = createParticipants(EditExchangeTabPresenter.SAVE_PAGE_SIZE + 1);
+        List<Long> removedIds = Arrays.asList(5000L);
+
+        caller.setMethodArguments(header, participants, removedIds, 0, AfterSave.CONTINUE_EDITING);
+        assertSame(header, caller.header);
+        assertSame(participants, caller.participants);
+        assertSame(removedIds, caller.removedIds);
+        assertEquals(0, caller.start);
+        assertEquals(AfterSave.CONTINUE_EDITING, caller.afterSave);
 
+        ArgumentCaptor<List> pageCaptor = ArgumentCaptor.forClass(List.class);
         AsyncCallback<Exchange> callback = mock(AsyncCallback.class);
         caller.invoke(callback);
-        verify(presenter.getExchangeRpc()).saveExchange(exchange, callback);
+        verify(presenter.getExchangeRpc()).saveExchangeChanges(eq(header), pageCaptor.capture(), eq(removedIds), eq(callback));
+        assertEquals(participants.subList(0, EditExchangeTabPresenter.SAVE_PAGE_SIZE), pageCaptor.getValue());
+
+        caller.onSuccessResult(header);  // more to save, so the next page goes out, without the removed ids
+        verify(presenter.getExchangeRpc()).saveExchangeChanges(eq(header), pageCaptor.capture(), (List<Long>) isNull(), isA(RpcCallback.class));
+        assertEquals(participants.subList(EditExchangeTabPresenter.SAVE_PAGE_SIZE, participants.size()), pageCaptor.getValue());
+        verify(presenter.getView(), never()).setLoading(false);
+
+        InvalidDataException caught = new InvalidDataException();
+        caller.onValidationError(caught);
+        verify(presenter.getView()).setLoading(false);
+        verify(presenter.getView()).showValidationError(caught);
+    }
+
+    /** Test SaveExchangeCaller for the last page, when editing continues. */
+    @Test public void testSaveExchangeCallerContinueEditing() {
+        EditExchangeTabPresenter presenter = createPresenter();
 
         Exchange exchangeAtStart = new Exchange();
         exchangeAtStart.setId(1L);
+        presenter.getManager().initialize(exchangeAtStart);
 
-        Exchange exchangeAtEnd = new Exchange();
-        exchangeAtEnd.setId(1L);
-        exchangeAtEnd.setName("name");
+        Exchange result = new Exchange();
+        result.setId(1L);
+        result.setName("name");
+
+        SaveExchangeCaller caller = new SaveExchangeCaller(presenter);
+        caller.setMethodArguments(result, createParticipants(0), null, 0, AfterSave.CONTINUE_EDITING);
+        caller.onSuccessResult(result);
+        verify(presenter.getView()).setLoading(false);
+        verify(presenter.getView()).setEditState(presenter.getManager().getEditState());
+        verify(presenter.getExchangeRpc(), never()).sendNotifications(isA(Long.class), isA(RpcCallback.class));
+        assertEquals("name", presenter.getManager().getEditState().getName());
+        assertEquals("name", presenter.getManager().getSavedState().getName());
+        assertEquals(0, presenter.getManager().getUndoSteps());
+    }
+
+    /** Test SaveExchangeCaller for the last page, when notifications are sent next. */
+    @Test public void testSaveExchangeCallerSendNotifications() {
+        EditExchangeTabPresenter presenter = createPresenter();
+
+        Exchange exchangeAtStart = new Exchange();
+        exchangeAtStart.setId(1L);
+        presenter.getManager().initialize(exchangeAtStart);
 
         Exchange result = new Exchange();
         result.setId(1L);
         result.setName("name");
 
+        SaveExchangeCaller caller = new SaveExchangeCaller(presenter);
+        caller.setMethodArguments(result, createParticipants(0), null, 0, AfterSave.SEND_NOTIFICATIONS);
+        caller.onSuccessResult(result);
+        verify(presenter.getView()).setLoading(false);
+        verify(presenter.getView()).setEditState(presenter.getManager().getEditState());
+        verify(presenter.getExchangeRpc()).sendNotifications(eq(1L), isA(RpcCallback.class));
+        assertEquals("name", presenter.getManager().getEditState().getName());
+    }
+
+    /** Test SaveExchangeCaller for the last page, when returning to the list. */
+    @Test public void testSaveExchangeCallerReturnToList() {
+        EditExchangeTabPresenter presenter = createPresenter();
+
+        Exchange exchangeAtStart = new Exchange();
+        exchangeAtStart.setId(1L);
         presenter.getManager().initialize(exchangeAtStart);
 
+        Exchange result = new Exchange();
+        result.setId(1L);
+        result.setName("name");
+
+        SaveExchangeCaller caller = new SaveExchangeCaller(presenter);
+        caller.setMethodArguments(result, createParticipants(0), null, 0, AfterSave.RETURN_TO_LIST);
         caller.onSuccessResult(result);
-        verify(presenter.getView()).setEditState(exchangeAtEnd);
-        assertEquals(exchangeAtStart, presenter.getManager().getUndoState());
-        assertEquals(exchangeAtEnd, presenter.getManager().getEditState());
+        verify(presenter.getView()).setLoading(false);
+        verify(presenter.getView()).setEditState(null);
+        verify(presenter.getEventBus()).showExchangeListPage();
+        assertEquals(null, presenter.getManager().getUndoState());
+        assertEquals(null, presenter.getManager().getEditState());
+    }
 
-        InvalidDataException caught = new InvalidDataException();
-        caller.onValidationError(caught);
-        verify(presenter.getView()).showValidationError(caught);
-        verify(presenter.getView()).setEditState(exchangeAtEnd);
-        assertEquals(exchangeAtStart, presenter.getManager().getUndoState());
-        assertEquals(exchangeAtEnd, presenter.getManager().getEditState());
+    /** Test SaveExchangeCaller when the exchange no longer exists. */
+    @Test public void testSaveExchangeCallerNotFound() {
+        EditExchangeTabPresenter presenter = createPresenter();
+
+        Exchange exchangeAtStart = new Exchange();
+        exchangeAtStart.setId(1L);
+        presenter.getManager().initialize(exchangeAtStart);
+
+        SaveExchangeCaller caller = new SaveExchangeCaller(presenter);
+        caller.setMethodArguments(exchangeAtStart, createParticipants(0), null, 0, AfterSave.CONTINUE_EDITING);
+        caller.onSuccessResult(null);
+        verify(presenter.getView()).setLoading(false);
+        verify(presenter.getEventBus()).showExchangeListPage();
+        verify(presenter.getEventBus()).showErrorPopup(isA(ErrorDescription.class));
+        assertEquals(null, presenter.getManager().getEditState());
+    }
+
+    /** Test SaveExchangeCaller when there is an unhandled error. */
+    @Test public void testSaveExchangeCallerUnhandledError() {
+        EditExchangeTabPresenter presenter = createPresenter();
+
+        Exchange exchangeAtStart = new Exchange();
+        exchangeAtStart.setId(1L);
+        presenter.getManager().initialize(exchangeAtStart);
+
+        SaveExchangeCaller caller = new SaveExchangeCaller(presenter);
+        caller.setMethodArguments(exchangeAtStart, createParticipants(0), null, 0, AfterSave.CONTINUE_EDITING);
+        caller.onUnhandledError(new Exception());
+        verify(presenter.getView()).setLoading(false);
+        assertEquals(exchangeAtStart, presenter.getManager().getEditState());  // unsaved changes are kept
     }
 
     /** Test SendNotificationsCaller. */
@@ -528,39 +913,50 @@ public class EditExchangeTabPresenterTest extends StubbedClientTestCase {
         assertSame(presenter, caller.parent);
         assertFalse(caller.isMarkedRetryable());
 
-        Exchange exchange = new Exchange();
-        caller.setMethodArguments(exchange);
-        assertSame(exchange, caller.exchange);
+        caller.setMethodArguments(1L);
+        assertEquals(new Long(1L), caller.exchangeId);
 
         AsyncCallback<Exchange> callback = mock(AsyncCallback.class);
         caller.invoke(callback);
-        verify(presenter.getExchangeRpc()).sendNotifications(exchange, callback);
+        verify(presenter.getExchangeRpc()).sendNotifications(1L, callback);
 
         Exchange exchangeAtStart = new Exchange();
         exchangeAtStart.setId(1L);
 
-        Exchange exchangeAtEnd = new Exchange();
-        exchangeAtEnd.setId(1L);
-        exchangeAtEnd.setName("name");
-
+        AssignmentSet assignments = new AssignmentSet();
         Exchange result = new Exchange();
         result.setId(1L);
         result.setName("name");
+        result.setAssignments(assignments);
 
         presenter.getManager().initialize(exchangeAtStart);
 
         caller.onSuccessResult(result);
-        verify(presenter.getView()).setEditState(exchangeAtEnd);
+        verify(presenter.getView()).setEditState(presenter.getManager().getEditState());
         verify(presenter.getView()).showSendSuccessfulPopup();
-        assertEquals(exchangeAtStart, presenter.getManager().getUndoState());
-        assertEquals(exchangeAtEnd, presenter.getManager().getEditState());
+        assertEquals("name", presenter.getManager().getEditState().getName());
+        assertSame(assignments, presenter.getManager().getEditState().getAssignments());
+        assertEquals(0, presenter.getManager().getUndoSteps());
 
         InvalidDataException caught = new InvalidDataException();
         caller.onValidationError(caught);
         verify(presenter.getView()).showValidationError(caught);
-        verify(presenter.getView()).setEditState(exchangeAtEnd);
-        assertEquals(exchangeAtStart, presenter.getManager().getUndoState());
-        assertEquals(exchangeAtEnd, presenter.getManager().getEditState());
+    }
+
+    /** Test SendNotificationsCaller when the exchange no longer exists. */
+    @Test public void testSendNotificationsCallerNotFound() {
+        EditExchangeTabPresenter presenter = createPresenter();
+
+        Exchange exchangeAtStart = new Exchange();
+        exchangeAtStart.setId(1L);
+        presenter.getManager().initialize(exchangeAtStart);
+
+        SendNotificationsCaller caller = new SendNotificationsCaller(presenter);
+        caller.setMethodArguments(1L);
+        caller.onSuccessResult(null);
+        verify(presenter.getView(), never()).showSendSuccessfulPopup();
+        verify(presenter.getEventBus()).showExchangeListPage();
+        verify(presenter.getEventBus()).showErrorPopup(isA(ErrorDescription.class));
     }
 
     /** Test ResendNotificationCaller. */
@@ -610,44 +1006,6 @@ public class EditExchangeTabPresenterTest extends StubbedClientTestCase {
         assertEquals(exchangeAtEnd, presenter.getManager().getEditState());
     }
 
-    /** Test ReturnToListCaller. */
-    @Test public void testReturnToListCaller() {
-        EditExchangeTabPresenter presenter = createPresenter();
-        ReturnToListCaller caller = new ReturnToListCaller(presenter);
-        assertNotNull(caller);
-        assertEquals("IExchangeRpc", caller.getRpc());
-        assertEquals("saveExchange", caller.getMethod());
-        assertSame(presenter, caller.parent);
-        assertTrue(caller.isMarkedRetryable());
-
-        Exchange exchange = new Exchange();
-        caller.setMethodArguments(exchange);
-        assertSame(exchange, caller.exchange);
-
-        AsyncCallback<Exchange> callback = mock(AsyncCallback.class);
-        caller.invoke(callback);
-        verify(presenter.getExchangeRpc()).saveExchange(exchange, callback);
-
-        Exchange exchangeAtStart = new Exchange();
-        exchangeAtStart.setId(1L);
-
-        Exchange result = new Exchange();
-        result.setId(1L);
-        result.setName("name");
-
-        presenter.getManager().initialize(exchangeAtStart);
-
-        caller.onSuccessResult(result);
-        verify(presenter.getView()).setEditState(null);
-        verify(presenter.getEventBus()).showExchangeListPage();
-        assertEquals(null, presenter.getManager().getUndoState());
-        assertEquals(null, presenter.getManager().getEditState());
-
-        InvalidDataException caught = new InvalidDataException();
-        caller.onValidationError(caught);
-        verify(presenter.getView()).showValidationError(caught);
-    }
-
     /** Test GeneratePreviewCaller. */
     @Test public void testGeneratePreviewCaller() {
         EditExchangeTabPresenter presenter = createPresenter();
@@ -676,6 +1034,16 @@ public class EditExchangeTabPresenterTest extends StubbedClientTestCase {
         verify(presenter.getView()).showValidationError(caught);
     }
 
+    /** Create a set of participants for testing. */
+    private static ParticipantSet createParticipants(int count) {
+        ParticipantSet participants = new ParticipantSet();
+        for (long id = 1; id <= count; id++) {
+            participants.add(new Participant(id, "p" + id, "p" + id + "n", "p" + id + "@example.com"));
+        }
+
+        return participants;
+    }
+
     /** Create a presenter for testing. */
     private static EditExchangeTabPresenter createPresenter() {
         IEditExchangeTabView view = mock(IEditExchangeTabView.class);
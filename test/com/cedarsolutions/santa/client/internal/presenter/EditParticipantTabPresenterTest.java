@@ -142,6 +142,7 @@ public class EditParticipantTabPresenterTest extends StubbedClientTestCase {
         verify(presenter.getEventBus()).editCurrentExchange();
         assertEquals(exchangeAtStart, presenter.getManager().getUndoState());
         assertEquals(exchangeAtEnd, presenter.getManager().getEditState());
+        assertEquals(1, presenter.getManager().getUndoSteps());
     }
 
     /** Test SaveHandler when the participant is not found. */
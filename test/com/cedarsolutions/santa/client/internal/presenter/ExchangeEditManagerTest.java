@@ -26,11 +26,16 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
+import com.cedarsolutions.santa.shared.domain.exchange.Assignment;
+import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeState;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
 
 /**
  * Unit tests for ExchangeEditManager.
@@ -43,8 +48,11 @@ public class ExchangeEditManagerTest {
         ExchangeEditManager manager = new ExchangeEditManager();
         assertNull(manager.getUndoState());
         assertNull(manager.getEditState());
+        assertNull(manager.getSavedState());
         assertFalse(manager.isActive());
         assertFalse(manager.hasChanges());
+        assertTrue(manager.getUnsavedParticipants().isEmpty());
+        assertTrue(manager.getRemovedParticipantIds().isEmpty());
     }
 
     /** Test initialize() and clear. */
@@ -59,16 +67,229 @@ public class ExchangeEditManagerTest {
         assertNotSame(exchange, manager.getUndoState());
         assertEquals(exchange, manager.getEditState());
         assertNotSame(exchange, manager.getEditState());
+        assertEquals(exchange, manager.getSavedState());
+        assertNotSame(manager.getEditState(), manager.getSavedState());
         assertTrue(manager.isActive());
         assertFalse(manager.hasChanges());
 
         manager.clear();
         assertNull(manager.getUndoState());
         assertNull(manager.getEditState());
+        assertNull(manager.getSavedState());
         assertFalse(manager.isActive());
         assertFalse(manager.hasChanges());
     }
 
+    /** Test that hasChanges() ignores values that are set but not changed. */
+    @Test public void testHasChangesSameValue() {
+        ExchangeEditManager manager = new ExchangeEditManager();
+        assertTrue(manager.getChangedParticipantIds().isEmpty());
+
+        Exchange exchange = new Exchange();
+        exchange.setId(2L);
+        exchange.setName("name");
+        exchange.getParticipants().add(new Participant(1L));
+
+        manager.initialize(exchange);
+        assertFalse(manager.hasChanges());
+        assertTrue(manager.getChangedParticipantIds().isEmpty());
+
+        Exchange viewState = manager.getEditState().snapshot();
+        viewState.setName("name");
+        manager.getEditState().refreshShared(viewState);
+        assertFalse(manager.hasChanges());
+
+        viewState.setName("other");
+        manager.getEditState().refreshShared(viewState);
+        assertTrue(manager.hasChanges());
+        assertTrue(manager.getChangedParticipantIds().isEmpty());
+
+        viewState.setName("name");
+        manager.getEditState().refreshShared(viewState);
+        assertFalse(manager.hasChanges());
+
+        manager.getEditState().replaceParticipant(new Participant(1L));
+        assertFalse(manager.hasChanges());
+
+        Participant replacement = new Participant(1L);
+        replacement.setName("name");
+        manager.getEditState().replaceParticipant(replacement);
+        assertTrue(manager.hasChanges());
+    }
+
+    /** Test getUnsavedParticipants() and getRemovedParticipantIds(). */
+    @Test public void testUnsavedParticipants() {
+        ExchangeEditManager manager = new ExchangeEditManager();
+
+        Exchange exchange = new Exchange();
+        exchange.setId(2L);
+        exchange.getParticipants().add(new Participant(1L));
+        exchange.getParticipants().add(new Participant(2L));
+        exchange.getParticipants().add(new Participant(3L));
+
+        manager.initialize(exchange);
+        assertTrue(manager.getUnsavedParticipants().isEmpty());
+        assertTrue(manager.getRemovedParticipantIds().isEmpty());
+
+        Participant replaced = new Participant(2L);
+        replaced.setName("replaced");
+        Participant added = new Participant(4L);
+        manager.getEditState().replaceParticipant(replaced);
+        manager.getEditState().getParticipants().add(added);
+        manager.getEditState().removeParticipant(manager.getEditState().getParticipants().getParticipantById(1L));
+
+        assertEquals(2, manager.getUnsavedParticipants().size());
+        assertSame(replaced, manager.getUnsavedParticipants().get(0));
+        assertSame(added, manager.getUnsavedParticipants().get(1));
+        assertEquals(1, manager.getRemovedParticipantIds().size());
+        assertEquals(new Long(1L), manager.getRemovedParticipantIds().get(0));
+
+        // Undoing everything goes back to the saved participants
+        manager.undo();
+        assertTrue(manager.getUnsavedParticipants().isEmpty());
+        assertTrue(manager.getRemovedParticipantIds().isEmpty());
+    }
+
+    /** Test markSaved(). */
+    @Test public void testMarkSaved() {
+        ExchangeEditManager manager = new ExchangeEditManager();
+        manager.markSaved(new Exchange());  // does nothing when not active
+        assertNull(manager.getSavedState());
+
+        Exchange exchange = new Exchange();
+        exchange.setId(2L);
+        exchange.setExchangeState(ExchangeState.NEW);
+        exchange.getParticipants().add(new Participant(1L));
+        exchange.getParticipants().add(new Participant(2L));
+
+        manager.initialize(exchange);
+        manager.getEditState().setName("name");
+        manager.getEditState().getParticipants().add(new Participant(3L));
+        manager.getEditState().removeParticipant(manager.getEditState().getParticipants().getParticipantById(1L));
+        assertTrue(manager.recordEdit());
+
+        Exchange header = manager.getEditState().copyHeader();
+        header.setExchangeState(ExchangeState.STARTED);
+        manager.markSaved(header);
+
+        assertEquals(ExchangeState.STARTED, manager.getEditState().getExchangeState());
+        assertEquals("name", manager.getEditState().getName());
+        assertEquals(2, manager.getEditState().getParticipants().size());
+        assertNull(manager.getEditState().getAssignments());
+        assertTrue(manager.getUnsavedParticipants().isEmpty());
+        assertTrue(manager.getRemovedParticipantIds().isEmpty());
+        assertEquals(0, manager.getUndoSteps());
+        assertEquals(2, manager.getUndoState().getParticipants().size());  // reset still goes back to what was loaded
+
+        AssignmentSet assignments = new AssignmentSet();
+        assignments.add(new Assignment(new Participant(2L), new Participant(3L)));
+        assignments.add(new Assignment(new Participant(3L), new Participant(2L)));
+        header.setAssignments(assignments);
+        manager.markSaved(header);
+        assertSame(assignments, manager.getEditState().getAssignments());
+        assertEquals(2, manager.getEditState().getParticipants().size());
+    }
+
+    /** Test recordEdit(), undoEdit() and redoEdit(). */
+    @Test public void testUndoRedoEdits() {
+        ExchangeEditManager manager = new ExchangeEditManager();
+        assertFalse(manager.recordEdit());
+        assertFalse(manager.undoEdit());
+        assertFalse(manager.redoEdit());
+
+        Exchange exchange = new Exchange();
+        exchange.setId(2L);
+        exchange.setName("start");
+        exchange.getParticipants().add(new Participant(1L));
+
+        manager.initialize(exchange);
+        assertFalse(manager.recordEdit());
+        assertFalse(manager.canUndoEdit());
+        assertFalse(manager.canRedoEdit());
+
+        manager.getEditState().setName("first");
+        assertTrue(manager.recordEdit());
+        manager.getEditState().getParticipants().add(new Participant(2L));
+        assertTrue(manager.recordEdit());
+        manager.getEditState().replaceParticipant(new Participant(1L));  // not recorded yet
+        assertEquals(2, manager.getUndoSteps());
+        assertTrue(manager.getHistorySize() > 0);
+
+        assertTrue(manager.undoEdit());  // records the pending edit, then undoes it
+        assertEquals(2, manager.getUndoSteps());
+        assertEquals(1, manager.getRedoSteps());
+        assertSame(manager.getUndoState().getParticipants().get(0), manager.getEditState().getParticipants().get(0));
+
+        assertTrue(manager.undoEdit());
+        assertEquals(1, manager.getEditState().getParticipants().size());
+        assertEquals("first", manager.getEditState().getName());
+
+        assertTrue(manager.undoEdit());
+        assertEquals("start", manager.getEditState().getName());
+        assertEquals(manager.getUndoState(), manager.getEditState());
+        assertFalse(manager.undoEdit());
+        assertEquals(3, manager.getRedoSteps());
+
+        assertTrue(manager.canRedoEdit());
+        assertTrue(manager.redoEdit());
+        assertTrue(manager.redoEdit());
+        assertTrue(manager.canUndoEdit());
+        assertTrue(manager.canRedoEdit());
+        assertEquals("first", manager.getEditState().getName());
+        assertEquals(2, manager.getEditState().getParticipants().size());
+
+        manager.getEditState().setName("second");  // a new edit discards the redo history
+        assertTrue(manager.canUndoEdit());
+        assertFalse(manager.canRedoEdit());
+        assertEquals(1, manager.getRedoSteps());  // but only once it is recorded, not when checking
+        assertEquals(2, manager.getUndoSteps());
+        assertFalse(manager.redoEdit());
+        assertEquals(0, manager.getRedoSteps());
+        assertEquals(3, manager.getUndoSteps());
+
+        manager.undo();
+        assertEquals(0, manager.getUndoSteps());
+        assertEquals(0, manager.getHistorySize());
+        assertFalse(manager.canUndoEdit());
+
+        manager.clear();
+        assertFalse(manager.recordEdit());
+    }
+
+    /** Test the limits on the undo and redo history. */
+    @Test public void testHistoryLimits() {
+        ExchangeEditManager manager = new ExchangeEditManager();
+        assertEquals(ExchangeEditManager.DEFAULT_MAX_HISTORY_STEPS, manager.getMaxHistorySteps());
+        assertEquals(ExchangeEditManager.DEFAULT_MAX_HISTORY_SIZE, manager.getMaxHistorySize());
+
+        Exchange exchange = new Exchange();
+        exchange.setId(2L);
+        manager.initialize(exchange);
+        manager.setMaxHistorySteps(3);
+
+        for (int i = 0; i < 5; i++) {
+            manager.getEditState().setName("name" + i);
+            manager.recordEdit();
+        }
+
+        assertEquals(3, manager.getUndoSteps());
+        while (manager.undoEdit()) {
+            // undo everything that's left
+        }
+
+        assertEquals("name1", manager.getEditState().getName());
+
+        long size = manager.getHistorySize();
+        assertTrue(size > 0);
+        manager.setMaxHistorySize(size - 1);
+        assertEquals(2, manager.getRedoSteps());
+        assertTrue(manager.getHistorySize() < size);
+
+        manager.setMaxHistorySize(0);
+        assertEquals(0, manager.getRedoSteps());
+        assertEquals(0, manager.getHistorySize());
+    }
+
     /** Test undo() and hasChanges(). */
     @Test public void testUndo() {
         ExchangeEditManager manager = new ExchangeEditManager();
@@ -87,4 +308,37 @@ public class ExchangeEditManagerTest {
         assertFalse(manager.hasChanges());
     }
 
+    /** Test that the undo and edit states share unchanged participants. */
+    @Test public void testSharedParticipants() {
+        ExchangeEditManager manager = new ExchangeEditManager();
+
+        Exchange exchange = new Exchange();
+        exchange.setId(2L);
+        exchange.getParticipants().add(new Participant(1L));
+        exchange.getParticipants().add(new Participant(2L));
+
+        manager.initialize(exchange);
+        assertNotSame(manager.getUndoState().getParticipants(), manager.getEditState().getParticipants());
+        assertSame(manager.getUndoState().getParticipants().get(0), manager.getEditState().getParticipants().get(0));
+
+        Participant replacement = new Participant(2L);
+        replacement.setName("name");
+        manager.getEditState().replaceParticipant(replacement);
+        assertSame(manager.getUndoState().getParticipants().get(0), manager.getEditState().getParticipants().get(0));
+        assertSame(replacement, manager.getEditState().getParticipants().get(1));
+        assertNull(manager.getUndoState().getParticipants().get(1).getName());
+        assertTrue(manager.hasChanges());
+        assertEquals(1, manager.getChangedParticipantIds().size());
+        assertTrue(manager.getChangedParticipantIds().contains(2L));
+
+        manager.getEditState().removeParticipant(new Participant(1L));
+        assertEquals(2, manager.getUndoState().getParticipants().size());
+        assertEquals(2, manager.getChangedParticipantIds().size());
+
+        manager.undo();
+        assertFalse(manager.hasChanges());
+        assertTrue(manager.getChangedParticipantIds().isEmpty());
+        assertSame(manager.getUndoState().getParticipants().get(1), manager.getEditState().getParticipants().get(1));
+    }
+
 }
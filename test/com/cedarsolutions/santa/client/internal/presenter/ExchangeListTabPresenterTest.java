@@ -63,6 +63,7 @@ import com.cedarsolutions.santa.client.rpc.IExchangeRpcAsync;
 import com.cedarsolutions.santa.shared.domain.ClientSession;
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
 import com.cedarsolutions.santa.shared.domain.exchange.ExchangeCriteria;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.user.client.rpc.AsyncCallback;
 
@@ -161,7 +162,7 @@ public class ExchangeListTabPresenterTest extends StubbedClientTestCase {
         assertNotNull(handler);
         assertSame(presenter, handler.getParent());
 
-        List<Exchange> records = new ArrayList<Exchange>();
+        List<ExchangeSummary> records = new ArrayList<ExchangeSummary>();
         when(presenter.getView().getSelectedRecords()).thenReturn(records);
 
         ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
@@ -181,13 +182,13 @@ public class ExchangeListTabPresenterTest extends StubbedClientTestCase {
 
         EditSelectedRowHandler handler = new EditSelectedRowHandler(presenter);
 
-        UnifiedEventWithContext<Exchange> row = mock(UnifiedEventWithContext.class);
+        UnifiedEventWithContext<ExchangeSummary> row = mock(UnifiedEventWithContext.class);
 
         when(row.getContext()).thenReturn(null);
         handler.handleEvent(row);
         verifyNoMoreInteractions(eventBus);
 
-        Exchange exchange = new Exchange();
+        ExchangeSummary exchange = new ExchangeSummary();
         exchange.setId(null);
         handler.handleEvent(row);
         verifyNoMoreInteractions(eventBus);
@@ -231,7 +232,7 @@ public class ExchangeListTabPresenterTest extends StubbedClientTestCase {
         assertSame(presenter, caller.parent);
         assertFalse(caller.isMarkedRetryable());
 
-        List<Exchange> records = new ArrayList<Exchange>();
+        List<ExchangeSummary> records = new ArrayList<ExchangeSummary>();
         caller.setMethodArguments(records);
         assertSame(records, caller.records);
 
@@ -24,6 +24,9 @@ package com.cedarsolutions.santa.client.internal.view;
 
 import static com.cedarsolutions.santa.shared.domain.MessageKeys.REQUIRED;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.cedarsolutions.client.gwt.event.ViewEventHandlerWithContext;
 import com.cedarsolutions.exception.InvalidDataException;
 import com.cedarsolutions.santa.client.internal.view.EditExchangeTabView.EmailColumn;
@@ -82,6 +85,18 @@ public class EditExchangeTabViewClientTest extends ClientTestCase {
         clickButton(view.resetConfirmPopup.getOkButton());
         assertTrue(resetHandler.handledEvent());
 
+        StubbedViewEventHandler undoEditHandler = new StubbedViewEventHandler();
+        view.setUndoEditHandler(undoEditHandler);
+        assertSame(undoEditHandler, view.getUndoEditHandler());
+        clickButton(view.undoEditButton);
+        assertTrue(undoEditHandler.handledEvent());
+
+        StubbedViewEventHandler redoEditHandler = new StubbedViewEventHandler();
+        view.setRedoEditHandler(redoEditHandler);
+        assertSame(redoEditHandler, view.getRedoEditHandler());
+        clickButton(view.redoEditButton);
+        assertTrue(redoEditHandler.handledEvent());
+
         StubbedViewEventHandler returnToListHandler = new StubbedViewEventHandler();
         view.setReturnToListHandler(returnToListHandler);
         assertSame(returnToListHandler, view.getReturnToListHandler());
@@ -196,6 +211,53 @@ public class EditExchangeTabViewClientTest extends ClientTestCase {
         assertTrue(view.table.getSelectedRecords().isEmpty());
     }
 
+    /** Test setLoading(). */
+    public void testSetLoading() {
+        EditExchangeTabView view = new EditExchangeTabView();
+        assertTrue(view.saveButton.isEnabled());
+        assertTrue(view.exchangeNameInput.isEnabled());
+
+        view.setLoading(true);
+        assertFalse(view.saveButton.isEnabled());
+        assertFalse(view.resetButton.isEnabled());
+        assertFalse(view.undoEditButton.isEnabled());
+        assertFalse(view.redoEditButton.isEnabled());
+        assertFalse(view.returnToListButton.isEnabled());
+        assertFalse(view.addParticipantButton.isEnabled());
+        assertFalse(view.deleteParticipantButton.isEnabled());
+        assertFalse(view.sendAllNotificationsButton.isEnabled());
+        assertFalse(view.resendNotificationButton.isEnabled());
+        assertFalse(view.previewButton.isEnabled());
+        assertFalse(view.exchangeNameInput.isEnabled());
+        assertFalse(view.dateTimeInput.isEnabled());
+        assertFalse(view.themeInput.isEnabled());
+        assertFalse(view.costInput.isEnabled());
+        assertFalse(view.extraInfoInput.isEnabled());
+        assertFalse(view.organizerNameInput.isEnabled());
+        assertFalse(view.organizerEmailInput.isEnabled());
+        assertFalse(view.organizerPhoneInput.isEnabled());
+
+        view.setLoading(false);
+        assertTrue(view.saveButton.isEnabled());
+        assertTrue(view.resetButton.isEnabled());
+        assertTrue(view.undoEditButton.isEnabled());
+        assertTrue(view.redoEditButton.isEnabled());
+        assertTrue(view.returnToListButton.isEnabled());
+        assertTrue(view.addParticipantButton.isEnabled());
+        assertTrue(view.deleteParticipantButton.isEnabled());
+        assertTrue(view.sendAllNotificationsButton.isEnabled());
+        assertTrue(view.resendNotificationButton.isEnabled());
+        assertTrue(view.previewButton.isEnabled());
+        assertTrue(view.exchangeNameInput.isEnabled());
+        assertTrue(view.dateTimeInput.isEnabled());
+        assertTrue(view.themeInput.isEnabled());
+        assertTrue(view.costInput.isEnabled());
+        assertTrue(view.extraInfoInput.isEnabled());
+        assertTrue(view.organizerNameInput.isEnabled());
+        assertTrue(view.organizerEmailInput.isEnabled());
+        assertTrue(view.organizerPhoneInput.isEnabled());
+    }
+
     /** Test showPreview(). */
     public void testShowPreview() {
         EmailMessage message = new EmailMessage();
@@ -235,6 +297,12 @@ public class EditExchangeTabViewClientTest extends ClientTestCase {
         assertEquals(constants.editExchange_resetButton(), view.resetButton.getText());
         assertEquals(constants.editExchange_resetTooltip(), view.resetButton.getTitle());
 
+        assertEquals(constants.editExchange_undoEditButton(), view.undoEditButton.getText());
+        assertEquals(constants.editExchange_undoEditTooltip(), view.undoEditButton.getTitle());
+
+        assertEquals(constants.editExchange_redoEditButton(), view.redoEditButton.getText());
+        assertEquals(constants.editExchange_redoEditTooltip(), view.redoEditButton.getTitle());
+
         assertEquals(constants.editExchange_returnToListButton(), view.returnToListButton.getText());
         assertEquals(constants.editExchange_returnToListTooltip(), view.returnToListButton.getTitle());
 
@@ -322,8 +390,8 @@ public class EditExchangeTabViewClientTest extends ClientTestCase {
         overrides.setTemplateGroup("group");
         overrides.setTemplateGroup("name");
 
-        ParticipantSet conflicts = new ParticipantSet();
-        conflicts.add(new Participant(3L));
+        List<Long> conflicts = new ArrayList<Long>();
+        conflicts.add(3L);
 
         Participant participant1 = new Participant(1L, "p1", "p1n", "p1@example.com", conflicts);
         Participant participant2 = new Participant(1L, "p2", "p2n", "p2@example.com", null);
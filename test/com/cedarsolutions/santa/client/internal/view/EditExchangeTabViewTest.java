@@ -49,6 +49,8 @@ import com.cedarsolutions.santa.client.internal.view.EditExchangeTabView.Preview
 import com.cedarsolutions.santa.client.internal.view.EditExchangeTabView.ResendNotificationClickHandler;
 import com.cedarsolutions.santa.client.internal.view.EditExchangeTabView.ResetClickHandler;
 import com.cedarsolutions.santa.client.internal.view.EditExchangeTabView.ResetConfirmHandler;
+import com.cedarsolutions.santa.client.internal.view.EditExchangeTabView.UndoEditClickHandler;
+import com.cedarsolutions.santa.client.internal.view.EditExchangeTabView.RedoEditClickHandler;
 import com.cedarsolutions.santa.client.internal.view.EditExchangeTabView.ReturnToListClickHandler;
 import com.cedarsolutions.santa.client.internal.view.EditExchangeTabView.RowClickHandler;
 import com.cedarsolutions.santa.client.internal.view.EditExchangeTabView.SaveClickHandler;
@@ -121,6 +123,46 @@ public class EditExchangeTabViewTest extends StubbedClientTestCase {
         assertSame(event, captor.getValue().getClickEvent());
     }
 
+    /** Test UndoEditClickHandler. */
+    @Test public void testUndoEditClickHandler() {
+        ClickEvent event = mock(ClickEvent.class);
+
+        EditExchangeTabView view = mock(EditExchangeTabView.class);
+        UndoEditClickHandler handler = new UndoEditClickHandler(view);
+        assertSame(view, handler.getParent());
+
+        when(view.getUndoEditHandler()).thenReturn(null);
+        handler.onClick(event);  // just make sure it doesn't blow up
+
+        ArgumentCaptor<UnifiedEvent> captor = ArgumentCaptor.forClass(UnifiedEvent.class);
+        ViewEventHandler undoEditHandler = mock(ViewEventHandler.class);
+        when(view.getUndoEditHandler()).thenReturn(undoEditHandler);
+        handler.onClick(event);
+        verify(undoEditHandler).handleEvent(captor.capture());
+        assertEquals(UnifiedEventType.CLICK_EVENT, captor.getValue().getEventType());
+        assertSame(event, captor.getValue().getClickEvent());
+    }
+
+    /** Test RedoEditClickHandler. */
+    @Test public void testRedoEditClickHandler() {
+        ClickEvent event = mock(ClickEvent.class);
+
+        EditExchangeTabView view = mock(EditExchangeTabView.class);
+        RedoEditClickHandler handler = new RedoEditClickHandler(view);
+        assertSame(view, handler.getParent());
+
+        when(view.getRedoEditHandler()).thenReturn(null);
+        handler.onClick(event);  // just make sure it doesn't blow up
+
+        ArgumentCaptor<UnifiedEvent> captor = ArgumentCaptor.forClass(UnifiedEvent.class);
+        ViewEventHandler redoEditHandler = mock(ViewEventHandler.class);
+        when(view.getRedoEditHandler()).thenReturn(redoEditHandler);
+        handler.onClick(event);
+        verify(redoEditHandler).handleEvent(captor.capture());
+        assertEquals(UnifiedEventType.CLICK_EVENT, captor.getValue().getEventType());
+        assertSame(event, captor.getValue().getClickEvent());
+    }
+
     /** Test ResetClickHandler. */
     @Test public void testResetClickHandler() {
         ClickEvent event = mock(ClickEvent.class);
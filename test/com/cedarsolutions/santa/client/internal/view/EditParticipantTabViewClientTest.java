@@ -24,6 +24,9 @@ package com.cedarsolutions.santa.client.internal.view;
 
 import static com.cedarsolutions.santa.shared.domain.MessageKeys.REQUIRED;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.cedarsolutions.exception.InvalidDataException;
 import com.cedarsolutions.santa.client.common.widget.ParticipantList;
 import com.cedarsolutions.santa.client.internal.view.EditParticipantTabView.EmailColumn;
@@ -105,11 +108,14 @@ public class EditParticipantTabViewClientTest extends ClientTestCase {
         Participant other2 = new Participant();
         other2.setId(202L);
 
+        Participant conflict = new Participant();
+        conflict.setId(101L);
+
         Participant participant = createParticipant();
 
         ParticipantSet participants = new ParticipantSet();
         participants.add(participant);
-        participants.addAll(participant.getConflicts());
+        participants.add(conflict);
         participants.add(other1);
         participants.add(other2);
 
@@ -126,7 +132,7 @@ public class EditParticipantTabViewClientTest extends ClientTestCase {
         assertNotSame(participant, view.getEditState());
         assertEquals(giver.getName(), view.giftGiverDisplayLabel.getText());
         assertEquals(receiver.getName(), view.giftReceiverDisplayLabel.getText());
-        assertContainsItems(view.getEditState().getConflicts(), 101L);
+        assertContainsIds(view.getEditState().getConflictIds(), 101L);
         assertContainsItems(view.conflictInput, "201", "202");
         assertTrue(view.table.getSelectedRecords().isEmpty());
         assertTrue(view.addConflictButton.isEnabled());
@@ -156,58 +162,59 @@ public class EditParticipantTabViewClientTest extends ClientTestCase {
         Participant other2 = new Participant();
         other2.setId(202L);
 
+        Participant conflict = new Participant();
+        conflict.setId(101L);
+
         Participant participant = createParticipant();
 
         ParticipantSet participants = new ParticipantSet();
         participants.add(participant);
-        participants.addAll(participant.getConflicts());
+        participants.add(conflict);
         participants.add(other1);
         participants.add(other2);
 
         EditParticipantTabView view = new EditParticipantTabView();
         view.setEditState(participant, giver, receiver, participants);
-        assertContainsItems(view.getEditState().getConflicts(), 101L);
+        assertContainsIds(view.getEditState().getConflictIds(), 101L);
         assertContainsItems(view.conflictInput, "201", "202");
         assertTrue(view.addConflictButton.isEnabled());
 
         view.conflictInput.setSelectedObjectValue(other2);
         clickButton(view.addConflictButton);
-        assertContainsItems(view.getEditState().getConflicts(), 101L, 202L);
+        assertContainsIds(view.getEditState().getConflictIds(), 101L, 202L);
         assertContainsItems(view.conflictInput, "201");
         assertTrue(view.addConflictButton.isEnabled());
 
         view.conflictInput.setSelectedObjectValue(other1);
         clickButton(view.addConflictButton);
-        assertContainsItems(view.getEditState().getConflicts(), 101L, 202L, 201L);
+        assertContainsIds(view.getEditState().getConflictIds(), 101L, 202L, 201L);
         assertEquals(0, view.conflictInput.getItemCount());
         assertFalse(view.addConflictButton.isEnabled());
 
         view.table.selectNone();
         clickButton(view.deleteConflictButton);
-        assertContainsItems(view.getEditState().getConflicts(), 101L, 202L, 201L);
+        assertContainsIds(view.getEditState().getConflictIds(), 101L, 202L, 201L);
         assertEquals(0, view.conflictInput.getItemCount());
         assertFalse(view.addConflictButton.isEnabled());
 
-        view.table.selectItem(view.getEditState().getConflicts().get(0));
+        view.table.selectItem(conflict);
         clickButton(view.deleteConflictButton);
-        assertContainsItems(view.getEditState().getConflicts(), 202L, 201L);
+        assertContainsIds(view.getEditState().getConflictIds(), 202L, 201L);
         assertContainsItems(view.conflictInput, "101");
         assertTrue(view.addConflictButton.isEnabled());
 
-        view.table.selectItem(view.getEditState().getConflicts().get(0));
-        view.table.selectItem(view.getEditState().getConflicts().get(1));
+        view.table.selectItem(other2);
+        view.table.selectItem(other1);
         clickButton(view.deleteConflictButton);
-        assertTrue(view.getEditState().getConflicts().isEmpty());
+        assertTrue(view.getEditState().getConflictIds().isEmpty());
         assertContainsItems(view.conflictInput, "101", "202", "201");
         assertTrue(view.addConflictButton.isEnabled());
     }
 
     /** Create a Participant for testing. */
     private static Participant createParticipant() {
-        Participant conflict = new Participant();
-        conflict.setId(101L);
-        ParticipantSet conflicts = new ParticipantSet();
-        conflicts.add(conflict);
+        List<Long> conflictIds = new ArrayList<Long>();
+        conflictIds.add(101L);
 
         Participant participant = new Participant();
         participant.setId(1L);
@@ -215,7 +222,7 @@ public class EditParticipantTabViewClientTest extends ClientTestCase {
         participant.setNickname("nick");
         participant.setEmailAddress("email");
         participant.setTemplateOverrides(new TemplateConfig());
-        participant.setConflicts(conflicts);
+        participant.setConflictIds(conflictIds);
 
         return participant;
     }
@@ -228,11 +235,11 @@ public class EditParticipantTabViewClientTest extends ClientTestCase {
         }
     }
 
-    /** Assert that a participant list contains specific items (in order). */
-    private static void assertContainsItems(ParticipantSet list, Long... items) {
+    /** Assert that a list of ids contains specific items (in order). */
+    private static void assertContainsIds(List<Long> list, Long... items) {
         assertEquals(items.length, list.size());
         for (int i = 0; i < items.length; i++) {
-            assertEquals(items[i], list.get(i).getId());
+            assertEquals(items[i], list.get(i));
         }
     }
 
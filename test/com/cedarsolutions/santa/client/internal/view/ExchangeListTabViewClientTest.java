@@ -28,7 +28,7 @@ import com.cedarsolutions.exception.NotSupportedException;
 import com.cedarsolutions.santa.client.internal.view.ExchangeListTabView.NameColumn;
 import com.cedarsolutions.santa.client.internal.view.ExchangeListTabView.StateColumn;
 import com.cedarsolutions.santa.client.junit.ClientTestCase;
-import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
 import com.cedarsolutions.santa.shared.domain.exchange.ExchangeCriteria;
 import com.google.gwt.core.client.GWT;
 
@@ -73,7 +73,7 @@ public class ExchangeListTabViewClientTest extends ClientTestCase {
         clickButton(view.createButton);
         assertTrue(createHandler.handledEvent());
 
-        ViewEventHandlerWithContext<Exchange> editExchangeHandler = new StubbedViewEventHandlerWithContext<Exchange>();
+        ViewEventHandlerWithContext<ExchangeSummary> editExchangeHandler = new StubbedViewEventHandlerWithContext<ExchangeSummary>();
         view.setEditSelectedRowHandler(editExchangeHandler);
         assertSame(editExchangeHandler, view.getEditSelectedRowHandler());
     }
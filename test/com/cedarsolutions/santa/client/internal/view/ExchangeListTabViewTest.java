@@ -54,8 +54,8 @@ import com.cedarsolutions.santa.client.internal.view.ExchangeListTabView.NameCol
 import com.cedarsolutions.santa.client.internal.view.ExchangeListTabView.RowClickHandler;
 import com.cedarsolutions.santa.client.internal.view.ExchangeListTabView.StateColumn;
 import com.cedarsolutions.santa.client.junit.StubbedClientTestCase;
-import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
 import com.cedarsolutions.santa.shared.domain.exchange.ExchangeState;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
 import com.google.gwt.cell.client.TextCell;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.event.dom.client.ClickEvent;
@@ -68,7 +68,7 @@ public class ExchangeListTabViewTest extends StubbedClientTestCase {
 
     /** Test NameColumn. */
     @Test public void testNameColumn() {
-        Exchange item = mock(Exchange.class);
+        ExchangeSummary item = mock(ExchangeSummary.class);
 
         NameColumn column = new NameColumn();
         assertTrue(column.getCell() instanceof TextCell);
@@ -86,7 +86,7 @@ public class ExchangeListTabViewTest extends StubbedClientTestCase {
     /** Test StateColumn. */
     @Test public void testStateColumn() {
         InternalConstants constants = GWT.create(InternalConstants.class);
-        Exchange item = mock(Exchange.class);
+        ExchangeSummary item = mock(ExchangeSummary.class);
 
         StateColumn column = new StateColumn();
         assertTrue(column.getCell() instanceof TextCell);
@@ -142,7 +142,7 @@ public class ExchangeListTabViewTest extends StubbedClientTestCase {
         assertSame(view, handler.getParent());
 
         ClickEvent event = mock(ClickEvent.class);
-        List<Exchange> selected = new ArrayList<Exchange>();
+        List<ExchangeSummary> selected = new ArrayList<ExchangeSummary>();
         when(view.getTable().getSelectedRecords()).thenReturn(selected);
 
         InOrder order = Mockito.inOrder(view, deleteEventHandler);
@@ -163,13 +163,13 @@ public class ExchangeListTabViewTest extends StubbedClientTestCase {
         verify(view, times(0)).showDeletePopup(anyInt());
 
         when(view.getDeleteHandler()).thenReturn(deleteEventHandler);
-        selected.add(mock(Exchange.class));
+        selected.add(mock(ExchangeSummary.class));
         handler.onClick(event);
         order.verify(deleteEventHandler, never()).handleEvent(isA(UnifiedEvent.class));
         verify(view, times(1)).showDeletePopup(1);
 
         when(view.getDeleteHandler()).thenReturn(deleteEventHandler);
-        selected.add(mock(Exchange.class));
+        selected.add(mock(ExchangeSummary.class));
         handler.onClick(event);
         order.verify(deleteEventHandler, never()).handleEvent(isA(UnifiedEvent.class));
         verify(view, times(1)).showDeletePopup(2);
@@ -195,7 +195,7 @@ public class ExchangeListTabViewTest extends StubbedClientTestCase {
     /** Test RowClickHandler. */
     @SuppressWarnings("unchecked")
     @Test public void testRowClickHandler() {
-        ViewEventHandlerWithContext<Exchange> editSelectedRowHandler = mock(ViewEventHandlerWithContext.class);
+        ViewEventHandlerWithContext<ExchangeSummary> editSelectedRowHandler = mock(ViewEventHandlerWithContext.class);
         ExchangeListTabView view = mock(ExchangeListTabView.class);
         when(view.getEditSelectedRowHandler()).thenReturn(editSelectedRowHandler);
         RowClickHandler handler = new RowClickHandler(view);
@@ -0,0 +1,125 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.cedarsolutions.santa.server.assignment.AttemptRunner.Attempt;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+
+/**
+ * Unit tests for AssignmentAttempts.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class AssignmentAttemptsTest extends AssignmentTestCase {
+
+    /** Test greedy(). */
+    @Test public void testGreedy() {
+        ConflictMatrix matrix = new ConflictMatrix(createParticipants(2));
+
+        Attempt attempt = AssignmentAttempts.greedy(matrix, false).createAttempt();
+        int[] first = attempt.attempt(new Random());
+        int[] second = attempt.attempt(new Random());
+        assertEquals(1, first[0]);
+        assertEquals(0, first[1]);
+        assertNotSame(first, second);
+
+        attempt = AssignmentAttempts.greedy(matrix, true).createAttempt();
+        assertNull(attempt.attempt(new Random()));
+    }
+
+    /** Test matching(). */
+    @Test public void testMatching() {
+        ConflictMatrix matrix = new ConflictMatrix(createParticipants(2));
+
+        Attempt attempt = AssignmentAttempts.matching(matrix, false).createAttempt();
+        int[] result = attempt.attempt(new Random());
+        assertEquals(1, result[0]);
+        assertEquals(0, result[1]);
+
+        attempt = AssignmentAttempts.matching(matrix, true).createAttempt();
+        assertNull(attempt.attempt(new Random()));
+
+        // Nobody is allowed to give to the first participant, so the matching is imperfect
+        ParticipantSet participants = createParticipants(3);
+        participants.get(1).addConflict(participants.get(0));
+        participants.get(2).addConflict(participants.get(0));
+        attempt = AssignmentAttempts.matching(new ConflictMatrix(participants), false).createAttempt();
+        result = attempt.attempt(new Random());
+        assertTrue(MatchingSolver.countUnmatched(result) > 0);
+    }
+
+    /** Test multiGift(). */
+    @Test public void testMultiGift() {
+        ConflictMatrix matrix = new ConflictMatrix(createParticipants(3));
+
+        Attempt attempt = AssignmentAttempts.multiGift(matrix, 2, false).createAttempt();
+        int[] first = attempt.attempt(new Random());
+        int[] second = attempt.attempt(new Random());
+        assertEquals(6, first.length);
+        assertEquals(0, MatchingSolver.countUnmatched(first));
+        assertNotSame(first, second);
+
+        attempt = AssignmentAttempts.multiGift(matrix, 2, true).createAttempt();
+        assertNull(attempt.attempt(new Random()));
+
+        // The first participant may only give to one other participant, so the assignments are incomplete
+        ParticipantSet participants = createParticipants(3);
+        participants.get(0).addConflict(participants.get(1));
+        attempt = AssignmentAttempts.multiGift(new ConflictMatrix(participants), 2, false).createAttempt();
+        first = attempt.attempt(new Random());
+        assertTrue(MatchingSolver.countUnmatched(first) > 0);
+    }
+
+    /** Test cycle(). */
+    @Test public void testCycle() {
+        ConflictMatrix matrix = new ConflictMatrix(createParticipants(10));
+        Attempt attempt = AssignmentAttempts.cycle(matrix, 1000).createAttempt();
+        int[] first = attempt.attempt(new Random());
+        int[] second = attempt.attempt(new Random());
+        assertNotSame(first, second);
+
+        int giver = 0;
+        for (int i = 0; i < 10; i++) {
+            giver = first[giver];
+            assertFalse(i < 9 && giver == 0);
+        }
+
+        assertEquals(0, giver);
+
+        ParticipantSet participants = createParticipants(3);
+        participants.get(1).addConflict(participants.get(0));
+        participants.get(2).addConflict(participants.get(0));
+        attempt = AssignmentAttempts.cycle(new ConflictMatrix(participants), 1000).createAttempt();
+        assertNull(attempt.attempt(new Random()));
+    }
+
+}
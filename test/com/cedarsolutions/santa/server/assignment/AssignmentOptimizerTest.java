@@ -0,0 +1,268 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+
+/**
+ * Unit tests for AssignmentOptimizer.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class AssignmentOptimizerTest extends AssignmentTestCase {
+
+    /** Number of times tests should be repeated. */
+    private static final int REPEAT = 100;
+
+    /** Test the constructor. */
+    @Test public void testConstructor() {
+        ConflictMatrix matrix = new ConflictMatrix(createParticipants(3));
+        AssignmentOptimizer optimizer = new AssignmentOptimizer(matrix);
+        assertSame(matrix, optimizer.getMatrix());
+        assertEquals(0, optimizer.getPenalty(0, 1));
+    }
+
+    /** Test addPenalty() and getPenalty(). */
+    @Test public void testAddPenalty() {
+        AssignmentOptimizer optimizer = createOptimizer(createParticipants(3));
+        optimizer.addPenalty(0, 1, 5);
+        optimizer.addPenalty(0, 1, 2);
+        optimizer.addPenalty(2, 0, 1);
+        assertEquals(7, optimizer.getPenalty(0, 1));
+        assertEquals(1, optimizer.getPenalty(2, 0));
+        assertEquals(0, optimizer.getPenalty(1, 0));
+
+        try {
+            optimizer.addPenalty(0, 2, -1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) { }
+    }
+
+    /** Test countMutualPairs(). */
+    @Test public void testCountMutualPairs() {
+        assertEquals(0, AssignmentOptimizer.countMutualPairs(new int[] { }));
+        assertEquals(1, AssignmentOptimizer.countMutualPairs(new int[] { 1, 0, }));
+        assertEquals(0, AssignmentOptimizer.countMutualPairs(new int[] { 1, 2, 0, }));
+        assertEquals(2, AssignmentOptimizer.countMutualPairs(new int[] { 1, 0, 3, 2, }));
+        assertEquals(1, AssignmentOptimizer.countMutualPairs(new int[] { 1, 0, 3, 4, 2, }));
+    }
+
+    /** Test optimize() with too few participants. */
+    @Test public void testOptimizeTooFew() {
+        assertFalse(createOptimizer(new ParticipantSet()).optimize(0, new Random()));
+        assertFalse(createOptimizer(createParticipants(1)).optimize(0, new Random()));
+    }
+
+    /** Test optimize() with two participants, which can only form a mutual pair. */
+    @Test public void testOptimizeTwoParticipants() {
+        AssignmentOptimizer optimizer = createOptimizer(createParticipants(2));
+        assertTrue(optimizer.optimize(0, new Random()));
+        assertArrayEquals(new int[] { 1, 0, }, optimizer.getReceivers());
+        assertEquals(0L, optimizer.getScore());
+
+        assertTrue(optimizer.optimize(3, new Random()));
+        assertArrayEquals(new int[] { 1, 0, }, optimizer.getReceivers());
+        assertEquals(3L, optimizer.getScore());
+    }
+
+    /** Test optimize() when the conflicts allow only one legal assignment set. */
+    @Test public void testOptimizeUniqueSolution() {
+        ParticipantSet participants = createParticipants(3);
+        participants.get(0).addConflict(participants.get(1));
+        participants.get(1).addConflict(participants.get(2));
+
+        AssignmentOptimizer optimizer = createOptimizer(participants);
+        optimizer.addPenalty(0, 2, 4);
+        for (int i = 0; i < REPEAT; i++) {
+            assertTrue(optimizer.optimize(1, new Random()));
+            assertArrayEquals(new int[] { 2, 0, 1, }, optimizer.getReceivers());
+            assertEquals(4L, optimizer.getScore());
+        }
+    }
+
+    /** Test optimize() when nobody is allowed to give a gift to one of the participants. */
+    @Test public void testOptimizeInfeasible() {
+        ParticipantSet participants = createParticipants(10);
+        for (int i = 1; i < participants.size(); i++) {
+            participants.get(i).addConflict(participants.get(0));
+        }
+
+        assertFalse(createOptimizer(participants).optimize(0, new Random()));
+    }
+
+    /** Test that penalized pairings are avoided whenever possible. */
+    @Test public void testOptimizeAvoidsPenalties() {
+        ParticipantSet participants = createParticipants(3);
+        AssignmentOptimizer optimizer = createOptimizer(participants);
+        optimizer.addPenalty(0, 1, 1);  // only the cycle 0 -> 2 -> 1 -> 0 avoids this
+
+        for (int i = 0; i < REPEAT; i++) {
+            assertTrue(optimizer.optimize(0, new Random()));
+            assertArrayEquals(new int[] { 2, 0, 1, }, optimizer.getReceivers());
+            assertEquals(0L, optimizer.getScore());
+        }
+    }
+
+    /** Test that equally good results are chosen at random. */
+    @Test public void testOptimizeBreaksTies() {
+        AssignmentOptimizer optimizer = createOptimizer(createParticipants(3));
+        boolean[] seen = new boolean[3];
+        Random random = new Random(42L);
+        for (int i = 0; i < REPEAT; i++) {
+            assertTrue(optimizer.optimize(0, random));
+            seen[optimizer.getReceivers()[0]] = true;
+        }
+
+        assertFalse(seen[0]);
+        assertTrue(seen[1]);
+        assertTrue(seen[2]);
+    }
+
+    /** Test that mutual pairs are removed when they are penalized. */
+    @Test public void testOptimizeRemovesMutualPairs() {
+        Random random = new Random(42L);
+        for (int size = 3; size <= 20; size++) {
+            AssignmentOptimizer optimizer = createOptimizer(createParticipants(size));
+            for (int i = 0; i < 10; i++) {
+                assertTrue(optimizer.optimize(1, random));
+                checkValid(optimizer);
+                assertEquals(0, AssignmentOptimizer.countMutualPairs(optimizer.getReceivers()));
+                assertEquals(0L, optimizer.getScore());
+            }
+        }
+    }
+
+    /** Test that the same seed always yields the same result. */
+    @Test public void testOptimizeSeeded() {
+        ParticipantSet participants = createParticipants(50);
+        AssignmentOptimizer optimizer = createOptimizer(participants);
+        for (long seed = 0; seed < 10; seed++) {
+            assertTrue(optimizer.optimize(1, new Random(seed)));
+            int[] first = Arrays.copyOf(optimizer.getReceivers(), participants.size());
+            assertTrue(optimizer.optimize(1, new Random(seed)));
+            assertArrayEquals(first, optimizer.getReceivers());
+        }
+    }
+
+    /** Test that the result is the lowest-cost assignment set, by comparing against every permutation. */
+    @Test public void testOptimizeLowestCost() {
+        Random random = new Random(42L);
+        for (int i = 0; i < REPEAT; i++) {
+            int size = 2 + random.nextInt(6);
+            ParticipantSet participants = createParticipants(size);
+            for (Participant participant : participants) {
+                for (Participant conflict : participants) {
+                    if (random.nextInt(100) < 20) {
+                        participant.addConflict(conflict);
+                    }
+                }
+            }
+
+            AssignmentOptimizer optimizer = createOptimizer(participants);
+            for (int giver = 0; giver < size; giver++) {
+                for (int receiver = 0; receiver < size; receiver++) {
+                    optimizer.addPenalty(giver, receiver, random.nextInt(5));
+                }
+            }
+
+            long expected = findLowestCost(optimizer, new int[size], new boolean[size], 0);
+            if (expected == Long.MAX_VALUE) {
+                assertFalse(optimizer.optimize(0, random));
+            } else {
+                assertTrue(optimizer.optimize(0, random));
+                checkValid(optimizer);
+                assertEquals(expected, optimizer.getScore());
+            }
+        }
+    }
+
+    /** Test optimize() for a large exchange with dense random conflicts and penalties. */
+    @Test public void testOptimizeLarge() {
+        Random random = new Random(42L);
+        ParticipantSet participants = createParticipants(300);
+        for (Participant participant : participants) {
+            for (Participant conflict : participants) {
+                if (random.nextInt(100) < 90) {
+                    participant.addConflict(conflict);
+                }
+            }
+        }
+
+        AssignmentOptimizer optimizer = createOptimizer(participants);
+        for (int i = 0; i < 1000; i++) {
+            optimizer.addPenalty(random.nextInt(300), random.nextInt(300), 1 + random.nextInt(10));
+        }
+
+        assertTrue(optimizer.optimize(1, random));
+        checkValid(optimizer);
+    }
+
+    /** Find the lowest cost of any valid set of assignments by brute force, or Long.MAX_VALUE if there are none. */
+    private static long findLowestCost(AssignmentOptimizer optimizer, int[] receivers, boolean[] used, int giver) {
+        if (giver == receivers.length) {
+            long cost = 0;
+            for (int i = 0; i < receivers.length; i++) {
+                cost += optimizer.getPenalty(i, receivers[i]);
+            }
+
+            return cost;
+        }
+
+        long lowest = Long.MAX_VALUE;
+        for (int receiver = 0; receiver < receivers.length; receiver++) {
+            if (!used[receiver] && optimizer.getMatrix().isAllowed(giver, receiver)) {
+                used[receiver] = true;
+                receivers[giver] = receiver;
+                lowest = Math.min(lowest, findLowestCost(optimizer, receivers, used, giver + 1));
+                used[receiver] = false;
+            }
+        }
+
+        return lowest;
+    }
+
+    /** Check that the optimizer's result respects every conflict and uses every receiver once. */
+    private static void checkValid(AssignmentOptimizer optimizer) {
+        int[] receivers = optimizer.getReceivers();
+        boolean[] used = new boolean[receivers.length];
+        for (int giver = 0; giver < receivers.length; giver++) {
+            int receiver = receivers[giver];
+            assertTrue(optimizer.getMatrix().isAllowed(giver, receiver));
+            assertFalse(used[receiver]);
+            used[receiver] = true;
+        }
+    }
+
+}
@@ -0,0 +1,207 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import static com.cedarsolutions.santa.server.assignment.MatchingSolver.UNMATCHED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+
+/**
+ * Unit tests for AssignmentRepairer.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class AssignmentRepairerTest extends AssignmentTestCase {
+
+    /** Number of times tests should be repeated. */
+    private static final int REPEAT = 100;
+
+    /** Test the constructor. */
+    @Test public void testConstructor() {
+        ConflictMatrix matrix = new ConflictMatrix(createParticipants(3));
+        AssignmentRepairer repairer = new AssignmentRepairer(matrix);
+        assertSame(matrix, repairer.getMatrix());
+    }
+
+    /** Test repair() with no participants. */
+    @Test public void testRepairEmpty() {
+        AssignmentRepairer repairer = new AssignmentRepairer(new ConflictMatrix(new ParticipantSet()));
+        assertTrue(repairer.repair(new int[0], true, new Random()));
+    }
+
+    /** Test repair() when nothing needs to change. */
+    @Test public void testRepairUnchanged() {
+        AssignmentRepairer repairer = new AssignmentRepairer(new ConflictMatrix(createParticipants(3)));
+        int[] receivers = new int[] { 1, 2, 0, };
+        assertTrue(repairer.repair(receivers, true, new Random()));
+        assertEquals(1, receivers[0]);
+        assertEquals(2, receivers[1]);
+        assertEquals(0, receivers[2]);
+        assertFalse(repairer.isChanged(0));
+        assertFalse(repairer.isChanged(1));
+        assertFalse(repairer.isChanged(2));
+    }
+
+    /** Test repair() when a participant drops out, so their giver simply takes their receiver. */
+    @Test public void testRepairDropOut() {
+        for (int i = 0; i < REPEAT; i++) {
+            // 0 -> 1 -> (dropped) -> 2 -> 3 -> 0
+            AssignmentRepairer repairer = new AssignmentRepairer(new ConflictMatrix(createParticipants(4)));
+            int[] receivers = new int[] { 1, UNMATCHED, 3, 0, };
+            assertTrue(repairer.repair(receivers, true, new Random()));
+            assertEquals(1, receivers[0]);
+            assertEquals(2, receivers[1]);
+            assertEquals(3, receivers[2]);
+            assertEquals(0, receivers[3]);
+            assertEquals(1, countChanged(repairer, 4));
+        }
+    }
+
+    /** Test repair() when a participant joins, so they are spliced into the existing cycle. */
+    @Test public void testRepairJoin() {
+        for (int i = 0; i < REPEAT; i++) {
+            // 0 -> 1 -> 2 -> 3 -> 0, and 4 is new
+            AssignmentRepairer repairer = new AssignmentRepairer(new ConflictMatrix(createParticipants(5)));
+            int[] receivers = new int[] { 1, 2, 3, 0, UNMATCHED, };
+            assertTrue(repairer.repair(receivers, true, new Random()));
+            assertValid(repairer.getMatrix(), receivers, true);
+            assertEquals(2, countChanged(repairer, 5));
+            assertTrue(repairer.isChanged(4));
+        }
+    }
+
+    /** Test repair() when conflicts force a longer splice. */
+    @Test public void testRepairConflicts() {
+        ParticipantSet participants = createParticipants(4);
+        participants.get(3).addConflict(participants.get(1));
+        participants.get(3).addConflict(participants.get(2));
+        participants.get(0).addConflict(participants.get(3));
+
+        for (int i = 0; i < REPEAT; i++) {
+            // 0 -> 1 -> 2 -> 0, and 3 is new; 3 can only give to 0, and 0 can't give to 3
+            AssignmentRepairer repairer = new AssignmentRepairer(new ConflictMatrix(participants));
+            int[] receivers = new int[] { 1, 2, 0, UNMATCHED, };
+            assertTrue(repairer.repair(receivers, false, new Random()));
+            assertValid(repairer.getMatrix(), receivers, false);
+            assertEquals(0, receivers[3]);
+            assertEquals(1, receivers[0]);
+            assertEquals(3, receivers[2]);
+            assertEquals(2, countChanged(repairer, 4));
+        }
+
+        // Once nobody may give to 3, there is no repair
+        participants.get(1).addConflict(participants.get(3));
+        participants.get(2).addConflict(participants.get(3));
+        AssignmentRepairer repairer = new AssignmentRepairer(new ConflictMatrix(participants));
+        assertFalse(repairer.repair(new int[] { 1, 2, 0, UNMATCHED, }, false, new Random()));
+    }
+
+    /** Test repair() avoiding mutual pairs. */
+    @Test public void testRepairMutualPairs() {
+        for (int i = 0; i < REPEAT; i++) {
+            // 0 <-> 1 already, and 2 is new; the existing mutual pair is broken by the splice
+            AssignmentRepairer repairer = new AssignmentRepairer(new ConflictMatrix(createParticipants(3)));
+            int[] receivers = new int[] { 1, 0, UNMATCHED, };
+            assertTrue(repairer.repair(receivers, true, new Random()));
+            assertValid(repairer.getMatrix(), receivers, true);
+            assertEquals(2, countChanged(repairer, 3));
+        }
+
+        // With two participants, a mutual pair can't be avoided
+        AssignmentRepairer repairer = new AssignmentRepairer(new ConflictMatrix(createParticipants(2)));
+        assertFalse(repairer.repair(new int[] { UNMATCHED, UNMATCHED, }, true, new Random()));
+        int[] receivers = new int[] { UNMATCHED, UNMATCHED, };
+        assertTrue(repairer.repair(receivers, false, new Random()));
+        assertEquals(1, receivers[0]);
+        assertEquals(0, receivers[1]);
+    }
+
+    /** Test repair() against random roster changes, checking that every valid assignment is kept. */
+    @Test public void testRepairRandom() {
+        Random random = new Random(42L);
+        for (int i = 0; i < REPEAT; i++) {
+            ParticipantSet participants = createParticipants(40);
+            for (int giver = 0; giver < participants.size(); giver++) {
+                for (int receiver = 0; receiver < participants.size(); receiver++) {
+                    if (random.nextInt(10) == 0) {
+                        participants.get(giver).addConflict(participants.get(receiver));
+                    }
+                }
+            }
+
+            ConflictMatrix matrix = new ConflictMatrix(participants);
+            int[] original = new MatchingSolver(matrix).findMatching(random);
+
+            // Anyone who joined or whose receiver dropped out needs a new receiver
+            int[] receivers = original.clone();
+            for (int j = 0; j < 3; j++) {
+                int giver = random.nextInt(receivers.length);
+                receivers[giver] = UNMATCHED;
+            }
+
+            AssignmentRepairer repairer = new AssignmentRepairer(matrix);
+            int[] repaired = receivers.clone();
+            assertTrue(repairer.repair(repaired, false, random));
+            assertValid(matrix, repaired, false);
+            for (int giver = 0; giver < receivers.length; giver++) {
+                assertEquals(repaired[giver] != receivers[giver], repairer.isChanged(giver));
+            }
+        }
+    }
+
+    /** Count the givers changed by the last repair. */
+    private static int countChanged(AssignmentRepairer repairer, int size) {
+        int count = 0;
+        for (int giver = 0; giver < size; giver++) {
+            if (repairer.isChanged(giver)) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /** Check that a set of receivers is a valid set of assignments. */
+    private static void assertValid(ConflictMatrix matrix, int[] receivers, boolean autoConflict) {
+        boolean[] taken = new boolean[receivers.length];
+        for (int giver = 0; giver < receivers.length; giver++) {
+            int receiver = receivers[giver];
+            assertNotEquals(UNMATCHED, receiver);
+            assertTrue(matrix.isAllowed(giver, receiver));
+            assertFalse(taken[receiver]);
+            taken[receiver] = true;
+            if (autoConflict) {
+                assertNotEquals(giver, receivers[receiver]);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+
+/**
+ * Unit tests for AssignmentSampler.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class AssignmentSamplerTest extends AssignmentTestCase {
+
+    /** Number of times tests should be repeated. */
+    private static final int REPEAT = 100;
+
+    /** Test the constructor. */
+    @Test public void testConstructor() {
+        ConflictMatrix matrix = new ConflictMatrix(createParticipants(3));
+        AssignmentSampler sampler = new AssignmentSampler(matrix);
+        assertSame(matrix, sampler.getMatrix());
+    }
+
+    /** Test getMixingSteps(). */
+    @Test public void testGetMixingSteps() {
+        assertEquals(0, AssignmentSampler.getMixingSteps(0));
+        assertEquals(8, AssignmentSampler.getMixingSteps(1));
+        assertEquals(32, AssignmentSampler.getMixingSteps(2));
+        assertEquals(8 * 1000 * 10, AssignmentSampler.getMixingSteps(1000));
+    }
+
+    /** Test sample() with too few participants. */
+    @Test public void testSampleTooFew() {
+        assertFalse(createSampler(new ParticipantSet()).sample(false, new Random()));
+        assertFalse(createSampler(createParticipants(1)).sample(false, new Random()));
+    }
+
+    /** Test sample() with two participants, with and without automatic conflict detection. */
+    @Test public void testSampleTwoParticipants() {
+        AssignmentSampler sampler = createSampler(createParticipants(2));
+        for (int i = 0; i < REPEAT; i++) {
+            assertTrue(sampler.sample(false, new Random()));
+            assertEquals(1, sampler.getReceivers()[0]);
+            assertEquals(0, sampler.getReceivers()[1]);
+            assertFalse(sampler.sample(true, new Random()));
+        }
+    }
+
+    /** Test sample() when the conflicts allow only one legal assignment set. */
+    @Test public void testSampleUniqueSolution() {
+        ParticipantSet participants = createParticipants(3);
+        participants.get(0).addConflict(participants.get(1));
+        participants.get(1).addConflict(participants.get(2));
+
+        AssignmentSampler sampler = createSampler(participants);
+        for (int i = 0; i < REPEAT; i++) {
+            assertTrue(sampler.sample(true, new Random()));
+            assertEquals(2, sampler.getReceivers()[0]);
+            assertEquals(0, sampler.getReceivers()[1]);
+            assertEquals(1, sampler.getReceivers()[2]);
+        }
+    }
+
+    /** Test sample() when nobody is allowed to give a gift to one of the participants. */
+    @Test public void testSampleInfeasible() {
+        ParticipantSet participants = createParticipants(10);
+        for (int i = 1; i < participants.size(); i++) {
+            participants.get(i).addConflict(participants.get(0));
+        }
+
+        assertFalse(createSampler(participants).sample(false, new Random()));
+    }
+
+    /** Test that the same seed always yields the same result. */
+    @Test public void testSampleSeeded() {
+        ParticipantSet participants = createParticipants(50);
+        AssignmentSampler sampler = createSampler(participants);
+        for (long seed = 0; seed < 10; seed++) {
+            assertTrue(sampler.sample(true, new Random(seed)));
+            int[] first = Arrays.copyOf(sampler.getReceivers(), participants.size());
+            assertTrue(sampler.sample(true, new Random(seed)));
+            assertArrayEquals(first, sampler.getReceivers());
+        }
+    }
+
+    /** Test that rejection sampling is uniform over the 9 derangements of four participants. */
+    @Test public void testSampleUniform() {
+        checkUniform(createSampler(createParticipants(4)), new Random(42L), 9);
+    }
+
+    /** Test that the Markov chain is close to uniform, when conflicts force it to be used. */
+    @Test public void testSampleUniformMarkovChain() {
+        // Each participant may only give to the participants 1, 2 or 4 places after them, so
+        // there are exactly 65 valid sets of assignments and almost every permutation is rejected
+        ParticipantSet participants = createParticipants(10);
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                if (j != (i + 1) % 10 && j != (i + 2) % 10 && j != (i + 4) % 10) {
+                    participants.get(i).addConflict(participants.get(j));
+                }
+            }
+        }
+
+        checkUniform(createSampler(participants), new Random(42L), 65);
+    }
+
+    /** Test sample() for a large exchange with dense random conflicts. */
+    @Test public void testSampleLarge() {
+        Random random = new Random(42L);
+        ParticipantSet participants = createParticipants(500);
+        for (Participant participant : participants) {
+            for (Participant conflict : participants) {
+                if (random.nextInt(100) < 90) {
+                    participant.addConflict(conflict);
+                }
+            }
+        }
+
+        ConflictMatrix matrix = new ConflictMatrix(participants);
+        AssignmentSampler sampler = new AssignmentSampler(matrix);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(sampler.sample(true, random));
+            int[] receivers = sampler.getReceivers();
+            boolean[] used = new boolean[receivers.length];
+            for (int giver = 0; giver < receivers.length; giver++) {
+                int receiver = receivers[giver];
+                assertTrue(matrix.isAllowed(giver, receiver));
+                assertFalse(used[receiver]);
+                assertFalse(receivers[receiver] == giver);
+                used[receiver] = true;
+            }
+        }
+    }
+
+    /** Check that every expected result shows up about equally often. */
+    private static void checkUniform(AssignmentSampler sampler, Random random, int expected) {
+        int samples = 400 * expected;
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (int i = 0; i < samples; i++) {
+            assertTrue(sampler.sample(false, random));
+            String key = Arrays.toString(sampler.getReceivers());
+            Integer count = counts.get(key);
+            counts.put(key, count == null ? 1 : count + 1);
+        }
+
+        assertEquals(expected, counts.size());
+        for (Integer count : counts.values()) {
+            assertTrue(count > 300 && count < 500);  // 400 expected; this is 5 standard deviations
+        }
+    }
+
+}
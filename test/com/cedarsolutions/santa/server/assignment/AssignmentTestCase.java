@@ -0,0 +1,85 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import com.cedarsolutions.santa.shared.domain.exchange.FeasibilityResult;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+
+/**
+ * Test case that the assignment tests inherit from, with shared fixtures.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public abstract class AssignmentTestCase {
+
+    /** Create a set of participants with ids 1 through count and no conflicts. */
+    protected static ParticipantSet createParticipants(int count) {
+        ParticipantSet participants = new ParticipantSet();
+        for (int i = 1; i <= count; i++) {
+            participants.add(new Participant((long) i, "name" + i, "nick" + i, "email" + i));
+        }
+
+        return participants;
+    }
+
+    /** Create a matching solver for a set of participants. */
+    protected static MatchingSolver createMatchingSolver(ParticipantSet participants) {
+        return new MatchingSolver(new ConflictMatrix(participants));
+    }
+
+    /** Create a cycle solver for a set of participants. */
+    protected static CycleSolver createCycleSolver(ParticipantSet participants) {
+        return new CycleSolver(new ConflictMatrix(participants));
+    }
+
+    /** Create a greedy solver for a set of participants. */
+    protected static GreedySolver createGreedySolver(ParticipantSet participants) {
+        return new GreedySolver(new ConflictMatrix(participants));
+    }
+
+    /** Create a multi-gift solver for a set of participants. */
+    protected static MultiGiftSolver createMultiGiftSolver(ParticipantSet participants, int gifts) {
+        return new MultiGiftSolver(new ConflictMatrix(participants), gifts);
+    }
+
+    /** Create an assignment sampler for a set of participants. */
+    protected static AssignmentSampler createSampler(ParticipantSet participants) {
+        return new AssignmentSampler(new ConflictMatrix(participants));
+    }
+
+    /** Create an assignment optimizer for a set of participants. */
+    protected static AssignmentOptimizer createOptimizer(ParticipantSet participants) {
+        return new AssignmentOptimizer(new ConflictMatrix(participants));
+    }
+
+    /** Check the feasibility of a set of participants. */
+    protected static FeasibilityResult checkFeasibility(ParticipantSet participants) {
+        return new FeasibilityChecker(new ConflictMatrix(participants)).check();
+    }
+
+    /** Check the feasibility of a set of participants who each give more than one gift. */
+    protected static FeasibilityResult checkFeasibility(ParticipantSet participants, int gifts) {
+        return new FeasibilityChecker(new ConflictMatrix(participants), gifts).check();
+    }
+
+}
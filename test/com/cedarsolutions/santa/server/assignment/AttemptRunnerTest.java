@@ -0,0 +1,237 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.cedarsolutions.exception.ServiceException;
+import com.cedarsolutions.santa.server.assignment.AttemptRunner.Attempt;
+import com.cedarsolutions.santa.server.assignment.AttemptRunner.AttemptFactory;
+
+/**
+ * Unit tests for AttemptRunner.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class AttemptRunnerTest {
+
+    /** Thread factory used for parallel tests. */
+    private static final ThreadFactory THREAD_FACTORY = Executors.defaultThreadFactory();
+
+    /** Seed passed to the runner in every test. */
+    private static final long SEED = 42L;
+
+    /** Number of attempts made in every test. */
+    private static final int ATTEMPTS = 20;
+
+    /** Test run() when every attempt fails. */
+    @Test public void testRunAllFail() {
+        for (int parallelism = 1; parallelism <= 4; parallelism++) {
+            RecordingFactory factory = new RecordingFactory(-1);
+            AttemptRunner runner = new AttemptRunner(THREAD_FACTORY, parallelism);
+            assertNull(runner.run(factory, ATTEMPTS, new Random(SEED)));
+            assertEquals(ATTEMPTS, factory.getIndexes().size());
+            assertEquals(parallelism, factory.getCreated());
+        }
+    }
+
+    /** Test run() with fewer attempts than threads. */
+    @Test public void testRunFewAttempts() {
+        AttemptRunner runner = new AttemptRunner(THREAD_FACTORY, 8);
+
+        RecordingFactory factory = new RecordingFactory(-1);
+        assertNull(runner.run(factory, 1, new Random(SEED)));
+        assertEquals(1, factory.getIndexes().size());
+        assertEquals(1, factory.getCreated());
+
+        factory = new RecordingFactory(-1);
+        assertNull(runner.run(factory, 0, new Random(SEED)));
+        assertEquals(0, factory.getIndexes().size());
+    }
+
+    /** Test run() serially, where it should stop at the first success. */
+    @Test public void testRunSerial() {
+        RecordingFactory factory = new RecordingFactory(3);
+        AttemptRunner runner = new AttemptRunner(null, 1);
+        int[] result = runner.run(factory, ATTEMPTS, new Random(SEED));
+        assertEquals(3, result[0]);
+        assertEquals(4, factory.getIndexes().size());
+        assertEquals(1, factory.getCreated());
+    }
+
+    /** Test that the result is the same no matter how many threads are used. */
+    @Test public void testRunParallel() {
+        for (int parallelism = 2; parallelism <= 8; parallelism++) {
+            AttemptRunner runner = new AttemptRunner(THREAD_FACTORY, parallelism);
+            for (int winner = 0; winner < ATTEMPTS; winner++) {
+                RecordingFactory factory = new RecordingFactory(winner);
+                int[] result = runner.run(factory, ATTEMPTS, new Random(SEED));
+                assertEquals(winner, result[0]);
+
+                // Every lower-indexed attempt ran, and nothing ran twice
+                for (int index = 0; index <= winner; index++) {
+                    assertTrue(factory.getIndexes().contains(index));
+                }
+
+                assertEquals(factory.getIndexes().size(), new HashSet<Integer>(factory.getIndexes()).size());
+            }
+        }
+    }
+
+    /** Test that an attempt still running when a lower-indexed attempt succeeds is interrupted, not waited for. */
+    @Test public void testRunInterruptsAbandoned() throws InterruptedException {
+        final long first = new Random(new Random(SEED).nextLong()).nextLong();
+        final CountDownLatch blocking = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+
+        AttemptFactory factory = new AttemptFactory() {
+            @Override
+            public Attempt createAttempt() {
+                return new Attempt() {
+                    @Override
+                    public int[] attempt(Random random) {
+                        try {
+                            if (random.nextLong() == first) {
+                                blocking.await(5, TimeUnit.SECONDS);  // make sure attempt 1 is in flight
+                                return new int[] { 0 };
+                            }
+
+                            blocking.countDown();
+                            Thread.sleep(60000);
+                            return null;
+                        } catch (InterruptedException e) {
+                            interrupted.countDown();
+                            return null;
+                        }
+                    }
+                };
+            }
+        };
+
+        long start = System.currentTimeMillis();
+        int[] result = new AttemptRunner(THREAD_FACTORY, 2).run(factory, 2, new Random(SEED));
+        assertEquals(0, result[0]);
+        assertTrue(System.currentTimeMillis() - start < 10000);
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    /** Test that a failure in an attempt is reported. */
+    @Test public void testRunException() {
+        AttemptFactory factory = new AttemptFactory() {
+            @Override
+            public Attempt createAttempt() {
+                return new Attempt() {
+                    @Override
+                    public int[] attempt(Random random) {
+                        throw new IllegalStateException("Hello");
+                    }
+                };
+            }
+        };
+
+        try {
+            new AttemptRunner(THREAD_FACTORY, 2).run(factory, ATTEMPTS, new Random());
+            fail("Expected ServiceException");
+        } catch (ServiceException e) { }
+    }
+
+    /**
+     * Factory for attempts that record which attempt they are running, and succeed only for one of them.
+     * Attempts are identified by the first value from their source of randomness, which is unique to each attempt.
+     */
+    private static class RecordingFactory implements AttemptFactory {
+
+        /** First random value seen by each attempt, by index. */
+        private final long[] values = new long[ATTEMPTS];
+
+        /** Index of the attempt that should succeed, or -1 if none should. */
+        private final int winner;
+
+        /** Indexes of the attempts that were run. */
+        private final List<Integer> indexes = Collections.synchronizedList(new ArrayList<Integer>());
+
+        /** Number of attempts created. */
+        private int created;
+
+        /** Create a factory. */
+        RecordingFactory(int winner) {
+            this.winner = winner;
+
+            Random random = new Random(SEED);
+            for (int i = 0; i < ATTEMPTS; i++) {
+                this.values[i] = new Random(random.nextLong()).nextLong();
+            }
+        }
+
+        @Override
+        public synchronized Attempt createAttempt() {
+            this.created++;
+            return new Attempt() {
+                @Override
+                public int[] attempt(Random random) {
+                    int index = getIndex(random.nextLong());
+                    indexes.add(index);
+                    return index == winner ? new int[] { index } : null;
+                }
+            };
+        }
+
+        /** Get the index of the attempt that saw a particular random value. */
+        private int getIndex(long value) {
+            for (int i = 0; i < ATTEMPTS; i++) {
+                if (this.values[i] == value) {
+                    return i;
+                }
+            }
+
+            throw new IllegalStateException("Unexpected random value");
+        }
+
+        /** Get a copy of the indexes, since abandoned attempts may still be recording theirs. */
+        public List<Integer> getIndexes() {
+            synchronized (this.indexes) {
+                return new ArrayList<Integer>(this.indexes);
+            }
+        }
+
+        public synchronized int getCreated() {
+            return this.created;
+        }
+
+    }
+
+}
@@ -0,0 +1,230 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.cedarsolutions.santa.shared.domain.exchange.Assignment;
+import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
+import com.cedarsolutions.santa.shared.domain.exchange.ConflictGroup;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+
+/**
+ * Unit tests for ConflictMatrix.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class ConflictMatrixTest extends AssignmentTestCase {
+
+    /** Test the constructor and isAllowed(). */
+    @Test public void testConstructor() {
+        ParticipantSet participants = createParticipants(3);
+        participants.get(0).addConflict(participants.get(1));
+        participants.get(0).addConflict(new Participant(99L));  // not in the exchange, so ignored
+
+        ConflictMatrix matrix = new ConflictMatrix(participants);
+        assertEquals(3, matrix.size());
+        assertEquals(1, matrix.getWords());
+        assertSame(participants, matrix.getParticipants());
+        assertSame(participants.get(0), matrix.getParticipant(0));
+        assertSame(participants.get(2), matrix.getParticipant(2));
+
+        assertFalse(matrix.isAllowed(0, 0));
+        assertFalse(matrix.isAllowed(0, 1));
+        assertTrue(matrix.isAllowed(0, 2));
+        assertTrue(matrix.isAllowed(1, 0));
+        assertFalse(matrix.isAllowed(1, 1));
+        assertTrue(matrix.isAllowed(1, 2));
+        assertTrue(matrix.isAllowed(2, 0));
+        assertTrue(matrix.isAllowed(2, 1));
+        assertFalse(matrix.isAllowed(2, 2));
+    }
+
+    /** Test the constructor with no participants. */
+    @Test public void testConstructorEmpty() {
+        ConflictMatrix matrix = new ConflictMatrix(new ParticipantSet());
+        assertEquals(0, matrix.size());
+        assertEquals(0, matrix.getWords());
+    }
+
+    /** Test wordsFor(). */
+    @Test public void testWordsFor() {
+        assertEquals(0, ConflictMatrix.wordsFor(0));
+        assertEquals(1, ConflictMatrix.wordsFor(1));
+        assertEquals(1, ConflictMatrix.wordsFor(64));
+        assertEquals(2, ConflictMatrix.wordsFor(65));
+        assertEquals(2, ConflictMatrix.wordsFor(128));
+        assertEquals(3, ConflictMatrix.wordsFor(129));
+    }
+
+    /** Test getIndex(). */
+    @Test public void testGetIndex() {
+        ConflictMatrix matrix = new ConflictMatrix(createParticipants(3));
+        assertEquals(0, matrix.getIndex(1L));
+        assertEquals(1, matrix.getIndex(2L));
+        assertEquals(2, matrix.getIndex(3L));
+        assertEquals(-1, matrix.getIndex(4L));
+        assertEquals(-1, matrix.getIndex(null));
+    }
+
+    /** Test addConflict() and getConflictWord() across word boundaries. */
+    @Test public void testAddConflict() {
+        ConflictMatrix matrix = new ConflictMatrix(createParticipants(130));
+        assertEquals(3, matrix.getWords());
+
+        assertTrue(matrix.isAllowed(64, 129));
+        matrix.addConflict(64, 129);
+        assertFalse(matrix.isAllowed(64, 129));
+        assertTrue(matrix.isAllowed(64, 128));
+        assertTrue(matrix.isAllowed(65, 129));
+
+        assertEquals(0L, matrix.getConflictWord(64, 0));
+        assertEquals(1L, matrix.getConflictWord(64, 1));  // self-conflict at index 64
+        assertEquals(2L, matrix.getConflictWord(64, 2));  // conflict at index 129
+    }
+
+    /** Test the constructor with conflict groups. */
+    @Test public void testConstructorGroups() {
+        ConflictGroup group1 = new ConflictGroup("group1");
+        group1.getParticipantIds().addAll(Arrays.asList(1L, 2L, 99L));  // 99 is not in the exchange, so ignored
+
+        ConflictGroup group2 = new ConflictGroup("group2");
+        group2.getParticipantIds().addAll(Arrays.asList(3L));  // a group of one has no effect
+
+        List<ConflictGroup> groups = new ArrayList<ConflictGroup>();
+        groups.add(group1);
+        groups.add(group2);
+        groups.add(new ConflictGroup());  // an empty group has no effect
+
+        ParticipantSet participants = createParticipants(3);
+        participants.get(2).addConflict(participants.get(0));
+        ConflictMatrix matrix = new ConflictMatrix(participants, groups);
+
+        assertFalse(matrix.isAllowed(0, 0));
+        assertFalse(matrix.isAllowed(0, 1));
+        assertTrue(matrix.isAllowed(0, 2));
+        assertFalse(matrix.isAllowed(1, 0));
+        assertFalse(matrix.isAllowed(1, 1));
+        assertTrue(matrix.isAllowed(1, 2));
+        assertFalse(matrix.isAllowed(2, 0));
+        assertTrue(matrix.isAllowed(2, 1));
+        assertFalse(matrix.isAllowed(2, 2));
+
+        matrix = new ConflictMatrix(participants, null);
+        assertTrue(matrix.isAllowed(0, 1));
+        assertFalse(matrix.isAllowed(2, 0));
+    }
+
+    /** Test addGroup() across word boundaries. */
+    @Test public void testAddGroup() {
+        ConflictMatrix matrix = new ConflictMatrix(createParticipants(130));
+
+        ConflictGroup group = new ConflictGroup("group");
+        group.getParticipantIds().addAll(Arrays.asList(1L, 65L, 130L, 130L));
+        matrix.addGroup(group);
+
+        assertEquals(1L, matrix.getConflictWord(0, 0));
+        assertEquals(1L, matrix.getConflictWord(0, 1));
+        assertEquals(2L, matrix.getConflictWord(0, 2));
+        assertEquals(1L, matrix.getConflictWord(64, 0));
+        assertEquals(1L, matrix.getConflictWord(64, 1));
+        assertEquals(2L, matrix.getConflictWord(64, 2));
+        assertEquals(1L, matrix.getConflictWord(129, 0));
+        assertEquals(1L, matrix.getConflictWord(129, 1));
+        assertEquals(2L, matrix.getConflictWord(129, 2));
+        assertTrue(matrix.isAllowed(1, 0));
+        assertTrue(matrix.isAllowed(0, 2));
+
+        group.setParticipantIds(null);
+        matrix.addGroup(group);  // no effect
+    }
+
+    /** Test toAssignments(). */
+    @Test public void testToAssignments() {
+        ParticipantSet participants = createParticipants(3);
+        ConflictMatrix matrix = new ConflictMatrix(participants);
+
+        AssignmentSet assignments = matrix.toAssignments(new int[] { 2, 0, 1, });
+        assertEquals(3, assignments.size());
+        assertEquals(participants.get(2), assignments.getGiftReceiver(participants.get(0)));
+        assertEquals(participants.get(0), assignments.getGiftReceiver(participants.get(1)));
+        assertEquals(participants.get(1), assignments.getGiftReceiver(participants.get(2)));
+        assertNotSame(assignments.get(0).getGiftGiver(), assignments.get(1).getGiftGiver());
+    }
+
+    /** Test toAssignments() with more than one receiver per giver. */
+    @Test public void testToAssignmentsMultiGift() {
+        ParticipantSet participants = createParticipants(3);
+        ConflictMatrix matrix = new ConflictMatrix(participants);
+
+        AssignmentSet assignments = matrix.toAssignments(new int[] { 1, 2, 2, 0, 0, 1, }, 2);
+        assertEquals(6, assignments.size());
+        assertEquals(participants.get(0), assignments.get(0).getGiftGiver());
+        assertEquals(participants.get(1), assignments.get(0).getGiftReceiver());
+        assertEquals(participants.get(0), assignments.get(1).getGiftGiver());
+        assertEquals(participants.get(2), assignments.get(1).getGiftReceiver());
+        assertEquals(participants.get(1), assignments.get(2).getGiftGiver());
+        assertEquals(participants.get(2), assignments.get(2).getGiftReceiver());
+        assertEquals(participants.get(2), assignments.get(5).getGiftGiver());
+        assertEquals(participants.get(1), assignments.get(5).getGiftReceiver());
+    }
+
+    /** Test toReceivers(). */
+    @Test public void testToReceivers() {
+        ParticipantSet participants = createParticipants(4);
+        participants.get(2).addConflict(participants.get(3));
+        ConflictMatrix matrix = new ConflictMatrix(participants);
+
+        int[] receivers = matrix.toReceivers(null);
+        assertEquals(4, receivers.length);
+        for (int receiver : receivers) {
+            assertEquals(MatchingSolver.UNMATCHED, receiver);
+        }
+
+        AssignmentSet assignments = new AssignmentSet();
+        assignments.add(new Assignment(participants.get(0), participants.get(1)));
+        assignments.add(new Assignment(participants.get(1), participants.get(1)));  // conflicts with self
+        assignments.add(new Assignment(participants.get(2), participants.get(3)));  // conflicts now
+        assignments.add(new Assignment(participants.get(3), participants.get(1)));  // receiver already taken
+        assignments.add(new Assignment(new Participant(99L), participants.get(2)));  // giver is gone
+        assignments.add(new Assignment(participants.get(3), new Participant(99L)));  // receiver is gone
+        assignments.add(new Assignment(participants.get(1), null));
+
+        receivers = matrix.toReceivers(assignments);
+        assertEquals(1, receivers[0]);
+        assertEquals(MatchingSolver.UNMATCHED, receivers[1]);
+        assertEquals(MatchingSolver.UNMATCHED, receivers[2]);
+        assertEquals(MatchingSolver.UNMATCHED, receivers[3]);
+    }
+
+}
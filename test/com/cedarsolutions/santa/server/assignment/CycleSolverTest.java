@@ -0,0 +1,178 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+
+/**
+ * Unit tests for CycleSolver.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class CycleSolverTest extends AssignmentTestCase {
+
+    /** Number of times tests should be repeated. */
+    private static final int REPEAT = 100;
+
+    /** Time limit to use for searches, in milliseconds. */
+    private static final long TIME_LIMIT = 5000;
+
+    /** Test the constructor. */
+    @Test public void testConstructor() {
+        ConflictMatrix matrix = new ConflictMatrix(createParticipants(3));
+        CycleSolver solver = new CycleSolver(matrix);
+        assertSame(matrix, solver.getMatrix());
+        assertFalse(solver.isExhausted());
+    }
+
+    /** Test findCycle() with no participants. */
+    @Test public void testFindCycleEmpty() {
+        CycleSolver solver = createCycleSolver(new ParticipantSet());
+        assertFalse(solver.findCycle(new Random(), TIME_LIMIT));
+        assertTrue(solver.isExhausted());
+    }
+
+    /** Test findCycle() with a single participant. */
+    @Test public void testFindCycleOneParticipant() {
+        CycleSolver solver = createCycleSolver(createParticipants(1));
+        assertFalse(solver.findCycle(new Random(), TIME_LIMIT));
+        assertTrue(solver.isExhausted());
+    }
+
+    /** Test findCycle() with two participants. */
+    @Test public void testFindCycleTwoParticipants() {
+        CycleSolver solver = createCycleSolver(createParticipants(2));
+        assertTrue(solver.findCycle(new Random(), TIME_LIMIT));
+        assertEquals(1, solver.getReceivers()[0]);
+        assertEquals(0, solver.getReceivers()[1]);
+    }
+
+    /** Test findCycle() when the conflicts allow only one single cycle. */
+    @Test public void testFindCycleUniqueSolution() {
+        ParticipantSet participants = createParticipants(4);
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                if (j != (i + 1) % 4) {
+                    participants.get(i).addConflict(participants.get(j));
+                }
+            }
+        }
+
+        CycleSolver solver = createCycleSolver(participants);
+        for (int i = 0; i < REPEAT; i++) {
+            assertTrue(solver.findCycle(new Random(), TIME_LIMIT));
+            for (int giver = 0; giver < 4; giver++) {
+                assertEquals((giver + 1) % 4, solver.getReceivers()[giver]);
+            }
+        }
+    }
+
+    /** Test findCycle() when there is a valid assignment, but no single cycle. */
+    @Test public void testFindCycleSeparateGroups() {
+        ParticipantSet participants = createParticipants(20);
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < 20; j++) {
+                if ((i < 10) != (j < 10)) {
+                    participants.get(i).addConflict(participants.get(j));
+                }
+            }
+        }
+
+        CycleSolver solver = createCycleSolver(participants);
+        assertFalse(solver.findCycle(new Random(), TIME_LIMIT));
+        assertTrue(solver.isExhausted());
+    }
+
+    /** Test findCycle() when there is no valid assignment at all. */
+    @Test public void testFindCycleInfeasible() {
+        ParticipantSet participants = createParticipants(10);
+        for (int i = 1; i < participants.size(); i++) {
+            participants.get(i).addConflict(participants.get(0));
+        }
+
+        CycleSolver solver = createCycleSolver(participants);
+        assertFalse(solver.findCycle(new Random(), TIME_LIMIT));
+        assertTrue(solver.isExhausted());
+    }
+
+    /** Test findCycle() when every participant has only two possible receivers. */
+    @Test public void testFindCycleSparse() {
+        ParticipantSet participants = createParticipants(50);
+        for (int i = 0; i < 50; i++) {
+            for (int j = 0; j < 50; j++) {
+                if (j != (i + 1) % 50 && j != (i + 7) % 50) {
+                    participants.get(i).addConflict(participants.get(j));
+                }
+            }
+        }
+
+        ConflictMatrix matrix = new ConflictMatrix(participants);
+        CycleSolver solver = new CycleSolver(matrix);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(solver.findCycle(new Random(), TIME_LIMIT));
+            assertSingleCycle(matrix, solver.getReceivers());
+        }
+    }
+
+    /** Test findCycle() for a large exchange with many random conflicts. */
+    @Test public void testFindCycleLarge() {
+        Random random = new Random(42L);
+        ParticipantSet participants = createParticipants(1000);
+        for (Participant participant : participants) {
+            for (Participant conflict : participants) {
+                if (random.nextInt(100) < 95) {
+                    participant.addConflict(conflict);
+                }
+            }
+        }
+
+        ConflictMatrix matrix = new ConflictMatrix(participants);
+        CycleSolver solver = new CycleSolver(matrix);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(solver.findCycle(random, TIME_LIMIT));
+            assertSingleCycle(matrix, solver.getReceivers());
+        }
+    }
+
+    /** Check that a set of receivers respects conflicts and forms a single cycle. */
+    private static void assertSingleCycle(ConflictMatrix matrix, int[] receivers) {
+        int length = 0;
+        int giver = 0;
+        do {
+            assertTrue(matrix.isAllowed(giver, receivers[giver]));
+            giver = receivers[giver];
+            length++;
+        } while (giver != 0 && length <= receivers.length);
+        assertEquals(receivers.length, length);
+    }
+
+}
@@ -0,0 +1,209 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.cedarsolutions.santa.shared.domain.exchange.FeasibilityResult;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+
+/**
+ * Unit tests for FeasibilityChecker.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class FeasibilityCheckerTest extends AssignmentTestCase {
+
+    /** Test check() with no participants. */
+    @Test public void testCheckEmpty() {
+        FeasibilityResult result = checkFeasibility(new ParticipantSet());
+        assertTrue(result.isFeasible());
+        assertTrue(result.getBlockingParticipants().isEmpty());
+        assertTrue(result.getPartners().isEmpty());
+    }
+
+    /** Test check() with a single participant. */
+    @Test public void testCheckOneParticipant() {
+        ParticipantSet participants = createParticipants(1);
+        FeasibilityResult result = checkFeasibility(participants);
+        assertFalse(result.isFeasible());
+        assertEquals(1, result.getBlockingParticipants().size());
+        assertEquals(participants.get(0), result.getBlockingParticipants().get(0));
+        assertTrue(result.getPartners().isEmpty());
+    }
+
+    /** Test check() when there are no conflicts. */
+    @Test public void testCheckNoConflicts() {
+        FeasibilityResult result = checkFeasibility(createParticipants(10));
+        assertTrue(result.isFeasible());
+        assertTrue(result.getBlockingParticipants().isEmpty());
+        assertTrue(result.getPartners().isEmpty());
+    }
+
+    /** Test check() when the conflicts allow only one legal assignment set. */
+    @Test public void testCheckUniqueSolution() {
+        ParticipantSet participants = createParticipants(3);
+        participants.get(0).addConflict(participants.get(1));
+        participants.get(1).addConflict(participants.get(2));
+
+        FeasibilityResult result = checkFeasibility(participants);
+        assertTrue(result.isFeasible());
+    }
+
+    /** Test check() when a participant is not allowed to give to anyone. */
+    @Test public void testCheckBlockedGiver() {
+        ParticipantSet participants = createParticipants(10);
+        for (Participant participant : participants) {
+            participants.get(3).addConflict(participant);
+        }
+
+        FeasibilityResult result = checkFeasibility(participants);
+        assertFalse(result.isFeasible());
+        assertTrue(result.isBlockingGivers());
+        assertEquals(1, result.getBlockingParticipants().size());
+        assertEquals(participants.get(3), result.getBlockingParticipants().get(0));
+        assertTrue(result.getPartners().isEmpty());
+    }
+
+    /** Test check() when nobody is allowed to give a gift to one of the participants. */
+    @Test public void testCheckBlockedReceiver() {
+        ParticipantSet participants = createParticipants(10);
+        for (int i = 1; i < participants.size(); i++) {
+            participants.get(i).addConflict(participants.get(0));
+        }
+
+        FeasibilityResult result = checkFeasibility(participants);
+        assertFalse(result.isFeasible());
+        assertFalse(result.isBlockingGivers());
+        assertEquals(1, result.getBlockingParticipants().size());
+        assertEquals(participants.get(0), result.getBlockingParticipants().get(0));
+        assertTrue(result.getPartners().isEmpty());
+    }
+
+    /** Test check() when three participants may only give to each other and to one outsider. */
+    @Test public void testCheckBlockedGroup() {
+        ParticipantSet participants = createParticipants(10);
+        for (int i = 0; i < 3; i++) {
+            for (int j = 2; j < participants.size(); j++) {
+                participants.get(i).addConflict(participants.get(j));
+            }
+        }
+
+        // Participants 0, 1 and 2 can only give to 0 and 1, and nobody gives to themselves
+        FeasibilityResult result = checkFeasibility(participants);
+        assertFalse(result.isFeasible());
+        assertTrue(result.isBlockingGivers());
+        assertEquals(3, result.getBlockingParticipants().size());
+        assertTrue(result.getBlockingParticipants().contains(participants.get(0)));
+        assertTrue(result.getBlockingParticipants().contains(participants.get(1)));
+        assertTrue(result.getBlockingParticipants().contains(participants.get(2)));
+        assertEquals(2, result.getPartners().size());
+        assertTrue(result.getPartners().contains(participants.get(0)));
+        assertTrue(result.getPartners().contains(participants.get(1)));
+    }
+
+    /** Test the constructors. */
+    @Test public void testConstructor() {
+        ConflictMatrix matrix = new ConflictMatrix(createParticipants(3));
+        assertEquals(1, new FeasibilityChecker(matrix).getGifts());
+        assertEquals(2, new FeasibilityChecker(matrix, 2).getGifts());
+    }
+
+    /** Test check() when participants give more than one gift and there are no conflicts. */
+    @Test public void testCheckMultipleGiftsNoConflicts() {
+        ParticipantSet participants = createParticipants(4);
+        assertTrue(checkFeasibility(participants, 3).isFeasible());
+
+        FeasibilityResult result = checkFeasibility(participants, 4);  // only 3 other participants to give to
+        assertFalse(result.isFeasible());
+        assertTrue(result.getBlockingParticipants().isEmpty());
+        assertTrue(result.getPartners().isEmpty());
+    }
+
+    /** Test check() when participants give more than one gift and a participant has too few options. */
+    @Test public void testCheckMultipleGiftsTooFewOptions() {
+        ParticipantSet participants = createParticipants(4);
+        participants.get(0).addConflict(participants.get(1));
+        participants.get(0).addConflict(participants.get(2));
+
+        assertTrue(checkFeasibility(participants, 1).isFeasible());
+
+        FeasibilityResult result = checkFeasibility(participants, 2);  // participant 0 can only give to participant 3
+        assertFalse(result.isFeasible());
+        assertTrue(result.getBlockingParticipants().isEmpty());
+        assertTrue(result.getPartners().isEmpty());
+    }
+
+    /** Test check() when participants give more than one gift and not even one gift is possible. */
+    @Test public void testCheckMultipleGiftsNoMatching() {
+        ParticipantSet participants = createParticipants(3);
+        participants.get(1).addConflict(participants.get(0));
+        participants.get(2).addConflict(participants.get(0));
+
+        FeasibilityResult result = checkFeasibility(participants, 2);
+        assertFalse(result.isFeasible());
+        assertFalse(result.isBlockingGivers());
+        assertEquals(1, result.getBlockingParticipants().size());
+        assertEquals(participants.get(0), result.getBlockingParticipants().get(0));
+    }
+
+    /** Test that the blocking set always satisfies Hall's condition for random exchanges. */
+    @Test public void testCheckRandom() {
+        Random random = new Random(42L);
+        for (int i = 0; i < 50; i++) {
+            ParticipantSet participants = createParticipants(30);
+            for (Participant participant : participants) {
+                for (Participant conflict : participants) {
+                    if (random.nextInt(100) < 85) {
+                        participant.addConflict(conflict);
+                    }
+                }
+            }
+
+            ConflictMatrix matrix = new ConflictMatrix(participants);
+            FeasibilityResult result = new FeasibilityChecker(matrix).check();
+            int unmatched = MatchingSolver.countUnmatched(new MatchingSolver(matrix).findMatching(random));
+            assertEquals(unmatched == 0, result.isFeasible());
+            if (!result.isFeasible()) {
+                assertEquals(result.getBlockingParticipants().size() - 1, result.getPartners().size());
+                for (Participant blocking : result.getBlockingParticipants()) {
+                    for (Participant other : participants) {
+                        int b = matrix.getIndex(blocking.getId());
+                        int o = matrix.getIndex(other.getId());
+                        boolean allowed = result.isBlockingGivers() ? matrix.isAllowed(b, o) : matrix.isAllowed(o, b);
+                        if (allowed) {
+                            assertTrue(result.getPartners().contains(other));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+
+/**
+ * Unit tests for GreedySolver.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class GreedySolverTest extends AssignmentTestCase {
+
+    /** Number of times tests should be repeated. */
+    private static final int REPEAT = 100;
+
+    /** Test attempt() with no participants. */
+    @Test public void testAttemptEmpty() {
+        GreedySolver solver = createGreedySolver(new ParticipantSet());
+        assertFalse(solver.attempt(false, new Random()));
+    }
+
+    /** Test attempt() with a single participant. */
+    @Test public void testAttemptOneParticipant() {
+        GreedySolver solver = createGreedySolver(createParticipants(1));
+        assertFalse(solver.attempt(false, new Random()));
+    }
+
+    /** Test attempt() with two participants, with and without automatic conflict detection. */
+    @Test public void testAttemptTwoParticipants() {
+        GreedySolver solver = createGreedySolver(createParticipants(2));
+        for (int i = 0; i < REPEAT; i++) {
+            assertTrue(solver.attempt(false, new Random()));
+            assertEquals(1, solver.getReceivers()[0]);
+            assertEquals(0, solver.getReceivers()[1]);
+            assertFalse(solver.attempt(true, new Random()));
+        }
+    }
+
+    /** Test attempt() when the conflicts allow only one legal assignment set. */
+    @Test public void testAttemptUniqueSolution() {
+        ParticipantSet participants = createParticipants(3);
+        participants.get(0).addConflict(participants.get(1));
+        participants.get(1).addConflict(participants.get(2));
+
+        GreedySolver solver = createGreedySolver(participants);
+        for (int i = 0; i < REPEAT; i++) {
+            if (solver.attempt(true, new Random())) {
+                assertEquals(2, solver.getReceivers()[0]);
+                assertEquals(0, solver.getReceivers()[1]);
+                assertEquals(1, solver.getReceivers()[2]);
+            }
+        }
+    }
+
+    /** Test attempt() for a large exchange, which spans several words per row. */
+    @Test public void testAttemptLarge() {
+        Random random = new Random(42L);
+        ParticipantSet participants = createParticipants(200);
+        for (Participant participant : participants) {
+            for (Participant conflict : participants) {
+                if (random.nextInt(100) < 10) {
+                    participant.addConflict(conflict);
+                }
+            }
+        }
+
+        ConflictMatrix matrix = new ConflictMatrix(participants);
+        GreedySolver solver = new GreedySolver(matrix);
+
+        int successes = 0;
+        for (int i = 0; i < REPEAT; i++) {
+            if (solver.attempt(true, random)) {
+                int[] receivers = solver.getReceivers();
+                boolean[] used = new boolean[receivers.length];
+                for (int giver = 0; giver < receivers.length; giver++) {
+                    int receiver = receivers[giver];
+                    assertTrue(matrix.isAllowed(giver, receiver));
+                    assertFalse(used[receiver]);
+                    assertFalse(receivers[receiver] == giver);
+                    used[receiver] = true;
+                }
+
+                successes++;
+            }
+        }
+
+        assertTrue(successes > 0);
+    }
+
+}
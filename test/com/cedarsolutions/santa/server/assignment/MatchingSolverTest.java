@@ -0,0 +1,181 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+
+/**
+ * Unit tests for MatchingSolver.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class MatchingSolverTest extends AssignmentTestCase {
+
+    /** Number of times tests should be repeated. */
+    private static final int REPEAT = 100;
+
+    /** Test the constructor. */
+    @Test public void testConstructor() {
+        ConflictMatrix matrix = new ConflictMatrix(createParticipants(3));
+        MatchingSolver solver = new MatchingSolver(matrix);
+        assertSame(matrix, solver.getMatrix());
+        assertEquals(3, solver.size());
+    }
+
+    /** Test findMatching() with no participants. */
+    @Test public void testFindMatchingEmpty() {
+        MatchingSolver solver = createMatchingSolver(new ParticipantSet());
+        int[] receivers = solver.findMatching(new Random());
+        assertEquals(0, receivers.length);
+        assertEquals(0, MatchingSolver.countUnmatched(receivers));
+    }
+
+    /** Test findMatching() with a single participant. */
+    @Test public void testFindMatchingOneParticipant() {
+        MatchingSolver solver = createMatchingSolver(createParticipants(1));
+        int[] receivers = solver.findMatching(new Random());
+        assertEquals(1, receivers.length);
+        assertEquals(MatchingSolver.UNMATCHED, receivers[0]);
+        assertEquals(1, MatchingSolver.countUnmatched(receivers));
+    }
+
+    /** Test findMatching() and removeMutualPairs() with two participants. */
+    @Test public void testFindMatchingTwoParticipants() {
+        MatchingSolver solver = createMatchingSolver(createParticipants(2));
+        for (int i = 0; i < REPEAT; i++) {
+            int[] receivers = solver.findMatching(new Random());
+            assertEquals(1, receivers[0]);
+            assertEquals(0, receivers[1]);
+            assertFalse(solver.removeMutualPairs(receivers, new Random()));
+        }
+    }
+
+    /** Test findMatching() when the conflicts allow only one legal assignment set. */
+    @Test public void testFindMatchingUniqueSolution() {
+        ParticipantSet participants = createParticipants(3);
+        participants.get(0).addConflict(participants.get(1));
+        participants.get(1).addConflict(participants.get(2));
+
+        MatchingSolver solver = createMatchingSolver(participants);
+        for (int i = 0; i < REPEAT; i++) {
+            int[] receivers = solver.findMatching(new Random());
+            assertEquals(2, receivers[0]);
+            assertEquals(0, receivers[1]);
+            assertEquals(1, receivers[2]);
+            assertTrue(solver.removeMutualPairs(receivers, new Random()));
+        }
+    }
+
+    /** Test findMatching() when nobody is allowed to give a gift to one of the participants. */
+    @Test public void testFindMatchingInfeasible() {
+        ParticipantSet participants = createParticipants(10);
+        for (int i = 1; i < participants.size(); i++) {
+            participants.get(i).addConflict(participants.get(0));
+        }
+
+        MatchingSolver solver = createMatchingSolver(participants);
+        for (int i = 0; i < REPEAT; i++) {
+            int[] receivers = solver.findMatching(new Random());
+            assertEquals(1, MatchingSolver.countUnmatched(receivers));
+            assertValidMatching(solver, receivers);
+        }
+    }
+
+    /** Test findMatching() for a case where the greedy algorithm usually fails. */
+    @Test public void testFindMatchingConstrained() {
+        ParticipantSet participants = createParticipants(20);
+        Participant last = participants.get(participants.size() - 1);
+        for (int i = 1; i < participants.size() - 1; i++) {
+            last.addConflict(participants.get(i));  // the last participant can only give to the first one
+        }
+
+        MatchingSolver solver = createMatchingSolver(participants);
+        for (int i = 0; i < REPEAT; i++) {
+            int[] receivers = solver.findMatching(new Random());
+            assertEquals(0, MatchingSolver.countUnmatched(receivers));
+            assertEquals(0, receivers[participants.size() - 1]);
+            assertValidMatching(solver, receivers);
+        }
+    }
+
+    /** Test findMatching() and removeMutualPairs() for a large exchange with many random conflicts. */
+    @Test public void testFindMatchingLarge() {
+        Random random = new Random(42L);
+        ParticipantSet participants = createParticipants(300);
+        for (Participant participant : participants) {
+            for (Participant conflict : participants) {
+                if (random.nextInt(100) < 50) {
+                    participant.addConflict(conflict);
+                }
+            }
+        }
+
+        MatchingSolver solver = createMatchingSolver(participants);
+        for (int i = 0; i < 10; i++) {
+            int[] receivers = solver.findMatching(random);
+            assertEquals(0, MatchingSolver.countUnmatched(receivers));
+            assertValidMatching(solver, receivers);
+            assertTrue(solver.removeMutualPairs(receivers, random));
+            assertValidMatching(solver, receivers);
+            for (int giver = 0; giver < receivers.length; giver++) {
+                assertFalse(receivers[receivers[giver]] == giver);
+            }
+        }
+    }
+
+    /** Test removeMutualPairs() when a mutual pair can be broken. */
+    @Test public void testRemoveMutualPairs() {
+        MatchingSolver solver = createMatchingSolver(createParticipants(4));
+        for (int i = 0; i < REPEAT; i++) {
+            int[] receivers = new int[] { 1, 0, 3, 2, };
+            assertTrue(solver.removeMutualPairs(receivers, new Random()));
+            assertValidMatching(solver, receivers);
+            for (int giver = 0; giver < receivers.length; giver++) {
+                assertFalse(receivers[receivers[giver]] == giver);
+            }
+        }
+    }
+
+    /** Check that a matching respects conflicts and uses each receiver at most once. */
+    private static void assertValidMatching(MatchingSolver solver, int[] receivers) {
+        boolean[] used = new boolean[receivers.length];
+        for (int giver = 0; giver < receivers.length; giver++) {
+            int receiver = receivers[giver];
+            if (receiver != MatchingSolver.UNMATCHED) {
+                assertTrue(solver.isAllowed(giver, receiver));
+                assertFalse(used[receiver]);
+                used[receiver] = true;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+
+/**
+ * Unit tests for MultiGiftSolver.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class MultiGiftSolverTest extends AssignmentTestCase {
+
+    /** Number of times tests should be repeated. */
+    private static final int REPEAT = 100;
+
+    /** Test the constructor. */
+    @Test public void testConstructor() {
+        ConflictMatrix matrix = new ConflictMatrix(createParticipants(3));
+        MultiGiftSolver solver = new MultiGiftSolver(matrix, 2);
+        assertSame(matrix, solver.getMatrix());
+        assertEquals(2, solver.getGifts());
+        assertEquals(3, solver.size());
+        assertEquals(6, solver.getReceivers().length);
+    }
+
+    /** Test findAssignments() when everyone must give to everyone else. */
+    @Test public void testFindAssignmentsComplete() {
+        MultiGiftSolver solver = createMultiGiftSolver(createParticipants(4), 3);
+        for (int i = 0; i < REPEAT; i++) {
+            assertTrue(solver.findAssignments(new Random()));
+            assertValidAssignments(solver);
+            for (int giver = 0; giver < 4; giver++) {
+                for (int receiver = 0; receiver < 4; receiver++) {
+                    assertEquals(giver != receiver, solver.isAssigned(giver, receiver));
+                }
+            }
+
+            assertFalse(solver.removeMutualPairs(new Random()));
+        }
+    }
+
+    /** Test findAssignments() when the conflicts allow only one legal assignment set. */
+    @Test public void testFindAssignmentsUniqueSolution() {
+        ParticipantSet participants = createParticipants(4);
+        participants.get(0).addConflict(participants.get(1));
+        participants.get(1).addConflict(participants.get(2));
+        participants.get(2).addConflict(participants.get(3));
+        participants.get(3).addConflict(participants.get(0));
+
+        MultiGiftSolver solver = createMultiGiftSolver(participants, 2);
+        for (int i = 0; i < REPEAT; i++) {
+            assertTrue(solver.findAssignments(new Random()));
+            assertValidAssignments(solver);
+            assertTrue(solver.isAssigned(0, 2));
+            assertTrue(solver.isAssigned(0, 3));
+            assertTrue(solver.isAssigned(1, 0));
+            assertTrue(solver.isAssigned(1, 3));
+            assertTrue(solver.isAssigned(2, 0));
+            assertTrue(solver.isAssigned(2, 1));
+            assertTrue(solver.isAssigned(3, 1));
+            assertTrue(solver.isAssigned(3, 2));
+        }
+    }
+
+    /** Test findAssignments() when one participant can't give enough gifts. */
+    @Test public void testFindAssignmentsInfeasible() {
+        ParticipantSet participants = createParticipants(5);
+        participants.get(0).addConflict(participants.get(1));
+        participants.get(0).addConflict(participants.get(2));
+
+        MultiGiftSolver solver = createMultiGiftSolver(participants, 3);
+        for (int i = 0; i < REPEAT; i++) {
+            assertFalse(solver.findAssignments(new Random()));
+            assertTrue(MatchingSolver.countUnmatched(solver.getReceivers()) > 0);
+        }
+    }
+
+    /** Test findAssignments() and removeMutualPairs() for a large exchange with many random conflicts. */
+    @Test public void testFindAssignmentsLarge() {
+        Random random = new Random(42L);
+        ParticipantSet participants = createParticipants(300);
+        for (Participant participant : participants) {
+            for (Participant conflict : participants) {
+                if (random.nextInt(100) < 50) {
+                    participant.addConflict(conflict);
+                }
+            }
+        }
+
+        MultiGiftSolver solver = createMultiGiftSolver(participants, 3);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(solver.findAssignments(random));
+            assertValidAssignments(solver);
+            assertTrue(solver.removeMutualPairs(random));
+            assertValidAssignments(solver);
+            for (int giver = 0; giver < participants.size(); giver++) {
+                for (int receiver = 0; receiver < participants.size(); receiver++) {
+                    assertFalse(solver.isAssigned(giver, receiver) && solver.isAssigned(receiver, giver));
+                }
+            }
+        }
+    }
+
+    /** Check that the assignments respect conflicts, and that every giver and receiver has exactly the right number of gifts. */
+    private static void assertValidAssignments(MultiGiftSolver solver) {
+        int gifts = solver.getGifts();
+        int[] receivers = solver.getReceivers();
+        int[] counts = new int[solver.size()];
+        assertEquals(0, MatchingSolver.countUnmatched(receivers));
+        for (int giver = 0; giver < solver.size(); giver++) {
+            for (int slot = giver * gifts; slot < (giver + 1) * gifts; slot++) {
+                assertTrue(solver.getMatrix().isAllowed(giver, receivers[slot]));
+                for (int other = giver * gifts; other < slot; other++) {
+                    assertFalse(receivers[other] == receivers[slot]);
+                }
+
+                counts[receivers[slot]]++;
+            }
+        }
+
+        for (int count : counts) {
+            assertEquals(gifts, count);
+        }
+    }
+
+}
@@ -0,0 +1,160 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.cedarsolutions.santa.shared.domain.exchange.Assignment;
+import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+
+/**
+ * Unit tests for PairingHistory.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class PairingHistoryTest {
+
+    /** Test the constructor. */
+    @Test public void testConstructor() {
+        PairingHistory history = new PairingHistory();
+        assertTrue(history.isEmpty());
+        assertEquals(0, history.size());
+    }
+
+    /** Test encode(). */
+    @Test public void testEncode() {
+        Participant p1 = new Participant(1L, "name1", "nick1", "email1");
+        Participant p2 = new Participant(2L, "name2", "nick2", " EMAIL2 ");
+        Participant p3 = new Participant(3L, "name3", "nick3", null);
+
+        AssignmentSet assignments = new AssignmentSet();
+        assertEquals("", PairingHistory.encode(null));
+        assertEquals("", PairingHistory.encode(assignments));
+
+        assignments.add(new Assignment(p1, p2));
+        assertEquals("email1\temail2", PairingHistory.encode(assignments));
+
+        assignments.add(new Assignment(p2, p3));  // ignored, since there's no email address
+        assignments.add(new Assignment(p2, p1));
+        assertEquals("email1\temail2\nemail2\temail1", PairingHistory.encode(assignments));
+    }
+
+    /** Test addEncoded() and contains(). */
+    @Test public void testAddEncoded() {
+        Participant p1 = new Participant(1L, "name1", "nick1", "email1");
+        Participant p2 = new Participant(2L, "name2", "nick2", "Email2");
+        Participant p3 = new Participant(3L, "name3", "nick3", "email3");
+        Participant p4 = new Participant(4L, "name4", "nick4", null);
+
+        PairingHistory history = new PairingHistory();
+        history.addEncoded(null);
+        history.addEncoded("");
+        history.addEncoded("bogus\n\n\tbogus");
+        assertTrue(history.isEmpty());
+
+        history.addEncoded("email1\temail2\nemail2\temail3");
+        history.addEncoded("email1\temail2");
+        assertEquals(2, history.size());
+        assertTrue(history.contains(p1, p2));
+        assertTrue(history.contains(p2, p3));
+        assertFalse(history.contains(p2, p1));
+        assertFalse(history.contains(p1, p3));
+        assertFalse(history.contains(p1, p4));
+        assertFalse(history.contains(p4, p1));
+        assertFalse(history.contains(null, p1));
+    }
+
+    /** Test addAssignments(). */
+    @Test public void testAddAssignments() {
+        Participant p1 = new Participant(1L, "name1", "nick1", "email1");
+        Participant p2 = new Participant(2L, "name2", "nick2", "email2");
+
+        AssignmentSet assignments = new AssignmentSet();
+        assignments.add(new Assignment(p1, p2));
+
+        PairingHistory history = new PairingHistory();
+        history.addAssignments(null);
+        assertTrue(history.isEmpty());
+
+        history.addAssignments(assignments);
+        assertEquals(1, history.size());
+        assertTrue(history.contains(p1, p2));
+        assertFalse(history.contains(p2, p1));
+    }
+
+    /** Test addConflicts(), where participants are matched by email address rather than id. */
+    @Test public void testAddConflicts() {
+        ParticipantSet participants = new ParticipantSet();
+        participants.add(new Participant(11L, "name1", "nick1", "EMAIL1"));
+        participants.add(new Participant(12L, "name2", "nick2", "email2"));
+        participants.add(new Participant(13L, "name3", "nick3", "email3"));
+        participants.add(new Participant(14L, "name4", "nick4", null));
+        participants.get(0).addConflict(participants.get(2));
+
+        PairingHistory history = new PairingHistory();
+        ConflictMatrix matrix = new ConflictMatrix(participants);
+        assertEquals(0, history.addConflicts(matrix));
+
+        history.addEncoded("email1\temail2\nemail1\temail3\nemail3\temail2\nemail9\temail1");
+        assertEquals(2, history.addConflicts(matrix));  // email1 -> email3 is already a conflict
+        assertFalse(matrix.isAllowed(0, 1));
+        assertFalse(matrix.isAllowed(0, 2));
+        assertFalse(matrix.isAllowed(2, 1));
+        assertTrue(matrix.isAllowed(1, 0));
+        assertTrue(matrix.isAllowed(1, 2));
+        assertTrue(matrix.isAllowed(3, 0));
+
+        assertEquals(0, history.addConflicts(matrix));
+    }
+
+    /** Test addPenalties(). */
+    @Test public void testAddPenalties() {
+        ParticipantSet participants = new ParticipantSet();
+        participants.add(new Participant(11L, "name1", "nick1", "EMAIL1"));
+        participants.add(new Participant(12L, "name2", "nick2", "email2"));
+        participants.add(new Participant(13L, "name3", "nick3", "email3"));
+        participants.add(new Participant(14L, "name4", "nick4", null));
+        participants.get(0).addConflict(participants.get(2));
+
+        PairingHistory history = new PairingHistory();
+        AssignmentOptimizer optimizer = new AssignmentOptimizer(new ConflictMatrix(participants));
+        assertEquals(0, history.addPenalties(optimizer, 5));
+
+        history.addEncoded("email1\temail2\nemail1\temail3\nemail3\temail2\nemail9\temail1");
+        assertEquals(2, history.addPenalties(optimizer, 5));  // email1 -> email3 is a conflict, so it doesn't matter
+        assertEquals(5, optimizer.getPenalty(0, 1));
+        assertEquals(0, optimizer.getPenalty(0, 2));
+        assertEquals(5, optimizer.getPenalty(2, 1));
+        assertEquals(0, optimizer.getPenalty(1, 0));
+        assertEquals(0, optimizer.getPenalty(3, 0));
+
+        assertEquals(2, history.addPenalties(optimizer, 5));  // penalties are cumulative
+        assertEquals(10, optimizer.getPenalty(0, 1));
+    }
+
+}
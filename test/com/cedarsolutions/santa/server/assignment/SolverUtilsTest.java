@@ -0,0 +1,116 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.assignment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+
+/**
+ * Unit tests for SolverUtils.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class SolverUtilsTest extends AssignmentTestCase {
+
+    /** Test shuffle(). */
+    @Test public void testShuffle() {
+        int[] indexes = new int[] { 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, };
+        SolverUtils.shuffle(indexes, new Random(42L));
+        int[] sorted = indexes.clone();
+        Arrays.sort(sorted);
+        assertTrue(Arrays.equals(new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, }, sorted));
+
+        int[] again = new int[indexes.length];
+        SolverUtils.shuffle(again, new Random(42L));
+        assertTrue(Arrays.equals(indexes, again));  // same seed, same permutation
+    }
+
+    /** Test indexOf(). */
+    @Test public void testIndexOf() {
+        int[] slots = new int[] { 4, 5, 6, 7, };
+        assertEquals(1, SolverUtils.indexOf(slots, 0, 4, 5));
+        assertEquals(3, SolverUtils.indexOf(slots, 2, 2, 7));
+        assertEquals(-1, SolverUtils.indexOf(slots, 2, 2, 5));
+        assertEquals(-1, SolverUtils.indexOf(slots, 0, 4, 8));
+    }
+
+    /** Test isAssigned(). */
+    @Test public void testIsAssigned() {
+        int[] receivers = new int[] { 1, 2, 2, 0, 0, 1, };
+        assertTrue(SolverUtils.isAssigned(receivers, 2, 0, 1));
+        assertTrue(SolverUtils.isAssigned(receivers, 2, 0, 2));
+        assertFalse(SolverUtils.isAssigned(receivers, 2, 0, 0));
+        assertTrue(SolverUtils.isAssigned(receivers, 2, 2, 0));
+        assertFalse(SolverUtils.isAssigned(receivers, 2, 2, 2));
+        assertTrue(SolverUtils.isAssigned(receivers, 1, 1, 2));
+        assertFalse(SolverUtils.isAssigned(receivers, 1, 1, 1));
+    }
+
+    /** Test findExchange() with one gift per participant. */
+    @Test public void testFindExchangeOneGift() {
+        ConflictMatrix matrix = new ConflictMatrix(createParticipants(4));
+        int[] receivers = new int[] { 1, 0, 3, 2, };  // two mutual pairs
+        int[] candidates = new int[] { 0, 1, 2, 3, };
+
+        int k = SolverUtils.findExchange(matrix, receivers, 1, 0, 1, candidates);
+        assertEquals(2, k);  // 0 takes 3 from 2, and 2 takes 1, which leaves the cycle 0 -> 3 -> 2 -> 1 -> 0
+    }
+
+    /** Test findExchange() when conflicts prevent any exchange. */
+    @Test public void testFindExchangeConflicts() {
+        ParticipantSet participants = createParticipants(4);
+        participants.get(0).addConflict(participants.get(2));
+        participants.get(0).addConflict(participants.get(3));
+        ConflictMatrix matrix = new ConflictMatrix(participants);
+        int[] receivers = new int[] { 1, 0, 3, 2, };
+        int[] candidates = new int[] { 0, 1, 2, 3, };
+        assertEquals(-1, SolverUtils.findExchange(matrix, receivers, 1, 0, 1, candidates));
+        assertEquals(2, SolverUtils.findExchange(matrix, receivers, 1, 1, 0, candidates));
+    }
+
+    /** Test findExchange() with more than one gift per participant. */
+    @Test public void testFindExchangeMultipleGifts() {
+        ConflictMatrix matrix = new ConflictMatrix(createParticipants(5));
+        int[] receivers = new int[] {
+            1, 2,   // 0 gives to 1 and 2
+            0, 3,   // 1 gives to 0 and 3, so 0 <-> 1 is a mutual pair
+            3, 4,   // 2
+            4, 0,   // 3
+            1, 2,   // 4
+        };
+        int[] candidates = new int[] { 0, 1, 2, 3, 4, };
+
+        int slot = SolverUtils.findExchange(matrix, receivers, 2, 0, 1, candidates);
+        assertEquals(5, slot);  // 2 gives 4 to 0 and takes 1 instead; giving up 3 would make 0 <-> 3 a mutual pair
+        assertEquals(2, slot / 2);
+        assertEquals(4, receivers[slot]);
+    }
+
+}
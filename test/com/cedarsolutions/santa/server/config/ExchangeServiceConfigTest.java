@@ -33,6 +33,7 @@ import java.util.Properties;
 import org.junit.Test;
 
 import com.cedarsolutions.exception.NotConfiguredException;
+import com.cedarsolutions.santa.server.assignment.AssignmentStrategy;
 import com.cedarsolutions.shared.domain.email.EmailAddress;
 import com.cedarsolutions.shared.domain.email.EmailFormat;
 
@@ -52,6 +53,12 @@ public class ExchangeServiceConfigTest {
         assertNull(config.getDefaultEmailFormat());
         assertNull(config.getDefaultTemplateName());
         assertEquals(0, config.getMaxAttempts());
+        assertNull(config.getAssignmentStrategy());
+        assertEquals(0, config.getCycleTimeLimit());
+        assertEquals(0, config.getParallelism());
+        assertEquals(0, config.getMutualPairPenalty());
+        assertEquals(0, config.getPriorPairingPenalty());
+        assertEquals(0, config.getMaxOptimalParticipants());
 
         Properties properties = new Properties();
         config.setProperties(properties);
@@ -61,6 +68,12 @@ public class ExchangeServiceConfigTest {
         assertNull(config.getDefaultEmailFormat());
         assertNull(config.getDefaultTemplateName());
         assertEquals(0, config.getMaxAttempts());
+        assertNull(config.getAssignmentStrategy());
+        assertEquals(0, config.getCycleTimeLimit());
+        assertEquals(0, config.getParallelism());
+        assertEquals(0, config.getMutualPairPenalty());
+        assertEquals(0, config.getPriorPairingPenalty());
+        assertEquals(0, config.getMaxOptimalParticipants());
     }
 
     /** Test afterPropertiesSet(). */
@@ -87,6 +100,12 @@ public class ExchangeServiceConfigTest {
         properties.setProperty("ExchangeService.defaultEmailFormat", "MULTIPART");
         properties.setProperty("ExchangeService.defaultTemplateName", "standard");
         properties.setProperty("ExchangeService.maxAttempts", "10");
+        properties.setProperty("ExchangeService.assignmentStrategy", "MATCHING");
+        properties.setProperty("ExchangeService.cycleTimeLimit", "2000");
+        properties.setProperty("ExchangeService.parallelism", "4");
+        properties.setProperty("ExchangeService.mutualPairPenalty", "1");
+        properties.setProperty("ExchangeService.priorPairingPenalty", "2");
+        properties.setProperty("ExchangeService.maxOptimalParticipants", "2000");
         config.setProperties(properties);
         config.afterPropertiesSet();
         assertEquals("group", config.getTemplateGroup());
@@ -94,6 +113,19 @@ public class ExchangeServiceConfigTest {
         assertEquals(EmailFormat.MULTIPART, config.getDefaultEmailFormat());
         assertEquals("standard", config.getDefaultTemplateName());
         assertEquals(10, config.getMaxAttempts());
+        assertEquals(AssignmentStrategy.MATCHING, config.getAssignmentStrategy());
+        assertEquals(2000, config.getCycleTimeLimit());
+        assertEquals(4, config.getParallelism());
+        assertEquals(1, config.getMutualPairPenalty());
+        assertEquals(2, config.getPriorPairingPenalty());
+        assertEquals(2000, config.getMaxOptimalParticipants());
+
+        try {
+            properties.setProperty("ExchangeService.assignmentStrategy", "BOGUS");
+            config.setProperties(properties);
+            config.afterPropertiesSet();
+            fail("Expected NotConfiguredException");
+        } catch (NotConfiguredException e) { }
     }
 
 }
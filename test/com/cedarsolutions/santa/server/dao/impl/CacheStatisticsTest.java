@@ -0,0 +1,71 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for CacheStatistics.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class CacheStatisticsTest {
+
+    /** Test the constructor. */
+    @Test public void testConstructor() {
+        CacheStatistics statistics = new CacheStatistics();
+        assertEquals(0, statistics.getHits());
+        assertEquals(0, statistics.getMisses());
+        assertEquals(0, statistics.getEvictions());
+        assertEquals(0, statistics.getInvalidations());
+        assertEquals(0.0, statistics.getHitRatio(), 0.0);
+    }
+
+    /** Test the record methods and reset(). */
+    @Test public void testRecord() {
+        CacheStatistics statistics = new CacheStatistics();
+
+        statistics.recordHit();
+        statistics.recordHit();
+        statistics.recordHit();
+        statistics.recordMiss();
+        statistics.recordEviction();
+        statistics.recordInvalidation();
+        statistics.recordInvalidation();
+        assertEquals(3, statistics.getHits());
+        assertEquals(1, statistics.getMisses());
+        assertEquals(1, statistics.getEvictions());
+        assertEquals(2, statistics.getInvalidations());
+        assertEquals(0.75, statistics.getHitRatio(), 0.0);
+        assertEquals("hits 3, misses 1, evictions 1, invalidations 2", statistics.toString());
+
+        statistics.reset();
+        assertEquals(0, statistics.getHits());
+        assertEquals(0, statistics.getMisses());
+        assertEquals(0, statistics.getEvictions());
+        assertEquals(0, statistics.getInvalidations());
+        assertEquals(0.0, statistics.getHitRatio(), 0.0);
+    }
+
+}
@@ -0,0 +1,433 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cedarsolutions.dao.IDaoTransaction;
+import com.cedarsolutions.dao.domain.PaginatedResults;
+import com.cedarsolutions.dao.domain.Pagination;
+import com.cedarsolutions.exception.DaoException;
+import com.cedarsolutions.exception.NotConfiguredException;
+import com.cedarsolutions.santa.server.assignment.PairingHistory;
+import com.cedarsolutions.santa.server.dao.IExchangeDao;
+import com.cedarsolutions.santa.server.dao.impl.CachingExchangeDao.CachingTransaction;
+import com.cedarsolutions.santa.shared.domain.exchange.Assignment;
+import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
+import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeCriteria;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSection;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantPage;
+import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+
+/**
+ * Unit tests for CachingExchangeDao.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class CachingExchangeDaoTest {
+
+    /** GAE helper class that stubs out memcache, where the cache's version counters live. */
+    private final LocalServiceTestHelper helper = new LocalServiceTestHelper(new LocalMemcacheServiceTestConfig());
+
+    /** Set up the stubbed AppEngine memcache. */
+    @Before
+    public void setupAppEngineMemcache() {
+        helper.setUp();
+    }
+
+    /** Tear down the stubbed AppEngine memcache. */
+    @After
+    public void tearDownAppEngineMemcache() {
+        helper.tearDown();
+    }
+
+    /** Test getters and setters. */
+    @Test public void testGettersSetters() {
+        CachingExchangeDao dao = new CachingExchangeDao();
+        assertNull(dao.getExchangeDao());
+        assertEquals(ExchangeCache.DEFAULT_MAX_SIZE, dao.getMaxSize());
+
+        IExchangeDao exchangeDao = mock(IExchangeDao.class);
+        dao.setExchangeDao(exchangeDao);
+        assertSame(exchangeDao, dao.getExchangeDao());
+
+        dao.setMaxSize(5);
+        assertEquals(5, dao.getMaxSize());
+    }
+
+    /** Test afterPropertiesSet(). */
+    @Test public void testAfterPropertiesSet() {
+        CachingExchangeDao dao = new CachingExchangeDao();
+        dao.setExchangeDao(mock(IExchangeDao.class));
+        dao.setMaxSize(1);
+        dao.afterPropertiesSet();
+        assertEquals(0, dao.getStatistics().getHits());
+
+        try {
+            dao.setExchangeDao(null);
+            dao.setMaxSize(1);
+            dao.afterPropertiesSet();
+            fail("Expected NotConfiguredException");
+        } catch (NotConfiguredException e) { }
+
+        try {
+            dao.setExchangeDao(mock(IExchangeDao.class));
+            dao.setMaxSize(0);
+            dao.afterPropertiesSet();
+            fail("Expected NotConfiguredException");
+        } catch (NotConfiguredException e) { }
+    }
+
+    /** Test retrieveExchange(). */
+    @Test public void testRetrieveExchange() {
+        CachingExchangeDao dao = createDao();
+        Exchange exchange = createExchange(1L);
+        when(dao.getExchangeDao().retrieveExchange(1L)).thenReturn(exchange);
+
+        Exchange result1 = dao.retrieveExchange(1L);
+        assertEquals(exchange, result1);
+
+        Exchange result2 = dao.retrieveExchange(1L);
+        assertEquals(exchange, result2);
+        assertNotSame(result1, result2);
+        verify(dao.getExchangeDao(), times(1)).retrieveExchange(1L);
+
+        // unknown exchanges aren't cached
+        assertNull(dao.retrieveExchange(2L));
+        assertNull(dao.retrieveExchange(2L));
+        verify(dao.getExchangeDao(), times(2)).retrieveExchange(2L);
+
+        assertNull(dao.retrieveExchange((Long) null));
+
+        assertEquals(1, dao.getStatistics().getHits());
+        assertEquals(3, dao.getStatistics().getMisses());
+    }
+
+    /** Test retrieveExchange() within a transaction, which does not use the cache. */
+    @Test public void testRetrieveExchangeTransactional() {
+        CachingExchangeDao dao = createDao();
+        IDaoTransaction transaction = mock(IDaoTransaction.class);
+        Exchange exchange = createExchange(1L);
+        when(dao.getExchangeDao().retrieveExchange(transaction, 1L)).thenReturn(exchange);
+
+        assertSame(exchange, dao.retrieveExchange(transaction, 1L));
+        assertSame(exchange, dao.retrieveExchange(dao.wrapTransaction(transaction), 1L));
+        verify(dao.getExchangeDao(), times(2)).retrieveExchange(transaction, 1L);
+        assertEquals(0, dao.getStatistics().getMisses());
+    }
+
+    /** Test retrieveExchange() with sections. */
+    @Test public void testRetrieveExchangeSections() {
+        CachingExchangeDao dao = createDao();
+        Set<ExchangeSection> none = EnumSet.noneOf(ExchangeSection.class);
+        Set<ExchangeSection> participants = EnumSet.of(ExchangeSection.PARTICIPANTS);
+        Set<ExchangeSection> assignments = EnumSet.of(ExchangeSection.ASSIGNMENTS);
+
+        Exchange expected = createExchange(1L);
+        Exchange exchange = createExchange(1L);
+        Exchange header = createExchange(1L);
+        header.getParticipants().clear();
+        header.setAssignments(null);
+        when(dao.getExchangeDao().retrieveExchange(1L, none)).thenReturn(header);
+        when(dao.getExchangeDao().retrieveExchange(1L)).thenReturn(exchange);
+
+        // the header alone goes to the other DAO and isn't cached
+        assertSame(header, dao.retrieveExchange(1L, none));
+        verify(dao.getExchangeDao(), never()).retrieveExchange(1L);
+
+        // any other section reads and caches the whole exchange
+        Exchange result = dao.retrieveExchange(1L, participants);
+        assertEquals(expected.getName(), result.getName());
+        assertEquals(expected.getParticipants(), result.getParticipants());
+        assertNull(result.getAssignments());
+        verify(dao.getExchangeDao(), times(1)).retrieveExchange(1L);
+
+        result = dao.retrieveExchange(1L, assignments);
+        assertEquals(expected.getAssignments(), result.getAssignments());
+        assertTrue(result.getParticipants().isEmpty());
+
+        // once cached, the header comes from the cache too
+        result = dao.retrieveExchange(1L, none);
+        assertEquals(header, result);
+        assertNotSame(header, result);
+        verify(dao.getExchangeDao(), times(1)).retrieveExchange(1L, none);
+        verify(dao.getExchangeDao(), times(1)).retrieveExchange(1L);
+
+        when(dao.getExchangeDao().retrieveExchange(2L)).thenReturn(null);
+        assertNull(dao.retrieveExchange(2L, participants));
+    }
+
+    /** Test retrieveParticipants(). */
+    @Test public void testRetrieveParticipants() {
+        CachingExchangeDao dao = createDao();
+        Exchange exchange = createExchange(1L);
+        ParticipantPage page = new ParticipantPage();
+        when(dao.getExchangeDao().retrieveParticipants("user", 1L, 0, 1)).thenReturn(page);
+        when(dao.getExchangeDao().retrieveExchange(1L)).thenReturn(exchange);
+
+        // until the exchange is cached, pages come from the other DAO
+        assertSame(page, dao.retrieveParticipants("user", 1L, 0, 1));
+
+        dao.retrieveExchange(1L);
+        ParticipantPage result = dao.retrieveParticipants("user", 1L, 0, 1);
+        assertEquals(new Long(1L), result.getExchangeId());
+        assertEquals(0, result.getStart());
+        assertEquals(2, result.getTotal());
+        assertEquals(1, result.getParticipants().size());
+        assertEquals(exchange.getParticipants().get(0), result.getParticipants().get(0));
+
+        result = dao.retrieveParticipants("user", 1L, 1, 5);
+        assertEquals(1, result.getStart());
+        assertEquals(1, result.getParticipants().size());
+        assertEquals(exchange.getParticipants().get(1), result.getParticipants().get(0));
+
+        assertNull(dao.retrieveParticipants("other", 1L, 0, 1));
+        verify(dao.getExchangeDao(), times(1)).retrieveParticipants("user", 1L, 0, 1);
+
+        // invalid pages are left to the other DAO to reject
+        dao.retrieveParticipants("user", 1L, -1, 1);
+        verify(dao.getExchangeDao()).retrieveParticipants("user", 1L, -1, 1);
+    }
+
+    /** Test updateExchange(). */
+    @Test public void testUpdateExchange() {
+        CachingExchangeDao dao = createDao();
+        Exchange exchange = createExchange(1L);
+        when(dao.getExchangeDao().retrieveExchange(1L)).thenReturn(exchange);
+
+        dao.retrieveExchange(1L);
+        dao.updateExchange(exchange);
+        verify(dao.getExchangeDao()).updateExchange(exchange);
+        dao.retrieveExchange(1L);
+        verify(dao.getExchangeDao(), times(2)).retrieveExchange(1L);
+
+        // within a transaction, the exchange stays cached until the commit
+        IDaoTransaction transaction = mock(IDaoTransaction.class);
+        IDaoTransaction wrapped = dao.wrapTransaction(transaction);
+        dao.updateExchange(wrapped, exchange);
+        verify(dao.getExchangeDao()).updateExchange(transaction, exchange);
+        dao.retrieveExchange(1L);
+        verify(dao.getExchangeDao(), times(2)).retrieveExchange(1L);
+        wrapped.commit();
+        verify(transaction).commit();
+        dao.retrieveExchange(1L);
+        verify(dao.getExchangeDao(), times(3)).retrieveExchange(1L);
+
+        // a transaction that wasn't wrapped is rejected, since its commit can't be seen
+        try {
+            dao.updateExchange(transaction, exchange);
+            fail("Expected DaoException");
+        } catch (DaoException e) { }
+
+        // a failed update still invalidates, since it may have been partly applied
+        DaoException cause = new DaoException("Hello");
+        doThrow(cause).when(dao.getExchangeDao()).updateExchange(exchange);
+        try {
+            dao.updateExchange(exchange);
+            fail("Expected DaoException");
+        } catch (DaoException e) {
+            assertSame(cause, e);
+        }
+
+        dao.retrieveExchange(1L);
+        verify(dao.getExchangeDao(), times(4)).retrieveExchange(1L);
+        assertEquals(3, dao.getStatistics().getInvalidations());
+
+        // so does a page of changes
+        List<Participant> participants = new ArrayList<Participant>();
+        List<Long> removedIds = new ArrayList<Long>();
+        Exchange header = exchange.copyHeader();
+        when(dao.getExchangeDao().updateExchange("user", exchange, participants, removedIds)).thenReturn(header);
+        assertSame(header, dao.updateExchange("user", exchange, participants, removedIds));
+        dao.retrieveExchange(1L);
+        verify(dao.getExchangeDao(), times(5)).retrieveExchange(1L);
+        assertEquals(4, dao.getStatistics().getInvalidations());
+    }
+
+    /** Test deleteExchange(). */
+    @Test public void testDeleteExchange() {
+        CachingExchangeDao dao = createDao();
+        Exchange exchange = createExchange(1L);
+        when(dao.getExchangeDao().retrieveExchange(1L)).thenReturn(exchange);
+
+        dao.retrieveExchange(1L);
+        dao.deleteExchange(1L);
+        verify(dao.getExchangeDao()).deleteExchange(1L);
+        dao.retrieveExchange(1L);
+        verify(dao.getExchangeDao(), times(2)).retrieveExchange(1L);
+
+        // within a transaction, the exchange stays cached until the commit
+        IDaoTransaction transaction = mock(IDaoTransaction.class);
+        IDaoTransaction wrapped = dao.wrapTransaction(transaction);
+        dao.deleteExchange(wrapped, 1L);
+        verify(dao.getExchangeDao()).deleteExchange(transaction, 1L);
+        dao.retrieveExchange(1L);
+        verify(dao.getExchangeDao(), times(2)).retrieveExchange(1L);
+        wrapped.commit();
+        dao.retrieveExchange(1L);
+        verify(dao.getExchangeDao(), times(3)).retrieveExchange(1L);
+
+        // a transaction that wasn't wrapped is rejected, since its commit can't be seen
+        try {
+            dao.deleteExchange(transaction, 1L);
+            fail("Expected DaoException");
+        } catch (DaoException e) { }
+
+        dao.deleteExchange(exchange);
+        verify(dao.getExchangeDao()).deleteExchange(exchange);
+        dao.retrieveExchange(1L);
+        verify(dao.getExchangeDao(), times(4)).retrieveExchange(1L);
+
+        assertEquals(3, dao.getStatistics().getInvalidations());
+    }
+
+    /** Test CachingTransaction. */
+    @Test public void testCachingTransaction() {
+        CachingExchangeDao dao = createDao();
+        Exchange exchange = createExchange(1L);
+        when(dao.getExchangeDao().retrieveExchange(1L)).thenReturn(exchange);
+        IDaoTransaction transaction = mock(IDaoTransaction.class);
+
+        CachingTransaction wrapped = (CachingTransaction) dao.wrapTransaction(transaction);
+        assertSame(transaction, wrapped.getTransaction());
+        assertTrue(wrapped.getExchangeIds().isEmpty());
+
+        // a rollback changes nothing, so nothing is invalidated
+        dao.retrieveExchange(1L);
+        wrapped.invalidateOnCommit(1L);
+        wrapped.invalidateOnCommit(null);
+        assertEquals(1, wrapped.getExchangeIds().size());
+        wrapped.rollback();
+        verify(transaction).rollback();
+        assertTrue(wrapped.getExchangeIds().isEmpty());
+        dao.retrieveExchange(1L);
+        verify(dao.getExchangeDao(), times(1)).retrieveExchange(1L);
+        assertEquals(0, dao.getStatistics().getInvalidations());
+
+        // a failed commit still invalidates, since we can't tell whether it went through
+        RuntimeException cause = new RuntimeException("Hello");
+        doThrow(cause).when(transaction).commit();
+        wrapped.invalidateOnCommit(1L);
+        try {
+            wrapped.commit();
+            fail("Expected RuntimeException");
+        } catch (RuntimeException e) {
+            assertSame(cause, e);
+        }
+
+        assertTrue(wrapped.getExchangeIds().isEmpty());
+        assertEquals(1, dao.getStatistics().getInvalidations());
+        dao.retrieveExchange(1L);
+        verify(dao.getExchangeDao(), times(2)).retrieveExchange(1L);
+
+        // rolling back after the commit, as usual, is harmless
+        wrapped.rollback();
+        assertEquals(1, dao.getStatistics().getInvalidations());
+        assertFalse(wrapped.getExchangeIds().contains(1L));
+    }
+
+    /** Test the methods that always go to the other DAO. */
+    @SuppressWarnings("unchecked")
+    @Test public void testPassThrough() {
+        CachingExchangeDao dao = createDao();
+        Exchange exchange = createExchange(null);
+        IDaoTransaction transaction = mock(IDaoTransaction.class);
+        ExchangeCriteria criteria = new ExchangeCriteria();
+        Pagination pagination = new Pagination();
+        Iterator<Exchange> iterator = mock(Iterator.class);
+        PaginatedResults<Exchange> exchanges = mock(PaginatedResults.class);
+        PaginatedResults<ExchangeSummary> summaries = mock(PaginatedResults.class);
+        PairingHistory history = new PairingHistory();
+        List<Long> exchangeIds = new ArrayList<Long>();
+
+        when(dao.getExchangeDao().insertExchange(exchange)).thenReturn(1L);
+        when(dao.getExchangeDao().insertExchange(transaction, exchange)).thenReturn(2L);
+        when(dao.getExchangeDao().retrieveExchanges(criteria)).thenReturn(iterator);
+        when(dao.getExchangeDao().retrieveExchanges(criteria, pagination)).thenReturn(exchanges);
+        when(dao.getExchangeDao().retrieveExchangeSummaries(criteria, pagination)).thenReturn(summaries);
+        when(dao.getExchangeDao().retrievePairingHistory("user", exchangeIds)).thenReturn(history);
+        when(dao.getExchangeDao().claimNotificationChunk(1L, 42L, 3)).thenReturn(7);
+
+        assertEquals(new Long(1L), dao.insertExchange(exchange));
+        assertEquals(new Long(2L), dao.insertExchange(transaction, exchange));
+        assertEquals(new Long(2L), dao.insertExchange(dao.wrapTransaction(transaction), exchange));
+        assertSame(iterator, dao.retrieveExchanges(criteria));
+        assertSame(exchanges, dao.retrieveExchanges(criteria, pagination));
+        assertSame(summaries, dao.retrieveExchangeSummaries(criteria, pagination));
+        assertSame(history, dao.retrievePairingHistory("user", exchangeIds));
+        assertEquals(7, dao.claimNotificationChunk(1L, 42L, 3));
+        dao.releaseNotificationChunk(1L, 42L, 3, 9, true);
+        verify(dao.getExchangeDao()).releaseNotificationChunk(1L, 42L, 3, 9, true);
+    }
+
+    /** Create a properly-mocked DAO. */
+    private static CachingExchangeDao createDao() {
+        CachingExchangeDao dao = new CachingExchangeDao();
+        dao.setExchangeDao(mock(IExchangeDao.class));
+        dao.afterPropertiesSet();
+        return dao;
+    }
+
+    /** Create an exchange for testing. */
+    private static Exchange createExchange(Long id) {
+        Participant participant1 = new Participant(1L, "p1", "p1n", "p1@example.com");
+        Participant participant2 = new Participant(2L, "p2", "p2n", "p2@example.com");
+
+        Exchange exchange = new Exchange();
+        exchange.setId(id);
+        exchange.setUserId("user");
+        exchange.setName("name");
+        exchange.getParticipants().add(participant1);
+        exchange.getParticipants().add(participant2);
+        exchange.setAssignments(new AssignmentSet());
+        exchange.getAssignments().add(new Assignment(participant1, participant2));
+        exchange.getAssignments().add(new Assignment(participant2, participant1));
+        return exchange;
+    }
+
+}
@@ -0,0 +1,69 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for CodecStatistics.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class CodecStatisticsTest {
+
+    /** Test the constructor. */
+    @Test public void testConstructor() {
+        CodecStatistics statistics = new CodecStatistics();
+        assertEquals(0, statistics.getEncodeCount());
+        assertEquals(0, statistics.getEncodeNanos());
+        assertEquals(0, statistics.getDecodeCount());
+        assertEquals(0, statistics.getDecodeNanos());
+    }
+
+    /** Test recordEncode(), recordDecode() and reset(). */
+    @Test public void testRecord() {
+        CodecStatistics statistics = new CodecStatistics();
+
+        long start = System.nanoTime() - 5000000;
+        statistics.recordEncode(start);
+        statistics.recordEncode(start);
+        assertEquals(2, statistics.getEncodeCount());
+        assertTrue(statistics.getEncodeNanos() >= 10000000);
+        assertEquals(0, statistics.getDecodeCount());
+        assertEquals(0, statistics.getDecodeNanos());
+
+        statistics.recordDecode(start);
+        assertEquals(1, statistics.getDecodeCount());
+        assertTrue(statistics.getDecodeNanos() >= 5000000);
+        assertTrue(statistics.toString().startsWith("encoded 2 in "));
+
+        statistics.reset();
+        assertEquals(0, statistics.getEncodeCount());
+        assertEquals(0, statistics.getEncodeNanos());
+        assertEquals(0, statistics.getDecodeCount());
+        assertEquals(0, statistics.getDecodeNanos());
+    }
+
+}
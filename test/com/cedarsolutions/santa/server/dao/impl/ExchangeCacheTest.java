@@ -0,0 +1,281 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeDelta;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantPage;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+
+/**
+ * Unit tests for ExchangeCache.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class ExchangeCacheTest {
+
+    /** GAE helper class that stubs out memcache, where the version counters live. */
+    private final LocalServiceTestHelper helper = new LocalServiceTestHelper(new LocalMemcacheServiceTestConfig());
+
+    /** Set up the stubbed AppEngine memcache. */
+    @Before
+    public void setupAppEngineMemcache() {
+        helper.setUp();
+    }
+
+    /** Tear down the stubbed AppEngine memcache. */
+    @After
+    public void tearDownAppEngineMemcache() {
+        helper.tearDown();
+    }
+
+    /** Test the constructors. */
+    @Test public void testConstructors() {
+        ExchangeCache cache = new ExchangeCache();
+        assertEquals(ExchangeCache.DEFAULT_MAX_SIZE, cache.getMaxSize());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getSize());
+
+        cache = new ExchangeCache(5);
+        assertEquals(5, cache.getMaxSize());
+        assertEquals(0, cache.size());
+
+        try {
+            new ExchangeCache(0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) { }
+    }
+
+    /** Test getVersion(). */
+    @Test public void testGetVersion() {
+        ExchangeCache cache = new ExchangeCache();
+        long version1 = cache.getVersion(1L);
+        long version2 = cache.getVersion(2L);
+        assertTrue(version1 != version2);
+        assertEquals(version1, cache.getVersion(1L));
+        assertEquals(version2, cache.getVersion(2L));
+    }
+
+    /** Test get() and put(). */
+    @Test public void testGetPut() {
+        ExchangeCache cache = new ExchangeCache();
+        Exchange exchange = createExchange(1L, "one");
+
+        long version = cache.getVersion(1L);
+        assertNull(cache.get(1L, version));
+        assertTrue(cache.put(1L, version, exchange));
+        assertEquals(1, cache.size());
+        assertEquals(ExchangeDelta.estimateSize(exchange), cache.getSize());
+
+        Exchange result1 = cache.get(1L, version);
+        assertEquals(exchange, result1);
+        assertNotSame(exchange, result1);
+        assertFalse(result1.hasChanges());
+
+        // changes made on either side of the cache don't leak into it
+        exchange.setName("changed");
+        result1.setName("changed");
+        result1.getParticipants().add(new Participant(2L, "p2", "p2n", "p2@example.com"));
+        Exchange result2 = cache.get(1L, version);
+        assertEquals("one", result2.getName());
+        assertEquals(1, result2.getParticipants().size());
+        assertNotSame(result1, result2);
+
+        assertNull(cache.get(1L, version + 1));
+        assertNull(cache.get(2L, version));
+
+        assertEquals(2, cache.getStatistics().getHits());
+        assertEquals(3, cache.getStatistics().getMisses());
+    }
+
+    /** Test getHeader(). */
+    @Test public void testGetHeader() {
+        ExchangeCache cache = new ExchangeCache();
+        Exchange exchange = createExchange(1L, "one");
+
+        long version = cache.getVersion(1L);
+        assertNull(cache.getHeader(1L, version));
+        cache.put(1L, version, exchange);
+
+        Exchange header = cache.getHeader(1L, version);
+        assertEquals("one", header.getName());
+        assertEquals("user", header.getUserId());
+        assertTrue(header.getParticipants().isEmpty());
+        assertNull(header.getAssignments());
+        assertFalse(header.hasChanges());
+
+        // the cached exchange keeps its participants
+        header.setName("changed");
+        assertEquals(1, cache.get(1L, version).getParticipants().size());
+        assertEquals("one", cache.getHeader(1L, version).getName());
+
+        assertEquals(3, cache.getStatistics().getHits());
+        assertEquals(1, cache.getStatistics().getMisses());
+    }
+
+    /** Test getParticipantPage(). */
+    @Test public void testGetParticipantPage() {
+        ExchangeCache cache = new ExchangeCache();
+        Exchange exchange = createExchange(1L, "one");
+        for (long id = 2; id <= 5; id++) {
+            exchange.getParticipants().add(new Participant(id, "p" + id, "p" + id + "n", "p" + id + "@example.com"));
+        }
+
+        long version = cache.getVersion(1L);
+        assertNull(cache.getParticipantPage(1L, version, "user", 0, 2));
+        cache.put(1L, version, exchange);
+
+        ParticipantPage page = cache.getParticipantPage(1L, version, "user", 1, 2);
+        assertEquals(new Long(1L), page.getExchangeId());
+        assertEquals(1, page.getStart());
+        assertEquals(5, page.getTotal());
+        assertEquals(2, page.getParticipants().size());
+        assertEquals(exchange.getParticipants().get(1), page.getParticipants().get(0));
+        assertEquals(exchange.getParticipants().get(2), page.getParticipants().get(1));
+        assertFalse(page.getParticipants().hasChanges());
+
+        // the participants are copies
+        page.getParticipants().get(0).setName("changed");
+        assertEquals("p2", cache.getParticipantPage(1L, version, "user", 1, 1).getParticipants().get(0).getName());
+
+        page = cache.getParticipantPage(1L, version, "user", 4, 10);
+        assertEquals(1, page.getParticipants().size());
+        assertEquals(exchange.getParticipants().get(4), page.getParticipants().get(0));
+
+        page = cache.getParticipantPage(1L, version, "user", 10, 10);
+        assertTrue(page.getParticipants().isEmpty());
+
+        assertNull(cache.getParticipantPage(1L, version, "other", 0, 2));
+        assertNull(cache.getParticipantPage(1L, version, null, 0, 2));
+    }
+
+    /** Test invalidate(). */
+    @Test public void testInvalidate() {
+        ExchangeCache cache = new ExchangeCache();
+
+        long version = cache.getVersion(1L);
+        assertTrue(cache.put(1L, version, createExchange(1L, "one")));
+        cache.invalidate(1L);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getSize());
+        assertNull(cache.get(1L, version));
+        assertTrue(cache.getVersion(1L) != version);
+        assertEquals(1, cache.getStatistics().getInvalidations());
+
+        // an exchange that was read before the invalidation is never cached
+        long stale = cache.getVersion(1L);
+        cache.invalidate(1L);
+        assertFalse(cache.put(1L, stale, createExchange(1L, "stale")));
+        assertEquals(0, cache.size());
+
+        long current = cache.getVersion(1L);
+        assertTrue(cache.put(1L, current, createExchange(1L, "current")));
+        assertEquals("current", cache.get(1L, current).getName());
+
+        // invalidating an exchange that was never cached is harmless
+        cache.invalidate(2L);
+        assertEquals(1, cache.size());
+        assertEquals(3, cache.getStatistics().getInvalidations());
+    }
+
+    /** Test that an invalidation through one cache is seen by another, as on another instance. */
+    @Test public void testSharedVersions() {
+        ExchangeCache cache1 = new ExchangeCache();
+        ExchangeCache cache2 = new ExchangeCache();
+
+        long version = cache1.getVersion(1L);
+        assertEquals(version, cache2.getVersion(1L));
+        assertTrue(cache1.put(1L, version, createExchange(1L, "one")));
+        assertTrue(cache2.put(1L, version, createExchange(1L, "one")));
+
+        cache1.invalidate(1L);
+        long current = cache2.getVersion(1L);
+        assertTrue(current != version);
+        assertNull(cache2.get(1L, current));
+        assertEquals(0, cache2.size());  // the stale copy is dropped once it's noticed
+        assertFalse(cache2.put(1L, version, createExchange(1L, "stale")));
+    }
+
+    /** Test that the least-recently-used exchanges are evicted once the cache is too large. */
+    @Test public void testEviction() {
+        ExchangeCache cache = new ExchangeCache(2 * ExchangeDelta.estimateSize(createExchange(3L, "three")));
+
+        long version1 = cache.getVersion(1L);
+        long version2 = cache.getVersion(2L);
+        long version3 = cache.getVersion(3L);
+        assertTrue(cache.put(1L, version1, createExchange(1L, "one")));
+        assertTrue(cache.put(2L, version2, createExchange(2L, "two")));
+        assertEquals("one", cache.get(1L, version1).getName());  // so 2 is now the oldest
+
+        assertTrue(cache.put(3L, version3, createExchange(3L, "three")));
+        assertEquals(2, cache.size());
+        assertTrue(cache.getSize() <= cache.getMaxSize());
+        assertEquals(1, cache.getStatistics().getEvictions());
+        assertEquals("one", cache.get(1L, version1).getName());
+        assertNull(cache.get(2L, version2));
+        assertEquals("three", cache.get(3L, version3).getName());
+
+        // an exchange larger than the whole cache isn't cached at all
+        cache = new ExchangeCache(1);
+        assertFalse(cache.put(1L, cache.getVersion(1L), createExchange(1L, "one")));
+        assertEquals(0, cache.size());
+    }
+
+    /** Test that a version which memcache forgets comes back as a new version. */
+    @Test public void testForgottenVersion() {
+        ExchangeCache cache = new ExchangeCache();
+
+        long version1 = cache.getVersion(1L);
+        MemcacheServiceFactory.getMemcacheService(ExchangeCache.NAMESPACE).delete(1L);
+        assertFalse(cache.put(1L, version1, createExchange(1L, "one")));
+
+        long version = cache.getVersion(1L);
+        assertTrue(version != version1);
+        assertTrue(cache.put(1L, version, createExchange(1L, "one")));
+        assertEquals("one", cache.get(1L, version).getName());
+    }
+
+    /** Create an exchange for testing. */
+    private static Exchange createExchange(Long id, String name) {
+        Exchange exchange = new Exchange();
+        exchange.setId(id);
+        exchange.setUserId("user");
+        exchange.setName(name);
+        exchange.getParticipants().add(new Participant(1L, "p1", "p1n", "p1@example.com"));
+        return exchange;
+    }
+
+}
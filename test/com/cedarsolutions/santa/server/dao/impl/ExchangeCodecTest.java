@@ -0,0 +1,328 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.cedarsolutions.exception.CedarRuntimeException;
+import com.cedarsolutions.santa.shared.domain.exchange.Assignment;
+import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
+import com.cedarsolutions.santa.shared.domain.exchange.ConflictGroup;
+import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeState;
+import com.cedarsolutions.santa.shared.domain.exchange.Organizer;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+import com.cedarsolutions.santa.shared.domain.exchange.PriorPairingMode;
+import com.cedarsolutions.santa.shared.domain.exchange.TemplateConfig;
+import com.cedarsolutions.shared.domain.email.EmailFormat;
+
+/**
+ * Unit tests for ExchangeCodec.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class ExchangeCodecTest {
+
+    /** Test isEncoded(). */
+    @Test public void testIsEncoded() {
+        assertFalse(ExchangeCodec.isEncoded(null));
+        assertFalse(ExchangeCodec.isEncoded(new byte[] { }));
+        assertFalse(ExchangeCodec.isEncoded(new byte[] { 'S', 'X', }));
+        assertFalse(ExchangeCodec.isEncoded("<?xml".getBytes()));
+        assertTrue(ExchangeCodec.isEncoded(ExchangeCodec.encode(new Exchange())));
+    }
+
+    /** Test an exchange round trip with every field filled in. */
+    @Test public void testRoundTrip() {
+        Exchange input = createExchange();
+        Exchange result = ExchangeCodec.decodeExchange(ExchangeCodec.encode(input));
+        assertEquals(input, result);
+        assertFalse(result.hasChanges());
+
+        // Assignments share the participant objects rather than getting their own copies
+        assertSame(result.getParticipants().get(0), result.getAssignments().get(0).getGiftGiver());
+        assertSame(result.getParticipants().get(1), result.getAssignments().get(0).getGiftReceiver());
+        assertSame(result.getParticipants().get(1), result.getAssignments().get(1).getGiftGiver());
+        assertSame(result.getParticipants().get(0), result.getAssignments().get(1).getGiftReceiver());
+    }
+
+    /** Test an exchange round trip with every field null. */
+    @Test public void testRoundTripNulls() {
+        Exchange input = new Exchange();
+        input.setExchangeState(null);
+        input.setOrganizer(null);
+        input.setTemplateOverrides(null);
+        input.setParticipants(null);
+        input.setAssignments(null);
+        input.setPriorExchangeIds(null);
+        input.setPriorPairingMode(null);
+        input.setConflictGroups(null);
+        input.setGiftsPerParticipant(null);
+
+        Exchange result = ExchangeCodec.decodeExchange(ExchangeCodec.encode(input));
+        assertEquals(input, result);
+        assertNull(result.getParticipants());
+        assertNull(result.getAssignments());
+
+        Participant participant = new Participant();
+        input.setParticipants(new ParticipantSet());
+        input.getParticipants().add(participant);
+        input.getParticipants().add(null);
+        input.setAssignments(new AssignmentSet());
+        input.getAssignments().add(new Assignment(participant, null));
+        input.getAssignments().add(null);
+        input.setPriorExchangeIds(new ArrayList<Long>());
+        input.getPriorExchangeIds().add(null);
+        input.setConflictGroups(new ArrayList<ConflictGroup>());
+        input.getConflictGroups().add(new ConflictGroup());
+        input.getConflictGroups().add(null);
+
+        result = ExchangeCodec.decodeExchange(ExchangeCodec.encode(input));
+        assertEquals(input, result);
+    }
+
+    /** Test that an assignment holding a stale copy of a participant keeps its own copy. */
+    @Test public void testRoundTripStaleAssignment() {
+        Exchange input = createExchange();
+        Participant stale = new Participant(input.getParticipants().get(0));
+        stale.setName("old name");
+        input.getAssignments().get(0).setGiftGiver(stale);
+
+        Exchange result = ExchangeCodec.decodeExchange(ExchangeCodec.encode(input));
+        assertEquals(input, result);
+        assertEquals("old name", result.getAssignments().get(0).getGiftGiver().getName());
+        assertNotSame(result.getParticipants().get(0), result.getAssignments().get(0).getGiftGiver());
+        assertSame(result.getParticipants().get(0), result.getAssignments().get(1).getGiftReceiver());
+    }
+
+    /** Test that conflicts saved by older versions survive a round trip. */
+    @Test public void testRoundTripLegacyConflicts() {
+        Exchange input = createExchange();
+        ParticipantSet legacy = new ParticipantSet();
+        legacy.add(new Participant(2L, "p2", null, null));
+        input.getParticipants().get(0).setLegacyConflicts(legacy);
+
+        Exchange result = ExchangeCodec.decodeExchange(ExchangeCodec.encode(input));
+        assertEquals(input, result);
+        assertEquals(legacy, result.getParticipants().get(0).getLegacyConflicts());
+    }
+
+    /** Test a participant chunk round trip. */
+    @Test public void testRoundTripChunk() {
+        Exchange exchange = createExchange();
+        ParticipantChunk input = new ParticipantChunk();
+        input.getParticipants().add(exchange.getParticipants().get(0));
+        input.getAssignments().addAll(exchange.getAssignments());
+
+        ParticipantChunk result = ExchangeCodec.decodeChunk(ExchangeCodec.encode(input));
+        assertEquals(input.getParticipants(), result.getParticipants());
+        assertEquals(input.getAssignments(), result.getAssignments());
+        assertSame(result.getParticipants().get(0), result.getAssignments().get(0).getGiftGiver());
+        assertEquals(exchange.getParticipants().get(1), result.getAssignments().get(0).getGiftReceiver());
+    }
+
+    /** Test that invalid data is rejected. */
+    @Test public void testInvalidData() {
+        byte[] exchange = ExchangeCodec.encode(createExchange());
+        byte[] chunk = ExchangeCodec.encode(new ParticipantChunk());
+
+        try {
+            ExchangeCodec.decodeExchange("<?xml version=\"1.0\"?>".getBytes());
+            fail("Expected CedarRuntimeException");
+        } catch (CedarRuntimeException e) { }
+
+        try {
+            ExchangeCodec.decodeExchange(chunk);
+            fail("Expected CedarRuntimeException");
+        } catch (CedarRuntimeException e) { }
+
+        try {
+            ExchangeCodec.decodeChunk(exchange);
+            fail("Expected CedarRuntimeException");
+        } catch (CedarRuntimeException e) { }
+
+        byte[] future = exchange.clone();
+        future[2] = (byte) (ExchangeCodec.VERSION + 1);
+        try {
+            ExchangeCodec.decodeExchange(future);
+            fail("Expected CedarRuntimeException");
+        } catch (CedarRuntimeException e) { }
+
+        byte[] truncated = new byte[exchange.length - 1];
+        System.arraycopy(exchange, 0, truncated, 0, truncated.length);
+        try {
+            ExchangeCodec.decodeExchange(truncated);
+            fail("Expected CedarRuntimeException");
+        } catch (CedarRuntimeException e) { }
+    }
+
+    /** Test compression. */
+    @Test public void testCompression() {
+        Exchange input = createLargeExchange();
+        byte[] uncompressed = ExchangeCodec.encode(input);
+        assertFalse(ExchangeCodec.isCompressed(uncompressed));
+        assertEquals(input, ExchangeCodec.decodeExchange(uncompressed));
+
+        byte[] compressed = ExchangeCodec.encode(input, ExchangeCodec.DEFAULT_COMPRESSION_THRESHOLD);
+        assertTrue(ExchangeCodec.isEncoded(compressed));
+        assertTrue(ExchangeCodec.isCompressed(compressed));
+        assertTrue(compressed.length < uncompressed.length / 2);
+        Exchange result = ExchangeCodec.decodeExchange(compressed);
+        assertEquals(input, result);
+        assertSame(result.getParticipants().get(1), result.getAssignments().get(0).getGiftReceiver());
+
+        // Data below the threshold is left alone
+        assertFalse(ExchangeCodec.isCompressed(ExchangeCodec.encode(input, uncompressed.length + 1)));
+        assertTrue(ExchangeCodec.isCompressed(ExchangeCodec.encode(input, uncompressed.length)));
+        assertFalse(ExchangeCodec.isCompressed(ExchangeCodec.encode(input, ExchangeCodec.NO_COMPRESSION)));
+
+        // Compressed data is never bigger than the original
+        byte[] small = ExchangeCodec.encode(new Exchange(), 0);
+        assertTrue(small.length <= ExchangeCodec.encode(new Exchange()).length);
+        assertEquals(new Exchange(), ExchangeCodec.decodeExchange(small));
+
+        ParticipantChunk chunk = new ParticipantChunk(input.getParticipants(), input.getAssignments());
+        compressed = ExchangeCodec.encode(chunk, 0);
+        assertTrue(ExchangeCodec.isCompressed(compressed));
+        assertEquals(chunk.getParticipants(), ExchangeCodec.decodeChunk(compressed).getParticipants());
+        assertEquals(chunk.getAssignments(), ExchangeCodec.decodeChunk(compressed).getAssignments());
+
+        byte[] truncated = new byte[compressed.length - 10];
+        System.arraycopy(compressed, 0, truncated, 0, truncated.length);
+        try {
+            ExchangeCodec.decodeChunk(truncated);
+            fail("Expected CedarRuntimeException");
+        } catch (CedarRuntimeException e) { }
+    }
+
+    /** Test that encode and decode operations are counted. */
+    @Test public void testStatistics() {
+        CodecStatistics statistics = ExchangeCodec.getStatistics();
+        long encodeCount = statistics.getEncodeCount();
+        long decodeCount = statistics.getDecodeCount();
+
+        byte[] exchange = ExchangeCodec.encode(createExchange());
+        ExchangeCodec.decodeExchange(exchange);
+        ExchangeCodec.decodeChunk(ExchangeCodec.encode(new ParticipantChunk()));
+        try {
+            ExchangeCodec.decodeChunk(exchange);
+        } catch (CedarRuntimeException e) { }
+
+        // other tests may run concurrently, so these are lower bounds
+        assertTrue(statistics.getEncodeCount() >= encodeCount + 2);
+        assertTrue(statistics.getDecodeCount() >= decodeCount + 3);
+    }
+
+    /** Test that a large exchange stays reasonably small. */
+    @Test public void testSize() {
+        Exchange input = createLargeExchange();
+
+        // every participant is written once: ids, strings and flags come to roughly 90 bytes each
+        byte[] encoded = ExchangeCodec.encode(input);
+        assertTrue(encoded.length < 1000 * 100);
+        assertEquals(input, ExchangeCodec.decodeExchange(encoded));
+    }
+
+    /** Create an exchange with 1000 participants for testing. */
+    private static Exchange createLargeExchange() {
+        Exchange exchange = new Exchange();
+        exchange.setParticipants(new ParticipantSet());
+        exchange.setAssignments(new AssignmentSet());
+        for (long id = 1; id <= 1000; id++) {
+            exchange.getParticipants().add(new Participant(id, "Participant " + id, "p" + id, "participant" + id + "@example.com"));
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            Participant giftGiver = exchange.getParticipants().get(i);
+            Participant giftReceiver = exchange.getParticipants().get((i + 1) % 1000);
+            exchange.getAssignments().add(new Assignment(giftGiver, giftReceiver));
+        }
+
+        return exchange;
+    }
+
+    /** Create an exchange for testing. */
+    private static Exchange createExchange() {
+        TemplateConfig overrides = new TemplateConfig();
+        overrides.setSenderName("Santa Exchange");
+        overrides.setEmailFormat(EmailFormat.MULTIPART);
+        overrides.setTemplateGroup("group");
+        overrides.setTemplateName("name");
+
+        List<Long> conflicts = new ArrayList<Long>();
+        conflicts.add(2L);
+
+        Participant participant1 = new Participant(1L, "p1", "p1n", "p1@example.com", conflicts);
+        participant1.setTemplateOverrides(new TemplateConfig(overrides));
+        Participant participant2 = new Participant(2L, "p\u00e9", null, "p2@example.com", null);
+
+        ParticipantSet participants = new ParticipantSet();
+        participants.add(participant1);
+        participants.add(participant2);
+
+        AssignmentSet assignments = new AssignmentSet();
+        assignments.add(new Assignment(participant1, participant2));
+        assignments.add(new Assignment(participant2, participant1));
+
+        List<Long> priorExchangeIds = new ArrayList<Long>();
+        priorExchangeIds.add(5L);
+
+        ConflictGroup group = new ConflictGroup("family");
+        group.getParticipantIds().add(1L);
+        group.getParticipantIds().add(2L);
+        List<ConflictGroup> groups = new ArrayList<ConflictGroup>();
+        groups.add(group);
+
+        Exchange exchange = new Exchange();
+        exchange.setId(12L);
+        exchange.setUserId("userId");
+        exchange.setExchangeState(ExchangeState.STARTED);
+        exchange.setName("name");
+        exchange.setDateAndTime("dateAndTime");
+        exchange.setTheme("theme");
+        exchange.setCost("cost");
+        exchange.setExtraInfo("extraInfo");
+        exchange.setOrganizer(new Organizer("organizer", "organizer@example.com", "555-1212"));
+        exchange.setTemplateOverrides(overrides);
+        exchange.setParticipants(participants);
+        exchange.setAssignments(assignments);
+        exchange.setAssignmentSeed(42L);
+        exchange.setPriorExchangeIds(priorExchangeIds);
+        exchange.setPriorPairingMode(PriorPairingMode.values()[PriorPairingMode.values().length - 1]);
+        exchange.setConflictGroups(groups);
+        exchange.setGiftsPerParticipant(2);
+        return exchange;
+    }
+
+}
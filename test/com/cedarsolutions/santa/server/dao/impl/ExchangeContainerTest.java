@@ -26,11 +26,16 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
-import org.apache.commons.lang.StringUtils;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
+import com.cedarsolutions.santa.server.assignment.PairingHistory;
 import com.cedarsolutions.santa.shared.domain.exchange.Assignment;
 import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
@@ -54,6 +59,11 @@ public class ExchangeContainerTest {
         assertNull(container.getId());
         assertNull(container.getUserId());
         assertNull(container.getSerialized());
+        assertNull(container.getEncoded());
+        assertNull(container.getPairings());
+        assertNull(container.getChunks());
+        assertNull(container.getChunkSize());
+        assertNull(container.getParticipantCount());
     }
 
     /** Test the getters and setters. */
@@ -68,6 +78,45 @@ public class ExchangeContainerTest {
 
         container.setSerialized("serialized");
         assertEquals("serialized", container.getSerialized());
+
+        byte[] encoded = new byte[] { 1, 2, 3, };
+        container.setEncoded(encoded);
+        assertSame(encoded, container.getEncoded());
+
+        container.setPairings("pairings");
+        assertEquals("pairings", container.getPairings());
+
+        container.setChunks(3);
+        assertEquals(new Integer(3), container.getChunks());
+
+        container.setChunkSize(4);
+        assertEquals(new Integer(4), container.getChunkSize());
+
+        container.setParticipantCount(5);
+        assertEquals(new Integer(5), container.getParticipantCount());
+    }
+
+    /** Test isChunked() and isPageable(). */
+    @Test public void testIsChunkedPageable() {
+        ExchangeContainer container = new ExchangeContainer();
+        assertFalse(container.isChunked());
+        assertFalse(container.isPageable());
+
+        container.setChunks(0);
+        assertFalse(container.isChunked());
+        assertFalse(container.isPageable());
+
+        container.setChunks(2);
+        assertTrue(container.isChunked());
+        assertFalse(container.isPageable());
+
+        container.setChunkSize(500);
+        assertTrue(container.isChunked());
+        assertFalse(container.isPageable());  // saved by an older version
+
+        container.setParticipantCount(501);
+        assertTrue(container.isChunked());
+        assertTrue(container.isPageable());
     }
 
     /** Test fromValue()/toValue() for null values. */
@@ -75,6 +124,7 @@ public class ExchangeContainerTest {
         ExchangeContainer container = new ExchangeContainer();
 
         assertNull(container.getSerialized());
+        assertNull(container.getEncoded());
         assertNull(container.toValue());
 
         try {
@@ -91,10 +141,192 @@ public class ExchangeContainerTest {
         container.fromValue(input);
         assertEquals(input.getId(), container.getId());
         assertEquals(input.getUserId(), container.getUserId());
-        assertFalse(StringUtils.isEmpty(container.getSerialized()));
+        assertNull(container.getSerialized());
+        assertTrue(ExchangeCodec.isEncoded(container.getEncoded()));
+        assertEquals(PairingHistory.encode(input.getAssignments()), container.getPairings());
 
         Exchange result = container.toValue();
         assertEquals(input, result);
+        assertNull(container.getChunks());
+
+        container.fromValue(input, 0, 0);
+        assertTrue(ExchangeCodec.isCompressed(container.getEncoded()));
+        assertEquals(input, container.toValue());
+
+        container.fromValue(input, 0, ExchangeCodec.NO_COMPRESSION);
+        assertFalse(ExchangeCodec.isCompressed(container.getEncoded()));
+        assertEquals(input, container.toValue());
+    }
+
+    /** Test that toValue() still reads XML saved by older versions, and that saving again converts it. */
+    @Test public void testToValueLegacyXml() {
+        StringBuffer xml = new StringBuffer();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+        xml.append("<exchange>");
+        xml.append("<userId>user</userId>");
+        xml.append("<name>name</name>");
+        xml.append("<participants><id>1</id><name>p1</name><templateOverrides/></participants>");
+        xml.append("<participants><id>2</id><name>p2</name><templateOverrides/></participants>");
+        xml.append("</exchange>");
+
+        ExchangeContainer container = new ExchangeContainer();
+        container.setId(12L);
+        container.setSerialized(xml.toString());
+
+        Exchange result = container.toValue();
+        assertEquals(new Long(12), result.getId());
+        assertEquals("user", result.getUserId());
+        assertEquals("name", result.getName());
+        assertEquals(2, result.getParticipants().size());
+
+        container.fromValue(result);
+        assertNull(container.getSerialized());
+        assertTrue(ExchangeCodec.isEncoded(container.getEncoded()));
+        assertEquals(result, container.toValue());
+    }
+
+    /** Test that toValue() converts conflicts saved by older versions, which stored full participant copies. */
+    @Test public void testToValueLegacyConflicts() {
+        StringBuffer xml = new StringBuffer();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+        xml.append("<exchange>");
+        xml.append("<name>name</name>");
+        xml.append("<participants><id>1</id><name>p1</name><templateOverrides/>");
+        xml.append("<conflicts><id>2</id><name>p2</name><templateOverrides/></conflicts>");
+        xml.append("<conflicts><id>3</id><name>p3</name><templateOverrides/></conflicts>");
+        xml.append("</participants>");
+        xml.append("<participants><id>2</id><name>p2</name><templateOverrides/></participants>");
+        xml.append("<participants><id>3</id><name>p3</name><templateOverrides/></participants>");
+        xml.append("</exchange>");
+
+        ExchangeContainer container = new ExchangeContainer();
+        container.setId(12L);
+        container.setSerialized(xml.toString());
+
+        Exchange result = container.toValue();
+        assertEquals(new Long(12), result.getId());
+        assertEquals(3, result.getParticipants().size());
+        assertNull(result.getParticipants().get(0).getLegacyConflicts());
+        assertEquals(2, result.getParticipants().get(0).getConflictIds().size());
+        assertEquals(new Long(2), result.getParticipants().get(0).getConflictIds().get(0));
+        assertEquals(new Long(3), result.getParticipants().get(0).getConflictIds().get(1));
+        assertTrue(result.getParticipants().get(1).getConflictIds().isEmpty());
+
+        // once saved again, the conflicts are stored only as ids
+        container.fromValue(result);
+        assertNull(container.getSerialized());
+        assertNull(container.toValue().getParticipants().get(0).getLegacyConflicts());
+        assertEquals(result, container.toValue());
+    }
+
+    /** Test fromValue()/toValue() round trip when the participants fit into a single chunk. */
+    @Test public void testRoundTripOneChunk() {
+        Exchange input = createExchange();
+        ExchangeContainer container = new ExchangeContainer();
+
+        List<ParticipantChunk> chunks = container.fromValue(input, 2);
+        assertTrue(chunks.isEmpty());
+        assertNull(container.getChunks());
+        assertNull(container.getChunkSize());
+        assertEquals(new Integer(2), container.getParticipantCount());
+        assertEquals(PairingHistory.encode(input.getAssignments()), container.getPairings());
+        assertFalse(container.isPairingsChunked());
+
+        Exchange result = container.toValue(chunks);
+        assertEquals(input, result);
+    }
+
+    /** Test fromValue()/toValue() round trip when the participants are split into chunks. */
+    @Test public void testRoundTripChunked() {
+        Exchange input = createExchange();
+        Exchange original = new Exchange(input);
+        ExchangeContainer container = new ExchangeContainer();
+
+        List<ParticipantChunk> chunks = container.fromValue(input, 1);
+        assertEquals(original, input);  // the caller's exchange must not change
+        assertEquals(input.getId(), container.getId());
+        assertEquals(input.getUserId(), container.getUserId());
+        assertNull(container.getPairings());
+        assertTrue(container.isPairingsChunked());
+        assertEquals(new Integer(2), container.getChunks());
+        assertEquals(new Integer(1), container.getChunkSize());
+        assertEquals(new Integer(2), container.getParticipantCount());
+        assertTrue(container.isPageable());
+
+        assertEquals(2, chunks.size());
+        assertEquals(1, chunks.get(0).getParticipants().size());
+        assertEquals(input.getParticipants().get(0), chunks.get(0).getParticipants().get(0));
+        assertEquals(1, chunks.get(0).getAssignments().size());
+        assertEquals(input.getAssignments().get(0), chunks.get(0).getAssignments().get(0));
+        assertEquals(1, chunks.get(1).getParticipants().size());
+        assertEquals(input.getParticipants().get(1), chunks.get(1).getParticipants().get(0));
+        assertEquals(1, chunks.get(1).getAssignments().size());
+        assertEquals(input.getAssignments().get(1), chunks.get(1).getAssignments().get(0));
+
+        // Without its chunks, the serialized exchange has no participants
+        Exchange result = container.toValue();
+        assertTrue(result.getParticipants().isEmpty());
+        assertNull(result.getAssignments());
+
+        result = container.toValue(chunks);
+        assertEquals(input, result);
+
+        // Without assignments, the chunks only hold participants
+        input.setAssignments(null);
+        chunks = container.fromValue(input, 1);
+        assertEquals(2, chunks.size());
+        assertTrue(chunks.get(0).getAssignments().isEmpty());
+        assertTrue(chunks.get(1).getAssignments().isEmpty());
+        assertNull(container.getPairings());
+
+        result = container.toValue(chunks);
+        assertEquals(input, result);
+
+        // If the exchange shrinks, it goes back to being stored in one piece
+        input.getParticipants().remove(1);
+        chunks = container.fromValue(input, 1);
+        assertTrue(chunks.isEmpty());
+        assertNull(container.getChunks());
+        assertNull(container.getChunkSize());
+        assertEquals(new Integer(1), container.getParticipantCount());
+        assertEquals(PairingHistory.encode(input.getAssignments()), container.getPairings());
+        assertFalse(container.isPairingsChunked());
+        assertEquals(input, container.toValue());
+    }
+
+    /** Test addPairings(). */
+    @Test public void testAddPairings() {
+        Exchange input = createExchange();
+        Participant participant1 = input.getParticipants().get(0);
+        Participant participant2 = input.getParticipants().get(1);
+
+        ExchangeContainer container = new ExchangeContainer();
+        container.fromValue(input);
+        PairingHistory history = new PairingHistory();
+        container.addPairings(history);
+        assertEquals(2, history.size());
+        assertTrue(history.contains(participant1, participant2));
+        assertTrue(history.contains(participant2, participant1));
+
+        // Containers saved before pairings were tracked fall back on the serialized exchange
+        container.setPairings(null);
+        history = new PairingHistory();
+        container.addPairings(history);
+        assertEquals(2, history.size());
+        assertTrue(history.contains(participant1, participant2));
+        assertTrue(history.contains(participant2, participant1));
+
+        // Pairings stored with the chunks are left for the caller to add from the chunks
+        container.fromValue(input, 1);
+        history = new PairingHistory();
+        container.addPairings(history);
+        assertTrue(history.isEmpty());
+
+        input.setAssignments(null);
+        container.fromValue(input);
+        history = new PairingHistory();
+        container.addPairings(history);
+        assertTrue(history.isEmpty());
     }
 
     /** Create a Exchange for testing. */
@@ -110,8 +342,8 @@ public class ExchangeContainerTest {
         overrides.setTemplateGroup("group");
         overrides.setTemplateGroup("name");
 
-        ParticipantSet conflicts = new ParticipantSet();
-        conflicts.add(new Participant(3L));
+        List<Long> conflicts = new ArrayList<Long>();
+        conflicts.add(3L);
 
         Participant participant1 = new Participant(1L, "p1", "p1n", "p1@example.com", conflicts);
         Participant participant2 = new Participant(2L, "p2", "p2n", "p2@example.com", null);
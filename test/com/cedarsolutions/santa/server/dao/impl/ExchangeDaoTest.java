@@ -24,12 +24,17 @@ package com.cedarsolutions.santa.server.dao.impl;
 
 import static com.cedarsolutions.junit.util.Assertions.assertIteratorSize;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 
@@ -40,13 +45,17 @@ import com.cedarsolutions.dao.domain.Pagination;
 import com.cedarsolutions.dao.gae.impl.DaoObjectifyService;
 import com.cedarsolutions.exception.InvalidDataException;
 import com.cedarsolutions.exception.NotConfiguredException;
+import com.cedarsolutions.santa.server.assignment.PairingHistory;
 import com.cedarsolutions.santa.shared.domain.exchange.Assignment;
 import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
 import com.cedarsolutions.santa.shared.domain.exchange.ExchangeCriteria;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSection;
 import com.cedarsolutions.santa.shared.domain.exchange.ExchangeState;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
 import com.cedarsolutions.santa.shared.domain.exchange.Organizer;
 import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantPage;
 import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
 import com.cedarsolutions.santa.shared.domain.exchange.TemplateConfig;
 import com.cedarsolutions.shared.domain.email.EmailFormat;
@@ -66,6 +75,14 @@ public class ExchangeDaoTest extends DaoTestCase {
         DaoObjectifyService daoObjectifyService = mock(DaoObjectifyService.class);
         dao.setDaoObjectifyService(daoObjectifyService);
         assertSame(daoObjectifyService, dao.getDaoObjectifyService());
+
+        assertEquals(ExchangeDao.DEFAULT_PARTICIPANT_CHUNK_SIZE, dao.getParticipantChunkSize());
+        dao.setParticipantChunkSize(12);
+        assertEquals(12, dao.getParticipantChunkSize());
+
+        assertEquals(ExchangeCodec.DEFAULT_COMPRESSION_THRESHOLD, dao.getCompressionThreshold());
+        dao.setCompressionThreshold(ExchangeCodec.NO_COMPRESSION);
+        assertEquals(ExchangeCodec.NO_COMPRESSION, dao.getCompressionThreshold());
     }
 
     /** Test the afterPropertiesSet() method. */
@@ -81,6 +98,23 @@ public class ExchangeDaoTest extends DaoTestCase {
             dao.afterPropertiesSet();
             fail("Expected NotConfiguredException");
         } catch (NotConfiguredException e) { }
+
+        try {
+            dao.setDaoObjectifyService(daoObjectifyService);
+            dao.setParticipantChunkSize(0);
+            dao.afterPropertiesSet();
+            fail("Expected NotConfiguredException");
+        } catch (NotConfiguredException e) { }
+
+        dao.setParticipantChunkSize(1);
+        dao.setCompressionThreshold(0);
+        dao.afterPropertiesSet();
+
+        try {
+            dao.setCompressionThreshold(ExchangeCodec.NO_COMPRESSION - 1);
+            dao.afterPropertiesSet();
+            fail("Expected NotConfiguredException");
+        } catch (NotConfiguredException e) { }
     }
 
     /** Test basic insert, retrieve, and delete operations. */
@@ -129,6 +163,252 @@ public class ExchangeDaoTest extends DaoTestCase {
         assertEquals(exchange, result);
     }
 
+    /** Test updateExchange() with a page of changes. */
+    @Test public void testUpdateExchangeChanges() {
+        ExchangeDao dao = new ExchangeDao();
+        dao.setDaoObjectifyService(getDaoObjectifyService());
+        dao.setParticipantChunkSize(1);
+        dao.afterPropertiesSet();
+
+        Exchange exchange = buildExchange("userId");
+        Long id = dao.insertExchange(exchange);
+        exchange.setId(id);
+
+        Exchange header = exchange.copyHeader();
+        header.setName("changed");
+        Participant participant3 = new Participant(3L, "p3", "p3n", "p3@example.com");
+        List<Participant> participants = Arrays.asList(participant3);
+        List<Long> removedIds = Arrays.asList(1L);
+
+        // Exchanges owned by someone else look just like unknown exchanges
+        assertNull(dao.updateExchange("bogus", header, participants, removedIds));
+        assertEquals(exchange, dao.retrieveExchange(id));
+
+        Exchange result = dao.updateExchange("userId", header, participants, removedIds);
+        assertEquals("changed", result.getName());
+        assertTrue(result.getParticipants().isEmpty());
+        assertNull(result.getAssignments());
+
+        exchange.applyChanges(header, participants, removedIds);
+        assertEquals(exchange, dao.retrieveExchange(id));
+        assertEquals(new Long(2L), dao.retrieveExchange(id).getParticipants().get(0).getId());
+        assertNotNull(findChunk(id, 1));
+
+        header.setId(999L);
+        assertNull(dao.updateExchange("userId", header, participants, removedIds));
+    }
+
+    /** Test claimNotificationChunk() and releaseNotificationChunk(). */
+    @Test public void testNotificationChunks() {
+        ExchangeDao dao = new ExchangeDao();
+        dao.setDaoObjectifyService(getDaoObjectifyService());
+        dao.afterPropertiesSet();
+
+        // A chunk can only be claimed once, until it's released
+        assertEquals(0, dao.claimNotificationChunk(12L, 42L, 0));
+        assertEquals(-1, dao.claimNotificationChunk(12L, 42L, 0));
+        assertEquals(0, dao.claimNotificationChunk(12L, 42L, 1));
+
+        // An incomplete chunk picks up where it left off
+        dao.releaseNotificationChunk(12L, 42L, 0, 5, false);
+        assertEquals(5, dao.claimNotificationChunk(12L, 42L, 0));
+
+        // A complete chunk is never claimed again
+        dao.releaseNotificationChunk(12L, 42L, 0, 10, true);
+        assertEquals(-1, dao.claimNotificationChunk(12L, 42L, 0));
+
+        // Sending again (with new assignments) starts over
+        assertEquals(0, dao.claimNotificationChunk(12L, 43L, 0));
+    }
+
+    /** Test insert, retrieve, update, and delete operations for an exchange split into chunks. */
+    @Test public void testChunkedOperations() {
+        ExchangeDao dao = new ExchangeDao();
+        dao.setDaoObjectifyService(getDaoObjectifyService());
+        dao.setParticipantChunkSize(1);
+        dao.afterPropertiesSet();
+
+        Exchange exchange = buildExchange("userId");
+        exchange.getParticipants().add(new Participant(3L, "p3", "p3n", "p3@example.com"));
+
+        Long id = dao.insertExchange(exchange);
+        exchange.setId(id);
+        Exchange result = dao.retrieveExchange(id);
+        assertEquals(exchange, result);
+        assertNotNull(findChunk(id, 2));
+
+        // Shrinking the exchange must remove the chunks that are no longer needed
+        exchange.getParticipants().remove(2);
+        dao.updateExchange(exchange);
+        result = dao.retrieveExchange(id);
+        assertEquals(exchange, result);
+        assertNotNull(findChunk(id, 1));
+        assertNull(findChunk(id, 2));
+
+        // The pairing history is read from the chunks
+        PairingHistory history = dao.retrievePairingHistory("userId", Arrays.asList(id));
+        assertEquals(2, history.size());
+
+        // Once the exchange fits into a single entity, there are no chunks at all
+        dao.setParticipantChunkSize(ExchangeDao.DEFAULT_PARTICIPANT_CHUNK_SIZE);
+        dao.updateExchange(exchange);
+        result = dao.retrieveExchange(id);
+        assertEquals(exchange, result);
+        assertNull(findChunk(id, 0));
+
+        dao.setParticipantChunkSize(1);
+        dao.updateExchange(exchange);
+        dao.deleteExchange(id);
+        assertNull(dao.retrieveExchange(id));
+        assertNull(findChunk(id, 0));
+    }
+
+    /** Test retrieveExchange() for selected sections, with and without chunks. */
+    @Test public void testRetrieveExchangeSections() {
+        ExchangeDao dao = new ExchangeDao();
+        dao.setDaoObjectifyService(getDaoObjectifyService());
+        dao.afterPropertiesSet();
+
+        Exchange exchange = buildExchange("userId");
+        Long id = dao.insertExchange(exchange);
+        exchange.setId(id);
+        checkSections(dao, exchange);
+
+        dao.setParticipantChunkSize(1);
+        dao.updateExchange(exchange);
+        assertNotNull(findChunk(id, 1));
+        checkSections(dao, exchange);
+
+        assertNull(dao.retrieveExchange(2222L, EnumSet.allOf(ExchangeSection.class)));
+    }
+
+    /** Check each combination of sections for an exchange that has already been saved. */
+    private static void checkSections(ExchangeDao dao, Exchange exchange) {
+        Exchange result = dao.retrieveExchange(exchange.getId(), EnumSet.allOf(ExchangeSection.class));
+        assertEquals(exchange, result);
+        assertFalse(result.hasChanges());
+
+        result = dao.retrieveExchange(exchange.getId(), EnumSet.noneOf(ExchangeSection.class));
+        assertEquals(exchange.getId(), result.getId());
+        assertEquals(exchange.getName(), result.getName());
+        assertEquals(exchange.getOrganizer(), result.getOrganizer());
+        assertTrue(result.getParticipants().isEmpty());
+        assertNull(result.getAssignments());
+        assertFalse(result.hasChanges());
+
+        result = dao.retrieveExchange(exchange.getId(), EnumSet.of(ExchangeSection.PARTICIPANTS));
+        assertEquals(exchange.getParticipants(), result.getParticipants());
+        assertNull(result.getAssignments());
+
+        result = dao.retrieveExchange(exchange.getId(), EnumSet.of(ExchangeSection.ASSIGNMENTS));
+        assertTrue(result.getParticipants().isEmpty());
+        assertEquals(exchange.getAssignments(), result.getAssignments());
+    }
+
+    /** Test retrieveParticipants(), with and without chunks. */
+    @Test public void testRetrieveParticipants() {
+        ExchangeDao dao = new ExchangeDao();
+        dao.setDaoObjectifyService(getDaoObjectifyService());
+        dao.afterPropertiesSet();
+
+        Exchange exchange = buildExchange("userId");
+        exchange.getParticipants().add(new Participant(3L, "p3", "p3n", "p3@example.com"));
+        exchange.getParticipants().add(new Participant(4L, "p4", "p4n", "p4@example.com"));
+        exchange.getParticipants().add(new Participant(5L, "p5", "p5n", "p5@example.com"));
+        Long id = dao.insertExchange(exchange);
+        exchange.setId(id);
+        checkParticipantPages(dao, exchange);
+
+        dao.setParticipantChunkSize(2);
+        dao.updateExchange(exchange);
+        assertNotNull(findChunk(id, 2));
+        checkParticipantPages(dao, exchange);
+
+        // Containers saved by older versions don't know how they were split up
+        ExchangeContainer container = getDaoObjectifyService().getObjectify().find(ExchangeContainer.class, id);
+        container.setChunkSize(null);
+        container.setParticipantCount(null);
+        getDaoObjectifyService().getObjectify().put(container);
+        checkParticipantPages(dao, exchange);
+
+        assertNull(dao.retrieveParticipants("other", id, 0, 2));
+        assertNull(dao.retrieveParticipants("userId", 2222L, 0, 2));
+
+        try {
+            dao.retrieveParticipants("userId", id, -1, 2);
+            fail("Expected InvalidDataException");
+        } catch (InvalidDataException e) { }
+
+        try {
+            dao.retrieveParticipants("userId", id, 0, 0);
+            fail("Expected InvalidDataException");
+        } catch (InvalidDataException e) { }
+    }
+
+    /** Check pages of participants for an exchange with 5 participants that has already been saved. */
+    private static void checkParticipantPages(ExchangeDao dao, Exchange exchange) {
+        ParticipantPage page = dao.retrieveParticipants("userId", exchange.getId(), 0, 2);
+        assertEquals(exchange.getId(), page.getExchangeId());
+        assertEquals(0, page.getStart());
+        assertEquals(5, page.getTotal());
+        assertEquals(exchange.getParticipants().subList(0, 2), page.getParticipants());
+        assertFalse(page.isLastPage());
+
+        page = dao.retrieveParticipants("userId", exchange.getId(), 1, 3);  // spans chunks
+        assertEquals(1, page.getStart());
+        assertEquals(exchange.getParticipants().subList(1, 4), page.getParticipants());
+        assertFalse(page.isLastPage());
+
+        page = dao.retrieveParticipants("userId", exchange.getId(), 3, 10);
+        assertEquals(exchange.getParticipants().subList(3, 5), page.getParticipants());
+        assertTrue(page.isLastPage());
+
+        page = dao.retrieveParticipants("userId", exchange.getId(), 5, 2);
+        assertEquals(5, page.getTotal());
+        assertTrue(page.getParticipants().isEmpty());
+        assertTrue(page.isLastPage());
+    }
+
+    /** Test retrievePairingHistory(). */
+    @Test public void testRetrievePairingHistory() {
+        ExchangeDao dao = new ExchangeDao();
+        dao.setDaoObjectifyService(getDaoObjectifyService());
+        dao.afterPropertiesSet();
+
+        Participant p1 = new Participant(1L, "p1", "p1n", "p1@example.com");
+        Participant p2 = new Participant(2L, "p2", "p2n", "p2@example.com");
+        Participant p3 = new Participant(3L, "p3", "p3n", "p3@example.com");
+
+        Exchange exchange1 = buildExchange("userId");  // p1 -> p2 and p2 -> p1
+        Long id1 = dao.insertExchange(exchange1);
+
+        Exchange exchange2 = buildExchange("userId");
+        exchange2.setAssignments(new AssignmentSet());
+        exchange2.getAssignments().add(new Assignment(p2, p3));
+        Long id2 = dao.insertExchange(exchange2);
+
+        Exchange exchange3 = buildExchange("other");
+        exchange3.setAssignments(new AssignmentSet());
+        exchange3.getAssignments().add(new Assignment(p3, p1));
+        Long id3 = dao.insertExchange(exchange3);
+
+        PairingHistory history = dao.retrievePairingHistory("userId", new ArrayList<Long>());
+        assertTrue(history.isEmpty());
+
+        history = dao.retrievePairingHistory("userId", Arrays.asList(id1));
+        assertEquals(2, history.size());
+        assertTrue(history.contains(p1, p2));
+        assertTrue(history.contains(p2, p1));
+
+        // the other user's exchange and the missing exchange are ignored
+        history = dao.retrievePairingHistory("userId", Arrays.asList(id1, id2, id3, 2222L));
+        assertEquals(3, history.size());
+        assertTrue(history.contains(p1, p2));
+        assertTrue(history.contains(p2, p1));
+        assertTrue(history.contains(p2, p3));
+        assertFalse(history.contains(p3, p1));
+    }
+
     /** Test retrieveExchanges(). */
     @Test public void retrieveExchanges() {
         ExchangeCriteria criteria;
@@ -257,6 +537,89 @@ public class ExchangeDaoTest extends DaoTestCase {
         assertEquals(exchange5, results.get(0));  // can't step off the end
     }
 
+    /** Test retrieveExchangeSummaries(). */
+    @Test public void testRetrieveExchangeSummaries() {
+        ExchangeCriteria criteria;
+        PaginatedResults<ExchangeSummary> results;
+
+        ExchangeDao dao = new ExchangeDao();
+        dao.setDaoObjectifyService(getDaoObjectifyService());
+        dao.afterPropertiesSet();
+
+        Exchange exchange1 = buildExchange("user1");
+        Exchange exchange2 = buildExchange("user1");
+        Exchange exchange3 = buildExchange("user2");
+
+        Long exchangeId1 = dao.insertExchange(exchange1);
+        Long exchangeId2 = dao.insertExchange(exchange2);
+        Long exchangeId3 = dao.insertExchange(exchange3);
+
+        // they have to specify at least a user id
+        criteria = buildCriteria(null);
+        try {
+            dao.retrieveExchangeSummaries(criteria, new Pagination(10));
+            fail("Expected InvalidDataException");
+        } catch (InvalidDataException e) { }
+
+        criteria = buildCriteria("user1");
+        results = dao.retrieveExchangeSummaries(criteria, new Pagination(10));
+        assertEquals(2, results.size());
+        assertEquals(exchangeId1, results.get(0).getId());
+        assertEquals("user1", results.get(0).getUserId());
+        assertEquals("name", results.get(0).getName());
+        assertEquals(ExchangeState.NEW, results.get(0).getExchangeState());
+        assertEquals("dateAndTime", results.get(0).getDateAndTime());
+        assertEquals(2, results.get(0).getParticipantCount());
+        assertNotNull(results.get(0).getLastModified());
+        assertEquals(exchangeId2, results.get(1).getId());
+
+        criteria = buildCriteria("user1", exchangeId2, exchangeId3);
+        results = dao.retrieveExchangeSummaries(criteria, new Pagination(10));
+        assertEquals(1, results.size());
+        assertEquals(exchangeId2, results.get(0).getId());
+
+        // the summary follows updates to the exchange
+        exchange1.setId(exchangeId1);
+        exchange1.setName("updated");
+        exchange1.setExchangeState(ExchangeState.STARTED);
+        exchange1.getParticipants().add(new Participant(3L, "p3", "p3n", "p3@example.com"));
+        dao.updateExchange(exchange1);
+
+        criteria = buildCriteria("user1", exchangeId1);
+        results = dao.retrieveExchangeSummaries(criteria, new Pagination(10));
+        assertEquals(1, results.size());
+        assertEquals("updated", results.get(0).getName());
+        assertEquals(ExchangeState.STARTED, results.get(0).getExchangeState());
+        assertEquals(3, results.get(0).getParticipantCount());
+
+        // deleting the exchange deletes the summary
+        dao.deleteExchange(exchangeId2);
+        assertNull(getDaoObjectifyService().getObjectify().find(ExchangeSummaryContainer.createKey(exchangeId2)));
+        criteria = buildCriteria("user1");
+        results = dao.retrieveExchangeSummaries(criteria, new Pagination(10));
+        assertEquals(1, results.size());
+        assertEquals(exchangeId1, results.get(0).getId());
+
+        // exchanges saved before summaries existed get one the first time the user's exchanges are listed
+        assertNotNull(getDaoObjectifyService().getObjectify().find(SummaryMarkerContainer.createKey("user1")));
+        assertNull(getDaoObjectifyService().getObjectify().find(SummaryMarkerContainer.createKey("user2")));
+        getDaoObjectifyService().getObjectify().delete(ExchangeSummaryContainer.createKey(exchangeId3));
+        criteria = buildCriteria("user2");
+        results = dao.retrieveExchangeSummaries(criteria, new Pagination(10));
+        assertEquals(1, results.size());
+        assertEquals(exchangeId3, results.get(0).getId());
+        assertEquals("name", results.get(0).getName());
+        assertEquals(2, results.get(0).getParticipantCount());
+        assertNull(results.get(0).getLastModified());
+        assertNotNull(getDaoObjectifyService().getObjectify().find(ExchangeSummaryContainer.createKey(exchangeId3)));
+        assertNotNull(getDaoObjectifyService().getObjectify().find(SummaryMarkerContainer.createKey("user2")));
+
+        // after that, listing doesn't look for missing summaries again
+        getDaoObjectifyService().getObjectify().delete(ExchangeSummaryContainer.createKey(exchangeId3));
+        results = dao.retrieveExchangeSummaries(criteria, new Pagination(10));
+        assertEquals(0, results.size());
+    }
+
     /** Build user criteria for testing. */
     private static ExchangeCriteria buildCriteria(String userId, Long... exchangeIds) {
         ExchangeCriteria criteria = new ExchangeCriteria();
@@ -267,6 +630,11 @@ public class ExchangeDaoTest extends DaoTestCase {
         return criteria;
     }
 
+    /** Find one of the chunks for an exchange, returning null if it does not exist. */
+    private static ParticipantChunkContainer findChunk(Long exchangeId, int index) {
+        return getDaoObjectifyService().getObjectify().find(ParticipantChunkContainer.createKey(exchangeId, index));
+    }
+
     /** Build a dummy exchange for testing. */
     private static Exchange buildExchange(String userId) {
         Organizer organizer = new Organizer();
@@ -280,8 +648,8 @@ public class ExchangeDaoTest extends DaoTestCase {
         overrides.setTemplateGroup("group");
         overrides.setTemplateGroup("name");
 
-        ParticipantSet conflicts = new ParticipantSet();
-        conflicts.add(new Participant(3L));
+        List<Long> conflicts = new ArrayList<Long>();
+        conflicts.add(3L);
 
         Participant participant1 = new Participant(1L, "p1", "p1n", "p1@example.com", conflicts);
         Participant participant2 = new Participant(2L, "p2", "p2n", "p2@example.com", null);
@@ -0,0 +1,126 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeState;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
+import com.googlecode.objectify.Key;
+
+/**
+ * Unit tests for ExchangeSummaryContainer.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class ExchangeSummaryContainerTest {
+
+    /** Test the constructor. */
+    @Test public void testConstructor() {
+        ExchangeSummaryContainer container = new ExchangeSummaryContainer();
+        assertNotNull(container);
+        assertNull(container.getExchange());
+        assertNull(container.getId());
+        assertNull(container.getUserId());
+        assertNull(container.getName());
+        assertNull(container.getExchangeState());
+        assertNull(container.getDateAndTime());
+        assertNull(container.getParticipantCount());
+        assertNull(container.getLastModified());
+    }
+
+    /** Test the getters and setters. */
+    @Test public void testGettersSetters() {
+        ExchangeSummaryContainer container = new ExchangeSummaryContainer();
+
+        Key<ExchangeContainer> exchange = new Key<ExchangeContainer>(ExchangeContainer.class, 12L);
+        container.setExchange(exchange);
+        assertEquals(exchange, container.getExchange());
+
+        container.setId(1L);
+        assertEquals(new Long(1L), container.getId());
+
+        container.setUserId("user");
+        assertEquals("user", container.getUserId());
+
+        container.setName("name");
+        assertEquals("name", container.getName());
+
+        container.setExchangeState(ExchangeState.STARTED);
+        assertEquals(ExchangeState.STARTED, container.getExchangeState());
+
+        container.setDateAndTime("dateAndTime");
+        assertEquals("dateAndTime", container.getDateAndTime());
+
+        container.setParticipantCount(4);
+        assertEquals(new Integer(4), container.getParticipantCount());
+
+        Date lastModified = new Date(5L);
+        container.setLastModified(lastModified);
+        assertEquals(lastModified, container.getLastModified());
+    }
+
+    /** Test createKey(). */
+    @Test public void testCreateKey() {
+        Key<ExchangeSummaryContainer> key = ExchangeSummaryContainer.createKey(12L);
+        assertEquals(new Key<ExchangeContainer>(ExchangeContainer.class, 12L), key.getParent());
+        assertEquals(1L, key.getId());
+    }
+
+    /** Test fromValue() for null values. */
+    @Test public void testFromNull() {
+        ExchangeSummaryContainer container = new ExchangeSummaryContainer();
+
+        try {
+            container.fromValue(null);
+            fail("Expected NullPointerException");
+        } catch (NullPointerException e) { }
+    }
+
+    /** Test fromValue()/toValue() round trip. */
+    @Test public void testRoundTrip() {
+        ExchangeSummary input = new ExchangeSummary();
+        input.setId(12L);
+        input.setUserId("user");
+        input.setName("name");
+        input.setExchangeState(ExchangeState.STARTED);
+        input.setDateAndTime("dateAndTime");
+        input.setParticipantCount(4);
+        input.setLastModified(new Date(5L));
+
+        ExchangeSummaryContainer container = new ExchangeSummaryContainer();
+        container.fromValue(input);
+        assertEquals(ExchangeSummaryContainer.createKey(12L).getParent(), container.getExchange());
+        assertEquals(new Long(1L), container.getId());
+
+        ExchangeSummary result = container.toValue();
+        assertEquals(input, result);
+    }
+
+}
@@ -0,0 +1,90 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.googlecode.objectify.Key;
+
+/**
+ * Unit tests for NotificationChunkContainer.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class NotificationChunkContainerTest {
+
+    /** Test the constructors. */
+    @Test public void testConstructors() {
+        NotificationChunkContainer container = new NotificationChunkContainer();
+        assertNull(container.getId());
+        assertNull(container.getExchangeId());
+        assertNull(container.getChunk());
+        assertNull(container.getAssignmentSeed());
+        assertNull(container.getNext());
+        assertNull(container.getClaimed());
+        assertFalse(container.isClaimed());
+
+        container = new NotificationChunkContainer(12L, 42L, 3);
+        assertEquals("12:3", container.getId());
+        assertEquals(new Long(12L), container.getExchangeId());
+        assertEquals(new Integer(3), container.getChunk());
+        assertEquals(new Long(42L), container.getAssignmentSeed());
+        assertEquals(new Integer(0), container.getNext());
+        assertEquals(Boolean.FALSE, container.getClaimed());
+        assertFalse(container.isClaimed());
+    }
+
+    /** Test the getters and setters. */
+    @Test public void testGettersSetters() {
+        NotificationChunkContainer container = new NotificationChunkContainer();
+
+        container.setId("id");
+        assertEquals("id", container.getId());
+
+        container.setExchangeId(12L);
+        assertEquals(new Long(12L), container.getExchangeId());
+
+        container.setChunk(3);
+        assertEquals(new Integer(3), container.getChunk());
+
+        container.setAssignmentSeed(42L);
+        assertEquals(new Long(42L), container.getAssignmentSeed());
+
+        container.setNext(7);
+        assertEquals(new Integer(7), container.getNext());
+
+        container.setClaimed(true);
+        assertEquals(Boolean.TRUE, container.getClaimed());
+        assertTrue(container.isClaimed());
+    }
+
+    /** Test createKey(). */
+    @Test public void testCreateKey() {
+        assertEquals(new Key<NotificationChunkContainer>(NotificationChunkContainer.class, "12:3"), NotificationChunkContainer.createKey(12L, 3));
+    }
+
+}
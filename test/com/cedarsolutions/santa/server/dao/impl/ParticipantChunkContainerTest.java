@@ -0,0 +1,180 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.cedarsolutions.santa.server.assignment.PairingHistory;
+import com.cedarsolutions.santa.shared.domain.exchange.Assignment;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.googlecode.objectify.Key;
+
+/**
+ * Unit tests for ParticipantChunkContainer.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class ParticipantChunkContainerTest {
+
+    /** Test the constructor. */
+    @Test public void testConstructor() {
+        ParticipantChunkContainer container = new ParticipantChunkContainer();
+        assertNotNull(container);
+        assertNull(container.getExchange());
+        assertNull(container.getId());
+        assertNull(container.getSerialized());
+        assertNull(container.getEncoded());
+        assertNull(container.getPairings());
+    }
+
+    /** Test the getters and setters. */
+    @Test public void testGettersSetters() {
+        ParticipantChunkContainer container = new ParticipantChunkContainer();
+
+        Key<ExchangeContainer> exchange = new Key<ExchangeContainer>(ExchangeContainer.class, 12L);
+        container.setExchange(exchange);
+        assertEquals(exchange, container.getExchange());
+
+        container.setId(3L);
+        assertEquals(new Long(3), container.getId());
+
+        container.setSerialized("serialized");
+        assertEquals("serialized", container.getSerialized());
+
+        byte[] encoded = new byte[] { 1, 2, 3, };
+        container.setEncoded(encoded);
+        assertSame(encoded, container.getEncoded());
+
+        container.setPairings("pairings");
+        assertEquals("pairings", container.getPairings());
+    }
+
+    /** Test setPosition() and createKey(). */
+    @Test public void testPosition() {
+        ParticipantChunkContainer container = new ParticipantChunkContainer();
+        container.setPosition(12L, 0);
+        assertEquals(new Key<ExchangeContainer>(ExchangeContainer.class, 12L), container.getExchange());
+        assertEquals(new Long(1), container.getId());
+
+        Key<ParticipantChunkContainer> key = ParticipantChunkContainer.createKey(12L, 0);
+        assertEquals(container.getExchange(), key.getParent());
+        assertEquals(1L, key.getId());
+    }
+
+    /** Test fromValue()/toValue() for null values. */
+    @Test public void testFromToNull() {
+        ParticipantChunkContainer container = new ParticipantChunkContainer();
+
+        assertNull(container.getSerialized());
+        assertNull(container.getEncoded());
+        assertNull(container.toValue());
+
+        try {
+            container.fromValue(null);
+            fail("Expected NullPointerException");
+        } catch (NullPointerException e) { }
+    }
+
+    /** Test fromValue()/toValue() round trip. */
+    @Test public void testRoundTrip() {
+        List<Long> conflicts = new ArrayList<Long>();
+        conflicts.add(3L);
+
+        Participant participant1 = new Participant(1L, "p1", "p1n", "p1@example.com", conflicts);
+        Participant participant2 = new Participant(2L, "p2", "p2n", "p2@example.com", null);
+
+        ParticipantChunk input = new ParticipantChunk();
+        input.getParticipants().add(participant1);
+        input.getParticipants().add(participant2);
+        input.getAssignments().add(new Assignment(participant1, participant2));
+
+        ParticipantChunkContainer container = new ParticipantChunkContainer();
+        container.fromValue(input);
+        assertNull(container.getSerialized());
+        assertTrue(ExchangeCodec.isEncoded(container.getEncoded()));
+        assertEquals(PairingHistory.encode(input.getAssignments()), container.getPairings());
+
+        ParticipantChunk result = container.toValue();
+        assertEquals(input.getParticipants(), result.getParticipants());
+        assertEquals(input.getAssignments(), result.getAssignments());
+
+        container.fromValue(input, 0);
+        assertTrue(ExchangeCodec.isCompressed(container.getEncoded()));
+        result = container.toValue();
+        assertEquals(input.getParticipants(), result.getParticipants());
+        assertEquals(input.getAssignments(), result.getAssignments());
+    }
+
+    /** Test addPairings(). */
+    @Test public void testAddPairings() {
+        Participant participant1 = new Participant(1L, "p1", "p1n", "p1@example.com", null);
+        Participant participant2 = new Participant(2L, "p2", "p2n", "p2@example.com", null);
+
+        ParticipantChunk input = new ParticipantChunk();
+        input.getParticipants().add(participant1);
+        input.getParticipants().add(participant2);
+        input.getAssignments().add(new Assignment(participant1, participant2));
+
+        ParticipantChunkContainer container = new ParticipantChunkContainer();
+        container.fromValue(input);
+        PairingHistory history = new PairingHistory();
+        container.addPairings(history);
+        assertEquals(1, history.size());
+        assertTrue(history.contains(participant1, participant2));
+
+        // Chunks saved before pairings were stored with them fall back on the encoded chunk
+        container.setPairings(null);
+        history = new PairingHistory();
+        container.addPairings(history);
+        assertEquals(1, history.size());
+        assertTrue(history.contains(participant1, participant2));
+    }
+
+    /** Test that toValue() still reads XML saved by older versions. */
+    @Test public void testToValueLegacyXml() {
+        StringBuffer xml = new StringBuffer();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+        xml.append("<participantChunk>");
+        xml.append("<participants><id>1</id><name>p1</name><templateOverrides/></participants>");
+        xml.append("<participants><id>2</id><name>p2</name><templateOverrides/></participants>");
+        xml.append("</participantChunk>");
+
+        ParticipantChunkContainer container = new ParticipantChunkContainer();
+        container.setSerialized(xml.toString());
+
+        ParticipantChunk result = container.toValue();
+        assertEquals(2, result.getParticipants().size());
+        assertEquals("p1", result.getParticipants().get(0).getName());
+        assertEquals("p2", result.getParticipants().get(1).getName());
+    }
+
+}
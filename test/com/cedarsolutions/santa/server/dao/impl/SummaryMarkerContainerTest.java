@@ -0,0 +1,69 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.googlecode.objectify.Key;
+
+/**
+ * Unit tests for SummaryMarkerContainer.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class SummaryMarkerContainerTest {
+
+    /** Test the constructors. */
+    @Test public void testConstructors() {
+        SummaryMarkerContainer container = new SummaryMarkerContainer();
+        assertNull(container.getUserId());
+        assertNull(container.getCompleted());
+
+        container = new SummaryMarkerContainer("user");
+        assertEquals("user", container.getUserId());
+        assertNotNull(container.getCompleted());
+    }
+
+    /** Test the getters and setters. */
+    @Test public void testGettersSetters() {
+        SummaryMarkerContainer container = new SummaryMarkerContainer();
+
+        container.setUserId("user");
+        assertEquals("user", container.getUserId());
+
+        Date completed = new Date();
+        container.setCompleted(completed);
+        assertEquals(completed, container.getCompleted());
+    }
+
+    /** Test createKey(). */
+    @Test public void testCreateKey() {
+        assertEquals(new Key<SummaryMarkerContainer>(SummaryMarkerContainer.class, "user"), SummaryMarkerContainer.createKey("user"));
+    }
+
+}
@@ -28,15 +28,22 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 
 import org.junit.Test;
@@ -50,18 +57,26 @@ import com.cedarsolutions.exception.InvalidDataException;
 import com.cedarsolutions.exception.NotConfiguredException;
 import com.cedarsolutions.exception.RpcSecurityException;
 import com.cedarsolutions.exception.ServiceException;
+import com.cedarsolutions.santa.server.assignment.PairingHistory;
+import com.cedarsolutions.santa.server.assignment.RepairedAssignments;
 import com.cedarsolutions.santa.server.dao.IExchangeDao;
 import com.cedarsolutions.santa.server.service.IAuditEventService;
 import com.cedarsolutions.santa.server.service.IClientSessionService;
+import com.cedarsolutions.santa.server.service.IExchangeNotificationService;
 import com.cedarsolutions.santa.server.service.IExchangeService;
 import com.cedarsolutions.santa.shared.domain.audit.AuditEvent;
 import com.cedarsolutions.santa.shared.domain.exchange.Assignment;
 import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
 import com.cedarsolutions.santa.shared.domain.exchange.ExchangeCriteria;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSection;
 import com.cedarsolutions.santa.shared.domain.exchange.ExchangeState;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSummary;
+import com.cedarsolutions.santa.shared.domain.exchange.FeasibilityResult;
 import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.cedarsolutions.santa.shared.domain.exchange.ParticipantPage;
 import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+import com.cedarsolutions.santa.shared.domain.exchange.PriorPairingMode;
 
 /**
  * Unit tests for ExchangeRpc.
@@ -74,6 +89,7 @@ public class ExchangeRpcTest {
         ExchangeRpc rpc = new ExchangeRpc();
         assertNull(rpc.getAuditEventService());
         assertNull(rpc.getExchangeService());
+        assertNull(rpc.getExchangeNotificationService());
         assertNull(rpc.getClientSessionService());
         assertNull(rpc.getExchangeDao());
 
@@ -85,6 +101,10 @@ public class ExchangeRpcTest {
         rpc.setExchangeService(exchangeService);
         assertSame(exchangeService, rpc.getExchangeService());
 
+        IExchangeNotificationService exchangeNotificationService = mock(IExchangeNotificationService.class);
+        rpc.setExchangeNotificationService(exchangeNotificationService);
+        assertSame(exchangeNotificationService, rpc.getExchangeNotificationService());
+
         IClientSessionService clientSessionService = mock(IClientSessionService.class);
         rpc.setClientSessionService(clientSessionService);
         assertSame(clientSessionService, rpc.getClientSessionService());
@@ -99,11 +119,13 @@ public class ExchangeRpcTest {
         ExchangeRpc rpc = new ExchangeRpc();
         IAuditEventService auditEventService = mock(IAuditEventService.class);
         IExchangeService exchangeService = mock(IExchangeService.class);
+        IExchangeNotificationService exchangeNotificationService = mock(IExchangeNotificationService.class);
         IClientSessionService clientSessionService = mock(IClientSessionService.class);
         IExchangeDao exchangeDao = mock(IExchangeDao.class);
 
         rpc.setAuditEventService(auditEventService);
         rpc.setExchangeService(exchangeService);
+        rpc.setExchangeNotificationService(exchangeNotificationService);
         rpc.setClientSessionService(clientSessionService);
         rpc.setExchangeDao(exchangeDao);
         rpc.afterPropertiesSet();
@@ -143,6 +165,16 @@ public class ExchangeRpcTest {
             rpc.afterPropertiesSet();
             fail("Expected NotConfiguredException");
         } catch (NotConfiguredException e) { }
+
+        try {
+            rpc.setAuditEventService(auditEventService);
+            rpc.setExchangeService(exchangeService);
+            rpc.setExchangeNotificationService(null);
+            rpc.setClientSessionService(clientSessionService);
+            rpc.setExchangeDao(exchangeDao);
+            rpc.afterPropertiesSet();
+            fail("Expected NotConfiguredException");
+        } catch (NotConfiguredException e) { }
     }
 
     /** Test retrieveExchange(). */
@@ -185,6 +217,83 @@ public class ExchangeRpcTest {
         }
     }
 
+    /** Test retrieveExchangeSections(). */
+    @Test public void testRetrieveExchangeSections() {
+        ExchangeRpc rpc = createRpc();
+        when(rpc.getClientSessionService().retrieveClientSession().getCurrentUser().getUserId()).thenReturn("me");
+
+        Exchange exchange = new Exchange();
+        exchange.setId(1L);
+
+        EnumSet<ExchangeSection> none = EnumSet.noneOf(ExchangeSection.class);
+        EnumSet<ExchangeSection> participants = EnumSet.of(ExchangeSection.PARTICIPANTS);
+
+        when(rpc.getExchangeDao().retrieveExchange(1L, none)).thenReturn(null);
+        assertNull(rpc.retrieveExchangeSections(1L, null));
+        assertNull(rpc.retrieveExchangeSections(1L, new ArrayList<ExchangeSection>()));
+
+        try {
+            exchange.setUserId("that other guy");
+            when(rpc.getExchangeDao().retrieveExchange(1L, participants)).thenReturn(exchange);
+            rpc.retrieveExchangeSections(1L, Arrays.asList(ExchangeSection.PARTICIPANTS));
+            fail("Expected RpcSecurityException");
+        } catch (RpcSecurityException e) { }
+
+        exchange.setUserId("me");
+        when(rpc.getExchangeDao().retrieveExchange(1L, participants)).thenReturn(exchange);
+        Exchange result = rpc.retrieveExchangeSections(1L, Arrays.asList(ExchangeSection.PARTICIPANTS));
+        assertSame(exchange, result);
+    }
+
+    /** Test retrieveExchangeSections() exception conditions. */
+    @Test public void testRetrieveExchangeSectionsExceptions() {
+        ExchangeRpc rpc = createRpc();
+        when(rpc.getClientSessionService().retrieveClientSession().getCurrentUser().getUserId()).thenReturn("me");
+
+        CedarRuntimeException cause = new CedarRuntimeException("Hello");
+        when(rpc.getExchangeDao().retrieveExchange(2L, EnumSet.noneOf(ExchangeSection.class))).thenThrow(cause);
+
+        try {
+            rpc.retrieveExchangeSections(2L, null);
+            fail("Expected ServiceException");
+        } catch (ServiceException e) {
+            assertSame(cause, e.getCause());
+        }
+    }
+
+    /** Test retrieveParticipants(). */
+    @Test public void testRetrieveParticipants() {
+        ExchangeRpc rpc = createRpc();
+        when(rpc.getClientSessionService().retrieveClientSession().getCurrentUser().getUserId()).thenReturn("me");
+
+        ParticipantPage page = new ParticipantPage();
+        when(rpc.getExchangeDao().retrieveParticipants("me", 1L, 0, 100)).thenReturn(page);
+        assertSame(page, rpc.retrieveParticipants(1L, 0, 100));
+
+        // large pages are cut down to the maximum size
+        when(rpc.getExchangeDao().retrieveParticipants("me", 1L, 0, ExchangeRpc.MAX_PARTICIPANT_PAGE_SIZE)).thenReturn(page);
+        assertSame(page, rpc.retrieveParticipants(1L, 0, ExchangeRpc.MAX_PARTICIPANT_PAGE_SIZE + 1));
+
+        when(rpc.getExchangeDao().retrieveParticipants("me", 2L, 0, 100)).thenReturn(null);
+        assertNull(rpc.retrieveParticipants(2L, 0, 100));
+    }
+
+    /** Test retrieveParticipants() exception conditions. */
+    @Test public void testRetrieveParticipantsExceptions() {
+        ExchangeRpc rpc = createRpc();
+        when(rpc.getClientSessionService().retrieveClientSession().getCurrentUser().getUserId()).thenReturn("me");
+
+        CedarRuntimeException cause = new CedarRuntimeException("Hello");
+        when(rpc.getExchangeDao().retrieveParticipants("me", 2L, 0, 100)).thenThrow(cause);
+
+        try {
+            rpc.retrieveParticipants(2L, 0, 100);
+            fail("Expected ServiceException");
+        } catch (ServiceException e) {
+            assertSame(cause, e.getCause());
+        }
+    }
+
     /** Test getExchanges(). */
     @SuppressWarnings("unchecked")
     @Test public void testGetExchanges() {
@@ -235,6 +344,54 @@ public class ExchangeRpcTest {
         }
     }
 
+    /** Test getExchangeSummaries(). */
+    @SuppressWarnings("unchecked")
+    @Test public void testGetExchangeSummaries() {
+        ExchangeRpc rpc = createRpc();
+        when(rpc.getClientSessionService().retrieveClientSession().getCurrentUser().getUserId()).thenReturn("me");
+
+        // this is invalid because the user id does not match the session
+        ExchangeCriteria invalid = new ExchangeCriteria();
+        invalid.setUserId("that other guy");
+
+        // this is valid because the user id does match the session
+        ExchangeCriteria valid = new ExchangeCriteria();
+        valid.setUserId("me");
+
+        Pagination pagination = new Pagination();
+        PaginatedResults<ExchangeSummary> results = mock(PaginatedResults.class);
+        when(rpc.getExchangeDao().retrieveExchangeSummaries(valid, pagination)).thenReturn(results);
+
+        try {
+            rpc.getExchangeSummaries(invalid, pagination);
+            fail("Expected RpcSecurityException");
+        } catch (RpcSecurityException e) { }
+
+        assertSame(results, rpc.getExchangeSummaries(valid, pagination));
+        verify(rpc.getExchangeDao(), times(0)).retrieveExchanges(isA(ExchangeCriteria.class), isA(Pagination.class));
+    }
+
+    /** Test getExchangeSummaries() exception conditions. */
+    @Test public void testGetExchangeSummariesException() {
+        ExchangeRpc rpc = createRpc();
+        when(rpc.getClientSessionService().retrieveClientSession().getCurrentUser().getUserId()).thenReturn("me");
+
+        ExchangeCriteria criteria = new ExchangeCriteria();
+        criteria.setUserId("me");
+
+        Pagination pagination = new Pagination();
+
+        CedarRuntimeException cause = new CedarRuntimeException("Hello");
+        when(rpc.getExchangeDao().retrieveExchangeSummaries(criteria, pagination)).thenThrow(cause);
+
+        try {
+            rpc.getExchangeSummaries(criteria, pagination);
+            fail("Expected ServiceException");
+        } catch (ServiceException e) {
+            assertSame(cause, e.getCause());
+        }
+    }
+
     /** Test createExchange(). */
     @Test public void testCreateExchange() {
         AuditEvent event = mock(AuditEvent.class);
@@ -300,23 +457,19 @@ public class ExchangeRpcTest {
         ExchangeRpc rpc = createRpc();
         when(rpc.getClientSessionService().retrieveClientSession().getCurrentUser().getUserId()).thenReturn("me");
 
-        Exchange exchange1 = new Exchange();
+        ExchangeSummary exchange1 = new ExchangeSummary();
         exchange1.setId(1L);
         exchange1.setUserId("someone else");
 
-        Exchange exchange2 = new Exchange();
+        ExchangeSummary exchange2 = new ExchangeSummary();
         exchange2.setId(2L);
         exchange2.setUserId("me");
 
-        Exchange exchange3 = new Exchange();
+        ExchangeSummary exchange3 = new ExchangeSummary();
         exchange3.setId(3L);
         exchange3.setUserId("me");
 
-        when(rpc.getExchangeDao().retrieveExchange(1L)).thenReturn(exchange1);
-        when(rpc.getExchangeDao().retrieveExchange(2L)).thenReturn(exchange2);
-        when(rpc.getExchangeDao().retrieveExchange(3L)).thenReturn(exchange3);
-
-        List<Exchange> records = new ArrayList<Exchange>();
+        List<ExchangeSummary> records = new ArrayList<ExchangeSummary>();
         records.add(exchange1);
         records.add(exchange2);
         records.add(exchange3);
@@ -336,10 +489,10 @@ public class ExchangeRpcTest {
         records.remove(0);
         rpc.deleteExchanges(records);
         InOrder order = Mockito.inOrder(rpc.getExchangeDao(), rpc.getAuditEventService());
-        order.verify(rpc.getExchangeDao(), times(0)).deleteExchange(exchange1);
-        order.verify(rpc.getExchangeDao()).deleteExchange(exchange2);
+        order.verify(rpc.getExchangeDao(), times(0)).deleteExchange(1L);
+        order.verify(rpc.getExchangeDao()).deleteExchange(2L);
         order.verify(rpc.getAuditEventService()).logAuditEvent(event1);
-        order.verify(rpc.getExchangeDao()).deleteExchange(exchange3);
+        order.verify(rpc.getExchangeDao()).deleteExchange(3L);
         order.verify(rpc.getAuditEventService()).logAuditEvent(event2);
     }
 
@@ -348,15 +501,15 @@ public class ExchangeRpcTest {
         ExchangeRpc rpc = createRpc();
         when(rpc.getClientSessionService().retrieveClientSession().getCurrentUser().getUserId()).thenReturn("me");
 
-        Exchange exchange = new Exchange();
+        ExchangeSummary exchange = new ExchangeSummary();
         exchange.setId(4L);
         exchange.setUserId("me");
 
         CedarRuntimeException cause = new CedarRuntimeException("Hello");
-        doThrow(cause).when(rpc.getExchangeDao()).deleteExchange(exchange);
+        doThrow(cause).when(rpc.getExchangeDao()).deleteExchange(4L);
 
         try {
-            List<Exchange> records = new ArrayList<Exchange>();
+            List<ExchangeSummary> records = new ArrayList<ExchangeSummary>();
             records.add(exchange);
             rpc.deleteExchanges(records);
             fail("Expected ServiceException");
@@ -365,49 +518,57 @@ public class ExchangeRpcTest {
         }
     }
 
-    /** Test saveExchange(). */
-    @Test public void testSaveExchange() {
+    /** Test saveExchangeChanges(). */
+    @Test public void testSaveExchangeChanges() {
         ExchangeRpc rpc = createRpc();
-        Exchange exchange = mock(Exchange.class);
+        Exchange header = mock(Exchange.class);
+        List<Participant> participants = new ArrayList<Participant>();
+        List<Long> removedIds = new ArrayList<Long>();
         when(rpc.getClientSessionService().retrieveClientSession().getCurrentUser().getUserId()).thenReturn("me");
 
         // blows up because the exchange has the wrong user id (doesn't match session)
         try {
-            when(exchange.getUserId()).thenReturn("bogus");
-            rpc.saveExchange(exchange);
+            when(header.getUserId()).thenReturn("bogus");
+            rpc.saveExchangeChanges(header, participants, removedIds);
             fail("Expected RpcSecurityException");
         } catch (RpcSecurityException e) { }
 
-        InOrder order = Mockito.inOrder(exchange, rpc.getExchangeDao());
+        InOrder order = Mockito.inOrder(header, rpc.getExchangeDao());
 
         // If the state is NEW, it gets moved to STARTED when the update happens
-        when(exchange.getUserId()).thenReturn("me");
-        when(exchange.getExchangeState()).thenReturn(ExchangeState.NEW);
-        rpc.saveExchange(exchange);
-        order.verify(exchange).setExchangeState(ExchangeState.STARTED);
-        order.verify(rpc.getExchangeDao()).updateExchange(exchange);
+        Exchange saved = new Exchange();
+        when(header.getUserId()).thenReturn("me");
+        when(header.getExchangeState()).thenReturn(ExchangeState.NEW);
+        when(rpc.getExchangeDao().updateExchange("me", header, participants, removedIds)).thenReturn(saved);
+        assertSame(saved, rpc.saveExchangeChanges(header, participants, removedIds));
+        order.verify(header).setExchangeState(ExchangeState.STARTED);
+        order.verify(rpc.getExchangeDao()).updateExchange("me", header, participants, removedIds);
 
         // If the state is not NEW, it stays as-is
-        when(exchange.getUserId()).thenReturn("me");
-        when(exchange.getExchangeState()).thenReturn(ExchangeState.GENERATED);
-        rpc.saveExchange(exchange);
-        order.verify(exchange, times(0)).setExchangeState(ExchangeState.STARTED);
-        order.verify(rpc.getExchangeDao()).updateExchange(exchange);
+        when(header.getUserId()).thenReturn("me");
+        when(header.getExchangeState()).thenReturn(ExchangeState.GENERATED);
+        assertSame(saved, rpc.saveExchangeChanges(header, participants, removedIds));
+        order.verify(header, times(0)).setExchangeState(ExchangeState.STARTED);
+        order.verify(rpc.getExchangeDao()).updateExchange("me", header, participants, removedIds);
+
+        // If the exchange no longer exists, the DAO returns null
+        when(rpc.getExchangeDao().updateExchange("me", header, participants, removedIds)).thenReturn(null);
+        assertNull(rpc.saveExchangeChanges(header, participants, removedIds));
     }
 
-    /** Test saveExchange() exception conditions. */
-    @Test public void testSaveExchangeException() {
+    /** Test saveExchangeChanges() exception conditions. */
+    @Test public void testSaveExchangeChangesException() {
         ExchangeRpc rpc = createRpc();
         when(rpc.getClientSessionService().retrieveClientSession().getCurrentUser().getUserId()).thenReturn("me");
 
-        Exchange exchange = new Exchange();
-        exchange.setId(12L);
-        exchange.setUserId("me");
+        Exchange header = new Exchange();
+        header.setId(12L);
+        header.setUserId("me");
         CedarRuntimeException cause = new CedarRuntimeException("Hello");
-        doThrow(cause).when(rpc.getExchangeDao()).updateExchange(exchange);
+        when(rpc.getExchangeDao().updateExchange("me", header, null, null)).thenThrow(cause);
 
         try {
-            rpc.saveExchange(exchange);
+            rpc.saveExchangeChanges(header, null, null);
             fail("Expected ServiceException");
         } catch (ServiceException e) {
             assertSame(cause, e.getCause());
@@ -420,68 +581,90 @@ public class ExchangeRpcTest {
         when(rpc.getClientSessionService().retrieveClientSession().getCurrentUser().getUserId()).thenReturn("me");
 
         Exchange exchange = mock(Exchange.class);
+        Exchange header = new Exchange();
         when(exchange.getId()).thenReturn(42L);
+        when(exchange.copyHeader()).thenReturn(header);
 
         Assignment assignment1 = mock(Assignment.class);
         AssignmentSet assignments1 = new AssignmentSet();
         assignments1.add(assignment1);
 
-        Assignment assignment2 = mock(Assignment.class);
-        AssignmentSet assignments2 = new AssignmentSet();
-        assignments1.add(assignment2);
-
         AuditEvent event1 = mock(AuditEvent.class);
-        when(rpc.getExchangeService().sendMessages(exchange, assignments1, false)).thenReturn(15);  // so we can tell recipients count comes from here
+        when(rpc.getExchangeNotificationService().queueNotifications(exchange)).thenReturn(15);  // so we can tell recipients count comes from here
         when(rpc.getAuditEventService().buildExchangeEmailEvent(42L, 15)).thenReturn(event1);   // if event gets returned, method was invoked properly
 
-        AuditEvent event2 = mock(AuditEvent.class);
-        when(rpc.getExchangeService().sendMessages(exchange, assignments2, false)).thenReturn(13);  // so we can tell recipients count comes from here
-        when(rpc.getAuditEventService().buildExchangeEmailEvent(42L, 13)).thenReturn(event2);   // if event gets returned, method was invoked properly
-
-        // blows up because the exchange has the wrong user id (doesn't match session)
-        try {
-            when(exchange.getUserId()).thenReturn("bogus");
-            rpc.sendNotifications(exchange);
-            fail("Expected RpcSecurityException");
-        } catch (RpcSecurityException e) { }
+        // nothing happens if the exchange doesn't exist
+        when(rpc.getExchangeDao().retrieveExchange(42L)).thenReturn(null);
+        assertNull(rpc.sendNotifications(42L));
+        verify(rpc.getExchangeNotificationService(), never()).queueNotifications(any(Exchange.class));
 
         // blows up because the exchange has the wrong user id (doesn't match session)
         try {
+            when(rpc.getExchangeDao().retrieveExchange(42L)).thenReturn(exchange);
             when(exchange.getUserId()).thenReturn("bogus");
-            rpc.sendNotifications(exchange);
+            rpc.sendNotifications(42L);
             fail("Expected RpcSecurityException");
         } catch (RpcSecurityException e) { }
 
         // works because session and exchange match
-        // this time, we get valid assignments on first pass (auto-conflict true)
+        // assignments are generated in a single call, and the service decides whether a second pass is needed
         when(exchange.getUserId()).thenReturn("me");
-        when(rpc.getExchangeService().generateAssignments(exchange, true)).thenReturn(assignments1);
-        when(rpc.getExchangeService().generateAssignments(exchange, false)).thenReturn(assignments2);
-        Exchange result = rpc.sendNotifications(exchange);
-        assertSame(exchange, result); // get back the same object, just updated per validations below
-        InOrder order = Mockito.inOrder(exchange, rpc.getExchangeDao(), rpc.getExchangeService(), rpc.getAuditEventService());
-        order.verify(rpc.getExchangeService()).generateAssignments(exchange, true);
-        order.verify(rpc.getExchangeService()).sendMessages(exchange, assignments1, false);
+        when(rpc.getExchangeService().generateAssignments(exchange, null)).thenReturn(assignments1);
+        Exchange result = rpc.sendNotifications(42L);
+        assertSame(header, result); // get back just the header, along with the new assignments
+        assertSame(assignments1, result.getAssignments());
+        InOrder order = Mockito.inOrder(exchange, rpc.getExchangeDao(), rpc.getExchangeService(), rpc.getExchangeNotificationService(), rpc.getAuditEventService());
+        order.verify(exchange).setAssignmentSeed(isA(Long.class));
+        order.verify(rpc.getExchangeService()).generateAssignments(exchange, null);
         order.verify(exchange).setAssignments(assignments1);
         order.verify(exchange).setExchangeState(ExchangeState.SENT);
         order.verify(rpc.getExchangeDao()).updateExchange(exchange);
+        order.verify(rpc.getExchangeNotificationService()).queueNotifications(exchange);
         order.verify(rpc.getAuditEventService()).logAuditEvent(event1);
+        verify(rpc.getExchangeService(), never()).generateAssignments(exchange, false, null);
+        verify(rpc.getExchangeService(), never()).sendMessages(any(Exchange.class), any(AssignmentSet.class), anyBoolean());
+    }
 
-        // works because session and exchange match
-        // this time, we get valid assignments on second pass (auto-conflict false)
-        when(exchange.getUserId()).thenReturn("me");
-        when(rpc.getExchangeService().generateAssignments(exchange, true)).thenThrow(new InvalidDataException("whatever"));
-        when(rpc.getExchangeService().generateAssignments(exchange, false)).thenReturn(assignments2);
-        result = rpc.sendNotifications(exchange);
-        assertSame(exchange, result); // get back the same object, just updated per validations below
-        order = Mockito.inOrder(exchange, rpc.getExchangeDao(), rpc.getExchangeService(), rpc.getAuditEventService());
-        order.verify(rpc.getExchangeService()).generateAssignments(exchange, true);
-        order.verify(rpc.getExchangeService()).generateAssignments(exchange, false);
-        order.verify(rpc.getExchangeService()).sendMessages(exchange, assignments2, false);
-        order.verify(exchange).setAssignments(assignments2);
-        order.verify(exchange).setExchangeState(ExchangeState.SENT);
-        order.verify(rpc.getExchangeDao()).updateExchange(exchange);
-        order.verify(rpc.getAuditEventService()).logAuditEvent(event2);
+    /** Test sendNotifications() for an exchange that takes prior pairings into account. */
+    @Test public void testSendNotificationsPairingHistory() {
+        ExchangeRpc rpc = createRpc();
+        when(rpc.getClientSessionService().retrieveClientSession().getCurrentUser().getUserId()).thenReturn("me");
+
+        List<Long> priorExchangeIds = new ArrayList<Long>();
+        priorExchangeIds.add(10L);
+        priorExchangeIds.add(11L);
+
+        Exchange exchange = new Exchange();
+        exchange.setId(42L);
+        exchange.setUserId("me");
+        exchange.setPriorExchangeIds(priorExchangeIds);
+
+        PairingHistory history = new PairingHistory();
+        AssignmentSet assignments = new AssignmentSet();
+        when(rpc.getExchangeDao().retrieveExchange(42L)).thenReturn(exchange);
+        when(rpc.getExchangeDao().retrievePairingHistory("me", priorExchangeIds)).thenReturn(history);
+        when(rpc.getExchangeService().generateAssignments(exchange, null)).thenReturn(assignments);
+        when(rpc.getExchangeService().generateAssignments(exchange, history)).thenReturn(assignments);
+
+        // prior pairings are ignored unless the exchange says otherwise
+        exchange.setPriorPairingMode(null);
+        rpc.sendNotifications(42L);
+        exchange.setPriorPairingMode(PriorPairingMode.IGNORE);
+        rpc.sendNotifications(42L);
+        verify(rpc.getExchangeService(), times(2)).generateAssignments(exchange, null);
+        verify(rpc.getExchangeDao(), never()).retrievePairingHistory(anyString(), anyListOf(Long.class));
+
+        exchange.setPriorPairingMode(PriorPairingMode.FORBID);
+        rpc.sendNotifications(42L);
+        verify(rpc.getExchangeDao()).retrievePairingHistory("me", priorExchangeIds);
+        verify(rpc.getExchangeService()).generateAssignments(exchange, history);
+
+        // there's no point retrieving history when there are no prior exchanges
+        exchange.setPriorPairingMode(PriorPairingMode.AVOID);
+        exchange.setPriorExchangeIds(new ArrayList<Long>());
+        rpc.sendNotifications(42L);
+        verify(rpc.getExchangeService(), times(3)).generateAssignments(exchange, null);
+        verify(rpc.getExchangeDao(), times(1)).retrievePairingHistory(anyString(), anyListOf(Long.class));
     }
 
     /** Test sendNotifications() exception conditions. */
@@ -489,29 +672,29 @@ public class ExchangeRpcTest {
         ExchangeRpc rpc = createRpc();
         when(rpc.getClientSessionService().retrieveClientSession().getCurrentUser().getUserId()).thenReturn("me");
 
-        InvalidDataException invalidException1 = new InvalidDataException("invalid1");
-        InvalidDataException invalidException2 = new InvalidDataException("invalid2");
+        InvalidDataException invalidException = new InvalidDataException("invalid");
         Exchange invalidExchange = new Exchange();
         invalidExchange.setId(12L);
         invalidExchange.setUserId("me");
-        when(rpc.getExchangeService().generateAssignments(invalidExchange, true)).thenThrow(invalidException1);
-        when(rpc.getExchangeService().generateAssignments(invalidExchange, false)).thenThrow(invalidException2);
+        when(rpc.getExchangeDao().retrieveExchange(12L)).thenReturn(invalidExchange);
+        when(rpc.getExchangeService().generateAssignments(invalidExchange, null)).thenThrow(invalidException);
 
         try {
-            rpc.sendNotifications(invalidExchange);
+            rpc.sendNotifications(12L);
             fail("Expected InvalidDataException");
         } catch (InvalidDataException e) {
-            assertSame(invalidException2, e);
+            assertSame(invalidException, e);
         }
 
         CedarRuntimeException runtimeException = new CedarRuntimeException("runtime");
         Exchange runtimeExchange = new Exchange();
         runtimeExchange.setId(13L);
         runtimeExchange.setUserId("me");
-        when(rpc.getExchangeService().generateAssignments(runtimeExchange, true)).thenThrow(runtimeException);
+        when(rpc.getExchangeDao().retrieveExchange(13L)).thenReturn(runtimeExchange);
+        when(rpc.getExchangeService().generateAssignments(runtimeExchange, null)).thenThrow(runtimeException);
 
         try {
-            rpc.sendNotifications(runtimeExchange);
+            rpc.sendNotifications(13L);
             fail("Expected ServiceException");
         } catch (ServiceException e) {
             assertSame(runtimeException, e.getCause());
@@ -547,15 +730,17 @@ public class ExchangeRpcTest {
 
         // Nothing happens here because the participant isn't in the exchange already
         when(exchange.getUserId()).thenReturn("me");
-        when(exchange.getAssignments().getGiftReceiver(giver)).thenReturn(null);
+        when(exchange.getAssignments().getGiftReceivers(giver)).thenReturn(new ParticipantSet());
         Exchange result = rpc.resendNotification(exchange, participants);
         assertSame(exchange, result); // get back the same object
         verifyNoMoreInteractions(rpc.getExchangeDao());
         verifyNoMoreInteractions(rpc.getExchangeService());
 
         // This works because the passed-in participant has an assignment
+        ParticipantSet receivers = new ParticipantSet();
+        receivers.add(receiver);
         when(exchange.getUserId()).thenReturn("me");
-        when(exchange.getAssignments().getGiftReceiver(giver)).thenReturn(receiver);
+        when(exchange.getAssignments().getGiftReceivers(giver)).thenReturn(receivers);
         result = rpc.resendNotification(exchange, participants);
         assertSame(exchange, result); // get back the same object
         InOrder order = Mockito.inOrder(rpc.getExchangeService(), rpc.getExchangeDao(), rpc.getAuditEventService());
@@ -605,6 +790,147 @@ public class ExchangeRpcTest {
         }
     }
 
+    /** Test repairNotifications(). */
+    @Test public void testRepairNotifications() {
+        ExchangeRpc rpc = createRpc();
+        when(rpc.getClientSessionService().retrieveClientSession().getCurrentUser().getUserId()).thenReturn("me");
+
+        Exchange exchange = mock(Exchange.class);
+        when(exchange.getId()).thenReturn(42L);
+
+        AssignmentSet assignments = new AssignmentSet();
+        assignments.add(mock(Assignment.class));
+        assignments.add(mock(Assignment.class));
+
+        AssignmentSet changed = new AssignmentSet();
+        changed.add(assignments.get(0));
+
+        AuditEvent event = mock(AuditEvent.class);
+        when(rpc.getAuditEventService().buildResendEmailsEvent(42L, 1)).thenReturn(event);   // if event gets returned, method was invoked properly
+
+        // blows up because the exchange has the wrong user id (doesn't match session)
+        try {
+            when(exchange.getUserId()).thenReturn("bogus");
+            rpc.repairNotifications(exchange);
+            fail("Expected RpcSecurityException");
+        } catch (RpcSecurityException e) { }
+
+        // blows up because notifications were never sent for the exchange
+        for (ExchangeState state : new ExchangeState[] { null, ExchangeState.NEW, ExchangeState.STARTED, ExchangeState.GENERATED, }) {
+            try {
+                when(exchange.getUserId()).thenReturn("me");
+                when(exchange.getExchangeState()).thenReturn(state);
+                rpc.repairNotifications(exchange);
+                fail("Expected InvalidDataException");
+            } catch (InvalidDataException e) { }
+        }
+
+        verify(rpc.getExchangeService(), never()).repairAssignments(any(Exchange.class));
+
+        // works because session and exchange match, and only the changed assignments are sent
+        when(exchange.getUserId()).thenReturn("me");
+        when(exchange.getExchangeState()).thenReturn(ExchangeState.SENT);
+        when(rpc.getExchangeService().repairAssignments(exchange)).thenReturn(new RepairedAssignments(assignments, changed));
+        Exchange result = rpc.repairNotifications(exchange);
+        assertSame(exchange, result); // get back the same object, just updated per validations below
+        InOrder order = Mockito.inOrder(exchange, rpc.getExchangeDao(), rpc.getExchangeService(), rpc.getAuditEventService());
+        order.verify(rpc.getExchangeService()).repairAssignments(exchange);
+        order.verify(rpc.getExchangeService()).sendMessages(exchange, changed, false);
+        order.verify(exchange).setAssignments(assignments);
+        order.verify(rpc.getExchangeDao()).updateExchange(exchange);
+        order.verify(rpc.getAuditEventService()).logAuditEvent(event);
+    }
+
+    /** Test repairNotifications() when nothing changed. */
+    @Test public void testRepairNotificationsUnchanged() {
+        ExchangeRpc rpc = createRpc();
+        when(rpc.getClientSessionService().retrieveClientSession().getCurrentUser().getUserId()).thenReturn("me");
+
+        Exchange exchange = mock(Exchange.class);
+        when(exchange.getId()).thenReturn(42L);
+        when(exchange.getUserId()).thenReturn("me");
+        when(exchange.getExchangeState()).thenReturn(ExchangeState.SENT);
+
+        AssignmentSet assignments = new AssignmentSet();
+        assignments.add(mock(Assignment.class));
+        when(rpc.getExchangeService().repairAssignments(exchange)).thenReturn(new RepairedAssignments(assignments, new AssignmentSet()));
+
+        Exchange result = rpc.repairNotifications(exchange);
+        assertSame(exchange, result);
+        verify(exchange).setAssignments(assignments);
+        verify(rpc.getExchangeDao()).updateExchange(exchange);
+        verify(rpc.getExchangeService(), never()).sendMessages(any(Exchange.class), any(AssignmentSet.class), anyBoolean());
+        verifyNoMoreInteractions(rpc.getAuditEventService());
+    }
+
+    /** Test repairNotifications() for exception conditions (case 1). */
+    @Test public void testRepairNotificationsException1() {
+        ExchangeRpc rpc = createRpc();
+        Exchange exchange = mock(Exchange.class);
+
+        CedarRuntimeException runtimeException = new CedarRuntimeException("runtime");
+        when(exchange.getUserId()).thenThrow(runtimeException);
+
+        try {
+            rpc.repairNotifications(exchange);
+        } catch (ServiceException e) {
+            assertSame(runtimeException, e.getCause());
+        }
+    }
+
+    /** Test repairNotifications() for exception conditions (case 2). */
+    @Test public void testRepairNotificationsException2() {
+        ExchangeRpc rpc = createRpc();
+        Exchange exchange = mock(Exchange.class);
+
+        InvalidDataException invalidException = new InvalidDataException("invalid");
+        when(exchange.getUserId()).thenThrow(invalidException);
+
+        try {
+            rpc.repairNotifications(exchange);
+        } catch (InvalidDataException e) {
+            assertSame(invalidException, e);
+        }
+    }
+
+    /** Test checkFeasibility(). */
+    @Test public void testCheckFeasibility() {
+        ExchangeRpc rpc = createRpc();
+        Exchange exchange = mock(Exchange.class);
+        FeasibilityResult result = new FeasibilityResult();
+        when(rpc.getClientSessionService().retrieveClientSession().getCurrentUser().getUserId()).thenReturn("me");
+        when(rpc.getExchangeService().checkFeasibility(exchange)).thenReturn(result);
+
+        // blows up because the exchange has the wrong user id (doesn't match session)
+        try {
+            when(exchange.getUserId()).thenReturn("bogus");
+            rpc.checkFeasibility(exchange);
+            fail("Expected RpcSecurityException");
+        } catch (RpcSecurityException e) { }
+
+        when(exchange.getUserId()).thenReturn("me");
+        assertSame(result, rpc.checkFeasibility(exchange));
+    }
+
+    /** Test checkFeasibility() exception conditions. */
+    @Test public void testCheckFeasibilityException() {
+        ExchangeRpc rpc = createRpc();
+        when(rpc.getClientSessionService().retrieveClientSession().getCurrentUser().getUserId()).thenReturn("me");
+
+        CedarRuntimeException runtimeException = new CedarRuntimeException("runtime");
+        Exchange runtimeExchange = new Exchange();
+        runtimeExchange.setId(13L);
+        runtimeExchange.setUserId("me");
+        when(rpc.getExchangeService().checkFeasibility(runtimeExchange)).thenThrow(runtimeException);
+
+        try {
+            rpc.checkFeasibility(runtimeExchange);
+            fail("Expected ServiceException");
+        } catch (ServiceException e) {
+            assertSame(runtimeException, e.getCause());
+        }
+    }
+
     /** Test generatePreview(). */
     @Test public void testGeneratePreview() {
         ExchangeRpc rpc = createRpc();
@@ -659,12 +985,14 @@ public class ExchangeRpcTest {
     private static ExchangeRpc createRpc() {
         IAuditEventService auditEventService = mock(IAuditEventService.class);
         IExchangeService exchangeService = mock(IExchangeService.class);
+        IExchangeNotificationService exchangeNotificationService = mock(IExchangeNotificationService.class);
         IClientSessionService clientSessionService = mock(IClientSessionService.class, Mockito.RETURNS_DEEP_STUBS);
         IExchangeDao exchangeDao = mock(IExchangeDao.class);
 
         ExchangeRpc rpc = new ExchangeRpc();
         rpc.setAuditEventService(auditEventService);
         rpc.setExchangeService(exchangeService);
+        rpc.setExchangeNotificationService(exchangeNotificationService);
         rpc.setClientSessionService(clientSessionService);
         rpc.setExchangeDao(exchangeDao);
         rpc.afterPropertiesSet();
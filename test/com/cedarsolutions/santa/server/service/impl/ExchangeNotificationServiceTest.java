@@ -0,0 +1,283 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.cedarsolutions.exception.NotConfiguredException;
+import com.cedarsolutions.santa.server.dao.IExchangeDao;
+import com.cedarsolutions.santa.server.service.IExchangeService;
+import com.cedarsolutions.santa.shared.domain.exchange.Assignment;
+import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
+import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+import com.cedarsolutions.santa.shared.domain.exchange.ExchangeSection;
+import com.cedarsolutions.santa.shared.domain.exchange.Participant;
+import com.google.appengine.api.taskqueue.Queue;
+
+/**
+ * Unit tests for ExchangeNotificationService.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class ExchangeNotificationServiceTest {
+
+    /** Test the constructor, getters and setters. */
+    @Test public void testConstructorGettersSetters() {
+        ExchangeNotificationService service = new ExchangeNotificationService();
+        assertNull(service.getExchangeService());
+        assertNull(service.getExchangeDao());
+        assertNull(service.getQueueName());
+        assertEquals(ExchangeNotificationService.DEFAULT_CHUNK_SIZE, service.getChunkSize());
+
+        IExchangeService exchangeService = mock(IExchangeService.class);
+        service.setExchangeService(exchangeService);
+        assertSame(exchangeService, service.getExchangeService());
+
+        IExchangeDao exchangeDao = mock(IExchangeDao.class);
+        service.setExchangeDao(exchangeDao);
+        assertSame(exchangeDao, service.getExchangeDao());
+
+        service.setQueueName("queue");
+        assertEquals("queue", service.getQueueName());
+
+        service.setChunkSize(5);
+        assertEquals(5, service.getChunkSize());
+    }
+
+    /** Test afterPropertiesSet(). */
+    @Test public void testAfterPropertiesSet() {
+        ExchangeNotificationService service = createService(null, 2);
+        service.afterPropertiesSet();
+
+        try {
+            service = createService(null, 2);
+            service.setExchangeService(null);
+            service.afterPropertiesSet();
+            fail("Expected NotConfiguredException");
+        } catch (NotConfiguredException e) { }
+
+        try {
+            service = createService(null, 2);
+            service.setExchangeDao(null);
+            service.afterPropertiesSet();
+            fail("Expected NotConfiguredException");
+        } catch (NotConfiguredException e) { }
+
+        try {
+            service = createService(null, 2);
+            service.setQueueName(null);
+            service.afterPropertiesSet();
+            fail("Expected NotConfiguredException");
+        } catch (NotConfiguredException e) { }
+
+        try {
+            service = createService(null, 0);
+            service.afterPropertiesSet();
+            fail("Expected NotConfiguredException");
+        } catch (NotConfiguredException e) { }
+    }
+
+    /** Test createTask(). */
+    @Test public void testCreateTask() {
+        ExchangeNotificationService service = createService(null, 2);
+        assertNotNull(service.createTask(42L, 99L, 3));
+    }
+
+    /** Test queueNotifications(). */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Test public void testQueueNotifications() {
+        Queue queue = mock(Queue.class);
+        ArgumentCaptor<Iterable> tasks = ArgumentCaptor.forClass(Iterable.class);
+
+        ExchangeNotificationService service = createService(queue, 2);
+        assertEquals(0, service.queueNotifications(createExchange(0)));
+        verify(queue, never()).add(any(Iterable.class));
+
+        assertEquals(5, service.queueNotifications(createExchange(5)));
+        verify(queue).add(tasks.capture());
+        assertEquals(3, count(tasks.getValue()));
+
+        queue = mock(Queue.class);
+        tasks = ArgumentCaptor.forClass(Iterable.class);
+        service = createService(queue, 1);
+        assertEquals(150, service.queueNotifications(createExchange(150)));
+        verify(queue, times(2)).add(tasks.capture());
+        assertEquals(100, count(tasks.getAllValues().get(0)));
+        assertEquals(50, count(tasks.getAllValues().get(1)));
+    }
+
+    /** Test sendNotificationChunk() for tasks that should be dropped. */
+    @Test public void testSendNotificationChunkDropped() {
+        ExchangeNotificationService service = createService(null, 2);
+        when(service.getExchangeDao().retrieveExchange(42L, EnumSet.of(ExchangeSection.ASSIGNMENTS))).thenReturn(null);
+        assertEquals(0, service.sendNotificationChunk(42L, 99L, 0));
+
+        Exchange exchange = createExchange(5);
+        exchange.setAssignments(null);
+        when(service.getExchangeDao().retrieveExchange(42L, EnumSet.of(ExchangeSection.ASSIGNMENTS))).thenReturn(exchange);
+        assertEquals(0, service.sendNotificationChunk(42L, 99L, 0));
+
+        exchange = createExchange(5);
+        when(service.getExchangeDao().retrieveExchange(42L, EnumSet.of(ExchangeSection.ASSIGNMENTS))).thenReturn(exchange);
+        assertEquals(0, service.sendNotificationChunk(42L, 98L, 0));
+        assertEquals(0, service.sendNotificationChunk(42L, null, 0));
+        assertEquals(0, service.sendNotificationChunk(42L, 99L, 3));  // past the end
+
+        verify(service.getExchangeDao(), never()).claimNotificationChunk(anyLong(), anyLong(), anyInt());
+        verify(service.getExchangeService(), never()).sendNotification(any(Exchange.class), any(Assignment.class));
+    }
+
+    /** Test sendNotificationChunk() when the chunk is already claimed. */
+    @Test public void testSendNotificationChunkClaimed() {
+        ExchangeNotificationService service = createService(null, 2);
+        Exchange exchange = createExchange(5);
+        when(service.getExchangeDao().retrieveExchange(42L, EnumSet.of(ExchangeSection.ASSIGNMENTS))).thenReturn(exchange);
+        when(service.getExchangeDao().claimNotificationChunk(42L, 99L, 1)).thenReturn(-1);
+
+        assertEquals(0, service.sendNotificationChunk(42L, 99L, 1));
+        verify(service.getExchangeService(), never()).sendNotification(any(Exchange.class), any(Assignment.class));
+        verify(service.getExchangeDao(), never()).releaseNotificationChunk(anyLong(), anyLong(), anyInt(), anyInt(), anyBoolean());
+    }
+
+    /** Test sendNotificationChunk() for a fresh chunk. */
+    @Test public void testSendNotificationChunk() {
+        ExchangeNotificationService service = createService(null, 2);
+        Exchange exchange = createExchange(5);
+        when(service.getExchangeDao().retrieveExchange(42L, EnumSet.of(ExchangeSection.ASSIGNMENTS))).thenReturn(exchange);
+        when(service.getExchangeDao().claimNotificationChunk(42L, 99L, 1)).thenReturn(0);
+        when(service.getExchangeDao().claimNotificationChunk(42L, 99L, 2)).thenReturn(0);
+
+        assertEquals(2, service.sendNotificationChunk(42L, 99L, 1));
+        verify(service.getExchangeService()).sendNotification(exchange, exchange.getAssignments().get(2));
+        verify(service.getExchangeService()).sendNotification(exchange, exchange.getAssignments().get(3));
+        verify(service.getExchangeDao()).releaseNotificationChunk(42L, 99L, 1, 2, true);
+
+        assertEquals(1, service.sendNotificationChunk(42L, 99L, 2));  // last chunk is short
+        verify(service.getExchangeService()).sendNotification(exchange, exchange.getAssignments().get(4));
+        verify(service.getExchangeDao()).releaseNotificationChunk(42L, 99L, 2, 1, true);
+        verify(service.getExchangeService(), times(3)).sendNotification(any(Exchange.class), any(Assignment.class));
+    }
+
+    /** Test sendNotificationChunk() when resuming a chunk that failed part way through. */
+    @Test public void testSendNotificationChunkResume() {
+        ExchangeNotificationService service = createService(null, 2);
+        Exchange exchange = createExchange(5);
+        when(service.getExchangeDao().retrieveExchange(42L, EnumSet.of(ExchangeSection.ASSIGNMENTS))).thenReturn(exchange);
+        when(service.getExchangeDao().claimNotificationChunk(42L, 99L, 1)).thenReturn(1);
+
+        assertEquals(1, service.sendNotificationChunk(42L, 99L, 1));
+        verify(service.getExchangeService()).sendNotification(exchange, exchange.getAssignments().get(3));
+        verify(service.getExchangeService(), times(1)).sendNotification(any(Exchange.class), any(Assignment.class));
+        verify(service.getExchangeDao()).releaseNotificationChunk(42L, 99L, 1, 2, true);
+    }
+
+    /** Test sendNotificationChunk() when a notification fails. */
+    @Test public void testSendNotificationChunkFailure() {
+        ExchangeNotificationService service = createService(null, 2);
+        Exchange exchange = createExchange(5);
+        when(service.getExchangeDao().retrieveExchange(42L, EnumSet.of(ExchangeSection.ASSIGNMENTS))).thenReturn(exchange);
+        when(service.getExchangeDao().claimNotificationChunk(42L, 99L, 1)).thenReturn(0);
+
+        RuntimeException failure = new RuntimeException("Hello");
+        doThrow(failure).when(service.getExchangeService()).sendNotification(exchange, exchange.getAssignments().get(3));
+
+        try {
+            service.sendNotificationChunk(42L, 99L, 1);
+            fail("Expected RuntimeException");
+        } catch (RuntimeException e) {
+            assertSame(failure, e);
+        }
+
+        verify(service.getExchangeService()).sendNotification(exchange, exchange.getAssignments().get(2));
+        verify(service.getExchangeDao()).releaseNotificationChunk(eq(42L), eq(99L), eq(1), eq(1), eq(false));
+    }
+
+    /** Create a service with mocked dependencies, which adds tasks to the passed-in queue. */
+    private static ExchangeNotificationService createService(final Queue queue, int chunkSize) {
+        ExchangeNotificationService service = new ExchangeNotificationService() {
+            @Override
+            protected Queue getQueue() {
+                return queue;
+            }
+        };
+
+        service.setExchangeService(mock(IExchangeService.class));
+        service.setExchangeDao(mock(IExchangeDao.class));
+        service.setQueueName("notifications");
+        service.setChunkSize(chunkSize);
+        return service;
+    }
+
+    /** Create an exchange with the passed-in number of assignments. */
+    private static Exchange createExchange(int size) {
+        List<Participant> participants = new ArrayList<Participant>();
+        for (int i = 0; i < size; i++) {
+            Participant participant = new Participant();
+            participant.setId((long) i);
+            participants.add(participant);
+        }
+
+        AssignmentSet assignments = new AssignmentSet();
+        for (int i = 0; i < size; i++) {
+            assignments.add(new Assignment(participants.get(i), participants.get((i + 1) % size)));
+        }
+
+        Exchange exchange = new Exchange();
+        exchange.setId(42L);
+        exchange.setAssignmentSeed(99L);
+        exchange.setAssignments(assignments);
+        return exchange;
+    }
+
+    /** Count the tasks that were added to a queue. */
+    private static int count(Iterable<?> tasks) {
+        int count = 0;
+        for (@SuppressWarnings("unused") Object task : tasks) {
+            count++;
+        }
+
+        return count;
+    }
+
+}
@@ -33,13 +33,17 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -48,13 +52,20 @@ import com.cedarsolutions.exception.InvalidDataException;
 import com.cedarsolutions.exception.NotConfiguredException;
 import com.cedarsolutions.exception.ServiceException;
 import com.cedarsolutions.junit.gae.EmailTestUtils;
+import com.cedarsolutions.santa.server.assignment.AssignmentStrategy;
+import com.cedarsolutions.santa.server.assignment.PairingHistory;
+import com.cedarsolutions.santa.server.assignment.RepairedAssignments;
+import com.cedarsolutions.santa.server.assignment.ScoredAssignments;
 import com.cedarsolutions.santa.server.config.ExchangeServiceConfig;
 import com.cedarsolutions.santa.shared.domain.exchange.Assignment;
 import com.cedarsolutions.santa.shared.domain.exchange.AssignmentSet;
+import com.cedarsolutions.santa.shared.domain.exchange.ConflictGroup;
 import com.cedarsolutions.santa.shared.domain.exchange.Exchange;
+import com.cedarsolutions.santa.shared.domain.exchange.FeasibilityResult;
 import com.cedarsolutions.santa.shared.domain.exchange.Organizer;
 import com.cedarsolutions.santa.shared.domain.exchange.Participant;
 import com.cedarsolutions.santa.shared.domain.exchange.ParticipantSet;
+import com.cedarsolutions.santa.shared.domain.exchange.PriorPairingMode;
 import com.cedarsolutions.santa.shared.domain.exchange.TemplateConfig;
 import com.cedarsolutions.server.service.IEmailService;
 import com.cedarsolutions.shared.domain.email.EmailAddress;
@@ -102,11 +113,39 @@ public class ExchangeServiceTest {
         ExchangeService service = new ExchangeService();
 
         when(config.getMaxAttempts()).thenReturn(1);
+        when(config.getParallelism()).thenReturn(1);
         service.setConfig(config);
         service.setEmailService(emailService);
         service.afterPropertiesSet();
 
         try {
+            when(config.getParallelism()).thenReturn(0);
+            service.setConfig(config);
+            service.setEmailService(emailService);
+            service.afterPropertiesSet();
+            fail("Expected NotConfiguredException");
+        } catch (NotConfiguredException e) { }
+
+        try {
+            when(config.getParallelism()).thenReturn(1);
+            when(config.getMutualPairPenalty()).thenReturn(-1);
+            service.setConfig(config);
+            service.setEmailService(emailService);
+            service.afterPropertiesSet();
+            fail("Expected NotConfiguredException");
+        } catch (NotConfiguredException e) { }
+
+        try {
+            when(config.getMutualPairPenalty()).thenReturn(0);
+            when(config.getPriorPairingPenalty()).thenReturn(-1);
+            service.setConfig(config);
+            service.setEmailService(emailService);
+            service.afterPropertiesSet();
+            fail("Expected NotConfiguredException");
+        } catch (NotConfiguredException e) { }
+
+        try {
+            when(config.getPriorPairingPenalty()).thenReturn(0);
             when(config.getMaxAttempts()).thenReturn(0);
             service.setConfig(config);
             service.setEmailService(emailService);
@@ -154,7 +193,7 @@ public class ExchangeServiceTest {
 
         assertEquals(EmailFormat.PLAINTEXT, template.getValue().getFormat());
         assertEquals(2, template.getValue().getTemplateContext().size());
-        assertEquals(exchange, template.getValue().getTemplateContext().get("exchange"));
+        assertEquals(exchange.copyHeader(), template.getValue().getTemplateContext().get("exchange"));
         assertEquals(assignment, template.getValue().getTemplateContext().get("assignment"));
         assertEquals(service.getConfig().getSender(), template.getValue().getSender());
         assertEquals("sender@example.com", template.getValue().getSender().getAddress());
@@ -185,7 +224,7 @@ public class ExchangeServiceTest {
 
         assertEquals(EmailFormat.PLAINTEXT, template.getValue().getFormat());
         assertEquals(2, template.getValue().getTemplateContext().size());
-        assertEquals(exchange, template.getValue().getTemplateContext().get("exchange"));
+        assertEquals(exchange.copyHeader(), template.getValue().getTemplateContext().get("exchange"));
         assertEquals(assignment, template.getValue().getTemplateContext().get("assignment"));
         assertEquals(service.getConfig().getSender(), template.getValue().getSender());
         assertEquals("sender@example.com", template.getValue().getSender().getAddress());
@@ -216,7 +255,7 @@ public class ExchangeServiceTest {
 
         assertEquals(EmailFormat.PLAINTEXT, template.getValue().getFormat());
         assertEquals(2, template.getValue().getTemplateContext().size());
-        assertEquals(exchange, template.getValue().getTemplateContext().get("exchange"));
+        assertEquals(exchange.copyHeader(), template.getValue().getTemplateContext().get("exchange"));
         assertEquals(assignment, template.getValue().getTemplateContext().get("assignment"));
         assertEquals(service.getConfig().getSender(), template.getValue().getSender());
         assertEquals("sender@example.com", template.getValue().getSender().getAddress());
@@ -247,7 +286,7 @@ public class ExchangeServiceTest {
 
         assertEquals(EmailFormat.PLAINTEXT, template.getValue().getFormat());
         assertEquals(2, template.getValue().getTemplateContext().size());
-        assertEquals(exchange, template.getValue().getTemplateContext().get("exchange"));
+        assertEquals(exchange.copyHeader(), template.getValue().getTemplateContext().get("exchange"));
         assertEquals(assignment, template.getValue().getTemplateContext().get("assignment"));
         assertEquals(service.getConfig().getSender(), template.getValue().getSender());
         assertEquals("sender@example.com", template.getValue().getSender().getAddress());
@@ -276,7 +315,7 @@ public class ExchangeServiceTest {
 
         assertEquals(EmailFormat.PLAINTEXT, template.getValue().getFormat());
         assertEquals(2, template.getValue().getTemplateContext().size());
-        assertEquals(exchange, template.getValue().getTemplateContext().get("exchange"));
+        assertEquals(exchange.copyHeader(), template.getValue().getTemplateContext().get("exchange"));
         assertEquals(assignment, template.getValue().getTemplateContext().get("assignment"));
         assertEquals(service.getConfig().getSender().getName(), template.getValue().getSender().getName());
         assertEquals("sender@example.com", template.getValue().getSender().getAddress());
@@ -305,7 +344,7 @@ public class ExchangeServiceTest {
 
         assertEquals(EmailFormat.MULTIPART, template.getValue().getFormat());
         assertEquals(2, template.getValue().getTemplateContext().size());
-        assertEquals(exchange, template.getValue().getTemplateContext().get("exchange"));
+        assertEquals(exchange.copyHeader(), template.getValue().getTemplateContext().get("exchange"));
         assertEquals(assignment, template.getValue().getTemplateContext().get("assignment"));
         assertEquals(service.getConfig().getSender().getName(), template.getValue().getSender().getName());
         assertEquals("sender@example.com", template.getValue().getSender().getAddress());
@@ -326,7 +365,7 @@ public class ExchangeServiceTest {
         Exchange exchange = generateExchange(EmailFormat.MULTIPART);
         exchange.setExtraInfo("This is example extra info that is really really long and is indeed longer than 75 characters and will be wrapped.");
 
-        Exchange expected = new Exchange(exchange);
+        Exchange expected = exchange.copyHeader();
         expected.setExtraInfo("This is example extra info that is really really long and is indeed longer\r\n" +
                               "than 75 characters and will be wrapped.");
 
@@ -371,7 +410,7 @@ public class ExchangeServiceTest {
 
         assertEquals(EmailFormat.MULTIPART, template.getValue().getFormat());
         assertEquals(2, template.getValue().getTemplateContext().size());
-        assertEquals(exchange, template.getValue().getTemplateContext().get("exchange"));
+        assertEquals(exchange.copyHeader(), template.getValue().getTemplateContext().get("exchange"));
         assertEquals(assignment, template.getValue().getTemplateContext().get("assignment"));
         assertEquals(service.getConfig().getSender().getName(), template.getValue().getSender().getName());
         assertEquals("sender@example.com", template.getValue().getSender().getAddress());
@@ -402,7 +441,7 @@ public class ExchangeServiceTest {
 
         assertEquals(EmailFormat.MULTIPART, template.getValue().getFormat());
         assertEquals(2, template.getValue().getTemplateContext().size());
-        assertEquals(exchange, template.getValue().getTemplateContext().get("exchange"));
+        assertEquals(exchange.copyHeader(), template.getValue().getTemplateContext().get("exchange"));
         assertEquals(assignment, template.getValue().getTemplateContext().get("assignment"));
         assertEquals(service.getConfig().getSender().getName(), template.getValue().getSender().getName());
         assertEquals("sender@example.com", template.getValue().getSender().getAddress());
@@ -433,7 +472,7 @@ public class ExchangeServiceTest {
 
         assertEquals(EmailFormat.MULTIPART, template.getValue().getFormat());
         assertEquals(2, template.getValue().getTemplateContext().size());
-        assertEquals(exchange, template.getValue().getTemplateContext().get("exchange"));
+        assertEquals(exchange.copyHeader(), template.getValue().getTemplateContext().get("exchange"));
         assertEquals(assignment, template.getValue().getTemplateContext().get("assignment"));
         assertEquals(service.getConfig().getSender().getName(), template.getValue().getSender().getName());
         assertEquals("sender@example.com", template.getValue().getSender().getAddress());
@@ -462,7 +501,7 @@ public class ExchangeServiceTest {
 
         assertEquals(EmailFormat.MULTIPART, template.getValue().getFormat());
         assertEquals(2, template.getValue().getTemplateContext().size());
-        assertEquals(exchange, template.getValue().getTemplateContext().get("exchange"));
+        assertEquals(exchange.copyHeader(), template.getValue().getTemplateContext().get("exchange"));
         assertEquals(assignment, template.getValue().getTemplateContext().get("assignment"));
         assertEquals(service.getConfig().getSender().getName(), template.getValue().getSender().getName());
         assertEquals("sender@example.com", template.getValue().getSender().getAddress());
@@ -476,6 +515,23 @@ public class ExchangeServiceTest {
         // Don't bother to validate the actual HTML here... it's different due to organizerOnly, and we already know the template works
     }
 
+    /** Test sendNotification(), which does not need participants. */
+    @Test public void testSendNotification() {
+        Exchange exchange = generateExchange(EmailFormat.MULTIPART).copyHeader();
+        Assignment assignment = generateAssignment();
+
+        ArgumentCaptor<EmailTemplate> template = ArgumentCaptor.forClass(EmailTemplate.class);
+
+        ExchangeService service = createService();
+        service.sendNotification(exchange, assignment);
+        verify(service.getEmailService()).sendEmail(template.capture());
+
+        assertEquals(assignment, template.getValue().getTemplateContext().get("assignment"));
+        assertEquals(exchange.getName(), ((Exchange) template.getValue().getTemplateContext().get("exchange")).getName());
+        assertEquals(1, template.getValue().getRecipients().size());
+        assertEquals(assignment.getGiftGiver().getEmailAddress(), template.getValue().getRecipients().get(0).getAddress());
+    }
+
     /** Test sendMessages(). */
     @Test public void testSendMessages() {
         Exchange exchange = generateExchange(EmailFormat.MULTIPART);
@@ -820,8 +876,8 @@ public class ExchangeServiceTest {
         Participant p2 = new Participant(2L, "name2", "nick2", "email2");
         Participant p3 = new Participant(3L, "name3", "nick3", "email3");
 
-        p1.getConflicts().add(p2);
-        p2.getConflicts().add(p3);
+        p1.addConflict(p2);
+        p2.addConflict(p3);
 
         ParticipantSet participants = new ParticipantSet();
         participants.add(p1);
@@ -866,6 +922,670 @@ public class ExchangeServiceTest {
         }
     }
 
+    /** Test generateAssignments() for a constrained participant set, where the greedy algorithm usually fails. */
+    @Test public void testGenerateAssignmentsConstrained() {
+        ExchangeService service = createService();
+        Exchange exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.getParticipants().clear();
+
+        ParticipantSet participants = new ParticipantSet();
+        for (int i = 1; i <= 20; i++) {
+            participants.add(new Participant((long) i, "name" + i, "nick" + i, "email" + i));
+        }
+
+        Participant first = participants.get(0);
+        Participant last = participants.get(participants.size() - 1);
+        for (int i = 1; i < participants.size() - 1; i++) {
+            last.addConflict(participants.get(i));  // the last participant can only give to the first one
+        }
+
+        exchange.setParticipants(participants);
+
+        // Try it a bunch of times, to make sure it wasn't just chance that the test passed
+        for (int i = 0; i < REPEAT; i++) {
+            // The matching always succeeds on the first attempt if an assignment exists
+            when(service.getConfig().getMaxAttempts()).thenReturn(1);
+            AssignmentSet assignments = service.generateAssignments(exchange, false);
+            assertEquals(20, assignments.size());
+            assertEquals(first, assignments.getGiftReceiver(last));
+            for (Participant participant : participants) {
+                assertNotNull(assignments.getGiftGiver(participant));
+                assertFalse(participant.equals(assignments.getGiftReceiver(participant)));
+            }
+        }
+
+        // Once the first participant is also a conflict, there is no legal assignment, no matter how many attempts
+        last.addConflict(first);
+        when(service.getConfig().getMaxAttempts()).thenReturn(MAX_ATTEMPTS);
+        try {
+            service.generateAssignments(exchange, false);
+            fail("Expected InvalidDataException");
+        } catch (InvalidDataException e) { }
+    }
+
+    /** Test generateAssignments() using the greedy strategy. */
+    @Test public void testGenerateAssignmentsGreedy() {
+        ExchangeService service = createService();
+        when(service.getConfig().getAssignmentStrategy()).thenReturn(AssignmentStrategy.GREEDY);
+
+        Exchange exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.getParticipants().clear();
+
+        Participant p1 = new Participant(1L, "name1", "nick1", "email1");
+        Participant p2 = new Participant(2L, "name2", "nick2", "email2");
+        Participant p3 = new Participant(3L, "name3", "nick3", "email3");
+
+        p1.addConflict(p2);
+        p2.addConflict(p3);
+
+        ParticipantSet participants = new ParticipantSet();
+        participants.add(p1);
+        participants.add(p2);
+        participants.add(p3);
+        exchange.setParticipants(participants);
+
+        // Try it a bunch of times, to make sure it wasn't just chance that the test passed
+        for (int i = 0; i < REPEAT; i++) {
+            // For this set of participants and their conflicts, there is only one legal assignment set
+            when(service.getConfig().getMaxAttempts()).thenReturn(MAX_ATTEMPTS);
+            AssignmentSet assignments = service.generateAssignments(exchange, true);
+            assertEquals(3, assignments.size());
+            assertTrue(assignments.getGiftReceiver(p1).equals(p3));
+            assertTrue(assignments.getGiftReceiver(p2).equals(p1));
+            assertTrue(assignments.getGiftReceiver(p3).equals(p2));
+        }
+    }
+
+    /** Test generateAssignments() using the uniform strategy. */
+    @Test public void testGenerateAssignmentsUniform() {
+        ExchangeService service = createService();
+        when(service.getConfig().getAssignmentStrategy()).thenReturn(AssignmentStrategy.UNIFORM);
+        when(service.getConfig().getMaxAttempts()).thenReturn(MAX_ATTEMPTS);
+
+        Exchange exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.getParticipants().clear();
+
+        Participant p1 = new Participant(1L, "name1", "nick1", "email1");
+        Participant p2 = new Participant(2L, "name2", "nick2", "email2");
+        Participant p3 = new Participant(3L, "name3", "nick3", "email3");
+
+        p1.addConflict(p2);
+        p2.addConflict(p3);
+
+        ParticipantSet participants = new ParticipantSet();
+        participants.add(p1);
+        participants.add(p2);
+        participants.add(p3);
+        exchange.setParticipants(participants);
+
+        // For this set of participants and their conflicts, there is only one legal assignment set
+        for (int i = 0; i < REPEAT; i++) {
+            AssignmentSet assignments = service.generateAssignments(exchange, true);
+            assertEquals(3, assignments.size());
+            assertTrue(assignments.getGiftReceiver(p1).equals(p3));
+            assertTrue(assignments.getGiftReceiver(p2).equals(p1));
+            assertTrue(assignments.getGiftReceiver(p3).equals(p2));
+        }
+
+        // Nobody is allowed to give to p1
+        p3.addConflict(p1);
+        try {
+            service.generateAssignments(exchange, false);
+            fail("Expected InvalidDataException");
+        } catch (InvalidDataException e) { }
+    }
+
+    /** Test that generateAssignments() is reproducible when the exchange has a seed. */
+    @Test public void testGenerateAssignmentsSeeded() {
+        ExchangeService service = createService();
+        when(service.getConfig().getMaxAttempts()).thenReturn(MAX_ATTEMPTS);
+
+        Exchange exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.getParticipants().clear();
+        for (long id = 1; id <= 30; id++) {
+            exchange.getParticipants().add(new Participant(id, "name" + id, "nick" + id, "email" + id));
+        }
+
+        for (AssignmentStrategy strategy : AssignmentStrategy.values()) {
+            when(service.getConfig().getAssignmentStrategy()).thenReturn(strategy);
+            for (long seed = 0; seed < 10; seed++) {
+                exchange.setAssignmentSeed(seed);
+                AssignmentSet first = service.generateAssignments(exchange, true);
+                AssignmentSet second = service.generateAssignments(exchange, true);
+                assertEquals(first, second);
+            }
+        }
+    }
+
+    /** Test generateAssignments() with pairings from prior exchanges. */
+    @Test public void testGenerateAssignmentsPairingHistory() {
+        ExchangeService service = createService();
+        when(service.getConfig().getMaxAttempts()).thenReturn(MAX_ATTEMPTS);
+
+        Exchange exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.getParticipants().clear();
+
+        Participant p1 = new Participant(1L, "name1", "nick1", "email1");
+        Participant p2 = new Participant(2L, "name2", "nick2", "email2");
+        Participant p3 = new Participant(3L, "name3", "nick3", "email3");
+        exchange.getParticipants().add(p1);
+        exchange.getParticipants().add(p2);
+        exchange.getParticipants().add(p3);
+
+        // Last year, p1 gave to p2, which leaves only one legal assignment set this year
+        PairingHistory history = new PairingHistory();
+        history.addEncoded("email1	email2");
+
+        boolean repeated = false;
+        exchange.setPriorPairingMode(PriorPairingMode.IGNORE);
+        for (int i = 0; i < REPEAT; i++) {
+            AssignmentSet assignments = service.generateAssignments(exchange, true, history);
+            repeated |= assignments.getGiftReceiver(p1).equals(p2);
+        }
+
+        assertTrue(repeated);
+
+        for (PriorPairingMode mode : new PriorPairingMode[] { PriorPairingMode.AVOID, PriorPairingMode.FORBID, }) {
+            exchange.setPriorPairingMode(mode);
+            for (int i = 0; i < REPEAT; i++) {
+                AssignmentSet assignments = service.generateAssignments(exchange, true, history);
+                assertTrue(assignments.getGiftReceiver(p1).equals(p3));
+                assertTrue(assignments.getGiftReceiver(p2).equals(p1));
+                assertTrue(assignments.getGiftReceiver(p3).equals(p2));
+            }
+        }
+
+        // If p1 has given to everyone, then the history can only be avoided, not forbidden
+        history.addEncoded("email1	email3");
+
+        exchange.setPriorPairingMode(PriorPairingMode.AVOID);
+        assertEquals(3, service.generateAssignments(exchange, true, history).size());
+
+        exchange.setPriorPairingMode(PriorPairingMode.FORBID);
+        try {
+            service.generateAssignments(exchange, true, history);
+            fail("Expected InvalidDataException");
+        } catch (InvalidDataException e) { }
+    }
+
+    /** Test generateAssignments() when the service decides whether automatic conflict detection can be used. */
+    @Test public void testGenerateAssignmentsBestAvailable() {
+        ExchangeService service = spy(createService());
+        when(service.getConfig().getMaxAttempts()).thenReturn(MAX_ATTEMPTS);
+
+        Exchange exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.getParticipants().clear();
+
+        // With two participants, the only legal assignment set is a mutual pair
+        Participant p1 = new Participant(1L, "name1", "nick1", "email1");
+        Participant p2 = new Participant(2L, "name2", "nick2", "email2");
+        exchange.getParticipants().add(p1);
+        exchange.getParticipants().add(p2);
+
+        // The matching strategy needs a second pass without automatic conflict detection
+        when(service.getConfig().getAssignmentStrategy()).thenReturn(AssignmentStrategy.MATCHING);
+        AssignmentSet assignments = service.generateAssignments(exchange, null);
+        assertEquals(2, assignments.size());
+        assertTrue(assignments.getGiftReceiver(p1).equals(p2));
+        verify(service).generateAssignments(exchange, true, null);
+        verify(service).generateAssignments(exchange, false, null);
+
+        // The optimal strategy only penalizes the mutual pair, so a single pass is enough
+        service = spy(createService());
+        when(service.getConfig().getAssignmentStrategy()).thenReturn(AssignmentStrategy.OPTIMAL);
+        assignments = service.generateAssignments(exchange, null);
+        assertEquals(2, assignments.size());
+        assertTrue(assignments.getGiftReceiver(p1).equals(p2));
+        verify(service).generateAssignments(exchange, true, null);
+        verify(service, never()).generateAssignments(exchange, false, null);
+    }
+
+    /** Test generateAssignments() with conflict groups. */
+    @Test public void testGenerateAssignmentsConflictGroups() {
+        ExchangeService service = createService();
+        when(service.getConfig().getMaxAttempts()).thenReturn(MAX_ATTEMPTS);
+
+        Exchange exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.getParticipants().clear();
+
+        Participant p1 = new Participant(1L, "name1", "nick1", "email1");
+        Participant p2 = new Participant(2L, "name2", "nick2", "email2");
+        Participant p3 = new Participant(3L, "name3", "nick3", "email3");
+        Participant p4 = new Participant(4L, "name4", "nick4", "email4");
+        exchange.getParticipants().add(p1);
+        exchange.getParticipants().add(p2);
+        exchange.getParticipants().add(p3);
+        exchange.getParticipants().add(p4);
+
+        ConflictGroup group1 = new ConflictGroup("group1");
+        group1.getParticipantIds().add(1L);
+        group1.getParticipantIds().add(2L);
+        exchange.getConflictGroups().add(group1);
+
+        ConflictGroup group2 = new ConflictGroup("group2");
+        group2.getParticipantIds().add(3L);
+        group2.getParticipantIds().add(4L);
+        exchange.getConflictGroups().add(group2);
+
+        // Everyone has to give to someone in the other group
+        for (AssignmentStrategy strategy : AssignmentStrategy.values()) {
+            when(service.getConfig().getAssignmentStrategy()).thenReturn(strategy);
+            for (int i = 0; i < REPEAT; i++) {
+                AssignmentSet assignments = service.generateAssignments(exchange, false);
+                assertEquals(4, assignments.size());
+                for (Assignment assignment : assignments) {
+                    assertTrue(group1.contains(assignment.getGiftGiver().getId()) != group1.contains(assignment.getGiftReceiver().getId()));
+                }
+            }
+        }
+
+        // A group that covers everyone makes the exchange infeasible
+        group1.getParticipantIds().add(3L);
+        group1.getParticipantIds().add(4L);
+        assertFalse(service.checkFeasibility(exchange).isFeasible());
+    }
+
+    /** Test generateAssignments() when each participant gives more than one gift. */
+    @Test public void testGenerateAssignmentsMultiGift() {
+        ExchangeService service = createService();
+        when(service.getConfig().getMaxAttempts()).thenReturn(MAX_ATTEMPTS);
+
+        Exchange exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.getParticipants().clear();
+
+        Participant p1 = new Participant(1L, "name1", "nick1", "email1");
+        Participant p2 = new Participant(2L, "name2", "nick2", "email2");
+        Participant p3 = new Participant(3L, "name3", "nick3", "email3");
+        Participant p4 = new Participant(4L, "name4", "nick4", "email4");
+        Participant p5 = new Participant(5L, "name5", "nick5", "email5");
+        Participant p6 = new Participant(6L, "name6", "nick6", "email6");
+        exchange.getParticipants().add(p1);
+        exchange.getParticipants().add(p2);
+        exchange.getParticipants().add(p3);
+        exchange.getParticipants().add(p4);
+        exchange.getParticipants().add(p5);
+        exchange.getParticipants().add(p6);
+        p1.addConflict(p2);
+
+        exchange.setGiftsPerParticipant(2);
+
+        // The strategy doesn't matter; everyone gives 2 gifts and receives 2 gifts
+        for (AssignmentStrategy strategy : AssignmentStrategy.values()) {
+            when(service.getConfig().getAssignmentStrategy()).thenReturn(strategy);
+            for (int i = 0; i < REPEAT; i++) {
+                AssignmentSet assignments = service.generateAssignments(exchange, true);
+                assertEquals(12, assignments.size());
+                for (Participant participant : exchange.getParticipants()) {
+                    ParticipantSet receivers = assignments.getGiftReceivers(participant);
+                    assertEquals(2, receivers.size());
+                    assertFalse(receivers.get(0).equals(receivers.get(1)));
+                    assertFalse(receivers.contains(participant));
+                    assertEquals(2, assignments.getGiftGivers(participant).size());
+                    for (Participant receiver : receivers) {
+                        assertFalse(assignments.getGiftReceivers(receiver).contains(participant));
+                    }
+                }
+
+                assertFalse(assignments.getGiftReceivers(p1).contains(p2));
+            }
+        }
+
+        // Everyone gives to everyone else, so there are mutual pairs
+        exchange.setGiftsPerParticipant(5);
+        p1.getConflictIds().clear();
+        AssignmentSet assignments = service.generateAssignments(exchange, false);
+        assertEquals(30, assignments.size());
+        for (Participant participant : exchange.getParticipants()) {
+            assertEquals(5, assignments.getGiftReceivers(participant).size());
+            assertEquals(5, assignments.getGiftGivers(participant).size());
+        }
+
+        // Once p1 can't give to p2, nobody can give 5 gifts
+        p1.addConflict(p2);
+        try {
+            service.generateAssignments(exchange, false);
+            fail("Expected InvalidDataException");
+        } catch (InvalidDataException e) { }
+
+        // Neither the optimizer nor the repair supports more than one gift
+        exchange.setGiftsPerParticipant(2);
+        try {
+            service.optimizeAssignments(exchange, null);
+            fail("Expected InvalidDataException");
+        } catch (InvalidDataException e) { }
+
+        exchange.setAssignments(service.generateAssignments(exchange, false));
+        try {
+            service.repairAssignments(exchange);
+            fail("Expected InvalidDataException");
+        } catch (InvalidDataException e) { }
+    }
+
+    /** Test generateAssignments() using the optimal strategy. */
+    @Test public void testGenerateAssignmentsOptimal() {
+        ExchangeService service = createService();
+        when(service.getConfig().getAssignmentStrategy()).thenReturn(AssignmentStrategy.OPTIMAL);
+
+        Exchange exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.getParticipants().clear();
+
+        Participant p1 = new Participant(1L, "name1", "nick1", "email1");
+        Participant p2 = new Participant(2L, "name2", "nick2", "email2");
+        Participant p3 = new Participant(3L, "name3", "nick3", "email3");
+
+        p1.addConflict(p2);
+        p2.addConflict(p3);
+
+        ParticipantSet participants = new ParticipantSet();
+        participants.add(p1);
+        participants.add(p2);
+        participants.add(p3);
+        exchange.setParticipants(participants);
+
+        // For this set of participants and their conflicts, there is only one legal assignment set
+        for (int i = 0; i < REPEAT; i++) {
+            AssignmentSet assignments = service.generateAssignments(exchange, true);
+            assertEquals(3, assignments.size());
+            assertTrue(assignments.getGiftReceiver(p1).equals(p3));
+            assertTrue(assignments.getGiftReceiver(p2).equals(p1));
+            assertTrue(assignments.getGiftReceiver(p3).equals(p2));
+        }
+
+        // Nobody is allowed to give to p1
+        p3.addConflict(p1);
+        try {
+            service.generateAssignments(exchange, false);
+            fail("Expected InvalidDataException");
+        } catch (InvalidDataException e) { }
+    }
+
+    /** Test optimizeAssignments(). */
+    @Test public void testOptimizeAssignments() {
+        ExchangeService service = createService();
+
+        Exchange exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.getParticipants().clear();
+
+        Participant p1 = new Participant(1L, "name1", "nick1", "email1");
+        Participant p2 = new Participant(2L, "name2", "nick2", "email2");
+        Participant p3 = new Participant(3L, "name3", "nick3", "email3");
+        exchange.getParticipants().add(p1);
+        exchange.getParticipants().add(p2);
+        exchange.getParticipants().add(p3);
+
+        // Last year, p1 gave to p2, so this year there is only one assignment set with no penalty
+        PairingHistory history = new PairingHistory();
+        history.addEncoded("email1	email2");
+
+        for (PriorPairingMode mode : new PriorPairingMode[] { PriorPairingMode.AVOID, PriorPairingMode.FORBID, }) {
+            exchange.setPriorPairingMode(mode);
+            for (int i = 0; i < REPEAT; i++) {
+                ScoredAssignments result = service.optimizeAssignments(exchange, history);
+                assertEquals(0L, result.getScore());
+                assertTrue(result.getAssignments().getGiftReceiver(p1).equals(p3));
+                assertTrue(result.getAssignments().getGiftReceiver(p2).equals(p1));
+                assertTrue(result.getAssignments().getGiftReceiver(p3).equals(p2));
+            }
+        }
+
+        // If p1 has given to everyone, then a repeat costs the configured penalty, or is impossible if forbidden
+        history.addEncoded("email1	email3");
+
+        exchange.setPriorPairingMode(PriorPairingMode.AVOID);
+        ScoredAssignments result = service.optimizeAssignments(exchange, history);
+        assertEquals(3, result.getAssignments().size());
+        assertEquals(2L, result.getScore());
+
+        exchange.setPriorPairingMode(PriorPairingMode.FORBID);
+        try {
+            service.optimizeAssignments(exchange, history);
+            fail("Expected InvalidDataException");
+        } catch (InvalidDataException e) { }
+
+        // With two participants, the mutual pair can't be avoided, so it costs the configured penalty
+        exchange.getParticipants().remove(p3);
+        result = service.optimizeAssignments(exchange, null);
+        assertEquals(2, result.getAssignments().size());
+        assertEquals(1L, result.getScore());
+
+        // Exchanges larger than the configured limit can't be optimized
+        when(service.getConfig().getMaxOptimalParticipants()).thenReturn(1);
+        try {
+            service.optimizeAssignments(exchange, null);
+            fail("Expected InvalidDataException");
+        } catch (InvalidDataException e) { }
+    }
+
+    /** Test that generateAssignments() falls back to the uniform strategy for large exchanges. */
+    @Test public void testGenerateAssignmentsOptimalLimit() {
+        ExchangeService service = spy(createService());
+        when(service.getConfig().getAssignmentStrategy()).thenReturn(AssignmentStrategy.OPTIMAL);
+        when(service.getConfig().getMaxOptimalParticipants()).thenReturn(1);
+        when(service.getConfig().getMaxAttempts()).thenReturn(MAX_ATTEMPTS);
+
+        Exchange exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.getParticipants().clear();
+
+        Participant p1 = new Participant(1L, "name1", "nick1", "email1");
+        Participant p2 = new Participant(2L, "name2", "nick2", "email2");
+        exchange.getParticipants().add(p1);
+        exchange.getParticipants().add(p2);
+
+        // The uniform strategy can only get the mutual pair by making a second pass
+        AssignmentSet assignments = service.generateAssignments(exchange, null);
+        assertEquals(2, assignments.size());
+        assertTrue(assignments.getGiftReceiver(p1).equals(p2));
+        verify(service).generateAssignments(exchange, true, null);
+        verify(service).generateAssignments(exchange, false, null);
+    }
+
+    /** Test repairAssignments(). */
+    @Test public void testRepairAssignments() {
+        ExchangeService service = createService();
+
+        Exchange exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.getParticipants().clear();
+
+        Participant p1 = new Participant(1L, "name1", "nick1", "email1");
+        Participant p2 = new Participant(2L, "name2", "nick2", "email2");
+        Participant p3 = new Participant(3L, "name3", "nick3", "email3");
+        Participant p4 = new Participant(4L, "name4", "nick4", "email4");
+        Participant p5 = new Participant(5L, "name5", "nick5", "email5");
+        exchange.getParticipants().add(p1);
+        exchange.getParticipants().add(p2);
+        exchange.getParticipants().add(p3);
+        exchange.getParticipants().add(p4);
+
+        // Nothing to repair before assignments are generated
+        try {
+            service.repairAssignments(exchange);
+            fail("Expected InvalidDataException");
+        } catch (InvalidDataException e) { }
+
+        // p1 -> p2 -> p3 -> p4 -> p1
+        AssignmentSet assignments = new AssignmentSet();
+        assignments.add(new Assignment(p1, p2));
+        assignments.add(new Assignment(p2, p3));
+        assignments.add(new Assignment(p3, p4));
+        assignments.add(new Assignment(p4, p1));
+        exchange.setAssignments(assignments);
+
+        RepairedAssignments result = service.repairAssignments(exchange);
+        assertEquals(assignments, result.getAssignments());
+        assertTrue(result.getChanged().isEmpty());
+
+        // When p3 drops out, p2 just takes over p3's receiver
+        exchange.removeParticipant(p3);
+        result = service.repairAssignments(exchange);
+        assertEquals(3, result.getAssignments().size());
+        assertEquals(p4, result.getAssignments().getGiftReceiver(p2));
+        assertEquals(1, result.getChanged().size());
+        assertEquals(p2, result.getChanged().get(0).getGiftGiver());
+        assertEquals(p4, result.getChanged().get(0).getGiftReceiver());
+
+        // When p5 joins, only p5 and whoever now gives to p5 need to be notified
+        exchange.setAssignments(result.getAssignments());
+        exchange.getParticipants().add(p5);
+        for (int i = 0; i < REPEAT; i++) {
+            result = service.repairAssignments(exchange);
+            assertEquals(4, result.getAssignments().size());
+            assertEquals(2, result.getChanged().size());
+            for (Assignment assignment : result.getChanged()) {
+                assertTrue(assignment.getGiftGiver().equals(p5) || assignment.getGiftReceiver().equals(p5));
+            }
+        }
+
+        // Nobody may give to p5, so there is no repair
+        p1.addConflict(p5);
+        p2.addConflict(p5);
+        p4.addConflict(p5);
+        try {
+            service.repairAssignments(exchange);
+            fail("Expected InvalidDataException");
+        } catch (InvalidDataException e) { }
+    }
+
+    /** Test that generateAssignments() gets the same results with and without parallel attempts. */
+    @Test public void testGenerateAssignmentsParallel() {
+        ExchangeService serial = createService();
+        when(serial.getConfig().getMaxAttempts()).thenReturn(MAX_ATTEMPTS);
+
+        ExchangeService parallel = spy(createService());
+        when(parallel.getConfig().getMaxAttempts()).thenReturn(MAX_ATTEMPTS);
+        when(parallel.getConfig().getParallelism()).thenReturn(4);
+        doReturn(Executors.defaultThreadFactory()).when(parallel).createThreadFactory();
+
+        Exchange exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.getParticipants().clear();
+        for (long id = 1; id <= 30; id++) {
+            exchange.getParticipants().add(new Participant(id, "name" + id, "nick" + id, "email" + id));
+        }
+
+        for (AssignmentStrategy strategy : AssignmentStrategy.values()) {
+            if (strategy != AssignmentStrategy.SINGLE_CYCLE) {  // the number of cycle searches depends on parallelism
+                when(serial.getConfig().getAssignmentStrategy()).thenReturn(strategy);
+                when(parallel.getConfig().getAssignmentStrategy()).thenReturn(strategy);
+                for (long seed = 0; seed < 10; seed++) {
+                    exchange.setAssignmentSeed(seed);
+                    assertEquals(serial.generateAssignments(exchange, true), parallel.generateAssignments(exchange, true));
+                }
+            }
+        }
+
+        when(parallel.getConfig().getAssignmentStrategy()).thenReturn(AssignmentStrategy.SINGLE_CYCLE);
+        assertEquals(30, parallel.generateAssignments(exchange, true).size());
+    }
+
+    /** Test generateAssignments() using the single cycle strategy. */
+    @Test public void testGenerateAssignmentsSingleCycle() {
+        ExchangeService service = createService();
+        when(service.getConfig().getAssignmentStrategy()).thenReturn(AssignmentStrategy.SINGLE_CYCLE);
+        when(service.getConfig().getMaxAttempts()).thenReturn(MAX_ATTEMPTS);
+
+        Exchange exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.getParticipants().clear();
+
+        ParticipantSet participants = new ParticipantSet();
+        for (long id = 1; id <= 20; id++) {
+            participants.add(new Participant(id, "name" + id, "nick" + id, "email" + id));
+        }
+
+        participants.get(0).addConflict(participants.get(1));
+        participants.get(5).addConflict(participants.get(6));
+        exchange.setParticipants(participants);
+
+        for (int i = 0; i < REPEAT; i++) {
+            AssignmentSet assignments = service.generateAssignments(exchange, true);
+            assertEquals(20, assignments.size());
+
+            // Following the gift receivers from any participant visits everyone before returning
+            int length = 0;
+            Participant current = participants.get(0);
+            do {
+                Participant receiver = assignments.getGiftReceiver(current);
+                assertFalse(current.hasConflict(receiver.getId()));
+                current = receiver;
+                length++;
+            } while (!current.equals(participants.get(0)) && length <= 20);
+            assertEquals(20, length);
+        }
+    }
+
+    /** Test generateAssignments() using the single cycle strategy, when no single cycle exists. */
+    @Test public void testGenerateAssignmentsSingleCycleFallback() {
+        ExchangeService service = createService();
+        when(service.getConfig().getAssignmentStrategy()).thenReturn(AssignmentStrategy.SINGLE_CYCLE);
+        when(service.getConfig().getMaxAttempts()).thenReturn(MAX_ATTEMPTS);
+
+        Exchange exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.getParticipants().clear();
+
+        ParticipantSet participants = new ParticipantSet();
+        for (long id = 1; id <= 6; id++) {
+            participants.add(new Participant(id, "name" + id, "nick" + id, "email" + id));
+        }
+
+        // Two separate groups, which can only give gifts within the group
+        for (int i = 0; i < 6; i++) {
+            for (int j = 0; j < 6; j++) {
+                if ((i < 3) != (j < 3)) {
+                    participants.get(i).addConflict(participants.get(j));
+                }
+            }
+        }
+
+        exchange.setParticipants(participants);
+
+        for (int i = 0; i < REPEAT; i++) {
+            AssignmentSet assignments = service.generateAssignments(exchange, true);
+            assertEquals(6, assignments.size());
+            for (Participant participant : participants) {
+                Participant receiver = assignments.getGiftReceiver(participant);
+                assertFalse(participant.hasConflict(receiver.getId()));
+                assertFalse(participant.equals(assignments.getGiftReceiver(receiver)));
+            }
+        }
+    }
+
+    /** Test checkFeasibility(). */
+    @Test public void testCheckFeasibility() {
+        ExchangeService service = createService();
+        Exchange exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.getParticipants().clear();
+
+        Participant p1 = new Participant(1L, "name1", "nick1", "email1");
+        Participant p2 = new Participant(2L, "name2", "nick2", "email2");
+        Participant p3 = new Participant(3L, "name3", "nick3", "email3");
+
+        ParticipantSet participants = new ParticipantSet();
+        participants.add(p1);
+        participants.add(p2);
+        participants.add(p3);
+        exchange.setParticipants(participants);
+
+        FeasibilityResult result = service.checkFeasibility(exchange);
+        assertTrue(result.isFeasible());
+        assertTrue(result.getBlockingParticipants().isEmpty());
+
+        // Everyone can give two gifts, but not three, since there are only two other participants
+        exchange.setGiftsPerParticipant(2);
+        assertTrue(service.checkFeasibility(exchange).isFeasible());
+        exchange.setGiftsPerParticipant(3);
+        assertFalse(service.checkFeasibility(exchange).isFeasible());
+        exchange.setGiftsPerParticipant(null);
+
+        // Nobody is allowed to give to p1
+        p2.addConflict(p1);
+        p3.addConflict(p1);
+
+        result = service.checkFeasibility(exchange);
+        assertFalse(result.isFeasible());
+        assertFalse(result.isBlockingGivers());
+        assertEquals(1, result.getBlockingParticipants().size());
+        assertEquals(p1, result.getBlockingParticipants().get(0));
+        assertTrue(result.getPartners().isEmpty());
+    }
+
     /** Test generatePreview(). */
     @Test public void testGeneratePreview() {
         ExchangeService service = createService();
@@ -952,6 +1672,18 @@ public class ExchangeServiceTest {
         exchange.getParticipants().get(0).setEmailAddress("");
         assertFieldIsRequired(exchange, "participantEmailAddress");
 
+        exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.setGiftsPerParticipant(1);
+        assertFieldIsOptional(exchange, "giftsPerParticipant");
+
+        exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.setGiftsPerParticipant(0);
+        assertFieldIsInvalid(exchange, "giftsPerParticipant");
+
+        exchange = generateExchange(EmailFormat.MULTIPART);
+        exchange.setGiftsPerParticipant(2);
+        assertFieldIsInvalid(exchange, "giftsPerParticipant");
+
         try {
             exchange = null;
             ExchangeService.validateExchange(exchange);
@@ -984,6 +1716,17 @@ public class ExchangeServiceTest {
         }
     }
 
+    /** Assert that a field is invalid. */
+    private static void assertFieldIsInvalid(Exchange exchange, String field) {
+        try {
+            ExchangeService.validateExchange(exchange);
+            fail("Expected InvalidDataException for field [" + field + "]");
+        } catch (InvalidDataException e) {
+            assertSummary(e, INVALID);
+            assertOnlyMessage(e, INVALID, field);
+        }
+    }
+
     /** Assert that a field is optional. */
     private static void assertFieldIsOptional(Exchange exchange, String field) {
         try {
@@ -998,6 +1741,12 @@ public class ExchangeServiceTest {
         IEmailService emailService = EmailTestUtils.createPartiallyMockedEmailService(TEMPLATE_DIR);
         ExchangeServiceConfig config = mock(ExchangeServiceConfig.class);
         when(config.getMaxAttempts()).thenReturn(1);
+        when(config.getAssignmentStrategy()).thenReturn(AssignmentStrategy.MATCHING);
+        when(config.getCycleTimeLimit()).thenReturn(1000);
+        when(config.getParallelism()).thenReturn(1);
+        when(config.getMutualPairPenalty()).thenReturn(1);
+        when(config.getPriorPairingPenalty()).thenReturn(2);
+        when(config.getMaxOptimalParticipants()).thenReturn(2000);
 
         List<EmailAddress> recipients = new ArrayList<EmailAddress>();
         recipients.add(new EmailAddress("one@example.com"));
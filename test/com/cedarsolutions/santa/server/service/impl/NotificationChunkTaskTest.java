@@ -0,0 +1,63 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.server.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Test;
+
+import com.cedarsolutions.santa.server.service.IExchangeNotificationService;
+
+/**
+ * Unit tests for NotificationChunkTask.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class NotificationChunkTaskTest {
+
+    /** Test the constructor and getters. */
+    @Test public void testConstructorGetters() {
+        NotificationChunkTask task = new NotificationChunkTask(42L, 99L, 3);
+        assertEquals(new Long(42L), task.getExchangeId());
+        assertEquals(new Long(99L), task.getAssignmentSeed());
+        assertEquals(3, task.getChunk());
+    }
+
+    /** Test run(). */
+    @Test public void testRun() {
+        final IExchangeNotificationService service = mock(IExchangeNotificationService.class);
+        NotificationChunkTask task = new NotificationChunkTask(42L, 99L, 3) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected IExchangeNotificationService getNotificationService() {
+                return service;
+            }
+        };
+
+        task.run();
+        verify(service).sendNotificationChunk(42L, 99L, 3);
+    }
+
+}
@@ -23,10 +23,15 @@
 package com.cedarsolutions.santa.shared.domain.exchange;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
 import org.junit.Test;
 
 /**
@@ -87,4 +92,138 @@ public class AssignmentSetTest {
         assertEquals(null, set.getGiftReceiver(participant3));
     }
 
+    /** Test getGiftGivers() and getGiftReceivers(). */
+    @Test public void testGetGiftGiversAndReceivers() {
+        Participant participant1 = new Participant(1L);
+        Participant participant2 = new Participant(2L);
+        Participant participant3 = new Participant(3L);
+        Participant participant4 = new Participant(4L);
+
+        AssignmentSet set = new AssignmentSet();
+        set.add(new Assignment(participant1, participant2));
+        set.add(new Assignment(participant1, participant3));
+        set.add(new Assignment(participant2, participant3));
+
+        assertTrue(set.getGiftGivers(participant1).isEmpty());
+        assertEquals(1, set.getGiftGivers(participant2).size());
+        assertEquals(participant1, set.getGiftGivers(participant2).get(0));
+        assertEquals(2, set.getGiftGivers(participant3).size());
+        assertEquals(participant1, set.getGiftGivers(participant3).get(0));
+        assertEquals(participant2, set.getGiftGivers(participant3).get(1));
+        assertTrue(set.getGiftGivers(new Participant()).isEmpty());
+
+        assertEquals(2, set.getGiftReceivers(participant1).size());
+        assertEquals(participant2, set.getGiftReceivers(participant1).get(0));
+        assertEquals(participant3, set.getGiftReceivers(participant1).get(1));
+        assertEquals(1, set.getGiftReceivers(participant2).size());
+        assertEquals(participant3, set.getGiftReceivers(participant2).get(0));
+        assertTrue(set.getGiftReceivers(participant4).isEmpty());
+        assertTrue(set.getGiftReceivers(new Participant()).isEmpty());
+    }
+
+    /** Test that lookups stay in sync as the set is modified. */
+    @Test public void testIndexesInSync() {
+        Participant participant1 = new Participant(1L);
+        Participant participant2 = new Participant(2L);
+        Participant participant3 = new Participant(3L);
+
+        Assignment assignment1 = new Assignment(participant1, participant2);
+        Assignment assignment2 = new Assignment(participant2, participant3);
+        Assignment assignment3 = new Assignment(participant3, participant1);
+
+        AssignmentSet set = new AssignmentSet();
+        set.add(assignment1);
+        assertEquals(participant2, set.getGiftReceiver(participant1));
+        assertEquals(null, set.getGiftReceiver(participant2));
+
+        set.add(assignment2);
+        set.add(assignment3);
+        assertEquals(participant3, set.getGiftReceiver(participant2));
+        assertEquals(participant3, set.getGiftGiver(participant1));
+
+        assertTrue(set.remove(assignment2));
+        assertFalse(set.remove(assignment2));
+        assertEquals(null, set.getGiftReceiver(participant2));
+        assertEquals(null, set.getGiftGiver(participant3));
+
+        set.remove(0);
+        assertEquals(null, set.getGiftReceiver(participant1));
+        assertEquals(participant1, set.getGiftReceiver(participant3));
+
+        set.set(0, new Assignment(participant3, participant2));
+        assertEquals(participant2, set.getGiftReceiver(participant3));
+        assertEquals(null, set.getGiftGiver(participant1));
+
+        set.add(0, assignment1);
+        assertEquals(participant2, set.getGiftReceiver(participant1));
+        assertEquals(participant1, set.getGiftGiver(participant2));  // first match wins
+
+        Iterator<Assignment> iterator = set.iterator();
+        iterator.next();
+        iterator.remove();
+        assertEquals(null, set.getGiftReceiver(participant1));
+        assertEquals(participant3, set.getGiftGiver(participant2));
+
+        set.addAll(Arrays.asList(assignment1, assignment2));
+        assertEquals(participant2, set.getGiftReceiver(participant1));
+        assertEquals(participant3, set.getGiftReceiver(participant2));
+
+        set.removeAll(Arrays.asList(assignment1));
+        assertEquals(null, set.getGiftReceiver(participant1));
+
+        set.retainAll(Arrays.asList(assignment2));
+        assertEquals(null, set.getGiftReceiver(participant3));
+        assertEquals(participant3, set.getGiftReceiver(participant2));
+
+        set.subList(0, 1).clear();
+        assertEquals(null, set.getGiftReceiver(participant2));
+
+        set.add(assignment2);
+        List<Assignment> view = set.subList(0, 1);
+        assertEquals(participant3, set.getGiftReceiver(participant2));  // builds the indexes after the view was created
+        view.set(0, new Assignment(participant2, participant1));
+        assertEquals(participant1, set.getGiftReceiver(participant2));
+        view.remove(0);
+        assertEquals(null, set.getGiftReceiver(participant2));
+        view.add(new Assignment(participant3, participant2));
+        assertEquals(participant2, set.getGiftReceiver(participant3));
+
+        set.add(assignment3);
+        set.clear();
+        assertEquals(null, set.getGiftReceiver(participant3));
+    }
+
+    /** Test that assignments without participants are ignored by lookups. */
+    @Test public void testIndexesNullParticipants() {
+        Participant participant1 = new Participant(1L);
+
+        AssignmentSet set = new AssignmentSet();
+        set.add(new Assignment(participant1, null));
+        set.add(new Assignment(null, participant1));
+        set.add(new Assignment(new Participant(), new Participant()));
+
+        assertEquals(null, set.getGiftReceiver(participant1));
+        assertEquals(null, set.getGiftGiver(participant1));
+        assertTrue(set.getGiftReceivers(new Participant()).isEmpty());
+        assertTrue(set.getGiftGivers(new Participant()).isEmpty());
+    }
+
+    /** Test lookups against a large set. */
+    @Test public void testIndexesLarge() {
+        ParticipantSet participants = new ParticipantSet();
+        for (int i = 0; i < 3000; i++) {
+            participants.add(new Participant((long) i));
+        }
+
+        AssignmentSet set = new AssignmentSet();
+        for (int i = 0; i < participants.size(); i++) {
+            set.add(new Assignment(participants.get(i), participants.get((i + 1) % participants.size())));
+        }
+
+        for (int i = 0; i < participants.size(); i++) {
+            assertEquals(participants.get((i + 1) % participants.size()), set.getGiftReceiver(participants.get(i)));
+            assertEquals(participants.get(i), set.getGiftGiver(participants.get((i + 1) % participants.size())));
+        }
+    }
+
 }
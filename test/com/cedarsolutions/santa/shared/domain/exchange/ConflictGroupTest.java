@@ -0,0 +1,161 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.shared.domain.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for ConflictGroup.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+@SuppressWarnings("unlikely-arg-type")
+public class ConflictGroupTest {
+
+    /** Test the constructors. */
+    @Test public void testConstructors() {
+        ConflictGroup group = new ConflictGroup();
+        assertNull(group.getName());
+        assertTrue(group.getParticipantIds().isEmpty());
+
+        group = new ConflictGroup("name");
+        assertEquals("name", group.getName());
+        assertTrue(group.getParticipantIds().isEmpty());
+
+        ConflictGroup copy = new ConflictGroup((ConflictGroup) null);
+        assertNull(copy.getName());
+        assertTrue(copy.getParticipantIds().isEmpty());
+
+        group = createGroup();
+        copy = new ConflictGroup(group);
+        assertEquals(group, copy);
+        assertNotSame(group.getParticipantIds(), copy.getParticipantIds());
+
+        group.setParticipantIds(null);
+        copy = new ConflictGroup(group);
+        assertNull(copy.getParticipantIds());
+    }
+
+    /** Test the getters and setters. */
+    @Test public void testGettersSetters() {
+        ConflictGroup group = new ConflictGroup();
+
+        group.setName("name");
+        assertEquals("name", group.getName());
+
+        List<Long> participantIds = new ArrayList<Long>();
+        group.setParticipantIds(participantIds);
+        assertSame(participantIds, group.getParticipantIds());
+    }
+
+    /** Test contains(). */
+    @Test public void testContains() {
+        ConflictGroup group = createGroup();
+        assertTrue(group.contains(1L));
+        assertTrue(group.contains(2L));
+        assertFalse(group.contains(3L));
+        assertFalse(group.contains(null));
+
+        group.setParticipantIds(null);
+        assertFalse(group.contains(1L));
+    }
+
+    /** Test equals(). */
+    @Test public void testEquals() {
+        ConflictGroup group1;
+        ConflictGroup group2;
+
+        group1 = createGroup();
+        group2 = createGroup();
+        assertTrue(group1.equals(group2));
+        assertTrue(group2.equals(group1));
+
+        try {
+            group1 = createGroup();
+            group2 = null;
+            group1.equals(group2);
+            fail("Expected NullPointerException");
+        } catch (NullPointerException e) { }
+
+        try {
+            group1 = createGroup();
+            group1.equals("blech");
+            fail("Expected ClassCastException");
+        } catch (ClassCastException e) { }
+
+        group1 = createGroup();
+        group2 = createGroup();
+        group2.setName("X");
+        assertFalse(group1.equals(group2));
+        assertFalse(group2.equals(group1));
+
+        group1 = createGroup();
+        group2 = createGroup();
+        group2.getParticipantIds().add(3L);
+        assertFalse(group1.equals(group2));
+        assertFalse(group2.equals(group1));
+    }
+
+    /** Test hashCode(). */
+    @Test public void testHashCode() {
+        ConflictGroup group1 = createGroup();
+
+        ConflictGroup group2 = createGroup();
+        group2.setName("X");
+
+        ConflictGroup group3 = createGroup();
+        group3.getParticipantIds().add(3L);
+
+        ConflictGroup group4 = createGroup();  // same as group1
+
+        Map<ConflictGroup, String> map = new HashMap<ConflictGroup, String>();
+        map.put(group1, "ONE");
+        map.put(group2, "TWO");
+        map.put(group3, "THREE");
+
+        assertEquals("ONE", map.get(group1));
+        assertEquals("TWO", map.get(group2));
+        assertEquals("THREE", map.get(group3));
+        assertEquals("ONE", map.get(group4));
+    }
+
+    /** Create a ConflictGroup for testing. */
+    private static ConflictGroup createGroup() {
+        ConflictGroup group = new ConflictGroup("name");
+        group.getParticipantIds().add(1L);
+        group.getParticipantIds().add(2L);
+        return group;
+    }
+}
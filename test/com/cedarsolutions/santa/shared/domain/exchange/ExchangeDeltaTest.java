@@ -0,0 +1,188 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.shared.domain.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for ExchangeDelta.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+public class ExchangeDeltaTest {
+
+    /** Test compare() for identical exchanges. */
+    @Test public void testCompareEmpty() {
+        Exchange before = createExchange(5);
+        Exchange after = before.snapshot();
+
+        ExchangeDelta delta = ExchangeDelta.compare(before, after);
+        assertTrue(delta.isEmpty());
+        assertTrue(delta.getChangedParticipantIds().isEmpty());
+        assertEquals(0, delta.getEstimatedSize());
+    }
+
+    /** Test undo and redo of changed fields. */
+    @Test public void testFields() {
+        Exchange before = createExchange(3);
+        Exchange after = before.snapshot();
+        after.setName("changed");
+        after.setOrganizer(new Organizer("other", "other@example.com", null));
+        after.getConflictGroups().add(new ConflictGroup("group"));
+        after.setGiftsPerParticipant(2);
+
+        ExchangeDelta delta = ExchangeDelta.compare(before, after);
+        assertFalse(delta.isEmpty());
+        assertTrue(delta.getChangedParticipantIds().isEmpty());
+        assertTrue(delta.getEstimatedSize() > 0);
+
+        Exchange exchange = after.snapshot();
+        delta.undo(exchange);
+        assertEquals(before, exchange);
+        assertSame(before.getOrganizer(), exchange.getOrganizer());
+
+        delta.redo(exchange);
+        assertEquals(after, exchange);
+        assertSame(after.getOrganizer(), exchange.getOrganizer());
+
+        exchange.getConflictGroups().clear();  // the delta holds its own copy of the list
+        delta.undo(exchange);
+        delta.redo(exchange);
+        assertEquals(after, exchange);
+    }
+
+    /** Test undo and redo of participants that were added, replaced and removed. */
+    @Test public void testParticipants() {
+        Exchange before = createExchange(6);
+        Exchange after = before.snapshot();
+
+        Participant replacement = new Participant(4L);
+        replacement.setName("replacement");
+        assertTrue(after.replaceParticipant(replacement));
+        assertTrue(after.removeParticipant(new Participant(2L)));  // also strips 2 from participant 1's conflicts
+        after.getParticipants().add(new Participant(7L));
+        assertTrue(after.removeParticipant(new Participant(6L)));
+
+        ExchangeDelta delta = ExchangeDelta.compare(before, after);
+        assertFalse(delta.isEmpty());
+        assertEquals(new HashSet<Long>(Arrays.asList(1L, 2L, 4L, 6L, 7L)), delta.getChangedParticipantIds());
+
+        Exchange exchange = after.snapshot();
+        delta.undo(exchange);
+        assertEquals(before, exchange);
+        assertSame(before.getParticipants().get(2), exchange.getParticipants().get(2));
+        assertEquals(new HashSet<Long>(Arrays.asList(1L, 2L, 4L, 6L, 7L)), exchange.getChangedParticipantIds());
+
+        delta.redo(exchange);
+        assertEquals(after, exchange);
+        assertSame(replacement, exchange.getParticipantById(4L));
+    }
+
+    /** Test the fallback when participants can't be matched up by id. */
+    @Test public void testWholeParticipants() {
+        Exchange before = createExchange(4);
+        Exchange after = before.snapshot();
+        Participant moved = after.getParticipants().remove(0);
+        after.getParticipants().add(moved);
+
+        ExchangeDelta delta = ExchangeDelta.compare(before, after);
+        assertFalse(delta.isEmpty());
+        assertTrue(delta.getChangedParticipantIds().isEmpty());
+
+        Exchange exchange = after.snapshot();
+        delta.undo(exchange);
+        assertEquals(before, exchange);
+        delta.redo(exchange);
+        assertEquals(after, exchange);
+
+        after = before.snapshot();
+        after.getParticipants().add(new Participant());
+        delta = ExchangeDelta.compare(before, after);
+        exchange = after.snapshot();
+        delta.undo(exchange);
+        assertEquals(before, exchange);
+
+        after = before.snapshot();
+        after.setParticipants(null);
+        delta = ExchangeDelta.compare(before, after);
+        exchange = before.snapshot();
+        delta.redo(exchange);
+        assertNull(exchange.getParticipants());
+        delta.undo(exchange);
+        assertEquals(before, exchange);
+    }
+
+    /** Test that the estimated size follows the size of the edit, not the size of the exchange. */
+    @Test public void testEstimatedSize() {
+        Exchange small = createExchange(10);
+        Exchange smallAfter = small.snapshot();
+        smallAfter.replaceParticipant(new Participant(5L));
+
+        Exchange large = createExchange(1000);
+        Exchange largeAfter = large.snapshot();
+        largeAfter.replaceParticipant(new Participant(5L));
+
+        long smallSize = ExchangeDelta.compare(small, smallAfter).getEstimatedSize();
+        long largeSize = ExchangeDelta.compare(large, largeAfter).getEstimatedSize();
+        assertTrue(smallSize > 0);
+        assertEquals(smallSize, largeSize);
+    }
+
+    /** Test estimateSize() for a whole exchange, which follows the size of the exchange. */
+    @Test public void testEstimateSize() {
+        long emptySize = ExchangeDelta.estimateSize(new Exchange());
+        long smallSize = ExchangeDelta.estimateSize(createExchange(10));
+        long largeSize = ExchangeDelta.estimateSize(createExchange(1000));
+        assertTrue(emptySize >= 0);
+        assertTrue(smallSize > emptySize);
+        assertTrue(largeSize > 50 * smallSize);
+    }
+
+    /** Create an exchange with some participants, where participant 1 conflicts with participant 2. */
+    private static Exchange createExchange(int participants) {
+        Exchange exchange = new Exchange();
+        exchange.setId(1L);
+        exchange.setName("name");
+        exchange.getOrganizer().setName("organizer");
+
+        for (long id = 1; id <= participants; id++) {
+            Participant participant = new Participant(id);
+            participant.setName("participant" + id);
+            participant.setEmailAddress("participant" + id + "@example.com");
+            exchange.getParticipants().add(participant);
+        }
+
+        exchange.getParticipants().get(0).addConflict(2L);
+        exchange.clearChanges();
+        return exchange;
+    }
+
+}
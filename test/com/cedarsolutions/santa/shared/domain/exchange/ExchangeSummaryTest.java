@@ -0,0 +1,220 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.shared.domain.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for ExchangeSummary.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+@SuppressWarnings("unlikely-arg-type")
+public class ExchangeSummaryTest {
+
+    /** Test the constructors. */
+    @Test public void testConstructors() {
+        ExchangeSummary summary = new ExchangeSummary();
+        assertNotNull(summary);
+        assertNull(summary.getId());
+        assertNull(summary.getUserId());
+        assertNull(summary.getName());
+        assertNull(summary.getExchangeState());
+        assertNull(summary.getDateAndTime());
+        assertEquals(0, summary.getParticipantCount());
+        assertNull(summary.getLastModified());
+
+        summary = new ExchangeSummary((Exchange) null);
+        assertNull(summary.getId());
+        assertEquals(0, summary.getParticipantCount());
+
+        summary = new ExchangeSummary((ExchangeSummary) null);
+        assertNull(summary.getId());
+        assertEquals(0, summary.getParticipantCount());
+
+        Exchange exchange = new Exchange();
+        exchange.setId(12L);
+        exchange.setUserId("user");
+        exchange.setName("name");
+        exchange.setExchangeState(ExchangeState.STARTED);
+        exchange.setDateAndTime("dateAndTime");
+        exchange.getParticipants().add(new Participant(1L, "p1", "p1n", "p1@example.com"));
+        exchange.getParticipants().add(new Participant(2L, "p2", "p2n", "p2@example.com"));
+
+        summary = new ExchangeSummary(exchange);
+        assertEquals(new Long(12L), summary.getId());
+        assertEquals("user", summary.getUserId());
+        assertEquals("name", summary.getName());
+        assertEquals(ExchangeState.STARTED, summary.getExchangeState());
+        assertEquals("dateAndTime", summary.getDateAndTime());
+        assertEquals(2, summary.getParticipantCount());
+        assertNull(summary.getLastModified());
+
+        summary = createSummary();
+        ExchangeSummary copy = new ExchangeSummary(summary);
+        assertEquals(summary, copy);
+    }
+
+    /** Test the getters and setters. */
+    @Test public void testGettersSetters() {
+        ExchangeSummary summary = new ExchangeSummary();
+
+        summary.setId(1L);
+        assertEquals(new Long(1L), summary.getId());
+
+        summary.setUserId("2");
+        assertEquals("2", summary.getUserId());
+
+        summary.setName("3");
+        assertEquals("3", summary.getName());
+
+        summary.setExchangeState(ExchangeState.STARTED);
+        assertEquals(ExchangeState.STARTED, summary.getExchangeState());
+
+        summary.setDateAndTime("5");
+        assertEquals("5", summary.getDateAndTime());
+
+        summary.setParticipantCount(6);
+        assertEquals(6, summary.getParticipantCount());
+
+        Date lastModified = new Date(7L);
+        summary.setLastModified(lastModified);
+        assertEquals(lastModified, summary.getLastModified());
+    }
+
+    /** Test equals(). */
+    @Test public void testEquals() {
+        ExchangeSummary summary1;
+        ExchangeSummary summary2;
+
+        summary1 = createSummary();
+        summary2 = createSummary();
+        assertTrue(summary1.equals(summary2));
+        assertTrue(summary2.equals(summary1));
+
+        try {
+            summary1 = createSummary();
+            summary2 = null;
+            summary1.equals(summary2);
+            fail("Expected NullPointerException");
+        } catch (NullPointerException e) { }
+
+        try {
+            summary1 = createSummary();
+            summary1.equals("blech");
+            fail("Expected ClassCastException");
+        } catch (ClassCastException e) { }
+
+        summary1 = createSummary();
+        summary2 = createSummary();
+        summary2.setId(2L);
+        assertFalse(summary1.equals(summary2));
+        assertFalse(summary2.equals(summary1));
+
+        summary1 = createSummary();
+        summary2 = createSummary();
+        summary2.setUserId("X");
+        assertFalse(summary1.equals(summary2));
+        assertFalse(summary2.equals(summary1));
+
+        summary1 = createSummary();
+        summary2 = createSummary();
+        summary2.setName("X");
+        assertFalse(summary1.equals(summary2));
+        assertFalse(summary2.equals(summary1));
+
+        summary1 = createSummary();
+        summary2 = createSummary();
+        summary2.setExchangeState(ExchangeState.NEW);
+        assertFalse(summary1.equals(summary2));
+        assertFalse(summary2.equals(summary1));
+
+        summary1 = createSummary();
+        summary2 = createSummary();
+        summary2.setDateAndTime("X");
+        assertFalse(summary1.equals(summary2));
+        assertFalse(summary2.equals(summary1));
+
+        summary1 = createSummary();
+        summary2 = createSummary();
+        summary2.setParticipantCount(99);
+        assertFalse(summary1.equals(summary2));
+        assertFalse(summary2.equals(summary1));
+
+        summary1 = createSummary();
+        summary2 = createSummary();
+        summary2.setLastModified(new Date(99L));
+        assertFalse(summary1.equals(summary2));
+        assertFalse(summary2.equals(summary1));
+    }
+
+    /** Test hashCode(). */
+    @Test public void testHashCode() {
+        ExchangeSummary summary1 = createSummary();
+        summary1.setName("X");
+
+        ExchangeSummary summary2 = createSummary();
+        summary2.setUserId("X");
+
+        ExchangeSummary summary3 = createSummary();
+        summary3.setParticipantCount(99);
+
+        ExchangeSummary summary4 = createSummary();
+        summary4.setName("X"); // same as summary1
+
+        Map<ExchangeSummary, String> map = new HashMap<ExchangeSummary, String>();
+        map.put(summary1, "ONE");
+        map.put(summary2, "TWO");
+        map.put(summary3, "THREE");
+
+        assertEquals("ONE", map.get(summary1));
+        assertEquals("TWO", map.get(summary2));
+        assertEquals("THREE", map.get(summary3));
+        assertEquals("ONE", map.get(summary4));
+    }
+
+    /** Create an ExchangeSummary for testing. */
+    private static ExchangeSummary createSummary() {
+        ExchangeSummary summary = new ExchangeSummary();
+
+        summary.setId(1L);
+        summary.setUserId("user");
+        summary.setName("name");
+        summary.setExchangeState(ExchangeState.STARTED);
+        summary.setDateAndTime("dateAndTime");
+        summary.setParticipantCount(4);
+        summary.setLastModified(new Date(5L));
+
+        return summary;
+    }
+}
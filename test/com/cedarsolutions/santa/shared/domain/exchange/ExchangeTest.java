@@ -31,7 +31,11 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.Test;
@@ -61,6 +65,11 @@ public class ExchangeTest {
         assertNotNull(exchange.getTemplateOverrides());
         assertTrue(exchange.getParticipants().isEmpty());
         assertNull(exchange.getAssignments());
+        assertNull(exchange.getAssignmentSeed());
+        assertTrue(exchange.getPriorExchangeIds().isEmpty());
+        assertNull(exchange.getPriorPairingMode());
+        assertTrue(exchange.getConflictGroups().isEmpty());
+        assertNull(exchange.getGiftsPerParticipant());
 
         Exchange copy = new Exchange(null);
         assertNotNull(copy);
@@ -76,6 +85,11 @@ public class ExchangeTest {
         assertNotNull(copy.getTemplateOverrides());
         assertTrue(copy.getParticipants().isEmpty());
         assertNull(copy.getAssignments());
+        assertNull(copy.getAssignmentSeed());
+        assertTrue(copy.getPriorExchangeIds().isEmpty());
+        assertNull(copy.getPriorPairingMode());
+        assertTrue(copy.getConflictGroups().isEmpty());
+        assertNull(copy.getGiftsPerParticipant());
 
         exchange.setId(1L);
         exchange.setUserId("user");
@@ -110,6 +124,12 @@ public class ExchangeTest {
         exchange.getParticipants().add(new Participant(1L));
         exchange.setAssignments(new AssignmentSet());
         exchange.getAssignments().add(new Assignment(new Participant(2L), new Participant(3L)));
+        exchange.setAssignmentSeed(99L);
+        exchange.getPriorExchangeIds().add(7L);
+        exchange.setPriorPairingMode(PriorPairingMode.AVOID);
+        exchange.getConflictGroups().add(new ConflictGroup("group"));
+        exchange.getConflictGroups().get(0).getParticipantIds().add(1L);
+        exchange.setGiftsPerParticipant(2);
 
         copy = new Exchange(exchange);
         assertEquals(exchange, copy);
@@ -117,6 +137,43 @@ public class ExchangeTest {
         assertNotSame(exchange.getTemplateOverrides(), copy.getTemplateOverrides());
         assertNotSame(exchange.getParticipants(), copy.getParticipants());
         assertNotSame(exchange.getAssignments(), copy.getAssignments());
+        assertEquals(new Long(99), copy.getAssignmentSeed());
+        assertNotSame(exchange.getPriorExchangeIds(), copy.getPriorExchangeIds());
+        assertEquals(PriorPairingMode.AVOID, copy.getPriorPairingMode());
+        assertNotSame(exchange.getConflictGroups(), copy.getConflictGroups());
+        assertNotSame(exchange.getConflictGroups().get(0), copy.getConflictGroups().get(0));
+        assertEquals(new Integer(2), copy.getGiftsPerParticipant());
+
+        exchange.setConflictGroups(null);
+        copy = new Exchange(exchange);
+        assertNull(copy.getConflictGroups());
+    }
+
+    /** Test copyHeader(). */
+    @Test public void testCopyHeader() {
+        Exchange source = new Exchange();
+        source.setId(1L);
+        source.setName("name");
+        source.getOrganizer().setName("organizer");
+        source.getParticipants().add(new Participant(1L));
+        source.getParticipants().add(new Participant(2L));
+        source.setAssignments(new AssignmentSet());
+        source.getAssignments().add(new Assignment(source.getParticipants().get(0), source.getParticipants().get(1)));
+        source.getPriorExchangeIds().add(4L);
+        source.getConflictGroups().add(new ConflictGroup("group"));
+
+        Exchange header = source.copyHeader();
+        assertTrue(header.getParticipants().isEmpty());
+        assertNull(header.getAssignments());
+        assertEquals(2, source.getParticipants().size());
+        assertEquals(1, source.getAssignments().size());
+
+        header.setParticipants(source.getParticipants());
+        header.setAssignments(source.getAssignments());
+        assertEquals(source, header);
+        assertNotSame(source.getOrganizer(), header.getOrganizer());
+        assertNotSame(source.getPriorExchangeIds(), header.getPriorExchangeIds());
+        assertNotSame(source.getConflictGroups().get(0), header.getConflictGroups().get(0));
     }
 
     /** Test the getters and setters. */
@@ -165,6 +222,185 @@ public class ExchangeTest {
         AssignmentSet assignments = new AssignmentSet();
         exchange.setAssignments(assignments);
         assertSame(assignments, exchange.getAssignments());
+
+        exchange.setAssignmentSeed(5L);
+        assertEquals(new Long(5), exchange.getAssignmentSeed());
+
+        List<Long> priorExchangeIds = new ArrayList<Long>();
+        exchange.setPriorExchangeIds(priorExchangeIds);
+        assertSame(priorExchangeIds, exchange.getPriorExchangeIds());
+
+        exchange.setPriorPairingMode(PriorPairingMode.FORBID);
+        assertEquals(PriorPairingMode.FORBID, exchange.getPriorPairingMode());
+
+        List<ConflictGroup> conflictGroups = new ArrayList<ConflictGroup>();
+        exchange.setConflictGroups(conflictGroups);
+        assertSame(conflictGroups, exchange.getConflictGroups());
+
+        exchange.setGiftsPerParticipant(3);
+        assertEquals(new Integer(3), exchange.getGiftsPerParticipant());
+    }
+
+    /** Test snapshot() and refreshShared(). */
+    @Test public void testSnapshot() {
+        Exchange source = new Exchange();
+        source.setId(1L);
+        source.setName("name");
+        source.getOrganizer().setName("organizer");
+        source.getParticipants().add(new Participant(1L));
+        source.getParticipants().add(new Participant(2L));
+        source.getParticipants().add(new Participant(3L));
+        source.getParticipants().get(0).addConflict(2L);
+        source.setAssignments(new AssignmentSet());
+        source.getAssignments().add(new Assignment(source.getParticipants().get(0), source.getParticipants().get(2)));
+        source.getPriorExchangeIds().add(4L);
+        ConflictGroup group = new ConflictGroup("group");
+        group.getParticipantIds().add(2L);
+        group.getParticipantIds().add(3L);
+        source.getConflictGroups().add(group);
+        source.setGiftsPerParticipant(1);
+
+        Exchange snapshot = source.snapshot();
+        assertEquals(source, snapshot);
+        assertNotSame(source, snapshot);
+        assertSame(source.getOrganizer(), snapshot.getOrganizer());
+        assertSame(source.getTemplateOverrides(), snapshot.getTemplateOverrides());
+        assertNotSame(source.getParticipants(), snapshot.getParticipants());
+        assertSame(source.getParticipants().get(0), snapshot.getParticipants().get(0));
+        assertNotSame(source.getAssignments(), snapshot.getAssignments());
+        assertSame(source.getAssignments().get(0), snapshot.getAssignments().get(0));
+        assertNotSame(source.getPriorExchangeIds(), snapshot.getPriorExchangeIds());
+        assertNotSame(source.getConflictGroups(), snapshot.getConflictGroups());
+        assertSame(group, snapshot.getConflictGroups().get(0));
+
+        // changes made through the exchange's own methods copy on write, so the source is untouched
+        Participant participant1 = source.getParticipants().get(0);
+        assertTrue(snapshot.removeParticipant(new Participant(2L)));
+        assertTrue(snapshot.replaceParticipant(new Participant(3L)));
+        assertEquals(3, source.getParticipants().size());
+        assertSame(participant1, source.getParticipants().get(0));
+        assertEquals(1, participant1.getConflictIds().size());
+        assertEquals(2, group.getParticipantIds().size());
+        assertTrue(snapshot.getParticipants().get(0).getConflictIds().isEmpty());
+        assertEquals(1, snapshot.getConflictGroups().get(0).getParticipantIds().size());
+        assertFalse(source.equals(snapshot));
+
+        snapshot.refreshShared(source);
+        assertEquals(source, snapshot);
+
+        snapshot.refreshShared(null);
+        assertTrue(snapshot.getParticipants().isEmpty());
+        assertNull(snapshot.getAssignments());
+
+        source.setParticipants(null);
+        source.setAssignments(null);
+        source.setPriorExchangeIds(null);
+        source.setConflictGroups(null);
+        snapshot = source.snapshot();
+        assertNull(snapshot.getParticipants());
+        assertNull(snapshot.getAssignments());
+        assertNull(snapshot.getPriorExchangeIds());
+        assertNull(snapshot.getConflictGroups());
+    }
+
+    /** Test hasChanges(), getChangedParticipantIds() and clearChanges(). */
+    @Test public void testChangeTracking() {
+        Exchange exchange = new Exchange();
+        assertFalse(exchange.hasChanges());
+        assertTrue(exchange.getChangedParticipantIds().isEmpty());
+
+        exchange.setName("name");
+        assertTrue(exchange.hasChanges());
+        assertTrue(exchange.getChangedParticipantIds().isEmpty());
+
+        exchange.clearChanges();
+        exchange.setName("name");
+        exchange.setOrganizer(new Organizer(exchange.getOrganizer()));
+        exchange.setParticipants(exchange.getParticipants());
+        assertFalse(exchange.hasChanges());
+
+        exchange.setConflictGroups(new ArrayList<ConflictGroup>());
+        assertTrue(exchange.hasChanges());
+
+        exchange.clearChanges();
+        exchange.getParticipants().add(new Participant(1L));
+        exchange.getParticipants().add(new Participant(2L));
+        exchange.getParticipants().add(new Participant(3L));
+        exchange.getParticipants().get(0).addConflict(2L);
+        exchange.getParticipants().get(2).addConflict(3L);
+        assertTrue(exchange.hasChanges());
+        assertEquals(3, exchange.getChangedParticipantIds().size());
+
+        exchange.clearChanges();
+        assertFalse(exchange.hasChanges());
+        assertTrue(exchange.getChangedParticipantIds().isEmpty());
+
+        Exchange snapshot = exchange.snapshot();
+        Exchange copy = new Exchange(exchange);
+        assertTrue(exchange.removeParticipant(new Participant(2L)));
+        assertTrue(exchange.hasChanges());
+        assertEquals(new HashSet<Long>(Arrays.asList(1L, 2L)), exchange.getChangedParticipantIds());  // 1 lost a conflict
+        assertFalse(snapshot.hasChanges());
+        assertFalse(copy.hasChanges());
+
+        snapshot.refreshShared(exchange);
+        assertEquals(exchange.getChangedParticipantIds(), snapshot.getChangedParticipantIds());
+        copy.refresh(exchange);
+        assertEquals(exchange.getChangedParticipantIds(), copy.getChangedParticipantIds());
+
+        exchange.clearChanges();
+        exchange.getConflictGroups().add(new ConflictGroup("group"));
+        exchange.getConflictGroups().get(0).getParticipantIds().add(3L);
+        assertFalse(exchange.hasChanges());  // changed in place, so not tracked
+        assertTrue(exchange.removeParticipant(new Participant(3L)));
+        assertTrue(exchange.hasChanges());
+
+        exchange.setParticipants(null);
+        exchange.clearChanges();
+        assertFalse(exchange.hasChanges());
+        assertTrue(exchange.getChangedParticipantIds().isEmpty());
+    }
+
+    /** Test isUnchangedFrom(). */
+    @Test public void testIsUnchangedFrom() {
+        Exchange before = new Exchange();
+        before.setName("name");
+        for (long id = 1; id <= 4; id++) {
+            before.getParticipants().add(new Participant(id, "p" + id, "p" + id + "n", "p" + id + "@example.com", null));
+        }
+
+        before.clearChanges();
+        Exchange after = before.snapshot();
+        assertTrue(after.isUnchangedFrom(before));
+
+        after.setName("other");
+        assertFalse(after.isUnchangedFrom(before));
+        after.setName("name");
+        assertTrue(after.hasChanges());
+        assertTrue(after.isUnchangedFrom(before));
+
+        after.setConflictGroups(new ArrayList<ConflictGroup>());
+        assertTrue(after.isUnchangedFrom(before));
+
+        Participant replacement = new Participant(before.getParticipants().get(2));
+        after.replaceParticipant(replacement);
+        assertTrue(after.isUnchangedFrom(before));
+        replacement = new Participant(replacement);
+        replacement.setName("replacement");
+        after.replaceParticipant(replacement);
+        assertFalse(after.isUnchangedFrom(before));
+        after.replaceParticipant(before.getParticipants().get(2));
+        assertTrue(after.isUnchangedFrom(before));
+
+        after.getParticipants().add(after.getParticipants().remove(0));
+        assertFalse(after.isUnchangedFrom(before));
+
+        after = before.snapshot();
+        after.setParticipants(new ParticipantSet(before.getParticipants()));
+        after.getParticipants().clearChanges();
+        assertTrue(after.isUnchangedFrom(before));
+        after.getParticipants().get(3).setName("changed in place");
+        assertFalse(after.isUnchangedFrom(before));
     }
 
     /** Test getNextParticipantId(). */
@@ -301,6 +537,202 @@ public class ExchangeTest {
         assertFalse(exchange.removeParticipant(participant3));
     }
 
+    /** Test that removeParticipant() also removes the participant from conflict groups. */
+    @Test public void testRemoveParticipantConflictGroups() {
+        Exchange exchange = new Exchange();
+        exchange.getParticipants().add(new Participant(1L));
+        exchange.getParticipants().add(new Participant(2L));
+        exchange.getParticipants().add(new Participant(3L));
+
+        ConflictGroup group1 = new ConflictGroup("group1");
+        group1.getParticipantIds().add(1L);
+        group1.getParticipantIds().add(2L);
+        exchange.getConflictGroups().add(group1);
+
+        ConflictGroup group2 = new ConflictGroup("group2");
+        group2.setParticipantIds(null);
+        exchange.getConflictGroups().add(group2);
+
+        assertTrue(exchange.removeParticipant(new Participant(2L)));
+        assertEquals(1, exchange.getConflictGroups().get(0).getParticipantIds().size());
+        assertEquals(new Long(1), exchange.getConflictGroups().get(0).getParticipantIds().get(0));
+        assertNull(exchange.getConflictGroups().get(1).getParticipantIds());
+        assertEquals(2, group1.getParticipantIds().size());  // copy on write, so the original is untouched
+        assertSame(group2, exchange.getConflictGroups().get(1));
+
+        assertTrue(exchange.removeParticipant(new Participant(3L)));
+        assertEquals(1, exchange.getConflictGroups().get(0).getParticipantIds().size());
+
+        exchange.setConflictGroups(null);
+        assertTrue(exchange.removeParticipant(new Participant(1L)));
+    }
+
+    /** Test that removeParticipant() also removes the participant from other participants' conflicts. */
+    @Test public void testRemoveParticipantConflicts() {
+        Exchange exchange = new Exchange();
+        exchange.getParticipants().add(new Participant(1L));
+        exchange.getParticipants().add(new Participant(2L));
+        exchange.getParticipants().add(new Participant(3L));
+        exchange.getParticipants().get(0).addConflict(2L);
+        exchange.getParticipants().get(0).addConflict(3L);
+        exchange.getParticipants().get(2).setConflictIds(null);
+
+        assertTrue(exchange.removeParticipant(new Participant(2L)));
+        assertEquals(1, exchange.getParticipants().get(0).getConflictIds().size());
+        assertEquals(new Long(3), exchange.getParticipants().get(0).getConflictIds().get(0));
+        assertNull(exchange.getParticipants().get(1).getConflictIds());
+    }
+
+    /** Test removeParticipants(). */
+    @Test public void testRemoveParticipants() {
+        Exchange exchange = new Exchange();
+        exchange.getParticipants().add(new Participant(1L));
+        exchange.getParticipants().add(new Participant(2L));
+        exchange.getParticipants().add(new Participant(3L));
+        exchange.getParticipants().add(new Participant(4L));
+        exchange.getParticipants().get(0).addConflict(2L);
+        exchange.getParticipants().get(0).addConflict(4L);
+        exchange.getParticipants().get(0).addConflict(3L);
+        ConflictGroup group = new ConflictGroup("group");
+        group.getParticipantIds().addAll(Arrays.asList(1L, 2L, 3L));
+        exchange.getConflictGroups().add(group);
+
+        ParticipantSet selected = new ParticipantSet();
+        assertEquals(0, exchange.removeParticipants(null));
+        assertEquals(0, exchange.removeParticipants(selected));
+
+        selected.add(new Participant(2L));
+        selected.add(new Participant(4L));
+        selected.add(new Participant(99L));
+        selected.add(new Participant());
+        assertEquals(2, exchange.removeParticipants(selected));
+        assertEquals(2, exchange.getParticipants().size());
+        assertEquals(new Long(1), exchange.getParticipants().get(0).getId());
+        assertEquals(new Long(3), exchange.getParticipants().get(1).getId());
+        assertEquals(Arrays.asList(3L), exchange.getParticipants().get(0).getConflictIds());
+        assertEquals(Arrays.asList(1L, 3L), exchange.getConflictGroups().get(0).getParticipantIds());
+        assertEquals(4, exchange.getNextParticipantId());
+
+        exchange.setParticipants(null);
+        assertEquals(0, exchange.removeParticipants(selected));
+    }
+
+    /** Test applyChanges(). */
+    @Test public void testApplyChanges() {
+        Exchange exchange = new Exchange();
+        exchange.setId(12L);
+        exchange.setUserId("me");
+        exchange.setName("before");
+        exchange.setAssignmentSeed(42L);
+        exchange.setAssignments(new AssignmentSet());
+        exchange.getParticipants().add(new Participant(1L));
+        exchange.getParticipants().add(new Participant(2L));
+        exchange.getParticipants().add(new Participant(3L));
+        exchange.getParticipants().get(0).addConflict(2L);
+        exchange.clearChanges();
+
+        Exchange header = new Exchange();
+        header.setId(99L);
+        header.setUserId("other");
+        header.setName("after");
+        header.setExchangeState(ExchangeState.STARTED);
+        header.setGiftsPerParticipant(2);
+
+        Participant replaced = new Participant(1L);
+        replaced.setName("replaced");
+        Participant added = new Participant(4L);
+        List<Participant> participants = Arrays.asList(replaced, added);
+        List<Long> removedIds = Arrays.asList(2L, 99L, null);
+
+        exchange.applyChanges(header, participants, removedIds);
+        assertEquals(new Long(12L), exchange.getId());
+        assertEquals("me", exchange.getUserId());
+        assertEquals("after", exchange.getName());
+        assertEquals(ExchangeState.STARTED, exchange.getExchangeState());
+        assertEquals(new Integer(2), exchange.getGiftsPerParticipant());
+        assertEquals(new Long(42L), exchange.getAssignmentSeed());
+        assertNotNull(exchange.getAssignments());
+        assertEquals(3, exchange.getParticipants().size());
+        assertSame(replaced, exchange.getParticipants().get(0));
+        assertEquals(new Long(3L), exchange.getParticipants().get(1).getId());
+        assertSame(added, exchange.getParticipants().get(2));
+        assertTrue(exchange.hasChanges());
+
+        // applying the same page again changes nothing
+        exchange.applyChanges(header, participants, removedIds);
+        assertEquals(3, exchange.getParticipants().size());
+        assertSame(replaced, exchange.getParticipants().get(0));
+        assertSame(added, exchange.getParticipants().get(2));
+
+        exchange.setParticipants(null);
+        exchange.applyChanges(header, null, null);
+        assertTrue(exchange.getParticipants().isEmpty());
+    }
+
+    /** Test getConflicts(). */
+    @Test public void testGetConflicts() {
+        Participant participant1 = new Participant(1L);
+        Participant participant2 = new Participant(2L);
+        Participant participant3 = new Participant(3L);
+        participant1.addConflict(3L);
+        participant1.addConflict(99L);
+        participant1.addConflict(2L);
+
+        Exchange exchange = new Exchange();
+        exchange.getParticipants().add(participant1);
+        exchange.getParticipants().add(participant2);
+        exchange.getParticipants().add(participant3);
+
+        ParticipantSet conflicts = exchange.getConflicts(participant1);
+        assertEquals(2, conflicts.size());
+        assertSame(participant3, conflicts.get(0));
+        assertSame(participant2, conflicts.get(1));
+        assertTrue(exchange.getConflicts(participant2).isEmpty());
+
+        participant2.setConflictIds(null);
+        assertTrue(exchange.getConflicts(participant2).isEmpty());
+
+        exchange.setParticipants(null);
+        assertTrue(exchange.getConflicts(participant1).isEmpty());
+    }
+
+    /** Test upgradeConflicts(). */
+    @Test public void testUpgradeConflicts() {
+        Exchange exchange = new Exchange();
+        assertFalse(exchange.upgradeConflicts());
+
+        Participant participant1 = new Participant(1L);
+        Participant participant2 = new Participant(2L);
+        exchange.getParticipants().add(participant1);
+        exchange.getParticipants().add(participant2);
+        assertFalse(exchange.upgradeConflicts());
+
+        participant1.setLegacyConflicts(new ParticipantSet());
+        participant1.getLegacyConflicts().add(new Participant(2L));
+        assertTrue(exchange.upgradeConflicts());
+        assertNull(participant1.getLegacyConflicts());
+        assertEquals(1, participant1.getConflictIds().size());
+        assertEquals(new Long(2), participant1.getConflictIds().get(0));
+
+        Participant giver = new Participant(1L);
+        giver.setLegacyConflicts(new ParticipantSet());
+        giver.getLegacyConflicts().add(new Participant(2L));
+        Participant receiver = new Participant(2L);
+        receiver.setLegacyConflicts(new ParticipantSet());
+        exchange.setAssignments(new AssignmentSet());
+        exchange.getAssignments().add(new Assignment(giver, receiver));
+        exchange.getAssignments().add(new Assignment(null, null));
+        assertTrue(exchange.upgradeConflicts());
+        assertNull(giver.getLegacyConflicts());
+        assertEquals(1, giver.getConflictIds().size());
+        assertNull(receiver.getLegacyConflicts());
+        assertFalse(exchange.upgradeConflicts());
+
+        exchange.setParticipants(null);
+        exchange.setAssignments(null);
+        assertFalse(exchange.upgradeConflicts());
+    }
+
     /** Test getParticipantById(). */
     @Test public void testGetParticipantById() {
         Participant participant1 = new Participant();
@@ -440,6 +872,36 @@ public class ExchangeTest {
         exchange2.setAssignments(null);
         assertFalse(exchange1.equals(exchange2));
         assertFalse(exchange2.equals(exchange1));
+
+        exchange1 = createExchange();
+        exchange2 = createExchange();
+        exchange2.setAssignmentSeed(null);
+        assertFalse(exchange1.equals(exchange2));
+        assertFalse(exchange2.equals(exchange1));
+
+        exchange1 = createExchange();
+        exchange2 = createExchange();
+        exchange2.getPriorExchangeIds().add(99L);
+        assertFalse(exchange1.equals(exchange2));
+        assertFalse(exchange2.equals(exchange1));
+
+        exchange1 = createExchange();
+        exchange2 = createExchange();
+        exchange2.setPriorPairingMode(PriorPairingMode.FORBID);
+        assertFalse(exchange1.equals(exchange2));
+        assertFalse(exchange2.equals(exchange1));
+
+        exchange1 = createExchange();
+        exchange2 = createExchange();
+        exchange2.getConflictGroups().get(0).getParticipantIds().add(99L);
+        assertFalse(exchange1.equals(exchange2));
+        assertFalse(exchange2.equals(exchange1));
+
+        exchange1 = createExchange();
+        exchange2 = createExchange();
+        exchange2.setGiftsPerParticipant(null);
+        assertFalse(exchange1.equals(exchange2));
+        assertFalse(exchange2.equals(exchange1));
    }
 
     /** Test hashCode(). */
@@ -484,6 +946,21 @@ public class ExchangeTest {
         Exchange exchange13 = createExchange();
         exchange13.setId(0L); // same as exchange1
 
+        Exchange exchange14 = createExchange();
+        exchange14.setAssignmentSeed(null);
+
+        Exchange exchange15 = createExchange();
+        exchange15.getPriorExchangeIds().add(99L);
+
+        Exchange exchange16 = createExchange();
+        exchange16.setPriorPairingMode(PriorPairingMode.FORBID);
+
+        Exchange exchange17 = createExchange();
+        exchange17.getConflictGroups().clear();
+
+        Exchange exchange18 = createExchange();
+        exchange18.setGiftsPerParticipant(null);
+
         Map<Exchange, String> map = new HashMap<Exchange, String>();
         map.put(exchange1, "ONE");
         map.put(exchange2, "TWO");
@@ -497,6 +974,11 @@ public class ExchangeTest {
         map.put(exchange10, "TEN");
         map.put(exchange11, "ELEVEN");
         map.put(exchange12, "TWELVE");
+        map.put(exchange14, "FOURTEEN");
+        map.put(exchange15, "FIFTEEN");
+        map.put(exchange16, "SIXTEEN");
+        map.put(exchange17, "SEVENTEEN");
+        map.put(exchange18, "EIGHTEEN");
 
         assertEquals("ONE", map.get(exchange1));
         assertEquals("TWO", map.get(exchange2));
@@ -511,6 +993,11 @@ public class ExchangeTest {
         assertEquals("ELEVEN", map.get(exchange11));
         assertEquals("TWELVE", map.get(exchange12));
         assertEquals("ONE", map.get(exchange13));
+        assertEquals("FOURTEEN", map.get(exchange14));
+        assertEquals("FIFTEEN", map.get(exchange15));
+        assertEquals("SIXTEEN", map.get(exchange16));
+        assertEquals("SEVENTEEN", map.get(exchange17));
+        assertEquals("EIGHTEEN", map.get(exchange18));
     }
 
     /** Create a Exchange for testing. */
@@ -526,8 +1013,8 @@ public class ExchangeTest {
         overrides.setTemplateGroup("group");
         overrides.setTemplateGroup("name");
 
-        ParticipantSet conflicts = new ParticipantSet();
-        conflicts.add(new Participant(3L));
+        List<Long> conflicts = new ArrayList<Long>();
+        conflicts.add(3L);
 
         Participant participant1 = new Participant(1L, "p1", "p1n", "p1@example.com", conflicts);
         Participant participant2 = new Participant(1L, "p2", "p2n", "p2@example.com", null);
@@ -556,6 +1043,15 @@ public class ExchangeTest {
         exchange.setTemplateOverrides(overrides);
         exchange.setParticipants(participants);
         exchange.setAssignments(assignments);
+        exchange.setAssignmentSeed(42L);
+        exchange.getPriorExchangeIds().add(7L);
+        exchange.setPriorPairingMode(PriorPairingMode.AVOID);
+
+        ConflictGroup group = new ConflictGroup("group");
+        group.getParticipantIds().add(1L);
+        group.getParticipantIds().add(2L);
+        exchange.getConflictGroups().add(group);
+        exchange.setGiftsPerParticipant(2);
 
         return exchange;
     }
@@ -0,0 +1,152 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.shared.domain.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for FeasibilityResult.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+@SuppressWarnings("unlikely-arg-type")
+public class FeasibilityResultTest {
+
+    /** Test the constructor. */
+    @Test public void testConstructor() {
+        FeasibilityResult result = new FeasibilityResult();
+        assertFalse(result.isFeasible());
+        assertFalse(result.isBlockingGivers());
+        assertNotNull(result.getBlockingParticipants());
+        assertTrue(result.getBlockingParticipants().isEmpty());
+        assertNotNull(result.getPartners());
+        assertTrue(result.getPartners().isEmpty());
+    }
+
+    /** Test the getters and setters. */
+    @Test public void testGettersSetters() {
+        FeasibilityResult result = new FeasibilityResult();
+
+        result.setFeasible(true);
+        assertTrue(result.isFeasible());
+
+        result.setBlockingGivers(true);
+        assertTrue(result.isBlockingGivers());
+
+        ParticipantSet blockingParticipants = new ParticipantSet();
+        result.setBlockingParticipants(blockingParticipants);
+        assertSame(blockingParticipants, result.getBlockingParticipants());
+
+        ParticipantSet partners = new ParticipantSet();
+        result.setPartners(partners);
+        assertSame(partners, result.getPartners());
+    }
+
+    /** Test equals(). */
+    @Test public void testEquals() {
+        FeasibilityResult result1;
+        FeasibilityResult result2;
+
+        result1 = createResult();
+        result2 = createResult();
+        assertTrue(result1.equals(result2));
+        assertTrue(result2.equals(result1));
+
+        try {
+            result1 = createResult();
+            result2 = null;
+            result1.equals(result2);
+            fail("Expected NullPointerException");
+        } catch (NullPointerException e) { }
+
+        try {
+            result1 = createResult();
+            result1.equals("blech");
+            fail("Expected ClassCastException");
+        } catch (ClassCastException e) { }
+
+        result1 = createResult();
+        result2 = createResult();
+        result2.setFeasible(true);
+        assertFalse(result1.equals(result2));
+        assertFalse(result2.equals(result1));
+
+        result1 = createResult();
+        result2 = createResult();
+        result2.setBlockingGivers(false);
+        assertFalse(result1.equals(result2));
+        assertFalse(result2.equals(result1));
+
+        result1 = createResult();
+        result2 = createResult();
+        result2.getBlockingParticipants().add(new Participant(5L));
+        assertFalse(result1.equals(result2));
+        assertFalse(result2.equals(result1));
+
+        result1 = createResult();
+        result2 = createResult();
+        result2.getPartners().add(new Participant(5L));
+        assertFalse(result1.equals(result2));
+        assertFalse(result2.equals(result1));
+    }
+
+    /** Test hashCode(). */
+    @Test public void testHashCode() {
+        FeasibilityResult result1 = createResult();
+
+        FeasibilityResult result2 = createResult();
+        result2.setFeasible(true);
+
+        FeasibilityResult result3 = createResult();  // same as result1
+
+        Map<FeasibilityResult, String> map = new HashMap<FeasibilityResult, String>();
+        map.put(result1, "ONE");
+        map.put(result2, "TWO");
+
+        assertEquals("ONE", map.get(result1));
+        assertEquals("TWO", map.get(result2));
+        assertEquals("ONE", map.get(result3));
+    }
+
+    /** Create a FeasibilityResult for testing. */
+    private static FeasibilityResult createResult() {
+        FeasibilityResult result = new FeasibilityResult();
+
+        result.setFeasible(false);
+        result.setBlockingGivers(true);
+        result.getBlockingParticipants().add(new Participant(1L));
+        result.getBlockingParticipants().add(new Participant(2L));
+        result.getPartners().add(new Participant(3L));
+
+        return result;
+    }
+}
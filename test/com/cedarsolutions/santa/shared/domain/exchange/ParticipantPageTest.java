@@ -0,0 +1,187 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ *              C E D A R
+ *          S O L U T I O N S       "Software done right."
+ *           S O F T W A R E
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Copyright (c) 2013 Kenneth J. Pronovici.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0.
+ * See LICENSE for more information about the licensing terms.
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *
+ * Author   : Kenneth J. Pronovici <pronovic@ieee.org>
+ * Language : Java 6
+ * Project  : Secret Santa Exchange
+ *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package com.cedarsolutions.santa.shared.domain.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for ParticipantPage.
+ * @author Kenneth J. Pronovici <pronovic@ieee.org>
+ */
+@SuppressWarnings("unlikely-arg-type")
+public class ParticipantPageTest {
+
+    /** Test the constructors. */
+    @Test public void testConstructors() {
+        ParticipantPage page = new ParticipantPage();
+        assertNotNull(page);
+        assertNull(page.getExchangeId());
+        assertEquals(0, page.getStart());
+        assertEquals(0, page.getTotal());
+        assertTrue(page.getParticipants().isEmpty());
+
+        ParticipantSet participants = createParticipants();
+        page = new ParticipantPage(12L, 3, 10, participants);
+        assertEquals(new Long(12L), page.getExchangeId());
+        assertEquals(3, page.getStart());
+        assertEquals(10, page.getTotal());
+        assertSame(participants, page.getParticipants());
+
+        page = new ParticipantPage(12L, 3, 10, null);
+        assertTrue(page.getParticipants().isEmpty());
+    }
+
+    /** Test the getters and setters. */
+    @Test public void testGettersSetters() {
+        ParticipantPage page = new ParticipantPage();
+
+        page.setExchangeId(1L);
+        assertEquals(new Long(1L), page.getExchangeId());
+
+        page.setStart(2);
+        assertEquals(2, page.getStart());
+
+        page.setTotal(3);
+        assertEquals(3, page.getTotal());
+
+        ParticipantSet participants = createParticipants();
+        page.setParticipants(participants);
+        assertSame(participants, page.getParticipants());
+    }
+
+    /** Test getEnd() and isLastPage(). */
+    @Test public void testEndLastPage() {
+        ParticipantPage page = new ParticipantPage(12L, 0, 4, createParticipants());
+        assertEquals(2, page.getEnd());
+        assertFalse(page.isLastPage());
+
+        page = new ParticipantPage(12L, 2, 4, createParticipants());
+        assertEquals(4, page.getEnd());
+        assertTrue(page.isLastPage());
+
+        page = new ParticipantPage(12L, 4, 4, new ParticipantSet());
+        assertEquals(4, page.getEnd());
+        assertTrue(page.isLastPage());
+
+        page = new ParticipantPage(12L, 0, 4, new ParticipantSet());  // the exchange shrank
+        assertEquals(0, page.getEnd());
+        assertTrue(page.isLastPage());
+    }
+
+    /** Test equals(). */
+    @Test public void testEquals() {
+        ParticipantPage page1;
+        ParticipantPage page2;
+
+        page1 = createPage();
+        page2 = createPage();
+        assertTrue(page1.equals(page2));
+        assertTrue(page2.equals(page1));
+
+        try {
+            page1 = createPage();
+            page2 = null;
+            page1.equals(page2);
+            fail("Expected NullPointerException");
+        } catch (NullPointerException e) { }
+
+        try {
+            page1 = createPage();
+            page1.equals("blech");
+            fail("Expected ClassCastException");
+        } catch (ClassCastException e) { }
+
+        page1 = createPage();
+        page2 = createPage();
+        page2.setExchangeId(99L);
+        assertFalse(page1.equals(page2));
+        assertFalse(page2.equals(page1));
+
+        page1 = createPage();
+        page2 = createPage();
+        page2.setStart(99);
+        assertFalse(page1.equals(page2));
+        assertFalse(page2.equals(page1));
+
+        page1 = createPage();
+        page2 = createPage();
+        page2.setTotal(99);
+        assertFalse(page1.equals(page2));
+        assertFalse(page2.equals(page1));
+
+        page1 = createPage();
+        page2 = createPage();
+        page2.setParticipants(new ParticipantSet());
+        assertFalse(page1.equals(page2));
+        assertFalse(page2.equals(page1));
+    }
+
+    /** Test hashCode(). */
+    @Test public void testHashCode() {
+        ParticipantPage page1 = createPage();
+        page1.setStart(1);
+
+        ParticipantPage page2 = createPage();
+        page2.setTotal(99);
+
+        ParticipantPage page3 = createPage();
+        page3.setParticipants(new ParticipantSet());
+
+        ParticipantPage page4 = createPage();
+        page4.setStart(1); // same as page1
+
+        Map<ParticipantPage, String> map = new HashMap<ParticipantPage, String>();
+        map.put(page1, "ONE");
+        map.put(page2, "TWO");
+        map.put(page3, "THREE");
+
+        assertEquals("ONE", map.get(page1));
+        assertEquals("TWO", map.get(page2));
+        assertEquals("THREE", map.get(page3));
+        assertEquals("ONE", map.get(page4));
+    }
+
+    /** Create a ParticipantPage for testing. */
+    private static ParticipantPage createPage() {
+        return new ParticipantPage(12L, 2, 10, createParticipants());
+    }
+
+    /** Create a set of participants for testing. */
+    private static ParticipantSet createParticipants() {
+        ParticipantSet participants = new ParticipantSet();
+        participants.add(new Participant(1L, "p1", "p1n", "p1@example.com"));
+        participants.add(new Participant(2L, "p2", "p2n", "p2@example.com"));
+        return participants;
+    }
+}
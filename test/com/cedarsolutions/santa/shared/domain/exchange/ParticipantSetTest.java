@@ -23,10 +23,21 @@
 package com.cedarsolutions.santa.shared.domain.exchange;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.junit.Test;
 
 /**
@@ -61,4 +72,259 @@ public class ParticipantSetTest {
         }
     }
 
+    /** Test getIndex() and getParticipants(). */
+    @Test public void testGetIndexAndParticipants() {
+        Participant participant1 = new Participant(1L);
+        Participant participant2 = new Participant(2L);
+        Participant participant3 = new Participant(3L);
+
+        ParticipantSet set = new ParticipantSet();
+        assertTrue(set.getIndex().isEmpty());
+        assertTrue(set.getParticipants(null).isEmpty());
+
+        set.add(participant1);
+        set.add(participant2);
+        set.add(participant3);
+
+        Map<Long, Participant> index = set.getIndex();
+        assertEquals(3, index.size());
+        assertSame(participant1, index.get(1L));
+        assertSame(participant2, index.get(2L));
+        assertSame(participant3, index.get(3L));
+
+        List<Long> ids = new ArrayList<Long>();
+        assertTrue(set.getParticipants(ids).isEmpty());
+
+        ids.add(3L);
+        ids.add(99L);
+        ids.add(1L);
+        ParticipantSet result = set.getParticipants(ids);
+        assertEquals(2, result.size());
+        assertSame(participant3, result.get(0));
+        assertSame(participant1, result.get(1));
+    }
+
+    /** Test indexOfId(), getParticipantById() and getMaxId() as the set is modified. */
+    @Test public void testIndexInSync() {
+        Participant participant1 = new Participant(1L);
+        Participant participant2 = new Participant(2L);
+        Participant participant3 = new Participant(3L);
+
+        ParticipantSet set = new ParticipantSet();
+        assertEquals(-1, set.indexOfId(1L));
+        assertEquals(-1, set.indexOfId(null));
+        assertNull(set.getParticipantById(1L));
+        assertEquals(0, set.getMaxId());
+
+        set.add(participant3);
+        set.add(participant1);
+        assertEquals(0, set.indexOfId(3L));
+        assertEquals(1, set.indexOfId(1L));
+        assertEquals(3, set.getMaxId());
+
+        set.add(participant2);
+        assertSame(participant2, set.getParticipantById(2L));
+        assertEquals(3, set.getMaxId());
+
+        Participant replacement = new Participant(1L);
+        set.set(1, replacement);
+        assertSame(replacement, set.getParticipantById(1L));
+
+        set.set(1, new Participant(7L));
+        assertNull(set.getParticipantById(1L));
+        assertEquals(1, set.indexOfId(7L));
+        assertEquals(7, set.getMaxId());
+
+        set.remove(0);
+        assertEquals(-1, set.indexOfId(3L));
+        assertEquals(0, set.indexOfId(7L));
+        assertEquals(1, set.indexOfId(2L));
+
+        set.remove(1);
+        assertEquals(-1, set.indexOfId(2L));
+        assertEquals(7, set.getMaxId());
+
+        set.remove(0);
+        assertEquals(0, set.getMaxId());
+
+        set.add(participant1);
+        set.add(0, participant2);
+        assertEquals(0, set.indexOfId(2L));
+        assertEquals(1, set.indexOfId(1L));
+
+        Iterator<Participant> iterator = set.iterator();
+        iterator.next();
+        iterator.remove();
+        assertEquals(-1, set.indexOfId(2L));
+        assertEquals(0, set.indexOfId(1L));
+        assertEquals(1, set.getMaxId());
+
+        set.addAll(Arrays.asList(participant2, participant3));
+        assertEquals(2, set.indexOfId(3L));
+        assertEquals(3, set.getMaxId());
+
+        assertTrue(set.remove(participant1));
+        assertEquals(0, set.indexOfId(2L));
+
+        set.removeAll(Arrays.asList(participant2));
+        assertEquals(0, set.indexOfId(3L));
+
+        set.clear();
+        assertEquals(-1, set.indexOfId(3L));
+        assertEquals(0, set.getMaxId());
+    }
+
+    /** Test the index with duplicate and null ids. */
+    @Test public void testIndexDuplicateAndNullIds() {
+        Participant participant1 = new Participant(1L);
+        Participant duplicate = new Participant(1L);
+
+        ParticipantSet set = new ParticipantSet();
+        set.add(new Participant());
+        set.add(participant1);
+        set.add(duplicate);
+
+        assertEquals(-1, set.indexOfId(null));
+        assertSame(participant1, set.getParticipantById(1L));
+        assertEquals(1, set.getMaxId());
+
+        set.remove(2);
+        assertSame(participant1, set.getParticipantById(1L));
+
+        set.add(duplicate);
+        set.remove(1);
+        assertSame(duplicate, set.getParticipantById(1L));
+    }
+
+    /** Test change tracking. */
+    @Test public void testChangeTracking() {
+        Participant participant1 = new Participant(1L);
+        Participant participant2 = new Participant(2L);
+        Participant participant3 = new Participant(3L);
+
+        ParticipantSet set = new ParticipantSet();
+        assertFalse(set.hasChanges());
+        assertTrue(set.getChangedIds().isEmpty());
+
+        set.add(participant1);
+        set.add(participant2);
+        set.add(participant3);
+        set.add(new Participant());
+        assertTrue(set.hasChanges());
+        assertEquals(3, set.getChangedIds().size());
+
+        set.clearChanges();
+        assertFalse(set.hasChanges());
+
+        set.set(0, participant1);
+        assertFalse(set.hasChanges());
+
+        set.set(0, new Participant(1L));
+        assertEquals(1, set.getChangedIds().size());
+        assertTrue(set.getChangedIds().contains(1L));
+
+        set.getChangedIds().clear();  // it's a copy
+        assertTrue(set.hasChanges());
+
+        ParticipantSet snapshot = set.snapshot();
+        assertEquals(set, snapshot);
+        assertSame(set.get(1), snapshot.get(1));
+        assertEquals(set.getChangedIds(), snapshot.getChangedIds());
+
+        ParticipantSet copy = new ParticipantSet(set);
+        assertNotSame(set.get(1), copy.get(1));
+        assertEquals(set.getChangedIds(), copy.getChangedIds());
+
+        snapshot.clearChanges();
+        snapshot.remove(participant2);
+        assertEquals(1, snapshot.getChangedIds().size());
+        assertTrue(snapshot.getChangedIds().contains(2L));
+        assertTrue(set.getChangedIds().contains(1L));
+        assertFalse(set.getChangedIds().contains(2L));
+
+        snapshot.clearChanges();
+        snapshot.removeParticipants(new HashSet<Long>(Arrays.asList(3L)));
+        assertEquals(new HashSet<Long>(Arrays.asList(3L)), snapshot.getChangedIds());
+
+        set.clearChanges();
+        set.retainAll(Arrays.asList(participant2));
+        assertEquals(new HashSet<Long>(Arrays.asList(1L, 3L)), set.getChangedIds());
+
+        set.clearChanges();
+        set.removeAll(Arrays.asList(participant2));
+        assertEquals(new HashSet<Long>(Arrays.asList(2L)), set.getChangedIds());
+
+        set.clearChanges();
+        set.addAll(Arrays.asList(participant1, participant2));
+        set.clear();
+        assertEquals(new HashSet<Long>(Arrays.asList(1L, 2L)), set.getChangedIds());
+    }
+
+    /** Test change tracking through subList(). */
+    @Test public void testChangeTrackingSubList() {
+        ParticipantSet set = new ParticipantSet();
+        for (long id = 1; id <= 5; id++) {
+            set.add(new Participant(id));
+        }
+
+        set.clearChanges();
+        List<Participant> view = set.subList(1, 4);
+        assertEquals(3, view.size());
+        assertSame(set.get(1), view.get(0));
+        assertEquals(set.get(3), view.get(2));
+        assertEquals(Arrays.asList(set.get(1), set.get(2), set.get(3)), view);
+        assertFalse(set.hasChanges());
+
+        view.set(0, view.get(0));
+        assertFalse(set.hasChanges());
+
+        view.set(0, new Participant(6L));
+        assertEquals(new HashSet<Long>(Arrays.asList(2L, 6L)), set.getChangedIds());
+        assertEquals(1, set.indexOfId(6L));
+        assertEquals(-1, set.indexOfId(2L));
+
+        set.clearChanges();
+        view.remove(1);
+        assertEquals(new HashSet<Long>(Arrays.asList(3L)), set.getChangedIds());
+        assertEquals(4, set.size());
+        assertEquals(2, set.indexOfId(4L));
+
+        set.clearChanges();
+        view.add(new Participant(7L));
+        assertEquals(new HashSet<Long>(Arrays.asList(7L)), set.getChangedIds());
+        assertEquals(5, set.size());
+        assertEquals(3, set.indexOfId(7L));
+        assertEquals(4, set.indexOfId(5L));
+
+        set.clearChanges();
+        view.clear();
+        assertEquals(new HashSet<Long>(Arrays.asList(6L, 4L, 7L)), set.getChangedIds());
+        assertEquals(2, set.size());
+        assertEquals(1, set.indexOfId(5L));
+    }
+
+    /** Test removeParticipants(). */
+    @Test public void testRemoveParticipants() {
+        ParticipantSet set = new ParticipantSet();
+        for (long id = 1; id <= 3000; id++) {
+            set.add(new Participant(id));
+        }
+
+        Set<Long> ids = new HashSet<Long>();
+        assertEquals(0, set.removeParticipants(ids));
+        assertEquals(3000, set.size());
+
+        for (long id = 2; id <= 3000; id += 2) {
+            ids.add(id);
+        }
+
+        ids.add(5000L);
+        assertEquals(1500, set.removeParticipants(ids));
+        assertEquals(1500, set.size());
+        assertEquals(2999, set.getMaxId());
+        assertEquals(-1, set.indexOfId(2L));
+        assertEquals(1, set.indexOfId(3L));
+        assertEquals(new Long(2999), set.get(1499).getId());
+    }
+
 }
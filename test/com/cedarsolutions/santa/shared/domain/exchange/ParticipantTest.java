@@ -31,7 +31,9 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.Test;
@@ -47,8 +49,8 @@ public class ParticipantTest {
 
     /** Test the constructors. */
     @Test public void testConstructors() {
-        ParticipantSet conflicts = new ParticipantSet();
-        conflicts.add(new Participant(0L));
+        List<Long> conflicts = new ArrayList<Long>();
+        conflicts.add(0L);
 
         Participant participant = new Participant();
         assertNotNull(participant);
@@ -57,7 +59,7 @@ public class ParticipantTest {
         assertNull(participant.getNickname());
         assertNull(participant.getEmailAddress());
         assertEquals(new TemplateConfig(), participant.getTemplateOverrides());
-        assertConflictsEquivalent(new ParticipantSet(), participant);
+        assertConflictsEquivalent(new ArrayList<Long>(), participant);
 
         participant = new Participant(1L);
         assertNotNull(participant);
@@ -66,7 +68,7 @@ public class ParticipantTest {
         assertEquals(null, participant.getNickname());
         assertEquals(null, participant.getEmailAddress());
         assertEquals(new TemplateConfig(), participant.getTemplateOverrides());
-        assertConflictsEquivalent(new ParticipantSet(), participant);
+        assertConflictsEquivalent(new ArrayList<Long>(), participant);
 
         participant = new Participant(1L, "name", "nickname", "email");
         assertNotNull(participant);
@@ -75,7 +77,7 @@ public class ParticipantTest {
         assertEquals("nickname", participant.getNickname());
         assertEquals("email", participant.getEmailAddress());
         assertEquals(new TemplateConfig(), participant.getTemplateOverrides());
-        assertConflictsEquivalent(new ParticipantSet(), participant);
+        assertConflictsEquivalent(new ArrayList<Long>(), participant);
 
         participant = new Participant(1L, "name", "nickname", "email", conflicts);
         assertNotNull(participant);
@@ -103,7 +105,7 @@ public class ParticipantTest {
         assertNull(copy.getNickname());
         assertNull(copy.getEmailAddress());
         assertEquals(new TemplateConfig(), copy.getTemplateOverrides());
-        assertConflictsEquivalent(new ParticipantSet(), copy);
+        assertConflictsEquivalent(new ArrayList<Long>(), copy);
 
         TemplateConfig templateOverrides = new TemplateConfig();
         templateOverrides.setEmailFormat(EmailFormat.MULTIPART);
@@ -139,9 +141,13 @@ public class ParticipantTest {
         participant.setTemplateOverrides(emailConfig);
         assertSame(emailConfig, participant.getTemplateOverrides());
 
-        ParticipantSet conflicts = new ParticipantSet();
-        participant.setConflicts(conflicts);
-        assertSame(conflicts, participant.getConflicts());
+        List<Long> conflictIds = new ArrayList<Long>();
+        participant.setConflictIds(conflictIds);
+        assertSame(conflictIds, participant.getConflictIds());
+
+        ParticipantSet legacyConflicts = new ParticipantSet();
+        participant.setLegacyConflicts(legacyConflicts);
+        assertSame(legacyConflicts, participant.getLegacyConflicts());
     }
 
     /** Test equals(). */
@@ -194,7 +200,13 @@ public class ParticipantTest {
 
         participant1 = createParticipant();
         participant2 = createParticipant();
-        participant2.setConflicts(null);
+        participant2.setConflictIds(null);
+        assertFalse(participant1.equals(participant2));
+        assertFalse(participant2.equals(participant1));
+
+        participant1 = createParticipant();
+        participant2 = createParticipant();
+        participant2.setLegacyConflicts(new ParticipantSet());
         assertFalse(participant1.equals(participant2));
         assertFalse(participant2.equals(participant1));
     }
@@ -214,17 +226,21 @@ public class ParticipantTest {
         participant4.setTemplateOverrides(null);
 
         Participant participant5 = createParticipant();
-        participant5.setConflicts(null);
+        participant5.setConflictIds(null);
 
         Participant participant6 = createParticipant();
         participant6.setId(5L);
 
+        Participant participant7 = createParticipant();
+        participant7.setLegacyConflicts(new ParticipantSet());
+
         Map<Participant, String> map = new HashMap<Participant, String>();
         map.put(participant1, "ONE");
         map.put(participant2, "TWO");
         map.put(participant3, "THREE");
         map.put(participant4, "FOUR");
         map.put(participant5, "FIVE");
+        map.put(participant7, "SEVEN");
 
         assertEquals("ONE", map.get(participant1));
         assertEquals("TWO", map.get(participant2));
@@ -232,6 +248,7 @@ public class ParticipantTest {
         assertEquals("FOUR", map.get(participant4));
         assertEquals("FIVE", map.get(participant5));
         assertEquals("ONE", map.get(participant6));
+        assertEquals("SEVEN", map.get(participant7));
     }
 
     /** Test addConflict() and removeConflict(). */
@@ -247,35 +264,69 @@ public class ParticipantTest {
         Participant conflict3 = new Participant();
         conflict3.setId(1L); // same as conflict1
 
-        assertTrue(participant.getConflicts().isEmpty());
+        assertTrue(participant.getConflictIds().isEmpty());
+        assertFalse(participant.hasConflict(1L));
         participant.removeConflict(conflict1);
         participant.removeConflict(conflict2);
         participant.removeConflict(conflict3);
 
         participant.addConflict(conflict1);
-        assertEquals(1, participant.getConflicts().size());
-        assertSame(conflict1, participant.getConflicts().get(0));
+        assertEquals(1, participant.getConflictIds().size());
+        assertEquals(new Long(1L), participant.getConflictIds().get(0));
+        assertTrue(participant.hasConflict(1L));
+        assertFalse(participant.hasConflict(2L));
 
         participant.addConflict(conflict2);
-        assertEquals(2, participant.getConflicts().size());
-        assertSame(conflict1, participant.getConflicts().get(0));
-        assertSame(conflict2, participant.getConflicts().get(1));
+        assertEquals(2, participant.getConflictIds().size());
+        assertEquals(new Long(1L), participant.getConflictIds().get(0));
+        assertEquals(new Long(2L), participant.getConflictIds().get(1));
 
         participant.addConflict(conflict3);
-        assertEquals(2, participant.getConflicts().size());
-        assertSame(conflict1, participant.getConflicts().get(0));
-        assertSame(conflict2, participant.getConflicts().get(1));
+        assertEquals(2, participant.getConflictIds().size());
+        assertEquals(new Long(1L), participant.getConflictIds().get(0));
+        assertEquals(new Long(2L), participant.getConflictIds().get(1));
 
         participant.removeConflict(conflict3);
-        assertEquals(1, participant.getConflicts().size());
-        assertSame(conflict2, participant.getConflicts().get(0));
+        assertEquals(1, participant.getConflictIds().size());
+        assertEquals(new Long(2L), participant.getConflictIds().get(0));
 
         participant.removeConflict(conflict1);
-        assertEquals(1, participant.getConflicts().size());
-        assertSame(conflict2, participant.getConflicts().get(0));
+        assertEquals(1, participant.getConflictIds().size());
+        assertEquals(new Long(2L), participant.getConflictIds().get(0));
+
+        participant.addConflict(3L);
+        assertEquals(2, participant.getConflictIds().size());
+        assertEquals(new Long(3L), participant.getConflictIds().get(1));
 
+        participant.removeConflict(3L);
         participant.removeConflict(conflict2);
-        assertTrue(participant.getConflicts().isEmpty());
+        assertTrue(participant.getConflictIds().isEmpty());
+        assertFalse(participant.hasConflict(2L));
+    }
+
+    /** Test upgradeConflicts(). */
+    @Test public void testUpgradeConflicts() {
+        Participant participant = createParticipant();
+        assertFalse(participant.upgradeConflicts());
+        assertTrue(participant.getConflictIds().isEmpty());
+
+        participant.addConflict(2L);
+        participant.setLegacyConflicts(new ParticipantSet());
+        participant.getLegacyConflicts().add(new Participant(2L));
+        participant.getLegacyConflicts().add(new Participant(3L));
+        participant.getLegacyConflicts().add(new Participant());
+        assertTrue(participant.upgradeConflicts());
+        assertNull(participant.getLegacyConflicts());
+        assertEquals(2, participant.getConflictIds().size());
+        assertEquals(new Long(2L), participant.getConflictIds().get(0));
+        assertEquals(new Long(3L), participant.getConflictIds().get(1));
+
+        participant.setConflictIds(null);
+        participant.setLegacyConflicts(new ParticipantSet());
+        participant.getLegacyConflicts().add(new Participant(4L));
+        assertTrue(participant.upgradeConflicts());
+        assertEquals(1, participant.getConflictIds().size());
+        assertEquals(new Long(4L), participant.getConflictIds().get(0));
     }
 
     /** Create a Participant for testing. */
@@ -287,19 +338,16 @@ public class ParticipantTest {
         participant.setNickname("nick");
         participant.setEmailAddress("email");
         participant.setTemplateOverrides(new TemplateConfig());
-        participant.setConflicts(new ParticipantSet());
+        participant.setConflictIds(new ArrayList<Long>());
 
         return participant;
     }
 
-    /** Assert that participants are equivalent, but not the same. */
-    private static void assertConflictsEquivalent(ParticipantSet conflicts, Participant participant) {
-        assertEquals(conflicts, participant.getConflicts());
-        for (Participant copied : participant.getConflicts()) {
-            for (Participant source : conflicts) {
-                assertNotSame(source, copied);
-            }
-        }
+    /** Assert that conflict ids are equivalent, but not the same list. */
+    private static void assertConflictsEquivalent(List<Long> conflictIds, Participant participant) {
+        assertEquals(conflictIds, participant.getConflictIds());
+        assertNotSame(conflictIds, participant.getConflictIds());
+        assertNull(participant.getLegacyConflicts());
     }
 
 }